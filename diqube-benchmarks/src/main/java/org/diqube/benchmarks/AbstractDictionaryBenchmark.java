@@ -0,0 +1,164 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.diqube.data.dictionary.Dictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Abstract base class for benchmarks of {@link Dictionary} implementations.
+ * 
+ * <p>
+ * Benchmarks lookups of single values and IDs, range finds and finding equal IDs in another dictionary of the same
+ * type (as is done when comparing two columns). The other dictionary contains about half of the values of the
+ * benchmarked dictionary.
+ *
+ * @param <T>
+ *          Type of the values in the dictionary.
+ * @author Bastian Gloeckle
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public abstract class AbstractDictionaryBenchmark<T> {
+  private static final Logger logger = LoggerFactory.getLogger(AbstractDictionaryBenchmark.class);
+
+  private static final long SEED = 0xd1c0beL;
+
+  /** Number of values/IDs that are used for lookups. */
+  private static final int NUMBER_OF_LOOKUPS = 1 << 10;
+
+  @Param({ "SORTED", "SKEWED", "HIGH_CARDINALITY" })
+  public Distribution distribution;
+
+  /** Number of distinct values in the dictionary. */
+  @Param({ "10000", "500000" })
+  public int size;
+
+  private Dictionary<T> dictionary;
+  private Dictionary<T> otherDictionary;
+
+  /** IDs that are available in {@link #dictionary}. */
+  private long[] lookupIds;
+  /** Values that are available in {@link #dictionary}. */
+  private List<T> lookupValues;
+  /** Values of the same distribution as the ones in {@link #dictionary}, but not necessarily available in it. */
+  private List<T> rangeValues;
+  private int nextLookup = 0;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(SEED);
+    NavigableSet<T> values = createValues(distribution, size, random);
+    dictionary = createDictionary(toEntityMap(values));
+
+    NavigableSet<T> otherValues = new TreeSet<>(createValues(distribution, size / 2, random));
+    Iterator<T> valueIt = values.iterator();
+    while (valueIt.hasNext()) {
+      otherValues.add(valueIt.next());
+      if (valueIt.hasNext())
+        valueIt.next();
+    }
+    otherDictionary = createDictionary(toEntityMap(otherValues));
+
+    lookupIds = random.longs(NUMBER_OF_LOOKUPS, 0, size).toArray();
+    lookupValues = new ArrayList<>(NUMBER_OF_LOOKUPS);
+    for (long id : lookupIds)
+      lookupValues.add(dictionary.decompressValue(id));
+    rangeValues = new ArrayList<>(createValues(distribution, NUMBER_OF_LOOKUPS, random));
+
+    logger.info("Created {} dictionary with {} {} values of approx. {} bytes.", dictionary.getClass().getSimpleName(),
+        size, distribution, dictionary.calculateApproximateSizeInBytes());
+  }
+
+  private NavigableMap<T, Long> toEntityMap(NavigableSet<T> values) {
+    NavigableMap<T, Long> res = new TreeMap<>();
+    long id = 0;
+    for (T value : values)
+      res.put(value, id++);
+    return res;
+  }
+
+  private int nextLookupIndex() {
+    nextLookup = (nextLookup + 1) % NUMBER_OF_LOOKUPS;
+    return nextLookup;
+  }
+
+  @Benchmark
+  public void decompressValue(Blackhole blackhole) {
+    blackhole.consume(dictionary.decompressValue(lookupIds[nextLookupIndex()]));
+  }
+
+  @Benchmark
+  public long findIdOfValue() {
+    return dictionary.findIdOfValue(lookupValues.get(nextLookupIndex()));
+  }
+
+  @Benchmark
+  public Long findGtEqIdOfValue() {
+    return dictionary.findGtEqIdOfValue(rangeValues.get(nextLookupIndex()));
+  }
+
+  @Benchmark
+  public Long findLtEqIdOfValue() {
+    return dictionary.findLtEqIdOfValue(rangeValues.get(nextLookupIndex()));
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public NavigableMap<Long, Long> findEqualIds() {
+    return dictionary.findEqualIds(otherDictionary);
+  }
+
+  /**
+   * Create sorted distinct values of the given distribution.
+   */
+  protected abstract NavigableSet<T> createValues(Distribution distribution, int size, Random random);
+
+  /**
+   * Create the dictionary to be benchmarked.
+   * 
+   * @param entityMap
+   *          Map from value to the ID the value should have in the new dictionary, sorted by value and with the IDs
+   *          being assigned in ascending order.
+   */
+  protected abstract Dictionary<T> createDictionary(NavigableMap<T, Long> entityMap);
+}
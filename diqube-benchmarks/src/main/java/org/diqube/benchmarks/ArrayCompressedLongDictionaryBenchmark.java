@@ -0,0 +1,46 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+
+import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.types.lng.dict.ArrayCompressedLongDictionary;
+import org.diqube.loader.compression.CompressedLongDictionaryBuilder;
+
+/**
+ * Benchmarks {@link ArrayCompressedLongDictionary}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ArrayCompressedLongDictionaryBenchmark extends AbstractDictionaryBenchmark<Long> {
+  @Override
+  protected NavigableSet<Long> createValues(Distribution distribution, int size, Random random) {
+    return BenchmarkDataGenerator.distinctLongValues(distribution, size, random);
+  }
+
+  @Override
+  protected Dictionary<Long> createDictionary(NavigableMap<Long, Long> entityMap) {
+    return new CompressedLongDictionaryBuilder().fromEntityMap(entityMap).build().getLeft();
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates synthetic data for benchmarks according to a {@link Distribution}.
+ * 
+ * <p>
+ * All methods are deterministic for a given {@link Random}, so subsequent benchmark runs work on the same data.
+ *
+ * @author Bastian Gloeckle
+ */
+public class BenchmarkDataGenerator {
+  /** Number of distinct values that the "frequent" values of {@link Distribution#SKEWED} are taken from. */
+  private static final int SKEWED_FREQUENT_VALUES = 16;
+  /** Number of distinct values that the "rare" values of {@link Distribution#SKEWED} are taken from. */
+  private static final int SKEWED_RARE_VALUES = 100_000;
+  /** Maximum length of a run of equal values in {@link Distribution#SKEWED}. */
+  private static final int SKEWED_MAX_RUN_LENGTH = 64;
+
+  private static final String[] SKEWED_STRING_PREFIXES = new String[] { "http://www.diqube.org/", //
+      "http://www.diqube.org/docs/", //
+      "https://github.com/diqube/diqube/blob/master/", //
+      "https://github.com/diqube/diqube/issues/" };
+
+  private BenchmarkDataGenerator() {
+  }
+
+  /**
+   * Generate the values of a column, i.e. the array might contain duplicate values.
+   * 
+   * @return Array of length size. The array is sorted if distribution is {@link Distribution#SORTED}.
+   */
+  public static long[] columnValues(Distribution distribution, int size, Random random) {
+    long[] res = new long[size];
+    switch (distribution) {
+    case SORTED:
+      long value = random.nextInt(1_000_000);
+      for (int i = 0; i < size; i++) {
+        res[i] = value;
+        value += random.nextInt(4);
+      }
+      break;
+    case SKEWED:
+      int pos = 0;
+      while (pos < size) {
+        long runValue;
+        // 90% of the runs have one of the few frequent values.
+        if (random.nextInt(10) < 9)
+          runValue = random.nextInt(SKEWED_FREQUENT_VALUES);
+        else
+          runValue = SKEWED_FREQUENT_VALUES + random.nextInt(SKEWED_RARE_VALUES);
+        int runLength = 1 + random.nextInt(SKEWED_MAX_RUN_LENGTH);
+        for (int i = 0; i < runLength && pos < size; i++)
+          res[pos++] = runValue;
+      }
+      break;
+    case HIGH_CARDINALITY:
+      for (int i = 0; i < size; i++)
+        res[i] = random.nextLong();
+      break;
+    }
+    return res;
+  }
+
+  /**
+   * Generate distinct long values, as they would be found in a dictionary.
+   */
+  public static NavigableSet<Long> distinctLongValues(Distribution distribution, int size, Random random) {
+    NavigableSet<Long> res = new TreeSet<>();
+    switch (distribution) {
+    case SORTED:
+      long value = random.nextInt(1_000_000);
+      while (res.size() < size) {
+        res.add(value);
+        value += 1 + random.nextInt(3);
+      }
+      break;
+    case SKEWED:
+      // most values are small and dense, some values are far off.
+      while (res.size() < size) {
+        if (random.nextInt(10) < 9)
+          res.add((long) random.nextInt(2 * size));
+        else
+          res.add(Math.abs(random.nextLong() >> random.nextInt(63)));
+      }
+      break;
+    case HIGH_CARDINALITY:
+      while (res.size() < size)
+        res.add(random.nextLong());
+      break;
+    }
+    return res;
+  }
+
+  /**
+   * Generate distinct double values, as they would be found in a dictionary.
+   */
+  public static NavigableSet<Double> distinctDoubleValues(Distribution distribution, int size, Random random) {
+    NavigableSet<Double> res = new TreeSet<>();
+    switch (distribution) {
+    case SORTED:
+      // measurements with a fixed precision.
+      for (Long value : distinctLongValues(Distribution.SORTED, size, random))
+        res.add(value / 100.);
+      break;
+    case SKEWED:
+      // log-normal distributed amounts, most of them being small.
+      while (res.size() < size)
+        res.add(Math.round(Math.exp(random.nextGaussian() * 3) * 10_000) / 10_000.);
+      break;
+    case HIGH_CARDINALITY:
+      while (res.size() < size) {
+        double value = Double.longBitsToDouble(random.nextLong());
+        if (!Double.isNaN(value) && !Double.isInfinite(value))
+          res.add(value);
+      }
+      break;
+    }
+    return res;
+  }
+
+  /**
+   * Generate distinct string values, as they would be found in a dictionary.
+   */
+  public static NavigableSet<String> distinctStringValues(Distribution distribution, int size, Random random) {
+    NavigableSet<String> res = new TreeSet<>();
+    switch (distribution) {
+    case SORTED:
+      // IDs with a common format.
+      for (Long value : distinctLongValues(Distribution.SORTED, size, random))
+        res.add(String.format("ID-%012d", value));
+      break;
+    case SKEWED:
+      // URLs with a few long common prefixes.
+      while (res.size() < size)
+        res.add(SKEWED_STRING_PREFIXES[random.nextInt(SKEWED_STRING_PREFIXES.length)]
+            + Long.toString(random.nextInt(2 * size), 36));
+      break;
+    case HIGH_CARDINALITY:
+      while (res.size() < size)
+        res.add(Long.toString(random.nextLong() >>> 1, 36));
+      break;
+    }
+    return res;
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.diqube.data.types.lng.array.BitEfficientLongArray;
+import org.diqube.data.types.lng.array.CompressedLongArray;
+import org.diqube.data.types.lng.array.ReferenceBasedLongArray;
+import org.diqube.data.types.lng.array.RunLengthLongArray;
+import org.diqube.loader.columnshard.ColumnShardBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks the {@link CompressedLongArray} implementations, as they are used to store the values of column pages and
+ * long dictionaries.
+ * 
+ * <p>
+ * {@link RunLengthLongArray} and {@link ReferenceBasedLongArray} store their compressed values in a
+ * {@link BitEfficientLongArray}, just like the loader does.
+ *
+ * @author Bastian Gloeckle
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+public class CompressedLongArrayBenchmark {
+  private static final Logger logger = LoggerFactory.getLogger(CompressedLongArrayBenchmark.class);
+
+  private static final long SEED = 0xd1c0beL;
+
+  /** Number of indices that are accessed by {@link #get()} and {@link #getMultiple()}. */
+  private static final int NUMBER_OF_INDICES = 1 << 10;
+
+  public static enum ArrayType {
+    BIT_EFFICIENT, RUN_LENGTH, REFERENCE_BASED
+  }
+
+  @Param({ "BIT_EFFICIENT", "RUN_LENGTH", "REFERENCE_BASED" })
+  public ArrayType arrayType;
+
+  @Param({ "SORTED", "SKEWED", "HIGH_CARDINALITY" })
+  public Distribution distribution;
+
+  /** Number of values in the array, defaults to the number of rows in a column page, see {@link ColumnShardBuilder}. */
+  @Param({ "50000" })
+  public int size;
+
+  private long[] values;
+  private boolean isSorted;
+  private CompressedLongArray<?> array;
+  private int[] indices;
+  private int nextIndex = 0;
+  private List<Integer> sortedIndices;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(SEED);
+    values = BenchmarkDataGenerator.columnValues(distribution, size, random);
+    isSorted = distribution.equals(Distribution.SORTED);
+    array = compress();
+
+    indices = random.ints(NUMBER_OF_INDICES, 0, size).toArray();
+    sortedIndices = Arrays.stream(indices).sorted().distinct().boxed().collect(Collectors.toList());
+
+    logger.info("Compressed {} {} values using {} to approx. {} bytes.", size, distribution, arrayType,
+        array.calculateApproximateSizeInBytes());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public CompressedLongArray<?> compress() {
+    switch (arrayType) {
+    case RUN_LENGTH:
+      RunLengthLongArray runLength = new RunLengthLongArray();
+      runLength.compress(values, isSorted, () -> new BitEfficientLongArray());
+      return runLength;
+    case REFERENCE_BASED:
+      ReferenceBasedLongArray refBased = new ReferenceBasedLongArray();
+      refBased.compress(values, isSorted, () -> new BitEfficientLongArray());
+      return refBased;
+    default:
+      return new BitEfficientLongArray(values, isSorted);
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public long get() {
+    nextIndex = (nextIndex + 1) % NUMBER_OF_INDICES;
+    return array.get(indices[nextIndex]);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Long> getMultiple() {
+    return array.getMultiple(sortedIndices);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public long[] decompressedArray() {
+    return array.decompressedArray();
+  }
+}
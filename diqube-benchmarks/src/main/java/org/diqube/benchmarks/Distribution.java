@@ -0,0 +1,41 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+/**
+ * Synthetic distributions of values that benchmarks are executed on. These mirror the shapes of data that is typically
+ * found in real tables.
+ *
+ * @author Bastian Gloeckle
+ */
+public enum Distribution {
+  /** Ascending values with small gaps in between, like timestamps or auto-incremented IDs. */
+  SORTED,
+
+  /**
+   * Few values are very frequent (and are typically found in runs), many values are rare, like status codes or country
+   * names.
+   */
+  SKEWED,
+
+  /** Uniformly distributed values from a wide range, like hashes or random user IDs. */
+  HIGH_CARDINALITY
+}
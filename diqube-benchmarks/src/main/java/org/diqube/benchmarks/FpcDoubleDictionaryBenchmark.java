@@ -0,0 +1,46 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+
+import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.types.dbl.dict.FpcDoubleDictionary;
+import org.diqube.loader.compression.CompressedDoubleDictionaryBuilder;
+
+/**
+ * Benchmarks {@link FpcDoubleDictionary}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class FpcDoubleDictionaryBenchmark extends AbstractDictionaryBenchmark<Double> {
+  @Override
+  protected NavigableSet<Double> createValues(Distribution distribution, int size, Random random) {
+    return BenchmarkDataGenerator.distinctDoubleValues(distribution, size, random);
+  }
+
+  @Override
+  protected Dictionary<Double> createDictionary(NavigableMap<Double, Long> entityMap) {
+    return new CompressedDoubleDictionaryBuilder().fromEntityMap(entityMap).build().getLeft();
+  }
+}
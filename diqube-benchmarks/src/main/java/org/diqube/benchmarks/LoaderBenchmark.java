@@ -0,0 +1,287 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.diqube.context.Profiles;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.table.TableShard;
+import org.diqube.loader.CsvLoader;
+import org.diqube.loader.DiqubeLoader;
+import org.diqube.loader.JsonLoader;
+import org.diqube.loader.LoadException;
+import org.diqube.loader.Loader;
+import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.util.LoadPhaseTimer;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
+import org.diqube.tool.transpose.TransposeImplementation;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Profiling harness for the {@link Loader}s and the "transpose" function of diqube-tool.
+ * 
+ * <p>
+ * Generates synthetic CSV and JSON input (see {@link LoaderInputGenerator}) and loads it repeatedly using
+ * {@link CsvLoader}, {@link JsonLoader}, {@link DiqubeLoader} and {@link TransposeImplementation}. For each of those
+ * the throughput (rows/s and MB of input per second), the peak heap usage and the time spent in each {@link LoadPhase}
+ * is reported.
+ * 
+ * <p>
+ * In contrast to the other benchmarks, this is no JMH benchmark, since loading data takes long, is executed rarely and
+ * we're interested in the details of single executions. Start it using
+ * <code>java -cp benchmarks.jar org.diqube.benchmarks.LoaderBenchmark --help</code>.
+ * 
+ * <p>
+ * Note that the phase times are summed up over all threads that executed the phase: as parsing and transposing is
+ * executed in parallel, the time reported for those phases may be greater than the wall clock time. In addition to
+ * that, {@link LoadPhase#COMPRESSION} is partly contained in {@link LoadPhase#DICTIONARY}. The peak heap is the sum of
+ * the peak usages of all heap memory pools, which might be slightly higher than the actual peak of the whole heap.
+ *
+ * @author Bastian Gloeckle
+ */
+public class LoaderBenchmark {
+  private static final String OPT_HELP = "h";
+  private static final String OPT_ROWS = "r";
+  private static final String OPT_COLUMNS = "c";
+  private static final String OPT_NESTING_DEPTH = "d";
+  private static final String OPT_ARRAY_LENGTH = "a";
+  private static final String OPT_CARDINALITY = "n";
+  private static final String OPT_TYPE = "t";
+  private static final String OPT_WARMUP = "w";
+  private static final String OPT_ITERATIONS = "i";
+
+  private static final double MB = 1024. * 1024.;
+
+  private static enum Scenario {
+    CSV, JSON, TRANSPOSE_CSV, TRANSPOSE_JSON, DIQUBE
+  }
+
+  private Map<LoadPhase, LongAdder> phaseNanos = new EnumMap<>(LoadPhase.class);
+
+  private File csvFile;
+  private File jsonFile;
+  private File diqubeFile;
+  private int rows;
+  private ColumnType columnType;
+
+  private LoaderBenchmark(File csvFile, File jsonFile, File diqubeFile, int rows, ColumnType columnType) {
+    this.csvFile = csvFile;
+    this.jsonFile = jsonFile;
+    this.diqubeFile = diqubeFile;
+    this.rows = rows;
+    this.columnType = columnType;
+    for (LoadPhase phase : LoadPhase.values())
+      phaseNanos.put(phase, new LongAdder());
+  }
+
+  public static void main(String[] args) throws IOException, LoadException {
+    Options cliOpt = createCliOptions();
+    CommandLineParser parser = new DefaultParser();
+    CommandLine cmd = null;
+    boolean showHelp = false;
+    try {
+      cmd = parser.parse(cliOpt, args);
+      showHelp |= cmd.hasOption(OPT_HELP);
+    } catch (ParseException e) {
+      System.out.println(e.getMessage());
+      showHelp = true;
+    }
+
+    if (showHelp) {
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp(LoaderBenchmark.class.getSimpleName() + " [options]",
+          "\nGenerates synthetic input data and measures the performance of loading it into diqube.\n\n", cliOpt, "");
+      return;
+    }
+
+    int rows = Integer.parseInt(cmd.getOptionValue(OPT_ROWS, "200000"));
+    int columns = Integer.parseInt(cmd.getOptionValue(OPT_COLUMNS, "20"));
+    int nestingDepth = Integer.parseInt(cmd.getOptionValue(OPT_NESTING_DEPTH, "0"));
+    int arrayLength = Integer.parseInt(cmd.getOptionValue(OPT_ARRAY_LENGTH, "0"));
+    int cardinality = Integer.parseInt(cmd.getOptionValue(OPT_CARDINALITY, "1000"));
+    ColumnType columnType = ColumnType.valueOf(cmd.getOptionValue(OPT_TYPE, "long").toUpperCase());
+    int warmupIterations = Integer.parseInt(cmd.getOptionValue(OPT_WARMUP, "1"));
+    int iterations = Integer.parseInt(cmd.getOptionValue(OPT_ITERATIONS, "3"));
+
+    if (rows < 1 || cardinality < 1 || nestingDepth < 0 || arrayLength < 0 || iterations < 1 || warmupIterations < 0
+        || columns < nestingDepth + 1) {
+      System.out.println("Invalid options: rows, cardinality and iterations need to be > 0 and there needs to be at "
+          + "least one column per nesting level.");
+      return;
+    }
+
+    File dir = Files.createTempDirectory("diqube-loader-benchmark").toFile();
+    File csvFile = new File(dir, "input.csv");
+    File jsonFile = new File(dir, "input.json");
+    File diqubeFile = new File(dir, "input.diqube");
+    try {
+      System.out.println("Generating " + rows + " rows with " + columns + " " + columnType + " columns (cardinality "
+          + cardinality + ", JSON nesting depth " + nestingDepth + ", JSON array length " + arrayLength + ") in "
+          + dir.getAbsolutePath());
+      LoaderInputGenerator generator =
+          new LoaderInputGenerator(rows, columns, nestingDepth, arrayLength, cardinality, columnType);
+      generator.writeCsv(csvFile);
+      generator.writeJson(jsonFile);
+
+      new LoaderBenchmark(csvFile, jsonFile, diqubeFile, rows, columnType).run(warmupIterations, iterations);
+    } finally {
+      csvFile.delete();
+      jsonFile.delete();
+      diqubeFile.delete();
+      dir.delete();
+    }
+  }
+
+  private void run(int warmupIterations, int iterations) throws LoadException {
+    LoadPhaseTimer.setListener((phase, nanos) -> phaseNanos.get(phase).add(nanos));
+    try (AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext()) {
+      ctx.getEnvironment().setActiveProfiles(Profiles.CONFIG, Profiles.TOOL);
+      ctx.scan("org.diqube");
+      ctx.refresh();
+
+      System.out.println(String.format("%-15s %4s %10s %12s %8s %10s %s", "Scenario", "Iter", "Time [ms]", "Rows/s",
+          "MB/s", "Peak [MB]", "Phases [ms, summed over threads]"));
+
+      for (Scenario scenario : Scenario.values()) {
+        for (int i = 0; i < warmupIterations; i++)
+          execute(ctx, scenario);
+
+        for (int i = 0; i < iterations; i++) {
+          System.gc();
+          List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+          for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType().equals(MemoryType.HEAP)) {
+              pool.resetPeakUsage();
+              heapPools.add(pool);
+            }
+          for (LongAdder adder : phaseNanos.values())
+            adder.reset();
+
+          long start = System.nanoTime();
+          long inputBytes = execute(ctx, scenario);
+          long nanos = System.nanoTime() - start;
+
+          long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+          double seconds = nanos / 1_000_000_000.;
+
+          StringBuilder phases = new StringBuilder();
+          for (LoadPhase phase : LoadPhase.values()) {
+            long phaseMs = TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase).sum());
+            if (phaseMs > 0)
+              phases.append(phase.name().toLowerCase()).append("=").append(phaseMs).append(" ");
+          }
+
+          System.out.println(String.format("%-15s %4d %10d %12.0f %8.2f %10.1f %s", scenario, i,
+              TimeUnit.NANOSECONDS.toMillis(nanos), rows / seconds, inputBytes / MB / seconds, peakHeapBytes / MB,
+              phases.toString().trim()));
+        }
+      }
+    } finally {
+      LoadPhaseTimer.setListener(null);
+    }
+  }
+
+  /**
+   * Executes the given scenario once.
+   * 
+   * @return number of bytes of the input that was loaded.
+   */
+  private long execute(AnnotationConfigApplicationContext ctx, Scenario scenario) throws LoadException {
+    switch (scenario) {
+    case CSV:
+      load(ctx.getBean(CsvLoader.class), csvFile);
+      return csvFile.length();
+    case JSON:
+      load(ctx.getBean(JsonLoader.class), jsonFile);
+      return jsonFile.length();
+    case TRANSPOSE_CSV:
+      transpose(CsvLoader.class, csvFile);
+      return csvFile.length();
+    case TRANSPOSE_JSON:
+      transpose(JsonLoader.class, jsonFile);
+      return jsonFile.length();
+    case DIQUBE:
+      // usually re-uses the file created by TRANSPOSE_JSON.
+      if (!diqubeFile.exists())
+        transpose(JsonLoader.class, jsonFile);
+      load(ctx.getBean(DiqubeLoader.class), diqubeFile);
+      return diqubeFile.length();
+    }
+    throw new IllegalArgumentException("Unknown scenario " + scenario);
+  }
+
+  private void load(Loader loader, File inputFile) throws LoadException {
+    Collection<TableShard> shards =
+        loader.load(0L, inputFile.getAbsolutePath(), "benchmark", new LoaderColumnInfo(columnType));
+    if (shards.isEmpty())
+      throw new LoadException("Loading " + inputFile.getAbsolutePath() + " did not create any table shards.");
+  }
+
+  private void transpose(Class<? extends Loader> loaderClass, File inputFile) throws LoadException {
+    diqubeFile.delete();
+    // note that this includes starting up a new context, just like when executing diqube-tool.
+    new TransposeImplementation(inputFile, diqubeFile, null, loaderClass).transpose();
+    if (!diqubeFile.exists() || diqubeFile.length() == 0)
+      throw new LoadException("Transposing " + inputFile.getAbsolutePath() + " failed.");
+  }
+
+  private static Options createCliOptions() {
+    Options res = new Options();
+    res.addOption(Option.builder(OPT_ROWS).longOpt("rows").numberOfArgs(1).argName("number")
+        .desc("Number of rows to generate (default 200000).").build());
+    res.addOption(Option.builder(OPT_COLUMNS).longOpt("columns").numberOfArgs(1).argName("number")
+        .desc("Number of columns to generate (default 20).").build());
+    res.addOption(Option.builder(OPT_NESTING_DEPTH).longOpt("depth").numberOfArgs(1).argName("number")
+        .desc("Nesting depth of the JSON objects, 0 for flat objects (default 0).").build());
+    res.addOption(Option.builder(OPT_ARRAY_LENGTH).longOpt("arrayLength").numberOfArgs(1).argName("number")
+        .desc("If > 0, each nested JSON level is an array of this many objects (default 0).").build());
+    res.addOption(Option.builder(OPT_CARDINALITY).longOpt("cardinality").numberOfArgs(1).argName("number")
+        .desc("Number of distinct values in each column (default 1000).").build());
+    res.addOption(Option.builder(OPT_TYPE).longOpt("type").numberOfArgs(1).argName("type")
+        .desc("Type of the column values, one of \"long\", \"double\", \"string\" (default long).").build());
+    res.addOption(Option.builder(OPT_WARMUP).longOpt("warmup").numberOfArgs(1).argName("number")
+        .desc("Number of warmup iterations per scenario (default 1).").build());
+    res.addOption(Option.builder(OPT_ITERATIONS).longOpt("iterations").numberOfArgs(1).argName("number")
+        .desc("Number of measured iterations per scenario (default 3).").build());
+    res.addOption(Option.builder(OPT_HELP).longOpt("help").desc("Show this help.").build());
+    return res;
+  }
+}
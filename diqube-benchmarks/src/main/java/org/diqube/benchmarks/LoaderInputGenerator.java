@@ -0,0 +1,169 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.diqube.data.column.ColumnType;
+
+/**
+ * Generates synthetic CSV and JSON input files for {@link LoaderBenchmark}.
+ * 
+ * <p>
+ * Both files contain the same values: Each row has a configurable number of columns named "c0", "c1", ..., each column
+ * containing values of the given {@link ColumnType}, chosen randomly out of a configurable number of distinct values
+ * (cardinality).
+ * 
+ * <p>
+ * In the JSON file, the columns are distributed evenly across a configurable number of nesting levels: The objects of
+ * each level contain a field "n" holding the object(s) of the next level. If an array length > 0 is specified, "n"
+ * holds an array of that many objects instead of a single object, which leads to repeated columns. As CSV does not
+ * support hierarchical data, the CSV file is always flat and does not repeat any values.
+ *
+ * @author Bastian Gloeckle
+ */
+public class LoaderInputGenerator {
+  private static final long SEED = 42L;
+  private static final String NESTED_FIELD = "n";
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  private int rows;
+  private int columns;
+  private int nestingDepth;
+  private int arrayLength;
+  private int cardinality;
+  private ColumnType columnType;
+
+  /**
+   * @param rows
+   *          Number of rows to generate.
+   * @param columns
+   *          Number of columns to generate.
+   * @param nestingDepth
+   *          Number of nested levels in the JSON file, 0 for flat objects.
+   * @param arrayLength
+   *          If > 0, each nested level in the JSON file is an array of this number of objects.
+   * @param cardinality
+   *          Number of distinct values of each column.
+   * @param columnType
+   *          Type of the values.
+   */
+  public LoaderInputGenerator(int rows, int columns, int nestingDepth, int arrayLength, int cardinality,
+      ColumnType columnType) {
+    this.rows = rows;
+    this.columns = columns;
+    this.nestingDepth = nestingDepth;
+    this.arrayLength = arrayLength;
+    this.cardinality = cardinality;
+    this.columnType = columnType;
+  }
+
+  public void writeCsv(File file) throws IOException {
+    Random random = new Random(SEED);
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), CHARSET)) {
+      for (int col = 0; col < columns; col++) {
+        if (col > 0)
+          writer.write(',');
+        writer.write(columnName(col));
+      }
+      writer.write('\n');
+
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < columns; col++) {
+          if (col > 0)
+            writer.write(',');
+          writer.write(value(random));
+        }
+        writer.write('\n');
+      }
+    }
+  }
+
+  public void writeJson(File file) throws IOException {
+    Random random = new Random(SEED);
+    int columnsPerLevel = (columns + nestingDepth) / (nestingDepth + 1);
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), CHARSET)) {
+      writer.write('[');
+      for (int row = 0; row < rows; row++) {
+        if (row > 0)
+          writer.write(',');
+        writeJsonObject(writer, random, 0, columnsPerLevel);
+        writer.write('\n');
+      }
+      writer.write(']');
+    }
+  }
+
+  private void writeJsonObject(BufferedWriter writer, Random random, int level, int columnsPerLevel)
+      throws IOException {
+    writer.write('{');
+    boolean first = true;
+    for (int col = level * columnsPerLevel; col < Math.min(columns, (level + 1) * columnsPerLevel); col++) {
+      if (!first)
+        writer.write(',');
+      first = false;
+      writer.write("\"" + columnName(col) + "\":");
+      String value = value(random);
+      if (columnType.equals(ColumnType.STRING))
+        writer.write("\"" + value + "\"");
+      else
+        writer.write(value);
+    }
+
+    if (level < nestingDepth) {
+      if (!first)
+        writer.write(',');
+      writer.write("\"" + NESTED_FIELD + "\":");
+      if (arrayLength > 0) {
+        writer.write('[');
+        for (int i = 0; i < arrayLength; i++) {
+          if (i > 0)
+            writer.write(',');
+          writeJsonObject(writer, random, level + 1, columnsPerLevel);
+        }
+        writer.write(']');
+      } else
+        writeJsonObject(writer, random, level + 1, columnsPerLevel);
+    }
+    writer.write('}');
+  }
+
+  private String columnName(int col) {
+    return "c" + col;
+  }
+
+  private String value(Random random) {
+    long value = random.nextInt(cardinality);
+    switch (columnType) {
+    case STRING:
+      return "v" + value;
+    case DOUBLE:
+      return value + ".5";
+    default:
+      return Long.toString(value);
+    }
+  }
+}
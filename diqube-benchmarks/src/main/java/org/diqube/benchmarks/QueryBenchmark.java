@@ -0,0 +1,228 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.diqube.context.Profiles;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.table.TableFactory;
+import org.diqube.data.table.TableShard;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.execution.ExecutablePlanFromRemoteBuilder;
+import org.diqube.execution.consumers.AbstractThreadedColumnValueConsumer;
+import org.diqube.executionenv.TableRegistry;
+import org.diqube.executionenv.TableRegistry.TableLoadImpossibleException;
+import org.diqube.loader.JsonLoader;
+import org.diqube.loader.LoadException;
+import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.plan.ExecutionPlanBuilder;
+import org.diqube.plan.ExecutionPlanBuilderFactory;
+import org.diqube.queries.QueryRegistry;
+import org.diqube.queries.QueryUuid;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.util.BigByteBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Benchmarks the execution of whole diql queries in-process, without a cluster.
+ * 
+ * <p>
+ * A generated table is loaded into the {@link TableRegistry} of a local context that is started just like the one in
+ * the unit tests. The query master plan is built using {@link ExecutionPlanBuilder}, the remote part of the plan is
+ * then executed on the local table shards by the local query remote (using {@link ExecutablePlanFromRemoteBuilder}), so
+ * a benchmark includes all the work that one cluster node would need to do to answer the query.
+ * 
+ * <p>
+ * The benchmark reports both, throughput and sampled latency (including the percentiles). Add the JMH GC profiler
+ * ("-prof gc") to get the allocation rate per query.
+ * 
+ * <p>
+ * Note that flattened tables are cached in memory, so {@link Workload#FLATTEN} measures queries on a flattened table
+ * that is available already.
+ *
+ * @author Bastian Gloeckle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryBenchmark {
+  private static final Logger logger = LoggerFactory.getLogger(QueryBenchmark.class);
+
+  private static final String TABLE = "benchmark";
+
+  private static final long SEED = 0xd1c0beL;
+
+  private static final long FIRST_TIMESTAMP = 1_400_000_000_000L;
+  private static final int NUMBER_OF_CATEGORIES = 100;
+  private static final int NUMBER_OF_PRODUCTS = 1_000;
+  private static final int MAX_ITEMS_PER_ROW = 5;
+
+  /**
+   * The queries that are benchmarked. Each function receives the number of rows in the table and returns the diql.
+   */
+  public static enum Workload {
+    /** Filter selecting about 1% of the rows. */
+    SELECTIVE_FILTER(rows -> "select id, user from " + TABLE + " where category = 42"),
+    /** Range filter on a sorted column, selecting about 10% of the rows. */
+    RANGE_FILTER(rows -> "select id from " + TABLE + " where ts >= " + (FIRST_TIMESTAMP + rows * 45L / 100)
+        + " and ts < " + (FIRST_TIMESTAMP + rows * 55L / 100)),
+    /** Group by a column that has a distinct value for about every fourth row. */
+    HIGH_CARDINALITY_GROUP_BY(rows -> "select user, count(), sum(amount) from " + TABLE + " group by user"),
+    /** Ordering all rows, but returning only the top ones. */
+    ORDER_BY_LIMIT(rows -> "select id, amount from " + TABLE + " order by amount desc, id limit 100"),
+    /** Aggregating the values of a repeated column in each row. */
+    REPEATED_AGGREGATION(rows -> "select id, sum(items[*].quantity) from " + TABLE + " where category = 42"),
+    /** Grouping on a table flattened by a repeated column. */
+    FLATTEN(rows -> "select items.productId, count() from flatten(" + TABLE + ", items[*]) group by items.productId");
+
+    private IntFunction<String> diqlFn;
+
+    Workload(IntFunction<String> diqlFn) {
+      this.diqlFn = diqlFn;
+    }
+
+    public String createDiql(int rows) {
+      return diqlFn.apply(rows);
+    }
+  }
+
+  @Param({ "SELECTIVE_FILTER", "RANGE_FILTER", "HIGH_CARDINALITY_GROUP_BY", "ORDER_BY_LIMIT", "REPEATED_AGGREGATION",
+      "FLATTEN" })
+  public Workload workload;
+
+  @Param({ "200000" })
+  public int rows;
+
+  private AnnotationConfigApplicationContext context;
+  private ExecutionPlanBuilderFactory executionPlanBuilderFactory;
+  private ExecutorManager executorManager;
+  private QueryRegistry queryRegistry;
+  private String diql;
+
+  @Setup
+  public void setup() throws LoadException, TableLoadImpossibleException {
+    context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().setActiveProfiles(Profiles.UNIT_TEST);
+    context.scan("org.diqube");
+    context.refresh();
+
+    executionPlanBuilderFactory = context.getBean(ExecutionPlanBuilderFactory.class);
+    executorManager = context.getBean(ExecutorManager.class);
+    queryRegistry = context.getBean(QueryRegistry.class);
+
+    BigByteBuffer json = new BigByteBuffer(createTableJson().getBytes(Charset.forName("UTF-8")));
+    Collection<TableShard> tableShards =
+        context.getBean(JsonLoader.class).load(0L, json, TABLE, new LoaderColumnInfo(ColumnType.LONG));
+    TableFactory tableFactory = context.getBean(TableFactory.class);
+    context.getBean(TableRegistry.class).addTable(TABLE, tableFactory.createDefaultTable(TABLE, tableShards));
+
+    diql = workload.createDiql(rows);
+    logger.info("Loaded table with {} rows, benchmarking '{}'", rows, diql);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * Executes the query and waits until it is done.
+   * 
+   * @return Number of result values received, including intermediary updates.
+   */
+  @Benchmark
+  public long executeQuery() throws InterruptedException, ExecutionException {
+    UUID queryUuid = UUID.randomUUID();
+    UUID executionUuid = UUID.randomUUID();
+    QueryUuid.setCurrentQueryUuidAndExecutionUuid(queryUuid, executionUuid);
+    try {
+      AtomicLong numberOfResultValues = new AtomicLong(0L);
+      ExecutablePlan plan = executionPlanBuilderFactory.createExecutionPlanBuilder()
+          .withFinalColumnValueConsumer(new AbstractThreadedColumnValueConsumer(null) {
+            @Override
+            protected void allSourcesAreDone() {
+            }
+
+            @Override
+            protected void doConsume(String colName, Map<Long, Object> values) {
+              numberOfResultValues.addAndGet(values.size());
+            }
+          }).fromDiql(diql).build();
+
+      Executor executor = executorManager.newQueryFixedThreadPoolWithTimeout(plan.preferredExecutorServiceSize(),
+          "benchmark-query-" + queryUuid + "-%d", queryUuid, executionUuid);
+      plan.executeAsynchronously(executor).get();
+
+      return numberOfResultValues.get();
+    } finally {
+      queryRegistry.cleanupQueryFully(queryUuid);
+      executorManager.shutdownEverythingOfQuery(queryUuid);
+      QueryUuid.clearCurrent();
+    }
+  }
+
+  private String createTableJson() {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    sb.append("[");
+    for (int row = 0; row < rows; row++) {
+      if (row > 0)
+        sb.append(",");
+      sb.append("{\"id\":").append(row);
+      sb.append(",\"ts\":").append(FIRST_TIMESTAMP + row);
+      sb.append(",\"category\":").append(random.nextInt(NUMBER_OF_CATEGORIES));
+      sb.append(",\"user\":").append(random.nextInt(Math.max(1, rows / 4)));
+      sb.append(",\"amount\":").append(random.nextInt(10_000));
+      sb.append(",\"items\":[");
+      int numberOfItems = 1 + random.nextInt(MAX_ITEMS_PER_ROW);
+      for (int item = 0; item < numberOfItems; item++) {
+        if (item > 0)
+          sb.append(",");
+        sb.append("{\"productId\":").append(random.nextInt(NUMBER_OF_PRODUCTS));
+        sb.append(",\"quantity\":").append(1 + random.nextInt(10)).append("}");
+      }
+      sb.append("]}");
+    }
+    sb.append("]");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.benchmarks;
+
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+
+import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.types.str.dict.TrieStringDictionary;
+import org.diqube.loader.compression.CompressedStringDictionaryBuilder;
+
+/**
+ * Benchmarks {@link TrieStringDictionary}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class TrieStringDictionaryBenchmark extends AbstractDictionaryBenchmark<String> {
+  @Override
+  protected NavigableSet<String> createValues(Distribution distribution, int size, Random random) {
+    return BenchmarkDataGenerator.distinctStringValues(distribution, size, random);
+  }
+
+  @Override
+  protected Dictionary<String> createDictionary(NavigableMap<String, Long> entityMap) {
+    return new CompressedStringDictionaryBuilder().fromEntityMap(entityMap).buildTrieStringDictionary();
+  }
+}
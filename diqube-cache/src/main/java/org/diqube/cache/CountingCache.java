@@ -38,6 +38,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.diqube.metrics.Counter;
+import org.diqube.metrics.Metrics;
 import org.diqube.util.DiqubeIterables;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
@@ -84,6 +86,15 @@ import com.google.common.collect.Sets;
  * until the cap is reached (this is obviously true, because since we're under the cap, all entries have an entry in
  * {@link #topCounts} and are therefore regular entries in the cache, although that flagged entry was just additionally
  * flagged).
+ * 
+ * <p>
+ * Hits and misses of {@link #get(Comparable, Comparable)} and {@link #flagAndGet(Comparable, Comparable, long)} are
+ * reported to {@link Metrics}, labeled with the simple class name of the cache (see {@link #setMetricsName(String)}).
+ * 
+ * <p>
+ * Optionally the memory of each entry that is added to the cache can be reserved in a node-wide memory budget, see
+ * {@link #setMemoryReservationHandler(MemoryReservationHandler)}. Entries for which no memory can be reserved are not
+ * cached - except for flagged entries, as these are in use already anyway.
  *
  * @author Bastian Gloeckle
  */
@@ -105,6 +116,8 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
   private ConcurrentSkipListSet<CacheIdCount> topCounts = new ConcurrentSkipListSet<>();
   private ConcurrentMap<CacheId, Long> memoryConsumption = new ConcurrentHashMap<>();
   private ConcurrentSkipListSet<CacheId> currentlyCachedCacheIds = new ConcurrentSkipListSet<>();
+  /** Bytes reserved using {@link #memoryReservationHandler} for the currently cached entries. */
+  private ConcurrentMap<CacheId, Long> reservedMemory = new ConcurrentHashMap<>();
 
   /**
    * CacheIds which are flagged currently to the current information about the flag.
@@ -130,6 +143,11 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
 
   private CountCleanupStrategy<K1, K2> countCleanupStrategy;
 
+  private Counter hitsCounter;
+  private Counter missesCounter;
+
+  private MemoryReservationHandler memoryReservationHandler = null;
+
   public CountingCache(long maxMemoryBytes, MemoryConsumptionProvider<V> memoryConsumptionProvider) {
     this(maxMemoryBytes, DEFAULT_CLEANUP_STRATEGY, memoryConsumptionProvider);
   }
@@ -152,10 +170,57 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
     this.cleanupStrategy = cleanupStrategy;
     this.memoryConsumptionProvider = memoryConsumptionProvider;
     this.countCleanupStrategy = countCleanupStrategy;
+    // anonymous subclasses do not have a simple name.
+    setMetricsName(getClass().isAnonymousClass() ? CountingCache.class.getSimpleName() : getClass().getSimpleName());
+  }
+
+  /**
+   * Set the name of this cache as it is reported in {@link Metrics}. Defaults to the simple class name.
+   */
+  public void setMetricsName(String metricsName) {
+    hitsCounter = Metrics.counter(Metrics.labeled("cache_hits", "cache", metricsName));
+    missesCounter = Metrics.counter(Metrics.labeled("cache_misses", "cache", metricsName));
+  }
+
+  /**
+   * Set the handler that reserves the memory of cached entries. Set this before adding any entries to the cache.
+   */
+  public void setMemoryReservationHandler(MemoryReservationHandler memoryReservationHandler) {
+    this.memoryReservationHandler = memoryReservationHandler;
+  }
+
+  /**
+   * Releases all memory that is reserved for the entries of this cache. Call this when the cache is discarded, no
+   * memory will be reserved for entries added afterwards.
+   */
+  public void releaseReservedMemory() {
+    cleanupLock.writeLock().lock();
+    try {
+      synchronized (updateCacheSync) {
+        if (memoryReservationHandler != null)
+          reservedMemory.values().forEach(memoryReservationHandler::release);
+        reservedMemory.clear();
+        memoryReservationHandler = null;
+      }
+    } finally {
+      cleanupLock.writeLock().unlock();
+    }
   }
 
   @Override
   public V get(K1 key1, K2 key2) {
+    return countHitOrMiss(getInternal(key1, key2));
+  }
+
+  private V countHitOrMiss(V value) {
+    if (value == null)
+      missesCounter.inc();
+    else
+      hitsCounter.inc();
+    return value;
+  }
+
+  private V getInternal(K1 key1, K2 key2) {
     ConcurrentMap<K2, V> cache = caches.get(key1);
     if (cache == null)
       return null;
@@ -167,15 +232,15 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
   public V flagAndGet(K1 key1, K2 key2, long flagUntilNanos) {
     CacheId cacheId = new CacheId(key1, key2);
     while (true) {
-      V res = get(key1, key2);
+      V res = getInternal(key1, key2);
       if (res == null)
-        return null;
+        return countHitOrMiss(null);
 
       flag(cacheId, flagUntilNanos);
 
       // re-check that the element we got is still in cache.
-      if (res == get(key1, key2))
-        return res;
+      if (res == getInternal(key1, key2))
+        return countHitOrMiss(res);
 
       // Here: If an offer of the same CacheId than this method happens exactly here, we might keep something in the
       // cache although we would remove the flaggedCacheId right away again. But that is not as bad, since in the next
@@ -237,7 +302,7 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
   public V offerAndFlag(K1 key1, K2 key2, V value, long flagUntilNanos, long countDelta) {
     flag(new CacheId(key1, key2), flagUntilNanos);
     offer(key1, key2, value, countDelta);
-    return get(key1, key2);
+    return getInternal(key1, key2);
   }
 
   @Override
@@ -359,7 +424,9 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
           // do not remove flagged cache Ids.
           Sets.difference(cacheIdsToBeRemovedFromCache, flaggedChacheIds.keySet()).forEach(id -> removeFromCache(id));
 
-          if (addCacheId != null && shouldAddNewCacheIdToCache) {
+          // flagged elements are in use already, so reserve the memory for them in any case.
+          if (addCacheId != null && shouldAddNewCacheIdToCache
+              && reserveMemory(addCacheId, flaggedChacheIds.containsKey(addCacheId))) {
             addToCache(addCacheId, addValue);
             addedToCache = true;
           }
@@ -466,6 +533,28 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
     caches.get(colId.getLeft()).remove(colId.getRight());
     if (caches.get(colId.getLeft()).isEmpty())
       caches.remove(colId.getLeft());
+    Long reservedBytes = reservedMemory.remove(colId);
+    if (reservedBytes != null)
+      memoryReservationHandler.release(reservedBytes);
+  }
+
+  /**
+   * Reserves the memory for an element that is about to be added to the cache, if a {@link MemoryReservationHandler}
+   * is set. Call only when synced on {@link #updateCacheSync} and inside a lock of {@link #cleanupLock}!
+   * 
+   * @return <code>true</code> if the element may be added to the cache.
+   */
+  private boolean reserveMemory(CacheId cacheId, boolean force) {
+    if (memoryReservationHandler == null)
+      return true;
+
+    long bytes = memoryConsumption.get(cacheId);
+    if (!memoryReservationHandler.reserve(bytes, force)) {
+      logger.trace("Not caching {} as its memory of {} bytes cannot be reserved.", cacheId, bytes);
+      return false;
+    }
+    reservedMemory.put(cacheId, bytes);
+    return true;
   }
 
   /**
@@ -616,6 +705,25 @@ public class CountingCache<K1 extends Comparable<K1>, K2 extends Comparable<K2>,
     public long getMemoryConsumptionBytes(V value);
   }
 
+  /**
+   * Reserves memory of cached entries in a memory budget that is shared with others.
+   */
+  public static interface MemoryReservationHandler {
+    /**
+     * Reserve the given number of bytes.
+     * 
+     * @param force
+     *          if <code>true</code> the memory must be reserved even if the budget is used up.
+     * @return <code>true</code> if the memory was reserved, <code>false</code> if not enough memory is available.
+     */
+    public boolean reserve(long bytes, boolean force);
+
+    /**
+     * Release memory that was {@link #reserve(long, boolean) reserved} before.
+     */
+    public void release(long bytes);
+  }
+
   /**
    * Strategy to decide which collected "count" values should be cleaned up.
    * 
@@ -302,6 +302,49 @@ public class CountingCacheTest {
     Assert.assertEquals(cache.size(), 2);
   }
 
+  @Test
+  public void memoryReservationLimitsCachedEntries() {
+    // GIVEN
+    CountingCache<Integer, String, CachedValue> cache = new CountingCache<>(200, () -> true, MEM_PROV);
+    long[] reserved = new long[] { 0L };
+    cache.setMemoryReservationHandler(new CountingCache.MemoryReservationHandler() {
+      @Override
+      public boolean reserve(long bytes, boolean force) {
+        if (!force && reserved[0] + bytes > 80)
+          return false;
+        reserved[0] += bytes;
+        return true;
+      }
+
+      @Override
+      public void release(long bytes) {
+        reserved[0] -= bytes;
+      }
+    });
+
+    // WHEN
+    cache.offer(0, "1", value("1", 50));
+    cache.offer(0, "2", value("2", 50));
+
+    // THEN
+    Assert.assertEquals(getNames(cache.getAll(0)), new HashSet<>(Arrays.asList("1")),
+        "Expected only the entry whose memory could be reserved to be cached");
+    Assert.assertEquals(reserved[0], 50L, "Expected memory of cached entry to be reserved");
+
+    // WHEN
+    cache.removeFromCache(0, "1");
+
+    // THEN
+    Assert.assertEquals(reserved[0], 0L, "Expected memory to be released when entry is evicted");
+
+    // WHEN
+    cache.offer(0, "2", value("2", 50));
+    cache.releaseReservedMemory();
+
+    // THEN
+    Assert.assertEquals(reserved[0], 0L, "Expected memory to be released when cache is discarded");
+  }
+
   private CachedValue value(String name, long memorySize) {
     CachedValue res = new CachedValue();
     res.name = name;
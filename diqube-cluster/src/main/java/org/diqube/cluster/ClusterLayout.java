@@ -45,6 +45,13 @@ import org.slf4j.LoggerFactory;
  * Contains addresses of all cluster nodes known and the tables the respective node is serving data of.
  * 
  * This includes information about our node.
+ * 
+ * <p>
+ * There are two flavours of methods: The ones that query the consensus cluster each time they are called and the
+ * "cached" ones. The former execute a linearizable read and should be used for administrative operations where
+ * up-to-date information is essential. The latter should be used for routing queries, which happens very often: They
+ * do not communicate with the consensus cluster at all, but serve the layout that has been applied to the local
+ * {@link ClusterLayoutStateMachineImplementation}. That layout might lag behind the consensus cluster slightly.
  *
  * @author Bastian Gloeckle
  */
@@ -116,6 +123,14 @@ public class ClusterLayout {
     }
   }
 
+  /**
+   * Cached version of {@link #findNodesServingTable(String)}, see class comment.
+   */
+  public Collection<RNodeAddress> findNodesServingTableCached(String table) {
+    return clusterLayoutStateMachineImplementation.getLocalNodesServingTable(table).stream()
+        .map(addr -> addr.createRemote()).collect(Collectors.toSet());
+  }
+
   /**
    * @return A set with all tablenames that are served from at least one cluster node.
    */
@@ -131,4 +146,19 @@ public class ClusterLayout {
     }
   }
 
+  /**
+   * Cached version of {@link #getAllTablesServed()}, see class comment.
+   */
+  public Set<String> getAllTablesServedCached() {
+    return new HashSet<>(clusterLayoutStateMachineImplementation.getLocalTablesServed());
+  }
+
+  /* package */ void setConsensusClient(ConsensusClient consensusClient) {
+    this.consensusClient = consensusClient;
+  }
+
+  /* package */ void setClusterLayoutStateMachineImplementation(
+      ClusterLayoutStateMachineImplementation clusterLayoutStateMachineImplementation) {
+    this.clusterLayoutStateMachineImplementation = clusterLayoutStateMachineImplementation;
+  }
 }
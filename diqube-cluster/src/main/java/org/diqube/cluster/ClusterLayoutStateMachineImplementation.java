@@ -21,6 +21,8 @@
 package org.diqube.cluster;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +54,11 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
 
   private Map<NodeAddress, Commit<?>> previousCommand = new ConcurrentHashMap<>();
   private Map<NodeAddress, Set<String>> tables = new ConcurrentHashMap<>();
+  /**
+   * Nodes serving each table, derived from {@link #tables}. Rebuilt on each change and replaced atomically, so local
+   * readers always see a consistent (although maybe outdated) layout.
+   */
+  private volatile Map<String, Set<NodeAddress>> nodesByTable = Collections.emptyMap();
 
   public ClusterLayoutStateMachineImplementation() {
     super(INTERNALDB_FILE_PREFIX, INTERNALDB_DATA_TYPE, () -> new SClusterNodeTables());
@@ -63,6 +70,19 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
       for (SClusterNodeTables tableInfo : entriesLoadedFromInternalDb) {
         this.tables.put(new NodeAddress(tableInfo.getNodeAddr()), new HashSet<>(tableInfo.getTables()));
       }
+    updateNodesByTable();
+  }
+
+  private void updateNodesByTable() {
+    Map<String, Set<NodeAddress>> res = new HashMap<>();
+    for (Entry<NodeAddress, Set<String>> e : tables.entrySet())
+      for (String table : e.getValue())
+        res.computeIfAbsent(table, t -> new HashSet<>()).add(e.getKey());
+
+    for (Entry<String, Set<NodeAddress>> e : res.entrySet())
+      e.setValue(Collections.unmodifiableSet(e.getValue()));
+
+    nodesByTable = Collections.unmodifiableMap(res);
   }
 
   private void writeCurrentLayoutToInternalDb(long consensusIndex) {
@@ -82,6 +102,7 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
 
     logger.info("New tables for node {}: {}", commit.operation().getNode(), commit.operation().getTables());
     tables.put(commit.operation().getNode(), new HashSet<>(commit.operation().getTables()));
+    updateNodesByTable();
 
     writeCurrentLayoutToInternalDb(commit.index());
 
@@ -95,6 +116,7 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
 
     logger.info("Node removed from cluster layout: {}", commit.operation().getNode());
     tables.remove(commit.operation().getNode());
+    updateNodesByTable();
 
     writeCurrentLayoutToInternalDb(commit.index());
 
@@ -108,13 +130,7 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
     String tableName = commit.operation().getTableName();
     commit.close();
 
-    Set<NodeAddress> res = new HashSet<>();
-    for (Entry<NodeAddress, Set<String>> e : tables.entrySet()) {
-      if (e.getValue().contains(tableName))
-        res.add(e.getKey());
-    }
-
-    return res;
+    return new HashSet<>(getLocalNodesServingTable(tableName));
   }
 
   @Override
@@ -135,15 +151,30 @@ public class ClusterLayoutStateMachineImplementation extends AbstractConsensusSt
   public Set<String> getAllTablesServed(Commit<GetAllTablesServed> commit) {
     commit.close();
 
-    Set<String> res = new HashSet<>();
-    for (Entry<NodeAddress, Set<String>> e : tables.entrySet())
-      res.addAll(e.getValue());
-
-    return res;
+    return new HashSet<>(getLocalTablesServed());
   }
 
   public Set<NodeAddress> getLocalKnownNodesInsecure() {
     return new HashSet<>(tables.keySet());
   }
 
+  /**
+   * @return Unmodifiable set of the nodes serving the given table according to the layout applied on this node. Note
+   *         that this node might lag behind the consensus cluster.
+   */
+  /* package */ Set<NodeAddress> getLocalNodesServingTable(String tableName) {
+    Set<NodeAddress> res = nodesByTable.get(tableName);
+    if (res == null)
+      return Collections.emptySet();
+    return res;
+  }
+
+  /**
+   * @return Unmodifiable set of the tables served by at least one node according to the layout applied on this node.
+   *         Note that this node might lag behind the consensus cluster.
+   */
+  /* package */ Set<String> getLocalTablesServed() {
+    return nodesByTable.keySet();
+  }
+
 }
@@ -0,0 +1,131 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.diqube.cluster.ClusterLayoutStateMachine.RemoveNode;
+import org.diqube.cluster.ClusterLayoutStateMachine.SetTablesOfNode;
+import org.diqube.cluster.thrift.v1.SClusterNodeTables;
+import org.diqube.connection.NodeAddress;
+import org.diqube.consensus.ConsensusClient;
+import org.diqube.thrift.base.thrift.RNodeAddress;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the cached methods of {@link ClusterLayout}, which are served from the local
+ * {@link ClusterLayoutStateMachineImplementation}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ClusterLayoutTest {
+  private static final String TABLE = "table";
+  private static final NodeAddress NODE1 = new NodeAddress("node1", (short) 5101);
+  private static final NodeAddress NODE2 = new NodeAddress("node2", (short) 5101);
+
+  private ClusterLayout clusterLayout;
+  private ConsensusClient consensusClientMock;
+  private ClusterLayoutStateMachineImplementation stateMachineImplementation;
+
+  @BeforeMethod
+  public void setup() {
+    consensusClientMock = Mockito.mock(ConsensusClient.class);
+
+    stateMachineImplementation = new ClusterLayoutStateMachineImplementation() {
+      @Override
+      protected void writeCurrentStateToInternalDb(long consensusIndex, Collection<SClusterNodeTables> entries) {
+        // noop, no internaldb available in test.
+      }
+    };
+    stateMachineImplementation.doInitialize(null);
+
+    clusterLayout = new ClusterLayout();
+    clusterLayout.setConsensusClient(consensusClientMock);
+    clusterLayout.setClusterLayoutStateMachineImplementation(stateMachineImplementation);
+  }
+
+  @Test
+  public void findNodesServingTableCached() {
+    // GIVEN
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE1, Arrays.asList(TABLE)));
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE2, Arrays.asList(TABLE, TABLE + "2")));
+
+    // WHEN
+    Collection<RNodeAddress> table1 = clusterLayout.findNodesServingTableCached(TABLE);
+    Collection<RNodeAddress> table2 = clusterLayout.findNodesServingTableCached(TABLE + "2");
+    Collection<RNodeAddress> table3 = clusterLayout.findNodesServingTableCached(TABLE + "3");
+
+    // THEN
+    Assert.assertEquals(table1, new HashSet<>(Arrays.asList(NODE1.createRemote(), NODE2.createRemote())),
+        "Expected correct result");
+    Assert.assertEquals(table2, new HashSet<>(Arrays.asList(NODE2.createRemote())), "Expected correct result");
+    Assert.assertTrue(table3.isEmpty(), "Expected no nodes for unknown table");
+    Mockito.verifyZeroInteractions(consensusClientMock);
+  }
+
+  @Test
+  public void findNodesServingTableCachedUpdatedOnChange() {
+    // GIVEN
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE1, Arrays.asList(TABLE)));
+
+    // WHEN
+    Collection<RNodeAddress> first = clusterLayout.findNodesServingTableCached(TABLE);
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE2, Arrays.asList(TABLE)));
+    Collection<RNodeAddress> second = clusterLayout.findNodesServingTableCached(TABLE);
+    stateMachineImplementation.removeNode(RemoveNode.local(NODE1));
+    Collection<RNodeAddress> third = clusterLayout.findNodesServingTableCached(TABLE);
+
+    // THEN
+    Assert.assertEquals(first, new HashSet<>(Arrays.asList(NODE1.createRemote())), "Expected correct first result");
+    Assert.assertEquals(second, new HashSet<>(Arrays.asList(NODE1.createRemote(), NODE2.createRemote())),
+        "Expected result to reflect added node");
+    Assert.assertEquals(third, new HashSet<>(Arrays.asList(NODE2.createRemote())),
+        "Expected result to reflect removed node");
+    Mockito.verifyZeroInteractions(consensusClientMock);
+  }
+
+  @Test
+  public void getAllTablesServedCached() {
+    // GIVEN
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE1, Arrays.asList(TABLE)));
+
+    // WHEN
+    Set<String> first = clusterLayout.getAllTablesServedCached();
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE2, Arrays.asList(TABLE + "2")));
+    Set<String> second = clusterLayout.getAllTablesServedCached();
+    stateMachineImplementation.setTablesOfNode(SetTablesOfNode.local(NODE1, Arrays.asList()));
+    Set<String> third = clusterLayout.getAllTablesServedCached();
+
+    // THEN
+    Assert.assertEquals(first, new HashSet<>(Arrays.asList(TABLE)), "Expected correct result");
+    Assert.assertEquals(second, new HashSet<>(Arrays.asList(TABLE, TABLE + "2")),
+        "Expected result to reflect new table");
+    Assert.assertEquals(third, new HashSet<>(Arrays.asList(TABLE + "2")),
+        "Expected result to reflect table no longer served");
+    Mockito.verifyZeroInteractions(consensusClientMock);
+  }
+}
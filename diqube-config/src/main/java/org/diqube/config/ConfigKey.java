@@ -54,6 +54,14 @@ public class ConfigKey {
    */
   public static final String DATA_DIR = "dataDir";
 
+  /**
+   * Maximum number of .control files of the {@link #DATA_DIR} that are deployed concurrently when the server starts.
+   * 
+   * <p>
+   * Set this to 0 to use the number of available processors.
+   */
+  public static final String CONTROL_FILE_DEPLOYMENT_THREADS = "controlFileDeploymentThreads";
+
   /**
    * The host of this node which is usable by other cluster nodes to communicate with this node.
    * 
@@ -71,6 +79,15 @@ public class ConfigKey {
    */
   public static final String BIND = "bind";
 
+  /**
+   * TCP port on which the node metrics are served in a plain-text format (HTTP, path "/metrics"). The server binds to
+   * the same interface as specified in {@link #BIND}.
+   * 
+   * <p>
+   * The metrics are additionally available via JMX. Use a value &lt;= 0 to disable the HTTP endpoint.
+   */
+  public static final String METRICS_PORT = "metricsPort";
+
   /**
    * A few addresses of nodes in the diqube cluster this node should connect to.
    * 
@@ -133,6 +150,21 @@ public class ConfigKey {
    */
   public static final String QUERY_EXECUTION_TIMEOUT_SECONDS = "queryExecutionTimeoutSeconds";
 
+  /**
+   * Memory budget of this node in Megabyte which is shared by the caches and the queries being executed.
+   * 
+   * <p>
+   * The caches (see e.g. {@link #TABLE_CACHE_APPROX_MAX_PER_TABLE_MB}, {@link #FLATTEN_MEMORY_CACHE_SIZE_MB}) will not
+   * cache any additional entries if the budget is used up and queries that need more memory for their intermediate
+   * data structures (groups, sorted rows, temporary columns) than is available will fail. The memory that is needed by
+   * the loaded tables themselves is not part of this budget.
+   * 
+   * <p>
+   * Set this to 0 to use half of the maximum heap size of the JVM. Set this to a value &lt; 0 to not enforce any
+   * budget, memory usage is then only measured.
+   */
+  public static final String MEMORY_BUDGET_MB = "memoryBudgetMb";
+
   /**
    * Memory size the Table cache should take up approximately <b>per table</b>.
    * 
@@ -147,6 +179,19 @@ public class ConfigKey {
    */
   public static final String TABLE_CACHE_APPROX_MAX_PER_TABLE_MB = "tableCacheApproxMaxPerTableMb";
 
+  /**
+   * Memory size the row ID filter cache should take up approximately <b>per table</b>.
+   * 
+   * <p>
+   * For each table, the results of evaluating the WHERE clause of queries (= the matching row IDs) are cached per table
+   * shard, so subsequent queries that use the same WHERE clause do not need to re-evaluate it. This is typically the
+   * case for multiple queries that are executed for the same slice of data.
+   * 
+   * <p>
+   * Set this to a value <= 0 to disable the cache.
+   */
+  public static final String ROW_ID_FILTER_CACHE_APPROX_MAX_PER_TABLE_MB = "rowIdFilterCacheApproxMaxPerTableMb";
+
   /**
    * Timeout of how long cluster nodes should wait for other nodes to finish flattening a table.
    */
@@ -239,6 +284,23 @@ public class ConfigKey {
    */
   public static final String CONSENSUS_DATA_DIR = "consensusDataDir";
 
+  /**
+   * Milliseconds for which messages of the consensus cluster to a specific remote are collected before they are sent
+   * to that remote in a single batch.
+   */
+  public static final String CONSENSUS_BATCH_WINDOW_MS = "consensusBatchWindowMs";
+
+  /**
+   * Maximum number of consensus cluster messages that are sent to a remote in a single batch. As soon as this number of
+   * messages is waiting to be sent to a remote, they are sent without waiting for {@link #CONSENSUS_BATCH_WINDOW_MS}.
+   */
+  public static final String CONSENSUS_MAX_BATCH_SIZE = "consensusMaxBatchSize";
+
+  /**
+   * Number of threads that send batches of consensus cluster messages to remotes.
+   */
+  public static final String CONSENSUS_SEND_THREADS = "consensusSendThreads";
+
   /**
    * Timeout in minutes for tickets.
    * 
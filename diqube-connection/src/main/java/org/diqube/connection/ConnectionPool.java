@@ -46,6 +46,9 @@ import org.diqube.config.ConfigKey;
 import org.diqube.connection.integrity.IntegritySecretHelper;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.context.InjectOptional;
+import org.diqube.metrics.Counter;
+import org.diqube.metrics.Histogram;
+import org.diqube.metrics.Metrics;
 import org.diqube.queries.QueryUuid;
 import org.diqube.remote.query.thrift.KeepAliveService;
 import org.diqube.thrift.base.services.DiqubeThriftServiceInfoManager;
@@ -86,6 +89,8 @@ import com.google.common.math.IntMath;
 public class ConnectionPool implements ClusterNodeStatusDetailListener {
   static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
 
+  private static final String METRIC_OPEN_CONNECTIONS = "connection_pool_open_connections";
+
   @Config(ConfigKey.CLIENT_SOCKET_TIMEOUT_MS)
   private int socketTimeout;
 
@@ -179,15 +184,21 @@ public class ConnectionPool implements ClusterNodeStatusDetailListener {
 
   private AtomicInteger overallOpenConnections = new AtomicInteger(0);
 
+  private Counter reservationsCounter = Metrics.counter("connection_pool_reservations");
+  private Counter blockedReservationsCounter = Metrics.counter("connection_pool_blocked_reservations");
+  private Histogram reserveWaitMs = Metrics.histogram("connection_pool_reserve_wait_ms");
+
   @PostConstruct
   public void initialize() {
     connectionFactory = new DefaultConnectionFactory(this, integritySecretHelper, socketTimeout);
     maintananceThread.start();
+    Metrics.gauge(METRIC_OPEN_CONNECTIONS, () -> overallOpenConnections.get());
   }
 
   @PreDestroy
   public void cleanup() {
     maintananceThread.interrupt();
+    Metrics.remove(METRIC_OPEN_CONNECTIONS);
   }
 
   /**
@@ -221,6 +232,7 @@ public class ConnectionPool implements ClusterNodeStatusDetailListener {
   public <T> Connection<T> reserveConnection(Class<T> serviceInterface, RNodeAddress addr,
       SocketListener socketListener) throws ConnectionException, InterruptedException {
     DiqubeThriftServiceInfo<T> serviceInfo = diqubeThriftServiceInfoManager.getServiceInfo(serviceInterface);
+    reservationsCounter.inc();
 
     Connection<T> res = null;
 
@@ -268,10 +280,15 @@ public class ConnectionPool implements ClusterNodeStatusDetailListener {
       // wait. Be sure to break that possible deadlock by letting the waiting one pass as soon as we know there is
       // another connection for the execution. If the first connection is already returned again, then there cannot be
       // a connection-deadlock for that execution and therefore we can let the second one wait.
+      long blockStartNanos = -1;
       while (res == null && overallOpenConnections.get() >= connectionSoftLimit
           && (executionUuid == null || !openConnectionsByExecutionUuid.containsKey(executionUuid))) {
         logger.debug("Blocking thread as there are no connections available ({}/{}).", overallOpenConnections.get(),
             connectionSoftLimit);
+        if (blockStartNanos == -1) {
+          blockStartNanos = System.nanoTime();
+          blockedReservationsCounter.inc();
+        }
         synchronized (connectionsAvailableWait) {
           connectionsAvailableWait.wait(1000);
         }
@@ -279,6 +296,8 @@ public class ConnectionPool implements ClusterNodeStatusDetailListener {
         // try to reserve an already opened connection (there might have been one returned just now).
         res = reserveAvailableConnection(serviceInfo, addr, socketListener);
       }
+      if (blockStartNanos != -1)
+        reserveWaitMs.record((System.nanoTime() - blockStartNanos) / 1_000_000);
 
       if (res == null)
         // we were not able to reserve a connection before, but we are allowed to open a new one now, so get a
@@ -21,7 +21,9 @@
 package org.diqube.consensus.internal;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
@@ -36,6 +38,7 @@ import org.diqube.context.shutdown.ContextShutdownListener;
 import org.diqube.context.shutdown.ShutdownAfter;
 import org.diqube.remote.cluster.thrift.ClusterConsensusService;
 import org.diqube.remote.cluster.thrift.RConnectionUnknownException;
+import org.diqube.remote.cluster.thrift.RConsensusMessage;
 import org.diqube.thrift.base.thrift.RNodeAddress;
 import org.diqube.thrift.base.thrift.RUUID;
 import org.diqube.thrift.base.util.RUuidUtil;
@@ -143,6 +146,36 @@ public class ClusterConsensusHandler implements ClusterConsensusService.Iface, C
           "Consensus connection endpoint unknown: " + RUuidUtil.toUuid(consensusConnectionEndpointId).toString());
   }
 
+  /**
+   * Handle a batch of requests, responses and exceptional responses, see {@link DiqubeCatalystMessageBatcher}.
+   */
+  @Override
+  public List<RUUID> batch(List<RConsensusMessage> messages) throws TException {
+    List<RUUID> unknownRequestIds = new ArrayList<>();
+    for (RConsensusMessage message : messages) {
+      DiqubeCatalystConnection con =
+          registry.getConnectionEndpoint(RUuidUtil.toUuid(message.getConsensusConnectionEndpointId()));
+      if (con == null) {
+        unknownRequestIds.add(message.getConsensusRequestId());
+        continue;
+      }
+
+      UUID requestUuid = RUuidUtil.toUuid(message.getConsensusRequestId());
+      switch (message.getType()) {
+      case REQUEST:
+        con.handleRequest(requestUuid, message.bufferForData());
+        break;
+      case REPLY:
+        con.handleResponse(requestUuid, message.bufferForData());
+        break;
+      case REPLY_EXCEPTION:
+        con.handleResponseException(requestUuid, message.bufferForData());
+        break;
+      }
+    }
+    return unknownRequestIds;
+  }
+
   /**
    * @return A Catalyst {@link ThreadContext} that can handle executing things for connections that were opened by other
    *         hosts.
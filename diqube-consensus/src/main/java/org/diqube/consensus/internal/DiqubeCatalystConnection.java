@@ -39,6 +39,8 @@ import org.diqube.connection.OurNodeAddressProvider;
 import org.diqube.connection.ServiceProvider;
 import org.diqube.connection.SocketListener;
 import org.diqube.remote.cluster.thrift.ClusterConsensusService;
+import org.diqube.remote.cluster.thrift.RConsensusMessage;
+import org.diqube.remote.cluster.thrift.RConsensusMessageType;
 import org.diqube.thrift.base.thrift.RNodeAddress;
 import org.diqube.thrift.base.thrift.RUUID;
 import org.diqube.thrift.base.util.RUuidUtil;
@@ -70,6 +72,10 @@ import io.atomix.catalyst.util.concurrent.ThreadContext;
  * When the connection is closed, it is automatically unregistered in {@link ClusterConsensusConnectionRegistry}.
  * 
  * <p>
+ * Requests and replies are not sent directly, but through the {@link DiqubeCatalystMessageBatcher}, which combines
+ * multiple messages to the same remote into a single call.
+ * 
+ * <p>
  * After instantiating, call either {@link #acceptAndRegister(UUID, RNodeAddress)} or {@link #openAndRegister(Address)}.
  *
  * @author Bastian Gloeckle
@@ -106,6 +112,8 @@ public class DiqubeCatalystConnection implements Connection {
   private ClusterConsensusConnectionRegistry registry;
   /** The context to be used to de-/serialize data if we have no other context available */
   private ThreadContext generalContext;
+  /** Sends our requests and replies to the remote. */
+  private DiqubeCatalystMessageBatcher messageBatcher;
 
   private SocketListener socketListener = new SocketListener() {
     @Override
@@ -134,11 +142,12 @@ public class DiqubeCatalystConnection implements Connection {
 
   public DiqubeCatalystConnection(ClusterConsensusConnectionRegistry registry,
       ConnectionOrLocalHelper connectionOrLocalHelper, OurNodeAddressProvider ourNodeAddressProvider,
-      ThreadContext generalContext) {
+      ThreadContext generalContext, DiqubeCatalystMessageBatcher messageBatcher) {
     this.registry = registry;
     this.connectionOrLocalHelper = connectionOrLocalHelper;
     this.ourNodeAddressProvider = ourNodeAddressProvider;
     this.generalContext = generalContext;
+    this.messageBatcher = messageBatcher;
   }
 
   /**
@@ -257,10 +266,9 @@ public class DiqubeCatalystConnection implements Connection {
 
   private void handleRequestResult(UUID requestUuid, ThreadContext context, CompletableFuture<Object> result) {
     result.whenComplete((response, error) -> {
-      try (ServiceProvider<ClusterConsensusService.Iface> sp =
-          connectionOrLocalHelper.getService(ClusterConsensusService.Iface.class, remoteAddr, socketListener)) {
-
+      try {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        RConsensusMessageType type;
         if (error != null) {
           if (response != null && response instanceof ReferenceCounted)
             ((ReferenceCounted<?>) response).release();
@@ -268,24 +276,22 @@ public class DiqubeCatalystConnection implements Connection {
           logger.warn("There was an error executing request {}", requestUuid, error);
 
           context.serializer().writeObject(error, baos);
-
-          sp.getService().replyException(RUuidUtil.toRUuid(remoteEndpointUuid), RUuidUtil.toRUuid(requestUuid),
-              ByteBuffer.wrap(baos.toByteArray()));
+          type = RConsensusMessageType.REPLY_EXCEPTION;
         } else {
           context.serializer().writeObject(response, baos);
 
           if (response instanceof ReferenceCounted)
             ((ReferenceCounted<?>) response).release();
 
-          sp.getService().reply(RUuidUtil.toRUuid(remoteEndpointUuid), RUuidUtil.toRUuid(requestUuid),
-              ByteBuffer.wrap(baos.toByteArray()));
+          type = RConsensusMessageType.REPLY;
         }
-      } catch (IOException | InterruptedException | TException | RuntimeException e) {
-        logger.error("Could not send result/exception to {}", remoteAddr, e);
-        throw new RuntimeException("Could not send result/exception to " + remoteAddr, e);
-      } catch (ConnectionException e) {
+
+        RConsensusMessage reply = new RConsensusMessage(RUuidUtil.toRUuid(remoteEndpointUuid),
+            RUuidUtil.toRUuid(requestUuid), type, ByteBuffer.wrap(baos.toByteArray()));
+        messageBatcher.send(remoteAddr, reply, socketListener,
+            e -> logger.error("Could not send result/exception to {}", remoteAddr, e));
+      } catch (RuntimeException e) {
         logger.error("Could not send result/exception to {}", remoteAddr, e);
-        socketListener.connectionDied("Could not send result/exception");
         throw new RuntimeException("Could not send result/exception to " + remoteAddr, e);
       }
     });
@@ -315,20 +321,18 @@ public class DiqubeCatalystConnection implements Connection {
 
       requests.put(requestUuid, new Pair<>((CompletableFuture<Object>) res, context));
 
-      try (ServiceProvider<ClusterConsensusService.Iface> sp =
-          connectionOrLocalHelper.getService(ClusterConsensusService.Iface.class, remoteAddr, socketListener)) {
-        sp.getService().request(RUuidUtil.toRUuid(remoteEndpointUuid), RUuidUtil.toRUuid(requestUuid),
-            ByteBuffer.wrap(baos.toByteArray()));
-      }
+      RConsensusMessage request = new RConsensusMessage(RUuidUtil.toRUuid(remoteEndpointUuid),
+          RUuidUtil.toRUuid(requestUuid), RConsensusMessageType.REQUEST, ByteBuffer.wrap(baos.toByteArray()));
+      messageBatcher.send(remoteAddr, request, socketListener, e -> {
+        // connectionDied might have informed the request already.
+        if (requests.remove(requestUuid) != null)
+          context.executor().execute(() -> res.completeExceptionally(e));
+      });
     } catch (SerializationException e) {
       logger.error("Could not serialize message that should have been sent", e);
       requests.remove(requestUuid);
       res.completeExceptionally(new TransportException("Could not serialize", e));
-    } catch (ConnectionException e) {
-      requests.remove(requestUuid);
-      socketListener.connectionDied("Could not connect");
-      res.completeExceptionally(new TransportException("Could not connect", e));
-    } catch (IOException | IllegalStateException | TException | InterruptedException e) {
+    } catch (IOException e) {
       requests.remove(requestUuid);
       res.completeExceptionally(new TransportException("Failed to send request", e));
     }
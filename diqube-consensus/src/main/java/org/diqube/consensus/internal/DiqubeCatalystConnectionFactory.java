@@ -45,7 +45,11 @@ public class DiqubeCatalystConnectionFactory {
   @Inject
   private OurNodeAddressProvider ourNodeAddressProvider;
 
+  @Inject
+  private DiqubeCatalystMessageBatcher messageBatcher;
+
   public DiqubeCatalystConnection createDiqubeCatalystConnection(ThreadContext generalContext) {
-    return new DiqubeCatalystConnection(registry, connectionOrLocalHelper, ourNodeAddressProvider, generalContext);
+    return new DiqubeCatalystConnection(registry, connectionOrLocalHelper, ourNodeAddressProvider, generalContext,
+        messageBatcher);
   }
 }
@@ -0,0 +1,251 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.consensus.internal;
+
+import java.io.IOException;
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.thrift.TException;
+import org.diqube.config.Config;
+import org.diqube.config.ConfigKey;
+import org.diqube.connection.ConnectionException;
+import org.diqube.connection.ConnectionOrLocalHelper;
+import org.diqube.connection.ServiceProvider;
+import org.diqube.connection.SocketListener;
+import org.diqube.consensus.ConsensusServer;
+import org.diqube.context.AutoInstatiate;
+import org.diqube.context.shutdown.ContextShutdownListener;
+import org.diqube.context.shutdown.ShutdownAfter;
+import org.diqube.remote.cluster.thrift.ClusterConsensusService;
+import org.diqube.remote.cluster.thrift.RConsensusMessage;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.thrift.base.thrift.RNodeAddress;
+import org.diqube.thrift.base.thrift.RUUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.atomix.catalyst.transport.TransportException;
+
+/**
+ * Sends messages of {@link DiqubeCatalystConnection}s to other cluster nodes in batches.
+ * 
+ * <p>
+ * Messages that are sent to the same remote within a short time window (see
+ * {@link ConfigKey#CONSENSUS_BATCH_WINDOW_MS}) are collected and sent using a single call to
+ * {@link ClusterConsensusService#batch(List)}. As soon as {@link ConfigKey#CONSENSUS_MAX_BATCH_SIZE} messages are
+ * waiting for a remote, they are sent right away. Only one batch is in flight to a specific remote at a time, which
+ * preserves the order of the messages. While a batch is being sent, new messages to that remote are collected for the
+ * next batch. As requests and their responses are correlated by the request IDs, responses do not need to be waited
+ * for before sending the next requests.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class DiqubeCatalystMessageBatcher implements ContextShutdownListener {
+  private static final Logger logger = LoggerFactory.getLogger(DiqubeCatalystMessageBatcher.class);
+
+  @Inject
+  private ConnectionOrLocalHelper connectionOrLocalHelper;
+
+  @Inject
+  private ExecutorManager executorManager;
+
+  @Config(ConfigKey.CONSENSUS_BATCH_WINDOW_MS)
+  private long batchWindowMs;
+
+  @Config(ConfigKey.CONSENSUS_MAX_BATCH_SIZE)
+  private int maxBatchSize;
+
+  @Config(ConfigKey.CONSENSUS_SEND_THREADS)
+  private int sendThreads;
+
+  private Map<RNodeAddress, RemoteQueue> remoteQueues = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService sendExecutor;
+
+  @PostConstruct
+  public void initialize() {
+    sendExecutor = executorManager.newScheduledThreadPool("diqube-copycat-batch-%d", new UncaughtExceptionHandler() {
+      @Override
+      public void uncaughtException(Thread t, Throwable e) {
+        logger.error("Uncaught exception while sending batch of consensus messages", e);
+      }
+    }, sendThreads);
+  }
+
+  @Override
+  @ShutdownAfter(ConsensusServer.class)
+  public void contextAboutToShutdown() {
+    sendExecutor.shutdownNow();
+  }
+
+  /**
+   * Enqueue a message to be sent to a remote.
+   * 
+   * @param remoteAddr
+   *          The address of the node to send the message to.
+   * @param message
+   *          The message.
+   * @param socketListener
+   *          Will be informed if the connection to the remote dies while sending the message.
+   * @param failureHandler
+   *          Called if the message could not be delivered to the remote, either because of a transport problem or
+   *          because the remote did not know the connection endpoint of the message.
+   */
+  public void send(RNodeAddress remoteAddr, RConsensusMessage message, SocketListener socketListener,
+      Consumer<TransportException> failureHandler) {
+    RemoteQueue queue = remoteQueues.computeIfAbsent(remoteAddr, addr -> new RemoteQueue());
+    queue.messages.add(new PendingMessage(message, socketListener, failureHandler));
+
+    if (queue.size.incrementAndGet() >= maxBatchSize) {
+      // a full batch is available, do not wait for the batch window to end.
+      if (queue.immediateSendScheduled.compareAndSet(false, true))
+        sendExecutor.execute(() -> sendQueued(remoteAddr, queue));
+    } else if (queue.sendScheduled.compareAndSet(false, true))
+      sendExecutor.schedule(() -> sendQueued(remoteAddr, queue), batchWindowMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void sendQueued(RNodeAddress remoteAddr, RemoteQueue queue) {
+    // reset before polling the messages: Any message that is enqueued afterwards will schedule a new execution.
+    queue.sendScheduled.set(false);
+    queue.immediateSendScheduled.set(false);
+
+    while (true) {
+      List<PendingMessage> batch = new ArrayList<>();
+      synchronized (queue) {
+        // if another thread is sending a batch to the remote, that thread will send our messages after it is done.
+        if (queue.sending || queue.messages.isEmpty())
+          return;
+
+        while (batch.size() < maxBatchSize && !queue.messages.isEmpty()) {
+          batch.add(queue.messages.poll());
+          queue.size.decrementAndGet();
+        }
+        queue.sending = true;
+      }
+
+      // send without holding the lock, so the network round-trip does not block other threads.
+      try {
+        sendBatch(remoteAddr, batch);
+      } finally {
+        synchronized (queue) {
+          queue.sending = false;
+        }
+      }
+    }
+  }
+
+  private void sendBatch(RNodeAddress remoteAddr, List<PendingMessage> batch) {
+    logger.trace("Sending batch of {} consensus messages to {}", batch.size(), remoteAddr);
+
+    Set<SocketListener> socketListeners =
+        batch.stream().map(m -> m.socketListener).filter(Objects::nonNull).collect(Collectors.toSet());
+    SocketListener batchSocketListener = cause -> socketListeners.forEach(l -> l.connectionDied(cause));
+
+    try (ServiceProvider<ClusterConsensusService.Iface> sp =
+        connectionOrLocalHelper.getService(ClusterConsensusService.Iface.class, remoteAddr, batchSocketListener)) {
+
+      List<RUUID> unknownRequestIds =
+          sp.getService().batch(batch.stream().map(m -> m.message).collect(Collectors.toList()));
+
+      if (unknownRequestIds != null && !unknownRequestIds.isEmpty()) {
+        Set<RUUID> unknownRequestIdsSet = new HashSet<>(unknownRequestIds);
+        for (PendingMessage m : batch)
+          if (unknownRequestIdsSet.contains(m.message.getConsensusRequestId()))
+            m.failureHandler.accept(new TransportException("Consensus connection endpoint unknown at remote."));
+      }
+    } catch (ConnectionException e) {
+      batchSocketListener.connectionDied("Could not connect");
+      batch.forEach(m -> m.failureHandler.accept(new TransportException("Could not connect", e)));
+    } catch (IOException | IllegalStateException | TException | InterruptedException e) {
+      batch.forEach(m -> m.failureHandler.accept(new TransportException("Failed to send message", e)));
+    }
+  }
+
+  /** for tests */
+  /* package */ void setConnectionOrLocalHelper(ConnectionOrLocalHelper connectionOrLocalHelper) {
+    this.connectionOrLocalHelper = connectionOrLocalHelper;
+  }
+
+  /** for tests */
+  /* package */ void setExecutorManager(ExecutorManager executorManager) {
+    this.executorManager = executorManager;
+  }
+
+  /** for tests */
+  /* package */ void setBatchWindowMs(long batchWindowMs) {
+    this.batchWindowMs = batchWindowMs;
+  }
+
+  /** for tests */
+  /* package */ void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /** for tests */
+  /* package */ void setSendThreads(int sendThreads) {
+    this.sendThreads = sendThreads;
+  }
+
+  /** Messages that are waiting to be sent to a single remote. */
+  private static class RemoteQueue {
+    private Deque<PendingMessage> messages = new ConcurrentLinkedDeque<>();
+    /** Approximate number of {@link #messages}, as {@link ConcurrentLinkedDeque#size()} is not constant-time. */
+    private AtomicInteger size = new AtomicInteger(0);
+    /** <code>true</code> if sending the {@link #messages} has been scheduled already. */
+    private AtomicBoolean sendScheduled = new AtomicBoolean(false);
+    /** <code>true</code> if sending the {@link #messages} without waiting for the batch window has been scheduled. */
+    private AtomicBoolean immediateSendScheduled = new AtomicBoolean(false);
+    /** <code>true</code> while a batch is sent to the remote. Guarded by the monitor of the {@link RemoteQueue}. */
+    private boolean sending = false;
+  }
+
+  private static class PendingMessage {
+    private RConsensusMessage message;
+    private SocketListener socketListener;
+    private Consumer<TransportException> failureHandler;
+
+    /* package */ PendingMessage(RConsensusMessage message, SocketListener socketListener,
+        Consumer<TransportException> failureHandler) {
+      this.message = message;
+      this.socketListener = socketListener;
+      this.failureHandler = failureHandler;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.consensus.internal;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.diqube.connection.ConnectionOrLocalHelper;
+import org.diqube.connection.ServiceProvider;
+import org.diqube.connection.SocketListener;
+import org.diqube.remote.cluster.thrift.ClusterConsensusService;
+import org.diqube.remote.cluster.thrift.RConsensusMessage;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.thrift.base.thrift.RNodeAddress;
+import org.diqube.thrift.base.thrift.RNodeDefaultAddress;
+import org.diqube.thrift.base.thrift.RUUID;
+import org.diqube.thrift.base.util.RUuidUtil;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.atomix.catalyst.transport.TransportException;
+
+/**
+ * Tests for {@link DiqubeCatalystMessageBatcher}.
+ * 
+ * <p>
+ * The tasks the batcher schedules are not executed automatically, but are captured and executed by the tests
+ * explicitly.
+ *
+ * @author Bastian Gloeckle
+ */
+public class DiqubeCatalystMessageBatcherTest {
+  private static final RNodeAddress ADDR = createDefaultRNodeAddress("localhost", (short) 5101);
+  private static final long BATCH_WINDOW_MS = 100;
+
+  private DiqubeCatalystMessageBatcher batcher;
+
+  /** Messages of all calls to {@link ClusterConsensusService.Iface#batch(List)} */
+  private List<List<RConsensusMessage>> batches;
+
+  /** Result of calls to {@link ClusterConsensusService.Iface#batch(List)} */
+  private List<RUUID> unknownRequestIds;
+
+  /** Tasks that were scheduled to be executed after the batch window. */
+  private List<Runnable> scheduledTasks;
+  /** Tasks that were scheduled to be executed right away. */
+  private List<Runnable> immediateTasks;
+
+  /** Counted down as soon as a call to {@link ClusterConsensusService.Iface#batch(List)} started. */
+  private CountDownLatch batchStartedLatch;
+  /** {@link ClusterConsensusService.Iface#batch(List)} blocks until this latch is zero. */
+  private CountDownLatch batchReleaseLatch;
+
+  @SuppressWarnings("unchecked")
+  @BeforeMethod
+  public void before() throws Exception {
+    batches = new CopyOnWriteArrayList<>();
+    unknownRequestIds = new ArrayList<>();
+    scheduledTasks = new CopyOnWriteArrayList<>();
+    immediateTasks = new CopyOnWriteArrayList<>();
+    batchStartedLatch = new CountDownLatch(1);
+    batchReleaseLatch = new CountDownLatch(0);
+
+    ClusterConsensusService.Iface service = Mockito.mock(ClusterConsensusService.Iface.class);
+    Mockito.when(service.batch(Mockito.anyListOf(RConsensusMessage.class))).thenAnswer(invocation -> {
+      batches.add(new ArrayList<>((List<RConsensusMessage>) invocation.getArguments()[0]));
+      batchStartedLatch.countDown();
+      batchReleaseLatch.await();
+      return unknownRequestIds;
+    });
+
+    ServiceProvider<ClusterConsensusService.Iface> serviceProvider = Mockito.mock(ServiceProvider.class);
+    Mockito.when(serviceProvider.getService()).thenReturn(service);
+
+    ConnectionOrLocalHelper connectionOrLocalHelper = Mockito.mock(ConnectionOrLocalHelper.class);
+    Mockito.when(connectionOrLocalHelper.getService(Mockito.eq(ClusterConsensusService.Iface.class),
+        Mockito.eq(ADDR), Mockito.any(SocketListener.class))).thenReturn(serviceProvider);
+
+    ScheduledExecutorService sendExecutor = Mockito.mock(ScheduledExecutorService.class);
+    Mockito.when(sendExecutor.schedule(Mockito.any(Runnable.class), Mockito.eq(BATCH_WINDOW_MS),
+        Mockito.eq(TimeUnit.MILLISECONDS))).thenAnswer(invocation -> {
+          scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+          return null;
+        });
+    Mockito.doAnswer(invocation -> {
+      immediateTasks.add((Runnable) invocation.getArguments()[0]);
+      return null;
+    }).when(sendExecutor).execute(Mockito.any(Runnable.class));
+
+    ExecutorManager executorManager = Mockito.mock(ExecutorManager.class);
+    Mockito.when(executorManager.newScheduledThreadPool(Mockito.anyString(),
+        Mockito.any(UncaughtExceptionHandler.class), Mockito.anyInt())).thenReturn(sendExecutor);
+
+    batcher = new DiqubeCatalystMessageBatcher();
+    batcher.setConnectionOrLocalHelper(connectionOrLocalHelper);
+    batcher.setExecutorManager(executorManager);
+    batcher.setSendThreads(2);
+    batcher.setBatchWindowMs(BATCH_WINDOW_MS);
+  }
+
+  @Test
+  public void messagesWithinWindowAreBatched() {
+    // GIVEN
+    batcher.setMaxBatchSize(100);
+    batcher.initialize();
+    List<RConsensusMessage> messages = Arrays.asList(createMessage(), createMessage(), createMessage());
+    List<TransportException> failures = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    for (RConsensusMessage message : messages)
+      batcher.send(ADDR, message, null, failures::add);
+    scheduledTasks.forEach(Runnable::run); // batch window ends.
+
+    // THEN
+    Assert.assertEquals(scheduledTasks.size(), 1, "Expected sending to be scheduled once");
+    Assert.assertTrue(immediateTasks.isEmpty(), "Expected nothing to be sent before the batch window ended");
+    Assert.assertEquals(batches, Arrays.asList(messages),
+        "Expected all messages to be sent in correct order in a single batch");
+    Assert.assertTrue(failures.isEmpty(), "Expected no failures");
+  }
+
+  @Test
+  public void fullBatchIsSentWithoutWaitingForWindow() {
+    // GIVEN
+    batcher.setMaxBatchSize(2);
+    batcher.initialize();
+    List<RConsensusMessage> messages = Arrays.asList(createMessage(), createMessage());
+    List<TransportException> failures = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    for (RConsensusMessage message : messages)
+      batcher.send(ADDR, message, null, failures::add);
+    immediateTasks.forEach(Runnable::run);
+
+    // THEN
+    Assert.assertEquals(immediateTasks.size(), 1, "Expected full batch to be sent right away");
+    Assert.assertEquals(batches, Arrays.asList(messages), "Expected all messages to be sent in correct order");
+    Assert.assertTrue(failures.isEmpty(), "Expected no failures");
+  }
+
+  @Test
+  public void unknownRequestIdsAreReportedAsFailure() {
+    // GIVEN
+    batcher.setMaxBatchSize(100);
+    batcher.initialize();
+    RConsensusMessage knownMessage = createMessage();
+    RConsensusMessage unknownMessage = createMessage();
+    unknownRequestIds.add(unknownMessage.getConsensusRequestId());
+    List<TransportException> knownFailures = new CopyOnWriteArrayList<>();
+    List<TransportException> unknownFailures = new CopyOnWriteArrayList<>();
+
+    // WHEN
+    batcher.send(ADDR, knownMessage, null, knownFailures::add);
+    batcher.send(ADDR, unknownMessage, null, unknownFailures::add);
+    scheduledTasks.forEach(Runnable::run);
+
+    // THEN
+    Assert.assertEquals(batches.size(), 1, "Expected batch to be sent");
+    Assert.assertTrue(knownFailures.isEmpty(), "Expected no failure for known message");
+    Assert.assertEquals(unknownFailures.size(), 1, "Expected failure for message with unknown request ID");
+  }
+
+  @Test
+  public void messagesQueuedWhileSendingAreSentAfterwards() throws InterruptedException {
+    // GIVEN
+    batcher.setMaxBatchSize(100);
+    batcher.initialize();
+    RConsensusMessage firstMessage = createMessage();
+    RConsensusMessage secondMessage = createMessage();
+    List<TransportException> failures = new CopyOnWriteArrayList<>();
+    batchReleaseLatch = new CountDownLatch(1);
+
+    batcher.send(ADDR, firstMessage, null, failures::add);
+    Runnable firstSendTask = scheduledTasks.get(0);
+    Thread firstSendThread = new Thread(firstSendTask, "test-first-send");
+    firstSendThread.start();
+    Assert.assertTrue(batchStartedLatch.await(10, TimeUnit.SECONDS), "Expected first batch to be sent");
+
+    // WHEN
+    // while the first batch is in flight, another message is enqueued and its send task executed.
+    batcher.send(ADDR, secondMessage, null, failures::add);
+    Assert.assertEquals(scheduledTasks.size(), 2, "Expected second send to be scheduled");
+    scheduledTasks.get(1).run(); // must not block and must not send concurrently to the first batch.
+    Assert.assertEquals(batches.size(), 1, "Expected only one batch in flight");
+    batchReleaseLatch.countDown();
+    firstSendThread.join(TimeUnit.SECONDS.toMillis(10));
+
+    // THEN
+    Assert.assertFalse(firstSendThread.isAlive(), "Expected first send task to finish");
+    Assert.assertEquals(batches, Arrays.asList(Arrays.asList(firstMessage), Arrays.asList(secondMessage)),
+        "Expected second message to be sent after the first batch by the thread that sent the first batch");
+    Assert.assertTrue(failures.isEmpty(), "Expected no failures");
+  }
+
+  private RConsensusMessage createMessage() {
+    RConsensusMessage res = new RConsensusMessage();
+    res.setConsensusConnectionEndpointId(RUuidUtil.toRUuid(UUID.randomUUID()));
+    res.setConsensusRequestId(RUuidUtil.toRUuid(UUID.randomUUID()));
+    return res;
+  }
+
+  private static RNodeAddress createDefaultRNodeAddress(String host, short port) {
+    RNodeAddress res = new RNodeAddress();
+    res.setDefaultAddr(new RNodeDefaultAddress());
+    res.getDefaultAddr().setHost(host);
+    res.getDefaultAddr().setPort(port);
+    return res;
+  }
+}
@@ -43,8 +43,17 @@ import org.diqube.data.serialize.DataSerialization.DataSerializationHelper;
  * @author Bastian Gloeckle
  */
 public class DataSerializer {
-  /** Version of thrift objects created by this serializer/capable of reading in the deserializer. */
-  public static final int DATA_VERSION = 1;
+  /**
+   * Version of thrift objects created by this serializer/capable of reading in the deserializer.
+   * 
+   * <p>
+   * Version 2 stores long arrays as binary (see {@link LongArrayBinaryEncoding}). Version 3 adds repeated columns
+   * that are stored natively (offsets + a single values column) to table shards.
+   */
+  public static final int DATA_VERSION = 3;
+
+  /** Oldest version of thrift objects that the deserializer is capable of reading. */
+  public static final int MIN_SUPPORTED_DATA_VERSION = 1;
 
   private Map<Class<? extends DataSerialization<?>>, Class<? extends TBase<?, ?>>> thriftClasses;
 
@@ -0,0 +1,65 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.data.serialize;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Encodes long arrays to thrift "binary" fields and back.
+ * 
+ * <p>
+ * Thrift "list&lt;i64&gt;" fields are represented as {@link java.util.List} of boxed {@link Long}s, which is slow for
+ * big arrays and produces lots of garbage. Since {@link DataSerializer#DATA_VERSION} 2 long arrays are therefore
+ * serialized to binary fields using this class, where each long is stored in 8 bytes, little endian.
+ *
+ * @author Bastian Gloeckle
+ */
+public class LongArrayBinaryEncoding {
+  private LongArrayBinaryEncoding() {
+    // utility class.
+  }
+
+  /**
+   * @return The binary representation of the given array.
+   */
+  public static byte[] encode(long[] values) {
+    byte[] res = new byte[values.length * Long.BYTES];
+    ByteBuffer.wrap(res).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(values);
+    return res;
+  }
+
+  /**
+   * @return The long array that was encoded using {@link #encode(long[])}.
+   * @throws DeserializationException
+   *           If the data cannot be decoded.
+   */
+  public static long[] decode(byte[] data) throws DeserializationException {
+    if (data.length % Long.BYTES != 0)
+      throw new DeserializationException("Encoded long array has invalid length " + data.length);
+
+    LongBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    long[] res = new long[buf.remaining()];
+    buf.get(res);
+    return res;
+  }
+}
@@ -23,9 +23,20 @@ namespace java org.diqube.data.serialize.thrift.v1
 
 struct STableShard {
     1: string tableName,
-    2: list<SColumnShard> columnShards
+    2: list<SColumnShard> columnShards,
+    // since data version 3
+    3: optional list<SRepeatedColumnShard> repeatedColumnShards
 } 
 
+// since data version 3
+struct SRepeatedColumnShard {
+    1: string name,
+    2: i64 firstRowId,
+    // offsets into the values column, see LongArrayBinaryEncoding.
+    3: binary offsets,
+    4: SColumnShard values
+}
+
 struct SColumnShard {
     1: string name,
     2: SColumnType type,
@@ -56,7 +67,8 @@ union SDictionary {
 
 union SStringDictionary {
     1: optional SStringDictionaryTrie trie,
-    2: optional SStringDictionaryConstant constant
+    2: optional SStringDictionaryConstant constant,
+    3: optional SStringDictionaryFrontCoded frontCoded
 }
 
 struct SStringDictionaryConstant {
@@ -86,6 +98,13 @@ struct SStringDictionaryTrieTerminalNode {
     1: i64 terminalId
 }
 
+struct SStringDictionaryFrontCoded {
+    1: i32 blockSize,
+    2: list<i32> blockOffsets,
+    3: binary data,
+    4: i64 lastId
+}
+
 // ========== Double dict
 
 union SDoubleDictionary {
@@ -112,12 +131,15 @@ struct SDoubleDictionaryFpcPage {
     4: binary data
 }
 
+// Since data version 2 the hash tables are stored in the *Binary fields (little endian longs).
 struct SDoubleDictionaryFpcState {
-    1: list<i64> fcmHashTable,
-    2: list<i64> dfcmHashTable,
+    1: optional list<i64> fcmHashTable,
+    2: optional list<i64> dfcmHashTable,
     3: byte fcmHash,
     4: byte dfcmHash,
-    5: i64 lastValue
+    5: i64 lastValue,
+    6: optional binary fcmHashTableBinary,
+    7: optional binary dfcmHashTableBinary
 }
 
 // ========== Long dict
@@ -147,6 +169,9 @@ union SLongCompressedArray {
     2: optional SLongCompressedArrayRLE rle,
     3: optional SLongCompressedArrayReference ref
 }
+
+// Since data version 2 the compressed values of the arrays are stored in the *Binary fields (little endian longs)
+// instead of the list<i64> fields, as that can be de-/serialized without boxing each value.
  
 struct SLongCompressedArrayBitEfficient {
     1: i32 size,
@@ -154,11 +179,12 @@ struct SLongCompressedArrayBitEfficient {
     3: bool isSorted,
     4: bool isSameValue,
     5: bool containsSignBit,
-    6: list<i64> compressedValues,
+    6: optional list<i64> compressedValues,
     7: list<i32> longMinValueLocations,
     8: i64 minValue,
     9: i64 absoluteMinValue,
-    10: i64 maxValue
+    10: i64 maxValue,
+    11: optional binary compressedValuesBinary
 }
 
 struct SLongCompressedArrayRLE {
@@ -173,7 +199,9 @@ struct SLongCompressedArrayRLE {
     9: optional list<i64> compressedCounts,
     10: optional SLongCompressedArray delegateCompressedValue,
     11: optional SLongCompressedArray delegateCompressedCounts,
-    12: i32 size
+    12: i32 size,
+    13: optional binary compressedValuesBinary,
+    14: optional binary compressedCountsBinary
 }
 
 struct SLongCompressedArrayReference {
@@ -184,5 +212,6 @@ struct SLongCompressedArrayReference {
     5: i64 secondMin,
     6: i64 max,
     7: optional list<i64> compressedValues,
-    8: optional SLongCompressedArray delegateCompressedValues
+    8: optional SLongCompressedArray delegateCompressedValues,
+    9: optional binary compressedValuesBinary
 }
\ No newline at end of file
@@ -21,6 +21,7 @@
 package org.diqube.data.column;
 
 import org.diqube.data.dictionary.Dictionary;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * Abstract base implementation of a {@link ConstantColumnShard}.
@@ -94,9 +95,10 @@ public abstract class AbstractConstantColumnShard implements ConstantColumnShard
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
-        24 + // small fields
-        name.getBytes().length + //
-        columnShardDictionary.calculateApproximateSizeInBytes(); // ignore other minor data.
+    // the value is held by the dictionary, too.
+    return MemorySizeUtil.objectSize(8, 4) + // this
+        MemorySizeUtil.stringSize(name) + //
+        columnShardDictionary.calculateApproximateSizeInBytes();
   }
+
 }
@@ -34,6 +34,7 @@ import org.diqube.data.serialize.thrift.v1.SColumnShard;
 import org.diqube.data.serialize.thrift.v1.SColumnType;
 import org.diqube.data.serialize.thrift.v1.SDictionary;
 import org.diqube.data.util.StandardColumnShardUtil;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * Abstract implementation of a {@link StandardColumnShard}.
@@ -166,16 +167,16 @@ public abstract class AbstractStandardColumnShard implements StandardColumnShard
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    long pagesSize = 0L;
-    // "Long" keys: 8 bytes long value, 16 bytes object header
-    pagesSize += pages.size() * (8 + 16);
+    long pagesSize = MemorySizeUtil.treeMapSize(pages.size()) + //
+        pages.size() * MemorySizeUtil.BOXED_LONG_BYTES; // "Long" keys
     // ColumnPages:
     for (ColumnPage page : pages.values()) {
       pagesSize += page.calculateApproximateSizeInBytes();
     }
-    return 16 + // object header of this.
-        name.getBytes().length + //
+    return MemorySizeUtil.objectSize(0, 4) + // this
+        MemorySizeUtil.stringSize(name) + //
         columnShardDictionary.calculateApproximateSizeInBytes() + pagesSize;
   }
 
+
 }
@@ -24,6 +24,7 @@ import org.diqube.data.serialize.DataSerialization;
 import org.diqube.data.serialize.thrift.v1.SColumnPage;
 import org.diqube.data.types.lng.array.CompressedLongArray;
 import org.diqube.data.types.lng.dict.LongDictionary;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * {@link ColumnPage} holds the data of a specific set of consecutive rows of one {@link ColumnShard}.
@@ -60,14 +61,32 @@ public interface ColumnPage extends DataSerialization<SColumnPage> {
    */
   public int size();
 
+  /**
+   * Resolves the column value IDs of a consecutive range of rows of this page into a primitive array.
+   * 
+   * <p>
+   * The column page dictionary is decompressed once for all of its entries and not once for each row.
+   * 
+   * @param fromIndex
+   *          Index of the first row in this page (= offset to {@link #getFirstRowId()}), inclusive.
+   * @param toIndex
+   *          Index of the last row in this page, exclusive.
+   * @param target
+   *          The array the column value IDs are written to.
+   * @param targetOffset
+   *          The index in target where the column value ID of the row at fromIndex is written to.
+   */
+  public void resolveColumnValueIds(int fromIndex, int toIndex, long[] target, int targetOffset);
+
   /**
    * @return Name of the {@link ColumnPage}.
    */
   public String getName();
 
   /**
-   * @return An approximate number of bytes taken up by this {@link ColumnPage}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link ColumnPage} on the heap, i.e. the sum of the sizes of all
+   *         objects that are referenced by this object exclusively. The sizes are calculated based on the object layout
+   *         of the running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 
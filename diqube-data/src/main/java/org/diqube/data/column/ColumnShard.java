@@ -22,6 +22,7 @@ package org.diqube.data.column;
 
 import org.diqube.data.dictionary.Dictionary;
 import org.diqube.data.table.TableShard;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A ColumnShard contains all data of one column of all rows of a specific {@link TableShard} or of intermediary values
@@ -67,8 +68,9 @@ public interface ColumnShard {
   public long getFirstRowId();
 
   /**
-   * @return An approximate number of bytes taken up by this {@link ColumnShard}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link ColumnShard} on the heap, i.e. the sum of the sizes of all
+   *         objects that are referenced by this object exclusively. The sizes are calculated based on the object layout
+   *         of the running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 
@@ -20,6 +20,8 @@
  */
 package org.diqube.data.column;
 
+import java.util.stream.LongStream;
+
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
@@ -28,6 +30,7 @@ import org.diqube.data.serialize.thrift.v1.SLongCompressedArray;
 import org.diqube.data.serialize.thrift.v1.SLongDictionary;
 import org.diqube.data.types.lng.array.CompressedLongArray;
 import org.diqube.data.types.lng.dict.LongDictionary;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * Default implementation of {@link ColumnPage} which holds values that were loaded from data files e.g.
@@ -82,6 +85,15 @@ public class DefaultColumnPage implements AdjustableColumnPage {
     return name;
   }
 
+  @Override
+  public void resolveColumnValueIds(int fromIndex, int toIndex, long[] target, int targetOffset) {
+    long[] pageValueIds = values.decompressedArray();
+    Long[] columnValueIdsByPageValueId = columnPageDict.decompressValues(
+        LongStream.rangeClosed(0L, columnPageDict.getMaxId()).boxed().toArray(l -> new Long[l]));
+    for (int i = fromIndex; i < toIndex; i++)
+      target[targetOffset + i - fromIndex] = columnValueIdsByPageValueId[(int) pageValueIds[i]];
+  }
+
   @Override
   public void serialize(DataSerializationHelper mgr, SColumnPage target) throws SerializationException {
     target.setName(name);
@@ -111,9 +123,11 @@ public class DefaultColumnPage implements AdjustableColumnPage {
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
+    return MemorySizeUtil.objectSize(8, 3) + // this
+        MemorySizeUtil.stringSize(name) + //
         columnPageDict.calculateApproximateSizeInBytes() + //
         values.calculateApproximateSizeInBytes();
   }
 
+
 }
@@ -0,0 +1,252 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.data.column;
+
+import java.util.Map.Entry;
+
+import org.diqube.data.serialize.DataSerializable;
+import org.diqube.data.serialize.DataSerialization;
+import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
+import org.diqube.data.serialize.SerializationException;
+import org.diqube.data.serialize.thrift.v1.SColumnShard;
+import org.diqube.data.serialize.thrift.v1.SRepeatedColumnShard;
+import org.diqube.util.MemorySizeUtil;
+import org.diqube.util.PrimitiveUtils;
+
+/**
+ * A repeated column that is stored natively, i.e. not as one {@link StandardColumnShard} per array index, but as
+ * offsets into a single column containing the values of all array entries of all rows.
+ * 
+ * <p>
+ * The name of a {@link RepeatedColumnShard} is the column name pattern that contains exactly one "all entries" marker,
+ * e.g. "a[*].b": The values of "a[0].b", "a[1].b", ... of a row are stored consecutively in {@link #getValues()},
+ * starting at index {@link #getFirstValueIndex(long)}. The number of entries of a row (= the value of the length
+ * column "a[length]") is available from {@link #getLength(long)}.
+ * 
+ * <p>
+ * The values column is addressed by value index (starting at 0), not by row ID. It contains one additional value at
+ * the very end, which is the default value of the column that is used when a row has less entries than a specific
+ * index (compare to the default values used for per-index columns by the loaders).
+ *
+ * @author Bastian Gloeckle
+ */
+@DataSerializable(thriftClass = SRepeatedColumnShard.class)
+public class RepeatedColumnShard implements DataSerialization<SRepeatedColumnShard> {
+  private String name;
+
+  private long firstRowId;
+
+  /** offsets[i] is the index in values of the first entry of row firstRowId + i. Length is number of rows + 1. */
+  private long[] offsets;
+
+  private StandardColumnShard values;
+
+  /** Maximum number of entries of a row, calculated lazily. -1 if not calculated yet. */
+  private int maxLength = -1;
+
+  /** for deserialization */
+  public RepeatedColumnShard() {
+
+  }
+
+  /**
+   * @param name
+   *          The column name pattern, see class comment.
+   * @param firstRowId
+   *          The row ID of the first row.
+   * @param offsets
+   *          Offsets into values, one entry per row plus one final entry that denotes the index of the default value.
+   * @param values
+   *          The values column, including the default value at the end.
+   */
+  public RepeatedColumnShard(String name, long firstRowId, long[] offsets, StandardColumnShard values) {
+    this.name = name;
+    this.firstRowId = firstRowId;
+    this.offsets = offsets;
+    this.values = values;
+  }
+
+  /**
+   * @return The column name pattern, see class comment.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public long getFirstRowId() {
+    return firstRowId;
+  }
+
+  public long getNumberOfRows() {
+    return offsets.length - 1;
+  }
+
+  public ColumnType getColumnType() {
+    return values.getColumnType();
+  }
+
+  /**
+   * @return The column containing the values of all entries, addressed by value index.
+   */
+  public StandardColumnShard getValues() {
+    return values;
+  }
+
+  /**
+   * @return Number of entries in the given row.
+   */
+  public int getLength(long rowId) {
+    int idx = (int) (rowId - firstRowId);
+    return (int) (offsets[idx + 1] - offsets[idx]);
+  }
+
+  /**
+   * @return Index of the first value of the given row in {@link #getValues()}.
+   */
+  public long getFirstValueIndex(long rowId) {
+    return offsets[(int) (rowId - firstRowId)];
+  }
+
+  /**
+   * @return Index of the default value in {@link #getValues()}.
+   */
+  public long getDefaultValueIndex() {
+    return offsets[offsets.length - 1];
+  }
+
+  /**
+   * @return The maximum number of entries a row in this column has.
+   */
+  public int getMaxLength() {
+    if (maxLength == -1) {
+      int res = 0;
+      for (int i = 0; i < offsets.length - 1; i++)
+        res = (int) Math.max(res, offsets[i + 1] - offsets[i]);
+      maxLength = res;
+    }
+    return maxLength;
+  }
+
+  /**
+   * Resolve the column value IDs of a consecutive range of values in {@link #getValues()}.
+   * 
+   * @param firstValueIndex
+   *          First value index to resolve.
+   * @param length
+   *          Number of values to resolve.
+   * @return The column value IDs, which can be resolved using the column dictionary of {@link #getValues()}.
+   */
+  public long[] resolveColumnValueIds(long firstValueIndex, int length) {
+    long[] res = new long[length];
+    int pos = 0;
+    while (pos < length) {
+      long valueIdx = firstValueIndex + pos;
+      Entry<Long, ColumnPage> pageEntry = values.getPages().floorEntry(valueIdx);
+      ColumnPage page = pageEntry.getValue();
+      int idxInPage = (int) (valueIdx - pageEntry.getKey());
+      int lenInPage = Math.min(length - pos, page.size() - idxInPage);
+      page.resolveColumnValueIds(idxInPage, idxInPage + lenInPage, res, pos);
+      pos += lenInPage;
+    }
+    return res;
+  }
+
+  /**
+   * Resolve the column value IDs of a single array index for the given rows, i.e. the column value IDs that the
+   * column of that index (e.g. "a[3].b") would contain for these rows. Rows that have less entries resolve to the
+   * default value.
+   * 
+   * @param rowIds
+   *          The rows to resolve, ideally sorted.
+   * @param index
+   *          The array index.
+   * @return The column value IDs, index in the array corresponds to the index in rowIds. These can be resolved using
+   *         the column dictionary of {@link #getValues()}.
+   */
+  public long[] resolveColumnValueIdsOfIndex(long[] rowIds, int index) {
+    long[] res = new long[rowIds.length];
+    long defaultColumnValueId = resolveColumnValueIds(getDefaultValueIndex(), 1)[0];
+
+    // value indices of consecutive rows are increasing, so we decompress each page at most once for sorted row IDs.
+    long pageFirstValueIdx = -1L;
+    ColumnPage page = null;
+    long[] pageValues = null;
+    for (int i = 0; i < rowIds.length; i++) {
+      if (getLength(rowIds[i]) <= index) {
+        res[i] = defaultColumnValueId;
+        continue;
+      }
+
+      long valueIdx = getFirstValueIndex(rowIds[i]) + index;
+      if (page == null || valueIdx < pageFirstValueIdx || valueIdx >= pageFirstValueIdx + page.size()) {
+        Entry<Long, ColumnPage> pageEntry = values.getPages().floorEntry(valueIdx);
+        pageFirstValueIdx = pageEntry.getKey();
+        page = pageEntry.getValue();
+        pageValues = page.getValues().decompressedArray();
+      }
+      res[i] = page.getColumnPageDict().decompressValue(pageValues[(int) (valueIdx - pageFirstValueIdx)]);
+    }
+    return res;
+  }
+
+  /**
+   * Resolve the actual values of a consecutive range of values in {@link #getValues()}.
+   * 
+   * @see #resolveColumnValueIds(long, int)
+   */
+  public Object[] resolveValues(long firstValueIndex, int length) {
+    return values.getColumnShardDictionary()
+        .decompressValues(PrimitiveUtils.toBoxedArray(resolveColumnValueIds(firstValueIndex, length)));
+  }
+
+  /**
+   * Adjust the row IDs of this column to start at the given row ID. The values column is not affected, as it is
+   * addressed by value index.
+   */
+  public void adjustToFirstRowId(long firstRowId) {
+    this.firstRowId = firstRowId;
+  }
+
+  @Override
+  public void serialize(DataSerializationHelper mgr, SRepeatedColumnShard target) throws SerializationException {
+    target.setName(name);
+    target.setFirstRowId(firstRowId);
+    target.setOffsets(LongArrayBinaryEncoding.encode(offsets));
+    target.setValues(mgr.serializeChild(SColumnShard.class, values));
+  }
+
+  @Override
+  public void deserialize(DataSerializationHelper mgr, SRepeatedColumnShard source) throws DeserializationException {
+    name = source.getName();
+    firstRowId = source.getFirstRowId();
+    offsets = LongArrayBinaryEncoding.decode(source.getOffsets());
+    values = mgr.deserializeChild(StandardColumnShard.class, source.getValues());
+  }
+
+  public long calculateApproximateSizeInBytes() {
+    return MemorySizeUtil.objectSize(8 + 4, 3) + // this
+        MemorySizeUtil.stringSize(name) + //
+        MemorySizeUtil.longArraySize(offsets.length) + //
+        values.calculateApproximateSizeInBytes();
+  }
+
+}
@@ -23,6 +23,7 @@ package org.diqube.data.dictionary;
 import java.util.NavigableMap;
 import java.util.Set;
 
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 /**
@@ -248,8 +249,9 @@ public interface Dictionary<T> extends Iterable<Pair<Long, T>> {
   public NavigableMap<Long, Long> findLtEqIds(Dictionary<T> otherDict);
 
   /**
-   * @return An approximate number of bytes taken up by this {@link Dictionary}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link Dictionary} on the heap, i.e. the sum of the sizes of all
+   *         objects that are referenced by this object exclusively. The sizes are calculated based on the object layout
+   *         of the running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 }
@@ -35,6 +35,7 @@ import org.diqube.data.serialize.thrift.v1.SLongDictionaryConstant;
 import org.diqube.data.serialize.thrift.v1.SLongDictionaryEmpty;
 import org.diqube.data.serialize.thrift.v1.SStringDictionary;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryConstant;
+import org.diqube.data.serialize.thrift.v1.SStringDictionaryFrontCoded;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrie;
 import org.diqube.data.types.dbl.dict.ConstantDoubleDictionary;
 import org.diqube.data.types.dbl.dict.FpcDoubleDictionary;
@@ -42,6 +43,7 @@ import org.diqube.data.types.lng.dict.ArrayCompressedLongDictionary;
 import org.diqube.data.types.lng.dict.ConstantLongDictionary;
 import org.diqube.data.types.lng.dict.EmptyLongDictionary;
 import org.diqube.data.types.str.dict.ConstantStringDictionary;
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
 import org.diqube.data.types.str.dict.TrieStringDictionary;
 import org.diqube.util.Pair;
 
@@ -60,6 +62,8 @@ public class DictionaryDeserializationDelegationManager implements DataSerializa
         return new Pair<>(ConstantStringDictionary.class, serialized.getStringDict().getConstant());
       if (serialized.getStringDict().isSetTrie())
         return new Pair<>(TrieStringDictionary.class, serialized.getStringDict().getTrie());
+      if (serialized.getStringDict().isSetFrontCoded())
+        return new Pair<>(FrontCodedStringDictionary.class, serialized.getStringDict().getFrontCoded());
       throw new DeserializationException("Unkown string dictionary type");
     }
 
@@ -97,6 +101,8 @@ public class DictionaryDeserializationDelegationManager implements DataSerializa
       res.setStringDict(new SStringDictionary(SStringDictionary._Fields.CONSTANT, obj));
     else if (obj instanceof SStringDictionaryTrie)
       res.setStringDict(new SStringDictionary(SStringDictionary._Fields.TRIE, obj));
+    else if (obj instanceof SStringDictionaryFrontCoded)
+      res.setStringDict(new SStringDictionary(SStringDictionary._Fields.FRONT_CODED, obj));
     else if (obj instanceof SDoubleDictionaryConstant)
       res.setDoubleDict(new SDoubleDictionary(SDoubleDictionary._Fields.CONSTANT, obj));
     else if (obj instanceof SDoubleDictionaryFpc)
@@ -21,9 +21,12 @@
 package org.diqube.data.flatten;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import org.diqube.context.AutoInstatiate;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.flatten.FlattenedTableShard.ColumnMaterializer;
 import org.diqube.data.table.TableShard;
 
 /**
@@ -39,4 +42,9 @@ public class FlattenDataFactory {
     return new FlattenedTable(name, shards, originalFirstRowIdsOfShards);
   }
 
+  public FlattenedTableShard createFlattenedTableShard(String tableName, long firstRowId, long numberOfRows,
+      Map<String, ColumnType> columnTypes, ColumnMaterializer materializer) {
+    return new FlattenedTableShard(tableName, firstRowId, numberOfRows, columnTypes, materializer);
+  }
+
 }
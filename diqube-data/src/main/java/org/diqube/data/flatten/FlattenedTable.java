@@ -26,6 +26,7 @@ import java.util.Set;
 
 import org.diqube.data.table.Table;
 import org.diqube.data.table.TableShard;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A flattened {@link Table}, which is based on a delegate normal {@link Table} but was flattened on a specific
@@ -75,8 +76,12 @@ public class FlattenedTable implements Table {
     for (TableShard shard : shards)
       shardsSize += shard.calculateApproximateSizeInBytes();
 
-    return 16 + //
+    return MemorySizeUtil.objectSize(0, 3) + // this
+        MemorySizeUtil.stringSize(name) + //
+        MemorySizeUtil.arrayListSize(shards.size()) + //
         shardsSize + //
-        originalFirstRowIdsOfShards.size() * 16;
+        MemorySizeUtil.hashMapSize(originalFirstRowIdsOfShards.size()) + //
+        originalFirstRowIdsOfShards.size() * MemorySizeUtil.BOXED_LONG_BYTES;
   }
+
 }
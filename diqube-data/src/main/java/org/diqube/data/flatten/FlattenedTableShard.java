@@ -0,0 +1,372 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.data.flatten;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.diqube.data.column.AdjustableStandardColumnShard;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
+import org.diqube.data.column.StandardColumnShard;
+import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.SerializationException;
+import org.diqube.data.serialize.thrift.v1.STableShard;
+import org.diqube.data.table.TableShard;
+import org.diqube.data.types.dbl.DoubleStandardColumnShard;
+import org.diqube.data.types.lng.LongStandardColumnShard;
+import org.diqube.data.types.str.StringStandardColumnShard;
+import org.diqube.util.MemorySizeUtil;
+
+/**
+ * A {@link TableShard} of a {@link FlattenedTable} whose columns are materialized lazily.
+ * 
+ * <p>
+ * On creation, only the names and types of the columns and the number of rows are known. The actual
+ * {@link StandardColumnShard} of a column is created by a {@link ColumnMaterializer} when it is accessed for the first
+ * time, which typically resolves the values through the column shards of the table shard that was flattened. Columns
+ * that are never accessed are therefore never built.
+ * 
+ * <p>
+ * Note that the maps returned by {@link #getColumns()} etc. materialize a column as soon as its value is accessed -
+ * iterating over their {@link Map#values()} will therefore materialize all columns. Iterating over their
+ * {@link Map#keySet()} though does not materialize anything.
+ * 
+ * <p>
+ * This class cannot be serialized directly, use {@link #createMaterializedColumns()} to create serializable columns.
+ *
+ * @author Bastian Gloeckle
+ */
+public class FlattenedTableShard implements TableShard {
+  private String tableName;
+  private volatile long firstRowId;
+  private long numberOfRows;
+  private ColumnMaterializer materializer;
+
+  private Map<String, LazyColumn> columns = new HashMap<>();
+
+  private Map<String, StringStandardColumnShard> stringColumns;
+  private Map<String, LongStandardColumnShard> longColumns;
+  private Map<String, DoubleStandardColumnShard> doubleColumns;
+  private Map<String, StandardColumnShard> allColumns;
+
+  /* package */ FlattenedTableShard(String tableName, long firstRowId, long numberOfRows,
+      Map<String, ColumnType> columnTypes, ColumnMaterializer materializer) {
+    this.tableName = tableName;
+    this.firstRowId = firstRowId;
+    this.numberOfRows = numberOfRows;
+    this.materializer = materializer;
+    for (Map.Entry<String, ColumnType> e : columnTypes.entrySet())
+      columns.put(e.getKey(), new LazyColumn(e.getKey(), e.getValue()));
+
+    stringColumns = new LazyColumnMap<>(ColumnType.STRING);
+    longColumns = new LazyColumnMap<>(ColumnType.LONG);
+    doubleColumns = new LazyColumnMap<>(ColumnType.DOUBLE);
+    allColumns = new LazyColumnMap<>(null);
+  }
+
+  @Override
+  public Map<String, StringStandardColumnShard> getStringColumns() {
+    return stringColumns;
+  }
+
+  @Override
+  public Map<String, DoubleStandardColumnShard> getDoubleColumns() {
+    return doubleColumns;
+  }
+
+  @Override
+  public Map<String, LongStandardColumnShard> getLongColumns() {
+    return longColumns;
+  }
+
+  @Override
+  public Map<String, StandardColumnShard> getColumns() {
+    return allColumns;
+  }
+
+  @Override
+  public Map<String, RepeatedColumnShard> getRepeatedColumns() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * @return The types of all columns of this table shard. Does not materialize any column.
+   */
+  public Map<String, ColumnType> getColumnTypes() {
+    Map<String, ColumnType> res = new HashMap<>();
+    for (LazyColumn col : columns.values())
+      res.put(col.name, col.type);
+    return res;
+  }
+
+  /**
+   * @return <code>true</code> if the given column has been materialized already.
+   */
+  public boolean isMaterialized(String colName) {
+    LazyColumn col = columns.get(colName);
+    return col != null && col.shard != null;
+  }
+
+  @Override
+  public long getNumberOfRowsInShard() {
+    return numberOfRows;
+  }
+
+  @Override
+  public long getLowestRowId() {
+    if (numberOfRows == 0)
+      return -1;
+    return currentFirstRowId();
+  }
+
+  /**
+   * @return The first row ID of the materialized columns, as these might have been adjusted directly (see
+   *         {@link AdjustableStandardColumnShard}). If no column is materialized, the first row ID that this table shard
+   *         was created or adjusted with.
+   */
+  private long currentFirstRowId() {
+    for (LazyColumn col : columns.values()) {
+      StandardColumnShard shard = col.shard;
+      if (shard != null)
+        return shard.getFirstRowId();
+    }
+    return firstRowId;
+  }
+
+  @Override
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * Adjusts the first row ID of this table shard, including all columns that have been materialized already and all
+   * columns that will be materialized later.
+   * 
+   * <p>
+   * This needs to be called before the table shard is reachable from the TableRegistry.
+   * 
+   * @see AdjustableStandardColumnShard#adjustToFirstRowId(long)
+   */
+  public void adjustToFirstRowId(long firstRowId) {
+    synchronized (columns) {
+      this.firstRowId = firstRowId;
+      for (LazyColumn col : columns.values())
+        col.adjustToFirstRowId(firstRowId);
+    }
+  }
+
+  /**
+   * Creates the {@link StandardColumnShard}s of all columns of this table shard, which can then be used to e.g.
+   * serialize the data of this table shard.
+   * 
+   * <p>
+   * Columns that have not been materialized yet are created, but are not held by this table shard afterwards.
+   */
+  public Collection<StandardColumnShard> createMaterializedColumns() {
+    List<StandardColumnShard> res = new ArrayList<>();
+    for (LazyColumn col : columns.values()) {
+      StandardColumnShard shard = col.shard;
+      if (shard == null)
+        shard = materializer.materialize(col.name, currentFirstRowId());
+      res.add(shard);
+    }
+    return res;
+  }
+
+  @Override
+  public void serialize(DataSerializationHelper mgr, STableShard target) throws SerializationException {
+    throw new SerializationException(
+        "Lazily flattened table shards cannot be serialized directly, create materialized columns first.");
+  }
+
+  @Override
+  public void deserialize(DataSerializationHelper mgr, STableShard source) throws DeserializationException {
+    throw new DeserializationException("Lazily flattened table shards cannot be deserialized.");
+  }
+
+  @Override
+  public long calculateApproximateSizeInBytes() {
+    // the column maps other than "columns" are views on "columns", therefore we do not account any entries for them.
+    long res = MemorySizeUtil.objectSize(2 * 8, 7) + // this
+        MemorySizeUtil.stringSize(tableName) + //
+        MemorySizeUtil.hashMapSize(columns.size()) + //
+        materializer.calculateApproximateSizeInBytes();
+    for (LazyColumn col : columns.values()) {
+      // name, type, shard, outer this
+      res += MemorySizeUtil.objectSize(0, 4) + MemorySizeUtil.stringSize(col.name);
+      StandardColumnShard shard = col.shard;
+      if (shard != null)
+        res += shard.calculateApproximateSizeInBytes();
+    }
+    return res;
+  }
+
+  /**
+   * Holds a column that might not have been materialized yet.
+   */
+  private class LazyColumn {
+    private String name;
+    private ColumnType type;
+    private volatile StandardColumnShard shard;
+
+    LazyColumn(String name, ColumnType type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    StandardColumnShard get() {
+      StandardColumnShard res = shard;
+      if (res == null) {
+        synchronized (this) {
+          res = shard;
+          if (res == null) {
+            res = materializer.materialize(name, currentFirstRowId());
+            shard = res;
+          }
+        }
+      }
+      return res;
+    }
+
+    synchronized void adjustToFirstRowId(long firstRowId) {
+      if (shard != null && shard.getFirstRowId() != firstRowId)
+        ((AdjustableStandardColumnShard) shard).adjustToFirstRowId(firstRowId);
+    }
+  }
+
+  /**
+   * Unmodifiable map of columns that materializes a column as soon as its value is accessed.
+   */
+  private class LazyColumnMap<T extends StandardColumnShard> extends AbstractMap<String, T> {
+    private ColumnType type;
+    private Set<String> keys;
+
+    /**
+     * @param type
+     *          Type of the columns this map contains, <code>null</code> for all.
+     */
+    LazyColumnMap(ColumnType type) {
+      this.type = type;
+      Set<String> keys = new HashSet<>();
+      for (LazyColumn col : columns.values())
+        if (type == null || col.type.equals(type))
+          keys.add(col.name);
+      this.keys = Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return keys.contains(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(Object key) {
+      if (!keys.contains(key))
+        return null;
+      return (T) columns.get(key).get();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return keys;
+    }
+
+    @Override
+    public int size() {
+      return keys.size();
+    }
+
+    @Override
+    public Set<Entry<String, T>> entrySet() {
+      return new AbstractSet<Entry<String, T>>() {
+        @Override
+        public Iterator<Entry<String, T>> iterator() {
+          Iterator<String> keyIt = keys.iterator();
+          return new Iterator<Entry<String, T>>() {
+            @Override
+            public boolean hasNext() {
+              return keyIt.hasNext();
+            }
+
+            @Override
+            public Entry<String, T> next() {
+              String key = keyIt.next();
+              return new Entry<String, T>() {
+                @Override
+                public String getKey() {
+                  return key;
+                }
+
+                @Override
+                public T getValue() {
+                  return LazyColumnMap.this.get(key);
+                }
+
+                @Override
+                public T setValue(T value) {
+                  throw new UnsupportedOperationException();
+                }
+              };
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.size();
+        }
+      };
+    }
+  }
+
+  /**
+   * Creates the {@link StandardColumnShard}s of the columns of a {@link FlattenedTableShard}.
+   */
+  public static interface ColumnMaterializer {
+    /**
+     * Create the column with the given name. This method must be thread-safe.
+     * 
+     * @param colName
+     *          Name of the column.
+     * @param firstRowId
+     *          The row ID the first row of the resulting column should have.
+     * @return The column, which needs to implement {@link AdjustableStandardColumnShard}.
+     */
+    public StandardColumnShard materialize(String colName, long firstRowId);
+
+    /**
+     * @return Approximate number of bytes that are needed by this materializer, excluding any data that is shared
+     *         with other objects.
+     */
+    public long calculateApproximateSizeInBytes();
+  }
+}
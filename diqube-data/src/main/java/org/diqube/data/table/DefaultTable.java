@@ -28,6 +28,8 @@ import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.diqube.util.MemorySizeUtil;
+
 /**
  * Default implementation for a {@link Table} which contains raw data that was loaded from input files.
  *
@@ -107,9 +109,11 @@ public class DefaultTable implements AdjustableTable {
     for (TableShard shard : shards)
       shardsSize += shard.calculateApproximateSizeInBytes();
 
-    return 16 + //
-        name.length() + //
+    return MemorySizeUtil.objectSize(0, 2) + // this
+        MemorySizeUtil.stringSize(name) + //
+        MemorySizeUtil.arrayListSize(shards.size()) + //
         shardsSize;
   }
 
+
 }
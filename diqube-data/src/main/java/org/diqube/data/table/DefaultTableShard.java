@@ -20,28 +20,44 @@
  */
 package org.diqube.data.table;
 
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SColumnShard;
+import org.diqube.data.serialize.thrift.v1.SRepeatedColumnShard;
 import org.diqube.data.serialize.thrift.v1.STableShard;
 import org.diqube.data.types.dbl.DoubleStandardColumnShard;
 import org.diqube.data.types.lng.LongStandardColumnShard;
 import org.diqube.data.types.str.StringStandardColumnShard;
+import org.diqube.util.MemorySizeUtil;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 
 /**
  * Default implementation of {@link TableShard} for regular tables.
+ * 
+ * <p>
+ * Besides the usual {@link StandardColumnShard}s, this table shard can hold {@link RepeatedColumnShard}s. As soon as
+ * a {@link RepeatedColumnMaterializer} is set, the columns of the single array indices of these are available through
+ * the getters of the standard columns - they are materialized on access of the column object, iterating the keys of
+ * the maps does not materialize anything. Materialized columns are only softly referenced, so they are re-materialized
+ * if they have been garbage collected. Code that knows about {@link RepeatedColumnShard}s should read those directly
+ * instead.
  *
  * @author Bastian Gloeckle
  */
@@ -51,6 +67,16 @@ public class DefaultTableShard implements TableShard {
   private Map<String, DoubleStandardColumnShard> doubleColumns = new HashMap<>();
   private Map<String, LongStandardColumnShard> longColumns = new HashMap<>();
 
+  private Map<String, RepeatedColumnShard> repeatedColumns = new HashMap<>();
+
+  /** Columns of single indices of the repeated columns, by column name. Empty until a materializer is set. */
+  private Map<String, IndexColumn> indexColumns = new HashMap<>();
+  private RepeatedColumnMaterializer repeatedColumnMaterializer;
+
+  private Map<String, StringStandardColumnShard> stringColumnsView = stringColumns;
+  private Map<String, DoubleStandardColumnShard> doubleColumnsView = doubleColumns;
+  private Map<String, LongStandardColumnShard> longColumnsView = longColumns;
+
   private volatile Map<String, StandardColumnShard> allColumnsCache;
   private Object allColumnsCacheSync = new Object();
 
@@ -77,19 +103,78 @@ public class DefaultTableShard implements TableShard {
     }
   }
 
+  protected DefaultTableShard(String tableName, Collection<StandardColumnShard> columns,
+      Collection<RepeatedColumnShard> repeatedColumns) {
+    this(tableName, columns);
+    for (RepeatedColumnShard col : repeatedColumns)
+      this.repeatedColumns.put(col.getName(), col);
+  }
+
   @Override
   public Map<String, StringStandardColumnShard> getStringColumns() {
-    return stringColumns;
+    return stringColumnsView;
   }
 
   @Override
   public Map<String, DoubleStandardColumnShard> getDoubleColumns() {
-    return doubleColumns;
+    return doubleColumnsView;
   }
 
   @Override
   public Map<String, LongStandardColumnShard> getLongColumns() {
-    return longColumns;
+    return longColumnsView;
+  }
+
+  @Override
+  public Map<String, RepeatedColumnShard> getRepeatedColumns() {
+    return repeatedColumns;
+  }
+
+  /**
+   * Sets the materializer that creates the columns of the single array indices of the {@link RepeatedColumnShard}s of
+   * this table shard. Before this has been set, those columns are not available.
+   * 
+   * <p>
+   * Only allowed to be called before the TableShard is registered in the TableRegistry and after the row IDs of all
+   * columns have been adjusted!
+   */
+  public void setRepeatedColumnMaterializer(RepeatedColumnMaterializer repeatedColumnMaterializer) {
+    this.repeatedColumnMaterializer = repeatedColumnMaterializer;
+    Map<String, IndexColumn> newIndexColumns = new HashMap<>();
+    for (RepeatedColumnShard repeatedCol : repeatedColumns.values()) {
+      List<String> colNames = repeatedColumnMaterializer.indexColumnNames(repeatedCol);
+      for (int i = 0; i < colNames.size(); i++)
+        newIndexColumns.put(colNames.get(i), new IndexColumn(repeatedCol, i, colNames.get(i)));
+    }
+    indexColumns = newIndexColumns;
+
+    stringColumnsView = createColumnsView(stringColumns, ColumnType.STRING);
+    doubleColumnsView = createColumnsView(doubleColumns, ColumnType.DOUBLE);
+    longColumnsView = createColumnsView(longColumns, ColumnType.LONG);
+    allColumnsCache = null;
+  }
+
+  /**
+   * @return Unmodifiable map containing the given stored columns and all index columns of the given type (
+   *         <code>null</code> for all types). Index columns are materialized when their value is accessed.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends StandardColumnShard> Map<String, T> createColumnsView(Map<String, T> storedColumns,
+      ColumnType type) {
+    if (indexColumns.isEmpty())
+      return storedColumns;
+
+    Set<String> keys = new HashSet<>(storedColumns.keySet());
+    for (IndexColumn indexCol : indexColumns.values())
+      if (type == null || indexCol.repeatedCol.getColumnType().equals(type))
+        keys.add(indexCol.name);
+
+    return Maps.asMap(Collections.unmodifiableSet(keys), colName -> {
+      T res = storedColumns.get(colName);
+      if (res == null)
+        res = (T) indexColumns.get(colName).get();
+      return res;
+    });
   }
 
   @Override
@@ -101,7 +186,7 @@ public class DefaultTableShard implements TableShard {
           res.putAll(stringColumns);
           res.putAll(longColumns);
           res.putAll(doubleColumns);
-          allColumnsCache = res;
+          allColumnsCache = createColumnsView(res, null);
         }
       }
     }
@@ -117,6 +202,8 @@ public class DefaultTableShard implements TableShard {
       return doubleColumns.values().iterator().next().getNumberOfRowsInColumnShard();
     if (longColumns.size() > 0)
       return longColumns.values().iterator().next().getNumberOfRowsInColumnShard();
+    if (repeatedColumns.size() > 0)
+      return repeatedColumns.values().iterator().next().getNumberOfRows();
     return 0;
   }
 
@@ -128,6 +215,8 @@ public class DefaultTableShard implements TableShard {
       return doubleColumns.values().iterator().next().getPages().firstKey();
     if (longColumns.size() > 0)
       return longColumns.values().iterator().next().getPages().firstKey();
+    if (repeatedColumns.size() > 0)
+      return repeatedColumns.values().iterator().next().getFirstRowId();
     return -1;
   }
 
@@ -139,6 +228,12 @@ public class DefaultTableShard implements TableShard {
         doubleColumns.values()))
       serializedCols.add(mgr.serializeChild(SColumnShard.class, shard));
     target.setColumnShards(serializedCols);
+    if (!repeatedColumns.isEmpty()) {
+      List<SRepeatedColumnShard> serializedRepeatedCols = new ArrayList<>();
+      for (RepeatedColumnShard repeatedCol : repeatedColumns.values())
+        serializedRepeatedCols.add(mgr.serializeChild(SRepeatedColumnShard.class, repeatedCol));
+      target.setRepeatedColumnShards(serializedRepeatedCols);
+    }
   }
 
   @Override
@@ -155,6 +250,12 @@ public class DefaultTableShard implements TableShard {
       else
         throw new DeserializationException("Cannot deserialize column " + de.getName());
     }
+    if (source.isSetRepeatedColumnShards()) {
+      for (SRepeatedColumnShard serRepeatedCol : source.getRepeatedColumnShards()) {
+        RepeatedColumnShard de = mgr.deserializeChild(RepeatedColumnShard.class, serRepeatedCol);
+        repeatedColumns.put(de.getName(), de);
+      }
+    }
   }
 
   /** Only allowed to be called before the TableShard is registered in the TableRegistry! */
@@ -169,24 +270,92 @@ public class DefaultTableShard implements TableShard {
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    long sumColNameLen = 0L;
-    long colSizes = 0L;
-    for (Entry<String, StringStandardColumnShard> shardEntry : stringColumns.entrySet()) {
-      sumColNameLen += shardEntry.getKey().length();
-      colSizes += shardEntry.getValue().calculateApproximateSizeInBytes();
+    // column names are not counted separately: the keys of the maps are the names of the columns and these are
+    // accounted for by the columns themselves.
+    long res = MemorySizeUtil.objectSize(0, 12) + // this
+        MemorySizeUtil.objectSize(0, 0) + // allColumnsCacheSync
+        MemorySizeUtil.stringSize(tableName) + //
+        MemorySizeUtil.hashMapSize(stringColumns.size()) + //
+        MemorySizeUtil.hashMapSize(doubleColumns.size()) + //
+        MemorySizeUtil.hashMapSize(longColumns.size()) + //
+        MemorySizeUtil.hashMapSize(repeatedColumns.size()) + //
+        MemorySizeUtil.hashMapSize(indexColumns.size());
+    Map<String, StandardColumnShard> allColumns = allColumnsCache;
+    if (allColumns != null)
+      res += MemorySizeUtil.hashMapSize(allColumns.size());
+
+    for (StringStandardColumnShard shard : stringColumns.values())
+      res += shard.calculateApproximateSizeInBytes();
+    for (DoubleStandardColumnShard shard : doubleColumns.values())
+      res += shard.calculateApproximateSizeInBytes();
+    for (LongStandardColumnShard shard : longColumns.values())
+      res += shard.calculateApproximateSizeInBytes();
+    for (RepeatedColumnShard shard : repeatedColumns.values())
+      res += shard.calculateApproximateSizeInBytes();
+    for (IndexColumn indexCol : indexColumns.values()) {
+      // repeatedCol, name, shard, outer this; int index; SoftReference: referent, queue, next, discovered; timestamp
+      res += MemorySizeUtil.objectSize(4, 4) + MemorySizeUtil.objectSize(8, 4)
+          + MemorySizeUtil.stringSize(indexCol.name);
+      StandardColumnShard shard = indexCol.shard.get();
+      if (shard != null)
+        res += shard.calculateApproximateSizeInBytes();
     }
-    for (Entry<String, DoubleStandardColumnShard> shardEntry : doubleColumns.entrySet()) {
-      sumColNameLen += shardEntry.getKey().length();
-      colSizes += shardEntry.getValue().calculateApproximateSizeInBytes();
+    return res;
+  }
+
+  /**
+   * The column of a single array index of a {@link RepeatedColumnShard}, which might not have been materialized yet or
+   * whose materialized column might have been garbage collected already.
+   */
+  private class IndexColumn {
+    private RepeatedColumnShard repeatedCol;
+    private int index;
+    private String name;
+    private volatile SoftReference<StandardColumnShard> shard = new SoftReference<>(null);
+
+    IndexColumn(RepeatedColumnShard repeatedCol, int index, String name) {
+      this.repeatedCol = repeatedCol;
+      this.index = index;
+      this.name = name;
     }
-    for (Entry<String, LongStandardColumnShard> shardEntry : longColumns.entrySet()) {
-      sumColNameLen += shardEntry.getKey().length();
-      colSizes += shardEntry.getValue().calculateApproximateSizeInBytes();
+
+    StandardColumnShard get() {
+      StandardColumnShard res = shard.get();
+      if (res == null) {
+        synchronized (this) {
+          res = shard.get();
+          if (res == null) {
+            res = repeatedColumnMaterializer.materialize(repeatedCol, index, name);
+            shard = new SoftReference<>(res);
+          }
+        }
+      }
+      return res;
     }
+  }
+
+  /**
+   * Creates the {@link StandardColumnShard}s of single array indices of {@link RepeatedColumnShard}s.
+   */
+  public static interface RepeatedColumnMaterializer {
+    /**
+     * @return The names of the columns of the single array indices of the given repeated column, the name of the
+     *         column of index i at list index i. Must not materialize anything.
+     */
+    public List<String> indexColumnNames(RepeatedColumnShard repeatedCol);
 
-    return 16 + //
-        tableName.length() + //
-        colSizes + //
-        sumColNameLen;
+    /**
+     * Create the column of the given array index. This method must be thread-safe.
+     * 
+     * @param repeatedCol
+     *          The repeated column.
+     * @param index
+     *          The array index.
+     * @param colName
+     *          Name of the resulting column.
+     * @return The column, containing one value for each row of the repeated column (the default value for rows that
+     *         have less entries), starting at {@link RepeatedColumnShard#getFirstRowId()}.
+     */
+    public StandardColumnShard materialize(RepeatedColumnShard repeatedCol, int index, String colName);
   }
 }
@@ -23,6 +23,7 @@ package org.diqube.data.table;
 import java.util.Collection;
 
 import org.diqube.data.column.ColumnShard;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A {@link Table} is the basic container of any data.
@@ -53,8 +54,9 @@ public interface Table {
   public Collection<TableShard> getShards();
 
   /**
-   * @return An approximate number of bytes taken up by this {@link ColumnShard}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link Table} on the heap, i.e. the sum of the sizes of all objects
+   *         that are referenced by this object exclusively. The sizes are calculated based on the object layout of the
+   *         running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 }
@@ -23,6 +23,7 @@ package org.diqube.data.table;
 import java.util.Collection;
 
 import org.diqube.context.AutoInstatiate;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 
 /**
@@ -36,6 +37,11 @@ public class TableFactory {
     return new DefaultTableShard(tableName, columns);
   }
 
+  public DefaultTableShard createDefaultTableShard(String tableName, Collection<StandardColumnShard> columns,
+      Collection<RepeatedColumnShard> repeatedColumns) {
+    return new DefaultTableShard(tableName, columns, repeatedColumns);
+  }
+
   public DefaultTable createDefaultTable(String name, Collection<TableShard> tableShards) {
     return new DefaultTable(name, tableShards);
   }
@@ -23,12 +23,14 @@ package org.diqube.data.table;
 import java.util.Map;
 
 import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.serialize.DataSerialization;
 import org.diqube.data.serialize.thrift.v1.STableShard;
 import org.diqube.data.types.dbl.DoubleStandardColumnShard;
 import org.diqube.data.types.lng.LongStandardColumnShard;
 import org.diqube.data.types.str.StringStandardColumnShard;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A {@link TableShard} contains all data of a specific consecutive subset of rows of a {@link Table}.
@@ -60,6 +62,12 @@ public interface TableShard extends DataSerialization<STableShard> {
    */
   public Map<String, StandardColumnShard> getColumns();
 
+  /**
+   * @return Map from column name pattern (e.g. "a[*].b") to a repeated column that is stored natively. The columns of
+   *         the single array indices of these columns (e.g. "a[0].b") are available through the other getters, too.
+   */
+  public Map<String, RepeatedColumnShard> getRepeatedColumns();
+
   /**
    * @return The number of rows contained in this shard.
    */
@@ -76,8 +84,9 @@ public interface TableShard extends DataSerialization<STableShard> {
   public String getTableName();
 
   /**
-   * @return An approximate number of bytes taken up by this {@link ColumnShard}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link TableShard} on the heap, i.e. the sum of the sizes of all
+   *         objects that are referenced by this object exclusively. The sizes are calculated based on the object layout
+   *         of the running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 }
@@ -31,6 +31,7 @@ import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SDoubleDictionaryConstant;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 import com.google.common.collect.Iterators;
@@ -230,8 +231,8 @@ public class ConstantDoubleDictionary implements DoubleDictionary<SDoubleDiction
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
-        8 + 16; // 8 bytes double + 16 byte object header
+    return MemorySizeUtil.objectSize(8, 1) + // this
+        MemorySizeUtil.BOXED_DOUBLE_BYTES;
   }
 
   @SuppressWarnings("unchecked")
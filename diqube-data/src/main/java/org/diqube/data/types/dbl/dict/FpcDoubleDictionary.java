@@ -21,6 +21,7 @@
 package org.diqube.data.types.dbl.dict;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +32,8 @@ import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
@@ -44,6 +47,7 @@ import org.diqube.data.serialize.thrift.v1.SDoubleDictionaryFpc;
 import org.diqube.data.serialize.thrift.v1.SDoubleDictionaryFpcPage;
 import org.diqube.util.DiqubeCollectors;
 import org.diqube.util.DoubleUtil;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 import com.google.common.collect.Iterators;
@@ -59,17 +63,45 @@ import com.google.common.collect.PeekingIterator;
  * doubles that should be represented in this dictionary into single pages, where each page holds the intermediate
  * parameters of the compression algorithms, so that we are capable of decompressing a single page linearily and do not
  * have to start decompressing at the actual index 0L.
+ * 
+ * <p>
+ * As decompressing a page is expensive, this dictionary holds a small cache of decompressed pages which is used when
+ * looking up values by ID or IDs by value (see {@link #DECODED_PAGE_CACHE_SLOTS}). In addition to that, it holds an
+ * index of the first value of each page, which allows to binary search the page containing a specific value without
+ * decompressing anything.
+ * 
+ * <p>
+ * Hits/misses of that cache can be reported to a {@link DecodedPageCacheListener} by accessing the dictionary through
+ * a view created by {@link #withDecodedPageCacheListener(DecodedPageCacheListener)}.
  *
  * @author Bastian Gloeckle
  */
 @DataSerializable(thriftClass = SDoubleDictionaryFpc.class)
 public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFpc> {
+  /**
+   * Number of decompressed pages that are cached by each dictionary. The cache is direct-mapped: Page i is cached in
+   * slot i % DECODED_PAGE_CACHE_SLOTS.
+   */
+  public static final int DECODED_PAGE_CACHE_SLOTS = 4;
 
   private NavigableMap<Long, FpcPage> pages;
   private double lowestValue;
   private double highestValue;
   private long highestId;
 
+  /** All non-empty pages, sorted by their first ID. */
+  private FpcPage[] pageIndex;
+  /** First ID of each page in {@link #pageIndex}. */
+  private long[] pageIndexFirstIds;
+  /** First value of each page in {@link #pageIndex}. */
+  private double[] pageIndexFirstValues;
+
+  private AtomicReferenceArray<DecodedPage> decodedPageCache;
+  private AtomicLong decodedPageCacheHits = new AtomicLong(0L);
+  private AtomicLong decodedPageCacheMisses = new AtomicLong(0L);
+  /** Informed about hits/misses of {@link #decodedPageCache}, <code>null</code> if not a listening view. */
+  private DecodedPageCacheListener decodedPageCacheListener;
+
   /** for deserialization */
   public FpcDoubleDictionary() {
 
@@ -80,6 +112,70 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
     this.lowestValue = lowestValue;
     this.highestValue = highestValue;
     this.highestId = pages.lastEntry().getKey() + pages.lastEntry().getValue().getSize() - 1;
+    initializeIndex();
+  }
+
+  /**
+   * Create a view on the given dictionary that shares all data and the decoded page cache with it, but informs the
+   * given listener.
+   */
+  private FpcDoubleDictionary(FpcDoubleDictionary delegate, DecodedPageCacheListener decodedPageCacheListener) {
+    this.pages = delegate.pages;
+    this.lowestValue = delegate.lowestValue;
+    this.highestValue = delegate.highestValue;
+    this.highestId = delegate.highestId;
+    this.pageIndex = delegate.pageIndex;
+    this.pageIndexFirstIds = delegate.pageIndexFirstIds;
+    this.pageIndexFirstValues = delegate.pageIndexFirstValues;
+    this.decodedPageCache = delegate.decodedPageCache;
+    this.decodedPageCacheHits = delegate.decodedPageCacheHits;
+    this.decodedPageCacheMisses = delegate.decodedPageCacheMisses;
+    this.decodedPageCacheListener = decodedPageCacheListener;
+  }
+
+  private void initializeIndex() {
+    pageIndex = pages.values().stream().filter(page -> page.getSize() > 0).toArray(l -> new FpcPage[l]);
+    pageIndexFirstIds = new long[pageIndex.length];
+    pageIndexFirstValues = new double[pageIndex.length];
+    for (int i = 0; i < pageIndex.length; i++) {
+      pageIndexFirstIds[i] = pageIndex[i].getFirstId();
+      pageIndexFirstValues[i] = pageIndex[i].get(0);
+    }
+    decodedPageCache = new AtomicReferenceArray<>(DECODED_PAGE_CACHE_SLOTS);
+  }
+
+  /**
+   * @return Index in {@link #pageIndex} of the page containing the given ID.
+   */
+  private int pageIndexOfId(long id) {
+    int res = Arrays.binarySearch(pageIndexFirstIds, id);
+    if (res < 0)
+      // not the first ID of a page, take the page before the insertion point.
+      res = -(res + 1) - 1;
+    return res;
+  }
+
+  /**
+   * @return All decompressed values of the page at the given index in {@link #pageIndex}. Will be served from the
+   *         decoded page cache if possible.
+   */
+  private double[] decodedPage(int pageIdx) {
+    FpcPage page = pageIndex[pageIdx];
+    int slot = pageIdx % DECODED_PAGE_CACHE_SLOTS;
+    DecodedPage cached = decodedPageCache.get(slot);
+    if (cached != null && cached.page == page) {
+      decodedPageCacheHits.incrementAndGet();
+      if (decodedPageCacheListener != null)
+        decodedPageCacheListener.decodedPageCacheHit();
+      return cached.values;
+    }
+
+    decodedPageCacheMisses.incrementAndGet();
+    if (decodedPageCacheListener != null)
+      decodedPageCacheListener.decodedPageCacheMiss();
+    double[] values = page.get(0, page.getSize() - 1);
+    decodedPageCache.set(slot, new DecodedPage(page, values));
+    return values;
   }
 
   @Override
@@ -96,29 +192,29 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
   public Double decompressValue(long id) throws IllegalArgumentException {
     if (id < 0 || id > highestId)
       throw new IllegalArgumentException("Id out of range. Requested " + id + " but available are " + highestId);
-    Entry<Long, FpcPage> e = pages.floorEntry(id);
+    int pageIdx = pageIndexOfId(id);
 
-    return e.getValue().get((int) (id - e.getKey()));
+    return decodedPage(pageIdx)[(int) (id - pageIndexFirstIds[pageIdx])];
   }
 
   @Override
   public Double[] decompressValues(Long[] id) throws IllegalArgumentException {
-    // group Ids by FpcPage to query each page only once in order to reduce number of times we decompress the beginning
-    // of pages.
-    Map<Entry<Long, FpcPage>, NavigableSet<Long>> grouped = Stream.of(id).collect(Collectors.groupingBy(i -> {
+    // group Ids by FpcPage to query each page only once in order to reduce number of times we decompress pages.
+    Map<Integer, NavigableSet<Long>> grouped = Stream.of(id).collect(Collectors.groupingBy(i -> {
       if (i < 0 || i > highestId)
         throw new IllegalArgumentException("Invalid ID requested: " + i + " max available: " + highestId);
-      return pages.floorEntry(i);
+      return pageIndexOfId(i);
     } , DiqubeCollectors.toNavigableSet()));
 
     Map<Long, Double> resMap = new HashMap<>();
 
-    grouped.forEach(new BiConsumer<Entry<Long, FpcPage>, NavigableSet<Long>>() {
+    grouped.forEach(new BiConsumer<Integer, NavigableSet<Long>>() {
       @Override
-      public void accept(Entry<Long, FpcPage> t, NavigableSet<Long> u) {
-        double[] pageRes = t.getValue().get((int) (u.first() - t.getKey()), (int) (u.last() - t.getKey()));
+      public void accept(Integer pageIdx, NavigableSet<Long> u) {
+        double[] pageValues = decodedPage(pageIdx);
+        long firstId = pageIndexFirstIds[pageIdx];
         for (long requestedId : u)
-          resMap.put(requestedId, pageRes[(int) (requestedId - u.first())]);
+          resMap.put(requestedId, pageValues[(int) (requestedId - firstId)]);
       }
     });
 
@@ -130,11 +226,11 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
   }
 
   /**
-   * Uses a somewhat binary-search to search the ID of the given value.
+   * Binary-searches the ID of the given value.
    * 
    * <p>
-   * Executes a binary search to find the {@link FpcPage} that possibly contains the value and then uses
-   * {@link FpcPage#findIndex(double)} to search that page linearily.
+   * Executes a binary search on the first values of all pages to find the {@link FpcPage} that possibly contains the
+   * value and then binary-searches the decompressed values of that page.
    * 
    * @param value
    *          The searched value.
@@ -143,59 +239,39 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
    *         whereas "id" is the insertion point of the value (= the ID of the next bigger value).
    */
   private long binarySearchIdOfValue(double value) {
-    // Binary-search the FpcPage containing the value
-    List<FpcPage> pagesList = new ArrayList<>(pages.values());
-
-    FpcPage resPage = null;
     int lo = 0;
-    if (DoubleUtil.equals(pagesList.get(lo).get(0), value))
-      return 0L;
-    if (pagesList.get(lo).get(0) > value)
-      return -1L;
-    int hi = pagesList.size() - 1;
-    if (pagesList.get(pagesList.size() - 1).get(0) < value
-        || DoubleUtil.equals(pagesList.get(pagesList.size() - 1).get(0), value))
-      resPage = pages.lastEntry().getValue();
-    while (resPage == null && hi - lo > 5) {
-      int mid = lo + ((hi - lo) / 2);
-      double midFirstValue = pagesList.get(mid).get(0);
-      if (DoubleUtil.equals(midFirstValue, value))
-        return pagesList.get(mid).getFirstId();
-      double nextFirstValue = pagesList.get(mid + 1).get(0); // there is always one, because mid < this.highestId.
-      if (DoubleUtil.equals(nextFirstValue, value))
-        return pagesList.get(mid + 1).getFirstId();
-
-      if (value > midFirstValue && value < nextFirstValue)
-        resPage = pagesList.get(mid);
-      else if (midFirstValue < value)
-        lo = mid;
-      else
-        hi = mid;
+    int hi = pageIndexFirstValues.length - 1;
+    int pageIdx = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (DoubleUtil.equals(pageIndexFirstValues[mid], value))
+        return pageIndexFirstIds[mid];
+      if (Double.compare(pageIndexFirstValues[mid], value) < 0) {
+        pageIdx = mid;
+        lo = mid + 1;
+      } else
+        hi = mid - 1;
     }
 
-    if (resPage == null) {
-      for (int i = lo; i < hi; i++) {
-        double firstValue = pagesList.get(i).get(0);
-        if (DoubleUtil.equals(firstValue, value))
-          return pagesList.get(i).getFirstId();
-        double nextFirstValue = pagesList.get(i + 1).get(0); // there is always one, because i < hi.
-        if (DoubleUtil.equals(nextFirstValue, value))
-          return pagesList.get(i + 1).getFirstId();
-
-        if (value > firstValue && value < nextFirstValue) {
-          resPage = pagesList.get(i);
-          break;
-        }
-      }
-      if (resPage == null)
-        resPage = pagesList.get(hi);
-    }
+    if (pageIdx == -1)
+      // value is smaller than our first value.
+      return -1L;
 
-    int foundPageIdx = resPage.findIndex(value);
-    if (foundPageIdx < 0)
-      return foundPageIdx - resPage.getFirstId();
+    double[] values = decodedPage(pageIdx);
+    long firstId = pageIndexFirstIds[pageIdx];
+    lo = 0;
+    hi = values.length - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (DoubleUtil.equals(values[mid], value))
+        return firstId + mid;
+      if (Double.compare(values[mid], value) < 0)
+        lo = mid + 1;
+      else
+        hi = mid - 1;
+    }
 
-    return foundPageIdx + resPage.getFirstId();
+    return -(firstId + lo + 1);
   }
 
   @Override
@@ -582,19 +658,35 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
       FpcPage deserializedPage = mgr.deserializeChild(FpcPage.class, serializedPage);
       pages.put(deserializedPage.getFirstId(), deserializedPage);
     }
+    initializeIndex();
   }
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    long pagesSize = 0L;
-    pagesSize += pages.size() * (8 + 16); // "Long" keys in pages
+    long pagesSize = MemorySizeUtil.treeMapSize(pages.size()) + //
+        pages.size() * MemorySizeUtil.BOXED_LONG_BYTES; // "Long" keys in pages
     for (FpcPage page : pages.values())
       pagesSize += page.calculateApproximateSizeInBytes();
 
-    return 16 + // object header of this
+    long indexSize = MemorySizeUtil.referenceArraySize(pageIndex.length) + //
+        MemorySizeUtil.longArraySize(pageIndexFirstIds.length) + //
+        MemorySizeUtil.doubleArraySize(pageIndexFirstValues.length);
+
+    // Account for a completely filled decoded page cache, as the result of this method is usually remembered while the
+    // cache is filled over time.
+    long maxPageSize = 0;
+    for (FpcPage page : pageIndex)
+      maxPageSize = Math.max(maxPageSize, page.getSize());
+    long decodedPageCacheSize = MemorySizeUtil.objectSize(0, 1) + //
+        MemorySizeUtil.referenceArraySize(decodedPageCache.length()) + //
+        2 * MemorySizeUtil.objectSize(8, 0) + // AtomicLong hits & misses
+        Math.min(decodedPageCache.length(), pageIndex.length) * //
+            (MemorySizeUtil.objectSize(0, 2) + MemorySizeUtil.doubleArraySize(maxPageSize));
+
+    return MemorySizeUtil.objectSize(3 * 8, 8) + // this
         pagesSize + //
-        24 // other small fields
-        ;
+        indexSize + //
+        decodedPageCacheSize;
   }
 
   @Override
@@ -604,6 +696,55 @@ public class FpcDoubleDictionary implements DoubleDictionary<SDoubleDictionaryFp
     return Iterators.concat(pageIterators.iterator());
   }
 
+  /**
+   * @return Number of times a decompressed page was served from the cache of this dictionary.
+   */
+  public long getDecodedPageCacheHits() {
+    return decodedPageCacheHits.get();
+  }
+
+  /**
+   * @return Number of times a page had to be decompressed because it was not available in the cache of this
+   *         dictionary.
+   */
+  public long getDecodedPageCacheMisses() {
+    return decodedPageCacheMisses.get();
+  }
+
+  /**
+   * Create a view on this dictionary that informs the given listener about hits/misses of the decoded page cache. The
+   * view shares all data and the cache with this dictionary, it is therefore cheap to create. The listener is called
+   * on the thread that accessed the dictionary.
+   * 
+   * @param listener
+   *          The listener or <code>null</code> if the view should not inform any listener.
+   */
+  public FpcDoubleDictionary withDecodedPageCacheListener(DecodedPageCacheListener listener) {
+    return new FpcDoubleDictionary(this, listener);
+  }
+
+  /**
+   * Listener for accesses to the decoded page caches of {@link FpcDoubleDictionary}.
+   */
+  public static interface DecodedPageCacheListener {
+    public void decodedPageCacheHit();
+
+    public void decodedPageCacheMiss();
+  }
+
+  /**
+   * Entry of the decoded page cache.
+   */
+  private static class DecodedPage {
+    private final FpcPage page;
+    private final double[] values;
+
+    DecodedPage(FpcPage page, double[] values) {
+      this.page = page;
+      this.values = values;
+    }
+  }
+
   /**
    * Callback interface for {@link FpcDoubleDictionary#iterateOverValues(FpcDoubleDictionary, IterationCallback)}, see
    * that java doc.
@@ -24,17 +24,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DataSerialization;
 import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SDoubleDictionaryFpcPage;
 import org.diqube.data.serialize.thrift.v1.SDoubleDictionaryFpcState;
 import org.diqube.util.DoubleUtil;
 import org.diqube.util.Holder;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 /**
@@ -387,12 +387,11 @@ public class FpcPage implements DataSerialization<SDoubleDictionaryFpcPage>, Ite
   public long calculateApproximateSizeInBytes() {
     long stateLength = 0L;
     if (startState != null)
-      stateLength += 16 + // object header of State.
-          startState.fcmHashTable.length * 4 + //
-          startState.dfcmHashTable.length * 4 + //
-          10;
-    return 16 + // object header of this
-        stateLength + data.length;
+      stateLength += MemorySizeUtil.objectSize(2 * 1 + 8, 2) + // State object
+          MemorySizeUtil.longArraySize(startState.fcmHashTable.length) + //
+          MemorySizeUtil.longArraySize(startState.dfcmHashTable.length);
+    return MemorySizeUtil.objectSize(4 + 8, 2) + // this
+        stateLength + MemorySizeUtil.byteArraySize(data.length);
   }
 
   /**
@@ -425,8 +424,8 @@ public class FpcPage implements DataSerialization<SDoubleDictionaryFpcPage>, Ite
       target.setDfcmHash(dfcmHash);
       target.setFcmHash(fcmHash);
       target.setLastValue(lastValue);
-      target.setFcmHashTable(LongStream.of(fcmHashTable).boxed().collect(Collectors.toList()));
-      target.setDfcmHashTable(LongStream.of(dfcmHashTable).boxed().collect(Collectors.toList()));
+      target.setFcmHashTableBinary(LongArrayBinaryEncoding.encode(fcmHashTable));
+      target.setDfcmHashTableBinary(LongArrayBinaryEncoding.encode(dfcmHashTable));
     }
 
     @Override
@@ -435,8 +434,14 @@ public class FpcPage implements DataSerialization<SDoubleDictionaryFpcPage>, Ite
       fcmHash = source.getFcmHash();
       dfcmHash = source.getDfcmHash();
       lastValue = source.getLastValue();
-      fcmHashTable = source.getFcmHashTable().stream().mapToLong(Long::longValue).toArray();
-      dfcmHashTable = source.getDfcmHashTable().stream().mapToLong(Long::longValue).toArray();
+      if (source.isSetFcmHashTableBinary()) {
+        fcmHashTable = LongArrayBinaryEncoding.decode(source.getFcmHashTableBinary());
+        dfcmHashTable = LongArrayBinaryEncoding.decode(source.getDfcmHashTableBinary());
+      } else {
+        // data version 1.
+        fcmHashTable = source.getFcmHashTable().stream().mapToLong(Long::longValue).toArray();
+        dfcmHashTable = source.getDfcmHashTable().stream().mapToLong(Long::longValue).toArray();
+      }
     }
   }
 
@@ -26,12 +26,13 @@ import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.LongStream;
 
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArrayBitEfficient;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A {@link CompressedLongArray} that stores the long values in a bit-efficient way.
@@ -486,7 +487,7 @@ public class BitEfficientLongArray extends AbstractExplorableCompressedLongArray
     target.setMaxValue(maxValue);
     if (longMinValueLocations != null)
       target.setLongMinValueLocations(IntStream.of(longMinValueLocations).boxed().collect(Collectors.toList()));
-    target.setCompressedValues(LongStream.of(compressedValues).boxed().collect(Collectors.toList()));
+    target.setCompressedValuesBinary(LongArrayBinaryEncoding.encode(compressedValues));
   }
 
   @Override
@@ -497,7 +498,11 @@ public class BitEfficientLongArray extends AbstractExplorableCompressedLongArray
     isSorted = source.isIsSorted();
     isSameValue = source.isIsSameValue();
     containsSignBit = source.isContainsSignBit();
-    compressedValues = source.getCompressedValues().stream().mapToLong(Long::longValue).toArray();
+    if (source.isSetCompressedValuesBinary())
+      compressedValues = LongArrayBinaryEncoding.decode(source.getCompressedValuesBinary());
+    else
+      // data version 1.
+      compressedValues = source.getCompressedValues().stream().mapToLong(Long::longValue).toArray();
     if (source.isSetLongMinValueLocations())
       longMinValueLocations = source.getLongMinValueLocations().stream().mapToInt(Integer::intValue).toArray();
     numberOfLongMinValues = (longMinValueLocations != null) ? longMinValueLocations.length : 0;
@@ -534,10 +539,9 @@ public class BitEfficientLongArray extends AbstractExplorableCompressedLongArray
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this
-        39 + // small fields (= non array fields)
-        ((compressedValues != null) ? compressedValues.length * 8 : 0) + //
-        ((longMinValueLocations != null) ? longMinValueLocations.length * 4 : 0);
+    return MemorySizeUtil.objectSize(39, 4) + // this, including fields of super class
+        ((compressedValues != null) ? MemorySizeUtil.longArraySize(compressedValues.length) : 0) + //
+        ((longMinValueLocations != null) ? MemorySizeUtil.intArraySize(longMinValueLocations.length) : 0);
   }
 
   /**
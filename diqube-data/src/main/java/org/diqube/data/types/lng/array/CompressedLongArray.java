@@ -26,6 +26,7 @@ import org.apache.thrift.TBase;
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DataSerialization;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArray;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A compressed representation of a long[].
@@ -80,8 +81,9 @@ public interface CompressedLongArray<T extends TBase<?, ?>> extends DataSerializ
   public List<Long> getMultiple(List<Integer> sortedIndices) throws ArrayIndexOutOfBoundsException;
 
   /**
-   * @return An approximate number of bytes taken up by this {@link CompressedLongArray}. Note that this is only an
-   *         approximation!
+   * @return The number of bytes retained by this {@link CompressedLongArray} on the heap, i.e. the sum of the sizes of
+   *         all objects that are referenced by this object exclusively. The sizes are calculated based on the object
+   *         layout of the running JVM (see {@link MemorySizeUtil}), therefore this is still an estimate.
    */
   public long calculateApproximateSizeInBytes();
 }
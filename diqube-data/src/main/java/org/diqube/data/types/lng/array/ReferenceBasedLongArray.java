@@ -23,14 +23,14 @@ package org.diqube.data.types.lng.array;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArray;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArrayReference;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * Compresses a long array by finding the avg value and then only storing the deltas to this avg value in another long
@@ -233,7 +233,7 @@ public class ReferenceBasedLongArray
     target.setMax(max);
 
     if (compressedValues != null) {
-      target.setCompressedValues(LongStream.of(compressedValues).boxed().collect(Collectors.toList()));
+      target.setCompressedValuesBinary(LongArrayBinaryEncoding.encode(compressedValues));
     } else {
       target.setDelegateCompressedValues(
           mgr.serializeChild(SLongCompressedArray.class, delegateCompressedValueLongArray));
@@ -250,7 +250,11 @@ public class ReferenceBasedLongArray
     min = source.getMin();
     secondMin = source.getSecondMin();
     max = source.getMax();
-    if (source.isSetCompressedValues()) {
+    if (source.isSetCompressedValuesBinary()) {
+      compressedValues = LongArrayBinaryEncoding.decode(source.getCompressedValuesBinary());
+      delegateCompressedValueLongArray = null;
+    } else if (source.isSetCompressedValues()) {
+      // data version 1.
       compressedValues = source.getCompressedValues().stream().mapToLong(Long::longValue).toArray();
       delegateCompressedValueLongArray = null;
     } else {
@@ -262,9 +266,8 @@ public class ReferenceBasedLongArray
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this
-        34 + // small fields
-        ((compressedValues != null) ? compressedValues.length * 8 : 0) + //
+    return MemorySizeUtil.objectSize(34, 4) + // this, including fields of super class
+        ((compressedValues != null) ? MemorySizeUtil.longArraySize(compressedValues.length) : 0) + //
         ((delegateCompressedValueLongArray != null) ? delegateCompressedValueLongArray.calculateApproximateSizeInBytes()
             : 0);
   }
@@ -24,14 +24,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArray;
 import org.diqube.data.serialize.thrift.v1.SLongCompressedArrayRLE;
+import org.diqube.util.MemorySizeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -359,8 +359,8 @@ public class RunLengthLongArray extends AbstractTransitiveExplorableCompressedLo
     target.setSecondMinValue(secondMinValue);
     target.setMinCount(minCount);
     if (compressedValues != null) {
-      target.setCompressedValues(LongStream.of(compressedValues).boxed().collect(Collectors.toList()));
-      target.setCompressedCounts(LongStream.of(compressedCounts).boxed().collect(Collectors.toList()));
+      target.setCompressedValuesBinary(LongArrayBinaryEncoding.encode(compressedValues));
+      target.setCompressedCountsBinary(LongArrayBinaryEncoding.encode(compressedCounts));
     } else {
       target.setDelegateCompressedValue(mgr.serializeChild(SLongCompressedArray.class, delegateCompressedValue));
       target.setDelegateCompressedCounts(mgr.serializeChild(SLongCompressedArray.class, delegateCompressedCounts));
@@ -378,7 +378,13 @@ public class RunLengthLongArray extends AbstractTransitiveExplorableCompressedLo
     minValue = source.getMinValue();
     secondMinValue = source.getSecondMinValue();
     minCount = source.getMinCount();
-    if (source.isSetCompressedValues()) {
+    if (source.isSetCompressedValuesBinary()) {
+      compressedValues = LongArrayBinaryEncoding.decode(source.getCompressedValuesBinary());
+      compressedCounts = LongArrayBinaryEncoding.decode(source.getCompressedCountsBinary());
+      delegateCompressedValue = null;
+      delegateCompressedCounts = null;
+    } else if (source.isSetCompressedValues()) {
+      // data version 1.
       compressedValues = source.getCompressedValues().stream().mapToLong(Long::longValue).toArray();
       compressedCounts = source.getCompressedCounts().stream().mapToLong(Long::longValue).toArray();
       delegateCompressedValue = null;
@@ -395,10 +401,9 @@ public class RunLengthLongArray extends AbstractTransitiveExplorableCompressedLo
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this
-        53 + // small fields
-        ((compressedCounts != null) ? compressedCounts.length * 8 : 0)
-        + ((compressedValues != null) ? compressedValues.length * 8 : 0)
+    return MemorySizeUtil.objectSize(53, 6) + // this, including fields of super class
+        ((compressedCounts != null) ? MemorySizeUtil.longArraySize(compressedCounts.length) : 0)
+        + ((compressedValues != null) ? MemorySizeUtil.longArraySize(compressedValues.length) : 0)
         + ((delegateCompressedCounts != null) ? delegateCompressedCounts.calculateApproximateSizeInBytes() : 0)
         + ((delegateCompressedValue != null) ? delegateCompressedValue.calculateApproximateSizeInBytes() : 0);
   }
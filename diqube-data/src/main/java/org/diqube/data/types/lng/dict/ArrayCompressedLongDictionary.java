@@ -35,6 +35,7 @@ import org.diqube.data.serialize.thrift.v1.SLongCompressedArray;
 import org.diqube.data.serialize.thrift.v1.SLongDictionaryArray;
 import org.diqube.data.types.lng.array.CompressedLongArray;
 import org.diqube.data.types.lng.array.CompressedLongArrayUtil;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 /**
@@ -460,7 +461,7 @@ public class ArrayCompressedLongDictionary implements LongDictionary<SLongDictio
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
+    return MemorySizeUtil.objectSize(0, 1) + // this
         sortedValues.calculateApproximateSizeInBytes();
   }
 
@@ -32,6 +32,7 @@ import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SLongDictionaryConstant;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 import com.google.common.collect.Iterators;
@@ -219,8 +220,7 @@ public class ConstantLongDictionary implements LongDictionary<SLongDictionaryCon
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
-        4; // 4 bytes long.
+    return MemorySizeUtil.objectSize(2 * 8, 0); // this, two long fields.
   }
 
   @SuppressWarnings("unchecked")
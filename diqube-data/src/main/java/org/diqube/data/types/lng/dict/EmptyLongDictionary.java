@@ -33,6 +33,7 @@ import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SLongDictionaryEmpty;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 /**
@@ -150,7 +151,7 @@ public class EmptyLongDictionary implements LongDictionary<SLongDictionaryEmpty>
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16; // object header of this.
+    return MemorySizeUtil.objectSize(0, 0); // this
   }
 
   @Override
@@ -31,6 +31,7 @@ import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryConstant;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 import com.google.common.collect.Iterators;
@@ -231,8 +232,8 @@ public class ConstantStringDictionary implements StringDictionary<SStringDiction
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this.
-        value.getBytes().length;
+    return MemorySizeUtil.objectSize(8, 1) + // this
+        MemorySizeUtil.stringSize(value);
   }
 
   @SuppressWarnings("unchecked")
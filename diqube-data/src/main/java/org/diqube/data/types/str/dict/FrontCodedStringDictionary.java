@@ -0,0 +1,652 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.data.types.str.dict;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.serialize.DataSerializable;
+import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.SerializationException;
+import org.diqube.data.serialize.thrift.v1.SStringDictionaryFrontCoded;
+import org.diqube.util.MemorySizeUtil;
+import org.diqube.util.Pair;
+
+/**
+ * A {@link StringDictionary} which stores the UTF-8 encoded values in blocks of front-coded entries in a single byte
+ * array.
+ * 
+ * <p>
+ * The sorted values are split into blocks of {@link #DEFAULT_BLOCK_SIZE} entries each. The first entry of each block
+ * (the "block header") is stored completely, encoded as [varint length][bytes]. Each following entry of the block
+ * only stores the bytes that differ from its predecessor, encoded as [varint length of prefix shared with previous
+ * entry][varint length of suffix][suffix bytes]. The start offset of each block in the byte array is held in a separate
+ * index.
+ * 
+ * <p>
+ * Accesses based on the ID of a value decode at most one block. Searching for a value executes a binary search on the
+ * block headers and then decodes only the entries of a single block. Note that values are compared using
+ * {@link String#compareTo(String)}, as that is the order in which the values (and therefore the IDs) are sorted - this
+ * is not necessarily the order of the UTF-8 bytes.
+ * 
+ * <p>
+ * In contrast to {@link TrieStringDictionary} this dictionary does not hold any objects per value, which makes it
+ * considerably smaller for columns with many long distinct values (like URLs).
+ *
+ * @author Bastian Gloeckle
+ */
+@DataSerializable(thriftClass = SStringDictionaryFrontCoded.class)
+public class FrontCodedStringDictionary implements StringDictionary<SStringDictionaryFrontCoded> {
+  public static final int DEFAULT_BLOCK_SIZE = 16;
+
+  private int blockSize;
+  private int[] blockOffsets;
+  private byte[] data;
+  private long lastId;
+
+  private String firstValue;
+  private String lastValue;
+
+  /** for deserialization */
+  public FrontCodedStringDictionary() {
+
+  }
+
+  /**
+   * Create a new front-coded dictionary.
+   * 
+   * @param blockSize
+   *          Number of entries per block.
+   * @param blockOffsets
+   *          Index into data of the beginning of each block.
+   * @param data
+   *          The encoded blocks, see class comment.
+   * @param lastId
+   *          The maximum ID of the dictionary.
+   */
+  public FrontCodedStringDictionary(int blockSize, int[] blockOffsets, byte[] data, long lastId) {
+    this.blockSize = blockSize;
+    this.blockOffsets = blockOffsets;
+    this.data = data;
+    this.lastId = lastId;
+    initFirstAndLastValue();
+  }
+
+  /**
+   * Encode the given values into a new {@link FrontCodedStringDictionary} using blocks of
+   * {@link #DEFAULT_BLOCK_SIZE}.
+   * 
+   * @param sortedValues
+   *          The values that should be contained in the dictionary, sorted according to
+   *          {@link String#compareTo(String)}, no duplicates. There has to be at least one value. The first value
+   *          provided will be assigned ID 0, the second ID 1 etc.
+   * @throws IllegalArgumentException
+   *           If there are no values or if a value contains an unpaired surrogate character, which cannot be
+   *           represented in UTF-8.
+   */
+  public static FrontCodedStringDictionary encode(Iterable<String> sortedValues) throws IllegalArgumentException {
+    List<Integer> blockOffsets = new ArrayList<>();
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    byte[] previous = null;
+    long id = 0;
+    for (String value : sortedValues) {
+      byte[] cur = toUtf8(value);
+      if (id % DEFAULT_BLOCK_SIZE == 0) {
+        blockOffsets.add(data.size());
+        writeVarInt(data, cur.length);
+        data.write(cur, 0, cur.length);
+      } else {
+        int prefixLen = commonPrefixLength(previous, cur);
+
+        writeVarInt(data, prefixLen);
+        writeVarInt(data, cur.length - prefixLen);
+        data.write(cur, prefixLen, cur.length - prefixLen);
+      }
+      previous = cur;
+      id++;
+    }
+
+    if (id == 0)
+      throw new IllegalArgumentException("Cannot create an empty dictionary.");
+
+    int[] blockOffsetsArray = blockOffsets.stream().mapToInt(Integer::intValue).toArray();
+    return new FrontCodedStringDictionary(DEFAULT_BLOCK_SIZE, blockOffsetsArray, data.toByteArray(), id - 1);
+  }
+
+  /**
+   * Calculates the approximate size of the dictionary that {@link #encode(Iterable)} would create for the given values,
+   * without actually creating it.
+   * 
+   * @return The value {@link #calculateApproximateSizeInBytes()} would return on the result of
+   *         {@link #encode(Iterable)}.
+   * @throws IllegalArgumentException
+   *           If {@link #encode(Iterable)} would throw it.
+   */
+  public static long calculateApproximateSizeInBytes(Iterable<String> sortedValues) throws IllegalArgumentException {
+    long dataLength = 0;
+    long numberOfValues = 0;
+    String firstValue = null;
+    String lastValue = null;
+    byte[] previous = null;
+    for (String value : sortedValues) {
+      byte[] cur = toUtf8(value);
+      if (numberOfValues % DEFAULT_BLOCK_SIZE == 0)
+        dataLength += varIntLength(cur.length) + cur.length;
+      else {
+        int prefixLen = commonPrefixLength(previous, cur);
+        dataLength += varIntLength(prefixLen) + varIntLength(cur.length - prefixLen) + cur.length - prefixLen;
+      }
+      previous = cur;
+      if (firstValue == null)
+        firstValue = value;
+      lastValue = value;
+      numberOfValues++;
+    }
+
+    if (numberOfValues == 0)
+      throw new IllegalArgumentException("Cannot create an empty dictionary.");
+
+    return approximateSizeInBytes(dataLength, (numberOfValues - 1) / DEFAULT_BLOCK_SIZE + 1, firstValue, lastValue);
+  }
+
+  private static long approximateSizeInBytes(long dataLength, long numberOfBlocks, String firstValue,
+      String lastValue) {
+    return MemorySizeUtil.objectSize(4 + 8, 4) + // this
+        MemorySizeUtil.byteArraySize(dataLength) + //
+        MemorySizeUtil.intArraySize(numberOfBlocks) + //
+        MemorySizeUtil.stringSize(firstValue) + //
+        MemorySizeUtil.stringSize(lastValue);
+  }
+
+  /**
+   * @return The UTF-8 bytes of the given value.
+   * @throws IllegalArgumentException
+   *           If the value contains an unpaired surrogate character: {@link String#getBytes(java.nio.charset.Charset)}
+   *           would silently replace it, so the value would not be decoded to the same value again.
+   */
+  private static byte[] toUtf8(String value) throws IllegalArgumentException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+        i++;
+      else if (Character.isSurrogate(c))
+        throw new IllegalArgumentException(
+            "Cannot encode value containing an unpaired surrogate character at index " + i + " in UTF-8.");
+    }
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int commonPrefixLength(byte[] a, byte[] b) {
+    int res = 0;
+    int maxLen = Math.min(a.length, b.length);
+    while (res < maxLen && a[res] == b[res])
+      res++;
+    return res;
+  }
+
+  private static int varIntLength(int value) {
+    int res = 1;
+    while ((value & ~0x7F) != 0) {
+      res++;
+      value >>>= 7;
+    }
+    return res;
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private void initFirstAndLastValue() {
+    firstValue = decompressValue(0L);
+    lastValue = decompressValue(lastId);
+  }
+
+  @Override
+  public Long getMaxId() {
+    return lastId;
+  }
+
+  @Override
+  public String decompressValue(long id) throws IllegalArgumentException {
+    if (id < 0 || id > lastId)
+      throw new IllegalArgumentException("Id " + id + " out of range; available range 0-" + lastId);
+
+    BlockReader reader = new BlockReader((int) (id / blockSize));
+    for (long i = id % blockSize; i >= 0; i--)
+      reader.next();
+
+    return reader.currentValue();
+  }
+
+  @Override
+  public String[] decompressValues(Long[] id) throws IllegalArgumentException {
+    String[] res = new String[id.length];
+    BlockReader reader = null;
+    long readerId = -1;
+    for (int i = 0; i < id.length; i++) {
+      if (id[i] < 0 || id[i] > lastId)
+        throw new IllegalArgumentException("Id " + id[i] + " out of range; available range 0-" + lastId);
+
+      // re-use the reader if the requested ID is located later in the same block - this is the case if the IDs are
+      // sorted.
+      if (reader == null || id[i] < readerId || id[i] / blockSize != readerId / blockSize) {
+        reader = new BlockReader((int) (id[i] / blockSize));
+        readerId = (id[i] / blockSize) * blockSize - 1;
+      }
+      while (readerId < id[i]) {
+        reader.next();
+        readerId++;
+      }
+      res[i] = reader.currentValue();
+    }
+
+    return res;
+  }
+
+  /**
+   * @return ID of the given value if available. If not available, <code>-(insertionPoint + 1)</code> where
+   *         insertionPoint is the ID of the next greater value (which may be lastId + 1).
+   */
+  private long findId(String value) {
+    int lo = 0;
+    int hi = blockOffsets.length - 1;
+    int block = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int compareRes = blockHeader(mid).compareTo(value);
+      if (compareRes == 0)
+        return (long) mid * blockSize;
+      if (compareRes < 0) {
+        block = mid;
+        lo = mid + 1;
+      } else
+        hi = mid - 1;
+    }
+
+    if (block == -1)
+      // value is smaller than the first value of the dict.
+      return -1L;
+
+    BlockReader reader = new BlockReader(block);
+    long id = (long) block * blockSize;
+    while (reader.next()) {
+      int compareRes = reader.currentValue().compareTo(value);
+      if (compareRes == 0)
+        return id;
+      if (compareRes > 0)
+        return -(id + 1);
+      id++;
+    }
+    // value is greater than all values of the block; id is now the first ID of the next block.
+    return -(id + 1);
+  }
+
+  @Override
+  public long findIdOfValue(String value) throws IllegalArgumentException {
+    long id = findId(value);
+    if (id < 0)
+      throw new IllegalArgumentException("Value '" + value + "' not available!");
+    return id;
+  }
+
+  @Override
+  public Long[] findIdsOfValues(String[] sortedValues) {
+    Long[] res = new Long[sortedValues.length];
+
+    for (int i = 0; i < sortedValues.length; i++) {
+      res[i] = findId(sortedValues[i]);
+      if (res[i] < 0)
+        res[i] = -1L;
+    }
+
+    return res;
+  }
+
+  @Override
+  public Long findGtEqIdOfValue(String value) {
+    long id = findId(value);
+
+    if (id >= 0)
+      return id;
+
+    long insertionPoint = -(id + 1);
+
+    if (insertionPoint > lastId)
+      return null;
+
+    return id;
+  }
+
+  @Override
+  public Long findLtEqIdOfValue(String value) {
+    long id = findId(value);
+
+    if (id >= 0)
+      return id;
+
+    long insertionPoint = -(id + 1);
+
+    if (insertionPoint == 0L)
+      return null;
+
+    long idxOfNextSmallerValue = insertionPoint - 1;
+    return -(idxOfNextSmallerValue + 1);
+  }
+
+  @Override
+  public boolean containsAnyValue(String[] sortedValues) {
+    for (int i = 0; i < sortedValues.length; i++)
+      if (findId(sortedValues[i]) >= 0)
+        return true;
+
+    return false;
+  }
+
+  @Override
+  public boolean containsAnyValueGtEq(String value) {
+    return lastValue.compareTo(value) >= 0;
+  }
+
+  @Override
+  public boolean containsAnyValueGt(String value) {
+    return lastValue.compareTo(value) > 0;
+  }
+
+  @Override
+  public boolean containsAnyValueLtEq(String value) {
+    return firstValue.compareTo(value) <= 0;
+  }
+
+  @Override
+  public boolean containsAnyValueLt(String value) {
+    return firstValue.compareTo(value) < 0;
+  }
+
+  @Override
+  public Set<Long> findIdsOfValuesGtEq(String value) {
+    Long gtEq = findGtEqIdOfValue(value);
+    if (gtEq == null)
+      return new HashSet<>();
+    if (gtEq < 0)
+      gtEq = -(gtEq + 1);
+    return LongStream.rangeClosed(gtEq, lastId).mapToObj(Long::valueOf).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<Long> findIdsOfValuesGt(String value) {
+    Long gtEq = findGtEqIdOfValue(value);
+    if (gtEq == null)
+      return new HashSet<>();
+    if (gtEq < 0)
+      gtEq = -(gtEq + 1);
+    else {
+      // gtEq found an equal id, increase it.
+      gtEq++;
+      if (gtEq > lastId)
+        return new HashSet<>();
+    }
+    return LongStream.rangeClosed(gtEq, lastId).mapToObj(Long::valueOf).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<Long> findIdsOfValuesLt(String value) {
+    Long ltEq = findLtEqIdOfValue(value);
+    if (ltEq == null)
+      return new HashSet<>();
+    if (ltEq < 0)
+      ltEq = -(ltEq + 1);
+    else {
+      // ltEq found an equal id, decrease it.
+      ltEq--;
+      if (ltEq < 0)
+        return new HashSet<>();
+    }
+    return LongStream.rangeClosed(0, ltEq).mapToObj(Long::valueOf).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<Long> findIdsOfValuesLtEq(String value) {
+    Long ltEq = findLtEqIdOfValue(value);
+    if (ltEq == null)
+      return new HashSet<>();
+    if (ltEq < 0)
+      ltEq = -(ltEq + 1);
+    return LongStream.rangeClosed(0, ltEq).mapToObj(Long::valueOf).collect(Collectors.toSet());
+  }
+
+  @Override
+  public NavigableMap<Long, Long> findEqualIds(Dictionary<String> otherDict) {
+    NavigableMap<Long, Long> res = new TreeMap<>();
+    mergeWith(otherDict, new MergeCallback() {
+      @Override
+      public void equal(long ourId, long otherId) {
+        res.put(ourId, otherId);
+      }
+
+      @Override
+      public void notEqual(long ourId, Long greatestSmallerOtherId, Long smallestGreaterOtherId) {
+        // noop
+      }
+    });
+    return res;
+  }
+
+  @Override
+  public NavigableMap<Long, Long> findGtEqIds(Dictionary<String> otherDict) {
+    NavigableMap<Long, Long> res = new TreeMap<>();
+    mergeWith(otherDict, new MergeCallback() {
+      @Override
+      public void equal(long ourId, long otherId) {
+        res.put(ourId, otherId);
+      }
+
+      @Override
+      public void notEqual(long ourId, Long greatestSmallerOtherId, Long smallestGreaterOtherId) {
+        if (greatestSmallerOtherId != null)
+          res.put(ourId, -(greatestSmallerOtherId + 1));
+      }
+    });
+    return res;
+  }
+
+  @Override
+  public NavigableMap<Long, Long> findLtEqIds(Dictionary<String> otherDict) {
+    NavigableMap<Long, Long> res = new TreeMap<>();
+    mergeWith(otherDict, new MergeCallback() {
+      @Override
+      public void equal(long ourId, long otherId) {
+        res.put(ourId, otherId);
+      }
+
+      @Override
+      public void notEqual(long ourId, Long greatestSmallerOtherId, Long smallestGreaterOtherId) {
+        if (smallestGreaterOtherId != null)
+          res.put(ourId, -(smallestGreaterOtherId + 1));
+      }
+    });
+    return res;
+  }
+
+  /**
+   * Traverses the values of this dict and the other dict in parallel (both are sorted) and informs the callback about
+   * the relation of each of our IDs to the IDs of the other dict.
+   */
+  private void mergeWith(Dictionary<String> otherDict, MergeCallback callback) {
+    Iterator<Pair<Long, String>> otherIt = otherDict.iterator();
+    Pair<Long, String> otherCur = otherIt.hasNext() ? otherIt.next() : null;
+    Long otherLastSmallerId = null;
+
+    for (Pair<Long, String> our : this) {
+      while (otherCur != null && otherCur.getRight().compareTo(our.getRight()) < 0) {
+        otherLastSmallerId = otherCur.getLeft();
+        otherCur = otherIt.hasNext() ? otherIt.next() : null;
+      }
+
+      if (otherCur != null && otherCur.getRight().equals(our.getRight()))
+        callback.equal(our.getLeft(), otherCur.getLeft());
+      else
+        callback.notEqual(our.getLeft(), otherLastSmallerId, (otherCur != null) ? otherCur.getLeft() : null);
+    }
+  }
+
+  @Override
+  public void serialize(DataSerializationHelper mgr, SStringDictionaryFrontCoded target)
+      throws SerializationException {
+    target.setBlockSize(blockSize);
+    List<Integer> offsets = new ArrayList<>(blockOffsets.length);
+    for (int offset : blockOffsets)
+      offsets.add(offset);
+    target.setBlockOffsets(offsets);
+    target.setData(data);
+    target.setLastId(lastId);
+  }
+
+  @Override
+  public void deserialize(DataSerializationHelper mgr, SStringDictionaryFrontCoded source)
+      throws DeserializationException {
+    blockSize = source.getBlockSize();
+    blockOffsets = source.getBlockOffsets().stream().mapToInt(Integer::intValue).toArray();
+    data = source.getData();
+    lastId = source.getLastId();
+    if (blockSize <= 0 || blockOffsets.length != (lastId / blockSize) + 1)
+      throw new DeserializationException("Invalid front coded string dictionary.");
+    initFirstAndLastValue();
+  }
+
+  @Override
+  public long calculateApproximateSizeInBytes() {
+    return approximateSizeInBytes(data.length, blockOffsets.length, firstValue, lastValue);
+  }
+
+  @Override
+  public Iterator<Pair<Long, String>> iterator() {
+    return new Iterator<Pair<Long, String>>() {
+      private long nextId = 0L;
+      private BlockReader reader = null;
+
+      @Override
+      public boolean hasNext() {
+        return nextId <= lastId;
+      }
+
+      @Override
+      public Pair<Long, String> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        if (nextId % blockSize == 0)
+          reader = new BlockReader((int) (nextId / blockSize));
+        reader.next();
+        return new Pair<>(nextId++, reader.currentValue());
+      }
+    };
+  }
+
+  private String blockHeader(int blockIdx) {
+    BlockReader reader = new BlockReader(blockIdx);
+    reader.next();
+    return reader.currentValue();
+  }
+
+  private static interface MergeCallback {
+    /** ourId and otherId point to equal values. */
+    public void equal(long ourId, long otherId);
+
+    /**
+     * There is no equal value to ourId in the other dict. The IDs in the other dict that have the next smaller/greater
+     * values are provided, each may be <code>null</code>.
+     */
+    public void notEqual(long ourId, Long greatestSmallerOtherId, Long smallestGreaterOtherId);
+  }
+
+  /**
+   * Decodes the entries of a single block sequentially.
+   */
+  private class BlockReader {
+    private int pos;
+    private int endPos;
+    private boolean first = true;
+    private byte[] cur = new byte[64];
+    private int curLength = 0;
+
+    BlockReader(int blockIdx) {
+      pos = blockOffsets[blockIdx];
+      endPos = (blockIdx + 1 < blockOffsets.length) ? blockOffsets[blockIdx + 1] : data.length;
+    }
+
+    /**
+     * Move to the next entry of the block.
+     * 
+     * @return false if there are no more entries in the block.
+     */
+    boolean next() {
+      if (pos >= endPos)
+        return false;
+
+      int prefixLength = first ? 0 : readVarInt();
+      int suffixLength = readVarInt();
+      first = false;
+
+      curLength = prefixLength + suffixLength;
+      if (cur.length < curLength) {
+        byte[] newCur = new byte[Math.max(curLength, cur.length * 2)];
+        System.arraycopy(cur, 0, newCur, 0, prefixLength);
+        cur = newCur;
+      }
+      System.arraycopy(data, pos, cur, prefixLength, suffixLength);
+      pos += suffixLength;
+      return true;
+    }
+
+    String currentValue() {
+      return new String(cur, 0, curLength, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() {
+      int res = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[pos++];
+        res |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return res;
+    }
+  }
+}
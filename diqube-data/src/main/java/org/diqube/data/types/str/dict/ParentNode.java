@@ -29,6 +29,7 @@ import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrieNode;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrieParentNode;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A parent TrieNode in the trie. See class comment of {@link TrieStringDictionary}.
@@ -55,12 +56,12 @@ public class ParentNode extends TrieNode<SStringDictionaryTrieParentNode> {
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    long childSize = 0L;
+    long childSize = MemorySizeUtil.referenceArraySize(childNodes.length) + //
+        MemorySizeUtil.referenceArraySize(childChars.length);
     for (int i = 0; i < childChars.length; i++)
-      childSize += childChars[i].length + childNodes[i].calculateApproximateSizeInBytes();
+      childSize += MemorySizeUtil.charArraySize(childChars[i].length) + childNodes[i].calculateApproximateSizeInBytes();
 
-    return 16 + // object header of "this"
-        16 + // small longs
+    return MemorySizeUtil.objectSize(2 * 8, 2) + // "this"
         childSize;
   }
 
@@ -24,6 +24,7 @@ import org.diqube.data.serialize.DataSerializable;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrieTerminalNode;
+import org.diqube.util.MemorySizeUtil;
 
 /**
  * A terminal TrieNode in the trie. See class comment of {@link TrieStringDictionary}.
@@ -59,7 +60,6 @@ public class TerminalNode extends TrieNode<SStringDictionaryTrieTerminalNode> {
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this
-        8;
+    return MemorySizeUtil.objectSize(8, 0); // this
   }
 }
\ No newline at end of file
@@ -42,6 +42,7 @@ import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrie;
 import org.diqube.data.serialize.thrift.v1.SStringDictionaryTrieNode;
 import org.diqube.data.types.str.dict.TrieValueAnalyzer.TrieValueAnalyzerCallback;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 import com.google.common.collect.Sets;
@@ -519,10 +520,9 @@ public class TrieStringDictionary implements StringDictionary<SStringDictionaryT
 
   @Override
   public long calculateApproximateSizeInBytes() {
-    return 16 + // object header of this
-        8 + // small fields
-        firstValue.getBytes().length + //
-        lastValue.getBytes().length + //
+    return MemorySizeUtil.objectSize(8, 3) + // this
+        MemorySizeUtil.stringSize(firstValue) + //
+        MemorySizeUtil.stringSize(lastValue) + //
         root.calculateApproximateSizeInBytes();
   }
 
@@ -28,8 +28,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.diqube.data.types.dbl.dict.FpcDoubleDictionary;
+import org.diqube.data.types.dbl.dict.FpcDoubleDictionary.DecodedPageCacheListener;
 import org.diqube.data.types.dbl.dict.FpcPage;
 import org.diqube.data.types.dbl.dict.FpcPage.State;
 import org.diqube.util.DoubleUtil;
@@ -391,6 +393,73 @@ public class FpcDoubleDictionaryTest {
         "Expected that iterator returns correct elements.");
   }
 
+  @Test
+  public void decodedPageCacheTest() {
+    // GIVEN
+    FpcPage page1 = new FpcPage(0L);
+    page1.compress(new double[] { 0.5, 1.5, 2.5 });
+    FpcPage page2 = new FpcPage(3L);
+    page2.compress(new double[] { 3.5, 4.5, 5.5 });
+    FpcPage page3 = new FpcPage(6L);
+    page3.compress(new double[] { 6.5, 7.5 });
+
+    FpcDoubleDictionary dict = createDict(0.5, 7.5, page1, page2, page3);
+
+    // WHEN/THEN
+    Assert.assertTrue(DoubleUtil.equals(4.5, dict.decompressValue(4)));
+    Assert.assertEquals(dict.getDecodedPageCacheMisses(), 1, "Expected page to be decoded on first access");
+    Assert.assertEquals(dict.getDecodedPageCacheHits(), 0);
+
+    Assert.assertTrue(DoubleUtil.equals(3.5, dict.decompressValue(3)));
+    Assert.assertEquals(dict.findIdOfValue(5.5), 5);
+    Assert.assertEquals((long) dict.findGtEqIdOfValue(5.), -(5 + 1));
+    Assert.assertEquals(dict.getDecodedPageCacheMisses(), 1, "Expected page to be served from cache");
+    Assert.assertEquals(dict.getDecodedPageCacheHits(), 3);
+
+    Assert.assertEquals(dict.decompressValues(new Long[] { 7L, 0L, 5L, 1L }), new Double[] { 7.5, 0.5, 5.5, 1.5 });
+    Assert.assertEquals(dict.findIdOfValue(6.5), 6, "Expected first value of page to be found using index");
+    Assert.assertNull(dict.findGtEqIdOfValue(8.));
+    Assert.assertNull(dict.findLtEqIdOfValue(0.));
+    Assert.assertEquals(dict.getDecodedPageCacheMisses(), 3);
+  }
+
+  @Test
+  public void decodedPageCacheListenerTest() {
+    // GIVEN
+    FpcPage page1 = new FpcPage(0L);
+    page1.compress(new double[] { 0.5, 1.5, 2.5 });
+    FpcPage page2 = new FpcPage(3L);
+    page2.compress(new double[] { 3.5, 4.5, 5.5 });
+
+    FpcDoubleDictionary dict = createDict(0.5, 5.5, page1, page2);
+    long sizeBefore = dict.calculateApproximateSizeInBytes();
+    AtomicInteger hits = new AtomicInteger(0);
+    AtomicInteger misses = new AtomicInteger(0);
+    FpcDoubleDictionary view = dict.withDecodedPageCacheListener(new DecodedPageCacheListener() {
+      @Override
+      public void decodedPageCacheHit() {
+        hits.incrementAndGet();
+      }
+
+      @Override
+      public void decodedPageCacheMiss() {
+        misses.incrementAndGet();
+      }
+    });
+
+    // WHEN
+    dict.decompressValue(0);
+    view.decompressValue(1);
+    view.decompressValue(4);
+
+    // THEN
+    Assert.assertEquals(hits.get(), 1, "Expected view to use the cache of the original dictionary");
+    Assert.assertEquals(misses.get(), 1, "Expected only accesses through the view to be reported");
+    Assert.assertEquals(dict.getDecodedPageCacheMisses(), 2);
+    Assert.assertEquals(dict.calculateApproximateSizeInBytes(), sizeBefore,
+        "Expected size to already account for a filled decoded page cache");
+  }
+
   private FpcDoubleDictionary createDict(double lowestValue, double highestValue, FpcPage... pages) {
     NavigableMap<Long, FpcPage> pagesMap = new TreeMap<>();
     for (FpcPage page : pages)
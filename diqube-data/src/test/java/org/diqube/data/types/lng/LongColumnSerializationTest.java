@@ -30,6 +30,8 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnPageFactory;
@@ -41,7 +43,9 @@ import org.diqube.data.serialize.DataSerializationManager;
 import org.diqube.data.serialize.DataSerializer;
 import org.diqube.data.serialize.DataSerializer.ObjectDoneConsumer;
 import org.diqube.data.serialize.DeserializationException;
+import org.diqube.data.serialize.LongArrayBinaryEncoding;
 import org.diqube.data.serialize.SerializationException;
+import org.diqube.data.serialize.thrift.v1.SLongCompressedArrayBitEfficient;
 import org.diqube.data.table.DefaultTableShard;
 import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
@@ -136,6 +140,26 @@ public class LongColumnSerializationTest {
     Assert.assertEquals(valuesAfter, valuesBefore, "Expected column to contain the same values after deserializing");
   }
 
+  @Test
+  public void testBitEfficientDataVersion1() throws SerializationException, DeserializationException {
+    // GIVEN
+    long[] values = new long[] { 5, 1, Long.MIN_VALUE, 3, Long.MAX_VALUE, -10 };
+    SLongCompressedArrayBitEfficient thrift = new SLongCompressedArrayBitEfficient();
+    new BitEfficientLongArray(values, false).serialize(null, thrift);
+    // convert to data version 1, which stores the compressed values in a list.
+    thrift.setCompressedValues(LongStream.of(LongArrayBinaryEncoding.decode(thrift.getCompressedValuesBinary()))
+        .boxed().collect(Collectors.toList()));
+    thrift.unsetCompressedValuesBinary();
+
+    // WHEN
+    BitEfficientLongArray deserialized = new BitEfficientLongArray();
+    deserialized.deserialize(null, thrift);
+
+    // THEN
+    Assert.assertEquals(deserialized.decompressedArray(), values,
+        "Expected data of version 1 to be deserialized correctly");
+  }
+
   @Test
   public void testRle() throws SerializationException, DeserializationException {
     // GIVEN
@@ -0,0 +1,262 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.data.types.str;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.diqube.data.types.str.dict.ConstantStringDictionary;
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
+import org.diqube.data.types.str.dict.TrieStringDictionary;
+import org.diqube.util.Pair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link FrontCodedStringDictionary}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class FrontCodedStringDictionaryTest {
+  @Test
+  public void smallDictEqualsTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("abc", "abd", "bcd"));
+
+    // WHEN THEN
+    Assert.assertEquals((long) dict.getMaxId(), 2L);
+    Assert.assertTrue(dict.containsAnyValue(new String[] { "abc" }));
+    Assert.assertTrue(dict.containsAnyValue(new String[] { "aaa", "bcd" }));
+    Assert.assertFalse(dict.containsAnyValue(new String[] { "aaa", "abcd", "zzz" }));
+    Assert.assertEquals(dict.findIdOfValue("abc"), 0);
+    Assert.assertEquals(dict.findIdOfValue("abd"), 1);
+    Assert.assertEquals(dict.findIdOfValue("bcd"), 2);
+    Assert.assertEquals(dict.findIdsOfValues(new String[] { "aaa", "abc", "bcd", "zz" }),
+        new Long[] { -1L, 0L, 2L, -1L });
+    Assert.assertEquals(dict.decompressValue(0), "abc");
+    Assert.assertEquals(dict.decompressValue(1), "abd");
+    Assert.assertEquals(dict.decompressValue(2), "bcd");
+    Assert.assertEquals(dict.decompressValues(new Long[] { 2L, 0L, 1L }), new String[] { "bcd", "abc", "abd" });
+  }
+
+  @Test
+  public void emptyStringAndPrefixesTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("", "a", "ab", "abc", "b"));
+
+    // WHEN THEN
+    Assert.assertEquals(dict.findIdOfValue(""), 0);
+    Assert.assertEquals(dict.findIdOfValue("a"), 1);
+    Assert.assertEquals(dict.findIdOfValue("ab"), 2);
+    Assert.assertEquals(dict.findIdOfValue("abc"), 3);
+    Assert.assertEquals(dict.findIdOfValue("b"), 4);
+    Assert.assertEquals(dict.decompressValue(0), "");
+    Assert.assertEquals(dict.decompressValue(3), "abc");
+  }
+
+  @Test
+  public void multiByteCharsTest() {
+    // GIVEN
+    // a-umlaut and o-umlaut share the first UTF-8 byte, U+1F600 is a surrogate pair. Values are sorted according to
+    // String#compareTo.
+    List<String> values = new ArrayList<>(
+        new TreeSet<>(Arrays.asList("b\u00e4r", "b\u00f6r", "b\u00e4rchen", "\ud83d\ude00", "\ufb01", "z")));
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(values);
+
+    // WHEN THEN
+    for (int i = 0; i < values.size(); i++) {
+      Assert.assertEquals(dict.decompressValue(i), values.get(i), "Wrong value for id " + i);
+      Assert.assertEquals(dict.findIdOfValue(values.get(i)), i, "Wrong id for value " + values.get(i));
+    }
+  }
+
+  @Test
+  public void multipleBlocksTest() {
+    // GIVEN
+    List<String> values = createValues(100);
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(values);
+
+    // WHEN THEN
+    for (int i = 0; i < values.size(); i++) {
+      Assert.assertEquals(dict.decompressValue(i), values.get(i), "Wrong value for id " + i);
+      Assert.assertEquals(dict.findIdOfValue(values.get(i)), i, "Wrong id for value " + values.get(i));
+      // there is no value greater than the last value.
+      Long expectedGtEqId = (i < values.size() - 1) ? -(i + 1L) - 1 : null;
+      Assert.assertEquals(dict.findGtEqIdOfValue(values.get(i) + "-"), expectedGtEqId,
+          "Wrong GtEq id for value after " + values.get(i));
+    }
+    Assert.assertEquals(dict.decompressValues(new Long[] { 0L, 1L, 17L, 5L, 99L }),
+        new String[] { values.get(0), values.get(1), values.get(17), values.get(5), values.get(99) });
+
+    Iterator<Pair<Long, String>> it = dict.iterator();
+    for (int i = 0; i < values.size(); i++) {
+      Assert.assertTrue(it.hasNext());
+      Assert.assertEquals(it.next(), new Pair<>((long) i, values.get(i)));
+    }
+    Assert.assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void approximateSizeWithoutEncodingTest() {
+    // GIVEN
+    List<List<String>> valueLists = Arrays.asList( //
+        Arrays.asList("abc"), //
+        Arrays.asList("", "a", "ab", "abc", "b"), //
+        new ArrayList<>(new TreeSet<>(Arrays.asList("b\u00e4r", "b\u00f6r", "\ud83d\ude00", "\ufb01"))), //
+        createValues(100));
+
+    for (List<String> values : valueLists) {
+      // WHEN
+      long approximateSize = FrontCodedStringDictionary.calculateApproximateSizeInBytes(values);
+
+      // THEN
+      Assert.assertEquals(approximateSize, FrontCodedStringDictionary.encode(values).calculateApproximateSizeInBytes(),
+          "Expected size estimation to match the size of the encoded dict of " + values);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unpairedHighSurrogateIsRejectedTest() {
+    // GIVEN
+    // would be encoded to "a?b" in UTF-8 and therefore could not be found anymore.
+    FrontCodedStringDictionary.encode(Arrays.asList("a", "a\ud800b"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unpairedLowSurrogateIsRejectedTest() {
+    // GIVEN
+    FrontCodedStringDictionary.calculateApproximateSizeInBytes(Arrays.asList("\udc00"));
+  }
+
+  @Test
+  public void ltEqGtEqTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("b", "d", "f"));
+
+    // WHEN THEN
+    Assert.assertNull(dict.findLtEqIdOfValue("a"));
+    Assert.assertEquals(dict.findLtEqIdOfValue("b"), (Long) 0L);
+    Assert.assertEquals(dict.findLtEqIdOfValue("c"), (Long) (-(0L + 1)));
+    Assert.assertEquals(dict.findLtEqIdOfValue("z"), (Long) (-(2L + 1)));
+
+    Assert.assertEquals(dict.findGtEqIdOfValue("a"), (Long) (-(0L + 1)));
+    Assert.assertEquals(dict.findGtEqIdOfValue("d"), (Long) 1L);
+    Assert.assertEquals(dict.findGtEqIdOfValue("e"), (Long) (-(2L + 1)));
+    Assert.assertNull(dict.findGtEqIdOfValue("g"));
+
+    Assert.assertEquals(dict.findIdsOfValuesGt("b"), new HashSet<>(Arrays.asList(1L, 2L)));
+    Assert.assertEquals(dict.findIdsOfValuesGtEq("b"), new HashSet<>(Arrays.asList(0L, 1L, 2L)));
+    Assert.assertEquals(dict.findIdsOfValuesLt("e"), new HashSet<>(Arrays.asList(0L, 1L)));
+    Assert.assertEquals(dict.findIdsOfValuesLtEq("d"), new HashSet<>(Arrays.asList(0L, 1L)));
+
+    Assert.assertTrue(dict.containsAnyValueGt("e"));
+    Assert.assertFalse(dict.containsAnyValueGt("f"));
+    Assert.assertTrue(dict.containsAnyValueGtEq("f"));
+    Assert.assertTrue(dict.containsAnyValueLt("c"));
+    Assert.assertFalse(dict.containsAnyValueLt("b"));
+    Assert.assertTrue(dict.containsAnyValueLtEq("b"));
+  }
+
+  @Test
+  public void dictCompareTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("a", "c", "e", "g"));
+    FrontCodedStringDictionary otherDict = FrontCodedStringDictionary.encode(Arrays.asList("b", "c", "f"));
+
+    // WHEN
+    NavigableMap<Long, Long> equal = dict.findEqualIds(otherDict);
+    NavigableMap<Long, Long> gtEq = dict.findGtEqIds(otherDict);
+    NavigableMap<Long, Long> ltEq = dict.findLtEqIds(otherDict);
+
+    // THEN
+    NavigableMap<Long, Long> expectedEqual = new TreeMap<>();
+    expectedEqual.put(1L, 1L);
+    Assert.assertEquals(equal, expectedEqual);
+
+    NavigableMap<Long, Long> expectedGtEq = new TreeMap<>();
+    expectedGtEq.put(1L, 1L);
+    expectedGtEq.put(2L, -(1L + 1));
+    expectedGtEq.put(3L, -(2L + 1));
+    Assert.assertEquals(gtEq, expectedGtEq);
+
+    NavigableMap<Long, Long> expectedLtEq = new TreeMap<>();
+    expectedLtEq.put(0L, -(0L + 1));
+    expectedLtEq.put(1L, 1L);
+    expectedLtEq.put(2L, -(2L + 1));
+    Assert.assertEquals(ltEq, expectedLtEq);
+  }
+
+  @Test
+  public void dictCompareTrieTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("abc", "abd", "x"));
+    @SuppressWarnings("unchecked")
+    TrieStringDictionary trie = new TrieStringDictionary(TrieTestUtil.parent( //
+        new Pair<>("ab", TrieTestUtil.parent( //
+            new Pair<>("d", TrieTestUtil.terminal(0)), //
+            new Pair<>("e", TrieTestUtil.terminal(1)))),
+        new Pair<>("x", TrieTestUtil.terminal(2))), "abd", "x", 2);
+
+    // WHEN
+    NavigableMap<Long, Long> ourEqual = dict.findEqualIds(trie);
+    NavigableMap<Long, Long> trieEqual = trie.findEqualIds(dict);
+
+    // THEN
+    NavigableMap<Long, Long> expectedOurEqual = new TreeMap<>();
+    expectedOurEqual.put(1L, 0L);
+    expectedOurEqual.put(2L, 2L);
+    Assert.assertEquals(ourEqual, expectedOurEqual);
+
+    NavigableMap<Long, Long> expectedTrieEqual = new TreeMap<>();
+    expectedTrieEqual.put(0L, 1L);
+    expectedTrieEqual.put(2L, 2L);
+    Assert.assertEquals(trieEqual, expectedTrieEqual);
+  }
+
+  @Test
+  public void dictCompareConstantTest() {
+    // GIVEN
+    FrontCodedStringDictionary dict = FrontCodedStringDictionary.encode(Arrays.asList("a", "c", "e"));
+    ConstantStringDictionary constantDict = new ConstantStringDictionary("c");
+
+    // WHEN
+    NavigableMap<Long, Long> gtEq = dict.findGtEqIds(constantDict);
+
+    // THEN
+    NavigableMap<Long, Long> expectedGtEq = new TreeMap<>();
+    expectedGtEq.put(1L, 0L);
+    expectedGtEq.put(2L, -(0L + 1));
+    Assert.assertEquals(gtEq, expectedGtEq);
+  }
+
+  private List<String> createValues(int count) {
+    TreeSet<String> res = new TreeSet<>();
+    for (int i = 0; i < count; i++)
+      res.add("http://example.com/path/" + (i % 7) + "/item" + i);
+    return new ArrayList<>(res);
+  }
+}
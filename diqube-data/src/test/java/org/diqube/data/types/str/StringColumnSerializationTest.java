@@ -47,6 +47,7 @@ import org.diqube.data.table.TableShard;
 import org.diqube.data.types.lng.array.BitEfficientLongArray;
 import org.diqube.data.types.lng.dict.ArrayCompressedLongDictionary;
 import org.diqube.data.types.str.dict.ConstantStringDictionary;
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
 import org.diqube.data.types.str.dict.ParentNode;
 import org.diqube.data.types.str.dict.StringDictionary;
 import org.diqube.data.types.str.dict.TrieStringDictionary;
@@ -167,6 +168,27 @@ public class StringColumnSerializationTest {
     Assert.assertEquals(valuesAfter, valuesBefore, "Expected column to contain the same values after deserializing");
   }
 
+  @Test
+  public void testFrontCodedDict() throws SerializationException, DeserializationException {
+    // GIVEN
+    Pair<TableShard, Integer> p = createTableShard(2,
+        FrontCodedStringDictionary.encode(Arrays.asList("abc", "abd", "b", "b\u00e4r", "xyz", "\ud83d\ude00")));
+
+    // WHEN serialize & deserialze
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    DataSerializer serializer = serializationManager.createSerializer();
+    Map<Long, String> valuesBefore = getAllValues(p.getLeft(), p.getRight());
+    serializer.serialize(p.getLeft(), outStream, NOOP);
+    DataDeserializer deserializer = serializationManager.createDeserializer();
+    TableShard deserialized = (TableShard) ((DataSerialization<?>) deserializer.deserialize(DefaultTableShard.class,
+        new ByteArrayInputStream(outStream.toByteArray())));
+
+    // THEN
+    Map<Long, String> valuesAfter = getAllValues(deserialized, p.getRight());
+
+    Assert.assertEquals(valuesAfter, valuesBefore, "Expected column to contain the same values after deserializing");
+  }
+
   private Map<Long, String> getAllValues(TableShard tableShard, long numberOfRowIds) {
     StandardColumnShard shard = tableShard.getColumns().get(COL);
     Map<Long, String> res = new HashMap<>();
@@ -22,14 +22,14 @@
 grammar Diql;
 
 diqlStmt
- : selectStmt
+ : ( K_EXPLAIN ( K_ANALYZE )? )? selectStmt
  ;
 
 selectStmt
  : K_SELECT resultValue ( ',' resultValue )*
    // the "from" clause is optional, as the UI uses this grammar too for parsing partial diql statements. 
    // On diqube-server there has to be a "from" clause, of course.
-   ( K_FROM tableName )?
+   ( K_FROM tableName ( sampleClause )? )?
    ( K_WHERE comparison )?
    ( groupByClause )?
    ( orderClause )?
@@ -75,6 +75,16 @@ resultValue
  : anyValue
  ;
 
+// Sample only a percentage of the rows/pages of the table. The literal is the percentage (0 < x <= 100).
+sampleClause
+ : K_TABLESAMPLE ( F_ROWS | F_PAGES ) samplePercentValue ')'
+ ;
+
+samplePercentValue
+ : doubleLiteralValue
+ | positiveDecimalLiteralValue
+ ;
+
 groupByClause
  : K_GROUP K_BY anyValue ( ',' anyValue )* ( K_HAVING comparison )?
  ;
@@ -161,11 +171,13 @@ projectionFunctionName
  ;
 
 keyword
- : K_AND
+ : K_ANALYZE
+ | K_AND
  | K_AS
  | K_ASC
  | K_BY
  | K_DESC
+ | K_EXPLAIN
  | K_FROM
  | K_GROUP
  | K_HAVING
@@ -175,6 +187,7 @@ keyword
  | K_OR
  | K_ORDER
  | K_SELECT
+ | K_TABLESAMPLE
  | K_WHERE
  ;
 
@@ -197,11 +210,13 @@ anyName
  : ID 
  ;
 
+K_ANALYZE : A N A L Y Z E;
 K_AND : A N D;
 K_AS : A S;
 K_ASC : A S C;
 K_BY : B Y;
 K_DESC : D E S C;
+K_EXPLAIN : E X P L A I N;
 K_FROM : F R O M;
 K_GROUP : G R O U P;
 K_HAVING : H A V I N G;
@@ -211,6 +226,7 @@ K_NULL : N U L L;
 K_OR : O R;
 K_ORDER : O R D E R;
 K_SELECT : S E L E C T;
+K_TABLESAMPLE : T A B L E S A M P L E;
 K_WHERE : W H E R E;
 
 F_COUNT: C O U N T '(';
@@ -241,6 +257,8 @@ F_QUANTILE: Q U A N T I L E '(';
 F_QVC: Q V C '(';
 
 F_FLATTEN: F L A T T E N '(';
+F_ROWS: R O W S '(';
+F_PAGES: P A G E S '(';
 
 ID
  : [a-zA-Z_] [a-zA-Z_0-9]* 
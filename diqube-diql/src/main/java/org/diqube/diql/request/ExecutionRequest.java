@@ -34,6 +34,15 @@ import org.diqube.diql.visitors.SelectStmtVisitor;
  * @author Bastian Gloeckle
  */
 public class ExecutionRequest {
+  /**
+   * Modes of an EXPLAIN statement.
+   */
+  public static enum ExplainMode {
+    /** Only the plan should be returned, the query should not be executed. */
+    PLAN,
+    /** The query should be executed and a runtime profile of each step of the plan should be returned. */
+    ANALYZE
+  }
 
   private FromRequest fromRequest;
 
@@ -49,6 +58,10 @@ public class ExecutionRequest {
 
   private OrderRequest order;
 
+  private SampleRequest sample;
+
+  private ExplainMode explain;
+
   private ExecutionRequestInfo additionalInfo = new ExecutionRequestInfo();
 
   public ExecutionRequest() {
@@ -128,6 +141,29 @@ public class ExecutionRequest {
     this.order = order;
   }
 
+  /**
+   * @return <code>null</code> or a {@link SampleRequest} representing the TABLESAMPLE clause of the select stmt.
+   */
+  public SampleRequest getSample() {
+    return sample;
+  }
+
+  public void setSample(SampleRequest sample) {
+    this.sample = sample;
+  }
+
+  /**
+   * @return <code>null</code> if the select stmt should be executed normally or the {@link ExplainMode} if the select
+   *         stmt was prefixed with EXPLAIN.
+   */
+  public ExplainMode getExplain() {
+    return explain;
+  }
+
+  public void setExplain(ExplainMode explain) {
+    this.explain = explain;
+  }
+
   public ExecutionRequestInfo getAdditionalInfo() {
     return additionalInfo;
   }
@@ -137,12 +173,14 @@ public class ExecutionRequest {
     final int prime = 31;
     int result = 1;
     result = prime * result + ((additionalInfo == null) ? 0 : additionalInfo.hashCode());
+    result = prime * result + ((explain == null) ? 0 : explain.hashCode());
     result = prime * result + ((fromRequest == null) ? 0 : fromRequest.hashCode());
     result = prime * result + ((group == null) ? 0 : group.hashCode());
     result = prime * result + ((having == null) ? 0 : having.hashCode());
     result = prime * result + ((order == null) ? 0 : order.hashCode());
     result = prime * result + ((projectAndAggregate == null) ? 0 : projectAndAggregate.hashCode());
     result = prime * result + ((resolveValues == null) ? 0 : resolveValues.hashCode());
+    result = prime * result + ((sample == null) ? 0 : sample.hashCode());
     result = prime * result + ((where == null) ? 0 : where.hashCode());
     return result;
   }
@@ -161,6 +199,8 @@ public class ExecutionRequest {
         return false;
     } else if (!additionalInfo.equals(other.additionalInfo))
       return false;
+    if (explain != other.explain)
+      return false;
     if (fromRequest == null) {
       if (other.fromRequest != null)
         return false;
@@ -191,6 +231,11 @@ public class ExecutionRequest {
         return false;
     } else if (!resolveValues.equals(other.resolveValues))
       return false;
+    if (sample == null) {
+      if (other.sample != null)
+        return false;
+    } else if (!sample.equals(other.sample))
+      return false;
     if (where == null) {
       if (other.where != null)
         return false;
@@ -0,0 +1,94 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.diql.request;
+
+/**
+ * The "TABLESAMPLE" clause of a select stmt: Execute the query on a deterministic subset of the rows of the table only.
+ *
+ * <p>
+ * Correctly implements {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class SampleRequest {
+  public static enum Type {
+    /** Select single rows. */
+    ROWS,
+    /** Select whole pages of rows. */
+    PAGES
+  }
+
+  private Type type;
+
+  private double fraction;
+
+  /**
+   * @param fraction
+   *          The fraction of the rows to sample, 0 < fraction <= 1.
+   */
+  public SampleRequest(Type type, double fraction) {
+    this.type = type;
+    this.fraction = fraction;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return The fraction of rows/pages that should be inspected, 0 < fraction <= 1.
+   */
+  public double getFraction() {
+    return fraction;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    long temp;
+    temp = Double.doubleToLongBits(fraction);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    result = prime * result + ((type == null) ? 0 : type.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (!(obj instanceof SampleRequest))
+      return false;
+    SampleRequest other = (SampleRequest) obj;
+    if (Double.doubleToLongBits(fraction) != Double.doubleToLongBits(other.fraction))
+      return false;
+    if (type != other.type)
+      return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "[type=" + type + ",fraction=" + fraction + "]";
+  }
+}
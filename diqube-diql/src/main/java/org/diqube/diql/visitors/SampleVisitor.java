@@ -0,0 +1,59 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.diql.visitors;
+
+import org.diqube.diql.ParseException;
+import org.diqube.diql.antlr.DiqlBaseVisitor;
+import org.diqube.diql.antlr.DiqlParser.SampleClauseContext;
+import org.diqube.diql.antlr.DiqlParser.SamplePercentValueContext;
+import org.diqube.diql.request.SampleRequest;
+
+/**
+ * Visits the 'TABLESAMPLE' clause and returns a corresponding {@link SampleRequest}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class SampleVisitor extends DiqlBaseVisitor<SampleRequest> {
+
+  @Override
+  public SampleRequest visitSampleClause(SampleClauseContext ctx) {
+    SampleRequest.Type type = (ctx.F_PAGES() != null) ? SampleRequest.Type.PAGES : SampleRequest.Type.ROWS;
+
+    double percent;
+    try {
+      percent = Double.parseDouble(ctx.getChild(SamplePercentValueContext.class, 0).getText());
+    } catch (NumberFormatException e) {
+      throw new ParseException("Could not parse sample percentage.");
+    }
+
+    if (!(percent > 0.) || percent > 100.)
+      throw new ParseException("Sample percentage needs to be > 0 and <= 100.");
+
+    return new SampleRequest(type, percent / 100.);
+  }
+
+  @Override
+  protected SampleRequest aggregateResult(SampleRequest aggregate, SampleRequest nextResult) {
+    if (aggregate == null)
+      return nextResult;
+    return aggregate;
+  }
+}
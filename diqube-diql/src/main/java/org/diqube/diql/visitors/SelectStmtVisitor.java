@@ -24,14 +24,17 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.diqube.diql.antlr.DiqlBaseVisitor;
+import org.diqube.diql.antlr.DiqlParser.DiqlStmtContext;
 import org.diqube.diql.antlr.DiqlParser.GroupByClauseContext;
 import org.diqube.diql.antlr.DiqlParser.SelectStmtContext;
 import org.diqube.diql.request.ComparisonRequest;
 import org.diqube.diql.request.ExecutionRequest;
+import org.diqube.diql.request.ExecutionRequest.ExplainMode;
 import org.diqube.diql.request.FromRequest;
 import org.diqube.diql.request.GroupRequest;
 import org.diqube.diql.request.OrderRequest;
 import org.diqube.diql.request.ResolveValueRequest;
+import org.diqube.diql.request.SampleRequest;
 import org.diqube.name.FunctionBasedColumnNameBuilderFactory;
 import org.diqube.name.RepeatedColumnNameGenerator;
 import org.diqube.util.Pair;
@@ -53,6 +56,17 @@ public class SelectStmtVisitor extends DiqlBaseVisitor<ExecutionRequest> {
     this.functionBasedColumnNameBuilderFactory = functionBasedColumnNameBuilderFactory;
   }
 
+  @Override
+  public ExecutionRequest visitDiqlStmt(DiqlStmtContext diqlStmt) {
+    ExecutionRequest executionRequest = diqlStmt.selectStmt().accept(this);
+
+    // scan EXPLAIN
+    if (diqlStmt.K_EXPLAIN() != null)
+      executionRequest.setExplain((diqlStmt.K_ANALYZE() != null) ? ExplainMode.ANALYZE : ExplainMode.PLAN);
+
+    return executionRequest;
+  }
+
   @Override
   public ExecutionRequest visitSelectStmt(SelectStmtContext selectStmt) {
     ExecutionRequest executionRequest = new ExecutionRequest();
@@ -61,6 +75,11 @@ public class SelectStmtVisitor extends DiqlBaseVisitor<ExecutionRequest> {
     FromRequest fromRequest = selectStmt.accept(new TableNameVisitor());
     executionRequest.setFromRequest(fromRequest);
 
+    // scan TABLESAMPLE
+    SampleRequest sampleRequest = selectStmt.accept(new SampleVisitor());
+    if (sampleRequest != null)
+      executionRequest.setSample(sampleRequest);
+
     // scan GROUP BY
     Pair<GroupRequest, ComparisonRequest> groupBySteps =
         selectStmt.accept(new GroupByVisitor(env, repeatedColNames, functionBasedColumnNameBuilderFactory));
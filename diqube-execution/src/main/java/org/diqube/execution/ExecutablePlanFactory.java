@@ -20,6 +20,7 @@
  */
 package org.diqube.execution;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -89,9 +90,9 @@ public class ExecutablePlanFactory {
 
   public GroupFinalAggregationStep createGroupFinalAggregationStep(int stepId, ExecutionEnvironment env,
       String functionNameLowerCase, String outputColName, ColumnVersionManager columnVersionManager,
-      List<Object> constantFunctionParameters) {
+      List<Object> constantFunctionParameters, Double sampleFraction) {
     return new GroupFinalAggregationStep(stepId, queryRegistry, env, functionFactory, columnShardBuilderFactory,
-        functionNameLowerCase, outputColName, columnVersionManager, constantFunctionParameters);
+        functionNameLowerCase, outputColName, columnVersionManager, constantFunctionParameters, sampleFraction);
   }
 
   public ProjectStep createProjectStep(int stepId, ExecutionEnvironment env, String functionNameLowerCase,
@@ -114,8 +115,10 @@ public class ExecutablePlanFactory {
   }
 
   public ExecutablePlanInfo createExecutablePlanInfo(List<String> selectedColumnNames, List<String> selectionRequests,
-      boolean isOrdered, boolean isGrouped, boolean having) {
-    return new ExecutablePlanInfo(selectedColumnNames, selectionRequests, isOrdered, isGrouped, having);
+      boolean isOrdered, boolean isGrouped, boolean having, Double sampleFraction, boolean explain,
+      boolean explainAnalyze) {
+    return new ExecutablePlanInfo(selectedColumnNames, selectionRequests, isOrdered, isGrouped, having,
+        sampleFraction, explain, explainAnalyze);
   }
 
   public ExecuteRemotePlanOnShardsStep createExecuteRemotePlanStep(int stepId, ExecutionEnvironment env,
@@ -180,8 +183,9 @@ public class ExecutablePlanFactory {
     return new HavingResultStep(stepId, queryRegistry);
   }
 
-  public FlattenStep createFlattenStep(int stepId, String tableName, String flattenBy) {
-    return new FlattenStep(stepId, queryRegistry, tableName, flattenBy, queryMasterFlattenService);
+  public FlattenStep createFlattenStep(int stepId, String tableName, String flattenBy,
+      Collection<String> referencedColumns) {
+    return new FlattenStep(stepId, queryRegistry, tableName, flattenBy, referencedColumns, queryMasterFlattenService);
   }
 
 }
@@ -43,10 +43,14 @@ import org.diqube.execution.consumers.RowIdConsumer;
 import org.diqube.execution.exception.ExecutablePlanBuildException;
 import org.diqube.execution.steps.GroupIntermediaryAggregationStep;
 import org.diqube.execution.steps.ResolveValuesStep;
+import org.diqube.execution.steps.RowIdSinkStep;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.executionenv.ExecutionEnvironmentFactory;
 import org.diqube.executionenv.FlattenedTableInstanceManager;
 import org.diqube.executionenv.TableRegistry;
+import org.diqube.executionenv.cache.RowIdFilterCache;
+import org.diqube.executionenv.cache.RowIdFilterCacheRegistry;
+import org.diqube.executionenv.cache.RowIdFilterResult;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
 import org.diqube.remote.cluster.thrift.RExecutionPlan;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
@@ -62,6 +66,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * This builder is not that intelligent: It simply instantiates the correct {@link ExecutablePlanStep}s as defined by
  * the {@link RExecutionPlanStep} and uses the wiring defined there.
+ * 
+ * <p>
+ * The only exception to this is the WHERE clause: Its results are cached per {@link TableShard} in a
+ * {@link RowIdFilterCache}. If the result of the WHERE clause is available in that cache, the corresponding steps are
+ * not executed, but the {@link RowIdSinkStep} is provided with the cached row IDs.
  *
  * @author Bastian Gloeckle
  */
@@ -83,15 +92,18 @@ public class ExecutablePlanFromRemoteBuilder {
 
   private FlattenedTableInstanceManager flattenedTableManager;
 
+  private RowIdFilterCacheRegistry rowIdFilterCacheRegistry;
+
   /* package */ ExecutablePlanFromRemoteBuilder(TableRegistry tableRegistry,
       ExecutionEnvironmentFactory executionEnvironmentFactory,
       ExecutablePlanStepFromRemoteFactory executablePlanStepFactory, ExecutablePlanFactory executablePlanFactory,
-      FlattenedTableInstanceManager flattenedTableManager) {
+      FlattenedTableInstanceManager flattenedTableManager, RowIdFilterCacheRegistry rowIdFilterCacheRegistry) {
     this.tableRegistry = tableRegistry;
     this.executionEnvironmentFactory = executionEnvironmentFactory;
     this.executablePlanStepFactory = executablePlanStepFactory;
     this.executablePlanFactory = executablePlanFactory;
     this.flattenedTableManager = flattenedTableManager;
+    this.rowIdFilterCacheRegistry = rowIdFilterCacheRegistry;
   }
 
   /**
@@ -146,6 +158,8 @@ public class ExecutablePlanFromRemoteBuilder {
     }
 
     List<ExecutablePlan> res = new ArrayList<>(table.getShards().size());
+    RowIdFilterCache rowIdFilterCache = rowIdFilterCacheRegistry.getOrCreateRowIdFilterCache(table.getName());
+    RemoteRowIdFilter remoteRowIdFilter = new RemoteRowIdFilter();
 
     for (TableShard tableShard : table.getShards()) {
       ExecutionEnvironment defaultEnv = executionEnvironmentFactory.createQueryRemoteExecutionEnvironment(tableShard);
@@ -155,8 +169,29 @@ public class ExecutablePlanFromRemoteBuilder {
       // note that the following optimization might already put some columns in the Env (from the ColumnShardCache).
       RExecutionPlan optimizedRemotePlan = new RemoteExecutionPlanOptimizer().optimize(defaultEnv, plan);
 
+      String filterKey = (rowIdFilterCache != null) ? remoteRowIdFilter.createFilterKey(optimizedRemotePlan) : null;
+      RowIdFilterResult cachedFilterResult = null;
+      if (filterKey != null) {
+        cachedFilterResult = rowIdFilterCache.get(tableShard.getLowestRowId(), filterKey);
+        if (cachedFilterResult != null && cachedFilterResult.isResultOf(tableShard)) {
+          logger.trace("Using cached result of WHERE clause for table shard starting at row {}: {} rows",
+              tableShard.getLowestRowId(), cachedFilterResult.getNumberOfRowIds());
+          // count the usage of the cache entry.
+          rowIdFilterCache.offer(tableShard.getLowestRowId(), filterKey, cachedFilterResult);
+          remoteRowIdFilter.removeFilterSteps(optimizedRemotePlan);
+        } else
+          cachedFilterResult = null;
+      }
+
       for (RExecutionPlanStep remoteStep : optimizedRemotePlan.getSteps()) {
         ExecutablePlanStep newStep = executablePlanStepFactory.createExecutableStep(defaultEnv, remoteStep);
+        if (newStep instanceof RowIdSinkStep && filterKey != null) {
+          if (cachedFilterResult != null)
+            ((RowIdSinkStep) newStep).setPrecomputedRowIds(cachedFilterResult.getRowIds());
+          else
+            ((RowIdSinkStep) newStep).setResultRowIdsListener(rowIds -> rowIdFilterCache
+                .offer(tableShard.getLowestRowId(), filterKey, new RowIdFilterResult(tableShard, rowIds)));
+        }
         steps.put(remoteStep.getStepId(), newStep);
         remoteSteps.put(remoteStep.getStepId(), remoteStep);
       }
@@ -215,7 +250,9 @@ public class ExecutablePlanFromRemoteBuilder {
 
     return executablePlanFactory.createExecutablePlanInfo(selectedCols,
         null /* query remote does not provide requests */, isOrdered, isGrouped,
-        false /* there cannot be a HAVING, because were on a query remote */);
+        false /* there cannot be a HAVING, because were on a query remote */,
+        null /* sample fraction is only relevant on query master */,
+        false, false /* EXPLAIN is only relevant on query master */);
   }
 
   static {
@@ -26,6 +26,7 @@ import org.diqube.context.AutoInstatiate;
 import org.diqube.executionenv.ExecutionEnvironmentFactory;
 import org.diqube.executionenv.FlattenedTableInstanceManager;
 import org.diqube.executionenv.TableRegistry;
+import org.diqube.executionenv.cache.RowIdFilterCacheRegistry;
 
 /**
  * Factory for {@link ExecutablePlanFromRemoteBuilder}.
@@ -49,8 +50,11 @@ public class ExecutablePlanFromRemoteBuilderFactory {
   @Inject
   private FlattenedTableInstanceManager flattenedTableManager;
 
+  @Inject
+  private RowIdFilterCacheRegistry rowIdFilterCacheRegistry;
+
   public ExecutablePlanFromRemoteBuilder createExecutablePlanFromRemoteBuilder() {
     return new ExecutablePlanFromRemoteBuilder(tableRegistry, executionEnvironmentFactory, executablePlanStepFactory,
-        executablePlanFactory, flattenedTableManager);
+        executablePlanFactory, flattenedTableManager, rowIdFilterCacheRegistry);
   }
 }
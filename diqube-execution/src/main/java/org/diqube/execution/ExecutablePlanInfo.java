@@ -38,13 +38,22 @@ public class ExecutablePlanInfo {
 
   private boolean having;
 
+  private Double sampleFraction;
+
+  private boolean explain;
+
+  private boolean explainAnalyze;
+
   /* package */ ExecutablePlanInfo(List<String> selectedColumnNames, List<String> selectionRequests, boolean isOrdered,
-      boolean isGrouped, boolean having) {
+      boolean isGrouped, boolean having, Double sampleFraction, boolean explain, boolean explainAnalyze) {
     this.selectedColumnNames = selectedColumnNames;
     this.selectionRequests = selectionRequests;
     this.isOrdered = isOrdered;
     this.isGrouped = isGrouped;
     this.having = having;
+    this.sampleFraction = sampleFraction;
+    this.explain = explain;
+    this.explainAnalyze = explainAnalyze;
   }
 
   /**
@@ -80,4 +89,30 @@ public class ExecutablePlanInfo {
   public boolean isHaving() {
     return having;
   }
+
+  /**
+   * @return <code>null</code> if the whole table is inspected, otherwise the fraction of the table that is inspected
+   *         because of a TABLESAMPLE clause (0 < fraction <= 1). This information will <b>NOT</b> be available on the
+   *         query remotes, <code>null</code> will be returned there!
+   */
+  public Double getSampleFraction() {
+    return sampleFraction;
+  }
+
+  /**
+   * @return <code>true</code> if the query was prefixed with EXPLAIN, i.e. the plan itself should be returned to the
+   *         user instead of the result values (can only be true on query master).
+   */
+  public boolean isExplain() {
+    return explain;
+  }
+
+  /**
+   * @return <code>true</code> if the query was prefixed with EXPLAIN ANALYZE, i.e. the query should be executed and the
+   *         runtime profile of all steps should be returned instead of the result values (can only be true on query
+   *         master). If this is <code>true</code>, {@link #isExplain()} is <code>true</code>, too.
+   */
+  public boolean isExplainAnalyze() {
+    return explainAnalyze;
+  }
 }
@@ -20,6 +20,8 @@
  */
 package org.diqube.execution;
 
+import java.util.Set;
+
 import org.diqube.execution.consumers.DoneConsumer;
 import org.diqube.execution.consumers.GenericConsumer;
 import org.diqube.execution.exception.ExecutablePlanBuildException;
@@ -102,4 +104,9 @@ public interface ExecutablePlanStep extends Runnable {
    *         This is used for displaying purposes only. Can be <code>null</code>.
    */
   public String getDetailsDescription();
+
+  /**
+   * @return The IDs of the steps this step provides data to. This is used for displaying purposes only.
+   */
+  public Set<Integer> getOutputStepIds();
 }
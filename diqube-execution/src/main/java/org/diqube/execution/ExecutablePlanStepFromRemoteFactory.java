@@ -55,6 +55,7 @@ import org.diqube.remote.cluster.thrift.RColOrValue;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsOrderCol;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsRowId;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsSample;
 import org.diqube.thrift.base.thrift.RValue;
 import org.diqube.thrift.base.util.RValueUtil;
 import org.diqube.util.ColumnOrValue;
@@ -133,6 +134,13 @@ public class ExecutablePlanStepFromRemoteFactory {
 
   private ExecutablePlanStep createRowIdInequal(ExecutionEnvironment defaultEnv, RExecutionPlanStep remoteStep,
       RowIdComparator comparator) {
+    RowIdInequalStep res = createRowIdInequalStep(defaultEnv, remoteStep, comparator);
+    res.setSample(createSample(remoteStep));
+    return res;
+  }
+
+  private RowIdInequalStep createRowIdInequalStep(ExecutionEnvironment defaultEnv, RExecutionPlanStep remoteStep,
+      RowIdComparator comparator) {
     RExecutionPlanStepDetailsRowId details = remoteStep.getDetailsRowId();
     String colName = details.getColumn().getColName();
 
@@ -162,6 +170,12 @@ public class ExecutablePlanStepFromRemoteFactory {
   }
 
   private ExecutablePlanStep createRowIdEq(ExecutionEnvironment defaultEnv, RExecutionPlanStep remoteStep) {
+    RowIdEqualsStep res = createRowIdEqStep(defaultEnv, remoteStep);
+    res.setSample(createSample(remoteStep));
+    return res;
+  }
+
+  private RowIdEqualsStep createRowIdEqStep(ExecutionEnvironment defaultEnv, RExecutionPlanStep remoteStep) {
     RExecutionPlanStepDetailsRowId details = remoteStep.getDetailsRowId();
     String colName = details.getColumn().getColName();
 
@@ -208,7 +222,33 @@ public class ExecutablePlanStepFromRemoteFactory {
   }
 
   private ExecutablePlanStep createRowIdSink(ExecutionEnvironment defaultEnv, RExecutionPlanStep remoteStep) {
-    return new RowIdSinkStep(remoteStep.getStepId(), queryRegistry, defaultEnv);
+    RowIdSinkStep res = new RowIdSinkStep(remoteStep.getStepId(), queryRegistry, defaultEnv);
+    res.setSample(createSample(remoteStep));
+    return res;
+  }
+
+  /**
+   * @return The {@link RowIdSample} the given step should be restricted to or <code>null</code> if the query is not
+   *         executed on a sample.
+   */
+  private RowIdSample createSample(RExecutionPlanStep remoteStep) {
+    if (!remoteStep.isSetDetailsSample())
+      return null;
+
+    RExecutionPlanStepDetailsSample details = remoteStep.getDetailsSample();
+    if (!(details.getFraction() > 0.) || details.getFraction() > 1.)
+      throw new ExecutablePlanBuildException("Invalid sample fraction: " + details.getFraction());
+
+    RowIdSample.SampleType sampleType;
+    switch (details.getSampleType()) {
+    case PAGES:
+      sampleType = RowIdSample.SampleType.PAGES;
+      break;
+    default:
+      sampleType = RowIdSample.SampleType.ROWS;
+      break;
+    }
+    return new RowIdSample(sampleType, details.getFraction());
   }
 
   private ExecutablePlanStep createResolveColumnDictIds(ExecutionEnvironment defaultEnv,
@@ -0,0 +1,252 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.diqube.execution.steps.RowIdSinkStep;
+import org.diqube.remote.cluster.thrift.RExecutionPlan;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDataType;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsRowId;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepType;
+import org.diqube.thrift.base.thrift.RValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inspects the steps of a {@link RExecutionPlan} that evaluate the WHERE clause of a query on a query remote, i.e. the
+ * tree of ROW_ID_* steps that provide their row IDs to the {@link RExecutionPlanStepType#ROW_ID_SINK}.
+ * 
+ * <p>
+ * This is used to cache the result of the WHERE clause: {@link #createFilterKey(RExecutionPlan)} creates a normalized
+ * key of that tree and {@link #removeFilterSteps(RExecutionPlan)} removes the tree from a plan in case its result is
+ * available in a cache already.
+ *
+ * @author Bastian Gloeckle
+ */
+public class RemoteRowIdFilter {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteRowIdFilter.class);
+
+  /**
+   * Create a normalized key of the WHERE clause of the given plan.
+   * 
+   * <p>
+   * Two plans whose WHERE clauses select the same row IDs because they are built of the same comparisons will receive
+   * the same key, regardless of e.g. the order of the operands of an AND/OR or the step IDs in the plan. If the plan
+   * is executed on a sample of the table, the key contains that sample, as the WHERE clause is then evaluated on the
+   * sampled rows only.
+   * 
+   * @return The key or <code>null</code> if the plan does not contain a WHERE clause or the key cannot be calculated.
+   */
+  public String createFilterKey(RExecutionPlan plan) {
+    Map<Integer, List<RExecutionPlanStep>> rowIdProviders = findRowIdProviders(plan);
+    RExecutionPlanStep root = findRoot(plan, rowIdProviders);
+    if (root == null)
+      return null;
+
+    String key = createKey(root, rowIdProviders);
+    RExecutionPlanStep sink = findSink(plan);
+    if (key != null && sink.isSetDetailsSample())
+      key += "@SAMPLE(" + sink.getDetailsSample().getSampleType().name() + ","
+          + Double.doubleToLongBits(sink.getDetailsSample().getFraction()) + ")";
+    return key;
+  }
+
+  /**
+   * Removes the steps evaluating the WHERE clause from the given plan, together with all steps that only provided data
+   * to those steps (e.g. projections of columns that are used in the WHERE clause only).
+   * 
+   * <p>
+   * After calling this method, the input of the {@link RowIdSinkStep} is not wired anymore.
+   */
+  public void removeFilterSteps(RExecutionPlan plan) {
+    Map<Integer, List<RExecutionPlanStep>> rowIdProviders = findRowIdProviders(plan);
+    RExecutionPlanStep root = findRoot(plan, rowIdProviders);
+    if (root == null)
+      return;
+
+    Set<Integer> stepIdsToRemove = new HashSet<>();
+    Deque<RExecutionPlanStep> filterSteps = new LinkedList<>();
+    filterSteps.add(root);
+    while (!filterSteps.isEmpty()) {
+      RExecutionPlanStep step = filterSteps.poll();
+      if (stepIdsToRemove.add(step.getStepId()) && rowIdProviders.containsKey(step.getStepId()))
+        filterSteps.addAll(rowIdProviders.get(step.getStepId()));
+    }
+
+    // transitively remove all steps which provided data only to steps that are removed.
+    Set<Integer> newStepIdsToRemove = stepIdsToRemove;
+    while (!newStepIdsToRemove.isEmpty()) {
+      Set<Integer> curStepIdsToRemove = newStepIdsToRemove;
+      newStepIdsToRemove = new HashSet<>();
+      for (RExecutionPlanStep step : plan.getSteps()) {
+        if (stepIdsToRemove.contains(step.getStepId()) || !step.isSetProvideDataForSteps()
+            || step.getProvideDataForSteps().isEmpty())
+          continue;
+
+        step.getProvideDataForSteps().keySet().removeAll(curStepIdsToRemove);
+        if (step.getProvideDataForSteps().isEmpty())
+          newStepIdsToRemove.add(step.getStepId());
+      }
+      stepIdsToRemove.addAll(newStepIdsToRemove);
+    }
+
+    logger.trace("Removing following steps from plan because the result of the WHERE clause is available: {}",
+        stepIdsToRemove);
+    plan.getSteps().removeIf(step -> stepIdsToRemove.contains(step.getStepId()));
+  }
+
+  /**
+   * @return Map from step ID to the steps that provide row IDs to that step.
+   */
+  private Map<Integer, List<RExecutionPlanStep>> findRowIdProviders(RExecutionPlan plan) {
+    Map<Integer, List<RExecutionPlanStep>> res = new HashMap<>();
+    for (RExecutionPlanStep step : plan.getSteps()) {
+      if (!step.isSetProvideDataForSteps())
+        continue;
+      for (Entry<Integer, List<RExecutionPlanStepDataType>> targetEntry : step.getProvideDataForSteps().entrySet())
+        if (targetEntry.getValue().contains(RExecutionPlanStepDataType.ROW_ID))
+          res.computeIfAbsent(targetEntry.getKey(), k -> new ArrayList<>()).add(step);
+    }
+    return res;
+  }
+
+  /**
+   * @return The step that provides the final row IDs of the WHERE clause to the ROW_ID_SINK or <code>null</code>.
+   */
+  private RExecutionPlanStep findRoot(RExecutionPlan plan, Map<Integer, List<RExecutionPlanStep>> rowIdProviders) {
+    RExecutionPlanStep sink = findSink(plan);
+    if (sink == null)
+      return null;
+
+    List<RExecutionPlanStep> roots = rowIdProviders.get(sink.getStepId());
+    if (roots == null || roots.size() != 1)
+      return null;
+    return roots.get(0);
+  }
+
+  /**
+   * @return The only {@link RExecutionPlanStepType#ROW_ID_SINK} of the plan or <code>null</code>.
+   */
+  private RExecutionPlanStep findSink(RExecutionPlan plan) {
+    List<RExecutionPlanStep> sinks = plan.getSteps().stream()
+        .filter(step -> step.getType().equals(RExecutionPlanStepType.ROW_ID_SINK)).collect(Collectors.toList());
+    if (sinks.size() != 1)
+      return null;
+    return sinks.get(0);
+  }
+
+  private String createKey(RExecutionPlanStep step, Map<Integer, List<RExecutionPlanStep>> rowIdProviders) {
+    List<RExecutionPlanStep> children = rowIdProviders.getOrDefault(step.getStepId(), Collections.emptyList());
+    switch (step.getType()) {
+    case ROW_ID_EQ:
+    case ROW_ID_GT:
+    case ROW_ID_GT_EQ:
+    case ROW_ID_LT:
+    case ROW_ID_LT_EQ:
+      if (!children.isEmpty() || !step.isSetDetailsRowId())
+        return null;
+      return step.getType().name() + "(" + createLeafKey(step.getDetailsRowId()) + ")";
+    case ROW_ID_NOT:
+      if (children.size() != 1)
+        return null;
+      String childKey = createKey(children.get(0), rowIdProviders);
+      if (childKey == null)
+        return null;
+      return step.getType().name() + "(" + childKey + ")";
+    case ROW_ID_AND:
+    case ROW_ID_OR:
+      if (children.isEmpty())
+        return null;
+      List<String> childKeys = new ArrayList<>();
+      if (!collectChildKeys(step.getType(), children, rowIdProviders, childKeys))
+        return null;
+      Collections.sort(childKeys);
+      return step.getType().name() + "(" + String.join(",", childKeys) + ")";
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Collect the keys of all children of an AND/OR step, flattening nested steps of the same type.
+   * 
+   * @return <code>false</code> if any key could not be calculated.
+   */
+  private boolean collectChildKeys(RExecutionPlanStepType type, List<RExecutionPlanStep> children,
+      Map<Integer, List<RExecutionPlanStep>> rowIdProviders, List<String> res) {
+    for (RExecutionPlanStep child : children) {
+      if (child.getType().equals(type)) {
+        List<RExecutionPlanStep> grandChildren =
+            rowIdProviders.getOrDefault(child.getStepId(), Collections.emptyList());
+        if (grandChildren.isEmpty() || !collectChildKeys(type, grandChildren, rowIdProviders, res))
+          return false;
+      } else {
+        String childKey = createKey(child, rowIdProviders);
+        if (childKey == null)
+          return false;
+        res.add(childKey);
+      }
+    }
+    return true;
+  }
+
+  private String createLeafKey(RExecutionPlanStepDetailsRowId details) {
+    StringBuilder sb = new StringBuilder();
+    appendString(sb, details.getColumn().getColName());
+    if (details.isSetOtherColumn()) {
+      sb.append(",c");
+      appendString(sb, details.getOtherColumn().getColName());
+    } else if (details.isSetSortedValues()) {
+      sb.append(",v[");
+      for (RValue value : details.getSortedValues()) {
+        if (value.isSetStrValue()) {
+          sb.append('s');
+          appendString(sb, value.getStrValue());
+        } else if (value.isSetLongValue())
+          sb.append('l').append(value.getLongValue());
+        else if (value.isSetDoubleValue())
+          sb.append('d').append(Double.doubleToLongBits(value.getDoubleValue()));
+        sb.append(';');
+      }
+      sb.append(']');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Append a string in a way that its end can be identified unambiguously, regardless of the characters it contains.
+   */
+  private void appendString(StringBuilder sb, String s) {
+    sb.append(s.length()).append(':').append(s);
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.execution;
+
+import org.diqube.data.column.ColumnPage;
+import org.diqube.execution.steps.RowIdEqualsStep;
+import org.diqube.execution.steps.RowIdInequalStep;
+import org.diqube.execution.steps.RowIdSinkStep;
+import org.diqube.loader.columnshard.ColumnShardBuilder;
+
+/**
+ * A deterministic sample of the rows of a table shard (TABLESAMPLE).
+ *
+ * <p>
+ * Sampling is deterministic, i.e. executing the same query on the same table shard twice will inspect the same rows.
+ * When sampling {@link SampleType#PAGES}, whole blocks of {@link ColumnShardBuilder#PROPOSAL_ROWS} rows are selected -
+ * these blocks match the {@link ColumnPage}s of the loaded column shards, which means that all selected rows are
+ * located in only few pages. When sampling {@link SampleType#ROWS}, single rows are selected.
+ *
+ * <p>
+ * The sample is applied where the row IDs are created: {@link RowIdEqualsStep} and {@link RowIdInequalStep} skip all
+ * pages that do not contain any sampled row (see {@link #isAnyRowSampled(long, long, long)}) and therefore never
+ * decompress them, the {@link RowIdSinkStep} finally reports only sampled rows.
+ *
+ * @author Bastian Gloeckle
+ */
+public class RowIdSample {
+  /** Number of bits of the hash we compare to the threshold. */
+  private static final int HASH_BITS = 53;
+
+  public static enum SampleType {
+    ROWS, PAGES
+  }
+
+  private SampleType sampleType;
+  private double fraction;
+  private long threshold;
+
+  /**
+   * @param fraction
+   *          Fraction of the rows/pages that should be selected, 0 < fraction <= 1.
+   */
+  public RowIdSample(SampleType sampleType, double fraction) {
+    this.sampleType = sampleType;
+    this.fraction = fraction;
+    this.threshold = (long) (fraction * (1L << HASH_BITS));
+  }
+
+  /**
+   * @param firstRowIdInShard
+   *          The first row ID of the table shard the row belongs to.
+   * @return <code>true</code> if the given row is part of the sample.
+   */
+  public boolean isSampled(long rowId, long firstRowIdInShard) {
+    long key;
+    if (sampleType.equals(SampleType.PAGES))
+      key = pageKey(Math.floorDiv(rowId - firstRowIdInShard, ColumnShardBuilder.PROPOSAL_ROWS), firstRowIdInShard);
+    else
+      key = rowId;
+
+    return isKeySampled(key);
+  }
+
+  /**
+   * Checks if any row of a range of rows (e.g. the rows of a {@link ColumnPage}) is part of the sample. If not, that
+   * range does not need to be inspected at all.
+   * 
+   * @param firstRowIdInShard
+   *          The first row ID of the table shard the rows belong to.
+   */
+  public boolean isAnyRowSampled(long firstRowId, long numberOfRows, long firstRowIdInShard) {
+    if (numberOfRows <= 0)
+      return false;
+
+    if (sampleType.equals(SampleType.PAGES)) {
+      long firstPageIdx = Math.floorDiv(firstRowId - firstRowIdInShard, ColumnShardBuilder.PROPOSAL_ROWS);
+      long lastPageIdx =
+          Math.floorDiv(firstRowId + numberOfRows - 1 - firstRowIdInShard, ColumnShardBuilder.PROPOSAL_ROWS);
+      for (long pageIdx = firstPageIdx; pageIdx <= lastPageIdx; pageIdx++)
+        if (isKeySampled(pageKey(pageIdx, firstRowIdInShard)))
+          return true;
+      return false;
+    }
+
+    for (long rowId = firstRowId; rowId < firstRowId + numberOfRows; rowId++)
+      if (isKeySampled(rowId))
+        return true;
+    return false;
+  }
+
+  public SampleType getSampleType() {
+    return sampleType;
+  }
+
+  public double getFraction() {
+    return fraction;
+  }
+
+  private long pageKey(long pageIdx, long firstRowIdInShard) {
+    // include the first row ID to not select the same page indices in every table shard.
+    return firstRowIdInShard ^ Long.rotateLeft(pageIdx, 32);
+  }
+
+  private boolean isKeySampled(long key) {
+    return (mix(key) >>> (64 - HASH_BITS)) < threshold;
+  }
+
+  /**
+   * Finalization function of MurmurHash3, distributes the bits of the input evenly.
+   */
+  private static long mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  @Override
+  public String toString() {
+    return sampleType + "(" + fraction + ")";
+  }
+}
@@ -64,6 +64,15 @@ public abstract class AbstractPlanStepBasedGenericConsumer implements GenericCon
 
   abstract protected void allSourcesAreDone();
 
+  /**
+   * Record that this consumer received the given number of rows (row IDs, values, ...) for the statistics of the
+   * query.
+   */
+  protected void recordConsumedRows(long numberOfRows) {
+    if (planStep != null)
+      planStep.inputRowsConsumed(numberOfRows);
+  }
+
   @Override
   public String toString() {
     return this.getClass().getSimpleName() + "[destinationPlanStepId=" + getDestinationPlanStepId() + "]";
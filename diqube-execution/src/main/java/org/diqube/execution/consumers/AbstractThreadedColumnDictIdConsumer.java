@@ -41,6 +41,7 @@ public abstract class AbstractThreadedColumnDictIdConsumer extends AbstractPlanS
 
   @Override
   public void consume(ExecutionEnvironment env, String colName, Map<Long, Long> rowIdToColumnDictId) {
+    recordConsumedRows(rowIdToColumnDictId.size());
     doConsume(env, colName, rowIdToColumnDictId);
     if (planStep != null)
       planStep.continueProcessing();
@@ -37,6 +37,7 @@ public abstract class AbstractThreadedColumnValueConsumer extends AbstractPlanSt
 
   @Override
   public void consume(String colName, Map<Long, Object> values) {
+    recordConsumedRows(values.size());
     doConsume(colName, values);
     if (planStep != null)
       planStep.continueProcessing();
@@ -41,6 +41,7 @@ public abstract class AbstractThreadedGroupConsumer extends AbstractPlanStepBase
 
   @Override
   public void consumeGroups(Map<Long, List<Long>> fullGroups) {
+    recordConsumedRows(fullGroups.values().stream().mapToLong(rowIds -> rowIds.size()).sum());
     doConsumeGroups(fullGroups);
     if (planStep != null)
       planStep.continueProcessing();
@@ -41,6 +41,7 @@ public abstract class AbstractThreadedGroupDeltaConsumer extends AbstractPlanSte
 
   @Override
   public void consumeGroupDeltas(Map<Long, List<Long>> lastChangedGroups) {
+    recordConsumedRows(lastChangedGroups.values().stream().mapToLong(rowIds -> rowIds.size()).sum());
     doConsumeGroupDeltas(lastChangedGroups);
     if (planStep != null)
       planStep.continueProcessing();
@@ -35,6 +35,7 @@ public abstract class AbstractThreadedGroupFinalAggregationConsumer extends Abst
 
   @Override
   public void consumeAggregationResult(long groupId, String colName, Object result) {
+    recordConsumedRows(1);
     doConsumeAggregationResult(groupId, colName, result);
     if (planStep != null)
       planStep.continueProcessing();
@@ -37,6 +37,7 @@ public abstract class AbstractThreadedGroupIntermediaryAggregationConsumer exten
   @Override
   public void consumeIntermediaryAggregationResult(long groupId, String colName,
       IntermediaryResult oldIntermediaryResult, IntermediaryResult newIntermediaryResult) {
+    recordConsumedRows(1);
     doConsumeIntermediaryAggregationResult(groupId, colName, oldIntermediaryResult, newIntermediaryResult);
     if (planStep != null)
       planStep.continueProcessing();
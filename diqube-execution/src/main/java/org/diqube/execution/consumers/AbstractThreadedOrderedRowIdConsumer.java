@@ -40,6 +40,7 @@ public abstract class AbstractThreadedOrderedRowIdConsumer extends AbstractPlanS
 
   @Override
   public void consumeOrderedRowIds(List<Long> rowIds) {
+    recordConsumedRows(rowIds.size());
     doConsumeOrderedRowIds(rowIds);
     if (planStep != null)
       planStep.continueProcessing();
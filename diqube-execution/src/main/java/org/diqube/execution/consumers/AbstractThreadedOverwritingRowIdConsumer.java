@@ -39,6 +39,7 @@ public abstract class AbstractThreadedOverwritingRowIdConsumer extends AbstractP
 
   @Override
   public void consume(ExecutionEnvironment env, Long[] rowIds) {
+    recordConsumedRows(rowIds.length);
     doConsume(env, rowIds);
     if (planStep != null)
       planStep.continueProcessing();
@@ -38,6 +38,7 @@ public abstract class AbstractThreadedRowIdConsumer extends AbstractPlanStepBase
 
   @Override
   public void consume(Long[] rowIds) {
+    recordConsumedRows(rowIds.length);
     doConsume(rowIds);
     if (planStep != null)
       planStep.continueProcessing();
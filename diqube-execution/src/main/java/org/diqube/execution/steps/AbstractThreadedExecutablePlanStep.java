@@ -20,9 +20,13 @@
  */
 package org.diqube.execution.steps;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,8 +40,11 @@ import org.diqube.execution.consumers.GenericConsumer;
 import org.diqube.execution.exception.ExecutablePlanBuildException;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.queries.QueryRegistry;
+import org.diqube.queries.QueryStatsManager;
 import org.diqube.queries.QueryUuid;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
+import org.diqube.queries.memory.MemoryBudgetExceededException;
+import org.diqube.queries.memory.QueryMemoryTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +64,11 @@ import org.slf4j.LoggerFactory;
  * that is processing this step (done automatically by {@link AbstractPlanStepBasedGenericConsumer}). This will in turn
  * call the {@link #execute()} method in this steps thread which can then process the new data that is available in the
  * thread-safe field of the step object.
+ * 
+ * <p>
+ * While executing, the step collects statistics about itself in the {@link QueryStatsManager} of the query: the time
+ * its thread was active or waiting for new data, the bytes its thread allocated and the number of rows it received
+ * and provided. While the step is active, {@link QueryUuid#getCurrentStepId()} returns the ID of the step.
  *
  * @author Bastian Gloeckle
  */
@@ -66,6 +78,13 @@ public abstract class AbstractThreadedExecutablePlanStep implements ExecutablePl
 
   private static final Logger logger = LoggerFactory.getLogger(AbstractThreadedExecutablePlanStep.class);
 
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private static final boolean ALLOCATION_MEASUREMENT_SUPPORTED =
+      THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+          && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+
   protected Object sync = new Object();
 
   protected List<GenericConsumer> outputConsumers = new LinkedList<>();
@@ -110,26 +129,38 @@ public abstract class AbstractThreadedExecutablePlanStep implements ExecutablePl
 
   @Override
   public void run() {
-    queryUuidThreadState = QueryUuid.getCurrentThreadState();
-    validateWiredStatus();
-    while (!doneProcessing.get()) {
-      numberOfEventsNotProcessed.set(0);
-
-      long startNanos = System.nanoTime();
-      currentlyMeasuringTime = true;
-      execute();
-      long endNanos = System.nanoTime();
-      currentlyMeasuringTime = false;
-
-      long activeMs = (long) ((endNanos - startNanos) / 1e6);
-
-      queryRegistry.getOrCreateCurrentStatsManager().addStepThreadActiveMs(stepId, activeMs);
-
-      if (doneProcessing.get())
-        break;
-      waitForNewData();
-      if (doneProcessing.get())
-        break;
+    QueryUuid.setCurrentStepId(stepId);
+    try {
+      queryUuidThreadState = QueryUuid.getCurrentThreadState();
+      validateWiredStatus();
+      while (!doneProcessing.get()) {
+        numberOfEventsNotProcessed.set(0);
+
+        long startAllocatedBytes = currentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        currentlyMeasuringTime = true;
+        execute();
+        long endNanos = System.nanoTime();
+        currentlyMeasuringTime = false;
+        long allocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
+
+        long activeMs = (long) ((endNanos - startNanos) / 1e6);
+
+        QueryStatsManager statsManager = queryRegistry.getOrCreateCurrentStatsManager();
+        statsManager.addStepThreadActiveMs(stepId, activeMs);
+        statsManager.addStepAllocatedBytes(stepId, allocatedBytes);
+
+        if (doneProcessing.get())
+          break;
+        long startWaitingNanos = System.nanoTime();
+        waitForNewData();
+        long waitingMs = (long) ((System.nanoTime() - startWaitingNanos) / 1e6);
+        queryRegistry.getOrCreateCurrentStatsManager().addStepWaitingMs(stepId, waitingMs);
+        if (doneProcessing.get())
+          break;
+      }
+    } finally {
+      QueryUuid.setCurrentStepId(null);
     }
   }
 
@@ -179,29 +210,77 @@ public abstract class AbstractThreadedExecutablePlanStep implements ExecutablePl
   /**
    * Do something for all Output consumers of a specific type.
    * 
-   * Statistics will not cover the time spent in the consumers as "active time" for this step.
+   * Statistics will not cover the time spent in the consumers as "active time" for this step, the same holds for the
+   * memory allocated by the consumers.
    */
   @SuppressWarnings("unchecked")
   protected <T extends GenericConsumer> void forEachOutputConsumerOfType(Class<? extends T> type,
       Consumer<T> consumer) {
+    long startAllocatedBytes = currentThreadAllocatedBytes();
     long start = System.nanoTime();
     for (GenericConsumer outputConsumer : outputConsumers) {
       if (type.isInstance(outputConsumer))
         consumer.accept((T) outputConsumer);
     }
     long end = System.nanoTime();
+    long nonActiveAllocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
     if (queryUuidThreadState != null && currentlyMeasuringTime) {
       QueryUuidThreadState backupState = QueryUuid.getCurrentThreadState();
       try {
         QueryUuid.setCurrentThreadState(queryUuidThreadState);
         long nonActiveMs = (long) ((end - start) / 1e6);
-        queryRegistry.getOrCreateCurrentStatsManager().addStepThreadActiveMs(stepId, -1 * nonActiveMs);
+        QueryStatsManager statsManager = queryRegistry.getOrCreateCurrentStatsManager();
+        statsManager.addStepThreadActiveMs(stepId, -1 * nonActiveMs);
+        statsManager.addStepAllocatedBytes(stepId, -1 * nonActiveAllocatedBytes);
       } finally {
         QueryUuid.setCurrentThreadState(backupState);
       }
     }
   }
 
+  /**
+   * Records the given number of rows that have been received by one of the input consumers of this step in the
+   * statistics of the query.
+   * 
+   * <p>
+   * This is typically called by the input consumers on the thread of the step that provided the rows - those rows are
+   * then recorded as output rows of that step, too.
+   */
+  public void inputRowsConsumed(long numberOfRows) {
+    if (queryRegistry == null || QueryUuid.getCurrentQueryUuid() == null || QueryUuid.getCurrentExecutionUuid() == null)
+      return;
+
+    QueryStatsManager statsManager = queryRegistry.getOrCreateCurrentStatsManager();
+    statsManager.addStepRowsIn(stepId, numberOfRows);
+    Integer sourceStepId = QueryUuid.getCurrentStepId();
+    if (sourceStepId != null)
+      statsManager.addStepRowsOut(sourceStepId, numberOfRows);
+  }
+
+  /**
+   * Accounts memory that this step is about to hold in its intermediate data structures to the current query
+   * execution, see {@link QueryMemoryTracker}.
+   * 
+   * @throws MemoryBudgetExceededException
+   *           If the memory budget of this node is used up, which makes the query fail.
+   */
+  protected void allocateMemory(long bytes) throws MemoryBudgetExceededException {
+    if (queryRegistry == null || QueryUuid.getCurrentQueryUuid() == null || QueryUuid.getCurrentExecutionUuid() == null)
+      return;
+
+    queryRegistry.getOrCreateCurrentMemoryTracker().allocate(bytes);
+  }
+
+  /**
+   * Frees memory that was accounted using {@link #allocateMemory(long)} before.
+   */
+  protected void freeMemory(long bytes) {
+    if (queryRegistry == null || QueryUuid.getCurrentQueryUuid() == null || QueryUuid.getCurrentExecutionUuid() == null)
+      return;
+
+    queryRegistry.getOrCreateCurrentMemoryTracker().free(bytes);
+  }
+
   protected boolean existsOutputConsumerOfType(Class<? extends GenericConsumer> type) {
     for (GenericConsumer outputConsumer : outputConsumers) {
       if (type.isInstance(outputConsumer))
@@ -301,4 +380,22 @@ public abstract class AbstractThreadedExecutablePlanStep implements ExecutablePl
     return getAdditionalToStringDetails();
   }
 
+  @Override
+  public Set<Integer> getOutputStepIds() {
+    Set<Integer> res = new HashSet<>();
+    for (GenericConsumer outputConsumer : outputConsumers)
+      if (outputConsumer.getDestinationPlanStepId() != null)
+        res.add(outputConsumer.getDestinationPlanStepId());
+    return res;
+  }
+
+  /**
+   * @return Number of bytes allocated by the current thread so far or 0 if that is not supported by the JVM.
+   */
+  private static long currentThreadAllocatedBytes() {
+    if (!ALLOCATION_MEASUREMENT_SUPPORTED)
+      return 0L;
+    return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
 }
@@ -43,7 +43,7 @@ import org.diqube.execution.consumers.GenericConsumer;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.executionenv.VersionedExecutionEnvironment;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
-import org.diqube.loader.columnshard.SparseColumnShardBuilder;
+import org.diqube.loader.columnshard.IntermediaryColumnShardBuilder;
 import org.diqube.queries.QueryRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +59,10 @@ import com.google.common.collect.Iterables;
  * possible with intermediate {@link ExecutionEnvironment}s containing the built column.
  * 
  * <p>
+ * The column versions are built using an {@link IntermediaryColumnShardBuilder}, which means that only the parts of the
+ * column that contain updated rows need to be built again for each new version.
+ * 
+ * <p>
  * Input: 1 {@link ColumnValueConsumer}<br>
  * Output: {@link ColumnBuiltConsumer} and {@link ColumnVersionBuiltConsumer}
  *
@@ -73,12 +77,11 @@ public class BuildColumnFromValuesStep extends AbstractThreadedExecutablePlanSte
   private AtomicBoolean sourceIsDone = new AtomicBoolean(false);
 
   private Object columnSync = new Object();
-  /** All values of the column we're interested in, keyed by rowId. Sync access with {@link #columnSync}. */
-  private Map<Long, Object> columnValues = new HashMap<>();
   /**
-   * Those rowIds that have been updated since the last run of {@link #execute()}. Sync access with {@link #columnSync}.
+   * The values of the column we're interested in that have been updated since the last run of {@link #execute()}, keyed
+   * by rowId. Sync access with {@link #columnSync}.
    */
-  private Set<Long> updatedRowIds = new HashSet<Long>();
+  private Map<Long, Object> updatedValues = new HashMap<>();
   /** <code>true</code> if there was at least one update for our col since the last run of {@link #execute()} */
   private AtomicBoolean atLeastOneInterestingUpdate = new AtomicBoolean(false);
 
@@ -94,8 +97,7 @@ public class BuildColumnFromValuesStep extends AbstractThreadedExecutablePlanSte
         return;
 
       synchronized (columnSync) {
-        columnValues.putAll(values);
-        updatedRowIds.addAll(values.keySet());
+        updatedValues.putAll(values);
         atLeastOneInterestingUpdate.set(true);
       }
     }
@@ -107,6 +109,9 @@ public class BuildColumnFromValuesStep extends AbstractThreadedExecutablePlanSte
 
   private ColumnVersionManager columnVersionManager;
 
+  /** Holds all values of the column. Only accessed by {@link #execute()}. */
+  private IntermediaryColumnShardBuilder columnShardBuilder;
+
   public BuildColumnFromValuesStep(int stepId, QueryRegistry queryRegistry, ExecutionEnvironment defaultEnv,
       String colName, ColumnShardBuilderFactory columnShardBuilderFactory, ColumnVersionManager columnVersionManager) {
     super(stepId, queryRegistry);
@@ -136,34 +141,29 @@ public class BuildColumnFromValuesStep extends AbstractThreadedExecutablePlanSte
     if (intermediateRun && !atLeastOneInterestingUpdate.get())
       return;
 
-    Map<Long, Object> values;
-    Set<Long> curUpdatedRowIds;
+    Map<Long, Object> curUpdatedValues;
     synchronized (columnSync) {
       atLeastOneInterestingUpdate.set(false);
 
-      if (columnValues == null || columnValues.isEmpty()) {
-        if (!intermediateRun) {
-          // source is done but we did not receive any data. Do not build column, just report "done".
-          forEachOutputConsumerOfType(GenericConsumer.class, c -> c.sourceIsDone());
-          doneProcessing();
-          return;
-        }
-        return;
-      }
+      curUpdatedValues = updatedValues;
+      updatedValues = new HashMap<>();
+    }
 
-      values = new HashMap<Long, Object>(columnValues);
+    if (columnShardBuilder == null)
+      columnShardBuilder = columnShardBuilderFactory.createIntermediaryColumnShardBuilder(colName);
+    columnShardBuilder.withValues(curUpdatedValues);
 
-      curUpdatedRowIds = updatedRowIds;
-      updatedRowIds = new HashSet<>();
+    if (columnShardBuilder.isEmpty()) {
+      if (!intermediateRun) {
+        // source is done but we did not receive any data. Do not build column, just report "done".
+        forEachOutputConsumerOfType(GenericConsumer.class, c -> c.sourceIsDone());
+        doneProcessing();
+      }
+      return;
     }
-    long numberOfRows = values.keySet().stream().max(Long::compare).get() + 1;
-
-    SparseColumnShardBuilder<Object> columnShardBuilder =
-        columnShardBuilderFactory.createSparseColumnShardBuilder(colName);
 
-    columnShardBuilder.withValues(values);
-    columnShardBuilder.withNumberOfRows(numberOfRows);
-    ColumnShard newColumn = columnShardBuilder.build();
+    ColumnShard newColumn = columnShardBuilder.build(!intermediateRun);
+    Set<Long> curUpdatedRowIds = new HashSet<>(curUpdatedValues.keySet());
 
     // inform ColumnVersionBuiltConsumers
     if (existsOutputConsumerOfType(ColumnVersionBuiltConsumer.class)) {
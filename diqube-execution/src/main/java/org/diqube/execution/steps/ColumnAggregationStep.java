@@ -35,6 +35,8 @@ import java.util.stream.LongStream;
 
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
+import org.diqube.data.dictionary.Dictionary;
 import org.diqube.data.types.dbl.DoubleColumnShard;
 import org.diqube.data.types.lng.LongColumnShard;
 import org.diqube.data.types.str.StringColumnShard;
@@ -46,12 +48,16 @@ import org.diqube.execution.exception.ExecutablePlanBuildException;
 import org.diqube.execution.exception.ExecutablePlanExecutionException;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.executionenv.querystats.QueryableColumnShard;
+import org.diqube.executionenv.querystats.QueryableLongColumnShard;
 import org.diqube.executionenv.util.ColumnPatternUtil;
 import org.diqube.executionenv.util.ColumnPatternUtil.ColumnPatternContainer;
 import org.diqube.executionenv.util.ColumnPatternUtil.LengthColumnMissingException;
 import org.diqube.function.AggregationFunction;
 import org.diqube.function.AggregationFunction.ValueProvider;
+import org.diqube.function.BatchAggregationFunction;
+import org.diqube.function.BatchAggregationFunction.Batch;
 import org.diqube.function.FunctionFactory;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.loader.LoaderColumnInfo;
 import org.diqube.loader.columnshard.ColumnShardBuilder;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
@@ -59,6 +65,7 @@ import org.diqube.loader.columnshard.ColumnShardBuilderManager;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.queries.QueryUuid;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
+import org.diqube.util.PrimitiveUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +78,16 @@ import com.google.common.collect.Iterables;
  * aggregate values of multiple rows. Therefore this can be fully executed on query remotes.
  * 
  * <p>
+ * If the input column is stored natively as {@link RepeatedColumnShard} in the table shard, the values of each row are
+ * read directly from that column instead of resolving the columns of all single array indices.
+ * 
+ * <p>
+ * Functions that implement {@link BatchAggregationFunction} aggregate the values of a whole batch of rows at once on
+ * primitive arrays, if the input pattern contains a single [*] only or the column is a {@link RepeatedColumnShard}.
+ * Other functions are instantiated once per batch and re-used for each row if they implement
+ * {@link ResettableAggregationFunction}.
+ * 
+ * <p>
  * Input: 1 optional {@link ColumnBuiltConsumer}, <br>
  * Output: {@link ColumnBuiltConsumer}
  *
@@ -131,6 +148,12 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
   protected void execute() {
     boolean lastRun = allColumnsAreBuilt.get();
 
+    RepeatedColumnShard repeatedCol = defaultEnv.getRepeatedColumnShard(inputColumnNamePattern);
+    if (repeatedCol != null) {
+      executeOnRepeatedColumn(repeatedCol);
+      return;
+    }
+
     // validate if all "length" columns are available and all [index] columns, too - we do this by looking for all
     // columns with all indices that are contained in the length columns (= the maximum).
     Set<String> allColNames;
@@ -179,6 +202,11 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
     ColumnShardBuilderManager colShardBuilderManager =
         columnShardBuilderManagerSupplier.apply(tmpFunction.getOutputType());
 
+    if (isBatchable(tmpFunction, inputColType) && columnPatternContainer.isSingleRepetition()) {
+      executeBatched(columnPatternContainer, inputColType, colShardBuilderManager);
+      return;
+    }
+
     long lastRowIdInShard = defaultEnv.getLastRowIdInShard();
     final Map<String, Integer> finalAllColNames = new HashMap<>();
     int tmp = 0;
@@ -220,6 +248,7 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
 
               logger.trace("Starting to apply aggregation function to all rows in batch {}", firstRowId);
               Object[] resValueArray = null;
+              AggregationFunction<Object, Object> aggFunction = null;
               for (long rowId = firstRowId; rowId < firstRowId + BATCH_SIZE && rowId <= lastRowIdInShard; rowId++) {
 
                 // Ok, lets work on this single row. Let's first find all the column names that are important for this
@@ -228,11 +257,7 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
                 final long finalRowId = rowId;
                 Set<String> colNamesForCurRow = finalColumnPatternContainer.getColumnPatternsSinglePattern(finalRowId);
 
-                AggregationFunction<Object, Object> aggFunction =
-                    functionFactory.createAggregationFunction(functionNameLowerCase, inputColType);
-
-                for (int i = 0; i < constantFunctionParameters.size(); i++)
-                  aggFunction.provideConstantParameter(i, constantFunctionParameters.get(i));
+                aggFunction = functionForNextRow(aggFunction, inputColType);
 
                 // add the values to the aggregation, resolve them using the pre-computed arrays from above.
                 aggFunction.addValues(new ValueProvider<Object>() {
@@ -258,7 +283,7 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
 
                   @Override
                   public boolean isFinalSetOfValues() {
-                    return true; // we will not use this AggregationFunction object again.
+                    return true; // there will not be any more values for this row.
                   }
                 });
 
@@ -286,6 +311,305 @@ public class ColumnAggregationStep extends AbstractThreadedExecutablePlanStep {
 
     QueryUuid.setCurrentThreadState(uuidState);
 
+    buildOutputColumn(colShardBuilderManager);
+  }
+
+  /**
+   * Executes the aggregation on a {@link RepeatedColumnShard}, which holds the values of all entries of a row
+   * consecutively.
+   */
+  private void executeOnRepeatedColumn(RepeatedColumnShard repeatedCol) {
+    logger.trace("Starting to column aggregate natively repeated column {} with output col {}", repeatedCol.getName(),
+        outputColName);
+
+    ColumnType inputColType = repeatedCol.getColumnType();
+    AggregationFunction<Object, Object> tmpFunction =
+        functionFactory.createAggregationFunction(functionNameLowerCase, inputColType);
+
+    if (tmpFunction == null)
+      throw new ExecutablePlanExecutionException(
+          "Cannot find function '" + functionNameLowerCase + "' with input data type " + inputColType);
+
+    Class<?> valueClass;
+    switch (inputColType) {
+    case STRING:
+      valueClass = String.class;
+      break;
+    case LONG:
+      valueClass = Long.class;
+      break;
+    default:
+      valueClass = Double.class;
+      break;
+    }
+
+    ColumnShardBuilderManager colShardBuilderManager =
+        columnShardBuilderManagerSupplier.apply(tmpFunction.getOutputType());
+
+    long firstRowIdInShard = repeatedCol.getFirstRowId();
+    long lastRowIdInShard = firstRowIdInShard + repeatedCol.getNumberOfRows() - 1;
+    boolean batchable = isBatchable(tmpFunction, inputColType);
+
+    QueryUuidThreadState uuidState = QueryUuid.getCurrentThreadState();
+    LongStream.rangeClosed(firstRowIdInShard, lastRowIdInShard). //
+        parallel().filter(l -> (l - firstRowIdInShard) % BATCH_SIZE == 0).forEach(firstRowId -> {
+          QueryUuid.setCurrentThreadState(uuidState);
+          try {
+            int batchLength = (int) Math.min(BATCH_SIZE, lastRowIdInShard - firstRowId + 1);
+            long lastRowId = firstRowId + batchLength - 1;
+
+            // the values of all rows of the batch are stored consecutively, resolve them all at once.
+            long firstValueIdx = repeatedCol.getFirstValueIndex(firstRowId);
+            int numberOfValues =
+                (int) (repeatedCol.getFirstValueIndex(lastRowId) + repeatedCol.getLength(lastRowId) - firstValueIdx);
+
+            if (batchable) {
+              int[] lengths = new int[batchLength];
+              int[] offsets = new int[batchLength];
+              int maxLength = 0;
+              for (int i = 0; i < batchLength; i++) {
+                lengths[i] = repeatedCol.getLength(firstRowId + i);
+                offsets[i] = (int) (repeatedCol.getFirstValueIndex(firstRowId + i) - firstValueIdx);
+                maxLength = Math.max(maxLength, lengths[i]);
+              }
+
+              long[] columnValueIds = repeatedCol.resolveColumnValueIds(firstValueIdx, numberOfValues);
+              Dictionary<?> dict = repeatedCol.getValues().getColumnShardDictionary();
+
+              // re-arrange the primitive values to be indexed by array index first.
+              Batch batch = new Batch(batchLength, lengths);
+              if (inputColType.equals(ColumnType.LONG)) {
+                long[] values = decompressLongValues(dict, columnValueIds);
+                long[][] valuesByIndex = new long[maxLength][batchLength];
+                for (int i = 0; i < batchLength; i++)
+                  for (int idx = 0; idx < lengths[i]; idx++)
+                    valuesByIndex[idx][i] = values[offsets[i] + idx];
+                batch.setLongValues(valuesByIndex);
+              } else {
+                double[] values = decompressDoubleValues(dict, columnValueIds);
+                double[][] valuesByIndex = new double[maxLength][batchLength];
+                for (int i = 0; i < batchLength; i++)
+                  for (int idx = 0; idx < lengths[i]; idx++)
+                    valuesByIndex[idx][i] = values[offsets[i] + idx];
+                batch.setDoubleValues(valuesByIndex);
+              }
+
+              aggregateBatch(inputColType, batch, firstRowId, colShardBuilderManager);
+              return;
+            }
+
+            Object[] values = (numberOfValues > 0) ? repeatedCol.resolveValues(firstValueIdx, numberOfValues)
+                : (Object[]) Array.newInstance(valueClass, 0);
+
+            Object[] resValueArray = null;
+            AggregationFunction<Object, Object> aggFunction = null;
+            for (int i = 0; i < batchLength; i++) {
+              long rowId = firstRowId + i;
+              int length = repeatedCol.getLength(rowId);
+              int offset = (int) (repeatedCol.getFirstValueIndex(rowId) - firstValueIdx);
+
+              aggFunction = functionForNextRow(aggFunction, inputColType);
+
+              aggFunction.addValues(new ValueProvider<Object>() {
+                @Override
+                public Object[] getValues() {
+                  Object[] res = (Object[]) Array.newInstance(valueClass, length);
+                  System.arraycopy(values, offset, res, 0, length);
+                  return res;
+                }
+
+                @Override
+                public long size() {
+                  return length;
+                }
+
+                @Override
+                public boolean isFinalSetOfValues() {
+                  return true; // there will not be any more values for this row.
+                }
+              });
+
+              Object resValue = aggFunction.calculate();
+
+              if (resValueArray == null)
+                resValueArray = (Object[]) Array.newInstance(resValue.getClass(), batchLength);
+
+              resValueArray[i] = resValue;
+            }
+
+            colShardBuilderManager.addValues(outputColName, resValueArray, firstRowId);
+          } finally {
+            QueryUuid.clearCurrent();
+          }
+        });
+
+    QueryUuid.setCurrentThreadState(uuidState);
+
+    buildOutputColumn(colShardBuilderManager);
+  }
+
+  /**
+   * Executes the aggregation on a single repetition (e.g. "a[*].b") using a {@link BatchAggregationFunction}: The
+   * values of each array index are resolved for a whole batch of rows at once and the function aggregates all rows of
+   * the batch in a single call.
+   */
+  private void executeBatched(ColumnPatternContainer columnPatternContainer, ColumnType inputColType,
+      ColumnShardBuilderManager colShardBuilderManager) {
+    QueryableLongColumnShard lengthCol;
+    try {
+      lengthCol = columnPatternContainer.getLengthColumnSingleRepetition();
+    } catch (LengthColumnMissingException e) {
+      // cannot happen, as the container was initialized successfully.
+      throw new ExecutablePlanExecutionException("Length column not available", e);
+    }
+    List<String> colNamesByIndex = columnPatternContainer.getMaximumColumnNamesByIndexSingleRepetition();
+    long firstRowIdInShard = defaultEnv.getFirstRowIdInShard();
+    long lastRowIdInShard = defaultEnv.getLastRowIdInShard();
+
+    QueryUuidThreadState uuidState = QueryUuid.getCurrentThreadState();
+    LongStream.rangeClosed(firstRowIdInShard, lastRowIdInShard). //
+        parallel().filter(l -> (l - firstRowIdInShard) % BATCH_SIZE == 0).forEach(firstRowId -> {
+          QueryUuid.setCurrentThreadState(uuidState);
+          try {
+            int batchLength = (int) Math.min(BATCH_SIZE, lastRowIdInShard - firstRowId + 1);
+
+            long[] lengthValues = decompressLongValues(lengthCol.getColumnShardDictionary(),
+                lengthCol.resolveColumnValueIdsForRowRange(firstRowId, batchLength));
+            int[] lengths = new int[batchLength];
+            int maxLength = 0;
+            for (int i = 0; i < batchLength; i++) {
+              lengths[i] = (int) lengthValues[i];
+              maxLength = Math.max(maxLength, lengths[i]);
+            }
+
+            // only resolve the index columns that are actually needed by any row of this batch.
+            Batch batch = new Batch(batchLength, lengths);
+            if (inputColType.equals(ColumnType.LONG)) {
+              long[][] valuesByIndex = new long[maxLength][];
+              for (int idx = 0; idx < maxLength; idx++) {
+                QueryableColumnShard colShard = defaultEnv.getColumnShard(colNamesByIndex.get(idx));
+                valuesByIndex[idx] = decompressLongValues(colShard.getColumnShardDictionary(),
+                    colShard.resolveColumnValueIdsForRowRange(firstRowId, batchLength));
+              }
+              batch.setLongValues(valuesByIndex);
+            } else {
+              double[][] valuesByIndex = new double[maxLength][];
+              for (int idx = 0; idx < maxLength; idx++) {
+                QueryableColumnShard colShard = defaultEnv.getColumnShard(colNamesByIndex.get(idx));
+                valuesByIndex[idx] = decompressDoubleValues(colShard.getColumnShardDictionary(),
+                    colShard.resolveColumnValueIdsForRowRange(firstRowId, batchLength));
+              }
+              batch.setDoubleValues(valuesByIndex);
+            }
+
+            aggregateBatch(inputColType, batch, firstRowId, colShardBuilderManager);
+          } finally {
+            QueryUuid.clearCurrent();
+          }
+        });
+
+    QueryUuid.setCurrentThreadState(uuidState);
+
+    buildOutputColumn(colShardBuilderManager);
+  }
+
+  /**
+   * Aggregates a batch of rows using a single {@link BatchAggregationFunction} and adds the results to the
+   * {@link ColumnShardBuilderManager} using its primitive paths.
+   *
+   * @param batch
+   *          The batch containing the lengths and the primitive values of the rows, values indexed by array index first
+   *          and row second. Entries of rows whose length is not greater than the array index are ignored.
+   */
+  private void aggregateBatch(ColumnType inputColType, Batch batch, long firstRowId,
+      ColumnShardBuilderManager colShardBuilderManager) {
+    BatchAggregationFunction<Object, Object> aggFunction =
+        (BatchAggregationFunction<Object, Object>) createFunction(inputColType);
+
+    aggFunction.aggregateBatch(batch);
+
+    if (aggFunction.getOutputType().equals(ColumnType.LONG))
+      colShardBuilderManager.addValues(outputColName, batch.getLongResults(), batch.getNumberOfRows(), firstRowId);
+    else
+      colShardBuilderManager.addValues(outputColName, batch.getDoubleResults(), batch.getNumberOfRows(), firstRowId);
+  }
+
+  /**
+   * Decompresses column value IDs of a {@link ColumnType#LONG} column into a primitive array. Each distinct column
+   * value ID is decompressed only once. Negative IDs (= rows not available in the column) resolve to 0.
+   */
+  private long[] decompressLongValues(Dictionary<?> columnDict, long[] columnValueIds) {
+    long[] distinctIds = LongStream.of(columnValueIds).filter(id -> id >= 0).sorted().distinct().toArray();
+    Object[] distinctValues = columnDict.decompressValues(PrimitiveUtils.toBoxedArray(distinctIds));
+    long[] distinctLongValues = new long[distinctValues.length];
+    for (int i = 0; i < distinctValues.length; i++)
+      distinctLongValues[i] = (Long) distinctValues[i];
+
+    long[] res = new long[columnValueIds.length];
+    for (int i = 0; i < columnValueIds.length; i++)
+      if (columnValueIds[i] >= 0)
+        res[i] = distinctLongValues[Arrays.binarySearch(distinctIds, columnValueIds[i])];
+    return res;
+  }
+
+  /**
+   * Decompresses column value IDs of a {@link ColumnType#DOUBLE} column into a primitive array, see
+   * {@link #decompressLongValues(Dictionary, long[])}.
+   */
+  private double[] decompressDoubleValues(Dictionary<?> columnDict, long[] columnValueIds) {
+    long[] distinctIds = LongStream.of(columnValueIds).filter(id -> id >= 0).sorted().distinct().toArray();
+    Object[] distinctValues = columnDict.decompressValues(PrimitiveUtils.toBoxedArray(distinctIds));
+    double[] distinctDoubleValues = new double[distinctValues.length];
+    for (int i = 0; i < distinctValues.length; i++)
+      distinctDoubleValues[i] = (Double) distinctValues[i];
+
+    double[] res = new double[columnValueIds.length];
+    for (int i = 0; i < columnValueIds.length; i++)
+      if (columnValueIds[i] >= 0)
+        res[i] = distinctDoubleValues[Arrays.binarySearch(distinctIds, columnValueIds[i])];
+    return res;
+  }
+
+  /**
+   * @return true if the given function can aggregate the values of multiple rows at once, see
+   *         {@link BatchAggregationFunction}.
+   */
+  private boolean isBatchable(AggregationFunction<Object, Object> function, ColumnType inputColType) {
+    return function instanceof BatchAggregationFunction && !inputColType.equals(ColumnType.STRING);
+  }
+
+  /**
+   * Create a new instance of the aggregation function and provide the constant parameters.
+   */
+  private AggregationFunction<Object, Object> createFunction(ColumnType inputColType) {
+    AggregationFunction<Object, Object> res =
+        functionFactory.createAggregationFunction(functionNameLowerCase, inputColType);
+    for (int i = 0; i < constantFunctionParameters.size(); i++)
+      res.provideConstantParameter(i, constantFunctionParameters.get(i));
+    return res;
+  }
+
+  /**
+   * Returns the aggregation function to use for the next row. If the function of the previous row is a
+   * {@link ResettableAggregationFunction}, that instance is reset and re-used, otherwise a new instance is created.
+   *
+   * @param previousFunction
+   *          The function used for the previous row or <code>null</code>.
+   */
+  private AggregationFunction<Object, Object> functionForNextRow(AggregationFunction<Object, Object> previousFunction,
+      ColumnType inputColType) {
+    if (previousFunction instanceof ResettableAggregationFunction) {
+      ((ResettableAggregationFunction<Object, Object>) previousFunction).reset();
+      return previousFunction;
+    }
+    return createFunction(inputColType);
+  }
+
+  /**
+   * Builds the output column from the values added to the given {@link ColumnShardBuilderManager}, stores it in the
+   * {@link ExecutionEnvironment} and informs the output consumers.
+   */
+  private void buildOutputColumn(ColumnShardBuilderManager colShardBuilderManager) {
     if (Thread.interrupted()) {
       // If we were interrupted, exit quietly before we start to build the new col.
       logger.info("Interrupted. Stopping processing.");
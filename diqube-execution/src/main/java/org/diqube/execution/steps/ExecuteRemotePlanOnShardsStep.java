@@ -40,7 +40,6 @@ import org.diqube.connection.ConnectionOrLocalHelper;
 import org.diqube.connection.OurNodeAddressProvider;
 import org.diqube.connection.ServiceProvider;
 import org.diqube.connection.SocketListener;
-import org.diqube.consensus.ConsensusClient.ConsensusClusterUnavailableException;
 import org.diqube.execution.RemotesTriggeredListener;
 import org.diqube.execution.consumers.AbstractThreadedTableFlattenedConsumer;
 import org.diqube.execution.consumers.ColumnValueConsumer;
@@ -212,16 +211,7 @@ public class ExecuteRemotePlanOnShardsStep extends AbstractThreadedExecutablePla
 
       String tableName = remoteExecutionPlan.getFromSpec().getPlainTableName();
 
-      try {
-        remoteNodes = clusterLayout.findNodesServingTable(tableName);
-      } catch (InterruptedException e) {
-        logger.error("Interrupted.", e);
-        // exit quietly.
-        doneProcessing();
-        return;
-      } catch (ConsensusClusterUnavailableException e) {
-        throw new ExecutablePlanExecutionException("Cannot execute plan since consensus cluster is unavailable", e);
-      }
+      remoteNodes = clusterLayout.findNodesServingTableCached(tableName);
       if (remoteNodes.isEmpty())
         throw new ExecutablePlanExecutionException("There are no cluster nodes serving table '" + tableName + "'");
     }
@@ -21,6 +21,7 @@
 package org.diqube.execution.steps;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -47,13 +48,20 @@ public class FlattenStep extends AbstractThreadedExecutablePlanStep {
 
   private String tableName;
   private String flattenBy;
+  private Collection<String> referencedColumns;
   private QueryMasterFlattenService queryMasterFlattenService;
 
+  /**
+   * @param referencedColumns
+   *          Names of the columns of the flattened table the query references. If the table needs to be flattened
+   *          newly, these columns will be flattened right away, all others only when they are accessed.
+   */
   public FlattenStep(int stepId, QueryRegistry queryRegistry, String tableName, String flattenBy,
-      QueryMasterFlattenService queryMasterFlattenService) {
+      Collection<String> referencedColumns, QueryMasterFlattenService queryMasterFlattenService) {
     super(stepId, queryRegistry);
     this.tableName = tableName;
     this.flattenBy = flattenBy;
+    this.referencedColumns = referencedColumns;
     this.queryMasterFlattenService = queryMasterFlattenService;
   }
 
@@ -61,7 +69,7 @@ public class FlattenStep extends AbstractThreadedExecutablePlanStep {
   protected void execute() {
     Pair<UUID, List<RNodeAddress>> flattenRes;
     try {
-      flattenRes = queryMasterFlattenService.flatten(tableName, flattenBy);
+      flattenRes = queryMasterFlattenService.flatten(tableName, flattenBy, referencedColumns);
     } catch (FlattenException e) {
       throw new ExecutablePlanExecutionException("Could not flatten table: " + e.getMessage(), e);
     } catch (InterruptedException e) {
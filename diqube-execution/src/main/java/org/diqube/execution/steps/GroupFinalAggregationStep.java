@@ -49,7 +49,9 @@ import org.diqube.function.AggregationFunction;
 import org.diqube.function.FunctionException;
 import org.diqube.function.FunctionFactory;
 import org.diqube.function.IntermediaryResult;
+import org.diqube.function.SampleScalableAggregationFunction;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
+import org.diqube.loader.columnshard.IntermediaryColumnShardBuilder;
 import org.diqube.loader.columnshard.SparseColumnShardBuilder;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.util.Triple;
@@ -62,7 +64,13 @@ import com.google.common.collect.Iterables;
  * Receives {@link IntermediaryResult}s provided by {@link GroupIntermediaryAggregationStep}s and combines them to
  * actual values. The resulting column that is built (of which the outputs are informed by a {@link ColumnBuiltConsumer}
  * ) will contain just enough rows to contain all group results (groupId = rowId, finding the max of it). If a
- * {@link ColumnVersionBuiltConsumer} is wired, intermediary columns will be built.
+ * {@link ColumnVersionBuiltConsumer} is wired, intermediary columns will be built. These are built using an
+ * {@link IntermediaryColumnShardBuilder}, which means that only the parts of the column that contain changed groups
+ * need to be built again for each new version.
+ * 
+ * <p>
+ * If the query is executed on a sample of the table only, the results of {@link SampleScalableAggregationFunction}s
+ * are extrapolated to the whole table.
  * 
  * <p>
  * Input: 1 {@link GroupIntermediaryAggregationConsumer} <br>
@@ -106,12 +114,23 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
 
   private List<Object> constantFunctionParameters;
 
-  private Set<Long> groupIdsChangedSinceLastOutputVersionBuilt = new HashSet<>();
+  /** New results of the groups that changed since the last column version was built, keyed by group ID. */
+  private Map<Long, Object> resultsChangedSinceLastOutputVersionBuilt = new HashMap<>();
+
+  /** Builds the intermediary column versions, <code>null</code> before the first version is built. */
+  private IntermediaryColumnShardBuilder intermediaryColumnShardBuilder = null;
 
+  private Double sampleFraction;
+
+  /**
+   * @param sampleFraction
+   *          <code>null</code> or the fraction of the table that the remotes inspect (TABLESAMPLE). If set, the results
+   *          of {@link SampleScalableAggregationFunction}s will be scaled accordingly.
+   */
   public GroupFinalAggregationStep(int stepId, QueryRegistry queryRegistry, ExecutionEnvironment defaultEnv,
       FunctionFactory functionFactory, ColumnShardBuilderFactory columnShardBuilderFactory,
       String functionNameLowerCase, String outputColName, ColumnVersionManager columnVersionManager,
-      List<Object> constantFunctionParameters) {
+      List<Object> constantFunctionParameters, Double sampleFraction) {
     super(stepId, queryRegistry);
     this.defaultEnv = defaultEnv;
     this.functionFactory = functionFactory;
@@ -120,6 +139,7 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
     this.outputColName = outputColName;
     this.columnVersionManager = columnVersionManager;
     this.constantFunctionParameters = constantFunctionParameters;
+    this.sampleFraction = sampleFraction;
   }
 
   @Override
@@ -140,6 +160,7 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
 
     if (activeUpdates.length > 0) {
       Set<Long> groupIdsChanged = new HashSet<>();
+      boolean buildVersions = existsOutputConsumerOfType(ColumnVersionBuiltConsumer.class);
       for (Triple<Long, IntermediaryResult, IntermediaryResult> update : activeUpdates) {
         Long groupId = update.getLeft();
         groupIdsChanged.add(groupId);
@@ -171,15 +192,16 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
       }
 
       for (Long groupId : groupIdsChanged) {
-        Object result = aggregationFunctions.get(groupId).calculate();
+        Object result = calculate(aggregationFunctions.get(groupId));
 
         logger.trace("New value for group {} on col {}: {}", groupId, outputColName, result);
 
         forEachOutputConsumerOfType(GroupFinalAggregationConsumer.class,
             c -> c.consumeAggregationResult(groupId, outputColName, result));
-      }
 
-      groupIdsChangedSinceLastOutputVersionBuilt.addAll(groupIdsChanged);
+        if (buildVersions)
+          resultsChangedSinceLastOutputVersionBuilt.put(groupId, result);
+      }
     }
 
     boolean isLastRun = sourceIsDone.get() && groupIntermediaryUpdates.isEmpty(); // Note: get "last run" value before
@@ -191,20 +213,25 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
     if (activeUpdates.length > 0 && existsOutputConsumerOfType(ColumnVersionBuiltConsumer.class)) {
 
       // TODO #2 (stats): base this on stats.
-      if ((groupIdsChangedSinceLastOutputVersionBuilt.size() >= 0.05 * aggregationFunctions.size()) || //
+      if ((resultsChangedSinceLastOutputVersionBuilt.size() >= 0.05 * aggregationFunctions.size()) || //
       /* */ // execute definitely if this is the last run: We need to send the changed group ids!
       /* */ isLastRun) {
 
         logger.trace("Creating new column version of {}, changed group IDs {}", outputColName,
-            groupIdsChangedSinceLastOutputVersionBuilt);
+            resultsChangedSinceLastOutputVersionBuilt.keySet());
+
+        if (intermediaryColumnShardBuilder == null)
+          intermediaryColumnShardBuilder =
+              columnShardBuilderFactory.createIntermediaryColumnShardBuilder(outputColName);
+        intermediaryColumnShardBuilder.withValues(resultsChangedSinceLastOutputVersionBuilt);
 
-        newCol = createNewColumn();
+        newCol = intermediaryColumnShardBuilder.build(isLastRun);
         VersionedExecutionEnvironment newEnv = columnVersionManager.createNewVersion(newCol);
-        Set<Long> finalGroupIdsChanged = groupIdsChangedSinceLastOutputVersionBuilt;
+        Set<Long> finalGroupIdsChanged = new HashSet<>(resultsChangedSinceLastOutputVersionBuilt.keySet());
 
         forEachOutputConsumerOfType(ColumnVersionBuiltConsumer.class,
             c -> c.columnVersionBuilt(newEnv, outputColName, finalGroupIdsChanged));
-        groupIdsChangedSinceLastOutputVersionBuilt = new HashSet<>();
+        resultsChangedSinceLastOutputVersionBuilt = new HashMap<>();
       }
     }
 
@@ -242,7 +269,7 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
     Map<Long, Object> rowIdToValue = new HashMap<>();
     long maxRowId = -1;
     for (Long rowId : aggregationFunctions.keySet()) {
-      rowIdToValue.put(rowId, aggregationFunctions.get(rowId).calculate());
+      rowIdToValue.put(rowId, calculate(aggregationFunctions.get(rowId)));
       if (rowId > maxRowId)
         maxRowId = rowId;
     }
@@ -254,6 +281,12 @@ public class GroupFinalAggregationStep extends AbstractThreadedExecutablePlanSte
     return columnShard;
   }
 
+  private Object calculate(AggregationFunction<Object, Object> fn) throws FunctionException {
+    if (sampleFraction != null && fn instanceof SampleScalableAggregationFunction)
+      return ((SampleScalableAggregationFunction<Object, Object>) fn).calculateScaled(sampleFraction);
+    return fn.calculate();
+  }
+
   @Override
   protected List<GenericConsumer> inputConsumers() {
     return new ArrayList<>(Arrays.asList(new GenericConsumer[] { groupIntermediaryConsumer }));
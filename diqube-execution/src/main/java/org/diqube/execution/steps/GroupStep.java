@@ -48,6 +48,7 @@ import org.diqube.execution.exception.ExecutablePlanBuildException;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.executionenv.querystats.QueryableColumnShard;
 import org.diqube.queries.QueryRegistry;
+import org.diqube.util.MemorySizeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,6 +82,13 @@ import com.google.common.collect.Sets;
 public class GroupStep extends AbstractThreadedExecutablePlanStep {
   private static final Logger logger = LoggerFactory.getLogger(GroupStep.class);
 
+  /** Approximate number of bytes {@link #groups} holds for each group: map entry, table slot, key and row list. */
+  private static final long BYTES_PER_GROUP = MemorySizeUtil.HASH_MAP_ENTRY_BYTES + MemorySizeUtil.REFERENCE_BYTES
+      + MemorySizeUtil.BOXED_LONG_BYTES + MemorySizeUtil.arrayListSize(0);
+
+  /** Approximate number of bytes {@link #groups} holds for each grouped row: list slot and the boxed row ID. */
+  private static final long BYTES_PER_ROW = MemorySizeUtil.REFERENCE_BYTES + MemorySizeUtil.BOXED_LONG_BYTES;
+
   private AtomicBoolean allColumnsBuilt = new AtomicBoolean(false);
   private Set<String> columnsThatNeedToBeBuilt;
   private AbstractThreadedColumnBuiltConsumer columnBuiltConsumer = new AbstractThreadedColumnBuiltConsumer(this) {
@@ -189,12 +197,17 @@ public class GroupStep extends AbstractThreadedExecutablePlanStep {
         forEachOutputConsumerOfType(RowIdConsumer.class, c -> c.consume(newRowIdsArray));
       }
 
+      long newBytes = 0L;
       for (Long groupId : changesGroups.keySet()) {
-        if (!groups.containsKey(groupId))
-          groups.put(groupId, new ArrayList<>(changesGroups.get(groupId)));
-        else
-          groups.get(groupId).addAll(changesGroups.get(groupId));
+        List<Long> newGroupRowIds = changesGroups.get(groupId);
+        if (!groups.containsKey(groupId)) {
+          groups.put(groupId, new ArrayList<>(newGroupRowIds));
+          newBytes += BYTES_PER_GROUP;
+        } else
+          groups.get(groupId).addAll(newGroupRowIds);
+        newBytes += newGroupRowIds.size() * BYTES_PER_ROW;
       }
+      allocateMemory(newBytes);
 
       forEachOutputConsumerOfType(GroupDeltaConsumer.class, c -> c.consumeGroupDeltas(changesGroups));
       forEachOutputConsumerOfType(GroupConsumer.class, c -> c.consumeGroups(groups));
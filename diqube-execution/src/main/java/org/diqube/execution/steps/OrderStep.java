@@ -51,6 +51,7 @@ import org.diqube.executionenv.VersionedExecutionEnvironment;
 import org.diqube.executionenv.querystats.QueryableColumnShard;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.util.ArrayViewLongList;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -335,7 +336,10 @@ public class OrderStep extends AbstractThreadedExecutablePlanStep {
       Long[] activeRowIds = activeRowIdsSet.toArray(new Long[activeRowIdsSet.size()]);
 
       // be sure that we have enough space in the array
+      long oldArrayBytes = MemorySizeUtil.referenceArraySize(sortedRowIds.length);
       sortedRowIds = resizeArrayForLength(sortedRowIds, sortedRowIdsLength + activeRowIds.length);
+      allocateMemory(MemorySizeUtil.referenceArraySize(sortedRowIds.length) - oldArrayBytes
+          + activeRowIds.length * MemorySizeUtil.BOXED_LONG_BYTES);
 
       // add new values to the array and use insertion sort to put them at the right sorted locations
       System.arraycopy(activeRowIds, 0, sortedRowIds, sortedRowIdsLength, activeRowIds.length);
@@ -402,7 +406,7 @@ public class OrderStep extends AbstractThreadedExecutablePlanStep {
       }
     }
 
-    if (!intermediateRun && cutOffPoint != null)
+    if (!intermediateRun && cutOffPoint != null) {
       // execute cut off if we're not in an intermediate run. While in an intermediate run we're based on arbitrary
       // versions of the column (see ColumnVersionBuiltConsumer). This means that the values of all interesting rows
       // in all columns might change arbitrarily. Therefore we cannot execute a cut-off in that case, as a row that
@@ -410,7 +414,11 @@ public class OrderStep extends AbstractThreadedExecutablePlanStep {
       // only that row might change its value, but all other rows might change their values and force that row to be
       // inside the result set - but if we cut it off before, there's no chance to recover it. So we execute no
       // cut-off in that case.
+      if (cutOffPoint < sortedRowIdsLength)
+        // the boxed row IDs that are cut off will be overwritten by new ones, the array itself is kept.
+        freeMemory((sortedRowIdsLength - cutOffPoint) * MemorySizeUtil.BOXED_LONG_BYTES);
       sortedRowIdsLength = cutOffPoint;
+    }
 
     logger.trace("Ordering result (limit): {}",
         Iterables.limit(Arrays.asList(sortedRowIds), Math.min(20, sortedRowIdsLength)));
@@ -22,9 +22,11 @@ package org.diqube.execution.steps;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -59,6 +61,7 @@ import org.diqube.function.ProjectionFunction;
 import org.diqube.loader.LoaderColumnInfo;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
 import org.diqube.loader.columnshard.ColumnShardBuilderManager;
+import org.diqube.loader.columnshard.IntermediaryColumnShardBuilder;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.util.ColumnOrValue;
 import org.diqube.util.Pair;
@@ -79,6 +82,10 @@ import com.google.common.collect.Iterables;
  * parameters to the function: If they are only constants or constants and other {@link ConstantColumnShard}s, a
  * {@link ConstantColumnShard} will be built, otherwise a {@link StandardColumnShard} will be built.
  * 
+ * <p>
+ * When building intermediary column versions (on the query master), the projected values are held in an
+ * {@link IntermediaryColumnShardBuilder}. For each new version only the rows that have been reported as adjusted by
+ * the input {@link ColumnVersionBuiltConsumer} are projected again and patched into that builder.
  * 
  * <p>
  * Input: multiple optional {@link ColumnBuiltConsumer}, multiple optional {@link ColumnVersionBuiltConsumer}. <br>
@@ -125,6 +132,12 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
    */
   private Set<Long> newestAdjustedRowIds = new HashSet<>();
 
+  /**
+   * Holds the projected values of the last intermediary column version. <code>null</code> as long as no intermediary
+   * column has been built (or if the result is a {@link ConstantColumnShard}). Only accessed by {@link #execute()}.
+   */
+  private IntermediaryColumnShardBuilder intermediaryColumnShardBuilder = null;
+
   private AbstractThreadedColumnVersionBuiltConsumer columnVersionBuiltConsumer =
       new AbstractThreadedColumnVersionBuiltConsumer(this) {
         @Override
@@ -278,7 +291,7 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
       // We waited enough, all our source columns are built fully and are available in the defaultEnv.
 
       logger.trace("Build standard column {} based on default environment (= last run).", outputColName);
-      column = buildColumnBasedProjection(defaultEnv);
+      column = buildColumnBasedProjection(defaultEnv, null);
       columnFullyBuilt = true;
     } else if (columnBuiltConsumer.getNumberOfTimesWired() > 0 && inputSourcesDone.get() && !allColumnsBuilt.get()) {
       // we need to wait for columns to be built, but the columnBuiltConsumer reported to be done, but not all columns
@@ -299,13 +312,20 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
           // we have data for all input columns available, which means that we can start projection at least
           // /something/.
 
-          logger.trace("Build intermediary column {} after following rowIds were adjusted (limit) {}", outputColName,
-              Iterables.limit(curAdjustedRowIds, 100));
-
-          // execute full projection, although we have specific row IDs that have been altered.
-          // TODO #8 cache intermediary results and use that to not again apply the projection function to all elements
-          // again.
-          column = buildColumnBasedProjection(temporaryEnv);
+          if (intermediaryColumnShardBuilder == null) {
+            logger.trace("Build first intermediary column {}", outputColName);
+            Map<Long, Object> intermediaryValues = new HashMap<>();
+            column = buildColumnBasedProjection(temporaryEnv, intermediaryValues);
+            if (!(column instanceof ConstantColumnShard)) {
+              intermediaryColumnShardBuilder =
+                  columnShardBuilderFactory.createIntermediaryColumnShardBuilder(outputColName);
+              intermediaryColumnShardBuilder.withValues(intermediaryValues);
+            }
+          } else if (!curAdjustedRowIds.isEmpty()) {
+            logger.trace("Build intermediary column {} after following rowIds were adjusted (limit) {}", outputColName,
+                Iterables.limit(curAdjustedRowIds, 100));
+            column = buildIncrementalProjection(temporaryEnv, curAdjustedRowIds);
+          }
         }
       }
     }
@@ -348,21 +368,19 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
    * {@link ExecutionEnvironment}.
    * 
    * The created column, which might either be a {@link StandardColumnShard} or a {@link ConstantColumnShard} (in case
+   * all inputs are constant).
+   * 
+   * @param resultValues
+   *          If not <code>null</code>, the projected values of a {@link StandardColumnShard} result will be put into
+   *          this map additionally, keyed by rowId.
    */
-  private ColumnShard buildColumnBasedProjection(ExecutionEnvironment env) {
+  private ColumnShard buildColumnBasedProjection(ExecutionEnvironment env, Map<Long, Object> resultValues) {
 
     // buckets of row IDs we want to process together. Left of pair: first row ID of bucket, right: length.
     Set<Pair<Long, Integer>> rowIdBucketsToProcess;
 
-    if (inputColNames.stream().anyMatch(colName -> env.getPureStandardColumnShard(colName) != null)) {
-      // Find column shard that contains the least rows, in order to calculate rowID buckets below.
-      // On the query master each column might have different number of rows, therefore we find the least common number
-      // of rows that we can process.
-      String referenceColName =
-          inputColNames.stream().filter(colName -> env.getPureStandardColumnShard(colName) != null).map(name -> //
-          new Pair<String, Long>(name, env.getPureStandardColumnShard(name).getNumberOfRowsInColumnShard()))
-              .min((p1, p2) -> p1.getRight().compareTo(p2.getRight())).get().getLeft();
-
+    String referenceColName = findReferenceColumnName(env);
+    if (referenceColName != null) {
       rowIdBucketsToProcess = env.getColumnShard(referenceColName).getGoodResolutionPairs();
     } else {
       // only ConstantColumnShard objects.
@@ -397,33 +415,15 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
         ProjectionFunction<Object, Object> fn =
             functionFactory.createProjectionFunction(functionNameLowerCase, inputColumnType);
 
-        boolean hadStandardColumnInput = false;
-        for (int paramIdx = 0; paramIdx < functionParameters.length; paramIdx++) {
-          ColumnOrValue param = functionParameters[paramIdx];
-          if (param.getType() == ColumnOrValue.Type.LITERAL) {
-            fn.provideConstantParameter(paramIdx, param.getValue());
-          } else {
-            ConstantColumnShard constantShard = env.getPureConstantColumnShard(param.getColumnName());
-            if (constantShard != null) {
-              fn.provideConstantParameter(paramIdx, constantShard.getValue());
-            } else {
-              hadStandardColumnInput = true;
-              Object[] colValues = fn.createEmptyInputArray(length);
-              int rowsResolved =
-                  resolveValuesFromColumn(env.getColumnShard(param.getColumnName()), firstRowId, length, colValues);
-              if (rowsResolved != length)
-                throw new ExecutablePlanExecutionException("Column " + param.getColumnName()
-                    + " does not contain the same number of rows as other columns; cannot execute function "
-                    + functionNameLowerCase + " to produce output column " + outputColName);
-              fn.provideParameter(paramIdx, colValues);
-            }
-          }
-        }
+        boolean hadStandardColumnInput = provideFunctionParameters(fn, env, firstRowId, length);
 
         Object[] fnResult = fn.execute();
 
         if (hadStandardColumnInput) {
           columnShardBuilderManager.addValues(outputColName, fnResult, firstRowId);
+          if (resultValues != null)
+            for (int i = 0; i < fnResult.length; i++)
+              resultValues.put(firstRowId + i, fnResult[i]);
         } else {
           // we did not have input from a standardColumnShard. We would not execute this method if there were no
           // column
@@ -456,6 +456,103 @@ public class ProjectStep extends AbstractThreadedExecutablePlanStep {
     return resultConstantColumn[0];
   }
 
+  /**
+   * Executes the projection on the given adjusted rows only, updates {@link #intermediaryColumnShardBuilder}
+   * accordingly and builds a new version of the column.
+   * 
+   * <p>
+   * This must only be called after {@link #intermediaryColumnShardBuilder} has been initialized with the result of
+   * {@link #buildColumnBasedProjection(ExecutionEnvironment, Map)}, which means that the result is not constant.
+   * 
+   * @return The new column or <code>null</code> if there are no values.
+   */
+  private ColumnShard buildIncrementalProjection(ExecutionEnvironment env, Set<Long> adjustedRowIds) {
+    QueryableColumnShard referenceCol = env.getColumnShard(findReferenceColumnName(env));
+    long firstRowId = referenceCol.getFirstRowId();
+    long numberOfRows = env.getPureStandardColumnShard(referenceCol.getName()).getNumberOfRowsInColumnShard();
+
+    ColumnType inputColumnType = env.getColumnType(inputColNames.stream().findAny().get());
+
+    // only project rows that are available in all input columns; the others will be reported as adjusted again as soon
+    // as they are available.
+    List<Long> sortedRowIds = adjustedRowIds.stream()
+        .filter(rowId -> rowId >= firstRowId && rowId < firstRowId + numberOfRows).sorted()
+        .collect(Collectors.toList());
+
+    // execute the function on consecutive ranges of row IDs.
+    Map<Long, Object> newValues = new HashMap<>();
+    int rangeStartIdx = 0;
+    while (rangeStartIdx < sortedRowIds.size()) {
+      long rangeFirstRowId = sortedRowIds.get(rangeStartIdx);
+      int rangeLength = 1;
+      while (rangeStartIdx + rangeLength < sortedRowIds.size()
+          && sortedRowIds.get(rangeStartIdx + rangeLength) == rangeFirstRowId + rangeLength)
+        rangeLength++;
+
+      ProjectionFunction<Object, Object> fn =
+          functionFactory.createProjectionFunction(functionNameLowerCase, inputColumnType);
+      provideFunctionParameters(fn, env, rangeFirstRowId, rangeLength);
+      Object[] fnResult = fn.execute();
+      for (int i = 0; i < fnResult.length; i++)
+        newValues.put(rangeFirstRowId + i, fnResult[i]);
+
+      rangeStartIdx += rangeLength;
+    }
+
+    intermediaryColumnShardBuilder.withValues(newValues);
+    if (intermediaryColumnShardBuilder.isEmpty())
+      return null;
+
+    // the final column is built by buildColumnBasedProjection on the default env, this is always an intermediary one.
+    return intermediaryColumnShardBuilder.build(false);
+  }
+
+  /**
+   * Find the standard column shard of the input columns that contains the least rows, in order to calculate the rowIDs
+   * that can be processed. On the query master each column might have different number of rows, therefore we find the
+   * least common number of rows that we can process.
+   * 
+   * @return name of the column or <code>null</code> if all input columns are {@link ConstantColumnShard}s.
+   */
+  private String findReferenceColumnName(ExecutionEnvironment env) {
+    return inputColNames.stream().filter(colName -> env.getPureStandardColumnShard(colName) != null).map(name -> //
+    new Pair<String, Long>(name, env.getPureStandardColumnShard(name).getNumberOfRowsInColumnShard()))
+        .min((p1, p2) -> p1.getRight().compareTo(p2.getRight())).map(p -> p.getLeft()).orElse(null);
+  }
+
+  /**
+   * Provides the values of all parameters to the given function, resolving the values of the given rows from the
+   * input columns.
+   * 
+   * @return <code>true</code> if at least one parameter was based on a {@link StandardColumnShard}.
+   */
+  private boolean provideFunctionParameters(ProjectionFunction<Object, Object> fn, ExecutionEnvironment env,
+      long firstRowId, int length) {
+    boolean hadStandardColumnInput = false;
+    for (int paramIdx = 0; paramIdx < functionParameters.length; paramIdx++) {
+      ColumnOrValue param = functionParameters[paramIdx];
+      if (param.getType() == ColumnOrValue.Type.LITERAL) {
+        fn.provideConstantParameter(paramIdx, param.getValue());
+      } else {
+        ConstantColumnShard constantShard = env.getPureConstantColumnShard(param.getColumnName());
+        if (constantShard != null) {
+          fn.provideConstantParameter(paramIdx, constantShard.getValue());
+        } else {
+          hadStandardColumnInput = true;
+          Object[] colValues = fn.createEmptyInputArray(length);
+          int rowsResolved =
+              resolveValuesFromColumn(env.getColumnShard(param.getColumnName()), firstRowId, length, colValues);
+          if (rowsResolved != length)
+            throw new ExecutablePlanExecutionException("Column " + param.getColumnName()
+                + " does not contain the same number of rows as other columns; cannot execute function "
+                + functionNameLowerCase + " to produce output column " + outputColName);
+          fn.provideParameter(paramIdx, colValues);
+        }
+      }
+    }
+    return hadStandardColumnInput;
+  }
+
   /**
    * Resolves values of a specific row ID range from the given column and takes care of fetching those values from the
    * {@link ColumnPage}s that contain them.
@@ -44,6 +44,7 @@ import java.util.stream.Stream;
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.ColumnType;
 import org.diqube.data.column.ConstantColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.types.dbl.DoubleColumnShard;
 import org.diqube.data.types.lng.LongColumnShard;
 import org.diqube.data.types.str.StringColumnShard;
@@ -71,6 +72,8 @@ import org.diqube.queries.QueryUuid;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
 import org.diqube.util.ColumnOrValue;
 import org.diqube.util.ColumnOrValue.Type;
+import org.diqube.util.Pair;
+import org.diqube.util.PrimitiveUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -203,7 +206,8 @@ public class RepeatedProjectStep extends AbstractThreadedExecutablePlanStep {
     ColumnPatternContainer columnPatternContainer;
     Set<List<String>> colCombinations;
     try {
-      columnPatternContainer = columnPatternUtil.findColNamesForColNamePattern(defaultEnv, inputColPatterns);
+      columnPatternContainer = columnPatternUtil.findColNamesForColNamePattern(defaultEnv,
+          defaultEnv::getRepeatedColumnShard, inputColPatterns);
       colCombinations = columnPatternContainer.getMaximumColumnPatterns();
     } catch (LengthColumnMissingException e) {
       if (finalRun)
@@ -211,8 +215,20 @@ public class RepeatedProjectStep extends AbstractThreadedExecutablePlanStep {
       return;
     }
 
+    // Index columns of input patterns that are stored natively in a RepeatedColumnShard are read from that one directly
+    // instead of materializing the index columns. Maps from index column name to repeated column and index.
+    Map<String, Pair<RepeatedColumnShard, Integer>> nativeIndexCols = new HashMap<>();
+    for (String inputColPattern : inputColPatterns) {
+      RepeatedColumnShard repeatedCol = defaultEnv.getRepeatedColumnShard(inputColPattern);
+      if (repeatedCol != null)
+        for (int idx = 0; idx < repeatedCol.getMaxLength(); idx++)
+          nativeIndexCols.put(repeatedColNameGen.repeatedAtIndexOfPattern(inputColPattern, idx),
+              new Pair<>(repeatedCol, idx));
+    }
+
     Set<String> allNonLengthCols = colCombinations.stream().flatMap(lst -> lst.stream()).collect(Collectors.toSet());
-    boolean notAllColsAvailable = allNonLengthCols.stream().anyMatch(s -> defaultEnv.getColumnShard(s) == null);
+    boolean notAllColsAvailable = allNonLengthCols.stream()
+        .anyMatch(s -> !nativeIndexCols.containsKey(s) && defaultEnv.getColumnShard(s) == null);
     if (notAllColsAvailable) {
       if (finalRun)
         throw new ExecutablePlanExecutionException("Not all columns were created. Cannot proceed.");
@@ -232,7 +248,9 @@ public class RepeatedProjectStep extends AbstractThreadedExecutablePlanStep {
     String lengthColName = repeatedColNameGen.repeatedLength(outputColNameBase);
     boolean lengthColumnIsCached = defaultEnv.getColumnShard(lengthColName) != null;
 
-    ColumnType inputColType = defaultEnv.getColumnType(allNonLengthCols.iterator().next());
+    String anyInputColName = allNonLengthCols.iterator().next();
+    ColumnType inputColType = (nativeIndexCols.containsKey(anyInputColName))
+        ? nativeIndexCols.get(anyInputColName).getLeft().getColumnType() : defaultEnv.getColumnType(anyInputColName);
     ProjectionFunction<Object, Object> fn =
         functionFactory.createProjectionFunction(functionNameLowerCase, inputColType);
 
@@ -330,9 +348,17 @@ public class RepeatedProjectStep extends AbstractThreadedExecutablePlanStep {
                       String actualColName = colCombination.get(patternIdx);
                       Object values[];
 
+                      Pair<RepeatedColumnShard, Integer> nativeIndexCol = nativeIndexCols.get(actualColName);
                       // check if its a constant column or a standard one.
-                      ConstantColumnShard constantColShard = defaultEnv.getPureConstantColumnShard(actualColName);
-                      if (constantColShard != null) {
+                      ConstantColumnShard constantColShard =
+                          (nativeIndexCol == null) ? defaultEnv.getPureConstantColumnShard(actualColName) : null;
+                      if (nativeIndexCol != null) {
+                        RepeatedColumnShard repeatedCol = nativeIndexCol.getLeft();
+                        long[] columnValueIds = repeatedCol.resolveColumnValueIdsOfIndex(
+                            rowIds.stream().mapToLong(Long::longValue).toArray(), nativeIndexCol.getRight());
+                        values = repeatedCol.getValues().getColumnShardDictionary()
+                            .decompressValues(PrimitiveUtils.toBoxedArray(columnValueIds));
+                      } else if (constantColShard != null) {
                         // Fill a full value array with the constant value, as the next colCombination probably will not
                         // have the same constant value for this paramIdx, so we force ourselves to go into "array mode"
                         // for this parameter.
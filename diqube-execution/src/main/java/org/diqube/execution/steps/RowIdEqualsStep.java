@@ -48,6 +48,7 @@ import org.diqube.data.dictionary.Dictionary;
 import org.diqube.data.types.dbl.dict.DoubleDictionary;
 import org.diqube.data.types.lng.dict.LongDictionary;
 import org.diqube.data.types.str.dict.StringDictionary;
+import org.diqube.execution.RowIdSample;
 import org.diqube.execution.consumers.AbstractThreadedColumnBuiltConsumer;
 import org.diqube.execution.consumers.AbstractThreadedColumnVersionBuiltConsumer;
 import org.diqube.execution.consumers.AbstractThreadedRowIdConsumer;
@@ -94,6 +95,10 @@ import org.slf4j.LoggerFactory;
  * {@link RowIdConsumer}.
  * 
  * <p>
+ * If the query is executed on a sample of the table (see {@link #setSample(RowIdSample)}), only pages containing
+ * sampled rows are inspected.
+ * 
+ * <p>
  * Only {@link StandardColumnShard} supported.
  * 
  * <p>
@@ -187,6 +192,9 @@ public class RowIdEqualsStep extends AbstractThreadedExecutablePlanStep {
    */
   private NavigableSet<Long> cachedActiveRowIds = new TreeSet<>();
 
+  /** Sample of the table shard to restrict the inspected pages to, <code>null</code> if the full shard is inspected. */
+  private RowIdSample sample = null;
+
   /**
    * @param sortedValues
    *          Expected to be sorted!
@@ -211,6 +219,14 @@ public class RowIdEqualsStep extends AbstractThreadedExecutablePlanStep {
     this.values = null;
   }
 
+  /**
+   * Only inspect the pages of the columns that contain rows of the given sample. The resulting row IDs might contain
+   * rows that are not part of the sample, as long as they are located in such a page.
+   */
+  public void setSample(RowIdSample sample) {
+    this.sample = sample;
+  }
+
   @Override
   public void execute() {
     ExecutionEnvironment curEnv;
@@ -396,14 +412,26 @@ public class RowIdEqualsStep extends AbstractThreadedExecutablePlanStep {
             QueryUuid.setCurrentThreadState(uuidState);
 
             try {
+              if (sample != null && !sample.isAnyRowSampled(page.getFirstRowId(), page.size(),
+                  defaultEnv.getFirstRowIdInShard())) {
+                // page does not contain any row of the sample, do not decompress it.
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
+                return false;
+              }
+
               if (activeRowIds != null) {
                 // If we're restricting the row IDs, we check if the page contains any row that we are interested in.
                 Long interestedRowId = activeRowIds.ceiling(page.getFirstRowId());
-                if (interestedRowId == null || interestedRowId > page.getFirstRowId() + page.size())
+                if (interestedRowId == null || interestedRowId > page.getFirstRowId() + page.size()) {
+                  queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
                   return false;
+                }
               }
 
-              return page.getColumnPageDict().containsAnyValue(columnValueIdsOfSearchedValues);
+              boolean res = page.getColumnPageDict().containsAnyValue(columnValueIdsOfSearchedValues);
+              if (!res)
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
+              return res;
             } finally {
               QueryUuid.clearCurrent();
             }
@@ -532,8 +560,9 @@ public class RowIdEqualsStep extends AbstractThreadedExecutablePlanStep {
 
   @Override
   protected String getAdditionalToStringDetails() {
+    String sampleDetails = (sample != null) ? ",sample=" + sample : "";
     if (values != null)
-      return "colName=" + colName + ",values=" + Arrays.toString(values);
-    return "colName=" + colName + ",otherColName=" + otherColName;
+      return "colName=" + colName + ",values=" + Arrays.toString(values) + sampleDetails;
+    return "colName=" + colName + ",otherColName=" + otherColName + sampleDetails;
   }
 }
@@ -47,6 +47,7 @@ import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.dictionary.Dictionary;
+import org.diqube.execution.RowIdSample;
 import org.diqube.execution.consumers.AbstractThreadedColumnBuiltConsumer;
 import org.diqube.execution.consumers.AbstractThreadedColumnVersionBuiltConsumer;
 import org.diqube.execution.consumers.AbstractThreadedRowIdConsumer;
@@ -95,6 +96,10 @@ import org.slf4j.LoggerFactory;
  * {@link RowIdConsumer}.
  * 
  * <p>
+ * If the query is executed on a sample of the table (see {@link #setSample(RowIdSample)}), only pages containing
+ * sampled rows are inspected.
+ * 
+ * <p>
  * Only {@link StandardColumnShard}s supported.
  * 
  * <p>
@@ -189,6 +194,9 @@ public class RowIdInequalStep extends AbstractThreadedExecutablePlanStep {
    */
   private NavigableSet<Long> cachedActiveRowIds = new TreeSet<>();
 
+  /** Sample of the table shard to restrict the inspected pages to, <code>null</code> if the full shard is inspected. */
+  private RowIdSample sample = null;
+
   /**
    * The left operand to the comparison will always be the column, the right operand the constant.
    * 
@@ -228,6 +236,14 @@ public class RowIdInequalStep extends AbstractThreadedExecutablePlanStep {
     this.value = null;
   }
 
+  /**
+   * Only inspect the pages of the columns that contain rows of the given sample. The resulting row IDs might contain
+   * rows that are not part of the sample, as long as they are located in such a page.
+   */
+  public void setSample(RowIdSample sample) {
+    this.sample = sample;
+  }
+
   @Override
   public void execute() {
     ExecutionEnvironment curEnv;
@@ -392,14 +408,26 @@ public class RowIdInequalStep extends AbstractThreadedExecutablePlanStep {
             QueryUuid.setCurrentThreadState(uuidState);
 
             try {
+              if (sample != null && !sample.isAnyRowSampled(page.getFirstRowId(), page.size(),
+                  defaultEnv.getFirstRowIdInShard())) {
+                // page does not contain any row of the sample, do not decompress it.
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
+                return false;
+              }
+
               if (activeRowIds != null) {
                 // If we're restricting the row IDs, we check if the page contains any row that we are interested in.
                 Long interestedRowId = activeRowIds.ceiling(page.getFirstRowId());
-                if (interestedRowId == null || interestedRowId > page.getFirstRowId() + page.size())
+                if (interestedRowId == null || interestedRowId > page.getFirstRowId() + page.size()) {
+                  queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
                   return false;
+                }
               }
 
-              return comparator.pageContainsAnyRelevantValue(page, referenceColumnValueId);
+              boolean res = comparator.pageContainsAnyRelevantValue(page, referenceColumnValueId);
+              if (!res)
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
+              return res;
             } finally {
               QueryUuid.clearCurrent();
             }
@@ -491,15 +519,26 @@ public class RowIdInequalStep extends AbstractThreadedExecutablePlanStep {
           public boolean test(ColumnPage leftColPage) {
             QueryUuid.setCurrentThreadState(uuidState);
             try {
+              if (sample != null && !sample.isAnyRowSampled(leftColPage.getFirstRowId(), leftColPage.size(),
+                  defaultEnv.getFirstRowIdInShard())) {
+                // page does not contain any row of the sample, do not decompress it.
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
+                return false;
+              }
+
               if (activeRowIds != null) {
                 // If we're restricting the row IDs, we check if the page contains any row that we are interested in.
                 Long interestedRowId = activeRowIds.ceiling(leftColPage.getFirstRowId());
-                if (interestedRowId == null || interestedRowId > leftColPage.getFirstRowId() + leftColPage.size())
+                if (interestedRowId == null || interestedRowId > leftColPage.getFirstRowId() + leftColPage.size()) {
+                  queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
                   return false;
+                }
               }
 
-              if (!leftColPage.getColumnPageDict().containsAnyValue(colValueIds1))
+              if (!leftColPage.getColumnPageDict().containsAnyValue(colValueIds1)) {
+                queryRegistry.getOrCreateCurrentStatsManager().registerPagePruned();
                 return false;
+              }
 
               return true;
             } finally {
@@ -583,9 +622,10 @@ public class RowIdInequalStep extends AbstractThreadedExecutablePlanStep {
 
   @Override
   protected String getAdditionalToStringDetails() {
+    String sampleDetails = (sample != null) ? ",sample=" + sample : "";
     if (value != null)
-      return "colName=" + colName + ",value=" + value;
-    return "colName=" + colName + ",otherColName=" + otherColName;
+      return "colName=" + colName + ",value=" + value + sampleDetails;
+    return "colName=" + colName + ",otherColName=" + otherColName + sampleDetails;
   }
 
   /**
@@ -20,13 +20,16 @@
  */
 package org.diqube.execution.steps;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.LongStream;
 
 import org.diqube.data.table.TableShard;
+import org.diqube.execution.RowIdSample;
 import org.diqube.execution.consumers.AbstractThreadedRowIdConsumer;
 import org.diqube.execution.consumers.DoneConsumer;
 import org.diqube.execution.consumers.GenericConsumer;
@@ -44,6 +47,16 @@ import org.slf4j.LoggerFactory;
  * real {@link TableShard}. This step should therefore <b>not</b> be used on a <b>Query Master</b>.
  * 
  * <p>
+ * If the result of the WHERE clause is known already (e.g. from a cache), it can be provided using
+ * {@link #setPrecomputedRowIds(Long[])} - this step will then simply provide those row IDs. On the other hand, a
+ * listener can be registered using {@link #setResultRowIdsListener(Consumer)} which will be informed about the final
+ * set of row IDs that has been reported by this step.
+ * 
+ * <p>
+ * If the query is executed on a sample of the table (see {@link #setSample(RowIdSample)}), only the row IDs that are
+ * part of that sample are reported.
+ * 
+ * <p>
  * Input: None or one {@link RowIdConsumer}<br>
  * Output: {@link RowIdConsumer}
  *
@@ -71,6 +84,14 @@ public class RowIdSinkStep extends AbstractThreadedExecutablePlanStep {
   };
   private ExecutionEnvironment env;
 
+  private Long[] precomputedRowIds = null;
+
+  private Consumer<Long[]> resultRowIdsListener = null;
+
+  private List<Long> allReportedRowIds = null;
+
+  private RowIdSample sample = null;
+
   public RowIdSinkStep(int stepId, QueryRegistry queryRegistry, ExecutionEnvironment env) {
     super(stepId, queryRegistry);
     this.env = env;
@@ -82,8 +103,41 @@ public class RowIdSinkStep extends AbstractThreadedExecutablePlanStep {
       throw new IllegalArgumentException("Only RowIdConsumers accepted.");
   }
 
+  /**
+   * Provide the row IDs this step should report, regardless of any input (which should not be wired then).
+   */
+  public void setPrecomputedRowIds(Long[] precomputedRowIds) {
+    this.precomputedRowIds = precomputedRowIds;
+  }
+
+  /**
+   * Register a listener that is called with all row IDs this step reported, as soon as the input is done. This is only
+   * called if the input of this step is wired, i.e. if there is a WHERE clause.
+   */
+  public void setResultRowIdsListener(Consumer<Long[]> resultRowIdsListener) {
+    this.resultRowIdsListener = resultRowIdsListener;
+    this.allReportedRowIds = new ArrayList<>();
+  }
+
+  /**
+   * Restrict the reported row IDs to the given sample of the table shard.
+   */
+  public void setSample(RowIdSample sample) {
+    this.sample = sample;
+  }
+
   @Override
   protected void execute() {
+    if (precomputedRowIds != null) {
+      if (precomputedRowIds.length > 0)
+        forEachOutputConsumerOfType(RowIdConsumer.class, c -> c.consume(precomputedRowIds));
+
+      logger.trace("Reported a total of {} precomputed matching rows", precomputedRowIds.length);
+      forEachOutputConsumerOfType(GenericConsumer.class, c -> c.sourceIsDone());
+      doneProcessing();
+      return;
+    }
+
     if (rowIdConsumer.getNumberOfTimesWired() == 0) {
       // If input is not wired, there may be no RowID selection steps in the executable plan (= there is no WHERE
       // clause). We therefore return just all RowIDs.
@@ -95,8 +149,10 @@ public class RowIdSinkStep extends AbstractThreadedExecutablePlanStep {
         long numberOfRows = env.getNumberOfRowsInShard();
         if (numberOfRows > 0) {
           // TODO think about not passing an array with all rowIDs.
-          Long[] rowIds = LongStream.range(lowestRowId, lowestRowId + numberOfRows).mapToObj(Long::valueOf)
-              .toArray(l -> new Long[l]);
+          LongStream rowIdStream = LongStream.range(lowestRowId, lowestRowId + numberOfRows);
+          if (sample != null)
+            rowIdStream = rowIdStream.filter(rowId -> sample.isSampled(rowId, lowestRowId));
+          Long[] rowIds = rowIdStream.mapToObj(Long::valueOf).toArray(l -> new Long[l]);
           forEachOutputConsumerOfType(RowIdConsumer.class, c -> c.consume(rowIds));
 
           logger.trace("Reported a total of {} matching rows", rowIds.length);
@@ -108,18 +164,29 @@ public class RowIdSinkStep extends AbstractThreadedExecutablePlanStep {
       return;
     }
 
-    Long[] currentRowIds = new Long[rowIds.size()];
-    for (int i = 0; i < currentRowIds.length; i++)
-      currentRowIds[i] = rowIds.poll();
+    int size = rowIds.size();
+    List<Long> currentRowIdsList = new ArrayList<>(size);
+    long firstRowIdInShard = (sample != null) ? env.getFirstRowIdInShard() : 0L;
+    for (int i = 0; i < size; i++) {
+      long rowId = rowIds.poll();
+      // the input might contain rows that are not sampled, e.g. if a NOT is part of the WHERE clause.
+      if (sample == null || sample.isSampled(rowId, firstRowIdInShard))
+        currentRowIdsList.add(rowId);
+    }
+    Long[] currentRowIds = currentRowIdsList.toArray(new Long[currentRowIdsList.size()]);
 
     if (currentRowIds.length > 0) {
       forEachOutputConsumerOfType(RowIdConsumer.class, c -> c.consume(currentRowIds));
       logger.trace("Reported {} new matching rows", currentRowIds.length);
       numberOfRowsReported += currentRowIds.length;
+      if (allReportedRowIds != null)
+        allReportedRowIds.addAll(Arrays.asList(currentRowIds));
     }
 
     if (sourceIsEmpty.get() && rowIds.isEmpty()) {
       logger.trace("Reported a total of {} matching rows", numberOfRowsReported);
+      if (resultRowIdsListener != null)
+        resultRowIdsListener.accept(allReportedRowIds.toArray(new Long[allReportedRowIds.size()]));
       forEachOutputConsumerOfType(GenericConsumer.class, c -> c.sourceIsDone());
       doneProcessing();
     }
@@ -137,6 +204,8 @@ public class RowIdSinkStep extends AbstractThreadedExecutablePlanStep {
 
   @Override
   protected String getAdditionalToStringDetails() {
+    if (sample != null)
+      return "sample=" + sample;
     return null;
   }
 
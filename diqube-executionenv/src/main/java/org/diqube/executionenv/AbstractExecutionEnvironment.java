@@ -44,6 +44,8 @@ import org.diqube.executionenv.querystats.QueryableLongColumnShardFacade;
 import org.diqube.executionenv.querystats.QueryableStringColumnShard;
 import org.diqube.executionenv.querystats.QueryableStringColumnShardFacade;
 import org.diqube.queries.QueryRegistry;
+import org.diqube.queries.memory.MemoryBudgetExceededException;
+import org.diqube.queries.memory.QueryMemoryTracker;
 
 import com.google.common.collect.Iterables;
 
@@ -126,6 +128,7 @@ public abstract class AbstractExecutionEnvironment implements ExecutionEnvironme
   @Override
   public void storeTemporaryLongColumnShard(LongColumnShard column) {
     queryRegistry.getOrCreateCurrentStatsManager().incNumberOfTemporaryColumnShardsCreated();
+    accountTemporaryColumnMemory(tempLongColumns.get(column.getName()), column);
     internalStoreTemporaryLongColumnShard(column);
   }
 
@@ -136,6 +139,7 @@ public abstract class AbstractExecutionEnvironment implements ExecutionEnvironme
   @Override
   public void storeTemporaryStringColumnShard(StringColumnShard column) {
     queryRegistry.getOrCreateCurrentStatsManager().incNumberOfTemporaryColumnShardsCreated();
+    accountTemporaryColumnMemory(tempStringColumns.get(column.getName()), column);
     internalStoreTemporaryStringColumnShard(column);
   }
 
@@ -146,6 +150,7 @@ public abstract class AbstractExecutionEnvironment implements ExecutionEnvironme
   @Override
   public void storeTemporaryDoubleColumnShard(DoubleColumnShard column) {
     queryRegistry.getOrCreateCurrentStatsManager().incNumberOfTemporaryColumnShardsCreated();
+    accountTemporaryColumnMemory(tempDoubleColumns.get(column.getName()), column);
     internalStoreTemporaryDoubleColumnShard(column);
   }
 
@@ -153,6 +158,33 @@ public abstract class AbstractExecutionEnvironment implements ExecutionEnvironme
     tempDoubleColumns.put(column.getName(), new QueryableDoubleColumnShardFacade(column, true, queryRegistry));
   }
 
+  /**
+   * Accounts the memory of a new temporary column to the current query execution (see {@link QueryMemoryTracker}).
+   * 
+   * @param oldColumn
+   *          The temporary column of the same name that is replaced by the new one or <code>null</code>.
+   * @throws MemoryBudgetExceededException
+   *           If the memory budget of this node is used up, which makes the query fail.
+   */
+  private void accountTemporaryColumnMemory(ColumnShard oldColumn, ColumnShard newColumn)
+      throws MemoryBudgetExceededException {
+    if (!isTemporaryColumnMemoryAccounted())
+      return;
+
+    QueryMemoryTracker memoryTracker = queryRegistry.getOrCreateCurrentMemoryTracker();
+    memoryTracker.allocate(newColumn.calculateApproximateSizeInBytes());
+    if (oldColumn != null)
+      memoryTracker.free(oldColumn.calculateApproximateSizeInBytes());
+  }
+
+  /**
+   * @return <code>true</code> if the memory of temporary columns stored in this env should be accounted to the current
+   *         query execution.
+   */
+  protected boolean isTemporaryColumnMemoryAccounted() {
+    return true;
+  }
+
   @Override
   public StandardColumnShard getPureStandardColumnShard(String name) {
     ColumnShard colShard = getColumnShard(name);
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.table.TableShard;
 import org.diqube.data.types.dbl.DoubleColumnShard;
 import org.diqube.data.types.lng.LongColumnShard;
@@ -174,6 +175,13 @@ public class DefaultExecutionEnvironment extends AbstractExecutionEnvironment {
         + "]";
   }
 
+  @Override
+  public RepeatedColumnShard getRepeatedColumnShard(String colNamePattern) {
+    if (tableShard != null)
+      return tableShard.getRepeatedColumns().get(colNamePattern);
+    return null;
+  }
+
   @Override
   protected boolean delegateIsTemporaryColumns(String colName) {
     // delegate loads from tableShard, so "no", this col is no temp col.
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.types.dbl.DoubleColumnShard;
 import org.diqube.data.types.lng.LongColumnShard;
@@ -131,6 +132,17 @@ public class DelegatingExecutionEnvironment extends AbstractExecutionEnvironment
     super.storeTemporaryDoubleColumnShard(column);
   }
 
+  @Override
+  protected boolean isTemporaryColumnMemoryAccounted() {
+    // intermediary envs hold intermediate versions of columns that are being built, these are short-lived.
+    return false;
+  }
+
+  @Override
+  public RepeatedColumnShard getRepeatedColumnShard(String colNamePattern) {
+    return delegate.getRepeatedColumnShard(colNamePattern);
+  }
+
   @Override
   protected boolean delegateIsTemporaryColumns(String colName) {
     return delegate.isTemporaryColumn(colName);
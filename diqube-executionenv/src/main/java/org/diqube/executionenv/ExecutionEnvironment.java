@@ -26,6 +26,7 @@ import java.util.Map;
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.ColumnType;
 import org.diqube.data.column.ConstantColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.table.TableShard;
 import org.diqube.data.types.dbl.DoubleColumnShard;
@@ -130,6 +131,14 @@ public interface ExecutionEnvironment
    */
   public ConstantColumnShard getPureConstantColumnShard(String name);
 
+  /**
+   * Get the natively stored {@link RepeatedColumnShard} of a column name pattern (e.g. "a[*].b").
+   * 
+   * @return The {@link RepeatedColumnShard} or <code>null</code> if there is none, e.g. because the {@link TableShard}
+   *         contains one column per array index only or because there is no backing {@link TableShard} at all.
+   */
+  public RepeatedColumnShard getRepeatedColumnShard(String colNamePattern);
+
   /**
    * @return <code>true</code> if the given column is a temporary one, <code>false</code> if it is a real column present
    *         in a {@link TableShard}.
@@ -33,6 +33,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 
 import javax.annotation.PostConstruct;
+import javax.inject.Inject;
 
 import org.diqube.cache.CountingCache;
 import org.diqube.cache.CountingCache.CountCleanupStrategy;
@@ -42,6 +43,8 @@ import org.diqube.config.Config;
 import org.diqube.config.ConfigKey;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.executionenv.cache.CacheMemoryReservationHandler;
+import org.diqube.queries.memory.MemoryManager;
 import org.diqube.util.Holder;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
@@ -81,6 +84,9 @@ public class FlattenedTableInstanceManager {
   @Config(ConfigKey.FLATTEN_MEMORY_CACHE_SIZE_MB)
   private int flattenedTableCacheSizeMb;
 
+  @Inject
+  private MemoryManager memoryManager;
+
   /**
    * {@link FlaggingCache} we use to store the {@link FlattenedTable}s.
    * 
@@ -142,6 +148,8 @@ public class FlattenedTableInstanceManager {
 
     cache = new CountingCache<>(flattenedTableCacheSizeMb * 1024L * 1024L, cacheMemoryConsumptionProvider,
         cacheCountCleanupStrategy);
+    cache.setMetricsName("FlattenedTable");
+    cache.setMemoryReservationHandler(new CacheMemoryReservationHandler(memoryManager));
   }
 
   /**
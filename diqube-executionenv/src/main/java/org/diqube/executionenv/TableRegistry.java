@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.PreDestroy;
+
 import org.diqube.context.AutoInstatiate;
 import org.diqube.context.InjectOptional;
 import org.diqube.data.flatten.FlattenedTable;
@@ -33,6 +35,7 @@ import org.diqube.data.table.Table;
 import org.diqube.listeners.TableLoadListener;
 import org.diqube.listeners.TableLoadListener.AbortTableLoadException;
 import org.diqube.listeners.providers.LoadedTablesProvider;
+import org.diqube.metrics.Metrics;
 
 /**
  * All {@link Table} objects that are available on the current cluster node are registered here.
@@ -40,6 +43,9 @@ import org.diqube.listeners.providers.LoadedTablesProvider;
  * <p>
  * Note that this does <b>NOT</b> include {@link FlattenedTable}s, as they are managed in
  * {@link FlattenedTableInstanceManager}.
+ * 
+ * <p>
+ * The approximate size of each registered table is reported to {@link Metrics}.
  *
  * @author Bastian Gloeckle
  */
@@ -71,10 +77,13 @@ public class TableRegistry implements LoadedTablesProvider {
         }
       }
     }
+
+    Metrics.gauge(tableBytesMetricName(name), () -> table.calculateApproximateSizeInBytes());
   }
 
   public synchronized void removeTable(String name) {
     tables.remove(name);
+    Metrics.remove(tableBytesMetricName(name));
 
     tableLoadListeners.forEach(l -> l.tableUnloaded(name));
   }
@@ -88,6 +97,15 @@ public class TableRegistry implements LoadedTablesProvider {
     return new ArrayList<>(tables.keySet());
   }
 
+  @PreDestroy
+  public synchronized void cleanup() {
+    tables.keySet().forEach(name -> Metrics.remove(tableBytesMetricName(name)));
+  }
+
+  private String tableBytesMetricName(String tableName) {
+    return Metrics.labeled("table_bytes", "table", tableName);
+  }
+
   /**
    * Table cannot be loaded.
    */
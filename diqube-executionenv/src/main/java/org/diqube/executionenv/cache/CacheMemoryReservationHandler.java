@@ -0,0 +1,50 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.executionenv.cache;
+
+import org.diqube.cache.CountingCache;
+import org.diqube.cache.CountingCache.MemoryReservationHandler;
+import org.diqube.queries.memory.MemoryManager;
+import org.diqube.queries.memory.MemoryPool;
+
+/**
+ * {@link MemoryReservationHandler} that reserves the memory of the entries of a {@link CountingCache} in the
+ * {@link MemoryPool#CACHES} pool of the {@link MemoryManager}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class CacheMemoryReservationHandler implements MemoryReservationHandler {
+  private MemoryManager memoryManager;
+
+  public CacheMemoryReservationHandler(MemoryManager memoryManager) {
+    this.memoryManager = memoryManager;
+  }
+
+  @Override
+  public boolean reserve(long bytes, boolean force) {
+    return memoryManager.reserve(MemoryPool.CACHES, bytes, force);
+  }
+
+  @Override
+  public void release(long bytes) {
+    memoryManager.release(MemoryPool.CACHES, bytes);
+  }
+}
@@ -23,13 +23,19 @@ package org.diqube.executionenv.cache;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.inject.Inject;
+
 import org.diqube.config.Config;
 import org.diqube.config.ConfigKey;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.name.FlattenedTableNameUtil;
+import org.diqube.queries.memory.MemoryManager;
 
 /**
  * Manages {@link WritableColumnShardCache} instances.
+ * 
+ * <p>
+ * The memory of the cached columns is reserved in the {@link MemoryManager}.
  *
  * @author Bastian Gloeckle
  */
@@ -40,6 +46,9 @@ public class ColumnShardCacheRegistry {
   @Config(ConfigKey.TABLE_CACHE_APPROX_MAX_PER_TABLE_MB)
   public int tableCacheApproxMaxPerTableMb;
 
+  @Inject
+  private MemoryManager memoryManager;
+
   /**
    * @param tableName
    *          If non-flattened table, this is simply the plain name of the table. If flattened table: Use
@@ -60,7 +69,10 @@ public class ColumnShardCacheRegistry {
     if (tableCacheApproxMaxPerTableMb <= 0)
       return caches.computeIfAbsent(tableName, s -> new NoopColumnShardCache());
     else
-      return caches.computeIfAbsent(tableName,
-          s -> new DefaultColumnShardCache(tableCacheApproxMaxPerTableMb * 1024L * 1024L));
+      return caches.computeIfAbsent(tableName, s -> {
+        DefaultColumnShardCache res = new DefaultColumnShardCache(tableCacheApproxMaxPerTableMb * 1024L * 1024L);
+        res.setMemoryReservationHandler(new CacheMemoryReservationHandler(memoryManager));
+        return res;
+      });
   }
 }
@@ -0,0 +1,58 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.executionenv.cache;
+
+import java.util.Set;
+
+import org.diqube.cache.CountingCache;
+import org.diqube.data.table.TableShard;
+import org.diqube.util.Pair;
+
+/**
+ * Counting cache for {@link RowIdFilterResult}s of a single table.
+ * 
+ * <p>
+ * The first part of the key is the first row ID of the {@link TableShard} the result was calculated on, the second
+ * part is a normalized representation of the WHERE clause.
+ *
+ * @author Bastian Gloeckle
+ */
+public class RowIdFilterCache extends CountingCache<Long, String, RowIdFilterResult> {
+  /**
+   * Maximum number of usage counts of elements that are not cached, after which those counts are cleaned up.
+   * 
+   * <p>
+   * Queries can contain arbitrary WHERE clauses, therefore the number of different keys is unbounded. We remember the
+   * counts of not-cached elements only up to this number, so we do not accumulate an unlimited amount of memory.
+   */
+  private static final int MAX_UNCACHED_COUNTS = 10_000;
+
+  /* package */ RowIdFilterCache(long maxMemoryBytes) {
+    super(maxMemoryBytes, result -> result.calculateApproximateSizeInBytes(), RowIdFilterCache::countsForCleanup);
+  }
+
+  private static Set<? extends Pair<Long, String>> countsForCleanup(
+      Set<? extends Pair<Long, String>> countsUpForCleanup, Set<? extends Pair<Long, String>> allCounts) {
+    if (countsUpForCleanup.size() > MAX_UNCACHED_COUNTS)
+      return countsUpForCleanup;
+    return null;
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.executionenv.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.diqube.config.Config;
+import org.diqube.config.ConfigKey;
+import org.diqube.context.AutoInstatiate;
+import org.diqube.listeners.TableLoadListener;
+import org.diqube.name.FlattenedTableNameUtil;
+import org.diqube.queries.memory.MemoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages {@link RowIdFilterCache} instances.
+ * 
+ * <p>
+ * The caches of a table (and of all its flattened tables) are discarded as soon as the table is unloaded. The memory
+ * of the cached results is reserved in the {@link MemoryManager}.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class RowIdFilterCacheRegistry implements TableLoadListener {
+  private static final Logger logger = LoggerFactory.getLogger(RowIdFilterCacheRegistry.class);
+
+  private ConcurrentMap<String, RowIdFilterCache> caches = new ConcurrentHashMap<>();
+
+  @Config(ConfigKey.ROW_ID_FILTER_CACHE_APPROX_MAX_PER_TABLE_MB)
+  private int rowIdFilterCacheApproxMaxPerTableMb;
+
+  @Inject
+  private FlattenedTableNameUtil flattenedTableNameUtil;
+
+  @Inject
+  private MemoryManager memoryManager;
+
+  /**
+   * @param tableName
+   *          If non-flattened table, this is simply the plain name of the table. If flattened table: Use
+   *          {@link FlattenedTableNameUtil} to generate the name.
+   * @return The cache for the given table. If there was none, one is created. <code>null</code> if row ID filter
+   *         caching is disabled.
+   */
+  public RowIdFilterCache getOrCreateRowIdFilterCache(String tableName) {
+    if (rowIdFilterCacheApproxMaxPerTableMb <= 0)
+      return null;
+
+    return caches.computeIfAbsent(tableName, s -> {
+      RowIdFilterCache res = new RowIdFilterCache(rowIdFilterCacheApproxMaxPerTableMb * 1024L * 1024L);
+      res.setMemoryReservationHandler(new CacheMemoryReservationHandler(memoryManager));
+      return res;
+    });
+  }
+
+  @Override
+  public void tableLoaded(String newTableName) throws AbortTableLoadException {
+    // make sure we do not use any results of a previous table with the same name.
+    removeCaches(newTableName);
+  }
+
+  @Override
+  public void tableUnloaded(String tableName) {
+    removeCaches(tableName);
+  }
+
+  private void removeCaches(String tableName) {
+    RowIdFilterCache removedCache = caches.remove(tableName);
+    if (removedCache != null) {
+      removedCache.releaseReservedMemory();
+      logger.info("Removed row ID filter cache of table '{}'.", tableName);
+    }
+
+    caches.entrySet().removeIf(e -> {
+      boolean remove = flattenedTableNameUtil.isFlattenedTableName(e.getKey())
+          && tableName.equals(flattenedTableNameUtil.getOriginalTableNameFromFlatten(e.getKey()));
+      if (remove)
+        e.getValue().releaseReservedMemory();
+      return remove;
+    });
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.executionenv.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import org.diqube.data.table.TableShard;
+import org.diqube.util.MemorySizeUtil;
+
+/**
+ * The result of evaluating the WHERE clause of a query on a single {@link TableShard}: The row IDs that matched.
+ * 
+ * <p>
+ * The row IDs are held in a compressed form: Consecutive row IDs are stored as ranges, which is very compact for the
+ * typical case of selective WHERE clauses on sorted/clustered data, but also for WHERE clauses that match nearly all
+ * rows.
+ * 
+ * <p>
+ * This object holds a {@link WeakReference} to the {@link TableShard} the result was calculated on, which allows users
+ * to validate that a cached result was calculated on exactly the same table shard instance as the one currently
+ * available (see {@link #isResultOf(TableShard)}).
+ *
+ * @author Bastian Gloeckle
+ */
+public class RowIdFilterResult {
+  private WeakReference<TableShard> tableShardRef;
+
+  /**
+   * Pairs of (first row ID, number of row IDs) of consecutive row IDs; sorted.
+   */
+  private long[] ranges;
+
+  private int numberOfRowIds;
+
+  /**
+   * @param tableShard
+   *          The {@link TableShard} on which the WHERE clause was evaluated.
+   * @param rowIds
+   *          The row IDs that matched the WHERE clause, in any order, without duplicates.
+   */
+  public RowIdFilterResult(TableShard tableShard, Long[] rowIds) {
+    this.tableShardRef = new WeakReference<>(tableShard);
+
+    long[] sorted = new long[rowIds.length];
+    for (int i = 0; i < rowIds.length; i++)
+      sorted[i] = rowIds[i];
+    Arrays.sort(sorted);
+
+    long[] ranges = new long[16];
+    int rangesLength = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (rangesLength > 0 && ranges[rangesLength - 2] + ranges[rangesLength - 1] == sorted[i]) {
+        ranges[rangesLength - 1]++;
+        continue;
+      }
+      if (rangesLength == ranges.length)
+        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+      ranges[rangesLength++] = sorted[i];
+      ranges[rangesLength++] = 1;
+    }
+
+    this.ranges = Arrays.copyOf(ranges, rangesLength);
+    this.numberOfRowIds = sorted.length;
+  }
+
+  /**
+   * @return <code>true</code> if this result was calculated on the given {@link TableShard} instance.
+   */
+  public boolean isResultOf(TableShard tableShard) {
+    return tableShardRef.get() == tableShard;
+  }
+
+  /**
+   * @return The matching row IDs, sorted.
+   */
+  public Long[] getRowIds() {
+    Long[] res = new Long[numberOfRowIds];
+    int pos = 0;
+    for (int i = 0; i < ranges.length; i += 2)
+      for (long rowId = ranges[i]; rowId < ranges[i] + ranges[i + 1]; rowId++)
+        res[pos++] = rowId;
+    return res;
+  }
+
+  public int getNumberOfRowIds() {
+    return numberOfRowIds;
+  }
+
+  public long calculateApproximateSizeInBytes() {
+    return MemorySizeUtil.objectSize(4, 2) + // this
+        MemorySizeUtil.longArraySize(ranges.length) + //
+        MemorySizeUtil.objectSize(0, 4); // weak reference
+  }
+}
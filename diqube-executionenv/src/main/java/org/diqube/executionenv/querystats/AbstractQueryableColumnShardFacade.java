@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.function.Function;
@@ -44,6 +45,7 @@ import org.diqube.queries.QueryRegistry;
 import org.diqube.queries.QueryUuid;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
 import org.diqube.util.DiqubeCollectors;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 
 /**
@@ -72,8 +74,7 @@ public abstract class AbstractQueryableColumnShardFacade implements QueryableCol
   @Override
   public long calculateApproximateSizeInBytes() {
     return delegate.calculateApproximateSizeInBytes() + //
-        9 // some constant for the other fields.
-        ;
+        MemorySizeUtil.objectSize(1, 2); // this
   }
 
   @Override
@@ -183,6 +184,33 @@ public abstract class AbstractQueryableColumnShardFacade implements QueryableCol
     return res;
   }
 
+  @Override
+  public long[] resolveColumnValueIdsForRowRange(long firstRowId, int length) {
+    long[] res = new long[length];
+    if (!(delegate instanceof StandardColumnShard))
+      return res;
+
+    Arrays.fill(res, -1L);
+    NavigableMap<Long, ColumnPage> pages = ((StandardColumnShard) delegate).getPages();
+    Long fromPageFirstRowId = pages.floorKey(firstRowId);
+    if (fromPageFirstRowId == null)
+      fromPageFirstRowId = firstRowId;
+
+    for (ColumnPage page : pages.subMap(fromPageFirstRowId, true, firstRowId + length, false).values()) {
+      int fromIndex = (int) Math.max(0L, firstRowId - page.getFirstRowId());
+      int toIndex = (int) Math.min(page.size(), firstRowId + length - page.getFirstRowId());
+      if (fromIndex >= toIndex)
+        continue;
+
+      if (queryRegistry != null)
+        queryRegistry.getOrCreateCurrentStatsManager().registerPageAccess(page, isTempColumn);
+
+      page.resolveColumnValueIds(fromIndex, toIndex, res, (int) (page.getFirstRowId() + fromIndex - firstRowId));
+    }
+
+    return res;
+  }
+
   @Override
   public long resolveColumnValueIdForRow(Long rowId) {
     if (delegate instanceof StandardColumnShard) {
@@ -220,4 +248,11 @@ public abstract class AbstractQueryableColumnShardFacade implements QueryableCol
     return delegate;
   }
 
+  /**
+   * @return The {@link QueryRegistry} to collect stats with or <code>null</code> if no stats should be collected.
+   */
+  protected QueryRegistry getQueryRegistry() {
+    return queryRegistry;
+  }
+
 }
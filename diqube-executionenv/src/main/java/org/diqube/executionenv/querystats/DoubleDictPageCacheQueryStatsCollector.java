@@ -0,0 +1,52 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.executionenv.querystats;
+
+import org.diqube.data.types.dbl.dict.FpcDoubleDictionary;
+import org.diqube.data.types.dbl.dict.FpcDoubleDictionary.DecodedPageCacheListener;
+import org.diqube.queries.QueryStatsManager;
+
+/**
+ * Collects hits/misses of the decoded page caches of {@link FpcDoubleDictionary} into the {@link QueryStatsManager} of
+ * a specific query.
+ * 
+ * <p>
+ * Instances are bound to the dictionaries accessed by a query by {@link QueryableDoubleColumnShardFacade}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class DoubleDictPageCacheQueryStatsCollector implements DecodedPageCacheListener {
+  private QueryStatsManager statsManager;
+
+  public DoubleDictPageCacheQueryStatsCollector(QueryStatsManager statsManager) {
+    this.statsManager = statsManager;
+  }
+
+  @Override
+  public void decodedPageCacheHit() {
+    statsManager.incNumberOfDoubleDictPageCacheHits();
+  }
+
+  @Override
+  public void decodedPageCacheMiss() {
+    statsManager.incNumberOfDoubleDictPageCacheMisses();
+  }
+}
@@ -66,6 +66,20 @@ public interface QueryableColumnShard extends ColumnShard {
    */
   public Long[] resolveColumnValueIdsForRowsFlat(List<Long> rowIds);
 
+  /**
+   * Just like {@link #resolveColumnValueIdsForRowsFlat(List)}, but for a consecutive range of rows and into a primitive
+   * array. The column pages are read directly, values are not boxed one by one.
+   * 
+   * <p>
+   * Please note that for row IDs that are not available in this column shard, the returned array will be -1.
+   * 
+   * <p>
+   * This method will automatically gather query stats.
+   * 
+   * @return The column value IDs, the value of firstRowId at index 0.
+   */
+  public long[] resolveColumnValueIdsForRowRange(long firstRowId, int length);
+
   /**
    * Just like {@link #resolveColumnValueIdsForRowsFlat(Long[])},but for one rowId only.
    * 
@@ -22,7 +22,9 @@ package org.diqube.executionenv.querystats;
 
 import org.diqube.data.types.dbl.DoubleColumnShard;
 import org.diqube.data.types.dbl.dict.DoubleDictionary;
+import org.diqube.data.types.dbl.dict.FpcDoubleDictionary;
 import org.diqube.queries.QueryRegistry;
+import org.diqube.queries.QueryUuid;
 
 /**
  * A facade for {@link DoubleColumnShard} that provides some resolve-methods and gathers statistics.
@@ -32,6 +34,12 @@ import org.diqube.queries.QueryRegistry;
 public class QueryableDoubleColumnShardFacade extends AbstractQueryableColumnShardFacade
     implements QueryableDoubleColumnShard {
 
+  /**
+   * View on the dictionary of the delegate that reports to the stats of the query, see
+   * {@link #getColumnShardDictionary()}.
+   */
+  private volatile DoubleDictionary<?> statsDictionary = null;
+
   public QueryableDoubleColumnShardFacade(DoubleColumnShard delegate, boolean isTempColumn,
       QueryRegistry queryRegistry) {
     super(delegate, isTempColumn, queryRegistry);
@@ -49,8 +57,27 @@ public class QueryableDoubleColumnShardFacade extends AbstractQueryableColumnSha
     return (DoubleColumnShard) super.getDelegate();
   }
 
+  /**
+   * If stats are collected, the returned dictionary reports hits/misses of the decoded page cache of an
+   * {@link FpcDoubleDictionary} to the stats of the query this facade is used in.
+   */
   @Override
   public DoubleDictionary<?> getColumnShardDictionary() {
-    return (DoubleDictionary<?>) super.getColumnShardDictionary();
+    DoubleDictionary<?> res = statsDictionary;
+    if (res != null)
+      return res;
+
+    res = (DoubleDictionary<?>) super.getColumnShardDictionary();
+    if (!(res instanceof FpcDoubleDictionary) || getQueryRegistry() == null)
+      return res;
+
+    if (QueryUuid.getCurrentQueryUuid() == null || QueryUuid.getCurrentExecutionUuid() == null)
+      // not executed by a query thread (yet), do not remember the plain dictionary.
+      return res;
+
+    res = ((FpcDoubleDictionary) res).withDecodedPageCacheListener(
+        new DoubleDictPageCacheQueryStatsCollector(getQueryRegistry().getOrCreateCurrentStatsManager()));
+    statsDictionary = res;
+    return res;
   }
 }
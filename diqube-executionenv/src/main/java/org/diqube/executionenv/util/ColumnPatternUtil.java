@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -35,6 +36,7 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 
 import org.diqube.context.AutoInstatiate;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.executionenv.ExecutionEnvironment;
 import org.diqube.executionenv.querystats.QueryableLongColumnShard;
 import org.diqube.executionenv.resolver.QueryableLongColumnShardResolver;
@@ -128,6 +130,25 @@ public class ColumnPatternUtil {
    */
   public ColumnPatternContainer findColNamesForColNamePattern(QueryableLongColumnShardResolver lengthColResolver,
       List<String> patterns) throws PatternException, LengthColumnMissingException {
+    return findColNamesForColNamePattern(lengthColResolver, pattern -> null, patterns);
+  }
+
+  /**
+   * Replaces all the [*] strings in the patterns with actual column indices, see
+   * {@link #findColNamesForColNamePattern(QueryableLongColumnShardResolver, List)}.
+   * 
+   * <p>
+   * If the patterns contain a single [*] only and a {@link RepeatedColumnShard} repeating on that field is available,
+   * the lengths of the repeated field are read from the offsets of that {@link RepeatedColumnShard} instead of from
+   * the "length" column.
+   * 
+   * @param repeatedColResolver
+   *          Resolves a column name pattern to a {@link RepeatedColumnShard} that repeats on the same field or returns
+   *          <code>null</code>.
+   */
+  public ColumnPatternContainer findColNamesForColNamePattern(QueryableLongColumnShardResolver lengthColResolver,
+      Function<String, RepeatedColumnShard> repeatedColResolver, List<String> patterns)
+          throws PatternException, LengthColumnMissingException {
 
     if (patterns.size() > 1) {
       // Validate that patterns "repeat" in the same paths. For example the following is invalid:
@@ -177,7 +198,18 @@ public class ColumnPatternUtil {
       baseNames.add(newBaseNames);
     }
 
-    return new ColumnPatternContainer(lengthColResolver, baseNames);
+    RepeatedColumnShard lengthRepeatedCol = null;
+    if (baseNames.stream().allMatch(patternBaseNames -> patternBaseNames.size() <= 2)) {
+      // single repetition: All patterns repeat on the same field, take the lengths from any natively stored one.
+      for (String pattern : patterns) {
+        if (pattern.contains(repeatedColNames.allEntriesIdentifyingSubstr()))
+          lengthRepeatedCol = repeatedColResolver.apply(pattern);
+        if (lengthRepeatedCol != null)
+          break;
+      }
+    }
+
+    return new ColumnPatternContainer(lengthColResolver, lengthRepeatedCol, baseNames);
   }
 
   /** for tests */
@@ -229,6 +261,8 @@ public class ColumnPatternUtil {
     /** number of [*] that need to be inserted. */
     private int numberOfStars;
     private QueryableLongColumnShardResolver lengthColResolver;
+    /** if not <code>null</code>, the lengths of the single repetition are read from this natively stored column. */
+    private RepeatedColumnShard lengthRepeatedCol;
 
     /**
      * 
@@ -237,9 +271,10 @@ public class ColumnPatternUtil {
      *          {@link ColumnPatternContainer} will then fill in indices "between" two of these baseNames. Note that all
      *          baseNames need to be along the same "path".
      */
-    private ColumnPatternContainer(QueryableLongColumnShardResolver lengthColResolver, List<List<String>> baseNames)
-        throws LengthColumnMissingException {
+    private ColumnPatternContainer(QueryableLongColumnShardResolver lengthColResolver,
+        RepeatedColumnShard lengthRepeatedCol, List<List<String>> baseNames) throws LengthColumnMissingException {
       this.lengthColResolver = lengthColResolver;
+      this.lengthRepeatedCol = lengthRepeatedCol;
       this.baseNames = baseNames;
       numberOfStars = -1;
       for (int i = 0; i < baseNames.size(); i++)
@@ -296,6 +331,52 @@ public class ColumnPatternUtil {
           .collect(Collectors.toSet());
     }
 
+    /**
+     * @return true if there is only a single pattern which contains exactly one [*].
+     */
+    public boolean isSingleRepetition() {
+      return baseNames.size() == 1 && numberOfStars == 1;
+    }
+
+    /**
+     * Only valid if {@link #isSingleRepetition()}.
+     *
+     * @return The "length" column of the single repetition.
+     */
+    public QueryableLongColumnShard getLengthColumnSingleRepetition() throws LengthColumnMissingException {
+      return getLengthColumn(new ArrayList<>());
+    }
+
+    /**
+     * Only valid if {@link #isSingleRepetition()}.
+     *
+     * @return The names of the columns for all indices up to the maximum length of all rows, ordered by index.
+     */
+    public List<String> getMaximumColumnNamesByIndexSingleRepetition() {
+      List<String> res = new ArrayList<>(stringProviders.size());
+      for (long idx = 0; idx < stringProviders.size(); idx++)
+        res.add(stringProviders.get(Arrays.asList(idx)).get(0).create());
+      return res;
+    }
+
+    /**
+     * Returns the length of the repeated field with the given parent indices in the given row.
+     * 
+     * @param rowId
+     *          The row to receive the length of. If {@link #MAX_LEN}, then the maximum length of all rows is returned.
+     */
+    private long getLength(List<Long> indices, long rowId) throws LengthColumnMissingException {
+      if (lengthRepeatedCol != null)
+        return (rowId != MAX_LEN) ? lengthRepeatedCol.getLength(rowId) : lengthRepeatedCol.getMaxLength();
+
+      QueryableLongColumnShard lenCol = getLengthColumn(indices);
+      if (rowId != MAX_LEN) {
+        long lenColValId = lenCol.resolveColumnValueIdForRow(rowId);
+        return lenCol.getColumnShardDictionary().decompressValue(lenColValId);
+      }
+      return lenCol.getColumnShardDictionary().decompressValue(lenCol.getColumnShardDictionary().getMaxId());
+    }
+
     /**
      * Returns the "length" columns for the column with the given parent indices.
      */
@@ -335,13 +416,7 @@ public class ColumnPatternUtil {
         return;
       }
 
-      long len;
-      QueryableLongColumnShard lenCol = getLengthColumn(rowIndices);
-      if (rowId != MAX_LEN) {
-        long lenColValId = lenCol.resolveColumnValueIdForRow(rowId);
-        len = lenCol.getColumnShardDictionary().decompressValue(lenColValId);
-      } else
-        len = lenCol.getColumnShardDictionary().decompressValue(lenCol.getColumnShardDictionary().getMaxId());
+      long len = getLength(rowIndices, rowId);
 
       rowIndices.add(0L);
       for (long repetitionIdx = 0; repetitionIdx < len; repetitionIdx++) {
@@ -384,9 +459,7 @@ public class ColumnPatternUtil {
         return;
       }
 
-      QueryableLongColumnShard lengthCol = getLengthColumn(indices);
-      long maxLen =
-          lengthCol.getColumnShardDictionary().decompressValue(lengthCol.getColumnShardDictionary().getMaxId());
+      long maxLen = getLength(indices, MAX_LEN);
       indices.add(0L);
       for (long lenIdx = 0; lenIdx < maxLen; lenIdx++) {
         List<ConcatStringProvider> delegateParentStringProviders = new ArrayList<>(parentStringProviders);
@@ -82,9 +82,10 @@ public class DiqubeFileReader {
         throw new IOException("Only file version " + DiqubeFileWriter.FILE_VERSION + " supported, but found version "
             + header.getFileVersion());
 
-      if (header.getContentVersion() != DataSerializer.DATA_VERSION)
-        throw new IOException("Only content version " + DataSerializer.DATA_VERSION + " supported, but found version "
-            + header.getContentVersion());
+      if (header.getContentVersion() < DataSerializer.MIN_SUPPORTED_DATA_VERSION
+          || header.getContentVersion() > DataSerializer.DATA_VERSION)
+        throw new IOException("Only content versions " + DataSerializer.MIN_SUPPORTED_DATA_VERSION + " to "
+            + DataSerializer.DATA_VERSION + " supported, but found version " + header.getContentVersion());
     } catch (TException e) {
       throw new IOException("Could not load file header", e);
     }
@@ -165,6 +166,31 @@ public class DiqubeFileReader {
     return lastTableShardByteIndex;
   }
 
+  /**
+   * @return <code>true</code> if the file contains the boundaries of the single table shards and therefore
+   *         {@link #loadTableShard(int)} can be used. Files written by old versions do not contain this information.
+   */
+  public boolean hasTableShardBoundaries() {
+    return footer.isSetTableShardFirstByteIndices() && footer.isSetTableShardNumberOfRows()
+        && footer.getTableShardFirstByteIndicesSize() == getNumberOfTableShards()
+        && footer.getTableShardNumberOfRowsSize() == getNumberOfTableShards();
+  }
+
+  /**
+   * Expert: Get the index of the first byte of each table shard in the file. Only available if
+   * {@link #hasTableShardBoundaries()}.
+   */
+  public List<Long> getTableShardFirstByteIndices() {
+    return footer.getTableShardFirstByteIndices();
+  }
+
+  /**
+   * @return The number of rows of each table shard in the file. Only available if {@link #hasTableShardBoundaries()}.
+   */
+  public List<Long> getTableShardNumberOfRows() {
+    return footer.getTableShardNumberOfRows();
+  }
+
   /**
    * @return The git commit ID of which the one who wrote this file was built from.
    */
@@ -202,4 +228,29 @@ public class DiqubeFileReader {
 
     return res;
   }
+
+  /**
+   * Deserializes a single {@link TableShard} stored in the file. Can only be used if
+   * {@link #hasTableShardBoundaries()}.
+   * 
+   * <p>
+   * This method can be called concurrently for different table shards of the same file.
+   * 
+   * @param tableShardIdx
+   *          Index of the table shard in the file, 0 <= tableShardIdx < {@link #getNumberOfTableShards()}.
+   */
+  public DefaultTableShard loadTableShard(int tableShardIdx) throws IOException, DeserializationException {
+    if (!hasTableShardBoundaries())
+      throw new IOException("File does not contain boundaries of the table shards.");
+    if (tableShardIdx < 0 || tableShardIdx >= getNumberOfTableShards())
+      throw new IOException("Table shard " + tableShardIdx + " not available, file contains "
+          + getNumberOfTableShards() + " table shards.");
+
+    long firstByteIdx = footer.getTableShardFirstByteIndices().get(tableShardIdx);
+    long lastByteIdxExclusive = (tableShardIdx == getNumberOfTableShards() - 1) ? lastTableShardByteIndex + 1
+        : footer.getTableShardFirstByteIndices().get(tableShardIdx + 1);
+
+    return deserializer.deserialize(DefaultTableShard.class,
+        data.createPartialInputStream(firstByteIdx, lastByteIdxExclusive));
+  }
 }
@@ -24,6 +24,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.thrift.TException;
 import org.apache.thrift.TSerializer;
@@ -39,12 +41,18 @@ import org.diqube.file.v1.SDiqubeFileFooterInfo;
 import org.diqube.file.v1.SDiqubeFileHeader;
 
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 
 /**
  * Writes a single .diqube file which can contain multiple serialized {@link TableShard}s.
  * 
  * This class is {@link Closeable} and {@link #close()} needs to be called therefore. It will though not close the
  * {@link OutputStream} automatically, which it writes to.
+ * 
+ * <p>
+ * The footer of the file contains the byte index at which each table shard starts, which allows readers to deserialize
+ * the table shards of a file in parallel. The {@link OutputStream} is therefore expected to be positioned at the start
+ * of the file.
  *
  * @author Bastian Gloeckle
  */
@@ -53,7 +61,7 @@ public class DiqubeFileWriter implements Closeable {
   public static final int FILE_VERSION = 1;
 
   private DataSerializer serializer;
-  private OutputStream outputStream;
+  private CountingOutputStream outputStream;
 
   private TSerializer compactSerializer = new TSerializer(new TCompactProtocol.Factory());
 
@@ -61,9 +69,13 @@ public class DiqubeFileWriter implements Closeable {
   private int numberOfTableShards = 0;
   private String comment = null;
 
+  /** First byte index of each table shard in the file, <code>null</code> if unknown for at least one table shard. */
+  private List<Long> tableShardFirstByteIndices = new ArrayList<>();
+  private List<Long> tableShardNumberOfRows = new ArrayList<>();
+
   /* package */ DiqubeFileWriter(DataSerializer serializer, OutputStream outputStream) throws IOException {
     this.serializer = serializer;
-    this.outputStream = outputStream;
+    this.outputStream = new CountingOutputStream(outputStream);
 
     SDiqubeFileHeader fileHeader = new SDiqubeFileHeader();
     fileHeader.setMagic(MAGIC_STRING);
@@ -74,8 +86,8 @@ public class DiqubeFileWriter implements Closeable {
 
     try {
       byte[] headerBytes = compactSerializer.serialize(fileHeader);
-      outputStream.write(headerBytes);
-      outputStream.flush();
+      this.outputStream.write(headerBytes);
+      this.outputStream.flush();
     } catch (TException | IOException e) {
       throw new IOException("Could not serialize/write file header", e);
     }
@@ -97,9 +109,14 @@ public class DiqubeFileWriter implements Closeable {
     // remember number of rows before the objectDoneConsumer is called, but add the number of rows only after
     // serializing, if an exception is thrown.
     long numberOfRowsDelta = tableShard.getNumberOfRowsInShard();
+    long firstByteIndex = outputStream.getCount();
     serializer.serialize(tableShard, outputStream, objectDoneConsumer);
     numberOfTableShards++;
     numberOfRows += numberOfRowsDelta;
+    if (tableShardFirstByteIndices != null) {
+      tableShardFirstByteIndices.add(firstByteIndex);
+      tableShardNumberOfRows.add(numberOfRowsDelta);
+    }
   }
 
   /**
@@ -116,10 +133,48 @@ public class DiqubeFileWriter implements Closeable {
    */
   public void writeSerializedTableShards(InputStream serializedTableShards, long totalNumberOfRows,
       int numberOfTableShards) throws IOException {
+    writeSerializedTableShards(serializedTableShards, totalNumberOfRows, numberOfTableShards, null, null);
+  }
+
+  /**
+   * Write data of already serialized table shards to the file, providing the boundaries of the single table shards.
+   * 
+   * @param serializedTableShards
+   *          The serialized data of one or multiple table shards
+   * @param totalNumberOfRows
+   *          The total number of rows all the TableShards contain
+   * @param numberOfTableShards
+   *          The number of table shards that are provided
+   * @param tableShardFirstByteIndices
+   *          For each table shard the index of its first byte relative to the start of serializedTableShards. Can be
+   *          <code>null</code> if not known, the resulting file will then not contain any table shard boundaries.
+   * @param tableShardNumberOfRows
+   *          For each table shard its number of rows. Can be <code>null</code> if tableShardFirstByteIndices is
+   *          <code>null</code>.
+   * @throws IOException
+   *           If anything cannot be written.
+   */
+  public void writeSerializedTableShards(InputStream serializedTableShards, long totalNumberOfRows,
+      int numberOfTableShards, List<Long> tableShardFirstByteIndices, List<Long> tableShardNumberOfRows)
+          throws IOException {
+    long firstByteIndex = outputStream.getCount();
     ByteStreams.copy(serializedTableShards, outputStream);
     outputStream.flush();
     this.numberOfTableShards += numberOfTableShards;
     this.numberOfRows += totalNumberOfRows;
+
+    if (this.tableShardFirstByteIndices != null) {
+      if (tableShardFirstByteIndices == null || tableShardNumberOfRows == null
+          || tableShardFirstByteIndices.size() != numberOfTableShards
+          || tableShardNumberOfRows.size() != numberOfTableShards) {
+        this.tableShardFirstByteIndices = null;
+        this.tableShardNumberOfRows = null;
+      } else {
+        for (long relativeIndex : tableShardFirstByteIndices)
+          this.tableShardFirstByteIndices.add(firstByteIndex + relativeIndex);
+        this.tableShardNumberOfRows.addAll(tableShardNumberOfRows);
+      }
+    }
   }
 
   /**
@@ -131,6 +186,10 @@ public class DiqubeFileWriter implements Closeable {
     footer.setComment((comment != null) ? comment : "");
     footer.setNumberOfRows(numberOfRows);
     footer.setNumberOfTableShards(numberOfTableShards);
+    if (tableShardFirstByteIndices != null) {
+      footer.setTableShardFirstByteIndices(tableShardFirstByteIndices);
+      footer.setTableShardNumberOfRows(tableShardNumberOfRows);
+    }
 
     try {
       byte[] footerBytes = compactSerializer.serialize(footer);
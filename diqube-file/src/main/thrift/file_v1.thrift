@@ -32,7 +32,11 @@ struct SDiqubeFileHeader {
 struct SDiqubeFileFooter {
     1: i64 numberOfRows,
     2: i32 numberOfTableShards,
-    3: string comment
+    3: string comment,
+    // index of the first byte of each table shard in the file; not available in files written by old versions.
+    4: optional list<i64> tableShardFirstByteIndices,
+    // number of rows of each table shard; available if tableShardFirstByteIndices is available.
+    5: optional list<i64> tableShardNumberOfRows
 }
 
 struct SDiqubeFileFooterInfo {
@@ -33,6 +33,7 @@ import org.diqube.data.flatten.FlattenedTable;
 import org.diqube.data.table.Table;
 import org.diqube.data.table.TableShard;
 import org.diqube.executionenv.FlattenedTableInstanceManager;
+import org.diqube.flatten.Flattener.FlattenProgressListener;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -112,10 +113,15 @@ public class FlattenManager {
    *          Which field to flatten by.
    * @param flattenId
    *          The ID of the resulting flattening.
+   * @param progressListener
+   *          Informed about the progress of flattening the table shards. If the flattened table is re-used from memory
+   *          or the disk cache, this is informed once that all shards are flattened. Can be <code>null</code>.
    * @return A fresh instance of {@link FlattenedTable}.
+   * @throws IllegalStateException
+   *           If the table cannot be flattened, e.g. because the current thread was interrupted.
    */
   public FlattenedTable createFlattenedTable(Table sourceTable, Collection<TableShard> sourceTableShards,
-      String flattenBy, UUID flattenId) {
+      String flattenBy, UUID flattenId, FlattenProgressListener progressListener) throws IllegalStateException {
     if (sourceTableShards == null)
       sourceTableShards = sourceTable.getShards();
 
@@ -131,6 +137,7 @@ public class FlattenManager {
         // "newest" is still valid. Great!
         logger.info("Will re-use the flattening for '{}' by '{}' from ID {} for new ID {}", sourceTable.getName(),
             flattenBy, newestInstancePair.getLeft(), flattenId);
+        informAllShardsFlattened(progressListener, sourceTableShards.size());
         return flattenedTableUtil.facadeWithDefaultRowIds(newestInstance, sourceTable.getName(), flattenBy, flattenId);
       }
     }
@@ -142,15 +149,22 @@ public class FlattenManager {
       // disk cache has a version, wohoo!
       logger.info("Will re-use the disk-cached version for '{}' by '{}' for new ID {}", sourceTable.getName(),
           flattenBy, flattenId);
+      informAllShardsFlattened(progressListener, sourceTableShards.size());
       return flattenedTableUtil.facadeWithDefaultRowIds(diskCacheInstance, sourceTable.getName(), flattenBy, flattenId);
     }
 
     // Create new flatten.
     logger.info("No valid flattened table for '{}' by '{}' available, will therefore flatten table now.",
         sourceTable.getName(), flattenBy);
-    FlattenedTable res = flattener.flattenTable(sourceTable, sourceTableShards, flattenBy, flattenId);
+    FlattenedTable res =
+        flattener.flattenTable(sourceTable, sourceTableShards, flattenBy, flattenId, progressListener);
     flattenedTableDiskCache.offer(res, sourceTable.getName(), flattenBy);
     return res;
   }
 
+  private void informAllShardsFlattened(FlattenProgressListener progressListener, int numberOfShards) {
+    if (progressListener != null)
+      progressListener.shardFlattened(numberOfShards, numberOfShards);
+  }
+
 }
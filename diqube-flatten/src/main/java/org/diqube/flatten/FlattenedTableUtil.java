@@ -20,14 +20,22 @@
  */
 package org.diqube.flatten;
 
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.diqube.context.AutoInstatiate;
@@ -38,12 +46,19 @@ import org.diqube.data.column.ColumnShardFactory;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.flatten.FlattenDataFactory;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
+import org.diqube.data.flatten.FlattenedTableShard.ColumnMaterializer;
 import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
 import org.diqube.data.types.dbl.DoubleStandardColumnShard;
 import org.diqube.data.types.lng.LongStandardColumnShard;
 import org.diqube.data.types.str.StringStandardColumnShard;
 import org.diqube.name.FlattenedTableNameUtil;
+import org.diqube.name.RepeatedColumnNameGenerator;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Util for {@link FlattenedTable}s.
@@ -52,6 +67,7 @@ import org.diqube.name.FlattenedTableNameUtil;
  */
 @AutoInstatiate
 public class FlattenedTableUtil {
+  private static final Logger logger = LoggerFactory.getLogger(FlattenedTableUtil.class);
 
   @Inject
   private FlattenDataFactory factory;
@@ -68,6 +84,31 @@ public class FlattenedTableUtil {
   @Inject
   private TableFactory tableFactory;
 
+  @Inject
+  private RepeatedColumnNameGenerator repeatedColNameGen;
+
+  @Inject
+  private ExecutorManager executorManager;
+
+  private ExecutorService materializeExecutor;
+
+  @PostConstruct
+  public void initialize() {
+    materializeExecutor =
+        executorManager.newFixedThreadPoolWithTimeout("flatten-column-%d", new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread t, Throwable e) {
+            // failures to materialize a column are re-thrown as IllegalStateException by Future#get.
+            logger.error("Uncaught exception while materializing a flattened column", e);
+          }
+        }, Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    materializeExecutor.shutdownNow();
+  }
+
   /**
    * Will facade the given table, so in the returned table, the
    * {@link AdjustableStandardColumnShard#adjustToFirstRowId(long)} can be safely executed without changing the source
@@ -76,6 +117,10 @@ public class FlattenedTableUtil {
    * <p>
    * The returned table will have those firstRowIds of the table that the flattening was originally based on.
    * 
+   * <p>
+   * {@link FlattenedTableShard}s of the input table are facaded lazily, i.e. their columns are not materialized by this
+   * method, but only when they are accessed on the returned table.
+   * 
    * @param inputTable
    *          The table to be facaded.
    * @param Name
@@ -104,44 +149,136 @@ public class FlattenedTableUtil {
 
     for (TableShard inputTableShard : inputTableShardsSorted) {
       long origFirstRowId = origTableShardFirstRowIdIt.next();
-      Collection<StandardColumnShard> newColShards = new ArrayList<>();
 
-      for (StandardColumnShard inputColumnShard : inputTableShard.getColumns().values()) {
-
-        NavigableMap<Long, ColumnPage> newPages = new TreeMap<>();
-
-        long nextFirstRowId = origFirstRowId;
-
-        for (ColumnPage inputPage : inputColumnShard.getPages().values()) {
-          ColumnPage newPage;
-          // Use the original dict and values, but provide a different firstRowId.
-          newPage = columnPageFactory.createDefaultColumnPage(inputPage.getColumnPageDict(), inputPage.getValues(),
-              nextFirstRowId, inputColumnShard.getName() + "#" + nextFirstRowId);
-          nextFirstRowId += newPage.size();
-          newPages.put(newPage.getFirstRowId(), newPage);
-        }
-
-        StandardColumnShard newColShard = null;
-        switch (inputColumnShard.getColumnType()) {
-        case STRING:
-          newColShard = columnShardFactory.createStandardStringColumnShard(inputColumnShard.getName(), newPages,
-              ((StringStandardColumnShard) inputColumnShard).getColumnShardDictionary());
-          break;
-        case LONG:
-          newColShard = columnShardFactory.createStandardLongColumnShard(inputColumnShard.getName(), newPages,
-              ((LongStandardColumnShard) inputColumnShard).getColumnShardDictionary());
-          break;
-        case DOUBLE:
-          newColShard = columnShardFactory.createStandardDoubleColumnShard(inputColumnShard.getName(), newPages,
-              ((DoubleStandardColumnShard) inputColumnShard).getColumnShardDictionary());
-          break;
-        }
-        newColShards.add(newColShard);
+      if (inputTableShard instanceof FlattenedTableShard) {
+        // do not materialize any columns here, but only facade those that are accessed on the new table shard.
+        FlattenedTableShard inputFlattenedTableShard = (FlattenedTableShard) inputTableShard;
+        newTableShards.add(factory.createFlattenedTableShard(newTableName, origFirstRowId,
+            inputFlattenedTableShard.getNumberOfRowsInShard(), inputFlattenedTableShard.getColumnTypes(),
+            new ColumnMaterializer() {
+              @Override
+              public StandardColumnShard materialize(String colName, long firstRowId) {
+                return facadeColumnShard(inputFlattenedTableShard.getColumns().get(colName), firstRowId);
+              }
+
+              @Override
+              public long calculateApproximateSizeInBytes() {
+                // all data is shared with inputFlattenedTableShard.
+                return 0;
+              }
+            }));
+        continue;
       }
 
+      Collection<StandardColumnShard> newColShards = new ArrayList<>();
+
+      for (StandardColumnShard inputColumnShard : inputTableShard.getColumns().values())
+        newColShards.add(facadeColumnShard(inputColumnShard, origFirstRowId));
+
       newTableShards.add(tableFactory.createDefaultTableShard(newTableName, newColShards));
     }
 
     return factory.createFlattenedTable(newTableName, newTableShards, inputTable.getOriginalFirstRowIdsOfShards());
   }
+
+  /**
+   * Materializes those columns of the {@link FlattenedTableShard}s of the given table right away that are referenced
+   * by the given column names. All other columns stay lazy and will be materialized as soon as they are accessed.
+   * 
+   * <p>
+   * The columns are materialized in parallel.
+   * 
+   * @param table
+   *          The flattened table. Table shards that are not {@link FlattenedTableShard}s are ignored, as their columns
+   *          are available already.
+   * @param columnNames
+   *          Names of the columns (of the flattened table) to materialize. These can contain repeated column names with
+   *          {@link RepeatedColumnNameGenerator#allEntriesIdentifyingSubstr()}, in which case all columns that share
+   *          the prefix up to that substring will be materialized (e.g. all a.b[0].c, a.b[1].c, a.b[length] for
+   *          "a.b[*].c"). Names of columns that do not exist are ignored.
+   * @throws IllegalStateException
+   *           If the current thread is interrupted or a column cannot be materialized.
+   */
+  public void materializeColumns(FlattenedTable table, Collection<String> columnNames) throws IllegalStateException {
+    if (columnNames.isEmpty())
+      return;
+
+    Set<String> exactNames = new HashSet<>();
+    Set<String> prefixes = new HashSet<>();
+    for (String colName : columnNames) {
+      int allEntriesIdx = colName.indexOf(repeatedColNameGen.allEntriesIdentifyingSubstr());
+      if (allEntriesIdx >= 0)
+        prefixes.add(colName.substring(0, allEntriesIdx));
+      else
+        exactNames.add(colName);
+    }
+
+    List<Pair<FlattenedTableShard, String>> columnsToMaterialize = new ArrayList<>();
+    for (TableShard shard : table.getShards()) {
+      if (!(shard instanceof FlattenedTableShard))
+        continue;
+      FlattenedTableShard flattenedShard = (FlattenedTableShard) shard;
+
+      for (String colName : flattenedShard.getColumnTypes().keySet())
+        if (exactNames.contains(colName) || prefixes.stream().anyMatch(prefix -> colName.startsWith(prefix)))
+          columnsToMaterialize.add(new Pair<>(flattenedShard, colName));
+    }
+
+    logger.debug("Materializing {} columns of flattened table '{}' right away.", columnsToMaterialize.size(),
+        table.getName());
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (Pair<FlattenedTableShard, String> p : columnsToMaterialize)
+      // accessing the column materializes it.
+      futures.add(materializeExecutor.submit(() -> p.getLeft().getColumns().get(p.getRight())));
+
+    try {
+      for (Future<?> future : futures)
+        future.get();
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while materializing columns of " + table.getName(), e);
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw new IllegalStateException(
+          "Could not materialize columns of " + table.getName() + ": " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Creates a new {@link StandardColumnShard} which re-uses the dictionary and the values of the input column, but has
+   * the given first row ID.
+   */
+  private StandardColumnShard facadeColumnShard(StandardColumnShard inputColumnShard, long firstRowId) {
+    NavigableMap<Long, ColumnPage> newPages = new TreeMap<>();
+
+    long nextFirstRowId = firstRowId;
+
+    for (ColumnPage inputPage : inputColumnShard.getPages().values()) {
+      ColumnPage newPage;
+      // Use the original dict and values, but provide a different firstRowId.
+      newPage = columnPageFactory.createDefaultColumnPage(inputPage.getColumnPageDict(), inputPage.getValues(),
+          nextFirstRowId, inputColumnShard.getName() + "#" + nextFirstRowId);
+      nextFirstRowId += newPage.size();
+      newPages.put(newPage.getFirstRowId(), newPage);
+    }
+
+    StandardColumnShard newColShard = null;
+    switch (inputColumnShard.getColumnType()) {
+    case STRING:
+      newColShard = columnShardFactory.createStandardStringColumnShard(inputColumnShard.getName(), newPages,
+          ((StringStandardColumnShard) inputColumnShard).getColumnShardDictionary());
+      break;
+    case LONG:
+      newColShard = columnShardFactory.createStandardLongColumnShard(inputColumnShard.getName(), newPages,
+          ((LongStandardColumnShard) inputColumnShard).getColumnShardDictionary());
+      break;
+    case DOUBLE:
+      newColShard = columnShardFactory.createStandardDoubleColumnShard(inputColumnShard.getName(), newPages,
+          ((DoubleStandardColumnShard) inputColumnShard).getColumnShardDictionary());
+      break;
+    }
+    return newColShard;
+  }
 }
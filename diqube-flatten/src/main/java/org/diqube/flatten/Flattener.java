@@ -20,26 +20,35 @@
  */
 package org.diqube.flatten;
 
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
-import java.util.NavigableSet;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.diqube.context.AutoInstatiate;
@@ -47,12 +56,14 @@ import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnPageFactory;
 import org.diqube.data.column.ColumnShardFactory;
 import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.dictionary.Dictionary;
 import org.diqube.data.flatten.FlattenDataFactory;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
+import org.diqube.data.flatten.FlattenedTableShard.ColumnMaterializer;
 import org.diqube.data.table.Table;
-import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
 import org.diqube.data.types.dbl.dict.ConstantDoubleDictionary;
 import org.diqube.data.types.dbl.dict.DoubleDictionary;
@@ -73,6 +84,8 @@ import org.diqube.loader.compression.CompressedLongDictionaryBuilder;
 import org.diqube.loader.compression.CompressedStringDictionaryBuilder;
 import org.diqube.name.FlattenedTableNameUtil;
 import org.diqube.name.RepeatedColumnNameGenerator;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +95,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 
 /**
  * Flattens a {@link Table} on a specific (repeated) field, i.e. that for each entry in the repeated field that is
@@ -123,6 +137,9 @@ import com.google.common.collect.Sets;
 public class Flattener {
   private static final Logger logger = LoggerFactory.getLogger(Flattener.class);
 
+  /** Check if the flattening thread was interrupted each time this number of input rows was inspected. */
+  private static final int INTERRUPT_CHECK_ROWS = 10_000;
+
   @Inject
   private FlattenDataFactory factory;
 
@@ -142,7 +159,32 @@ public class Flattener {
   private ColumnShardFactory columnShardFactory;
 
   @Inject
-  private TableFactory tableFactory;
+  private ExecutorManager executorManager;
+
+  private ExecutorService flattenShardExecutor;
+
+  @PostConstruct
+  public void initialize() {
+    flattenShardExecutor =
+        executorManager.newFixedThreadPoolWithTimeout("flatten-shard-%d", new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread t, Throwable e) {
+            // flattenTableShard failures are re-thrown by Future#get in flattenTable, log anything else.
+            logger.error("Uncaught exception while flattening a table shard", e);
+          }
+        }, Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    flattenShardExecutor.shutdownNow();
+  }
+
+  /** for tests */
+  /* package */ void setFlattenShardExecutor(ExecutorService flattenShardExecutor) {
+    this.flattenShardExecutor.shutdownNow();
+    this.flattenShardExecutor = flattenShardExecutor;
+  }
 
   /**
    * Flatten the given table by the given flatten-by field, returning a premilinary flattened table (see below).
@@ -182,6 +224,25 @@ public class Flattener {
   public FlattenedTable flattenTable(Table inputTable, Collection<TableShard> inputTableShards,
       String flattenByField, UUID flattenId)
           throws IllegalArgumentException, IllegalStateException, PatternException, LengthColumnMissingException {
+    return flattenTable(inputTable, inputTableShards, flattenByField, flattenId, null);
+  }
+
+  /**
+   * Flatten the given table by the given flatten-by field, just like
+   * {@link #flattenTable(Table, Collection, String, UUID)}, but inform the given {@link FlattenProgressListener} about
+   * the progress.
+   * 
+   * <p>
+   * The table shards are flattened in parallel. If the calling thread is interrupted, the flattening of all table
+   * shards is cancelled and an {@link IllegalStateException} is thrown.
+   * 
+   * @param progressListener
+   *          Is informed each time a table shard has been flattened. Can be <code>null</code>.
+   * @see #flattenTable(Table, Collection, String, UUID)
+   */
+  public FlattenedTable flattenTable(Table inputTable, Collection<TableShard> inputTableShards,
+      String flattenByField, UUID flattenId, FlattenProgressListener progressListener)
+          throws IllegalArgumentException, IllegalStateException, PatternException, LengthColumnMissingException {
     if (inputTable instanceof FlattenedTable)
       throw new IllegalArgumentException("Cannot flatten an already flattened table.");
 
@@ -195,9 +256,33 @@ public class Flattener {
     if (inputTableShards == null)
       inputTableShards = inputTable.getShards();
 
-    List<TableShard> flattenedTableShards = new ArrayList<>();
+    int numberOfShards = inputTableShards.size();
+    AtomicInteger numberOfShardsFlattened = new AtomicInteger(0);
+    List<Future<TableShard>> futures = new ArrayList<>();
     for (TableShard shard : inputTableShards)
-      flattenedTableShards.add(flattenTableShard(resultTableName, shard, flattenByField));
+      futures.add(flattenShardExecutor.submit(() -> {
+        TableShard res = flattenTableShard(resultTableName, shard, flattenByField);
+        int numberFlattened = numberOfShardsFlattened.incrementAndGet();
+        if (progressListener != null)
+          progressListener.shardFlattened(numberFlattened, numberOfShards);
+        return res;
+      }));
+
+    List<TableShard> flattenedTableShards = new ArrayList<>();
+    try {
+      for (Future<TableShard> future : futures)
+        flattenedTableShards.add(future.get());
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while flattening '" + inputTable.getName() + "'.", e);
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException("Could not flatten '" + inputTable.getName() + "': " + e.getCause().getMessage(),
+          e.getCause());
+    }
 
     Set<Long> firstRowIdsOfInputShards =
         inputTableShards.stream().map(shard -> shard.getLowestRowId()).collect(Collectors.toSet());
@@ -209,6 +294,11 @@ public class Flattener {
    * Flattens a single {@link TableShard}.
    * 
    * <p>
+   * The returned {@link FlattenedTableShard} holds only the information on how the rows of the input table shard are
+   * mapped to the rows of the flattened one. The actual columns are materialized only when they are accessed (see
+   * {@link FlattenedColumnMaterializer}), resolving the values through the columns of the input table shard.
+   * 
+   * <p>
    * This works as follows:
    * 
    * <ol>
@@ -229,10 +319,10 @@ public class Flattener {
    * missing of any child-fields (i.e. there is an array a[*].c[*], when flattening over a[*], there are output cols
    * a.c[0], a.c[1], a.c[2], but it could be that a specific row does not contain a.c[2], because that row simply does
    * not have that many entries in the array.
-   * <li>Build the new columns - each new column can be either "multiplicating" (see above), in which case the col pages
-   * are repeated accordingly (and no-longer repeated rows are removed from the repeated colpages) or they can be
-   * "flattned" - in which case the col is a sub-field of the flattened one and we only need to remove rows that do not
-   * contain any value.
+   * <li>Build the new columns lazily - each new column can be either "multiplicating" (see above), in which case the
+   * col pages are repeated accordingly (and no-longer repeated rows are removed from the repeated colpages) or they can
+   * be "flattned" - in which case the col is a sub-field of the flattened one and we only need to remove rows that do
+   * not contain any value.
    * </ol>
    * 
    * We need to ensure that we do not mess up with the row-ordering of the various output columns: Each output column
@@ -295,8 +385,24 @@ public class Flattener {
     ColumnPatternContainer patterns = colPatternUtil.findColNamesForColNamePattern(lengthColName -> {
       allInputLengthColsOfFlattenedFields.add(lengthColName);
       return new QueryableLongColumnShardFacade(inputTableShard.getLongColumns().get(lengthColName));
+    } , pattern -> {
+      // lengths of a single repetition are read from the offsets of any RepeatedColumnShard repeating on that field.
+      RepeatedColumnShard repeatedCol = inputTableShard.getRepeatedColumns().entrySet().stream()
+          .filter(e -> e.getKey().startsWith(pattern)).map(e -> e.getValue()).findAny().orElse(null);
+      if (repeatedCol != null)
+        allInputLengthColsOfFlattenedFields.add(repeatedColNameGen.repeatedLength(
+            pattern.substring(0, pattern.length() - repeatedColNameGen.allEntriesIdentifyingSubstr().length())));
+      return repeatedCol;
     } , repeatedFieldsAlongPath);
 
+    // Index columns of the RepeatedColumnShards are read from those directly instead of materializing the index columns
+    // of the input table shard. Maps from index column name to repeated column and index.
+    Map<String, Pair<RepeatedColumnShard, Integer>> nativeIndexCols = new HashMap<>();
+    for (RepeatedColumnShard repeatedCol : inputTableShard.getRepeatedColumns().values())
+      for (int idx = 0; idx < repeatedCol.getMaxLength(); idx++)
+        nativeIndexCols.put(repeatedColNameGen.repeatedAtIndexOfPattern(repeatedCol.getName(), idx),
+            new Pair<>(repeatedCol, idx));
+
     // transpose result of colPatternUtil: Collect all the most specific patterns in a set, then the second-most
     // specific patterns etc.
     // Later we want to first check if a colname matches one of the most specfic patterns as prefix and replace that,
@@ -387,51 +493,133 @@ public class Flattener {
 
     // prepare information of single rows:
 
-    Map<Long, Integer> multiplicationFactorByRowId = new HashMap<>();
-    // map from input col prefix to rowIds that are not available for all cols starting with that prefix.
-    NavigableMap<String, NavigableSet<Long>> rowIdsNotAvailableForInputCols = new TreeMap<>();
+    long inputFirstRowId = inputTableShard.getLowestRowId();
+    int inputNumberOfRows = (int) inputTableShard.getNumberOfRowsInShard();
+
+    // Number of output rows each input row will be flattened to, index is the offset of the input row to
+    // inputFirstRowId.
+    int[] multiplicationFactors = new int[inputNumberOfRows];
+    // map from input col prefix to the offsets of the input rows that are not available for all cols starting with that
+    // prefix.
+    NavigableMap<String, BitSet> rowsNotAvailableForInputCols = new TreeMap<>();
 
     // number of rows that are generated for one of the prefixes created based on the flatten-by value. Example: When
     // flattening over a[*], this will contain: a[0] -> generates X rows, a[1] -> generates Y rows.
     Map<String, Integer> numberOfRowsByFlattenedPrefix = new HashMap<>();
 
-    for (long inputRowId = inputTableShard.getLowestRowId(); inputRowId < inputTableShard.getLowestRowId()
-        + inputTableShard.getNumberOfRowsInShard(); inputRowId++) {
+    long numberOfOutputRows = 0L;
+    for (int inputRowOffset = 0; inputRowOffset < inputNumberOfRows; inputRowOffset++) {
+      if (inputRowOffset % INTERRUPT_CHECK_ROWS == 0 && Thread.currentThread().isInterrupted())
+        throw new IllegalStateException("Interrupted while flattening table shard of " + resultTableName);
 
       // find the cols of the "flatten-by" field that actually exist for this row.
-      Set<List<String>> colPatterns = patterns.getColumnPatterns(inputRowId);
+      Set<List<String>> colPatterns = patterns.getColumnPatterns(inputFirstRowId + inputRowOffset);
       Set<String> mostSpecificColPatterns = // most-specific = the flatten-by field!
           colPatterns.stream().flatMap(l -> Stream.of(l.get(0))).collect(Collectors.toSet());
 
       // This row will produce this many rows in the output.
       int numberOfNewRows = mostSpecificColPatterns.size();
-      multiplicationFactorByRowId.put(inputRowId, numberOfNewRows);
+      multiplicationFactors[inputRowOffset] = numberOfNewRows;
+      numberOfOutputRows += numberOfNewRows;
       mostSpecificColPatterns.forEach(colPattern -> numberOfRowsByFlattenedPrefix.merge(colPattern, 1, Integer::sum));
 
       // This row might not have valid values for all those repeated cols that are available in the Table for the
       // flatten-by field. Find those columns that are missing.
       for (String notAvailableColName : Sets.difference(prefixesToReplace.get(0), mostSpecificColPatterns)) {
-        if (!rowIdsNotAvailableForInputCols.containsKey(notAvailableColName))
-          rowIdsNotAvailableForInputCols.put(notAvailableColName, new TreeSet<>());
-        rowIdsNotAvailableForInputCols.get(notAvailableColName).add(inputRowId);
+        if (!rowsNotAvailableForInputCols.containsKey(notAvailableColName))
+          rowsNotAvailableForInputCols.put(notAvailableColName, new BitSet(inputNumberOfRows));
+        rowsNotAvailableForInputCols.get(notAvailableColName).set(inputRowOffset);
       }
     }
 
     logger.trace("Multiplication factors are the following for all rows (limit): {}",
-        Iterables.limit(multiplicationFactorByRowId.entrySet(), 100));
+        Iterables.limit(Ints.asList(multiplicationFactors), 100));
 
-    int maxMultiplicationFactor =
-        multiplicationFactorByRowId.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+    // find colType of new cols by searching an input col that exists and taking the coltype of that one.
+    Map<String, ColumnType> newColumnTypes = new HashMap<>();
+    for (Entry<String, SortedSet<String>> newColEntry : newColumns.entrySet())
+      newColumnTypes.put(newColEntry.getKey(),
+          newColEntry.getValue().stream()
+              .filter(inputColName -> inputTableShard.getColumns().containsKey(inputColName))
+              .map(inputColName -> (nativeIndexCols.containsKey(inputColName))
+                  ? nativeIndexCols.get(inputColName).getLeft().getColumnType()
+                  : inputTableShard.getColumns().get(inputColName).getColumnType())
+              .findAny().get());
 
-    // Build new col shards
-    List<StandardColumnShard> flattenedColShards = new ArrayList<>();
-    for (String newColName : newColumns.keySet()) {
-      long nextFirstRowId = inputTableShard.getLowestRowId();
+    FlattenedColumnMaterializer materializer = new FlattenedColumnMaterializer(inputTableShard, nativeIndexCols,
+        newColumns, newColumnTypes, multiplicatingOutputCols, multiplicationFactors, rowsNotAvailableForInputCols,
+        numberOfRowsByFlattenedPrefix);
 
-      // find colType by searching an input col that exists and taking the coltype of that one.
-      ColumnType colType = newColumns.get(newColName).stream()
-          .filter(inputColName -> inputTableShard.getColumns().containsKey(inputColName))
-          .map(inputColName -> inputTableShard.getColumns().get(inputColName).getColumnType()).findAny().get();
+    FlattenedTableShard flattenedTableShard = factory.createFlattenedTableShard(resultTableName, inputFirstRowId,
+        numberOfOutputRows, newColumnTypes, materializer);
+
+    logger.trace("Created flattened table shard {} with {} rows, columns will be materialized on demand.",
+        resultTableName, numberOfOutputRows);
+
+    return flattenedTableShard;
+  }
+
+  /**
+   * Materializes the columns of a single flattened table shard, see {@link #flattenTableShard(String, TableShard,
+   * String)}.
+   * 
+   * <p>
+   * This holds only information on how rows of the input table shard map to the rows of the flattened table shard - the
+   * values are resolved from the input table shard when a column is materialized.
+   */
+  private class FlattenedColumnMaterializer implements ColumnMaterializer {
+    private TableShard inputTableShard;
+    /** map from index column name of the input table shard to the {@link RepeatedColumnShard} and index it is in. */
+    private Map<String, Pair<RepeatedColumnShard, Integer>> nativeIndexCols;
+    /** map from new column name to input column names that column is based upon */
+    private Map<String, SortedSet<String>> newColumns;
+    private Map<String, ColumnType> newColumnTypes;
+    private Set<String> multiplicatingOutputCols;
+    private int[] multiplicationFactors;
+    private int maxMultiplicationFactor;
+    private NavigableMap<String, BitSet> rowsNotAvailableForInputCols;
+    private Map<String, Integer> numberOfRowsByFlattenedPrefix;
+
+    FlattenedColumnMaterializer(TableShard inputTableShard,
+        Map<String, Pair<RepeatedColumnShard, Integer>> nativeIndexCols, Map<String, SortedSet<String>> newColumns,
+        Map<String, ColumnType> newColumnTypes, Set<String> multiplicatingOutputCols, int[] multiplicationFactors,
+        NavigableMap<String, BitSet> rowsNotAvailableForInputCols, Map<String, Integer> numberOfRowsByFlattenedPrefix) {
+      this.inputTableShard = inputTableShard;
+      this.nativeIndexCols = nativeIndexCols;
+      this.newColumns = newColumns;
+      this.newColumnTypes = newColumnTypes;
+      this.multiplicatingOutputCols = multiplicatingOutputCols;
+      this.multiplicationFactors = multiplicationFactors;
+      this.maxMultiplicationFactor = IntStream.of(multiplicationFactors).max().orElse(0);
+      this.rowsNotAvailableForInputCols = rowsNotAvailableForInputCols;
+      this.numberOfRowsByFlattenedPrefix = numberOfRowsByFlattenedPrefix;
+    }
+
+    @Override
+    public long calculateApproximateSizeInBytes() {
+      // column names are counted once only, although they might be referenced by multiple maps.
+      long res = MemorySizeUtil.objectSize(4, 9) + // this
+          MemorySizeUtil.intArraySize(multiplicationFactors.length);
+      for (String indexColName : nativeIndexCols.keySet())
+        res += MemorySizeUtil.stringSize(indexColName) + //
+            MemorySizeUtil.objectSize(0, 2) + // Pair
+            MemorySizeUtil.objectSize(4, 0); // Integer
+      for (BitSet bitSet : rowsNotAvailableForInputCols.values())
+        // BitSet: words, wordsInUse, sizeIsSticky
+        res += MemorySizeUtil.objectSize(4 + 1, 1) + MemorySizeUtil.longArraySize(bitSet.size() / 64);
+      for (Entry<String, SortedSet<String>> newColEntry : newColumns.entrySet()) {
+        res += MemorySizeUtil.stringSize(newColEntry.getKey());
+        for (String inputColName : newColEntry.getValue())
+          res += MemorySizeUtil.stringSize(inputColName);
+      }
+      return res;
+    }
+
+    @Override
+    public StandardColumnShard materialize(String newColName, long firstRowId) {
+      long nextFirstRowId = firstRowId;
+
+      ColumnType colType = newColumnTypes.get(newColName);
 
       // Collect all the col dictionaries of the input columns:
       // map from an artificial ID to the dictionary of an input column. The artificial ID is built the following way:
@@ -441,11 +629,16 @@ public class Flattener {
       // and so on
       // -> basically every entry in the dict has it's own artificial ID. These must not be overlapping!
       // The artificial ID is defined in a way so it can be fed to #mergeDicts(.)
+      // Index columns of the same RepeatedColumnShard share a single dictionary, which is merged only once.
       Map<Long, Dictionary<?>> origColDicts = new HashMap<>();
+      Map<Dictionary<?>, Long> artificialIdByDict = new IdentityHashMap<>();
+      Map<String, Long> artificialIdByInputCol = new HashMap<>();
       long nextColAndColDictId = 0L;
       for (String inputColName : newColumns.get(newColName)) {
         Dictionary<?> dict;
-        if (inputTableShard.getColumns().containsKey(inputColName))
+        if (nativeIndexCols.containsKey(inputColName))
+          dict = nativeIndexCols.get(inputColName).getLeft().getValues().getColumnShardDictionary();
+        else if (inputTableShard.getColumns().containsKey(inputColName))
           dict = inputTableShard.getColumns().get(inputColName).getColumnShardDictionary();
         else {
           // assume we had an input col dict for this non-existing col.
@@ -456,8 +649,12 @@ public class Flattener {
             dict = createDictionaryWithOnlyDefaultValue(colType);
         }
 
-        origColDicts.put(nextColAndColDictId, dict);
-        nextColAndColDictId += dict.getMaxId() + 1;
+        if (!artificialIdByDict.containsKey(dict)) {
+          artificialIdByDict.put(dict, nextColAndColDictId);
+          origColDicts.put(nextColAndColDictId, dict);
+          nextColAndColDictId += dict.getMaxId() + 1;
+        }
+        artificialIdByInputCol.put(inputColName, artificialIdByDict.get(dict));
       }
 
       // merge the input column dicts into the new column dict.
@@ -467,17 +664,13 @@ public class Flattener {
       // new col pages.
       List<ColumnPage> flattenedColPages = new ArrayList<>();
 
-      // we'll use the same counting mechanism that we used fot origColDicts.
-      nextColAndColDictId = 0L;
-
       long[] nextPageValues = new long[ColumnShardBuilder.PROPOSAL_ROWS];
       int nextPageValueNextIdx = 0;
 
       // build col pages
       for (String inputColName : newColumns.get(newColName)) {
-        long curColId = nextColAndColDictId;
-
-        Map<Long, Long> columnValueIdChangeMap = mergeDictInfo.getRight().get(curColId);
+        Map<Long, Long> columnValueIdChangeMap =
+            mergeDictInfo.getRight().get(artificialIdByInputCol.get(inputColName));
 
         if (!inputTableShard.getColumns().containsKey(inputColName)) {
           // This col does not exist, therefore we add an "empty" colPage, which resolves statically to the colTypes'
@@ -503,79 +696,47 @@ public class Flattener {
             nextPageValues[nextPageValueNextIdx++] = columnValueIdChangeMap.get(0L); // constant dict -> always id 0L.
           }
 
-          nextColAndColDictId++; // single entry dict!
-
           continue;
         }
 
-        Dictionary<?> colShardDict = inputTableShard.getColumns().get(inputColName).getColumnShardDictionary();
-        nextColAndColDictId += colShardDict.getMaxId() + 1;
+        // decompress whole column at once, so we can access it quickly later on.
+        long[] colValueIds = resolveColumnValueIdsOfAllRows(inputColName);
 
         if (multiplicatingOutputCols.contains(newColName)) {
-          // decompress whole column at once, so we can access it quickly later on.
-          StandardColumnShard inputCol = inputTableShard.getColumns().get(inputColName);
-          Map<Long, Long[]> colValueIds = new HashMap<>();
-          for (ColumnPage inputPage : inputCol.getPages().values()) {
-            long[] pageValueIds = inputPage.getValues().decompressedArray();
-            Long[] colValueIdsByRow = inputPage.getColumnPageDict()
-                .decompressValues(LongStream.of(pageValueIds).boxed().toArray(l -> new Long[l]));
-            colValueIds.put(inputPage.getFirstRowId(), colValueIdsByRow);
-          }
-
           for (int multiplication = 0; multiplication < maxMultiplicationFactor; multiplication++)
-            for (ColumnPage inputPage : inputTableShard.getColumns().get(inputColName).getPages().values()) {
-              final int curMultiplicationNo = multiplication;
-              for (int i = 0; i < inputPage.getValues().size(); i++) {
-                Integer thisIndexMultiplicationFactor = multiplicationFactorByRowId.get(inputPage.getFirstRowId() + i);
-                if (thisIndexMultiplicationFactor == null)
-                  thisIndexMultiplicationFactor = 1;
-
-                if (thisIndexMultiplicationFactor > curMultiplicationNo) {
-                  // we need to multiplicate this row!
-                  if (nextPageValueNextIdx == nextPageValues.length) {
-                    flattenedColPages.add(buildColPageFromValueArray(nextPageValues, -1, nextFirstRowId, newColName));
-                    nextPageValueNextIdx = 0;
-                    nextFirstRowId += nextPageValues.length;
-                  }
-                  long origColValueId = colValueIds.get(inputPage.getFirstRowId())[i];
-                  nextPageValues[nextPageValueNextIdx++] =
-                      (columnValueIdChangeMap != null) ? columnValueIdChangeMap.get(origColValueId) : origColValueId;
+            for (int rowOffset = 0; rowOffset < colValueIds.length; rowOffset++) {
+              if (multiplicationFactorOfRow(rowOffset) > multiplication) {
+                // we need to multiplicate this row!
+                if (nextPageValueNextIdx == nextPageValues.length) {
+                  flattenedColPages.add(buildColPageFromValueArray(nextPageValues, -1, nextFirstRowId, newColName));
+                  nextPageValueNextIdx = 0;
+                  nextFirstRowId += nextPageValues.length;
                 }
+                long origColValueId = colValueIds[rowOffset];
+                nextPageValues[nextPageValueNextIdx++] =
+                    (columnValueIdChangeMap != null) ? columnValueIdChangeMap.get(origColValueId) : origColValueId;
               }
             }
         } else {
-          for (ColumnPage inputPage : inputTableShard.getColumns().get(inputColName).getPages().values()) {
-            // decompress whole column page at once, so we can access it quickly later on.
-            long[] pageValueIds = inputPage.getValues().decompressedArray();
-            Long[] colValueIdsByRow = inputPage.getColumnPageDict()
-                .decompressValues(LongStream.of(pageValueIds).boxed().toArray(l -> new Long[l]));
-
-            Set<Long> sortedNotAvailableIndices;
-            String interestingPrefix = rowIdsNotAvailableForInputCols.floorKey(inputColName);
-            if (interestingPrefix != null && inputColName.startsWith(interestingPrefix)) {
-              sortedNotAvailableIndices = rowIdsNotAvailableForInputCols.get(interestingPrefix)
-                  .subSet(inputPage.getFirstRowId(), inputPage.getFirstRowId() + inputPage.getValues().size());
-            } else
-              sortedNotAvailableIndices = new HashSet<>();
-
-            // peek next unavailable index, works because indices are sorted.
-            PeekingIterator<Long> notAvailableIndicesIt =
-                Iterators.peekingIterator(sortedNotAvailableIndices.iterator());
-            for (int i = 0; i < inputPage.getValues().size(); i++) {
-              if (notAvailableIndicesIt.hasNext() && notAvailableIndicesIt.peek() == inputPage.getFirstRowId() + i) {
-                notAvailableIndicesIt.next();
-                continue;
-              }
+          BitSet notAvailableRows;
+          String interestingPrefix = rowsNotAvailableForInputCols.floorKey(inputColName);
+          if (interestingPrefix != null && inputColName.startsWith(interestingPrefix))
+            notAvailableRows = rowsNotAvailableForInputCols.get(interestingPrefix);
+          else
+            notAvailableRows = new BitSet();
 
-              if (nextPageValueNextIdx == nextPageValues.length) {
-                flattenedColPages.add(buildColPageFromValueArray(nextPageValues, -1, nextFirstRowId, newColName));
-                nextPageValueNextIdx = 0;
-                nextFirstRowId += nextPageValues.length;
-              }
-              long origColValueId = colValueIdsByRow[i];
-              nextPageValues[nextPageValueNextIdx++] =
-                  (columnValueIdChangeMap != null) ? columnValueIdChangeMap.get(origColValueId) : origColValueId;
+          for (int rowOffset = 0; rowOffset < colValueIds.length; rowOffset++) {
+            if (notAvailableRows.get(rowOffset))
+              continue;
+
+            if (nextPageValueNextIdx == nextPageValues.length) {
+              flattenedColPages.add(buildColPageFromValueArray(nextPageValues, -1, nextFirstRowId, newColName));
+              nextPageValueNextIdx = 0;
+              nextFirstRowId += nextPageValues.length;
             }
+            long origColValueId = colValueIds[rowOffset];
+            nextPageValues[nextPageValueNextIdx++] =
+                (columnValueIdChangeMap != null) ? columnValueIdChangeMap.get(origColValueId) : origColValueId;
           }
         }
       }
@@ -607,16 +768,42 @@ public class Flattener {
         break;
       }
 
-      flattenedColShards.add(flattenedColShard);
+      logger.trace("Materialized flattened column {}", newColName);
 
-      logger.trace("Created flattened column {}", newColName);
+      return flattenedColShard;
     }
 
-    TableShard flattenedTableShard = tableFactory.createDefaultTableShard(resultTableName, flattenedColShards);
-
-    logger.trace("Created flattened table shard " + resultTableName);
+    /**
+     * Resolves the column value IDs of all rows of the given input column. Index columns of
+     * {@link RepeatedColumnShard}s are read from the {@link RepeatedColumnShard} directly, without materializing them.
+     * 
+     * @return Column value IDs in the dictionary of the input column, index is the offset of the row to the first row
+     *         ID of the input table shard.
+     */
+    private long[] resolveColumnValueIdsOfAllRows(String inputColName) {
+      long inputFirstRowId = inputTableShard.getLowestRowId();
+
+      Pair<RepeatedColumnShard, Integer> nativeIndexCol = nativeIndexCols.get(inputColName);
+      if (nativeIndexCol != null)
+        return nativeIndexCol.getLeft().resolveColumnValueIdsOfIndex(
+            LongStream.range(inputFirstRowId, inputFirstRowId + multiplicationFactors.length).toArray(),
+            nativeIndexCol.getRight());
+
+      long[] res = new long[multiplicationFactors.length];
+      for (ColumnPage inputPage : inputTableShard.getColumns().get(inputColName).getPages().values()) {
+        long[] pageValueIds = inputPage.getValues().decompressedArray();
+        int pageFirstRowOffset = (int) (inputPage.getFirstRowId() - inputFirstRowId);
+        for (int i = 0; i < pageValueIds.length; i++)
+          res[pageFirstRowOffset + i] = inputPage.getColumnPageDict().decompressValue(pageValueIds[i]);
+      }
+      return res;
+    }
 
-    return flattenedTableShard;
+    private int multiplicationFactorOfRow(long inputRowOffset) {
+      if (inputRowOffset < 0 || inputRowOffset >= multiplicationFactors.length)
+        return 1;
+      return multiplicationFactors[(int) inputRowOffset];
+    }
   }
 
   /**
@@ -774,4 +961,21 @@ public class Flattener {
     return builder.build();
   }
 
+  /**
+   * Listener that is informed about the progress of flattening a table.
+   */
+  public static interface FlattenProgressListener {
+    /**
+     * A table shard was flattened.
+     * 
+     * <p>
+     * This might be called concurrently from multiple threads.
+     * 
+     * @param numberOfShardsFlattened
+     *          The number of table shards that have been flattened so far.
+     * @param numberOfShardsTotal
+     *          The number of table shards that are flattened in total.
+     */
+    public void shardFlattened(int numberOfShardsFlattened, int numberOfShardsTotal);
+  }
 }
@@ -46,7 +46,6 @@ import org.diqube.connection.ConnectionException;
 import org.diqube.connection.ConnectionOrLocalHelper;
 import org.diqube.connection.OurNodeAddressProvider;
 import org.diqube.connection.ServiceProvider;
-import org.diqube.consensus.ConsensusClient.ConsensusClusterUnavailableException;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.remote.cluster.thrift.ClusterFlattenService;
 import org.diqube.remote.cluster.thrift.ROptionalUuid;
@@ -88,6 +87,8 @@ public class QueryMasterFlattenService {
   private Map<UUID, Deque<UUID>> requestToFlattenedTableId = new ConcurrentHashMap<>();
   private Map<UUID, String> requestToException = new ConcurrentHashMap<>();
   private Map<UUID, Object> requestToSync = new ConcurrentHashMap<>();
+  /** Progress of the remotes: Map from node to pair of "number of shards flattened" and "number of shards total". */
+  private Map<UUID, Map<RNodeAddress, Pair<Integer, Integer>>> requestToProgress = new ConcurrentHashMap<>();
   /** UUID may be <code>null</code> */
   private Map<Long, Pair<UUID, QueryMasterFlattenCallback>> threadIdToRequestUuidAndCallback =
       new ConcurrentHashMap<>();
@@ -105,6 +106,7 @@ public class QueryMasterFlattenService {
             requestToFlattenedTableId.remove(uuidAndCallback.getLeft());
             requestToException.remove(uuidAndCallback.getLeft());
             requestToSync.remove(uuidAndCallback.getLeft());
+            requestToProgress.remove(uuidAndCallback.getLeft());
           }
         }
       }
@@ -122,35 +124,34 @@ public class QueryMasterFlattenService {
    *          The name of the table to be flattened.
    * @param flattenBy
    *          The "flatten by" field, see {@link Flattener} for details.
+   * @param referencedColumns
+   *          Names of the columns of the flattened table that the query which requests the flattening references. If
+   *          the table needs to be flattened newly, the query remotes will flatten these columns right away, while all
+   *          other columns are flattened as soon as they are accessed. Can be empty.
    * @param callback
-   *          The callback that will be informed about the result of the flattening.
+   *          The callback that will be informed about the progress and the result of the flattening.
+   * @return A handle which can be used to cancel the flattening.
    */
-  public void flattenAsync(String table, String flattenBy, QueryMasterFlattenCallback callback) {
+  public FlattenHandle flattenAsync(String table, String flattenBy, Collection<String> referencedColumns,
+      QueryMasterFlattenCallback callback) {
     logger.info("Requested a flattened version of '{}' by '{}'.", table, flattenBy);
 
     long timeoutTime = System.nanoTime() + flattenTimeoutSeconds * 1_000_000_000L;
+    FlattenHandle handle = new FlattenHandle();
 
     Runnable flattenRunnable = new Runnable() {
       @Override
       public void run() {
+        if (handle.isCancelled())
+          return;
+
         // remember the callback if an uncaught exception occurs. No UUID yet, there's nothing to cleanup in the
         // UUID-based maps.
         // Note that threadIdToRequestUuidAndCallback is NOT cleaned up in a try..finally, since the uncaught exception
         // handler needs access to that map!
         threadIdToRequestUuidAndCallback.put(Thread.currentThread().getId(), new Pair<>(null, callback));
 
-        Collection<RNodeAddress> nodesServingTable;
-        try {
-          nodesServingTable = clusterLayout.findNodesServingTable(table);
-        } catch (InterruptedException e1) {
-          logger.error("Interrupted", e1);
-          // exit quietly.
-          return;
-        } catch (ConsensusClusterUnavailableException e) {
-          threadIdToRequestUuidAndCallback.remove(Thread.currentThread().getId());
-          callback.flattenException("Cannot flatten since consensus cluster is unavailable", e);
-          return;
-        }
+        Collection<RNodeAddress> nodesServingTable = clusterLayout.findNodesServingTableCached(table);
 
         if (nodesServingTable.isEmpty()) {
           threadIdToRequestUuidAndCallback.remove(Thread.currentThread().getId());
@@ -189,6 +190,7 @@ public class QueryMasterFlattenService {
           requestToSync.put(flattenRequestUuid, sync);
           requestToException.remove(flattenRequestUuid);
           requestToFlattenedTableId.put(flattenRequestUuid, new ConcurrentLinkedDeque<>());
+          requestToProgress.put(flattenRequestUuid, new ConcurrentHashMap<>());
 
           // we now initialized the UUID-keyed maps, make sure the uncaught exception handler will cleanup them, too.
           threadIdToRequestUuidAndCallback.put(Thread.currentThread().getId(),
@@ -202,7 +204,7 @@ public class QueryMasterFlattenService {
                   connectionOrLocalHelper.getService(ClusterFlattenService.Iface.class, node, null)) {
 
                 serviceProv.getService().flattenAllLocalShards(flattenRequestRuuid, table, flattenBy, otherFlatteners,
-                    ourNodeAddressProvider.getOurNodeAddress().createRemote());
+                    ourNodeAddressProvider.getOurNodeAddress().createRemote(), new ArrayList<>(referencedColumns));
               } catch (ConnectionException | IOException | IllegalStateException | TException e) {
                 logger.info("Exception while talking to {} about flattening table {}. Will retry.", node, table, e);
                 threadIdToRequestUuidAndCallback.remove(Thread.currentThread().getId());
@@ -219,6 +221,7 @@ public class QueryMasterFlattenService {
 
             int numberOfRemotesDone = 0;
             UUID finalFlattenedTableId = null;
+            Pair<Integer, Integer> lastProgress = null;
             while (numberOfRemotesDone < nodesServingTable.size()) {
               synchronized (sync) {
                 if (requestToFlattenedTableId.get(flattenRequestUuid).isEmpty()
@@ -232,6 +235,22 @@ public class QueryMasterFlattenService {
                   }
               }
 
+              if (handle.isCancelled()) {
+                logger.info("Flatten request {} was cancelled, informing remotes.", flattenRequestUuid);
+                cancelOnRemotes(flattenRequestRuuid, nodesServingTable);
+                threadIdToRequestUuidAndCallback.remove(Thread.currentThread().getId());
+                return;
+              }
+
+              Pair<Integer, Integer> progress = new Pair<>(0, 0);
+              for (Pair<Integer, Integer> remoteProgress : requestToProgress.get(flattenRequestUuid).values())
+                progress = new Pair<>(progress.getLeft() + remoteProgress.getLeft(),
+                    progress.getRight() + remoteProgress.getRight());
+              if (!progress.equals(lastProgress) && progress.getRight() > 0) {
+                callback.flattenProgress(progress.getLeft(), progress.getRight());
+                lastProgress = progress;
+              }
+
               if (requestToException.get(flattenRequestUuid) != null) {
                 threadIdToRequestUuidAndCallback.remove(Thread.currentThread().getId());
                 callback.flattenException(
@@ -273,6 +292,7 @@ public class QueryMasterFlattenService {
             requestToSync.remove(flattenRequestUuid);
             requestToException.remove(flattenRequestUuid);
             requestToFlattenedTableId.remove(flattenRequestUuid);
+            requestToProgress.remove(flattenRequestUuid);
           }
         } else {
           // all nodes returned the same flatten ID as valid, so we'll use that node set and that flatten ID.
@@ -295,6 +315,9 @@ public class QueryMasterFlattenService {
           return;
         }
 
+        if (handle.isCancelled())
+          return;
+
         if (System.nanoTime() > timeoutTime) {
           callback.flattenException("Timed out flattening table '" + table + "' by '" + flattenBy + "'", null);
           return;
@@ -306,28 +329,50 @@ public class QueryMasterFlattenService {
     };
 
     flattenExecutor.execute(flattenRunnable);
+    return handle;
   }
 
   /**
-   * Flattens a table in the cluster, just like {@link #flattenAsync(String, String, QueryMasterFlattenCallback)}, but
-   * synchronous.
+   * Informs the given nodes that we are not interested in the results of the given flatten request anymore. Failures
+   * are ignored, as the remotes will time out the flattening in that case anyway.
+   */
+  private void cancelOnRemotes(RUUID flattenRequestRuuid, Collection<RNodeAddress> nodes) {
+    for (RNodeAddress node : nodes) {
+      try (ServiceProvider<ClusterFlattenService.Iface> serviceProv =
+          connectionOrLocalHelper.getService(ClusterFlattenService.Iface.class, node, null)) {
+
+        serviceProv.getService().cancelFlatten(flattenRequestRuuid,
+            ourNodeAddressProvider.getOurNodeAddress().createRemote());
+      } catch (ConnectionException | IOException | IllegalStateException | TException | InterruptedException e) {
+        logger.info("Could not cancel flatten request {} on {}. Ignoring.", RUuidUtil.toUuid(flattenRequestRuuid),
+            node, e);
+      }
+    }
+  }
+
+  /**
+   * Flattens a table in the cluster, just like
+   * {@link #flattenAsync(String, String, Collection, QueryMasterFlattenCallback)}, but synchronous.
    * 
    * @param table
    *          The name of the table to be flattened.
    * @param flattenBy
    *          The "flatten by" field, see {@link Flattener} for details.
+   * @param referencedColumns
+   *          Names of the columns of the flattened table that the query which requests the flattening references. See
+   *          {@link #flattenAsync(String, String, Collection, QueryMasterFlattenCallback)}.
    * @return Pair of UUID and list. List is list of nodes that have the flattened table upon return of this method. The
    *         UUID is the flatten ID to be used. If <code>null</code> is returned, the corresponding table does not have
    *         any nodes serving it.
    */
-  public Pair<UUID, List<RNodeAddress>> flatten(String table, String flattenBy)
+  public Pair<UUID, List<RNodeAddress>> flatten(String table, String flattenBy, Collection<String> referencedColumns)
       throws FlattenException, InterruptedException {
     Holder<Pair<UUID, List<RNodeAddress>>> res = new Holder<>();
     Holder<String> exceptionMsg = new Holder<>();
     Holder<Throwable> exceptionCause = new Holder<>();
     Object sync = new Object();
 
-    flattenAsync(table, flattenBy, new QueryMasterFlattenCallback() {
+    FlattenHandle handle = flattenAsync(table, flattenBy, referencedColumns, new QueryMasterFlattenCallback() {
       @Override
       public void noNodesServingOriginalTable() {
         synchronized (sync) {
@@ -353,12 +398,24 @@ public class QueryMasterFlattenService {
           sync.notifyAll();
         }
       }
+
+      @Override
+      public void flattenProgress(int numberOfShardsFlattened, int numberOfShardsTotal) {
+        logger.debug("Flattening {} by '{}': {} of {} shards flattened.", table, flattenBy, numberOfShardsFlattened,
+            numberOfShardsTotal);
+      }
     });
 
     while (true) {
       synchronized (sync) {
         if (exceptionMsg.getValue() == null && exceptionCause.getValue() == null && res.getValue() == null)
-          sync.wait(500);
+          try {
+            sync.wait(500);
+          } catch (InterruptedException e) {
+            // nobody is interested in the result anymore, stop the flattening on the remotes.
+            handle.cancel();
+            throw e;
+          }
       }
 
       if (exceptionMsg.getValue() != null || exceptionCause.getValue() != null) {
@@ -388,6 +445,20 @@ public class QueryMasterFlattenService {
     }
   }
 
+  public void singleRemoteFlattenProgress(UUID flattenRequestId, int numberOfShardsFlattened, int numberOfShardsTotal,
+      RNodeAddress node) {
+    Map<RNodeAddress, Pair<Integer, Integer>> progress = requestToProgress.get(flattenRequestId);
+    Object sync = requestToSync.get(flattenRequestId);
+    if (progress == null || sync == null)
+      // we received an update on something that we cleaned up already. ignore.
+      return;
+
+    synchronized (sync) {
+      progress.put(node, new Pair<>(numberOfShardsFlattened, numberOfShardsTotal));
+      sync.notifyAll();
+    }
+  }
+
   public void singleRemoteFailedFlattening(UUID flattenRequestId, String msg) {
     Object sync = requestToSync.get(flattenRequestId);
     if (sync == null)
@@ -416,7 +487,31 @@ public class QueryMasterFlattenService {
   }
 
   /**
-   * Callback for the {@link QueryMasterFlattenService#flattenAsync(String, String, QueryMasterFlattenCallback)}.
+   * Handle to a flattening that was started using
+   * {@link QueryMasterFlattenService#flattenAsync(String, String, Collection, QueryMasterFlattenCallback)}.
+   */
+  public static class FlattenHandle {
+    private volatile boolean cancelled = false;
+
+    /* package */ FlattenHandle() {
+    }
+
+    /**
+     * Cancel the flattening: The remotes are informed that the result is not needed anymore and the callback will not
+     * be called anymore after the cancellation has been noticed.
+     */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  /**
+   * Callback for the
+   * {@link QueryMasterFlattenService#flattenAsync(String, String, Collection, QueryMasterFlattenCallback)}.
    */
   public static interface QueryMasterFlattenCallback {
     /**
@@ -441,6 +536,17 @@ public class QueryMasterFlattenService {
      *          may be <code>null</code>.
      */
     public void flattenException(String msg, Throwable cause);
+
+    /**
+     * Progress of the flattening across all remotes. Called whenever progress changes, but not necessarily for each
+     * single table shard.
+     * 
+     * @param numberOfShardsFlattened
+     *          Number of table shards that have been flattened on all remotes that reported progress so far.
+     * @param numberOfShardsTotal
+     *          Total number of table shards on all remotes that reported progress so far.
+     */
+    public void flattenProgress(int numberOfShardsFlattened, int numberOfShardsTotal);
   }
 
 }
@@ -33,6 +33,7 @@ import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnType;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
 import org.diqube.data.table.Table;
 import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
@@ -122,6 +123,30 @@ public class FlattenedTableUtilTest {
     assertValidFirstRowId(facadedTable.getShards().iterator().next(), 500L);
   }
 
+  @Test
+  public void materializeReferencedColumnsOnly() throws LoadException {
+    // GIVEN
+    String json = "[ { " //
+        + "\"a\": [ "//
+    /* */ + "{ \"b\": 1, \"d\":[99, 100] }, "//
+    /* */ + "{ \"b\": 2, \"d\":[] }"//
+        + "]" + //
+        ",\"c\" : [ 9, 10 ], \"e\": 1 } ]";
+
+    Table origTable = loadFromJson(0L, json);
+    FlattenedTable flattenedTable = flattener.flattenTable(origTable, null, "a[*]", UUID.randomUUID());
+    FlattenedTableShard flattenedShard = (FlattenedTableShard) flattenedTable.getShards().iterator().next();
+
+    // WHEN
+    flattenedTableUtil.materializeColumns(flattenedTable, Arrays.asList("a.b", "a.d[*]", "doesNotExist"));
+
+    // THEN
+    Set<String> materializedCols = flattenedShard.getColumnTypes().keySet().stream()
+        .filter(colName -> flattenedShard.isMaterialized(colName)).collect(Collectors.toSet());
+    Assert.assertEquals(materializedCols, new HashSet<>(Arrays.asList("a.b", "a.d[0]", "a.d[1]", "a.d[length]")),
+        "Expected referenced columns to be materialized only.");
+  }
+
   private void assertValidFirstRowId(TableShard tableShard, long firstRowId) {
     Assert.assertEquals(tableShard.getLowestRowId(), firstRowId,
         "Table shard should have same firstRowId as original.");
@@ -23,6 +23,7 @@ package org.diqube.flatten;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,12 +34,18 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.LongStream;
 
 import org.diqube.context.Profiles;
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.ColumnType;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
 import org.diqube.data.table.Table;
 import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
@@ -47,7 +54,9 @@ import org.diqube.executionenv.querystats.QueryableLongColumnShardFacade;
 import org.diqube.loader.JsonLoader;
 import org.diqube.loader.LoadException;
 import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.threads.ExecutorManager;
 import org.diqube.util.BigByteBuffer;
+import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -603,6 +612,114 @@ public class FlattenerTest {
     Assert.assertEquals(getAllRows(tableShard), expectedRows, "Expected to have correct rows.");
   }
 
+  @Test
+  public void columnsMaterializedLazilyTest() throws LoadException {
+    String json = "[ { \"a\": [ { \"b\": 1 }, { \"b\": 2 } ], \"c\": 9 }, " //
+        + "{ \"a\": [ { \"b\": 3 } ], \"c\": 10 } ]";
+
+    // GIVEN
+    Table t = loadFromJson(5, json);
+
+    // WHEN
+    FlattenedTable flattenedTable = flattener.flattenTable(t, null, "a[*]", UUID.randomUUID());
+
+    // THEN
+    TableShard tableShard = flattenedTable.getShards().iterator().next();
+    Assert.assertTrue(tableShard instanceof FlattenedTableShard, "Expected a lazy flattened table shard");
+    FlattenedTableShard flattenedShard = (FlattenedTableShard) tableShard;
+
+    Assert.assertEquals(flattenedShard.getNumberOfRowsInShard(), 3, "Expected correct number of rows.");
+    Assert.assertEquals(flattenedShard.getColumns().keySet(), new HashSet<>(Arrays.asList("a.b", "c")),
+        "Expected correct columns.");
+    Assert.assertFalse(flattenedShard.isMaterialized("a.b"), "Expected column not to be materialized yet");
+    Assert.assertFalse(flattenedShard.isMaterialized("c"), "Expected column not to be materialized yet");
+
+    flattenedShard.adjustToFirstRowId(100L);
+    Assert.assertEquals(flattenedShard.getLowestRowId(), 100L, "Expected correct lowest row ID");
+    Assert.assertFalse(flattenedShard.isMaterialized("c"), "Expected column not to be materialized by adjusting");
+
+    Assert.assertEquals(flattenedShard.getLongColumns().get("c").getFirstRowId(), 100L,
+        "Expected materialized column to start at adjusted row ID");
+    Assert.assertTrue(flattenedShard.isMaterialized("c"), "Expected accessed column to be materialized");
+    Assert.assertFalse(flattenedShard.isMaterialized("a.b"), "Expected other column not to be materialized");
+
+    SortedSet<SortedMap<String, Long>> expectedRows = new TreeSet<>(MAP_COMPARATOR);
+    long[][] expectedValues = new long[][] { { 1L, 9L }, { 2L, 9L }, { 3L, 10L } };
+    for (long[] values : expectedValues) {
+      SortedMap<String, Long> row = new TreeMap<>();
+      row.put("a.b", values[0]);
+      row.put("c", values[1]);
+      expectedRows.add(row);
+    }
+
+    Assert.assertEquals(getAllRows(flattenedShard), expectedRows, "Expected to have correct rows.");
+  }
+
+  @Test
+  public void multipleShardsProgressTest() throws LoadException {
+    String json1 = "[ { \"a\": [ { \"b\": 1 }, { \"b\": 2 } ], \"c\": 9 } ]";
+    String json2 = "[ { \"a\": [ { \"b\": 3 } ], \"c\": 10 } ]";
+
+    // GIVEN
+    BigByteBuffer jsonBuffer1 = new BigByteBuffer(json1.getBytes(Charset.forName("UTF-8")));
+    BigByteBuffer jsonBuffer2 = new BigByteBuffer(json2.getBytes(Charset.forName("UTF-8")));
+    TableShard shard1 =
+        loader.load(0L, jsonBuffer1, TABLE, new LoaderColumnInfo(ColumnType.LONG)).iterator().next();
+    TableShard shard2 =
+        loader.load(1L, jsonBuffer2, TABLE, new LoaderColumnInfo(ColumnType.LONG)).iterator().next();
+    Table t = tableFactory.createDefaultTable(TABLE, Arrays.asList(shard1, shard2));
+    Deque<Pair<Integer, Integer>> progress = new ConcurrentLinkedDeque<>();
+
+    // WHEN
+    FlattenedTable flattenedTable = flattener.flattenTable(t, null, "a[*]", UUID.randomUUID(),
+        (numberOfShardsFlattened, numberOfShardsTotal) -> progress
+            .add(new Pair<>(numberOfShardsFlattened, numberOfShardsTotal)));
+
+    // THEN
+    Assert.assertEquals(flattenedTable.getShards().size(), 2, "Expected correct number of flattened shards.");
+    Assert.assertEquals(new HashSet<>(progress),
+        new HashSet<>(Arrays.asList(new Pair<>(1, 2), new Pair<>(2, 2))), "Expected progress for each shard.");
+    Assert.assertEquals(progress.size(), 2, "Expected progress to be reported once per shard.");
+
+    SortedSet<SortedMap<String, Long>> rows = new TreeSet<>(MAP_COMPARATOR);
+    for (TableShard flattenedShard : flattenedTable.getShards())
+      rows.addAll(getAllRows(flattenedShard));
+    Assert.assertEquals(rows.size(), 3, "Expected correct number of rows.");
+  }
+
+  @Test
+  public void multipleShardsFlattenedConcurrentlyTest() throws LoadException {
+    String json1 = "[ { \"a\": [ { \"b\": 1 }, { \"b\": 2 } ], \"c\": 9 } ]";
+    String json2 = "[ { \"a\": [ { \"b\": 3 } ], \"c\": 10 } ]";
+
+    // GIVEN
+    BigByteBuffer jsonBuffer1 = new BigByteBuffer(json1.getBytes(Charset.forName("UTF-8")));
+    BigByteBuffer jsonBuffer2 = new BigByteBuffer(json2.getBytes(Charset.forName("UTF-8")));
+    TableShard shard1 =
+        loader.load(0L, jsonBuffer1, TABLE, new LoaderColumnInfo(ColumnType.LONG)).iterator().next();
+    TableShard shard2 =
+        loader.load(1L, jsonBuffer2, TABLE, new LoaderColumnInfo(ColumnType.LONG)).iterator().next();
+    Table t = tableFactory.createDefaultTable(TABLE, Arrays.asList(shard1, shard2));
+    // use two threads independently of the number of CPUs of the machine running the test.
+    flattener.setFlattenShardExecutor(dataContext.getBean(ExecutorManager.class)
+        .newFixedThreadPoolWithTimeout("test-flatten-shard-%d", (thread, e) -> logger.error("Uncaught", e), 2));
+    // each shard waits until the other one is flattened, too - works only if they are flattened at the same time.
+    CyclicBarrier barrier = new CyclicBarrier(2);
+
+    // WHEN
+    FlattenedTable flattenedTable =
+        flattener.flattenTable(t, null, "a[*]", UUID.randomUUID(), (numberOfShardsFlattened, numberOfShardsTotal) -> {
+          try {
+            barrier.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new RuntimeException("Table shards were not flattened concurrently.", e);
+          }
+        });
+
+    // THEN
+    Assert.assertEquals(flattenedTable.getShards().size(), 2, "Expected correct number of flattened shards.");
+  }
+
   private Table loadFromJson(String json) throws LoadException {
     return loadFromJson(0, json);
   }
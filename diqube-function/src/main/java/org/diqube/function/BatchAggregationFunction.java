@@ -0,0 +1,134 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.function;
+
+import org.diqube.data.column.ColumnType;
+
+/**
+ * An {@link AggregationFunction} that can aggregate the values of multiple independent rows at once using primitive
+ * values, each row on its own.
+ * 
+ * <p>
+ * This is used when aggregating the entries of a repeated column in each row (e.g. "avg(a[*].b)"): Instead of
+ * instantiating a function object and an array of values for each row, a single call aggregates a whole {@link Batch}
+ * of rows. Implementations typically iterate over the values of one array index of all rows at a time and mask the
+ * rows that have less entries than that index.
+ * 
+ * <p>
+ * Only functions with input type {@link ColumnType#LONG} or {@link ColumnType#DOUBLE} and output type
+ * {@link ColumnType#LONG} or {@link ColumnType#DOUBLE} can implement this interface. The result of each row has to be
+ * equal to the result a new instance of the function would {@link #calculate()} after receiving the values of that row
+ * in a single call to {@link #addValues(ValueProvider)}. The only exception are floating point additions: The values
+ * of a row are added in the order of their array indices, whereas {@link #addValues(ValueProvider)} might receive
+ * them in a different order, which can lead to results that differ in the last bits.
+ *
+ * @author Bastian Gloeckle
+ */
+public interface BatchAggregationFunction<I, O> extends AggregationFunction<I, O> {
+  /**
+   * Aggregates the values of all rows of the given batch, independent of the internal state of this instance, and
+   * creates the results in the batch.
+   * 
+   * @throws FunctionException
+   *           If a result cannot be calculated.
+   */
+  public void aggregateBatch(Batch batch) throws FunctionException;
+
+  /**
+   * Input values and results of a call to {@link BatchAggregationFunction#aggregateBatch(Batch)}.
+   * 
+   * <p>
+   * The values are stored by array index: The value of array index j in row i is at [j][i] of the value array matching
+   * the input type of the function. Only the first {@link #getLengths()}[i] array indices of row i are valid, the
+   * remaining values of that row are undefined.
+   */
+  public static class Batch {
+    private int numberOfRows;
+    private int[] lengths;
+    private long[][] longValues;
+    private double[][] doubleValues;
+    private long[] longResults;
+    private double[] doubleResults;
+
+    /**
+     * @param lengths
+     *          Number of valid array indices for each row.
+     */
+    public Batch(int numberOfRows, int[] lengths) {
+      this.numberOfRows = numberOfRows;
+      this.lengths = lengths;
+    }
+
+    public int getNumberOfRows() {
+      return numberOfRows;
+    }
+
+    public int[] getLengths() {
+      return lengths;
+    }
+
+    /**
+     * @return Values for functions with input type {@link ColumnType#LONG}.
+     */
+    public long[][] getLongValues() {
+      return longValues;
+    }
+
+    public void setLongValues(long[][] longValues) {
+      this.longValues = longValues;
+    }
+
+    /**
+     * @return Values for functions with input type {@link ColumnType#DOUBLE}.
+     */
+    public double[][] getDoubleValues() {
+      return doubleValues;
+    }
+
+    public void setDoubleValues(double[][] doubleValues) {
+      this.doubleValues = doubleValues;
+    }
+
+    /**
+     * Creates the result array for functions with output type {@link ColumnType#LONG}, initialized with 0.
+     */
+    public long[] createLongResults() {
+      longResults = new long[numberOfRows];
+      return longResults;
+    }
+
+    /**
+     * Creates the result array for functions with output type {@link ColumnType#DOUBLE}, initialized with 0.
+     */
+    public double[] createDoubleResults() {
+      doubleResults = new double[numberOfRows];
+      return doubleResults;
+    }
+
+    public long[] getLongResults() {
+      return longResults;
+    }
+
+    public double[] getDoubleResults() {
+      return doubleResults;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.function;
+
+/**
+ * An {@link AggregationFunction} whose internal state can be reset, which means that a single instance can be used to
+ * aggregate multiple independent sets of values one after the other (e.g. the entries of a repeated column in multiple
+ * rows), instead of instantiating a new object for each set.
+ *
+ * @author Bastian Gloeckle
+ */
+public interface ResettableAggregationFunction<I, O> extends AggregationFunction<I, O> {
+  /**
+   * Resets the internal state of this instance to the state of a newly created instance. Constant parameters that have
+   * been provided using {@link #provideConstantParameter(int, Object)} are kept.
+   */
+  public void reset();
+}
@@ -0,0 +1,43 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.function;
+
+/**
+ * An {@link AggregationFunction} whose result grows proportionally with the number of rows it is based on (e.g. count
+ * or sum).
+ *
+ * <p>
+ * If a query is executed on a sample of a table only (TABLESAMPLE), the results of these functions can be extrapolated
+ * to an estimate for the whole table.
+ *
+ * @author Bastian Gloeckle
+ */
+public interface SampleScalableAggregationFunction<I, O> extends AggregationFunction<I, O> {
+  /**
+   * Calculate the final result, extrapolated to the whole table.
+   *
+   * @param sampleFraction
+   *          The fraction of the rows of the table that have been provided to the function, 0 < sampleFraction <= 1.
+   * @throws FunctionException
+   *           If the result cannot be calculated.
+   */
+  public O calculateScaled(double sampleFraction) throws FunctionException;
+}
@@ -24,9 +24,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 import org.diqube.util.DoubleUtil;
@@ -39,7 +39,7 @@ import org.diqube.util.DoubleUtil;
  * @author Bastian Gloeckle
  */
 @Function(name = AnyDoubleFunction.NAME)
-public class AnyDoubleFunction implements AggregationFunction<Double, Long> {
+public class AnyDoubleFunction implements ResettableAggregationFunction<Double, Long> {
 
   public static final String NAME = "any";
 
@@ -104,4 +104,8 @@ public class AnyDoubleFunction implements AggregationFunction<Double, Long> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    matched = 0;
+  }
 }
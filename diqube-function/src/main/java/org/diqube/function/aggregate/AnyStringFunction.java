@@ -24,9 +24,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -38,7 +38,7 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = AnyStringFunction.NAME)
-public class AnyStringFunction implements AggregationFunction<String, Long> {
+public class AnyStringFunction implements ResettableAggregationFunction<String, Long> {
 
   public static final String NAME = "any";
 
@@ -102,4 +102,8 @@ public class AnyStringFunction implements AggregationFunction<String, Long> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    matched = 0;
+  }
 }
@@ -23,9 +23,9 @@ package org.diqube.function.aggregate;
 import java.math.BigDecimal;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 import org.diqube.function.aggregate.util.BigDecimalHelper;
@@ -36,7 +36,7 @@ import org.diqube.function.aggregate.util.BigDecimalHelper;
  * @author Bastian Gloeckle
  */
 @Function(name = AvgDoubleFunction.NAME)
-public class AvgDoubleFunction implements AggregationFunction<Double, Double> {
+public class AvgDoubleFunction implements ResettableAggregationFunction<Double, Double> {
 
   public static final String NAME = "avg";
 
@@ -119,4 +119,9 @@ public class AvgDoubleFunction implements AggregationFunction<Double, Double> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    sum = BigDecimalHelper.zeroCreate();
+    count = 0L;
+  }
 }
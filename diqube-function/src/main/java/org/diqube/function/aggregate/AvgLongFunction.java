@@ -25,9 +25,10 @@ import java.math.BigInteger;
 import java.util.function.Supplier;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 import org.diqube.function.aggregate.util.BigDecimalHelper;
@@ -38,7 +39,8 @@ import org.diqube.function.aggregate.util.BigDecimalHelper;
  * @author Bastian Gloeckle
  */
 @Function(name = AvgLongFunction.NAME)
-public class AvgLongFunction implements AggregationFunction<Long, Double> {
+public class AvgLongFunction
+    implements ResettableAggregationFunction<Long, Double>, BatchAggregationFunction<Long, Double> {
 
   public static final String NAME = "avg";
 
@@ -101,6 +103,10 @@ public class AvgLongFunction implements AggregationFunction<Long, Double> {
 
   @Override
   public Double calculate() throws FunctionException {
+    return calculate(sum, count);
+  }
+
+  private double calculate(BigInteger sum, long count) {
     BigDecimal sumDec = BigDecimalHelper.zeroCreate().add(new BigDecimal(sum));
     return sumDec.divide(new BigDecimal(count), BigDecimalHelper.defaultMathContext()).doubleValue();
   }
@@ -125,4 +131,42 @@ public class AvgLongFunction implements AggregationFunction<Long, Double> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    sum = ZERO_INT.get();
+    count = 0L;
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    long[][] values = batch.getLongValues();
+    int[] lengths = batch.getLengths();
+    long[] sums = new long[batch.getNumberOfRows()];
+    boolean[] overflow = new boolean[batch.getNumberOfRows()];
+    for (int idx = 0; idx < values.length; idx++) {
+      long[] idxValues = values[idx];
+      for (int row = 0; row < sums.length; row++) {
+        if (idx < lengths[row]) {
+          long newSum = sums[row] + idxValues[row];
+          overflow[row] |= ((sums[row] ^ newSum) & (idxValues[row] ^ newSum)) < 0;
+          sums[row] = newSum;
+        }
+      }
+    }
+
+    double[] res = batch.createDoubleResults();
+    for (int row = 0; row < res.length; row++) {
+      BigInteger rowSum;
+      if (!overflow[row])
+        rowSum = BigInteger.valueOf(sums[row]);
+      else {
+        // the long sum overflowed, sum up the values of this row again without overflow.
+        rowSum = ZERO_INT.get();
+        for (int idx = 0; idx < lengths[row]; idx++)
+          rowSum = rowSum.add(BigInteger.valueOf(values[idx][row]));
+      }
+      // divide exactly like calculate() does, a plain double division might be rounded differently.
+      res[row] = calculate(rowSum, lengths[row]);
+    }
+  }
 }
@@ -21,9 +21,10 @@
 package org.diqube.function.aggregate;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
+import org.diqube.function.SampleScalableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -33,7 +34,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = CountFunction.NAME)
-public class CountFunction implements AggregationFunction<Object, Long> {
+public class CountFunction implements SampleScalableAggregationFunction<Object, Long>,
+    ResettableAggregationFunction<Object, Long> {
 
   public static final String NAME = "count";
 
@@ -69,6 +71,11 @@ public class CountFunction implements AggregationFunction<Object, Long> {
     return curCount;
   }
 
+  @Override
+  public Long calculateScaled(double sampleFraction) throws FunctionException {
+    return Math.round(curCount / sampleFraction);
+  }
+
   @Override
   public ColumnType getOutputType() {
     return ColumnType.LONG;
@@ -90,4 +97,8 @@ public class CountFunction implements AggregationFunction<Object, Long> {
     return false;
   }
 
+  @Override
+  public void reset() {
+    curCount = 0;
+  }
 }
@@ -20,6 +20,7 @@
  */
 package org.diqube.function.aggregate;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalDouble;
@@ -27,9 +28,10 @@ import java.util.PriorityQueue;
 import java.util.stream.Stream;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -39,7 +41,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = MaxDoubleFunction.NAME)
-public class MaxDoubleFunction implements AggregationFunction<Double, Double> {
+public class MaxDoubleFunction
+    implements ResettableAggregationFunction<Double, Double>, BatchAggregationFunction<Double, Double> {
 
   public static final String NAME = "max";
 
@@ -117,4 +120,27 @@ public class MaxDoubleFunction implements AggregationFunction<Double, Double> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    maxQueue.clear();
+    valueCount.clear();
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    double[][] values = batch.getDoubleValues();
+    int[] lengths = batch.getLengths();
+    double[] res = batch.createDoubleResults();
+    Arrays.fill(res, Double.NEGATIVE_INFINITY);
+    for (int idx = 0; idx < values.length; idx++) {
+      double[] idxValues = values[idx];
+      for (int row = 0; row < res.length; row++)
+        if (idx < lengths[row])
+          // same semantics as DoubleStream#max for NaN and signed zeros.
+          res[row] = Math.max(res[row], idxValues[row]);
+    }
+    for (int row = 0; row < res.length; row++)
+      if (lengths[row] == 0)
+        res[row] = Double.MIN_VALUE;
+  }
 }
@@ -20,6 +20,7 @@
  */
 package org.diqube.function.aggregate;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalLong;
@@ -27,9 +28,10 @@ import java.util.PriorityQueue;
 import java.util.stream.Stream;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -39,7 +41,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = MaxLongFunction.NAME)
-public class MaxLongFunction implements AggregationFunction<Long, Long> {
+public class MaxLongFunction
+    implements ResettableAggregationFunction<Long, Long>, BatchAggregationFunction<Long, Long> {
 
   public static final String NAME = "max";
 
@@ -117,4 +120,24 @@ public class MaxLongFunction implements AggregationFunction<Long, Long> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    maxQueue.clear();
+    valueCount.clear();
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    long[][] values = batch.getLongValues();
+    int[] lengths = batch.getLengths();
+    long[] res = batch.createLongResults();
+    // Long.MIN_VALUE is the result of rows without values, too.
+    Arrays.fill(res, Long.MIN_VALUE);
+    for (int idx = 0; idx < values.length; idx++) {
+      long[] idxValues = values[idx];
+      for (int row = 0; row < res.length; row++)
+        if (idx < lengths[row] && idxValues[row] > res[row])
+          res[row] = idxValues[row];
+    }
+  }
 }
@@ -20,6 +20,7 @@
  */
 package org.diqube.function.aggregate;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalDouble;
@@ -27,9 +28,10 @@ import java.util.PriorityQueue;
 import java.util.stream.Stream;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -39,7 +41,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = MinDoubleFunction.NAME)
-public class MinDoubleFunction implements AggregationFunction<Double, Double> {
+public class MinDoubleFunction
+    implements ResettableAggregationFunction<Double, Double>, BatchAggregationFunction<Double, Double> {
 
   public static final String NAME = "min";
 
@@ -113,4 +116,27 @@ public class MinDoubleFunction implements AggregationFunction<Double, Double> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    minQueue.clear();
+    valueCount.clear();
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    double[][] values = batch.getDoubleValues();
+    int[] lengths = batch.getLengths();
+    double[] res = batch.createDoubleResults();
+    Arrays.fill(res, Double.POSITIVE_INFINITY);
+    for (int idx = 0; idx < values.length; idx++) {
+      double[] idxValues = values[idx];
+      for (int row = 0; row < res.length; row++)
+        if (idx < lengths[row])
+          // same semantics as DoubleStream#min for NaN and signed zeros.
+          res[row] = Math.min(res[row], idxValues[row]);
+    }
+    for (int row = 0; row < res.length; row++)
+      if (lengths[row] == 0)
+        res[row] = Double.MAX_VALUE;
+  }
 }
@@ -21,9 +21,11 @@
 package org.diqube.function.aggregate;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
+import org.diqube.function.SampleScalableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -33,7 +35,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = SumDoubleFunction.NAME)
-public class SumDoubleFunction implements AggregationFunction<Double, Double> {
+public class SumDoubleFunction implements SampleScalableAggregationFunction<Double, Double>,
+    ResettableAggregationFunction<Double, Double>, BatchAggregationFunction<Double, Double> {
 
   public static final String NAME = "sum";
 
@@ -75,6 +78,11 @@ public class SumDoubleFunction implements AggregationFunction<Double, Double> {
     return sum;
   }
 
+  @Override
+  public Double calculateScaled(double sampleFraction) throws FunctionException {
+    return sum / sampleFraction;
+  }
+
   @Override
   public ColumnType getOutputType() {
     return ColumnType.DOUBLE;
@@ -90,4 +98,21 @@ public class SumDoubleFunction implements AggregationFunction<Double, Double> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    sum = 0;
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    double[][] values = batch.getDoubleValues();
+    int[] lengths = batch.getLengths();
+    double[] res = batch.createDoubleResults();
+    for (int idx = 0; idx < values.length; idx++) {
+      double[] idxValues = values[idx];
+      for (int row = 0; row < res.length; row++)
+        if (idx < lengths[row])
+          res[row] += idxValues[row];
+    }
+  }
 }
@@ -21,9 +21,11 @@
 package org.diqube.function.aggregate;
 
 import org.diqube.data.column.ColumnType;
-import org.diqube.function.AggregationFunction;
+import org.diqube.function.BatchAggregationFunction;
 import org.diqube.function.Function;
 import org.diqube.function.FunctionException;
+import org.diqube.function.ResettableAggregationFunction;
+import org.diqube.function.SampleScalableAggregationFunction;
 import org.diqube.function.aggregate.result.IntermediaryResultValueIterator;
 import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
 
@@ -33,7 +35,8 @@ import org.diqube.function.aggregate.result.IntermediaryResultValueSink;
  * @author Bastian Gloeckle
  */
 @Function(name = SumLongFunction.NAME)
-public class SumLongFunction implements AggregationFunction<Long, Long> {
+public class SumLongFunction implements SampleScalableAggregationFunction<Long, Long>,
+    ResettableAggregationFunction<Long, Long>, BatchAggregationFunction<Long, Long> {
 
   public static final String NAME = "sum";
 
@@ -75,6 +78,11 @@ public class SumLongFunction implements AggregationFunction<Long, Long> {
     return sum;
   }
 
+  @Override
+  public Long calculateScaled(double sampleFraction) throws FunctionException {
+    return Math.round(sum / sampleFraction);
+  }
+
   @Override
   public ColumnType getOutputType() {
     return ColumnType.LONG;
@@ -90,4 +98,21 @@ public class SumLongFunction implements AggregationFunction<Long, Long> {
     return true;
   }
 
+  @Override
+  public void reset() {
+    sum = 0;
+  }
+
+  @Override
+  public void aggregateBatch(Batch batch) throws FunctionException {
+    long[][] values = batch.getLongValues();
+    int[] lengths = batch.getLengths();
+    long[] res = batch.createLongResults();
+    for (int idx = 0; idx < values.length; idx++) {
+      long[] idxValues = values[idx];
+      for (int row = 0; row < res.length; row++)
+        if (idx < lengths[row])
+          res[row] += idxValues[row];
+    }
+  }
 }
@@ -83,12 +83,12 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(firstRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(1).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       serverControl.get(1).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(firstRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(0).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
 
       // sleep for a second, both servers should get started to process the first request
@@ -101,12 +101,12 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(1).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       serverControl.get(1).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(0).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
 
       logger.info("Waiting for first flatten request to finish...");
@@ -173,7 +173,7 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(firstRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(1).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       // second request to second server
       UUID secondRequestId = UUID.randomUUID();
@@ -181,7 +181,7 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(1).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(0).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
 
       // sleep for a second, both servers should get started to process their respective request
@@ -192,13 +192,13 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(1).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(firstRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(0).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       logger.info("Sending second request to flatten the table (request ID {}) to first server", secondRequestId);
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(1).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
 
       // wait double the time of the flattentimeout we set for the servers!
@@ -236,7 +236,7 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(firstRequestId), BIG_TABLE, "a[*].a[*]",
             new ArrayList<>(), // no "other flatteners"
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       // second request to second server
       UUID secondRequestId = UUID.randomUUID();
@@ -244,14 +244,14 @@ public class ClusterFlattenIntegrationTest extends AbstractDiqubeIntegrationTest
       serverControl.get(1).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(0).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
       // second request to first server
       logger.info("Sending second request to flatten the table (request ID {}) to first server", secondRequestId);
       serverControl.get(0).getSerivceTestUtil().clusterFlattenService(clusterFlattenService -> {
         clusterFlattenService.flattenAllLocalShards(RUuidUtil.toRUuid(secondRequestId), BIG_TABLE, "a[*].a[*]",
             Arrays.asList(serverControl.get(1).getAddr().toRNodeAddress()),
-            localCfs.getThisServicesAddr().toRNodeAddress());
+            localCfs.getThisServicesAddr().toRNodeAddress(), new ArrayList<>());
       });
 
       // wait double the time of the flattentimeout we set for the servers!
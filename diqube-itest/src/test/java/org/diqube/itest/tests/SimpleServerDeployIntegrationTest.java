@@ -22,6 +22,7 @@ package org.diqube.itest.tests;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,6 +32,7 @@ import org.diqube.itest.util.QueryResultServiceTestUtil;
 import org.diqube.itest.util.QueryResultServiceTestUtil.TestQueryResultService;
 import org.diqube.itest.util.Waiter;
 import org.diqube.itest.util.Waiter.WaitTimeoutException;
+import org.diqube.remote.query.thrift.RResultTable;
 import org.diqube.server.ControlFileManager;
 import org.diqube.thrift.base.thrift.RUUID;
 import org.diqube.thrift.base.thrift.RValue;
@@ -99,6 +101,89 @@ public class SimpleServerDeployIntegrationTest extends AbstractDiqubeIntegration
     }
   }
 
+  @Test
+  @NeedsServer(servers = 1)
+  public void singleServerQueryBatch() throws InterruptedException {
+    // WHEN
+    serverControl.get(0).deploy(cp(AGE_0_CONTROL_FILE), cp(AGE_JSON_FILE));
+
+    Ticket ticket = serverControl.get(0).loginSuperuser();
+
+    // THEN
+    try (TestQueryResultService queryRes = QueryResultServiceTestUtil.createQueryResultService()) {
+      RUUID countQueryUuid = RUuidUtil.toRUuid(UUID.randomUUID());
+      RUUID maxQueryUuid = RUuidUtil.toRUuid(UUID.randomUUID());
+      RUUID otherWhereQueryUuid = RUuidUtil.toRUuid(UUID.randomUUID());
+      logger.info("Executing query batch {}, {}, {}", RUuidUtil.toUuid(countQueryUuid),
+          RUuidUtil.toUuid(maxQueryUuid), RUuidUtil.toUuid(otherWhereQueryUuid));
+      serverControl.get(0).getSerivceTestUtil()
+          .queryService((queryService) -> queryService.asyncExecuteQueryBatch(ticket,
+              Arrays.asList(countQueryUuid, maxQueryUuid, otherWhereQueryUuid),
+              Arrays.asList("select age, count() from age where age > 1 group by age order by age",
+                  "select age, max(age) from age where age > 1 group by age order by age",
+                  "select count() from age where age = 1"),
+              false, queryRes.getThisServicesAddr().toRNodeAddress()));
+
+      new Waiter().waitUntil("Final results of queries received", 10, 500,
+          () -> queryRes.check() && queryRes.getFinalUpdate(countQueryUuid) != null
+              && queryRes.getFinalUpdate(maxQueryUuid) != null
+              && queryRes.getFinalUpdate(otherWhereQueryUuid) != null);
+
+      List<Pair<Long, Long>> expectedCount = new ArrayList<>();
+      expectedCount.add(new Pair<>(2L, 2L));
+      expectedCount.add(new Pair<>(3L, 3L));
+      expectedCount.add(new Pair<>(5L, 5L));
+      Assert.assertEquals(toLongPairs(queryRes.getFinalUpdate(countQueryUuid)), expectedCount,
+          "Expected to get correct results for count query.");
+
+      List<Pair<Long, Long>> expectedMax = new ArrayList<>();
+      expectedMax.add(new Pair<>(2L, 2L));
+      expectedMax.add(new Pair<>(3L, 3L));
+      expectedMax.add(new Pair<>(5L, 5L));
+      Assert.assertEquals(toLongPairs(queryRes.getFinalUpdate(maxQueryUuid)), expectedMax,
+          "Expected to get correct results for max query.");
+
+      List<List<RValue>> otherWhereRows = queryRes.getFinalUpdate(otherWhereQueryUuid).getRows();
+      Assert.assertEquals(otherWhereRows.size(), 1, "Expected to get correct number of rows.");
+      Assert.assertEquals(RValueUtil.createValue(otherWhereRows.get(0).get(0)), 1L,
+          "Expected to get correct result for query with other WHERE clause.");
+    } catch (IOException e) {
+      throw new RuntimeException("Could not execute query", e);
+    }
+  }
+
+  @Test
+  @NeedsServer(servers = 1)
+  public void singleServerQueryBatchInvalidQuery() throws InterruptedException {
+    // WHEN
+    serverControl.get(0).deploy(cp(AGE_0_CONTROL_FILE), cp(AGE_JSON_FILE));
+
+    Ticket ticket = serverControl.get(0).loginSuperuser();
+
+    // THEN
+    try (TestQueryResultService queryRes = QueryResultServiceTestUtil.createQueryResultService()) {
+      RUUID validQueryUuid = RUuidUtil.toRUuid(UUID.randomUUID());
+      RUUID invalidQueryUuid = RUuidUtil.toRUuid(UUID.randomUUID());
+      logger.info("Executing query batch {}, {}", RUuidUtil.toUuid(validQueryUuid),
+          RUuidUtil.toUuid(invalidQueryUuid));
+      serverControl.get(0).getSerivceTestUtil()
+          .queryService((queryService) -> queryService.asyncExecuteQueryBatch(ticket,
+              Arrays.asList(validQueryUuid, invalidQueryUuid),
+              Arrays.asList("select count() from age where age = 1", "select count( from age"), false,
+              queryRes.getThisServicesAddr().toRNodeAddress()));
+
+      new Waiter().waitUntil("Result of valid and exception of invalid query received", 10, 500,
+          () -> queryRes.getFinalUpdate(validQueryUuid) != null && queryRes.getException(invalidQueryUuid) != null);
+
+      Assert.assertNull(queryRes.getException(validQueryUuid), "Expected no exception for valid query.");
+      List<List<RValue>> rows = queryRes.getFinalUpdate(validQueryUuid).getRows();
+      Assert.assertEquals(rows.size(), 1, "Expected to get correct number of rows.");
+      Assert.assertEquals(RValueUtil.createValue(rows.get(0).get(0)), 1L, "Expected to get correct result.");
+    } catch (IOException e) {
+      throw new RuntimeException("Could not execute query", e);
+    }
+  }
+
   @Test
   @NeedsServer(servers = 2)
   public void twoServerQuery() throws InterruptedException {
@@ -336,4 +421,12 @@ public class SimpleServerDeployIntegrationTest extends AbstractDiqubeIntegration
     // THEN WaitTimeoutException is thrown as the control file cannot be deployed.
   }
 
+  private List<Pair<Long, Long>> toLongPairs(RResultTable resultTable) {
+    List<Pair<Long, Long>> res = new ArrayList<>();
+    for (List<RValue> row : resultTable.getRows()) {
+      Assert.assertEquals(row.size(), 2, "Expected to get correct number of cols returned.");
+      res.add(new Pair<>((Long) RValueUtil.createValue(row.get(0)), (Long) RValueUtil.createValue(row.get(1))));
+    }
+    return res;
+  }
 }
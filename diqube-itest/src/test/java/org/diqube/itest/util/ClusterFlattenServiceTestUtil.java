@@ -114,6 +114,8 @@ public class ClusterFlattenServiceTestUtil {
     private Deque<RFlattenException> exceptions = new ConcurrentLinkedDeque<>();
     /** map from address of not to list of pair of "requestId" and "flattenId" that were received from the node */
     private ConcurrentMap<RNodeAddress, Deque<Pair<UUID, UUID>>> nodeResults = new ConcurrentHashMap<>();
+    /** map from address of node to the latest pair of "number of shards flattened" and "number of shards total" */
+    private ConcurrentMap<RNodeAddress, Pair<Integer, Integer>> nodeProgress = new ConcurrentHashMap<>();
 
     private ServerAddr thisServicesAddr;
 
@@ -163,6 +165,10 @@ public class ClusterFlattenServiceTestUtil {
       return nodeResults;
     }
 
+    public Map<RNodeAddress, Pair<Integer, Integer>> getNodeProgress() {
+      return nodeProgress;
+    }
+
   }
 
   /**
@@ -177,7 +183,8 @@ public class ClusterFlattenServiceTestUtil {
 
     @Override
     public void flattenAllLocalShards(RUUID flattenRequestId, String tableName, String flattenBy,
-        List<RNodeAddress> otherFlatteners, RNodeAddress resultAddress) throws RFlattenException, TException {
+        List<RNodeAddress> otherFlatteners, RNodeAddress resultAddress, List<String> referencedColumns)
+        throws RFlattenException, TException {
       throw new RuntimeException("flattenAllLocalShards was called on the service instance of the test.");
     }
 
@@ -212,5 +219,18 @@ public class ClusterFlattenServiceTestUtil {
           flattenException);
       res.exceptions.add(flattenException);
     }
+
+    @Override
+    public void flattenProgress(RUUID flattenRequestId, int numberOfShardsFlattened, int numberOfShardsTotal,
+        RNodeAddress flattener) throws TException {
+      logger.info("Received flattenProgress: request {}, {} of {} shards, flattener {}", flattenRequestId,
+          numberOfShardsFlattened, numberOfShardsTotal, flattener);
+      res.nodeProgress.put(flattener, new Pair<>(numberOfShardsFlattened, numberOfShardsTotal));
+    }
+
+    @Override
+    public void cancelFlatten(RUUID flattenRequestId, RNodeAddress resultAddress) throws TException {
+      throw new RuntimeException("cancelFlatten was called on the service instance of the test.");
+    }
   }
 }
@@ -38,12 +38,14 @@ import org.diqube.itest.control.ServerControl.ServerAddr;
 import org.diqube.itest.util.ClusterFlattenServiceTestUtil.TestClusterFlattenService;
 import org.diqube.remote.query.KeepAliveServiceConstants;
 import org.diqube.remote.query.QueryResultServiceConstants;
+import org.diqube.remote.query.ResultTableDeltaApplier;
 import org.diqube.remote.query.thrift.KeepAliveService;
 import org.diqube.remote.query.thrift.QueryResultService;
 import org.diqube.remote.query.thrift.QueryService;
 import org.diqube.remote.query.thrift.RQueryException;
 import org.diqube.remote.query.thrift.RQueryStatistics;
 import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
 import org.diqube.thrift.base.thrift.RUUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,7 +104,9 @@ public class QueryResultServiceTestUtil {
 
     private Map<Short, RResultTable> intermediateUpdates = new ConcurrentHashMap<>();
     private RResultTable finalUpdate = null;
+    private Map<RUUID, RResultTable> finalUpdatesByQuery = new ConcurrentHashMap<>();
     private RQueryException exception = null;
+    private Map<RUUID, RQueryException> exceptionsByQuery = new ConcurrentHashMap<>();
     private RQueryStatistics stats = null;
 
     private ServerAddr thisServicesAddr;
@@ -148,6 +152,14 @@ public class QueryResultServiceTestUtil {
       return finalUpdate;
     }
 
+    /**
+     * @return The final result of the query with the given ID or <code>null</code>. This is useful if multiple queries
+     *         send their results to this service.
+     */
+    public RResultTable getFinalUpdate(RUUID queryRUuid) {
+      return finalUpdatesByQuery.get(queryRUuid);
+    }
+
     public RQueryStatistics getStats() {
       return stats;
     }
@@ -160,6 +172,14 @@ public class QueryResultServiceTestUtil {
       return exception;
     }
 
+    /**
+     * @return The exception of the query with the given ID or <code>null</code>. This is useful if multiple queries
+     *         send their results to this service.
+     */
+    public RQueryException getException(RUUID queryRUuid) {
+      return exceptionsByQuery.get(queryRUuid);
+    }
+
   }
 
   /**
@@ -167,6 +187,7 @@ public class QueryResultServiceTestUtil {
    */
   private static class QueryResultServiceImpl implements QueryResultService.Iface {
     private TestQueryResultService res;
+    private Map<RUUID, ResultTableDeltaApplier> deltaAppliers = new ConcurrentHashMap<>();
 
     public QueryResultServiceImpl(TestQueryResultService res) {
       this.res = res;
@@ -178,16 +199,32 @@ public class QueryResultServiceTestUtil {
       res.intermediateUpdates.put(percentComplete, partialResult);
     }
 
+    @Override
+    public void partialUpdateDelta(RUUID queryRUuid, RResultTableDelta delta, short percentComplete)
+        throws TException {
+      logger.trace("Received partial update delta ({} %): {}", percentComplete, delta);
+      RResultTable partialResult =
+          deltaAppliers.computeIfAbsent(queryRUuid, uuid -> new ResultTableDeltaApplier()).apply(delta);
+      if (partialResult == null) {
+        // a previous delta is missing, the next delta containing the full table will be applied again.
+        logger.warn("Could not apply partial update delta with base version {}, ignoring.", delta.getBaseVersion());
+        return;
+      }
+      res.intermediateUpdates.put(percentComplete, partialResult);
+    }
+
     @Override
     public void queryResults(RUUID queryRUuid, RResultTable finalResult) throws TException {
       logger.trace("Received final update: {}", finalResult);
       res.finalUpdate = finalResult;
+      res.finalUpdatesByQuery.put(queryRUuid, finalResult);
     }
 
     @Override
     public void queryException(RUUID queryRUuid, RQueryException exceptionThrown) throws TException {
       logger.trace("Received exception: {}", exceptionThrown.getMessage(), exceptionThrown);
       res.exception = exceptionThrown;
+      res.exceptionsByQuery.put(queryRUuid, exceptionThrown);
     }
 
     @Override
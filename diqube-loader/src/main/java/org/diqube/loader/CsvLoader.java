@@ -29,7 +29,6 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -42,10 +41,8 @@ import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
 import org.diqube.loader.columnshard.ColumnShardBuilderManager;
-import org.diqube.loader.util.ParallelLoadAndTransposeHelper;
-import org.diqube.threads.ExecutorManager;
+import org.diqube.loader.util.ParallelTypedColumnLoadHelper;
 import org.diqube.util.BigByteBuffer;
-import org.diqube.util.HashingBatchCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,8 +65,8 @@ public class CsvLoader implements Loader {
   private static final Logger logger = LoggerFactory.getLogger(CsvLoader.class);
 
   /**
-   * The rows of the CSV are parsed and loaded into memory in a batched format. Each batch/buffer contains approx. this
-   * amount of entries.
+   * The rows of the CSV are parsed and loaded into memory in a batched, columnar format. Each batch/buffer contains
+   * this amount of rows at most.
    */
   private static final int COLUMN_BUFFER_SIZE = 1_000;
 
@@ -79,9 +76,6 @@ public class CsvLoader implements Loader {
   @Inject
   private TableFactory tableFactory;
 
-  @Inject
-  private ExecutorManager executorManager;
-
   @Override
   public Collection<TableShard> load(long firstRowId, String filename, String tableName, LoaderColumnInfo columnInfo)
       throws LoadException {
@@ -159,22 +153,15 @@ public class CsvLoader implements Loader {
     // Initialize the input stream.
     Stream<String> stream = StreamSupport.stream(new LineSpliterator(buf, numChars + 1, buf.size(), numChars, 1), true);
 
-    ParallelLoadAndTransposeHelper transposer =
-        new ParallelLoadAndTransposeHelper(executorManager, columnInfo, columnBuilderManager, header, tableName);
-
-    transposer.transpose(firstRowId, new Consumer<ConcurrentLinkedDeque<String[][]>>() {
-      @Override
-      public void accept(ConcurrentLinkedDeque<String[][]> rowWiseTarget) {
-        // Start parsing CSV lines in parallel, bucketing the results into the rowWiseTarget deque from where they
-        // will be fetched by the transposer.
-        // Arrays are non-colliding, so using HashingBatchCollector is fine.
-        stream.parallel().map(CsvLoader::parseCsvLine)
-            .collect(new HashingBatchCollector<String[]>( //
-                COLUMN_BUFFER_SIZE, // Try to make buckets of this size
-                (len) -> new String[len][], // Factory implementation on how to create a new result object.
-                a -> rowWiseTarget.add(a)) // When there is a new result, put it into csvLines.
-        );
-      }
+    ParallelTypedColumnLoadHelper loadHelper =
+        new ParallelTypedColumnLoadHelper(columnInfo, columnBuilderManager, header, COLUMN_BUFFER_SIZE);
+
+    // Start parsing CSV lines in parallel, each thread writing the values of the lines it parsed directly into the
+    // typed column buffers.
+    loadHelper.load(firstRowId, stream.parallel(), (line, batch, row) -> {
+      String[] values = parseCsvLine(line);
+      for (int col = 0; col < values.length && col < header.length; col++)
+        batch.setString(col, row, values[col]);
     });
 
     return columnBuilderManager;
@@ -22,20 +22,33 @@ package org.diqube.loader;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.diqube.context.AutoInstatiate;
 import org.diqube.data.column.AdjustableStandardColumnShard;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.table.DefaultTableShard;
 import org.diqube.data.table.TableShard;
 import org.diqube.file.DiqubeFileFactory;
 import org.diqube.file.DiqubeFileReader;
+import org.diqube.loader.columnshard.RepeatedColumnIndexMaterializer;
+import org.diqube.loader.util.LoadPhaseTimer;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
+import org.diqube.threads.ExecutorManager;
 import org.diqube.util.BigByteBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +58,8 @@ import org.slf4j.LoggerFactory;
  * these simply have to be deserialized.
  * 
  * <p>
- * This loader will return as many {@link TableShard}s as contained in the .diqube file.
+ * This loader will return as many {@link TableShard}s as contained in the .diqube file. If the file contains the
+ * boundaries of its table shards, these are deserialized in parallel.
  * 
  * <p>
  * The corresponding files can be created using diqube-tool (transpose) or diqube-hadoop.
@@ -63,44 +77,182 @@ public class DiqubeLoader implements Loader {
   @Inject
   private DiqubeFileFactory fileFactory;
 
+  @Inject
+  private RepeatedColumnIndexMaterializer repeatedColumnIndexMaterializer;
+
+  @Inject
+  private ExecutorManager executorManager;
+
+  private ExecutorService deserializationExecutor;
+
+  @PostConstruct
+  public void initialize() {
+    deserializationExecutor =
+        executorManager.newFixedThreadPoolWithTimeout("diqube-deserialize-%d", new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread t, Throwable e) {
+            // failed deserializations are re-thrown by the ExecutorCompletionService in loadParallel.
+            logger.error("Uncaught exception while deserializing a table shard", e);
+          }
+        }, Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    deserializationExecutor.shutdownNow();
+  }
+
   @Override
   public Collection<TableShard> load(long firstRowId, String filename, String tableName, LoaderColumnInfo columnInfo)
       throws LoadException {
+    return load(firstRowId, filename, tableName, (TableShardReadyConsumer) null);
+  }
+
+  @Override
+  public Collection<TableShard> load(long firstRowId, BigByteBuffer buffer, String tableName,
+      LoaderColumnInfo columnInfo) throws LoadException {
+    return loadFromBuffer(firstRowId, buffer, tableName, null);
+  }
+
+  /**
+   * Load the {@link TableShard}s from a .diqube file, informing a {@link TableShardReadyConsumer} about each table
+   * shard as soon as it has been deserialized.
+   * 
+   * <p>
+   * If the file contains the boundaries of its table shards (see {@link DiqubeFileReader#hasTableShardBoundaries()}),
+   * the table shards are deserialized in parallel.
+   * 
+   * @param tableShardReadyConsumer
+   *          Informed about each table shard as soon as it is ready, can be <code>null</code>. It is called from the
+   *          thread calling this method only. If it throws a {@link LoadException}, loading is aborted.
+   * @see #load(long, String, String, LoaderColumnInfo)
+   */
+  public Collection<TableShard> load(long firstRowId, String filename, String tableName,
+      TableShardReadyConsumer tableShardReadyConsumer) throws LoadException {
     logger.info("Reading data for new table '{}' from '{}'.", new Object[] { tableName, filename });
 
     try (RandomAccessFile f = new RandomAccessFile(filename, "r")) {
       BigByteBuffer buf = new BigByteBuffer(f.getChannel(), MapMode.READ_ONLY, b -> b.load());
 
-      return load(firstRowId, buf, tableName, columnInfo);
+      return loadFromBuffer(firstRowId, buf, tableName, tableShardReadyConsumer);
     } catch (IOException e) {
       throw new LoadException("Could not load " + filename, e);
     }
   }
 
-  @Override
-  public Collection<TableShard> load(long firstRowId, BigByteBuffer buffer, String tableName,
-      LoaderColumnInfo columnInfo) throws LoadException {
+  private Collection<TableShard> loadFromBuffer(long firstRowId, BigByteBuffer buffer, String tableName,
+      TableShardReadyConsumer tableShardReadyConsumer) throws LoadException {
+    DiqubeFileReader reader;
+    try {
+      reader = fileFactory.createDiqubeFileReader(buffer);
+    } catch (IOException e) {
+      throw new LoadException("Could not read file", e);
+    }
+
+    List<TableShard> res;
+    if (reader.getNumberOfTableShards() > 1 && reader.hasTableShardBoundaries())
+      res = loadParallel(firstRowId, reader, tableName, tableShardReadyConsumer);
+    else
+      res = loadSequential(firstRowId, reader, tableName, tableShardReadyConsumer);
+
+    logger.info("Successfully loaded data for table '{}', rowIds {}-{}.", tableName, firstRowId,
+        firstRowId + reader.getNumberOfRows() - 1);
+
+    return res;
+  }
+
+  private List<TableShard> loadSequential(long firstRowId, DiqubeFileReader reader, String tableName,
+      TableShardReadyConsumer tableShardReadyConsumer) throws LoadException {
     Collection<DefaultTableShard> defaultTableShards;
+    long deserializationStart = LoadPhaseTimer.start();
     try {
-      DiqubeFileReader reader = fileFactory.createDiqubeFileReader(buffer);
       logger.info("Loading data for table '{}' by deserializing it.", tableName);
       defaultTableShards = reader.loadAllTableShards();
     } catch (DeserializationException | IOException e) {
       throw new LoadException("Could not deserialize data", e);
+    } finally {
+      LoadPhaseTimer.end(LoadPhase.DESERIALIZATION, deserializationStart);
     }
 
+    List<TableShard> res = new ArrayList<>();
     long nextFirstRowId = firstRowId;
-    // adjust some data.
     for (DefaultTableShard shard : defaultTableShards) {
-      shard.setTableName(tableName);
-      for (StandardColumnShard colShard : shard.getColumns().values())
-        ((AdjustableStandardColumnShard) colShard).adjustToFirstRowId(nextFirstRowId);
+      adjustTableShard(shard, tableName, nextFirstRowId);
       nextFirstRowId += shard.getNumberOfRowsInShard();
+      res.add(shard);
+      if (tableShardReadyConsumer != null)
+        tableShardReadyConsumer.tableShardReady(shard);
     }
+    return res;
+  }
+
+  private List<TableShard> loadParallel(long firstRowId, DiqubeFileReader reader, String tableName,
+      TableShardReadyConsumer tableShardReadyConsumer) throws LoadException {
+    logger.info("Loading data for table '{}' by deserializing its {} table shards in parallel.", tableName,
+        reader.getNumberOfTableShards());
 
-    logger.info("Successfully loaded data for table '{}', rowIds {}-{}.", tableName, firstRowId, nextFirstRowId - 1);
+    ExecutorCompletionService<DefaultTableShard> completionService =
+        new ExecutorCompletionService<>(deserializationExecutor);
+    List<Future<DefaultTableShard>> futures = new ArrayList<>();
 
-    return defaultTableShards.stream().map(s -> (TableShard) s).collect(Collectors.toList());
+    long nextFirstRowId = firstRowId;
+    for (int i = 0; i < reader.getNumberOfTableShards(); i++) {
+      int tableShardIdx = i;
+      long shardFirstRowId = nextFirstRowId;
+      futures.add(completionService.submit(() -> {
+        long deserializationStart = LoadPhaseTimer.start();
+        DefaultTableShard shard;
+        try {
+          shard = reader.loadTableShard(tableShardIdx);
+        } finally {
+          LoadPhaseTimer.end(LoadPhase.DESERIALIZATION, deserializationStart);
+        }
+        adjustTableShard(shard, tableName, shardFirstRowId);
+        return shard;
+      }));
+      nextFirstRowId += reader.getTableShardNumberOfRows().get(i);
+    }
+
+    List<TableShard> res = new ArrayList<>();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        DefaultTableShard shard;
+        try {
+          shard = completionService.take().get();
+        } catch (InterruptedException e) {
+          throw new LoadException("Interrupted while waiting for table shards to be deserialized", e);
+        } catch (ExecutionException e) {
+          throw new LoadException("Could not deserialize data", e.getCause());
+        }
+        res.add(shard);
+        if (tableShardReadyConsumer != null)
+          tableShardReadyConsumer.tableShardReady(shard);
+      }
+    } finally {
+      if (res.size() < futures.size())
+        futures.forEach(f -> f.cancel(true));
+    }
+
+    return res;
+  }
+
+  private void adjustTableShard(DefaultTableShard shard, String tableName, long firstRowId) {
+    shard.setTableName(tableName);
+    for (StandardColumnShard colShard : shard.getColumns().values())
+      ((AdjustableStandardColumnShard) colShard).adjustToFirstRowId(firstRowId);
+    for (RepeatedColumnShard repeatedColShard : shard.getRepeatedColumns().values())
+      repeatedColShard.adjustToFirstRowId(firstRowId);
+    shard.setRepeatedColumnMaterializer(repeatedColumnIndexMaterializer);
   }
 
+  /**
+   * Informed about each {@link TableShard} that has been loaded, as soon as it is ready.
+   */
+  public static interface TableShardReadyConsumer {
+    /**
+     * @throws LoadException
+     *           If the table shard cannot be used. Loading will be aborted.
+     */
+    public void tableShardReady(TableShard tableShard) throws LoadException;
+  }
 }
@@ -25,6 +25,7 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
@@ -39,9 +40,9 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Spliterator;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -49,18 +50,19 @@ import javax.inject.Inject;
 
 import org.diqube.context.AutoInstatiate;
 import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
+import org.diqube.data.table.DefaultTableShard;
 import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
 import org.diqube.loader.JsonLoader.Parser.Handler;
 import org.diqube.loader.columnshard.ColumnShardBuilderFactory;
 import org.diqube.loader.columnshard.ColumnShardBuilderManager;
-import org.diqube.loader.util.ParallelLoadAndTransposeHelper;
+import org.diqube.loader.columnshard.RepeatedColumnIndexMaterializer;
+import org.diqube.loader.util.ParallelTypedColumnLoadHelper;
+import org.diqube.loader.util.TypedColumnBatch;
 import org.diqube.name.RepeatedColumnNameGenerator;
-import org.diqube.threads.ExecutorManager;
 import org.diqube.util.BigByteBuffer;
-import org.diqube.util.HashingBatchCollector;
-import org.diqube.util.exception.WrappingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +85,13 @@ import com.fasterxml.jackson.core.JsonToken;
  * <p>
  * This loader will return only one TableShard for a whole JSON input file.
  * 
+ * <p>
+ * If {@link LoaderColumnInfo#isStoreRepeatedColumnsNatively()} is set, the columns of single array indices whose name
+ * contains exactly one index (e.g. "a[0].b", "a[1].b", ...) are stored as one {@link RepeatedColumnShard} (e.g.
+ * "a[*].b") each. The per-index columns are then available through the resulting table shard, too, but are only
+ * materialized when they are accessed. Nested arrays (e.g. "a[0].b[1]" or "a[0].b[length]") are not stored natively,
+ * but as one column per index.
+ * 
  * TODO #14 support optional fields.
  *
  * @author Bastian Gloeckle
@@ -91,6 +100,9 @@ import com.fasterxml.jackson.core.JsonToken;
 public class JsonLoader implements Loader {
   public static final int BUCKET_SIZE = 1_000;
 
+  /** Matches an array index in a column name, see {@link RepeatedColumnNameGenerator#repeatedAtIndex}. */
+  private static final Pattern INDEX_PATTERN = Pattern.compile("\\[([0-9]+)\\]");
+
   private static final Logger logger = LoggerFactory.getLogger(JsonLoader.class);
 
   @Inject
@@ -100,10 +112,10 @@ public class JsonLoader implements Loader {
   private TableFactory tableFactory;
 
   @Inject
-  private ExecutorManager executorManager;
+  private RepeatedColumnNameGenerator repeatedColNames;
 
   @Inject
-  private RepeatedColumnNameGenerator repeatedColNames;
+  private RepeatedColumnIndexMaterializer repeatedColumnIndexMaterializer;
 
   @Override
   public Collection<TableShard> load(long firstRowId, String filename, String tableName, LoaderColumnInfo columnInfo)
@@ -165,37 +177,14 @@ public class JsonLoader implements Loader {
     for (int i = 0; i < colNames.length; i++)
       colToColIndex.put(colNames[i], i);
 
-    ParallelLoadAndTransposeHelper transposer =
-        new ParallelLoadAndTransposeHelper(executorManager, columnInfo, columnBuilderManager, colNames, tableName);
+    ParallelTypedColumnLoadHelper loadHelper =
+        new ParallelTypedColumnLoadHelper(columnInfo, columnBuilderManager, colNames, BUCKET_SIZE);
 
     logger.info("Loading data and transforming to temporary columnar representation...");
 
-    try {
-      transposer.transpose(firstRowId, new Consumer<ConcurrentLinkedDeque<String[][]>>() {
-        @Override
-        public void accept(ConcurrentLinkedDeque<String[][]> rowWiseTarget) {
-          stream.parallel().map(new Function<Parser, String[]>() {
-            @Override
-            public String[] apply(Parser parser) {
-              try {
-                return parseOneEntry(parser, colNames, repeatedCols, colToColIndex);
-              } catch (LoadException e) {
-                throw new WrappingException(e);
-              }
-            }
-          }).collect(new HashingBatchCollector<String[]>(BUCKET_SIZE, //
-              (len) -> new String[len][], //
-              a -> {
-                rowWiseTarget.add(a);
-                logger.trace("Providing new batch with {} rows", a.length);
-              })
-          );
-        }
-      });
-    } catch (WrappingException e) {
-      LoadException loadEx = (LoadException) e.getWrappedException();
-      throw loadEx;
-    }
+    loadHelper.load(firstRowId, stream.parallel(), (parser, batch, row) -> {
+      parseOneEntry(parser, batch, row, repeatedCols, colToColIndex);
+    });
 
     logger.info("Read data for table {}. Compressing and creating final representation...", tableName);
 
@@ -203,6 +192,10 @@ public class JsonLoader implements Loader {
     for (String repeatedColName : repeatedCols)
       columnBuilderManager.fillEmptyRowsWithValue(repeatedColNames.repeatedLength(repeatedColName), 0L);
 
+    List<RepeatedColumnShard> repeatedColumns = new LinkedList<>();
+    if (columnInfo.isStoreRepeatedColumnsNatively())
+      repeatedColumns = buildRepeatedColumns(columnBuilderManager, columnInfo);
+
     // Build the columns.
     List<StandardColumnShard> columns = new LinkedList<>();
     for (String colName : columnBuilderManager.getAllColumnsWithValues()) {
@@ -212,7 +205,8 @@ public class JsonLoader implements Loader {
     }
 
     logger.info("Columns for new table shard of table {} created, creating TableShard...", tableName);
-    TableShard tableShard = tableFactory.createDefaultTableShard(tableName, columns);
+    DefaultTableShard tableShard = tableFactory.createDefaultTableShard(tableName, columns, repeatedColumns);
+    tableShard.setRepeatedColumnMaterializer(repeatedColumnIndexMaterializer);
 
     logger.info(
         "Table shard for new table shard of table {} created successfully, it contains {} rows starting from rowId {}",
@@ -221,24 +215,96 @@ public class JsonLoader implements Loader {
   }
 
   /**
-   * Parses one top level object in the JSON and produces a corresponding String[].
-   * 
-   * TODO support other than String[].
+   * Builds {@link RepeatedColumnShard}s of all columns whose name contains exactly one array index, freeing the
+   * per-index columns in the {@link ColumnShardBuilderManager}. Repeated columns whose index columns do not all have
+   * the same type are not stored natively.
+   */
+  private List<RepeatedColumnShard> buildRepeatedColumns(ColumnShardBuilderManager columnBuilderManager,
+      LoaderColumnInfo columnInfo) {
+    Set<String> allColNames = columnBuilderManager.getAllColumnsWithValues();
+    // pattern -> (index -> column name)
+    Map<String, SortedMap<Integer, String>> indexColsByPattern = new HashMap<>();
+    // pattern -> length column name
+    Map<String, String> lengthColByPattern = new HashMap<>();
+    for (String colName : allColNames) {
+      Matcher matcher = INDEX_PATTERN.matcher(colName);
+      if (!matcher.find())
+        continue;
+      int start = matcher.start();
+      int end = matcher.end();
+      int index = Integer.parseInt(matcher.group(1));
+      if (matcher.find())
+        // more than one index: nested arrays are not stored natively.
+        continue;
+      if (colName.endsWith(repeatedColNames.lengthIdentifyingSuffix()))
+        // length column of a nested array (e.g. a[0].b[length]): nested arrays are not stored natively.
+        continue;
+
+      String baseName = colName.substring(0, start);
+      String lengthColName = repeatedColNames.repeatedLength(baseName);
+      if (!allColNames.contains(lengthColName))
+        continue;
+
+      String pattern = baseName + repeatedColNames.allEntriesIdentifyingSubstr() + colName.substring(end);
+      indexColsByPattern.computeIfAbsent(pattern, p -> new TreeMap<>()).put(index, colName);
+      lengthColByPattern.put(pattern, lengthColName);
+    }
+
+    List<RepeatedColumnShard> res = new ArrayList<>();
+    for (Map.Entry<String, SortedMap<Integer, String>> patternEntry : indexColsByPattern.entrySet()) {
+      String pattern = patternEntry.getKey();
+      SortedMap<Integer, String> indexCols = patternEntry.getValue();
+
+      Set<ColumnType> types = new HashSet<>();
+      for (String indexColName : indexCols.values())
+        types.add(columnInfo.getFinalColumnType(indexColName));
+      if (types.size() != 1) {
+        logger.info("Not storing repeated column {} natively, as its entries have different types.", pattern);
+        continue;
+      }
+
+      Object defaultValue;
+      switch (types.iterator().next()) {
+      case STRING:
+        defaultValue = LoaderColumnInfo.DEFAULT_STRING;
+        break;
+      case LONG:
+        defaultValue = LoaderColumnInfo.DEFAULT_LONG;
+        break;
+      default:
+        defaultValue = LoaderColumnInfo.DEFAULT_DOUBLE;
+        break;
+      }
+
+      List<String> indexColNames = new ArrayList<>();
+      for (int i = 0; i <= indexCols.lastKey(); i++)
+        indexColNames.add(indexCols.get(i));
+
+      res.add(columnBuilderManager.buildRepeatedAndFree(pattern, lengthColByPattern.get(pattern), indexColNames,
+          defaultValue));
+    }
+
+    logger.info("Stored {} repeated columns natively.", res.size());
+    return res;
+  }
+
+  /**
+   * Parses one top level object in the JSON and stores its values in a row of a {@link TypedColumnBatch}.
    * 
    * @param parser
    *          The {@link Parser} that is prepared to load the top level input object.
-   * @param colNames
-   *          Names of the columns. The result of this method will be an array where the index in the array denotes the
-   *          column for which the entry contains the value - It is the same ordering as this colNames parameter.
+   * @param target
+   *          The batch to store the values in. The column indices of the batch are the indices of the column names in
+   *          colToColIndex.
+   * @param row
+   *          The row in the target batch.
    * @param repeatedCols
    *          Set of repeated columns.
    * @param colToColIndex
-   *          Map from column name to the index in colNames.
-   * @return String[] containing the values of the object for each column. Ordering is the same as colNames.
+   *          Map from column name to the index of the column in the target batch.
    */
-  private String[] parseOneEntry(Parser parser, String[] colNames, Set<String> repeatedCols,
+  private void parseOneEntry(Parser parser, TypedColumnBatch target, int row, Set<String> repeatedCols,
       Map<String, Integer> colToColIndex) throws LoadException {
-    String[] res = new String[colNames.length];
     parser.parse(new Handler() {
       @Override
       public boolean isArray(String colName) {
@@ -248,7 +314,7 @@ public class JsonLoader implements Loader {
       @Override
       public void valueString(String colName, JsonParser parser) throws LoadException {
         try {
-          res[colToColIndex.get(colName)] = parser.getValueAsString().intern();
+          target.setString(colToColIndex.get(colName), row, parser.getValueAsString());
         } catch (IOException e) {
           throw new LoadException("Could not parse value of column " + colName + ": " + e.getMessage(), e);
         }
@@ -257,7 +323,7 @@ public class JsonLoader implements Loader {
       @Override
       public void valueLong(String colName, JsonParser parser) throws LoadException {
         try {
-          res[colToColIndex.get(colName)] = Long.valueOf(parser.getValueAsLong()).toString().intern();
+          target.setLong(colToColIndex.get(colName), row, parser.getValueAsLong());
         } catch (IOException e) {
           throw new LoadException("Could not parse value of column " + colName + ": " + e.getMessage(), e);
         }
@@ -266,7 +332,7 @@ public class JsonLoader implements Loader {
       @Override
       public void valueDouble(String colName, JsonParser parser) throws LoadException {
         try {
-          res[colToColIndex.get(colName)] = Double.valueOf(parser.getValueAsDouble()).toString().intern();
+          target.setDouble(colToColIndex.get(colName), row, parser.getValueAsDouble());
         } catch (IOException e) {
           throw new LoadException("Could not parse value of column " + colName + ": " + e.getMessage(), e);
         }
@@ -275,10 +341,9 @@ public class JsonLoader implements Loader {
       @Override
       public void endArray(String colName, int length) throws LoadException {
         String lengthCol = repeatedColNames.repeatedLength(colName);
-        res[colToColIndex.get(lengthCol)] = Integer.toString(length);
+        target.setLong(colToColIndex.get(lengthCol), row, length);
       }
     });
-    return res;
   }
 
   /**
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.function.Function;
 
 import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 
 /**
  * Contains information about each column for the loader.
@@ -58,6 +59,7 @@ public class LoaderColumnInfo {
   private Map<String, ColumnType> columnType = new HashMap<>();
   private Map<String, Function<String[], Object[]>> customTransformationFunction = new HashMap<>();
   private ColumnType defaultColumnType;
+  private boolean storeRepeatedColumnsNatively = false;
 
   /**
    * Create new {@link LoaderColumnInfo}.
@@ -136,6 +138,14 @@ public class LoaderColumnInfo {
     return null;
   }
 
+  /**
+   * @return The custom transformation function that was registered for the given column or <code>null</code> if
+   *         there is none.
+   */
+  public Function<String[], Object[]> getCustomTransformFunc(String column) {
+    return customTransformationFunction.get(column);
+  }
+
   /**
    * Find out if a specific column has a custom data type set or the default is used.
    */
@@ -159,6 +169,18 @@ public class LoaderColumnInfo {
     return res;
   }
 
+  /**
+   * @return <code>true</code> if loaders that support it should store repeated columns natively as
+   *         {@link RepeatedColumnShard}s instead of as one column per array index.
+   */
+  public boolean isStoreRepeatedColumnsNatively() {
+    return storeRepeatedColumnsNatively;
+  }
+
+  public void setStoreRepeatedColumnsNatively(boolean storeRepeatedColumnsNatively) {
+    this.storeRepeatedColumnsNatively = storeRepeatedColumnsNatively;
+  }
+
   public static Long parseLong(String s) {
     if (s == null || "".equals(s))
       // TODO #14 optional columns
@@ -26,11 +26,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.function.ToLongFunction;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
 
 import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnPageFactory;
@@ -44,10 +46,14 @@ import org.diqube.loader.Loader;
 import org.diqube.loader.compression.CompressedDoubleDictionaryBuilder;
 import org.diqube.loader.compression.CompressedLongDictionaryBuilder;
 import org.diqube.loader.compression.CompressedStringDictionaryBuilder;
+import org.diqube.loader.util.LoadPhaseTimer;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSortedMap;
+
 /**
  * Builds {@link ColumnShard}s and corresponding {@link ColumnPage}s.
  * 
@@ -63,6 +69,10 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The columns will statically be split up into pages of the length {@link #PROPOSAL_ROWS}.
  *
+ * <p>
+ * The temporary IDs of the values are assigned according to the {@link DictionaryBuildMode} of the builder. Both modes
+ * lead to the same dictionaries and column pages being built, they only differ in the performance while loading.
+ *
  * @author Bastian Gloeckle
  */
 public class ColumnShardBuilder<T> {
@@ -70,17 +80,35 @@ public class ColumnShardBuilder<T> {
   // TODO #59: Make configurable.
   public static final int PROPOSAL_ROWS = 50_000;
 
+  /**
+   * How the temporary value IDs of a column are managed while values are added to a {@link ColumnShardBuilder}.
+   */
+  public static enum DictionaryBuildMode {
+    /**
+     * Hold all values in a sorted concurrent map. Each lookup of a value needs a logarithmic number of comparisons.
+     */
+    SORTED,
+    /**
+     * Hold all values in a concurrent hash map and sort the distinct values only once when building the column. This
+     * is usually considerably faster for columns with many values (especially string columns).
+     */
+    HASH
+  }
+
   /** Name of the Column to be created */
   private String name;
 
   /**
    * Holds all values of the column and maps each value to a value ID (see {@link #nextColumnDictId}).
    * 
-   * This Map will be used to create the Column Dictionary when building the column.
+   * This Map will be used to create the Column Dictionary when building the column. Depending on the
+   * {@link #dictionaryBuildMode} this is either a sorted or a hash map.
    */
-  private volatile ConcurrentNavigableMap<T, Long> columnDict = new ConcurrentSkipListMap<>();
+  private volatile ConcurrentMap<T, Long> columnDict;
   private AtomicLong nextColumnDictId = new AtomicLong(0);
 
+  private DictionaryBuildMode dictionaryBuildMode;
+
   /**
    * The {@link ColumnPageProposal}s contain the value IDs (see {@link #columnDict}) of the values of the column.
    * 
@@ -115,10 +143,27 @@ public class ColumnShardBuilder<T> {
    */
   public ColumnShardBuilder(ColumnShardFactory columnShardFactory, ColumnPageFactory columnPageFactory, String name,
       long firstRowIdInShard) {
+    this(columnShardFactory, columnPageFactory, name, firstRowIdInShard, DictionaryBuildMode.SORTED);
+  }
+
+  /**
+   * Build a new {@link ColumnShardBuilder}.
+   * 
+   * @param dictionaryBuildMode
+   *          How the temporary value IDs should be managed while adding values.
+   * @see #ColumnShardBuilder(ColumnShardFactory, ColumnPageFactory, String, long)
+   */
+  public ColumnShardBuilder(ColumnShardFactory columnShardFactory, ColumnPageFactory columnPageFactory, String name,
+      long firstRowIdInShard, DictionaryBuildMode dictionaryBuildMode) {
     this.columnShardFactory = columnShardFactory;
     this.columnPageFactory = columnPageFactory;
     this.name = name;
     this.firstRowIdInShard = firstRowIdInShard;
+    this.dictionaryBuildMode = dictionaryBuildMode;
+    if (dictionaryBuildMode.equals(DictionaryBuildMode.HASH))
+      columnDict = new ConcurrentHashMap<>();
+    else
+      columnDict = new ConcurrentSkipListMap<>();
   }
 
   /**
@@ -142,41 +187,143 @@ public class ColumnShardBuilder<T> {
    *          The resulting Row ID of values[0], values[1] will be firstValueRowId + 1 etc.
    */
   public void addValues(T[] values, Long firstValueRowId) {
-    // Add values to columnDict if needed, transform all values to column value IDs
-    // Be aware that this here is a sequential stream! If using a parallel one, this method tries to acquire the same
+    addValues(values.length, idx -> values[idx], firstValueRowId);
+  }
+
+  /**
+   * Add new consecutive (uncompressed) values to this column, where the values are resolved using a function.
+   * 
+   * <p>
+   * This is useful for callers which hold the values in a primitive array, as that array does not have to be copied to
+   * an array of objects first.
+   * 
+   * <p>
+   * This method is thread safe.
+   * 
+   * @param length
+   *          Number of values to add.
+   * @param valueFn
+   *          Provides the value at a given index, index is in range [0, length[.
+   * @param firstValueRowId
+   *          The resulting Row ID of the value at index 0, index 1 will have firstValueRowId + 1 etc.
+   * @see #addValues(Object[], Long)
+   */
+  public void addValues(int length, IntFunction<T> valueFn, long firstValueRowId) {
+    // Add values to columnDict if needed, transform all values to column value IDs.
+    // Be aware that this is executed sequentially! If using a parallel stream, this method tries to acquire the same
     // few threads of the common ForkJoin thread pool, which the Parser might already use. We might then endup in a
     // somewhat deadlock situation.
     // TODO #47 rework the parallel streams architecture.
-    long[] valueIds = Arrays.stream(values).sequential().mapToLong(new ToLongFunction<T>() {
-      @Override
-      public long applyAsLong(T value) {
-        Long id = columnDict.get(value);
-        if (id != null)
-          return id;
-
-        synchronized (columnDict) {
-          id = columnDict.get(value);
-          if (id != null)
-            return id;
-          id = nextColumnDictId.getAndIncrement();
-          columnDict.put(value, id);
-        }
-        // can be String, Long or Double. Long and Double are both 64 bit = 8 byte. We totally ignore space consumed by
-        // object headers etc.
-        if (value instanceof String)
-          // for strings we do not want to linerily iterate over. Approximation is length of the string, assuming each
-          // char in the string is one byte - this is obviously incorrect for Unicaode chars, but as we only count an
-          // approximation, that should be ok.
-          columnDictKeysByteSizeApprox.addAndGet(((String) value).length());
-        else
-          columnDictKeysByteSizeApprox.addAndGet(8);
-        return id;
-      }
-    }).toArray();
+    long[] valueIds = new long[length];
+    for (int i = 0; i < length; i++)
+      valueIds[i] = valueId(valueFn.apply(i));
+
+    addValueIds(valueIds, 0, firstValueRowId);
+  }
+
+  /**
+   * Add new consecutive (uncompressed) values to a {@link Long} column, see {@link #addValues(Object[], Long)}.
+   * 
+   * <p>
+   * The values are not boxed one by one: Only the distinct values are looked up in the column dict, the ID of each
+   * value is then found using a binary search on the sorted distinct values.
+   * 
+   * <p>
+   * This method is thread safe. It must only be called on a builder of a {@link Long} column.
+   * 
+   * @param values
+   *          The uncompressed values to be added to the column.
+   * @param length
+   *          Number of values of the array to add, starting at index 0.
+   * @param firstValueRowId
+   *          The resulting Row ID of values[0], values[1] will be firstValueRowId + 1 etc.
+   */
+  @SuppressWarnings("unchecked")
+  public void addValues(long[] values, int length, long firstValueRowId) {
+    long[] distinctValues = Arrays.copyOf(values, length);
+    Arrays.sort(distinctValues);
+    int numberOfDistinctValues = 0;
+    for (int i = 0; i < length; i++)
+      if (numberOfDistinctValues == 0 || distinctValues[numberOfDistinctValues - 1] != distinctValues[i])
+        distinctValues[numberOfDistinctValues++] = distinctValues[i];
+
+    long[] distinctValueIds = new long[numberOfDistinctValues];
+    for (int i = 0; i < numberOfDistinctValues; i++)
+      distinctValueIds[i] = valueId((T) Long.valueOf(distinctValues[i]));
+
+    long[] valueIds = new long[length];
+    for (int i = 0; i < length; i++)
+      valueIds[i] = distinctValueIds[Arrays.binarySearch(distinctValues, 0, numberOfDistinctValues, values[i])];
 
     addValueIds(valueIds, 0, firstValueRowId);
   }
 
+  /**
+   * Add new consecutive (uncompressed) values to a {@link Double} column, see {@link #addValues(long[], int, long)}.
+   * 
+   * <p>
+   * This method is thread safe. It must only be called on a builder of a {@link Double} column.
+   */
+  @SuppressWarnings("unchecked")
+  public void addValues(double[] values, int length, long firstValueRowId) {
+    // sort and binarySearch use the same total order as Double#equals, so the distinct values match the column dict.
+    double[] distinctValues = Arrays.copyOf(values, length);
+    Arrays.sort(distinctValues);
+    int numberOfDistinctValues = 0;
+    for (int i = 0; i < length; i++)
+      if (numberOfDistinctValues == 0
+          || Double.compare(distinctValues[numberOfDistinctValues - 1], distinctValues[i]) != 0)
+        distinctValues[numberOfDistinctValues++] = distinctValues[i];
+
+    long[] distinctValueIds = new long[numberOfDistinctValues];
+    for (int i = 0; i < numberOfDistinctValues; i++)
+      distinctValueIds[i] = valueId((T) Double.valueOf(distinctValues[i]));
+
+    long[] valueIds = new long[length];
+    for (int i = 0; i < length; i++)
+      valueIds[i] = distinctValueIds[Arrays.binarySearch(distinctValues, 0, numberOfDistinctValues, values[i])];
+
+    addValueIds(valueIds, 0, firstValueRowId);
+  }
+
+  /**
+   * Resolves the ID of the given value in {@link #columnDict}, adding the value if it is not contained yet.
+   */
+  private long valueId(T value) {
+    Long id = columnDict.get(value);
+    if (id != null)
+      return id;
+
+    if (dictionaryBuildMode.equals(DictionaryBuildMode.HASH))
+      // computeIfAbsent of ConcurrentHashMap executes the function atomically and only once per new value.
+      return columnDict.computeIfAbsent(value, v -> {
+        addToColumnDictKeysByteSizeApprox(v);
+        return nextColumnDictId.getAndIncrement();
+      });
+
+    synchronized (columnDict) {
+      id = columnDict.get(value);
+      if (id != null)
+        return id;
+      id = nextColumnDictId.getAndIncrement();
+      columnDict.put(value, id);
+    }
+    addToColumnDictKeysByteSizeApprox(value);
+    return id;
+  }
+
+  private void addToColumnDictKeysByteSizeApprox(T value) {
+    // can be String, Long or Double. Long and Double are both 64 bit = 8 byte. We totally ignore space consumed by
+    // object headers etc.
+    if (value instanceof String)
+      // for strings we do not want to linerily iterate over. Approximation is length of the string, assuming each
+      // char in the string is one byte - this is obviously incorrect for Unicaode chars, but as we only count an
+      // approximation, that should be ok.
+      columnDictKeysByteSizeApprox.addAndGet(((String) value).length());
+    else
+      columnDictKeysByteSizeApprox.addAndGet(8);
+  }
+
   /**
    * Walks along all rows that have been added and sets the given default value into those rows that do not have a value
    * set.
@@ -235,6 +382,34 @@ public class ColumnShardBuilder<T> {
         pageProposals.size(), value, upToProposalIdx);
   }
 
+  /**
+   * Creates a function that resolves the value that has been added to this builder for a specific row ID.
+   * 
+   * <p>
+   * Must be called only after all calls to {@link #addValues(Object[], Long)} have been made. The returned function is
+   * not valid anymore after calling {@link #build()}.
+   * 
+   * @param defaultValue
+   *          The value the function returns for rows that do not have a value.
+   */
+  @SuppressWarnings("unchecked")
+  /* package */ LongFunction<T> createValueByRowIdResolver(T defaultValue) {
+    Object[] valuesById = new Object[(int) nextColumnDictId.get()];
+    for (Map.Entry<T, Long> e : columnDict.entrySet())
+      valuesById[e.getValue().intValue()] = e.getKey();
+
+    return rowId -> {
+      int rowIdx = (int) (rowId - firstRowIdInShard);
+      int proposalIdx = rowIdx / PROPOSAL_ROWS;
+      if (rowIdx < 0 || proposalIdx >= pageProposals.size() || pageProposals.get(proposalIdx) == null)
+        return defaultValue;
+      long valueId = pageProposals.get(proposalIdx).valueIds[rowIdx % PROPOSAL_ROWS];
+      if (valueId == ColumnPageProposal.EMPTY)
+        return defaultValue;
+      return (T) valuesById[(int) valueId];
+    };
+  }
+
   /**
    * After adding the values of the column this method builds actual {@link ColumnShard}s.
    *
@@ -250,42 +425,64 @@ public class ColumnShardBuilder<T> {
 
     StandardColumnShard res = null;
     NavigableMap<Long, ColumnPage> pages = new TreeMap<>();
-    Map<Long, Long> idChangeMap = null; // != null if the IDs in the final column dict were changed compared to
-                                        // columnDict.
-
-    logger.debug("Building dictionary of ColumnShard...");
-
-    if (columnValueClass.equals(String.class)) {
-      CompressedStringDictionaryBuilder builder = new CompressedStringDictionaryBuilder();
-      builder.fromEntityMap((ConcurrentNavigableMap<String, Long>) columnDict);
-      Pair<StringDictionary<?>, Map<Long, Long>> builderRes = builder.build();
-
-      StringDictionary<?> columnShardDictionary = builderRes.getLeft();
-      idChangeMap = builderRes.getRight();
-
-      res = columnShardFactory.createStandardStringColumnShard(name, pages, columnShardDictionary);
-    } else if (columnValueClass.equals(Long.class)) {
-      CompressedLongDictionaryBuilder builder = new CompressedLongDictionaryBuilder();
-      builder.withDictionaryName(name).fromEntityMap((ConcurrentNavigableMap<Long, Long>) columnDict);
-      Pair<LongDictionary<?>, Map<Long, Long>> builderRes = builder.build();
-
-      LongDictionary<?> columnShardDictionary = builderRes.getLeft();
-      idChangeMap = builderRes.getRight();
-
-      res = columnShardFactory.createStandardLongColumnShard(name, pages, columnShardDictionary);
-    } else if (columnValueClass.equals(Double.class)) {
-      CompressedDoubleDictionaryBuilder builder = new CompressedDoubleDictionaryBuilder();
-      builder.fromEntityMap((ConcurrentNavigableMap<Double, Long>) columnDict);
-      Pair<DoubleDictionary<?>, Map<Long, Long>> builderRes = builder.build();
-
-      DoubleDictionary<?> columnShardDictionary = builderRes.getLeft();
-      idChangeMap = builderRes.getRight();
-
-      res = columnShardFactory.createStandardDoubleColumnShard(name, pages, columnShardDictionary);
-    } else {
-      throw new UnsupportedOperationException("Only building of string, long and double dicts is implemented!");
+    // IDs in the final column dict that were changed compared to the temporary IDs in columnDict.
+    Map<Long, Long> idChangeMap = null;
+
+    long dictionaryStart = LoadPhaseTimer.start();
+    // long arrays compressed while building the dictionary are reported as COMPRESSION, not as DICTIONARY.
+    try {
+      NavigableMap<T, Long> sortedColumnDict;
+      if (dictionaryBuildMode.equals(DictionaryBuildMode.HASH)) {
+        logger.debug("Sorting {} distinct values of ColumnShard...", columnDict.size());
+        // sort all distinct values once, the resulting map is array-based.
+        sortedColumnDict = ImmutableSortedMap.copyOf(columnDict);
+      } else
+        sortedColumnDict = (NavigableMap<T, Long>) columnDict;
+
+      logger.debug("Building dictionary of ColumnShard...");
+
+      if (columnValueClass.equals(String.class)) {
+        CompressedStringDictionaryBuilder builder = new CompressedStringDictionaryBuilder();
+        builder.fromEntityMap((NavigableMap<String, Long>) sortedColumnDict);
+        Pair<StringDictionary<?>, Map<Long, Long>> builderRes = builder.build();
+
+        StringDictionary<?> columnShardDictionary = builderRes.getLeft();
+        idChangeMap = builderRes.getRight();
+
+        res = columnShardFactory.createStandardStringColumnShard(name, pages, columnShardDictionary);
+      } else if (columnValueClass.equals(Long.class)) {
+        CompressedLongDictionaryBuilder builder = new CompressedLongDictionaryBuilder();
+        builder.withDictionaryName(name).fromEntityMap((NavigableMap<Long, Long>) sortedColumnDict);
+        Pair<LongDictionary<?>, Map<Long, Long>> builderRes = builder.build();
+
+        LongDictionary<?> columnShardDictionary = builderRes.getLeft();
+        idChangeMap = builderRes.getRight();
+
+        res = columnShardFactory.createStandardLongColumnShard(name, pages, columnShardDictionary);
+      } else if (columnValueClass.equals(Double.class)) {
+        CompressedDoubleDictionaryBuilder builder = new CompressedDoubleDictionaryBuilder();
+        builder.fromEntityMap((NavigableMap<Double, Long>) sortedColumnDict);
+        Pair<DoubleDictionary<?>, Map<Long, Long>> builderRes = builder.build();
+
+        DoubleDictionary<?> columnShardDictionary = builderRes.getLeft();
+        idChangeMap = builderRes.getRight();
+
+        res = columnShardFactory.createStandardDoubleColumnShard(name, pages, columnShardDictionary);
+      } else {
+        throw new UnsupportedOperationException("Only building of string, long and double dicts is implemented!");
+      }
+    } finally {
+      LoadPhaseTimer.end(LoadPhase.DICTIONARY, dictionaryStart);
     }
 
+    // Map from temporary ID (index) to final ID in the column dictionary. Temporary IDs are assigned consecutively,
+    // therefore an array is enough to remap the IDs of all rows.
+    long[] finalColumnDictIds = new long[(int) nextColumnDictId.get()];
+    for (int i = 0; i < finalColumnDictIds.length; i++)
+      finalColumnDictIds[i] = i;
+    for (Map.Entry<Long, Long> idChangeEntry : idChangeMap.entrySet())
+      finalColumnDictIds[idChangeEntry.getKey().intValue()] = idChangeEntry.getValue();
+
     // Prepare page builders
     List<ColumnPageBuilder> columnPageBuilders = new ArrayList<ColumnPageBuilder>(pageProposals.size());
 
@@ -299,11 +496,8 @@ public class ColumnShardBuilder<T> {
       long nextPageValueId = 0;
 
       for (int i = 0; i < valueLength; i++) {
-        long value = proposal.valueIds[i];
-
         // Adjust ID that was stored in columnDict, if it has been adjusted when building the column dictionary above.
-        if (idChangeMap != null && idChangeMap.containsKey(value))
-          value = idChangeMap.get(value);
+        long value = finalColumnDictIds[(int) proposal.valueIds[i]];
 
         // give this value a new ID which is valid for this column page
         if (!valueToId.containsKey(value)) {
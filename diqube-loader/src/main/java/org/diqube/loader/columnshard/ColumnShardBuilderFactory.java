@@ -26,6 +26,7 @@ import org.diqube.context.AutoInstatiate;
 import org.diqube.data.column.ColumnPageFactory;
 import org.diqube.data.column.ColumnShardFactory;
 import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.columnshard.ColumnShardBuilder.DictionaryBuildMode;
 
 /**
  *
@@ -40,13 +41,26 @@ public class ColumnShardBuilderFactory {
   @Inject
   private ColumnPageFactory columnPageFactory;
 
+  /**
+   * Create a new {@link ColumnShardBuilderManager} whose builders use {@link DictionaryBuildMode#HASH}.
+   */
   public ColumnShardBuilderManager createColumnShardBuilderManager(LoaderColumnInfo columnInfo,
       long firstRowIdInShard) {
-    return new ColumnShardBuilderManager(columnShardFactory, columnPageFactory, columnInfo, firstRowIdInShard);
+    return createColumnShardBuilderManager(columnInfo, firstRowIdInShard, DictionaryBuildMode.HASH);
+  }
+
+  public ColumnShardBuilderManager createColumnShardBuilderManager(LoaderColumnInfo columnInfo, long firstRowIdInShard,
+      DictionaryBuildMode dictionaryBuildMode) {
+    return new ColumnShardBuilderManager(columnShardFactory, columnPageFactory, columnInfo, firstRowIdInShard,
+        dictionaryBuildMode);
   }
 
   public SparseColumnShardBuilder<Object> createSparseColumnShardBuilder(String colName) {
     return new SparseColumnShardBuilder<Object>(columnShardFactory, columnPageFactory, colName);
   }
 
+  public IntermediaryColumnShardBuilder createIntermediaryColumnShardBuilder(String colName) {
+    return new IntermediaryColumnShardBuilder(columnShardFactory, columnPageFactory, colName);
+  }
+
 }
@@ -20,17 +20,23 @@
  */
 package org.diqube.loader.columnshard;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
 
 import org.diqube.data.column.ColumnPageFactory;
 import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.table.TableShard;
 import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.columnshard.ColumnShardBuilder.DictionaryBuildMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,13 +63,19 @@ public class ColumnShardBuilderManager {
   private LoaderColumnInfo columnInfo;
   private long firstRowIdInShard;
   private AtomicLong maxRow = new AtomicLong(-1L);
+  private DictionaryBuildMode dictionaryBuildMode;
 
+  /**
+   * @param dictionaryBuildMode
+   *          The mode all {@link ColumnShardBuilder}s created by this manager will use.
+   */
   public ColumnShardBuilderManager(ColumnShardFactory columnShardFactory, ColumnPageFactory columnPageFactory,
-      LoaderColumnInfo columnInfo, long firstRowIdInShard) {
+      LoaderColumnInfo columnInfo, long firstRowIdInShard, DictionaryBuildMode dictionaryBuildMode) {
     this.columnShardFactory = columnShardFactory;
     this.columnPageFactory = columnPageFactory;
     this.columnInfo = columnInfo;
     this.firstRowIdInShard = firstRowIdInShard;
+    this.dictionaryBuildMode = dictionaryBuildMode;
   }
 
   /**
@@ -106,42 +118,66 @@ public class ColumnShardBuilderManager {
   public void addValues(String colName, Object[] values, long firstRowId) {
     switch (columnInfo.getFinalColumnType(colName)) {
     case STRING:
-      if (!stringBuilders.containsKey(colName)) {
-        synchronized (stringBuilders) {
-          if (!stringBuilders.containsKey(colName)) {
-            stringBuilders.put(colName,
-                new ColumnShardBuilder<String>(columnShardFactory, columnPageFactory, colName, firstRowIdInShard));
-          }
-        }
-      }
-      stringBuilders.get(colName).addValues((String[]) values, firstRowId);
+      builder(stringBuilders, colName).addValues((String[]) values, firstRowId);
       break;
     case LONG:
-      if (!longBuilders.containsKey(colName)) {
-        synchronized (longBuilders) {
-          if (!longBuilders.containsKey(colName)) {
-            longBuilders.put(colName,
-                new ColumnShardBuilder<Long>(columnShardFactory, columnPageFactory, colName, firstRowIdInShard));
-          }
-        }
-      }
-      longBuilders.get(colName).addValues((Long[]) values, firstRowId);
+      builder(longBuilders, colName).addValues((Long[]) values, firstRowId);
       break;
     case DOUBLE:
-      if (!doubleBuilders.containsKey(colName)) {
-        synchronized (doubleBuilders) {
-          if (!doubleBuilders.containsKey(colName)) {
-            doubleBuilders.put(colName,
-                new ColumnShardBuilder<Double>(columnShardFactory, columnPageFactory, colName, firstRowIdInShard));
-          }
-        }
-      }
-      doubleBuilders.get(colName).addValues((Double[]) values, firstRowId);
+      builder(doubleBuilders, colName).addValues((Double[]) values, firstRowId);
       break;
     }
     maxRow.getAndUpdate(oldVal -> Math.max(oldVal, firstRowId + values.length - 1));
   }
 
+  /**
+   * Adds the first length values of the given array to the {@link ColumnType#LONG} column, without boxing each value.
+   * 
+   * @see ColumnShardBuilder#addValues(long[], int, long)
+   */
+  public void addValues(String colName, long[] values, int length, long firstRowId) {
+    builder(longBuilders, colName).addValues(values, length, firstRowId);
+    maxRow.getAndUpdate(oldVal -> Math.max(oldVal, firstRowId + length - 1));
+  }
+
+  /**
+   * Adds the first length values of the given array to the {@link ColumnType#DOUBLE} column, without boxing each value.
+   * 
+   * @see ColumnShardBuilder#addValues(double[], int, long)
+   */
+  public void addValues(String colName, double[] values, int length, long firstRowId) {
+    builder(doubleBuilders, colName).addValues(values, length, firstRowId);
+    maxRow.getAndUpdate(oldVal -> Math.max(oldVal, firstRowId + length - 1));
+  }
+
+  /**
+   * Adds the first length values of the given array to the {@link ColumnType#STRING} column.
+   * 
+   * @see ColumnShardBuilder#addValues(int, java.util.function.IntFunction, long)
+   */
+  public void addValues(String colName, String[] values, int length, long firstRowId) {
+    builder(stringBuilders, colName).addValues(length, idx -> values[idx], firstRowId);
+    maxRow.getAndUpdate(oldVal -> Math.max(oldVal, firstRowId + length - 1));
+  }
+
+  /**
+   * Returns the {@link ColumnShardBuilder} of the given column from the given map, creating a new one if needed.
+   */
+  private <T> ColumnShardBuilder<T> builder(Map<String, ColumnShardBuilder<T>> builders, String colName) {
+    ColumnShardBuilder<T> res = builders.get(colName);
+    if (res == null) {
+      synchronized (builders) {
+        res = builders.get(colName);
+        if (res == null) {
+          res = new ColumnShardBuilder<T>(columnShardFactory, columnPageFactory, colName, firstRowIdInShard,
+              dictionaryBuildMode);
+          builders.put(colName, res);
+        }
+      }
+    }
+    return res;
+  }
+
   /**
    * Make this manager expect values up to the specified row (including).
    * 
@@ -190,6 +226,81 @@ public class ColumnShardBuilderManager {
     return colBuilder.build();
   }
 
+  /**
+   * Builds a {@link RepeatedColumnShard} from the columns of the single array indices of a repeated column and frees
+   * the {@link ColumnShardBuilder}s of those index columns.
+   * 
+   * <p>
+   * All index columns need to have the same final column type. The length column is used to find the number of entries
+   * of each row, but it is not freed - it still needs to be built using {@link #buildAndFree(String)} afterwards.
+   * 
+   * @param repeatedColName
+   *          Name of the resulting repeated column, see {@link RepeatedColumnShard}.
+   * @param lengthColName
+   *          Name of the {@link ColumnType#LONG} column containing the number of entries of each row.
+   * @param indexColNames
+   *          Names of the index columns, the name of the column of array index i at list index i. An entry might be
+   *          <code>null</code> if there is no column for that index.
+   * @param defaultValue
+   *          The value to use for entries that do not have a value. This is used as default value of the repeated
+   *          column, too.
+   */
+  @SuppressWarnings("unchecked")
+  public RepeatedColumnShard buildRepeatedAndFree(String repeatedColName, String lengthColName,
+      List<String> indexColNames, Object defaultValue) {
+    String sampleIndexColName = indexColNames.stream().filter(s -> s != null).findAny().get();
+    switch (columnInfo.getFinalColumnType(sampleIndexColName)) {
+    case STRING:
+      return buildRepeatedAndFree(stringBuilders, repeatedColName, lengthColName, indexColNames,
+          (String) defaultValue);
+    case LONG:
+      return buildRepeatedAndFree(longBuilders, repeatedColName, lengthColName, indexColNames, (Long) defaultValue);
+    default:
+      return buildRepeatedAndFree(doubleBuilders, repeatedColName, lengthColName, indexColNames,
+          (Double) defaultValue);
+    }
+  }
+
+  private <T> RepeatedColumnShard buildRepeatedAndFree(Map<String, ColumnShardBuilder<T>> builders,
+      String repeatedColName, String lengthColName, List<String> indexColNames, T defaultValue) {
+    int numberOfRows = (int) (maxRow.get() - firstRowIdInShard + 1);
+    LongFunction<Long> lengthResolver = longBuilders.get(lengthColName).createValueByRowIdResolver(0L);
+    List<LongFunction<T>> indexResolvers = new ArrayList<>();
+    for (String indexColName : indexColNames) {
+      ColumnShardBuilder<T> indexBuilder = (indexColName != null) ? builders.remove(indexColName) : null;
+      indexResolvers.add((indexBuilder != null) ? indexBuilder.createValueByRowIdResolver(defaultValue) : null);
+    }
+
+    // the values column is addressed by value index, therefore it starts at "row" 0.
+    ColumnShardBuilder<T> valuesBuilder = new ColumnShardBuilder<>(columnShardFactory, columnPageFactory,
+        repeatedColName, 0L, dictionaryBuildMode);
+    long[] offsets = new long[numberOfRows + 1];
+    List<T> pendingValues = new ArrayList<>();
+    long pendingFirstValueIdx = 0L;
+    for (int rowIdx = 0; rowIdx < numberOfRows; rowIdx++) {
+      long rowId = firstRowIdInShard + rowIdx;
+      int length = (int) Math.min(lengthResolver.apply(rowId), indexResolvers.size());
+      for (int i = 0; i < length; i++) {
+        LongFunction<T> indexResolver = indexResolvers.get(i);
+        pendingValues.add((indexResolver != null) ? indexResolver.apply(rowId) : defaultValue);
+      }
+      offsets[rowIdx + 1] = offsets[rowIdx] + length;
+
+      if (pendingValues.size() >= ColumnShardBuilder.PROPOSAL_ROWS) {
+        valuesBuilder.addValues(pendingValues.size(), pendingValues::get, pendingFirstValueIdx);
+        pendingFirstValueIdx += pendingValues.size();
+        pendingValues.clear();
+      }
+    }
+    // default value at the very end.
+    pendingValues.add(defaultValue);
+    valuesBuilder.addValues(pendingValues.size(), pendingValues::get, pendingFirstValueIdx);
+
+    logger.trace("Built repeated column {} from {} index columns, containing {} values", repeatedColName,
+        indexColNames.size(), offsets[numberOfRows]);
+    return new RepeatedColumnShard(repeatedColName, firstRowIdInShard, offsets, valuesBuilder.build());
+  }
+
   /**
    * Returns an approximation of the memory consumption by all ColumnShardBuilders.
    * 
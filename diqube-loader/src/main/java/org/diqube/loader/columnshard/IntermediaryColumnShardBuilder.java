@@ -0,0 +1,451 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.columnshard;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.diqube.data.column.ColumnPage;
+import org.diqube.data.column.ColumnPageFactory;
+import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.StandardColumnShard;
+import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.types.dbl.dict.DoubleDictionary;
+import org.diqube.data.types.lng.array.BitEfficientLongArray;
+import org.diqube.data.types.lng.dict.ArrayCompressedLongDictionary;
+import org.diqube.data.types.lng.dict.ConstantLongDictionary;
+import org.diqube.data.types.lng.dict.LongDictionary;
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
+import org.diqube.data.types.str.dict.StringDictionary;
+import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.compression.CompressedDoubleDictionaryBuilder;
+import org.diqube.loader.compression.CompressedLongDictionaryBuilder;
+import org.diqube.loader.compression.CompressedStringDictionaryBuilder;
+
+/**
+ * Builds multiple versions of a {@link StandardColumnShard} whose values are provided incrementally. This is used for
+ * intermediary columns on the query master, whose values are updated each time new results arrive from the remotes.
+ * 
+ * <p>
+ * Values of arbitrary rows can be set and overwritten using {@link #withValues(Map)}. Each call to
+ * {@link #build(boolean)} creates an immutable snapshot of the current values. A snapshot shares all
+ * {@link ColumnPage}s with the previous snapshot whose rows did not change. The column dictionary is only re-built if
+ * the set of distinct values changed - in that case only the (small) column page dictionaries of those unchanged pages
+ * are re-created whose column value IDs actually changed, the arrays of the page values are still shared. Building a
+ * new version is therefore cheap if only few rows changed, in contrast to {@link SparseColumnShardBuilder} which needs
+ * to build the whole column again.
+ * 
+ * <p>
+ * Intermediary versions are typically used only for a short amount of time. Therefore the builder does not try to
+ * find the best compression for them, but uses the data structures that are cheapest to build. Only when building the
+ * final version, the dictionary and all pages that have not been compressed yet are compressed just like
+ * {@link ColumnShardBuilder} would do it.
+ * 
+ * <p>
+ * Just like with {@link SparseColumnShardBuilder}, rows whose value has not been set contain the default value (see
+ * {@link LoaderColumnInfo}) and the first row ID is 0.
+ * 
+ * <p>
+ * This class is not thread-safe, but the {@link ColumnShard}s it builds can be used concurrently.
+ *
+ * @author Bastian Gloeckle
+ */
+public class IntermediaryColumnShardBuilder {
+  private ColumnShardFactory columnShardFactory;
+  private ColumnPageFactory columnPageFactory;
+  private String name;
+
+  /** Type of the column, available as soon as the first value was provided. */
+  private ColumnType columnType;
+  private Class<?> valueClass;
+  private Object defaultValue;
+
+  /**
+   * The current values, indexed by page and index in the page. <code>null</code> entries denote rows that have the
+   * default value.
+   */
+  private List<Object[]> values = new ArrayList<>();
+  /** Number of rows that have a specific value, for all values that have been set. */
+  private NavigableMap<Object, Integer> valueCount = new TreeMap<>();
+  private long numberOfRows = 0;
+
+  /** Indices of those pages whose values changed since the last call to {@link #build(boolean)}. */
+  private BitSet changedPages = new BitSet();
+  /** <code>true</code> if the set of distinct values changed since the last call to {@link #build(boolean)}. */
+  private boolean distinctValuesChanged = true;
+
+  /** The column dictionary of the last built version. */
+  private Dictionary<?> lastDictionary = null;
+  /** <code>true</code> if {@link #lastDictionary} was compressed for a final version. */
+  private boolean lastDictionaryFinal = false;
+  /** Column value IDs of all values in {@link #lastDictionary}. */
+  private Map<Object, Long> lastColumnValueIds = null;
+  /** The pages of the last built version, indexed by page. */
+  private List<BuiltPage> lastPages = new ArrayList<>();
+
+  public IntermediaryColumnShardBuilder(ColumnShardFactory columnShardFactory, ColumnPageFactory columnPageFactory,
+      String name) {
+    this.columnShardFactory = columnShardFactory;
+    this.columnPageFactory = columnPageFactory;
+    this.name = name;
+  }
+
+  /**
+   * Set or overwrite the values of specific rows.
+   * 
+   * @param newValues
+   *          Map from row ID to value. All values need to be of the same type (Long, String or Double).
+   */
+  public IntermediaryColumnShardBuilder withValues(Map<Long, Object> newValues) {
+    for (Entry<Long, Object> valueEntry : newValues.entrySet()) {
+      long rowId = valueEntry.getKey();
+      Object value = valueEntry.getValue();
+      if (columnType == null)
+        initializeType(value);
+
+      int pageIdx = (int) (rowId / ColumnShardBuilder.PROPOSAL_ROWS);
+      int idxInPage = (int) (rowId % ColumnShardBuilder.PROPOSAL_ROWS);
+      Object[] pageValues = pageValuesForUpdate(pageIdx, idxInPage);
+
+      Object oldValue = pageValues[idxInPage];
+      if (value.equals(oldValue))
+        continue;
+
+      if (oldValue != null) {
+        int oldCount = valueCount.get(oldValue) - 1;
+        if (oldCount == 0) {
+          valueCount.remove(oldValue);
+          distinctValuesChanged = true;
+        } else
+          valueCount.put(oldValue, oldCount);
+      }
+      Integer count = valueCount.get(value);
+      if (count == null) {
+        valueCount.put(value, 1);
+        distinctValuesChanged = true;
+      } else
+        valueCount.put(value, count + 1);
+
+      pageValues[idxInPage] = value;
+      changedPages.set(pageIdx);
+      numberOfRows = Math.max(numberOfRows, rowId + 1);
+    }
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if no value has been provided yet.
+   */
+  public boolean isEmpty() {
+    return numberOfRows == 0;
+  }
+
+  /**
+   * Build a new version of the column containing all values that have been provided until now.
+   * 
+   * @param finalVersion
+   *          <code>true</code> if no more values will be provided and the built column is the final one. Only in that
+   *          case the data is compressed, intermediary versions use data structures that are cheap to build.
+   * @throws IllegalStateException
+   *           If no values have been provided.
+   */
+  public ColumnShard build(boolean finalVersion) throws IllegalStateException {
+    if (isEmpty())
+      throw new IllegalStateException("Cannot build column " + name + " as no values have been provided.");
+
+    boolean dictionaryRebuilt = false;
+    if (lastDictionary == null || distinctValuesChanged || (finalVersion && !lastDictionaryFinal)) {
+      buildDictionary(finalVersion);
+      dictionaryRebuilt = true;
+    }
+
+    NavigableMap<Long, ColumnPage> pages = new TreeMap<>();
+    int numberOfPages = (int) ((numberOfRows - 1) / ColumnShardBuilder.PROPOSAL_ROWS) + 1;
+    for (int pageIdx = 0; pageIdx < numberOfPages; pageIdx++) {
+      long firstRowId = ((long) pageIdx) * ColumnShardBuilder.PROPOSAL_ROWS;
+      int pageSize = (int) Math.min(ColumnShardBuilder.PROPOSAL_ROWS, numberOfRows - firstRowId);
+
+      BuiltPage builtPage = (pageIdx < lastPages.size()) ? lastPages.get(pageIdx) : null;
+      if (builtPage == null || changedPages.get(pageIdx) || builtPage.getPage().size() != pageSize
+          || (finalVersion && !builtPage.isFinal()))
+        builtPage = buildPage(pageIdx, firstRowId, pageSize, finalVersion);
+      else if (dictionaryRebuilt) {
+        // the values of the page did not change, but their column value IDs might have.
+        long[] columnValueIds = findColumnValueIds(builtPage.getSortedDistinctValues());
+        if (!Arrays.equals(columnValueIds, builtPage.getColumnValueIds()))
+          builtPage = adjustPageToNewDictionary(builtPage, columnValueIds, finalVersion);
+      }
+
+      if (pageIdx < lastPages.size())
+        lastPages.set(pageIdx, builtPage);
+      else
+        lastPages.add(builtPage);
+      pages.put(firstRowId, builtPage.getPage());
+    }
+
+    changedPages.clear();
+    distinctValuesChanged = false;
+
+    switch (columnType) {
+    case LONG:
+      return columnShardFactory.createStandardLongColumnShard(name, pages, (LongDictionary<?>) lastDictionary);
+    case STRING:
+      return columnShardFactory.createStandardStringColumnShard(name, pages, (StringDictionary<?>) lastDictionary);
+    default:
+      return columnShardFactory.createStandardDoubleColumnShard(name, pages, (DoubleDictionary<?>) lastDictionary);
+    }
+  }
+
+  private void initializeType(Object sampleValue) {
+    if (sampleValue instanceof Long) {
+      columnType = ColumnType.LONG;
+      defaultValue = LoaderColumnInfo.DEFAULT_LONG;
+    } else if (sampleValue instanceof String) {
+      columnType = ColumnType.STRING;
+      defaultValue = LoaderColumnInfo.DEFAULT_STRING;
+    } else if (sampleValue instanceof Double) {
+      columnType = ColumnType.DOUBLE;
+      defaultValue = LoaderColumnInfo.DEFAULT_DOUBLE;
+    } else
+      throw new IllegalArgumentException("Cannot build column of type " + sampleValue.getClass());
+    valueClass = sampleValue.getClass();
+  }
+
+  /**
+   * @return The array holding the values of the given page, large enough to hold the given index.
+   */
+  private Object[] pageValuesForUpdate(int pageIdx, int idxInPage) {
+    while (values.size() <= pageIdx)
+      values.add(new Object[0]);
+
+    Object[] res = values.get(pageIdx);
+    if (res.length <= idxInPage) {
+      res = Arrays.copyOf(res, Math.min(ColumnShardBuilder.PROPOSAL_ROWS, Math.max(16, 2 * (idxInPage + 1))));
+      values.set(pageIdx, res);
+    }
+    return res;
+  }
+
+  /**
+   * Build a new column dictionary containing all current values and set {@link #lastDictionary},
+   * {@link #lastDictionaryFinal} and {@link #lastColumnValueIds} accordingly.
+   */
+  private void buildDictionary(boolean finalVersion) {
+    NavigableSet<Object> sortedValues = new TreeSet<>(valueCount.keySet());
+    sortedValues.add(defaultValue);
+
+    Map<Object, Long> columnValueIds = new HashMap<>();
+    long nextId = 0;
+    for (Object value : sortedValues)
+      columnValueIds.put(value, nextId++);
+
+    switch (columnType) {
+    case LONG:
+      if (finalVersion) {
+        NavigableMap<Long, Long> longEntityMap = new TreeMap<>();
+        for (Object value : sortedValues)
+          longEntityMap.put((Long) value, columnValueIds.get(value));
+        lastDictionary = new CompressedLongDictionaryBuilder().withDictionaryName(name).fromEntityMap(longEntityMap)
+            .build().getLeft();
+      } else {
+        long[] sortedLongs = new long[sortedValues.size()];
+        int i = 0;
+        for (Object value : sortedValues)
+          sortedLongs[i++] = (Long) value;
+        lastDictionary = createUncompressedLongDictionary(sortedLongs);
+      }
+      break;
+    case STRING:
+      if (finalVersion) {
+        NavigableMap<String, Long> stringEntityMap = new TreeMap<>();
+        for (Object value : sortedValues)
+          stringEntityMap.put((String) value, columnValueIds.get(value));
+        lastDictionary = new CompressedStringDictionaryBuilder().fromEntityMap(stringEntityMap).build().getLeft();
+      } else {
+        // do not build a trie and compare sizes, but simply front code the values in a single pass.
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Iterable<String> sortedStrings = (Iterable) sortedValues;
+        try {
+          lastDictionary = FrontCodedStringDictionary.encode(sortedStrings);
+        } catch (IllegalArgumentException e) {
+          // a value cannot be front coded (unpaired surrogate), fall back to a trie which can hold any string.
+          NavigableMap<String, Long> stringEntityMap = new TreeMap<>();
+          for (String value : sortedStrings)
+            stringEntityMap.put(value, columnValueIds.get(value));
+          lastDictionary =
+              new CompressedStringDictionaryBuilder().fromEntityMap(stringEntityMap).buildTrieStringDictionary();
+        }
+      }
+      break;
+    default:
+      // there is no cheaper double dictionary than the FPC compressed one.
+      NavigableMap<Double, Long> doubleEntityMap = new TreeMap<>();
+      for (Object value : sortedValues)
+        doubleEntityMap.put((Double) value, columnValueIds.get(value));
+      lastDictionary = new CompressedDoubleDictionaryBuilder().fromEntityMap(doubleEntityMap).build().getLeft();
+      break;
+    }
+    lastDictionaryFinal = finalVersion;
+    lastColumnValueIds = columnValueIds;
+  }
+
+  /**
+   * Build a new {@link ColumnPage} from the current values.
+   */
+  private BuiltPage buildPage(int pageIdx, long firstRowId, int pageSize, boolean finalVersion) {
+    Object[] pageValues = values.get(pageIdx);
+
+    NavigableSet<Object> distinctValues = new TreeSet<>();
+    for (int i = 0; i < pageSize; i++)
+      distinctValues.add(valueAt(pageValues, i));
+
+    Object[] sortedDistinctValues = distinctValues.toArray((Object[]) Array.newInstance(valueClass, 0));
+
+    // Column page value IDs are assigned in the order of the values, which is the same order as the one of the column
+    // value IDs.
+    Map<Object, Long> columnPageValueIds = new HashMap<>();
+    for (int i = 0; i < sortedDistinctValues.length; i++)
+      columnPageValueIds.put(sortedDistinctValues[i], (long) i);
+
+    long[] columnPageValues = new long[pageSize];
+    for (int i = 0; i < pageSize; i++)
+      columnPageValues[i] = columnPageValueIds.get(valueAt(pageValues, i));
+
+    long[] columnValueIds = findColumnValueIds(sortedDistinctValues);
+    String pageName = name + "#" + firstRowId;
+
+    ColumnPage page;
+    if (finalVersion) {
+      NavigableMap<Long, Long> valueMap = new TreeMap<>();
+      for (int i = 0; i < columnValueIds.length; i++)
+        valueMap.put(columnValueIds[i], (long) i);
+
+      page = new ColumnPageBuilder(columnPageFactory).withFirstRowId(firstRowId).withValueMap(valueMap)
+          .withValues(columnPageValues).withColumnPageName(pageName).build();
+    } else
+      page = columnPageFactory.createDefaultColumnPage(createUncompressedLongDictionary(columnValueIds),
+          new BitEfficientLongArray(columnPageValues, false), firstRowId, pageName);
+
+    return new BuiltPage(page, sortedDistinctValues, columnValueIds, finalVersion);
+  }
+
+  /**
+   * Create a new {@link ColumnPage} for an unchanged page, whose Column Page Dictionary is adjusted to a new column
+   * dictionary. The values array of the page is re-used.
+   * 
+   * @param columnValueIds
+   *          The IDs of the sorted distinct values of the page in the new column dictionary.
+   */
+  private BuiltPage adjustPageToNewDictionary(BuiltPage builtPage, long[] columnValueIds, boolean finalVersion) {
+    ColumnPage oldPage = builtPage.getPage();
+    LongDictionary<?> columnPageDict;
+    if (finalVersion) {
+      NavigableMap<Long, Long> valueMap = new TreeMap<>();
+      for (int i = 0; i < columnValueIds.length; i++)
+        valueMap.put(columnValueIds[i], (long) i);
+      columnPageDict = new CompressedLongDictionaryBuilder().withDictionaryName(oldPage.getName())
+          .fromEntityMap(valueMap).build().getLeft();
+    } else
+      columnPageDict = createUncompressedLongDictionary(columnValueIds);
+
+    ColumnPage newPage = columnPageFactory.createDefaultColumnPage(columnPageDict, oldPage.getValues(),
+        oldPage.getFirstRowId(), oldPage.getName());
+    return new BuiltPage(newPage, builtPage.getSortedDistinctValues(), columnValueIds,
+        builtPage.isFinal() && finalVersion);
+  }
+
+  /**
+   * @return The column value IDs of the given values in {@link #lastDictionary}, in the same order.
+   */
+  private long[] findColumnValueIds(Object[] sortedDistinctValues) {
+    long[] res = new long[sortedDistinctValues.length];
+    for (int i = 0; i < res.length; i++)
+      res[i] = lastColumnValueIds.get(sortedDistinctValues[i]);
+    return res;
+  }
+
+  /**
+   * Create a {@link LongDictionary} for an intermediary version without trying to find the best compression.
+   * 
+   * @param sortedValues
+   *          The distinct values of the dictionary, sorted. The index in the array is the ID of the value.
+   */
+  private LongDictionary<?> createUncompressedLongDictionary(long[] sortedValues) {
+    if (sortedValues.length == 1)
+      return new ConstantLongDictionary(sortedValues[0]);
+    return new ArrayCompressedLongDictionary(new BitEfficientLongArray(sortedValues, true));
+  }
+
+  private Object valueAt(Object[] pageValues, int idx) {
+    if (idx >= pageValues.length || pageValues[idx] == null)
+      return defaultValue;
+    return pageValues[idx];
+  }
+
+  /**
+   * A {@link ColumnPage} that has been built, together with the sorted distinct values it contains and their column
+   * value IDs.
+   */
+  private static class BuiltPage {
+    private ColumnPage page;
+    private Object[] sortedDistinctValues;
+    private long[] columnValueIds;
+    private boolean isFinal;
+
+    BuiltPage(ColumnPage page, Object[] sortedDistinctValues, long[] columnValueIds, boolean isFinal) {
+      this.page = page;
+      this.sortedDistinctValues = sortedDistinctValues;
+      this.columnValueIds = columnValueIds;
+      this.isFinal = isFinal;
+    }
+
+    public ColumnPage getPage() {
+      return page;
+    }
+
+    public Object[] getSortedDistinctValues() {
+      return sortedDistinctValues;
+    }
+
+    public long[] getColumnValueIds() {
+      return columnValueIds;
+    }
+
+    /**
+     * @return <code>true</code> if the page was compressed for a final version.
+     */
+    public boolean isFinal() {
+      return isFinal;
+    }
+  }
+}
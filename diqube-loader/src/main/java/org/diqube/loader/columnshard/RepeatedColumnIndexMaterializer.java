@@ -0,0 +1,86 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.columnshard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import javax.inject.Inject;
+
+import org.diqube.context.AutoInstatiate;
+import org.diqube.data.column.ColumnPageFactory;
+import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.data.column.RepeatedColumnShard;
+import org.diqube.data.column.StandardColumnShard;
+import org.diqube.data.table.DefaultTableShard;
+import org.diqube.data.table.DefaultTableShard.RepeatedColumnMaterializer;
+import org.diqube.loader.columnshard.ColumnShardBuilder.DictionaryBuildMode;
+import org.diqube.name.RepeatedColumnNameGenerator;
+import org.diqube.util.PrimitiveUtils;
+
+/**
+ * Materializes the columns of single array indices of {@link RepeatedColumnShard}s (e.g. "a[3].b" of "a[*].b"), so
+ * {@link DefaultTableShard}s can provide these to code that works on per-index columns.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class RepeatedColumnIndexMaterializer implements RepeatedColumnMaterializer {
+  @Inject
+  private ColumnShardFactory columnShardFactory;
+
+  @Inject
+  private ColumnPageFactory columnPageFactory;
+
+  @Inject
+  private RepeatedColumnNameGenerator repeatedColNameGen;
+
+  @Override
+  public List<String> indexColumnNames(RepeatedColumnShard repeatedCol) {
+    int maxLength = repeatedCol.getMaxLength();
+    List<String> res = new ArrayList<>(maxLength);
+    for (int i = 0; i < maxLength; i++)
+      res.add(repeatedColNameGen.repeatedAtIndexOfPattern(repeatedCol.getName(), i));
+    return res;
+  }
+
+  @Override
+  public StandardColumnShard materialize(RepeatedColumnShard repeatedCol, int index, String colName) {
+    ColumnShardBuilder<Object> builder = new ColumnShardBuilder<>(columnShardFactory, columnPageFactory, colName,
+        repeatedCol.getFirstRowId(), DictionaryBuildMode.HASH);
+
+    long numberOfRows = repeatedCol.getNumberOfRows();
+    for (long chunkStart = 0; chunkStart < numberOfRows; chunkStart += ColumnShardBuilder.PROPOSAL_ROWS) {
+      int chunkLength = (int) Math.min(ColumnShardBuilder.PROPOSAL_ROWS, numberOfRows - chunkStart);
+      long chunkFirstRowId = repeatedCol.getFirstRowId() + chunkStart;
+
+      long[] rowIds = LongStream.range(chunkFirstRowId, chunkFirstRowId + chunkLength).toArray();
+      Long[] columnValueIds =
+          PrimitiveUtils.toBoxedArray(repeatedCol.resolveColumnValueIdsOfIndex(rowIds, index));
+
+      Object[] values = repeatedCol.getValues().getColumnShardDictionary().decompressValues(columnValueIds);
+      builder.addValues(values, chunkFirstRowId);
+    }
+
+    return builder.build();
+  }
+}
@@ -28,6 +28,8 @@ import org.diqube.data.types.lng.array.CompressedLongArray;
 import org.diqube.data.types.lng.array.ReferenceBasedLongArray;
 import org.diqube.data.types.lng.array.RunLengthLongArray;
 import org.diqube.data.types.lng.array.TransitiveExplorableCompressedLongArray.TransitiveCompressionRatioCalculator;
+import org.diqube.loader.util.LoadPhaseTimer;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +63,7 @@ public class CompressedLongArrayBuilder {
   }
 
   public CompressedLongArray<?> build() {
+    long compressionStart = LoadPhaseTimer.start();
     List<LongArrayCompressionStrategy> strategies = new ArrayList<>();
     for (Class<? extends LongArrayCompressionStrategy> strategyClass : strategyClasses)
       try {
@@ -94,6 +97,7 @@ public class CompressedLongArrayBuilder {
     } finally {
       for (LongArrayCompressionStrategy strat : strategies)
         strat.clear();
+      LoadPhaseTimer.end(LoadPhase.COMPRESSION, compressionStart);
     }
   }
 
@@ -20,6 +20,8 @@
  */
 package org.diqube.loader.compression;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,11 +36,13 @@ import java.util.stream.Stream;
 import org.apache.thrift.TBase;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
 import org.diqube.data.types.str.dict.ParentNode;
 import org.diqube.data.types.str.dict.StringDictionary;
 import org.diqube.data.types.str.dict.TerminalNode;
 import org.diqube.data.types.str.dict.TrieNode;
 import org.diqube.data.types.str.dict.TrieStringDictionary;
+import org.diqube.util.MemorySizeUtil;
 import org.diqube.util.Pair;
 import org.diqube.util.SortedSetUnionStreamSupplier;
 
@@ -46,6 +50,11 @@ import com.google.common.base.Strings;
 
 /**
  * Builds a compressed string dictionary out of a map that contains values and temporary ids.
+ * 
+ * <p>
+ * Estimates the sizes of both, a {@link TrieStringDictionary} and a {@link FrontCodedStringDictionary}, and builds
+ * only the one that is smaller. Values that cannot be represented in a {@link FrontCodedStringDictionary} (see
+ * {@link FrontCodedStringDictionary#encode(Iterable)}) are always stored in a {@link TrieStringDictionary}.
  *
  * TODO #83: Extract super-interface.
  *
@@ -80,11 +89,39 @@ public class CompressedStringDictionaryBuilder {
         idMap.put(entityMap.get(key), curId);
     }
 
+    long frontCodedSize;
+    try {
+      frontCodedSize = FrontCodedStringDictionary.calculateApproximateSizeInBytes(keys);
+    } catch (IllegalArgumentException e) {
+      // at least one value cannot be front coded, the trie though is able to hold any string.
+      frontCodedSize = Long.MAX_VALUE;
+    }
+
+    // build only the smaller one of trie and front coded dict. Both assign the same IDs to values.
+    StringDictionary<?> res;
+    if (frontCodedSize < calculateApproximateTrieSizeInBytes())
+      res = FrontCodedStringDictionary.encode(keys);
+    else
+      res = buildTrieStringDictionary();
+
+    return new Pair<>(res, idMap);
+  }
+
+  /**
+   * Build a {@link TrieStringDictionary} of the values, regardless of whether another dictionary implementation would
+   * be smaller.
+   * 
+   * <p>
+   * The IDs in the returned dictionary are the same as the ones that would be assigned by {@link #build()}.
+   */
+  public TrieStringDictionary buildTrieStringDictionary() {
+    SortedSet<String> keys = (SortedSet<String>) entityMap.keySet();
+
     ConstructionParentNode root = new ConstructionParentNode();
     ConstructionParentNode curNode = root;
     String curNodePrefix = "";
 
-    newId = 0;
+    long newId = 0;
     // note that the keys are traversed in sorted order already!
     for (String stringValue : keys) {
 
@@ -150,9 +187,59 @@ public class CompressedStringDictionaryBuilder {
       }
     }
 
-    TrieStringDictionary res = new TrieStringDictionary(root.constructFinalNode(), entityMap.firstKey(),
-        entityMap.lastKey(), entityMap.size() - 1);
-    return new Pair<>(res, idMap);
+    return new TrieStringDictionary(root.constructFinalNode(), entityMap.firstKey(), entityMap.lastKey(),
+        entityMap.size() - 1);
+  }
+
+  /**
+   * Calculates the approximate size of the {@link TrieStringDictionary} that {@link #buildTrieStringDictionary()} would
+   * build, without actually building it.
+   * 
+   * <p>
+   * The structure of the trie is derived from the common prefixes of each two neighbouring (sorted) values: A stack
+   * holds the nodes on the path from the root to the last value; all nodes that are deeper than the common prefix of
+   * the last and the next value are complete and can be sized.
+   * 
+   * @return The value {@link TrieStringDictionary#calculateApproximateSizeInBytes()} would return on the result of
+   *         {@link #buildTrieStringDictionary()}.
+   */
+  /* package */ long calculateApproximateTrieSizeInBytes() {
+    Deque<EstimationNode> stack = new ArrayDeque<>();
+    stack.push(new EstimationNode(0, false));
+
+    String previous = null;
+    for (String value : entityMap.keySet()) {
+      if (previous != null)
+        // use the same prefix calculation as buildTrieStringDictionary, which does not split surrogate pairs.
+        completeNodes(stack, Strings.commonPrefix(previous, value).length());
+      stack.push(new EstimationNode(value.length(), true));
+      previous = value;
+    }
+    completeNodes(stack, 0);
+
+    return MemorySizeUtil.objectSize(8, 3) + // TrieStringDictionary
+        MemorySizeUtil.stringSize(entityMap.firstKey()) + //
+        MemorySizeUtil.stringSize(entityMap.lastKey()) + //
+        stack.pop().calculateApproximateSizeInBytes();
+  }
+
+  /**
+   * Pops all nodes from the stack that will not receive any more children, given that the next value has a common
+   * prefix of the given length with the previous value. Each popped node is added as child to its parent, which is
+   * created if it does not exist yet.
+   */
+  private void completeNodes(Deque<EstimationNode> stack, int commonPrefixLength) {
+    while (stack.size() > 1 && (stack.peek().depth > commonPrefixLength
+        || (stack.peek().terminal && stack.peek().depth >= commonPrefixLength))) {
+      EstimationNode node = stack.pop();
+      EstimationNode parent = stack.peek();
+      if (parent.depth < commonPrefixLength) {
+        // node shares a prefix with the next value that is longer than its current parents prefix: new parent node.
+        parent = new EstimationNode(commonPrefixLength, false);
+        stack.push(parent);
+      }
+      parent.addChild(node.depth - parent.depth, node.calculateApproximateSizeInBytes());
+    }
   }
 
   private String removePrefix(String orig, String prefix) {
@@ -161,6 +248,41 @@ public class CompressedStringDictionaryBuilder {
     return orig.substring(prefix.length(), orig.length()).intern();
   }
 
+  /**
+   * A node of the trie whose size is estimated in {@link #calculateApproximateTrieSizeInBytes()}. Represents either a
+   * {@link TerminalNode} or a {@link ParentNode}.
+   */
+  private static class EstimationNode {
+    /** Length of the prefix of the values below this node. */
+    private int depth;
+    private boolean terminal;
+    private int numberOfChildren = 0;
+    private long childSize = 0;
+
+    /* package */ EstimationNode(int depth, boolean terminal) {
+      this.depth = depth;
+      this.terminal = terminal;
+    }
+
+    /* package */ void addChild(int edgeLength, long size) {
+      numberOfChildren++;
+      childSize += MemorySizeUtil.charArraySize(edgeLength) + size;
+    }
+
+    /**
+     * @return Same as {@link TerminalNode#calculateApproximateSizeInBytes()} or
+     *         {@link ParentNode#calculateApproximateSizeInBytes()}.
+     */
+    /* package */ long calculateApproximateSizeInBytes() {
+      if (terminal)
+        return MemorySizeUtil.objectSize(8, 0);
+      return MemorySizeUtil.objectSize(2 * 8, 2) + //
+          MemorySizeUtil.referenceArraySize(numberOfChildren) + //
+          MemorySizeUtil.referenceArraySize(numberOfChildren) + //
+          childSize;
+    }
+  }
+
   /**
    * Just like a {@link ParentNode}, but with additional information that is required while building the trie.
    * 
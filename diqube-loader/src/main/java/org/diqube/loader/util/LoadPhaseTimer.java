@@ -0,0 +1,166 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the time spent in the single phases of loading data into a table shard or serializing/deserializing one.
+ * 
+ * <p>
+ * Measuring is disabled by default. It is enabled as soon as a {@link LoadPhaseListener} is installed using
+ * {@link #setListener(LoadPhaseListener)} - this is typically done by profiling tools only. If no listener is
+ * installed, no timestamps are taken at all.
+ * 
+ * <p>
+ * Phases are measured on each thread separately: if a phase is executed on multiple threads in parallel, the listener
+ * is informed about the time spent on each of those threads. Note that phases may be nested: a
+ * {@link LoadPhase#COMPRESSION} may be executed inside a {@link LoadPhase#DICTIONARY}, for example. The time spent in a
+ * nested phase is reported for the nested phase only and is not counted to the outer phase, too - the times reported
+ * for the phases therefore do not overlap and can be summed up. For this to work, {@link #start()} and
+ * {@link #end(LoadPhase, long)} of a phase have to be called on the same thread.
+ *
+ * @author Bastian Gloeckle
+ */
+public class LoadPhaseTimer {
+  public static enum LoadPhase {
+    /** Parsing the input into single rows. */
+    PARSE,
+    /** Transposing batches of parsed rows into the column builders. */
+    TRANSPOSE,
+    /** Building the column dictionaries (including sorting the values, excluding {@link #COMPRESSION}). */
+    DICTIONARY,
+    /** Compressing long arrays (column pages, long dictionaries). */
+    COMPRESSION,
+    /** Deserializing table shards from .diqube files. */
+    DESERIALIZATION,
+    /** Serializing table shards into .diqube files. */
+    SERIALIZATION
+  }
+
+  private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+  private static volatile LoadPhaseListener listener = null;
+
+  private static LongSupplier nanoTime = System::nanoTime;
+
+  /** The phases currently running on the current thread, innermost first. */
+  private static final ThreadLocal<Deque<RunningPhase>> runningPhases = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private LoadPhaseTimer() {
+    // utility class.
+  }
+
+  /**
+   * @return A start timestamp to be passed to {@link #end(LoadPhase, long)} when the phase is completed.
+   */
+  public static long start() {
+    if (listener == null)
+      return NOT_MEASURED;
+    long startNanos = nanoTime.getAsLong();
+    runningPhases.get().push(new RunningPhase(startNanos));
+    return startNanos;
+  }
+
+  /**
+   * Informs the installed {@link LoadPhaseListener} (if any) about a completed phase. The time spent in phases nested
+   * in this one is not included.
+   * 
+   * @param startNanos
+   *          The value returned by {@link #start()} when the phase was started.
+   */
+  public static void end(LoadPhase phase, long startNanos) {
+    if (startNanos == NOT_MEASURED)
+      return;
+
+    long nanos = nanoTime.getAsLong() - startNanos;
+
+    Deque<RunningPhase> running = runningPhases.get();
+    // remove our phase and any nested phases that were not ended (e.g. because an exception was thrown).
+    RunningPhase ourPhase;
+    do {
+      ourPhase = running.poll();
+    } while (ourPhase != null && ourPhase.getStartNanos() != startNanos);
+
+    RunningPhase outerPhase = running.peek();
+    if (outerPhase != null)
+      outerPhase.addNestedNanos(nanos);
+
+    LoadPhaseListener l = listener;
+    if (l != null)
+      l.phaseExecuted(phase, (ourPhase != null) ? nanos - ourPhase.getNestedNanos() : nanos);
+  }
+
+  /**
+   * Install a listener that is informed about all executed phases. Pass <code>null</code> to disable measuring.
+   */
+  public static void setListener(LoadPhaseListener listener) {
+    LoadPhaseTimer.listener = listener;
+  }
+
+  public static LoadPhaseListener getListener() {
+    return listener;
+  }
+
+  /** for tests */
+  /* package */ static void setNanoTime(LongSupplier nanoTime) {
+    LoadPhaseTimer.nanoTime = nanoTime;
+  }
+
+  /**
+   * A phase that has been started but not ended yet on a specific thread.
+   */
+  private static class RunningPhase {
+    private long startNanos;
+    /** Time spent in phases that were executed nested in this phase. */
+    private long nestedNanos = 0;
+
+    public RunningPhase(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    public long getStartNanos() {
+      return startNanos;
+    }
+
+    public long getNestedNanos() {
+      return nestedNanos;
+    }
+
+    public void addNestedNanos(long nanos) {
+      nestedNanos += nanos;
+    }
+  }
+
+  /**
+   * Listener that is informed about each executed {@link LoadPhase}. Might be called concurrently from multiple
+   * threads.
+   */
+  public static interface LoadPhaseListener {
+    /**
+     * @param nanos
+     *          Time spent executing the phase, in nanoseconds.
+     */
+    public void phaseExecuted(LoadPhase phase, long nanos);
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.util;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.diqube.loader.LoadException;
+import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.columnshard.ColumnShardBuilderManager;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
+import org.diqube.util.exception.WrappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper for loading row-wise input in parallel directly into columnar, typed buffers ({@link TypedColumnBatch}) and
+ * feeding those into a {@link ColumnShardBuilderManager}.
+ * 
+ * <p>
+ * Each thread that works on the input stream fills its own {@link TypedColumnBatch}. As soon as that is full, it is
+ * flushed to the {@link ColumnShardBuilderManager} and re-used. Therefore no intermediary row-wise representation of
+ * the values is needed.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ParallelTypedColumnLoadHelper {
+  private static final Logger logger = LoggerFactory.getLogger(ParallelTypedColumnLoadHelper.class);
+
+  private LoaderColumnInfo columnInfo;
+  private ColumnShardBuilderManager columnBuilderManager;
+  private String[] colNames;
+  private int batchSize;
+
+  /**
+   * @param columnInfo
+   *          Column Info about the columns that are being created.
+   * @param columnBuilderManager
+   *          The target {@link ColumnShardBuilderManager} where the values of the columns should be put into.
+   * @param colNames
+   *          Names of the columns. The index of a column in this array is the column index that is used when setting
+   *          values in {@link TypedColumnBatch}.
+   * @param batchSize
+   *          Number of rows each {@link TypedColumnBatch} should hold.
+   */
+  public ParallelTypedColumnLoadHelper(LoaderColumnInfo columnInfo, ColumnShardBuilderManager columnBuilderManager,
+      String[] colNames, int batchSize) {
+    this.columnInfo = columnInfo;
+    this.columnBuilderManager = columnBuilderManager;
+    this.colNames = colNames;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Parse all elements of the given input stream using the given {@link RowParser} and add the results to the
+   * {@link ColumnShardBuilderManager}.
+   * 
+   * <p>
+   * Each element of the input stream is parsed into one row. The order in which the rows receive their row IDs is
+   * undefined.
+   * 
+   * @param firstRowId
+   *          the first row ID that should be given to the table shard being created.
+   * @param input
+   *          The input stream, usually a parallel one.
+   * @param rowParser
+   *          Parses a single element of the input stream.
+   * @throws LoadException
+   *           If anything goes wrong.
+   */
+  public <T> void load(long firstRowId, Stream<T> input, RowParser<T> rowParser) throws LoadException {
+    AtomicLong nextRowId = new AtomicLong(firstRowId);
+    ConcurrentLinkedDeque<TypedColumnBatch> allBatches = new ConcurrentLinkedDeque<>();
+    ThreadLocal<TypedColumnBatch> threadBatch = ThreadLocal.withInitial(() -> {
+      TypedColumnBatch res = new TypedColumnBatch(columnInfo, colNames, batchSize);
+      allBatches.add(res);
+      return res;
+    });
+
+    try {
+      input.forEach(element -> {
+        TypedColumnBatch batch = threadBatch.get();
+        long parseStart = LoadPhaseTimer.start();
+        try {
+          rowParser.parseRow(element, batch, batch.nextRow());
+        } catch (LoadException e) {
+          throw new WrappingException(e);
+        } catch (RuntimeException e) {
+          throw new WrappingException(new LoadException("Could not parse input: " + e.getMessage(), e));
+        } finally {
+          LoadPhaseTimer.end(LoadPhase.PARSE, parseStart);
+        }
+
+        if (batch.isFull())
+          flush(batch, nextRowId);
+      });
+    } catch (WrappingException e) {
+      // the exception might have been re-wrapped when being passed on from a ForkJoin worker thread.
+      Throwable t = e;
+      while (t instanceof WrappingException)
+        t = ((WrappingException) t).getWrappedException();
+      throw (LoadException) t;
+    }
+
+    // flush the remaining rows of all threads.
+    for (TypedColumnBatch batch : allBatches)
+      flush(batch, nextRowId);
+
+    logger.trace("Loaded {} rows using {} batches.", nextRowId.get() - firstRowId, allBatches.size());
+  }
+
+  private void flush(TypedColumnBatch batch, AtomicLong nextRowId) {
+    if (batch.size() == 0)
+      return;
+    long transposeStart = LoadPhaseTimer.start();
+    long batchFirstRowId = nextRowId.getAndAdd(batch.size());
+    batch.flush(columnBuilderManager, batchFirstRowId);
+    batch.reset();
+    LoadPhaseTimer.end(LoadPhase.TRANSPOSE, transposeStart);
+  }
+
+  /**
+   * Parses a single element of the input into a row of a {@link TypedColumnBatch}.
+   */
+  public static interface RowParser<T> {
+    /**
+     * Parse the given input and store its values in the given row of the target batch.
+     */
+    public void parseRow(T input, TypedColumnBatch target, int row) throws LoadException;
+  }
+}
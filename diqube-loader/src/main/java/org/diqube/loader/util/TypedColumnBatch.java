@@ -0,0 +1,228 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.util;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.columnshard.ColumnShardBuilderManager;
+
+/**
+ * A batch of rows that is held in columnar format, where the values of each column are stored in a typed buffer
+ * according to the {@link ColumnType} defined in {@link LoaderColumnInfo}.
+ * 
+ * <p>
+ * Parsers write the values of the rows they parse directly into the buffers of this batch (long[] for
+ * {@link ColumnType#LONG}, double[] for {@link ColumnType#DOUBLE} and String[] for {@link ColumnType#STRING}). As soon
+ * as the batch is full, it can be {@link #flush(ColumnShardBuilderManager, long) flushed} into a
+ * {@link ColumnShardBuilderManager} and be {@link #reset() reset} to be re-used for the next rows. This way no
+ * intermediary objects are needed per row.
+ * 
+ * <p>
+ * Columns that have a custom transformation function (see
+ * {@link LoaderColumnInfo#registerCustomTransformationFunc(String, ColumnType, Function)}) receive the raw String
+ * values, the transformation function is then applied when flushing.
+ * 
+ * <p>
+ * Rows that do not receive a value for a column will contain the default value of that column type (see
+ * {@link LoaderColumnInfo#DEFAULT_LONG} etc.).
+ * 
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Bastian Gloeckle
+ */
+public class TypedColumnBatch {
+  private String[] colNames;
+  private ColumnType[] colTypes;
+  private Function<String[], Object[]>[] customTransformFuncs;
+
+  private long[][] longValues;
+  private double[][] doubleValues;
+  private String[][] stringValues;
+
+  private int capacity;
+  private int size = 0;
+
+  /**
+   * @param columnInfo
+   *          Information about the types of the columns.
+   * @param colNames
+   *          The names of the columns. The index of a column in this array is the column index used in the setter
+   *          methods of this class.
+   * @param capacity
+   *          Maximum number of rows this batch can hold.
+   */
+  @SuppressWarnings("unchecked")
+  public TypedColumnBatch(LoaderColumnInfo columnInfo, String[] colNames, int capacity) {
+    this.colNames = colNames;
+    this.capacity = capacity;
+    colTypes = new ColumnType[colNames.length];
+    customTransformFuncs = new Function[colNames.length];
+    longValues = new long[colNames.length][];
+    doubleValues = new double[colNames.length][];
+    stringValues = new String[colNames.length][];
+
+    for (int col = 0; col < colNames.length; col++) {
+      colTypes[col] = columnInfo.getFinalColumnType(colNames[col]);
+      customTransformFuncs[col] = columnInfo.getCustomTransformFunc(colNames[col]);
+
+      if (customTransformFuncs[col] != null) {
+        stringValues[col] = new String[capacity];
+        continue;
+      }
+
+      switch (colTypes[col]) {
+      case LONG:
+        longValues[col] = new long[capacity];
+        break;
+      case DOUBLE:
+        doubleValues[col] = new double[capacity];
+        break;
+      case STRING:
+        stringValues[col] = new String[capacity];
+        break;
+      }
+    }
+
+    reset();
+  }
+
+  /**
+   * Start a new row in this batch.
+   * 
+   * @return The index of the new row which can be used in the setter methods.
+   * @throws IllegalStateException
+   *           If the batch is full already.
+   */
+  public int nextRow() throws IllegalStateException {
+    if (size == capacity)
+      throw new IllegalStateException("Batch is full.");
+    return size++;
+  }
+
+  /**
+   * @return <code>true</code> if no more rows can be added to this batch.
+   */
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * @return Number of rows in this batch.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Set a long value, it is converted if the column has a different type.
+   */
+  public void setLong(int col, int row, long value) {
+    if (longValues[col] != null)
+      longValues[col][row] = value;
+    else if (doubleValues[col] != null)
+      doubleValues[col][row] = value;
+    else
+      stringValues[col][row] = Long.toString(value);
+  }
+
+  /**
+   * Set a double value, it is converted if the column has a different type.
+   * 
+   * @throws NumberFormatException
+   *           If the column is of type {@link ColumnType#LONG}.
+   */
+  public void setDouble(int col, int row, double value) throws NumberFormatException {
+    if (doubleValues[col] != null)
+      doubleValues[col][row] = value;
+    else if (stringValues[col] != null)
+      stringValues[col][row] = Double.toString(value);
+    else
+      throw new NumberFormatException(
+          "Cannot store double value " + value + " in column '" + colNames[col] + "' of type " + colTypes[col]);
+  }
+
+  /**
+   * Set a raw String value, it is parsed if the column has a different type.
+   * 
+   * @throws NumberFormatException
+   *           If the value cannot be parsed.
+   */
+  public void setString(int col, int row, String value) throws NumberFormatException {
+    if (customTransformFuncs[col] != null)
+      stringValues[col][row] = value;
+    else if (stringValues[col] != null)
+      stringValues[col][row] = (value != null) ? value : LoaderColumnInfo.DEFAULT_STRING;
+    else if (longValues[col] != null) {
+      if (value != null && !value.isEmpty())
+        longValues[col][row] = Long.parseLong(value);
+    } else {
+      if (value != null && !value.isEmpty())
+        doubleValues[col][row] = Double.parseDouble(value);
+    }
+  }
+
+  /**
+   * Adds all values of this batch to the given {@link ColumnShardBuilderManager}.
+   * 
+   * <p>
+   * This does not {@link #reset()} the batch.
+   * 
+   * @param firstRowId
+   *          The row ID the first row of this batch should receive.
+   */
+  public void flush(ColumnShardBuilderManager columnBuilderManager, long firstRowId) {
+    if (size == 0)
+      return;
+
+    for (int col = 0; col < colNames.length; col++) {
+      if (customTransformFuncs[col] != null) {
+        columnBuilderManager.addValues(colNames[col],
+            customTransformFuncs[col].apply(Arrays.copyOf(stringValues[col], size)), firstRowId);
+      } else if (longValues[col] != null)
+        columnBuilderManager.addValues(colNames[col], longValues[col], size, firstRowId);
+      else if (doubleValues[col] != null)
+        columnBuilderManager.addValues(colNames[col], doubleValues[col], size, firstRowId);
+      else
+        columnBuilderManager.addValues(colNames[col], stringValues[col], size, firstRowId);
+    }
+  }
+
+  /**
+   * Removes all rows from this batch and resets the buffers to the default values.
+   */
+  public void reset() {
+    for (int col = 0; col < colNames.length; col++) {
+      if (customTransformFuncs[col] != null)
+        Arrays.fill(stringValues[col], null);
+      else if (longValues[col] != null)
+        Arrays.fill(longValues[col], LoaderColumnInfo.DEFAULT_LONG);
+      else if (doubleValues[col] != null)
+        Arrays.fill(doubleValues[col], LoaderColumnInfo.DEFAULT_DOUBLE);
+      else
+        Arrays.fill(stringValues[col], LoaderColumnInfo.DEFAULT_STRING);
+    }
+    size = 0;
+  }
+}
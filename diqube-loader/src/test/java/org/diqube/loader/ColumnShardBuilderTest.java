@@ -20,19 +20,24 @@
  */
 package org.diqube.loader;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnPageFactory;
 import org.diqube.data.column.ColumnShard;
 import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.dictionary.Dictionary;
+import org.diqube.data.types.lng.LongStandardColumnShard;
 import org.diqube.data.types.str.DefaultStringStandardColumnShard;
 import org.diqube.data.types.str.StringStandardColumnShard;
 import org.diqube.data.types.str.dict.StringDictionary;
 import org.diqube.loader.columnshard.ColumnShardBuilder;
+import org.diqube.loader.columnshard.ColumnShardBuilder.DictionaryBuildMode;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -157,6 +162,80 @@ public class ColumnShardBuilderTest {
         "Expected correct number of values to be stored.");
   }
 
+  @Test
+  public void hashDictionaryBuildModeEqualsSorted() {
+    // GIVEN
+    // values with duplicates which are not ordered, spread over two pages and added in two chunks.
+    String[] valueArray = new String[ColumnShardBuilder.PROPOSAL_ROWS + 100];
+    for (int i = 0; i < valueArray.length; i++)
+      valueArray[i] = "s" + Integer.toString((i * 7919) % 1000);
+    ColumnShardBuilder<String> hashBuilder =
+        new ColumnShardBuilder<String>(dataContext.getBean(ColumnShardFactory.class),
+            dataContext.getBean(ColumnPageFactory.class), TEST_COL_NAME, 0L, DictionaryBuildMode.HASH);
+    for (ColumnShardBuilder<String> b : Arrays.asList(builder, hashBuilder)) {
+      b.addValues(Arrays.copyOfRange(valueArray, 100, valueArray.length), 100L);
+      b.addValues(Arrays.copyOfRange(valueArray, 0, 100), 0L);
+    }
+
+    // WHEN
+    StringStandardColumnShard sortedShard = (StringStandardColumnShard) builder.build();
+    StringStandardColumnShard hashShard = (StringStandardColumnShard) hashBuilder.build();
+
+    // THEN
+    Assert.assertEquals(hashShard.getColumnShardDictionary().getMaxId(),
+        sortedShard.getColumnShardDictionary().getMaxId(), "Expected same number of entries in dictionaries");
+    for (long id = 0; id <= sortedShard.getColumnShardDictionary().getMaxId(); id++)
+      Assert.assertEquals(hashShard.getColumnShardDictionary().decompressValue(id),
+          sortedShard.getColumnShardDictionary().decompressValue(id), "Expected same value for ID " + id);
+
+    Assert.assertEquals(hashShard.getPages().keySet(), sortedShard.getPages().keySet(), "Expected same pages");
+    Assert.assertEquals(resolveColumnValueIds(hashShard), resolveColumnValueIds(sortedShard),
+        "Expected same column value IDs in all rows");
+    Assert.assertEquals(resolveColumnValueIds(hashShard).size(), valueArray.length, "Expected all rows to be built");
+  }
+
+  @Test
+  public void primitiveLongValuesEqualBoxed() {
+    // GIVEN
+    // values with duplicates which are not ordered, spread over two pages. Array is longer than the values added.
+    int length = ColumnShardBuilder.PROPOSAL_ROWS + 100;
+    long[] valueArray = new long[length + 10];
+    for (int i = 0; i < valueArray.length; i++)
+      valueArray[i] = ((i * 7919L) % 1000L) - 500L;
+    Long[] boxedValueArray = new Long[length];
+    for (int i = 0; i < length; i++)
+      boxedValueArray[i] = valueArray[i];
+    ColumnShardBuilder<Long> boxedBuilder = new ColumnShardBuilder<Long>(dataContext.getBean(ColumnShardFactory.class),
+        dataContext.getBean(ColumnPageFactory.class), TEST_COL_NAME, 0L);
+    ColumnShardBuilder<Long> primitiveBuilder =
+        new ColumnShardBuilder<Long>(dataContext.getBean(ColumnShardFactory.class),
+            dataContext.getBean(ColumnPageFactory.class), TEST_COL_NAME, 0L, DictionaryBuildMode.HASH);
+    boxedBuilder.addValues(boxedValueArray, 0L);
+
+    // WHEN
+    primitiveBuilder.addValues(valueArray, length, 0L);
+
+    // THEN
+    LongStandardColumnShard boxedShard = (LongStandardColumnShard) boxedBuilder.build();
+    LongStandardColumnShard primitiveShard = (LongStandardColumnShard) primitiveBuilder.build();
+    Assert.assertEquals(primitiveShard.getColumnShardDictionary().getMaxId(),
+        boxedShard.getColumnShardDictionary().getMaxId(), "Expected same number of entries in dictionaries");
+    for (long id = 0; id <= boxedShard.getColumnShardDictionary().getMaxId(); id++)
+      Assert.assertEquals(primitiveShard.getColumnShardDictionary().decompressValue(id),
+          boxedShard.getColumnShardDictionary().decompressValue(id), "Expected same value for ID " + id);
+    Assert.assertEquals(resolveColumnValueIds(primitiveShard), resolveColumnValueIds(boxedShard),
+        "Expected same column value IDs in all rows");
+    Assert.assertEquals(resolveColumnValueIds(primitiveShard).size(), length, "Expected all rows to be built");
+  }
+
+  private static List<Long> resolveColumnValueIds(StandardColumnShard shard) {
+    List<Long> res = new ArrayList<>();
+    for (ColumnPage page : shard.getPages().values())
+      for (long pageValueId : page.getValues().decompressedArray())
+        res.add(page.getColumnPageDict().decompressValue(pageValueId));
+    return res;
+  }
+
   private static Set<String> resolveValues(ColumnPage page, Dictionary<?> columnDictionary) {
     Set<String> res = new HashSet<String>();
     StringDictionary<?> dict = (StringDictionary<?>) columnDictionary;
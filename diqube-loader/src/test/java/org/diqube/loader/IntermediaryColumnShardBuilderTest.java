@@ -0,0 +1,200 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.diqube.data.column.ColumnPage;
+import org.diqube.data.column.ColumnPageFactory;
+import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.data.column.StandardColumnShard;
+import org.diqube.loader.columnshard.ColumnShardBuilder;
+import org.diqube.loader.columnshard.IntermediaryColumnShardBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link IntermediaryColumnShardBuilder}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class IntermediaryColumnShardBuilderTest {
+  private static final String TEST_COL_NAME = "testCol";
+
+  private IntermediaryColumnShardBuilder builder;
+
+  private AnnotationConfigApplicationContext dataContext;
+
+  @BeforeMethod
+  public void setUp() {
+    dataContext = new AnnotationConfigApplicationContext();
+    dataContext.scan("org.diqube.data");
+    dataContext.refresh();
+    builder = new IntermediaryColumnShardBuilder(dataContext.getBean(ColumnShardFactory.class),
+        dataContext.getBean(ColumnPageFactory.class), TEST_COL_NAME);
+  }
+
+  @AfterMethod
+  public void shutDown() {
+    dataContext.close();
+  }
+
+  @Test
+  public void sparseValuesAreFilledWithDefault() {
+    // GIVEN
+    Map<Long, Object> values = new HashMap<>();
+    values.put(1L, 10L);
+    values.put(3L, 30L);
+    builder.withValues(values);
+
+    // WHEN
+    StandardColumnShard shard = (StandardColumnShard) builder.build(false);
+
+    // THEN
+    Assert.assertEquals(shard.getNumberOfRowsInColumnShard(), 4L, "Expected correct number of rows");
+    Assert.assertEquals(resolveValue(shard, 0L), LoaderColumnInfo.DEFAULT_LONG, "Expected default value");
+    Assert.assertEquals(resolveValue(shard, 1L), 10L, "Expected correct value");
+    Assert.assertEquals(resolveValue(shard, 2L), LoaderColumnInfo.DEFAULT_LONG, "Expected default value");
+    Assert.assertEquals(resolveValue(shard, 3L), 30L, "Expected correct value");
+  }
+
+  @Test
+  public void unchangedPagesAreShared() {
+    // GIVEN
+    Map<Long, Object> values = new HashMap<>();
+    values.put(0L, 10L);
+    values.put((long) ColumnShardBuilder.PROPOSAL_ROWS, 20L);
+    values.put(2L * ColumnShardBuilder.PROPOSAL_ROWS, 30L);
+    builder.withValues(values);
+    StandardColumnShard firstShard = (StandardColumnShard) builder.build(false);
+
+    // WHEN
+    // change a value in the first page, using a value that is available in the dictionary already.
+    values.clear();
+    values.put(1L, 20L);
+    builder.withValues(values);
+    StandardColumnShard secondShard = (StandardColumnShard) builder.build(false);
+
+    // THEN
+    Assert.assertSame(secondShard.getPages().get((long) ColumnShardBuilder.PROPOSAL_ROWS),
+        firstShard.getPages().get((long) ColumnShardBuilder.PROPOSAL_ROWS), "Expected unchanged page to be shared");
+    Assert.assertNotSame(secondShard.getPages().get(0L), firstShard.getPages().get(0L),
+        "Expected changed page to be re-built");
+    Assert.assertSame(secondShard.getColumnShardDictionary(), firstShard.getColumnShardDictionary(),
+        "Expected dictionary to be shared");
+    Assert.assertEquals(resolveValue(secondShard, 1L), 20L, "Expected correct value in new version");
+    Assert.assertEquals(resolveValue(firstShard, 1L), LoaderColumnInfo.DEFAULT_LONG,
+        "Expected old version to be unchanged");
+  }
+
+  @Test
+  public void newDictionaryValuesAdjustUnchangedPages() {
+    // GIVEN
+    Map<Long, Object> values = new HashMap<>();
+    values.put(0L, "b");
+    values.put((long) ColumnShardBuilder.PROPOSAL_ROWS, "d");
+    builder.withValues(values);
+    StandardColumnShard firstShard = (StandardColumnShard) builder.build(false);
+
+    // WHEN
+    // add a new value to the first page which is sorted before all others: column value IDs change.
+    values.clear();
+    values.put(1L, "a");
+    builder.withValues(values);
+    StandardColumnShard secondShard = (StandardColumnShard) builder.build(false);
+
+    // THEN
+    ColumnPage oldSecondPage = firstShard.getPages().get((long) ColumnShardBuilder.PROPOSAL_ROWS);
+    ColumnPage newSecondPage = secondShard.getPages().get((long) ColumnShardBuilder.PROPOSAL_ROWS);
+    Assert.assertSame(newSecondPage.getValues(), oldSecondPage.getValues(),
+        "Expected values of unchanged page to be shared");
+    Assert.assertEquals(resolveValue(secondShard, 0L), "b", "Expected correct value");
+    Assert.assertEquals(resolveValue(secondShard, 1L), "a", "Expected correct value");
+    Assert.assertEquals(resolveValue(secondShard, ColumnShardBuilder.PROPOSAL_ROWS), "d", "Expected correct value");
+    Assert.assertEquals(resolveValue(firstShard, ColumnShardBuilder.PROPOSAL_ROWS), "d",
+        "Expected old version to be unchanged");
+  }
+
+  @Test
+  public void pagesWithUnchangedColumnValueIdsAreShared() {
+    // GIVEN
+    Map<Long, Object> values = new HashMap<>();
+    values.put(0L, 10L);
+    values.put((long) ColumnShardBuilder.PROPOSAL_ROWS, 20L);
+    builder.withValues(values);
+    StandardColumnShard firstShard = (StandardColumnShard) builder.build(false);
+
+    // WHEN
+    // add a new value to the second page which is sorted after all others: column value IDs of the first page stay the
+    // same.
+    values.clear();
+    values.put(ColumnShardBuilder.PROPOSAL_ROWS + 1L, 30L);
+    builder.withValues(values);
+    StandardColumnShard secondShard = (StandardColumnShard) builder.build(false);
+
+    // THEN
+    Assert.assertNotSame(secondShard.getColumnShardDictionary(), firstShard.getColumnShardDictionary(),
+        "Expected dictionary to be re-built");
+    Assert.assertSame(secondShard.getPages().get(0L), firstShard.getPages().get(0L),
+        "Expected page with unchanged column value IDs to be shared");
+    Assert.assertEquals(resolveValue(secondShard, 0L), 10L, "Expected correct value");
+    Assert.assertEquals(resolveValue(secondShard, ColumnShardBuilder.PROPOSAL_ROWS + 1L), 30L,
+        "Expected correct value");
+  }
+
+  @Test
+  public void finalVersionCompressesIntermediaryPages() {
+    // GIVEN
+    Map<Long, Object> values = new HashMap<>();
+    values.put(0L, "a");
+    values.put((long) ColumnShardBuilder.PROPOSAL_ROWS, "b");
+    builder.withValues(values);
+    StandardColumnShard intermediaryShard = (StandardColumnShard) builder.build(false);
+
+    // WHEN
+    StandardColumnShard finalShard = (StandardColumnShard) builder.build(true);
+    StandardColumnShard secondFinalShard = (StandardColumnShard) builder.build(true);
+
+    // THEN
+    Assert.assertNotSame(finalShard.getPages().get(0L), intermediaryShard.getPages().get(0L),
+        "Expected intermediary page to be re-built for final version");
+    Assert.assertNotSame(finalShard.getColumnShardDictionary(), intermediaryShard.getColumnShardDictionary(),
+        "Expected intermediary dictionary to be re-built for final version");
+    Assert.assertSame(secondFinalShard.getPages().get(0L), finalShard.getPages().get(0L),
+        "Expected final page to be shared");
+    Assert.assertSame(secondFinalShard.getColumnShardDictionary(), finalShard.getColumnShardDictionary(),
+        "Expected final dictionary to be shared");
+    Assert.assertEquals(resolveValue(finalShard, 0L), "a", "Expected correct value");
+    Assert.assertEquals(resolveValue(finalShard, 1L), LoaderColumnInfo.DEFAULT_STRING, "Expected default value");
+    Assert.assertEquals(resolveValue(finalShard, ColumnShardBuilder.PROPOSAL_ROWS), "b", "Expected correct value");
+  }
+
+  private Object resolveValue(StandardColumnShard shard, long rowId) {
+    ColumnPage page = shard.getPages().floorEntry(rowId).getValue();
+    long columnPageValueId = page.getValues().get((int) (rowId - page.getFirstRowId()));
+    long columnValueId = page.getColumnPageDict().decompressValue(columnPageValueId);
+    return shard.getColumnShardDictionary().decompressValue(columnValueId);
+  }
+}
@@ -29,7 +29,9 @@ import java.util.Set;
 
 import org.diqube.data.column.ColumnPage;
 import org.diqube.data.column.ColumnType;
+import org.diqube.data.column.RepeatedColumnShard;
 import org.diqube.data.table.TableShard;
+import org.diqube.data.types.dbl.DoubleStandardColumnShard;
 import org.diqube.data.types.lng.LongStandardColumnShard;
 import org.diqube.name.RepeatedColumnNameGenerator;
 import org.diqube.util.BigByteBuffer;
@@ -247,6 +249,74 @@ public class JsonLoaderTest {
     Assert.assertEquals(actualValues, expectedValues, "Expected correct values to be encoded");
   }
 
+  @Test
+  public void arrayContainingDifferentLengthObjectsNativeJson() throws LoadException {
+    // GIVEN
+    String json = "[ { \"a\": 1, \"c\": [ { \"d\": 4 }, { \"d\": 5}, { \"d\": 6 } ]},"
+        + "{\"a\": 2, \"c\": [ { \"d\": 1 } ] } ]";
+    colInfo.setStoreRepeatedColumnsNatively(true);
+
+    // WHEN
+    TableShard tableShard =
+        Iterables.getOnlyElement(loader.load(0L, new BigByteBuffer(json.getBytes()), TABLE, colInfo));
+
+    // THEN
+    String pattern = "c" + repeatedColNames.allEntriesIdentifyingSubstr() + ".d";
+    Assert.assertEquals(tableShard.getRepeatedColumns().keySet(), new HashSet<>(Arrays.asList(pattern)),
+        "Expected repeated column to be stored natively");
+    RepeatedColumnShard repeatedCol = tableShard.getRepeatedColumns().get(pattern);
+
+    Set<Pair<Long, List<Long>>> expectedValues = new HashSet<>();
+    expectedValues.add(new Pair<>(1L, Arrays.asList(new Long[] { 4L, 5L, 6L })));
+    expectedValues.add(new Pair<>(2L, Arrays.asList(new Long[] { 1L })));
+
+    Set<Pair<Long, List<Long>>> actualValues = new HashSet<>();
+    LongStandardColumnShard colA = tableShard.getLongColumns().get("a");
+    for (long i = tableShard.getLowestRowId(); i < tableShard.getLowestRowId()
+        + tableShard.getNumberOfRowsInShard(); i++) {
+      Long valueA = resolveSingleRowValue(colA, i);
+      List<Long> valueD = new ArrayList<>();
+      for (Object value : repeatedCol.resolveValues(repeatedCol.getFirstValueIndex(i), repeatedCol.getLength(i)))
+        valueD.add((Long) value);
+      actualValues.add(new Pair<>(valueA, valueD));
+    }
+
+    Assert.assertEquals(actualValues, expectedValues, "Expected correct values to be encoded");
+
+    // columns of single indices are available, too.
+    Assert.assertEquals(tableShard.getLongColumns().size(), 5, "Expected all long columns to be available");
+    LongStandardColumnShard colD2 = tableShard.getLongColumns().get(repeatedColNames.repeatedAtIndex("c", 2) + ".d");
+    Assert.assertEquals((long) resolveSingleRowValue(colD2, 0L), 6L, "Expected correct value in index column");
+    Assert.assertEquals(resolveSingleRowValue(colD2, 1L), LoaderColumnInfo.DEFAULT_LONG,
+        "Expected default value in index column for row with less entries");
+  }
+
+  @Test
+  public void nestedArrayNotStoredNativelyJson() throws LoadException {
+    // GIVEN
+    String json = "[ { \"c\": [ { \"d\": [ 1, 2 ], \"e\": 3 } ] },"
+        + "{ \"c\": [ { \"d\": [ 4 ], \"e\": 5 }, { \"d\": [ 7 ], \"e\": 6 } ] } ]";
+    colInfo.setStoreRepeatedColumnsNatively(true);
+
+    // WHEN
+    TableShard tableShard =
+        Iterables.getOnlyElement(loader.load(0L, new BigByteBuffer(json.getBytes()), TABLE, colInfo));
+
+    // THEN
+    String pattern = "c" + repeatedColNames.allEntriesIdentifyingSubstr() + ".e";
+    Assert.assertEquals(tableShard.getRepeatedColumns().keySet(), new HashSet<>(Arrays.asList(pattern)),
+        "Expected only the not nested repeated column to be stored natively");
+
+    String colD01 = repeatedColNames.repeatedAtIndex(repeatedColNames.repeatedAtIndex("c", 0) + ".d", 1);
+    Assert.assertEquals((long) resolveSingleRowValue(tableShard.getLongColumns().get(colD01), 0L), 2L,
+        "Expected correct value in nested array column");
+
+    LongStandardColumnShard colE1 = tableShard.getLongColumns().get(repeatedColNames.repeatedAtIndex("c", 1) + ".e");
+    Assert.assertEquals((long) resolveSingleRowValue(colE1, 0L), (long) LoaderColumnInfo.DEFAULT_LONG,
+        "Expected default value in index column for row with shorter array");
+    Assert.assertEquals((long) resolveSingleRowValue(colE1, 1L), 6L, "Expected correct value in index column");
+  }
+
   @Test
   public void longJson() throws LoadException {
     // GIVEN
@@ -294,6 +364,39 @@ public class JsonLoaderTest {
     Assert.assertEquals(actualValues, expectedValues, "Expected correct values to be encoded");
   }
 
+  @Test
+  public void longAndDoubleValuesInSameColumnJson() throws LoadException {
+    // GIVEN
+    String json = "[ { \"a\": 1, \"b\": 1.5},{\"a\": 2, \"b\": 3}]";
+
+    // WHEN
+    TableShard tableShard =
+        Iterables.getOnlyElement(loader.load(0L, new BigByteBuffer(json.getBytes()), TABLE, colInfo));
+
+    // THEN
+    Assert.assertEquals(tableShard.getLongColumns().size(), 1, "Expected long column to be available");
+    Assert.assertEquals(tableShard.getDoubleColumns().size(), 1, "Expected double column to be available");
+
+    Set<Pair<Long, Double>> expectedValues = new HashSet<>();
+    expectedValues.add(new Pair<>(1L, 1.5));
+    expectedValues.add(new Pair<>(2L, 3.));
+
+    Set<Pair<Long, Double>> actualValues = new HashSet<>();
+    LongStandardColumnShard colA = tableShard.getLongColumns().get("a");
+    DoubleStandardColumnShard colB = tableShard.getDoubleColumns().get("b");
+    for (long i = tableShard.getLowestRowId(); i < tableShard.getLowestRowId()
+        + tableShard.getNumberOfRowsInShard(); i++) {
+      Long valueA = resolveSingleRowValue(colA, i);
+      Entry<Long, ColumnPage> activeEntry = colB.getPages().floorEntry(i);
+      ColumnPage page = activeEntry.getValue();
+      Double valueB = colB.getColumnShardDictionary().decompressValue(
+          page.getColumnPageDict().decompressValue(page.getValues().get((int) (i - activeEntry.getKey()))));
+      actualValues.add(new Pair<>(valueA, valueB));
+    }
+
+    Assert.assertEquals(actualValues, expectedValues, "Expected correct values to be encoded");
+  }
+
   @Test(expectedExceptions = LoadException.class)
   public void unparsableJson() throws LoadException {
     // GIVEN
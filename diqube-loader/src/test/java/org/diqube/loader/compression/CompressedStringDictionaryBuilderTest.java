@@ -20,12 +20,18 @@
  */
 package org.diqube.loader.compression;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
+import org.diqube.data.types.str.dict.FrontCodedStringDictionary;
 import org.diqube.data.types.str.dict.StringDictionary;
+import org.diqube.data.types.str.dict.TrieStringDictionary;
 import org.diqube.util.Pair;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -90,6 +96,83 @@ public class CompressedStringDictionaryBuilderTest {
     assertTuple(dict, 2, "ac");
   }
 
+  @Test
+  public void trieSizeEstimationTest() {
+    // GIVEN
+    List<List<String>> valueLists = Arrays.asList( //
+        Arrays.asList("abc"), //
+        Arrays.asList(""), //
+        Arrays.asList("", "a", "ab", "abc", "abd", "b"), //
+        Arrays.asList("abx", "aby", "ac", "b", "bcd", "bce", "bcef"), //
+        // surrogate pairs of U+1F600 and U+1F601 share the high surrogate, the trie does not split them.
+        Arrays.asList("x\ud83d\ude00", "x\ud83d\ude01", "x\ud83d\ude01a", "x\ud83d\ude01b"), //
+        createValues(100));
+
+    for (List<String> values : valueLists) {
+      NavigableMap<String, Long> input = new TreeMap<>();
+      for (String value : values)
+        input.put(value, (long) input.size());
+      builder.fromEntityMap(input);
+
+      // WHEN
+      long approximateSize = builder.calculateApproximateTrieSizeInBytes();
+
+      // THEN
+      Assert.assertEquals(approximateSize, builder.buildTrieStringDictionary().calculateApproximateSizeInBytes(),
+          "Expected size estimation to match the size of the trie of " + values);
+    }
+  }
+
+  @Test
+  public void smallerDictIsBuiltTest() {
+    // GIVEN
+    NavigableMap<String, Long> input = new TreeMap<>();
+    for (String value : createValues(100))
+      input.put(value, (long) input.size());
+    builder.fromEntityMap(input);
+    long trieSize = builder.calculateApproximateTrieSizeInBytes();
+    long frontCodedSize = FrontCodedStringDictionary.calculateApproximateSizeInBytes(input.keySet());
+
+    // WHEN
+    StringDictionary<?> dict = builder.build().getLeft();
+
+    // THEN
+    if (frontCodedSize < trieSize)
+      Assert.assertTrue(dict instanceof FrontCodedStringDictionary, "Expected front coded dict to be built");
+    else
+      Assert.assertTrue(dict instanceof TrieStringDictionary, "Expected trie dict to be built");
+    Assert.assertEquals(dict.calculateApproximateSizeInBytes(), Math.min(frontCodedSize, trieSize));
+    long id = 0;
+    for (String value : input.keySet())
+      assertTuple(dict, id++, value);
+  }
+
+  @Test
+  public void unpairedSurrogateRoundTripsTest() {
+    // GIVEN
+    // front coding would destroy the unpaired surrogate when encoding to UTF-8.
+    NavigableMap<String, Long> input = new TreeMap<>();
+    input.put("a", 0L);
+    input.put("a\ud800b", 1L);
+    input.put("a\ud800c", 2L);
+
+    // WHEN
+    StringDictionary<?> dict = builder.fromEntityMap(input).build().getLeft();
+
+    // THEN
+    Assert.assertTrue(dict instanceof TrieStringDictionary, "Expected trie dict to be built");
+    assertTuple(dict, 0, "a");
+    assertTuple(dict, 1, "a\ud800b");
+    assertTuple(dict, 2, "a\ud800c");
+  }
+
+  private List<String> createValues(int count) {
+    TreeSet<String> res = new TreeSet<>();
+    for (int i = 0; i < count; i++)
+      res.add("http://example.com/path/" + (i % 7) + "/item" + i);
+    return new ArrayList<>(res);
+  }
+
   private void assertTuple(StringDictionary<?> dict, long id, String value) {
     Assert.assertEquals(dict.decompressValue(id), value, "Correct value/id tuples expected");
     Assert.assertEquals(dict.findIdOfValue(value), id, "Correct value/id tuples expected");
@@ -0,0 +1,197 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.loader.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.diqube.data.column.ColumnPageFactory;
+import org.diqube.data.column.ColumnShardFactory;
+import org.diqube.loader.columnshard.ColumnShardBuilder;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
+import org.diqube.util.Pair;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link LoadPhaseTimer}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class LoadPhaseTimerTest {
+  /** The "current time", which is advanced by the tests manually. */
+  private AtomicLong curNanos;
+  private AtomicInteger clockCalls;
+
+  private List<Pair<LoadPhase, Long>> reportedPhases;
+
+  @BeforeMethod
+  public void setUp() {
+    curNanos = new AtomicLong(1000);
+    clockCalls = new AtomicInteger(0);
+    reportedPhases = new ArrayList<>();
+    LoadPhaseTimer.setNanoTime(() -> {
+      clockCalls.incrementAndGet();
+      return curNanos.get();
+    });
+    LoadPhaseTimer.setListener((phase, nanos) -> reportedPhases.add(new Pair<>(phase, nanos)));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    LoadPhaseTimer.setListener(null);
+    LoadPhaseTimer.setNanoTime(System::nanoTime);
+  }
+
+  @Test
+  public void noClockCallsWithoutListener() {
+    // GIVEN
+    LoadPhaseTimer.setListener(null);
+
+    // WHEN
+    long start = LoadPhaseTimer.start();
+    curNanos.addAndGet(10);
+    LoadPhaseTimer.end(LoadPhase.PARSE, start);
+
+    // THEN
+    Assert.assertEquals(clockCalls.get(), 0, "Expected no timestamps to be taken if no listener is installed");
+  }
+
+  @Test
+  public void singlePhase() {
+    // WHEN
+    long start = LoadPhaseTimer.start();
+    curNanos.addAndGet(10);
+    LoadPhaseTimer.end(LoadPhase.PARSE, start);
+
+    // THEN
+    Assert.assertEquals(reportedPhases, Arrays.asList(new Pair<>(LoadPhase.PARSE, 10L)), "Expected correct phase time");
+  }
+
+  @Test
+  public void nestedPhaseNotCountedToOuterPhase() {
+    // WHEN
+    long dictStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(10);
+    long compressionStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(100);
+    LoadPhaseTimer.end(LoadPhase.COMPRESSION, compressionStart);
+    curNanos.addAndGet(5);
+    long secondCompressionStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(1000);
+    LoadPhaseTimer.end(LoadPhase.COMPRESSION, secondCompressionStart);
+    LoadPhaseTimer.end(LoadPhase.DICTIONARY, dictStart);
+
+    // THEN
+    Assert.assertEquals(reportedPhases, Arrays.asList( //
+        new Pair<>(LoadPhase.COMPRESSION, 100L), //
+        new Pair<>(LoadPhase.COMPRESSION, 1000L), //
+        new Pair<>(LoadPhase.DICTIONARY, 15L)), "Expected nested phases to be subtracted from outer phase");
+  }
+
+  @Test
+  public void multipleNestingLevels() {
+    // WHEN
+    long outerStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(1);
+    long middleStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(10);
+    long innerStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(100);
+    LoadPhaseTimer.end(LoadPhase.COMPRESSION, innerStart);
+    LoadPhaseTimer.end(LoadPhase.DICTIONARY, middleStart);
+    curNanos.addAndGet(1000);
+    LoadPhaseTimer.end(LoadPhase.SERIALIZATION, outerStart);
+
+    // THEN
+    Assert.assertEquals(reportedPhases, Arrays.asList( //
+        new Pair<>(LoadPhase.COMPRESSION, 100L), //
+        new Pair<>(LoadPhase.DICTIONARY, 10L), //
+        new Pair<>(LoadPhase.SERIALIZATION, 1001L)), "Expected each phase to report its own time only");
+  }
+
+  @Test
+  public void nestedPhaseNotEnded() {
+    // WHEN
+    long outerStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(1);
+    LoadPhaseTimer.start(); // never ended, e.g. because of an exception.
+    curNanos.addAndGet(10);
+    LoadPhaseTimer.end(LoadPhase.DICTIONARY, outerStart);
+
+    long nextStart = LoadPhaseTimer.start();
+    curNanos.addAndGet(100);
+    LoadPhaseTimer.end(LoadPhase.PARSE, nextStart);
+
+    // THEN
+    Assert.assertEquals(reportedPhases, Arrays.asList( //
+        new Pair<>(LoadPhase.DICTIONARY, 11L), //
+        new Pair<>(LoadPhase.PARSE, 100L)), "Expected phase that was not ended to be ignored");
+  }
+
+  @Test
+  public void columnShardBuilderPhasesDoNotOverlap() {
+    // GIVEN
+    // each read of the clock advances it by one, so phases that do not overlap sum up to at most the time between the
+    // first and the last read. Pages might be built on other threads, only inspect the phases of the current thread.
+    Thread testThread = Thread.currentThread();
+    LoadPhaseTimer.setNanoTime(() -> (Thread.currentThread() == testThread) ? clockCalls.incrementAndGet() : 0L);
+    LoadPhaseTimer.setListener((phase, nanos) -> {
+      if (Thread.currentThread() == testThread)
+        reportedPhases.add(new Pair<>(phase, nanos));
+    });
+
+    try (AnnotationConfigApplicationContext dataContext = new AnnotationConfigApplicationContext()) {
+      dataContext.scan("org.diqube.data");
+      dataContext.refresh();
+      ColumnShardBuilder<Long> builder = new ColumnShardBuilder<>(dataContext.getBean(ColumnShardFactory.class),
+          dataContext.getBean(ColumnPageFactory.class), "col", 0L);
+      Long[] values = new Long[100];
+      for (int i = 0; i < values.length; i++)
+        values[i] = (long) (i * 7);
+      builder.addValues(values, 0L);
+
+      // WHEN
+      builder.build();
+    }
+
+    // THEN
+    Map<LoadPhase, Long> nanosByPhase = new EnumMap<>(LoadPhase.class);
+    for (Pair<LoadPhase, Long> reported : reportedPhases)
+      nanosByPhase.merge(reported.getLeft(), reported.getRight(), Long::sum);
+    long totalReportedNanos = nanosByPhase.values().stream().mapToLong(Long::longValue).sum();
+
+    Assert.assertTrue(nanosByPhase.containsKey(LoadPhase.DICTIONARY), "Expected DICTIONARY to be reported");
+    Assert.assertTrue(nanosByPhase.containsKey(LoadPhase.COMPRESSION), "Expected COMPRESSION to be reported");
+    long measuredNanos = clockCalls.get() - 1;
+    Assert.assertTrue(totalReportedNanos <= measuredNanos,
+        "Expected reported phases to not overlap, but reported " + nanosByPhase + " within " + measuredNanos
+            + " nanos");
+  }
+}
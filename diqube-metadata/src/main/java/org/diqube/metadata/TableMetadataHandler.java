@@ -26,7 +26,6 @@ import javax.inject.Inject;
 
 import org.apache.thrift.TException;
 import org.diqube.cluster.ClusterLayout;
-import org.diqube.consensus.ConsensusClient.ConsensusClusterUnavailableException;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.name.FlattenedTableNameUtil;
 import org.diqube.permission.TableAccessPermissionUtil;
@@ -37,8 +36,6 @@ import org.diqube.thrift.base.thrift.AuthorizationException;
 import org.diqube.thrift.base.thrift.TableMetadata;
 import org.diqube.thrift.base.thrift.Ticket;
 import org.diqube.ticket.TicketValidityService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Service for retrieving {@link TableMetadata} of a specific table, if metadata is available.
@@ -47,8 +44,6 @@ import org.slf4j.LoggerFactory;
  */
 @AutoInstatiate
 public class TableMetadataHandler implements TableMetadataService.Iface {
-  private static final Logger logger = LoggerFactory.getLogger(TableMetadataHandler.class);
-
   @Inject
   private TableAccessPermissionUtil tableAccessPermissionUtil;
 
@@ -79,13 +74,7 @@ public class TableMetadataHandler implements TableMetadataService.Iface {
     if (!tableAccessPermissionUtil.hasAccessToTable(ticket, tableName))
       throw new AuthorizationException("No access to table or table does not exist.");
 
-    Set<String> allTables;
-    try {
-      allTables = clusterLayout.getAllTablesServed();
-    } catch (InterruptedException | ConsensusClusterUnavailableException e) {
-      logger.warn("Interrupted while loading list of all tables", e);
-      return new ROptionalTableMetadata();
-    }
+    Set<String> allTables = clusterLayout.getAllTablesServedCached();
     if (flattenedTableNameUtil.isFlattenedTableName(tableName)) {
       if (!allTables.contains(flattenedTableNameUtil.getOriginalTableNameFromFlatten(tableName)))
         throw new AuthorizationException("No access to table or table does not exist.");
@@ -27,7 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.diqube.data.column.ColumnShard;
+import org.diqube.data.column.ColumnType;
 import org.diqube.data.table.TableShard;
 import org.diqube.name.RepeatedColumnNameGenerator;
 import org.diqube.thrift.base.thrift.FieldMetadata;
@@ -56,19 +56,27 @@ public class TableShardMetadataBuilder {
   public TableMetadata build() throws IllegalTableShardLayoutException {
     Map<String, Pair<FieldType, Boolean>> fields = new HashMap<>();
 
-    for (ColumnShard colShard : tableShard.getColumns().values()) {
-      if (FieldUtil.columnTypeMightDifferFromFieldType(colShard.getName()))
+    // inspect only the names of the columns, as the column shards might be materialized lazily (e.g. in flattened
+    // tables).
+    Map<String, ColumnType> columnTypes = new HashMap<>();
+    tableShard.getStringColumns().keySet().forEach(colName -> columnTypes.put(colName, ColumnType.STRING));
+    tableShard.getLongColumns().keySet().forEach(colName -> columnTypes.put(colName, ColumnType.LONG));
+    tableShard.getDoubleColumns().keySet().forEach(colName -> columnTypes.put(colName, ColumnType.DOUBLE));
+
+    for (Entry<String, ColumnType> colEntry : columnTypes.entrySet()) {
+      String colName = colEntry.getKey();
+      if (FieldUtil.columnTypeMightDifferFromFieldType(colName))
         // ignore type of length columns - we're only interested in the type of the columns that contain actual data.
         continue;
 
-      String fieldName = FieldUtil.toFieldName(colShard.getName());
-      FieldType fieldType = FieldUtil.toFieldType(colShard.getColumnType());
-      boolean repeated = colShard.getName().endsWith(repeatedColumnNameGenerator.repeatedColumnNameEndsWith());
+      String fieldName = FieldUtil.toFieldName(colName);
+      FieldType fieldType = FieldUtil.toFieldType(colEntry.getValue());
+      boolean repeated = colName.endsWith(repeatedColumnNameGenerator.repeatedColumnNameEndsWith());
 
       Pair<FieldType, Boolean> newFieldInfo = new Pair<>(fieldType, repeated);
       safePutFields(fieldName, newFieldInfo, fields);
 
-      for (Pair<String, Boolean> parentField : allParentFields(colShard.getName())) {
+      for (Pair<String, Boolean> parentField : allParentFields(colName)) {
         Pair<FieldType, Boolean> parentFieldInfo = new Pair<>(FieldType.CONTAINER, parentField.getRight());
         safePutFields(parentField.getLeft(), parentFieldInfo, fields);
       }
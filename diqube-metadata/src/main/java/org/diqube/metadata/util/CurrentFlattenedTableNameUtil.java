@@ -33,7 +33,6 @@ import org.diqube.cluster.ClusterLayout;
 import org.diqube.connection.ConnectionException;
 import org.diqube.connection.ConnectionOrLocalHelper;
 import org.diqube.connection.ServiceProvider;
-import org.diqube.consensus.ConsensusClient.ConsensusClusterUnavailableException;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.diql.DiqlParseUtil;
 import org.diqube.diql.antlr.DiqlParser.DiqlStmtContext;
@@ -108,13 +107,7 @@ public class CurrentFlattenedTableNameUtil {
     String origTable = req.getFromRequest().getTable();
     String flattenBy = req.getFromRequest().getFlattenByField();
 
-    Collection<RNodeAddress> nodes;
-    try {
-      nodes = clusterLayout.findNodesServingTable(origTable);
-    } catch (InterruptedException | ConsensusClusterUnavailableException e) {
-      throw new FlattenIdentificationImpossibleException(
-          "Could not find nodes serving table " + origTable + " for finding metadata of '" + tableName + "'", e);
-    }
+    Collection<RNodeAddress> nodes = clusterLayout.findNodesServingTableCached(origTable);
 
     if (nodes.isEmpty()) {
       logger.warn("No nodes serving '{}'.", origTable);
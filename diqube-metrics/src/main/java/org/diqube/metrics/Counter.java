@@ -0,0 +1,62 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Metric} holding a value that only increases, e.g. the number of executed queries.
+ * 
+ * <p>
+ * Thread-safe and cheap to update from many threads concurrently.
+ *
+ * @author Bastian Gloeckle
+ */
+public class Counter implements Metric {
+  private LongAdder value = new LongAdder();
+
+  /* package */ Counter() {
+  }
+
+  public void inc() {
+    value.increment();
+  }
+
+  public void add(long delta) {
+    value.add(delta);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public MetricType getType() {
+    return MetricType.COUNTER;
+  }
+
+  @Override
+  public Map<String, Long> getValues() {
+    return Collections.singletonMap("", get());
+  }
+}
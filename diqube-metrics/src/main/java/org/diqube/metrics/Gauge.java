@@ -0,0 +1,52 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Metric} whose value is calculated each time it is read, e.g. the number of currently open connections.
+ *
+ * @author Bastian Gloeckle
+ */
+public class Gauge implements Metric {
+  private LongSupplier valueSupplier;
+
+  /* package */ Gauge(LongSupplier valueSupplier) {
+    this.valueSupplier = valueSupplier;
+  }
+
+  public long get() {
+    return valueSupplier.getAsLong();
+  }
+
+  @Override
+  public MetricType getType() {
+    return MetricType.GAUGE;
+  }
+
+  @Override
+  public Map<String, Long> getValues() {
+    return Collections.singletonMap("", get());
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Metric} recording the distribution of non-negative long values, e.g. durations in milliseconds or sizes in
+ * bytes.
+ * 
+ * <p>
+ * Values are recorded into log-linear buckets in the same manner as HDR histograms do: Each power-of-two range of
+ * values is split into {@link #SUB_BUCKETS} linear sub-buckets. Values smaller than {@link #SUB_BUCKETS} are recorded
+ * exactly, larger ones with a relative error of at most 1/{@link #SUB_BUCKETS}. Memory usage is constant and recording
+ * a value is lock-free.
+ * 
+ * <p>
+ * Percentiles that are reported are the upper bounds of the bucket that contains the percentile.
+ *
+ * @author Bastian Gloeckle
+ */
+public class Histogram implements Metric {
+  public static final String VALUE_COUNT = "count";
+  public static final String VALUE_SUM = "sum";
+  public static final String VALUE_MAX = "max";
+  public static final String VALUE_P50 = "p50";
+  public static final String VALUE_P90 = "p90";
+  public static final String VALUE_P99 = "p99";
+  public static final String VALUE_P999 = "p999";
+
+  private static final int SUB_BUCKET_BITS = 4;
+  /* package */ static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int NUMBER_OF_BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+  private AtomicLong count = new AtomicLong(0L);
+  private AtomicLong sum = new AtomicLong(0L);
+  private AtomicLong max = new AtomicLong(0L);
+
+  /* package */ Histogram() {
+  }
+
+  /**
+   * Record a value. Negative values are recorded as 0.
+   */
+  public void record(long value) {
+    if (value < 0)
+      value = 0;
+    buckets.incrementAndGet(bucketIndex(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param quantile
+   *          0 < quantile <= 1.
+   * @return An upper bound of the value at the given quantile of all recorded values, 0 if no values were recorded.
+   */
+  public long getValueAtQuantile(double quantile) {
+    long[] snapshot = new long[NUMBER_OF_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0)
+      return 0L;
+
+    long target = Math.max(1L, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= target)
+        return Math.min(bucketUpperBound(i), max.get());
+    }
+    return max.get();
+  }
+
+  @Override
+  public MetricType getType() {
+    return MetricType.HISTOGRAM;
+  }
+
+  @Override
+  public Map<String, Long> getValues() {
+    Map<String, Long> res = new LinkedHashMap<>();
+    res.put(VALUE_COUNT, count.get());
+    res.put(VALUE_SUM, sum.get());
+    res.put(VALUE_MAX, max.get());
+    res.put(VALUE_P50, getValueAtQuantile(.5));
+    res.put(VALUE_P90, getValueAtQuantile(.9));
+    res.put(VALUE_P99, getValueAtQuantile(.99));
+    res.put(VALUE_P999, getValueAtQuantile(.999));
+    return res;
+  }
+
+  /* package */ static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  /* package */ static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS)
+      return index;
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+    long res = lowerBound + (1L << shift) - 1;
+    // overflow in the highest buckets.
+    return (res < lowerBound) ? Long.MAX_VALUE : res;
+  }
+}
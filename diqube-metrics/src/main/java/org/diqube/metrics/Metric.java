@@ -0,0 +1,38 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.util.Map;
+
+/**
+ * A metric that is registered in {@link Metrics}.
+ *
+ * @author Bastian Gloeckle
+ */
+public interface Metric {
+  public MetricType getType();
+
+  /**
+   * @return The current values of the metric. Metrics that have a single value only return a map with one entry whose
+   *         key is the empty string. Never <code>null</code>.
+   */
+  public Map<String, Long> getValues();
+}
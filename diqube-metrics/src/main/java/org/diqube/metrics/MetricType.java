@@ -0,0 +1,35 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+/**
+ * Types of {@link Metric}s.
+ *
+ * @author Bastian Gloeckle
+ */
+public enum MetricType {
+  /** A value that only increases, see {@link Counter}. */
+  COUNTER,
+  /** A value that is sampled when it is read, see {@link Gauge}. */
+  GAUGE,
+  /** A distribution of recorded values, see {@link Histogram}. */
+  HISTOGRAM
+}
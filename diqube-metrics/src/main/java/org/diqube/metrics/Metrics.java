@@ -0,0 +1,132 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of all {@link Metric}s of this node.
+ * 
+ * <p>
+ * Metrics are identified by their name, which optionally contains a label, see
+ * {@link #labeled(String, String, String)}. Code that updates metrics on a hot path should resolve the metric object
+ * once (e.g. in a constructor) and keep a reference to it, instead of looking it up for each update.
+ * 
+ * <p>
+ * The metrics are exposed by the server via JMX and a plain-text endpoint, see {@link MetricsMBean} and
+ * {@link MetricsTextFormat}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class Metrics {
+  private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+  private Metrics() {
+  }
+
+  /**
+   * @return The {@link Counter} of the given name, creates a new one if it does not exist.
+   * @throws IllegalStateException
+   *           If there is a metric of that name which is not a {@link Counter}.
+   */
+  public static Counter counter(String name) throws IllegalStateException {
+    return getOrCreate(name, Counter.class, () -> new Counter());
+  }
+
+  /**
+   * @return The {@link Histogram} of the given name, creates a new one if it does not exist.
+   * @throws IllegalStateException
+   *           If there is a metric of that name which is not a {@link Histogram}.
+   */
+  public static Histogram histogram(String name) throws IllegalStateException {
+    return getOrCreate(name, Histogram.class, () -> new Histogram());
+  }
+
+  /**
+   * Registers a new {@link Gauge}, replacing any metric of the same name that was registered before.
+   * 
+   * <p>
+   * Note that the given supplier will be referenced until the gauge is {@link #remove(String) removed}.
+   */
+  public static Gauge gauge(String name, LongSupplier valueSupplier) {
+    Gauge res = new Gauge(valueSupplier);
+    metrics.put(name, res);
+    return res;
+  }
+
+  /**
+   * Removes the metric of the given name, if it exists.
+   */
+  public static void remove(String name) {
+    metrics.remove(name);
+  }
+
+  /**
+   * Create the name of a metric that has a label.
+   * 
+   * <p>
+   * Metrics having the same base name but different label values are reported as one family of metrics.
+   * 
+   * @param name
+   *          Base name of the metric, e.g. "cache_hits".
+   * @param labelName
+   *          Name of the label, e.g. "cache".
+   * @param labelValue
+   *          Value of the label.
+   * @return Name of the metric, e.g. <code>cache_hits{cache="FlattenedTable"}</code>.
+   */
+  public static String labeled(String name, String labelName, String labelValue) {
+    String escapedValue = labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    return name + "{" + labelName + "=\"" + escapedValue + "\"}";
+  }
+
+  /**
+   * @return Snapshot of the currently registered metrics, sorted by name.
+   */
+  public static NavigableMap<String, Metric> getMetrics() {
+    return new TreeMap<>(metrics);
+  }
+
+  private static <T extends Metric> T getOrCreate(String name, Class<T> type, Supplier<T> factory)
+      throws IllegalStateException {
+    Metric res = metrics.get(name);
+    if (res == null) {
+      T newMetric = factory.get();
+      res = metrics.putIfAbsent(name, newMetric);
+      if (res == null)
+        return newMetric;
+    }
+    if (!type.isInstance(res))
+      throw new IllegalStateException(
+          "Metric '" + name + "' is registered as " + res.getType() + " and cannot be used as " + type.getSimpleName());
+    return type.cast(res);
+  }
+
+  /* package */ static Map<String, Metric> getMetricsMap() {
+    return metrics;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Read-only JMX MBean exposing all {@link Metrics}.
+ * 
+ * <p>
+ * Each single-valued metric is exposed as one attribute of the same name. For {@link Histogram}s, there is one
+ * attribute per value, named "&lt;metric name&gt;.&lt;value&gt;", e.g. "query_master_phase_ms{phase="plan"}.p99".
+ *
+ * @author Bastian Gloeckle
+ */
+public class MetricsMBean implements DynamicMBean {
+  public static final String OBJECT_NAME = "org.diqube:type=Metrics";
+
+  private static final String HISTOGRAM_VALUE_SEPARATOR = ".";
+
+  /**
+   * Register a {@link MetricsMBean} in the platform MBean server, if there is none registered yet.
+   */
+  public static void register() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(new MetricsMBean(), objectName());
+    } catch (InstanceAlreadyExistsException e) {
+      // swallow, there is one registered already (e.g. multiple servers in one VM in tests).
+    }
+  }
+
+  /**
+   * Unregister the {@link MetricsMBean} from the platform MBean server, if it is registered.
+   */
+  public static void unregister() throws JMException {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+    } catch (InstanceNotFoundException e) {
+      // swallow, not registered.
+    }
+  }
+
+  private static ObjectName objectName() throws MalformedObjectNameException {
+    return new ObjectName(OBJECT_NAME);
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Map<String, Metric> metrics = Metrics.getMetricsMap();
+    Metric metric = metrics.get(attribute);
+    if (metric != null && !metric.getType().equals(MetricType.HISTOGRAM))
+      return metric.getValues().get("");
+
+    int sepIdx = attribute.lastIndexOf(HISTOGRAM_VALUE_SEPARATOR);
+    if (sepIdx != -1) {
+      metric = metrics.get(attribute.substring(0, sepIdx));
+      if (metric != null && metric.getType().equals(MetricType.HISTOGRAM)) {
+        Long res = metric.getValues().get(attribute.substring(sepIdx + 1));
+        if (res != null)
+          return res;
+      }
+    }
+    throw new AttributeNotFoundException("Metric not available: " + attribute);
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only.");
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList res = new AttributeList();
+    for (String attribute : attributes) {
+      try {
+        res.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (AttributeNotFoundException e) {
+        // skip, as per contract of DynamicMBean.
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    throw new UnsupportedOperationException("No operations available.");
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for (Entry<String, Metric> metricEntry : Metrics.getMetrics().entrySet()) {
+      Metric metric = metricEntry.getValue();
+      if (metric.getType().equals(MetricType.HISTOGRAM)) {
+        for (String valueName : metric.getValues().keySet())
+          attributes.add(attributeInfo(metricEntry.getKey() + HISTOGRAM_VALUE_SEPARATOR + valueName, metric));
+      } else
+        attributes.add(attributeInfo(metricEntry.getKey(), metric));
+    }
+
+    return new MBeanInfo(MetricsMBean.class.getName(), "diqube node metrics",
+        attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+  }
+
+  private MBeanAttributeInfo attributeInfo(String name, Metric metric) {
+    return new MBeanAttributeInfo(name, Long.class.getName(), metric.getType().toString(), true, false, false);
+  }
+}
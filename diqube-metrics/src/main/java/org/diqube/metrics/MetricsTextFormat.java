@@ -0,0 +1,115 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Writes the {@link Metrics} in a plain-text format that can be scraped by a Prometheus server or similar tools.
+ * 
+ * <p>
+ * All metric names are prefixed with {@link #PREFIX}. {@link Histogram}s are written as summaries, that is their
+ * percentiles are written with a "quantile" label, together with a "_sum" and a "_count" line. The maximum is reported
+ * as quantile 1.
+ *
+ * @author Bastian Gloeckle
+ */
+public class MetricsTextFormat {
+  public static final String PREFIX = "diqube_";
+
+  private static final String[][] HISTOGRAM_QUANTILES = new String[][] { //
+      { Histogram.VALUE_P50, "0.5" }, //
+      { Histogram.VALUE_P90, "0.9" }, //
+      { Histogram.VALUE_P99, "0.99" }, //
+      { Histogram.VALUE_P999, "0.999" }, //
+      { Histogram.VALUE_MAX, "1" } };
+
+  private MetricsTextFormat() {
+  }
+
+  /**
+   * Write all currently registered metrics to the given writer. The writer is not flushed or closed.
+   */
+  public static void write(Writer writer) throws IOException {
+    // group by base name, as all metrics of one family need to be written together.
+    Map<String, Map<String, Metric>> families = new TreeMap<>();
+    for (Entry<String, Metric> metricEntry : Metrics.getMetrics().entrySet()) {
+      String name = metricEntry.getKey();
+      int labelStart = name.indexOf('{');
+      String baseName = (labelStart == -1) ? name : name.substring(0, labelStart);
+      // labels without surrounding braces, "" if no labels.
+      String labels = (labelStart == -1) ? "" : name.substring(labelStart + 1, name.length() - 1);
+      families.computeIfAbsent(baseName, k -> new TreeMap<>()).put(labels, metricEntry.getValue());
+    }
+
+    for (Entry<String, Map<String, Metric>> familyEntry : families.entrySet()) {
+      String baseName = PREFIX + familyEntry.getKey();
+      MetricType type = familyEntry.getValue().values().iterator().next().getType();
+      writer.write("# TYPE " + baseName + " " + typeName(type) + "\n");
+
+      for (Entry<String, Metric> metricEntry : familyEntry.getValue().entrySet()) {
+        String labels = metricEntry.getKey();
+        Metric metric = metricEntry.getValue();
+        Map<String, Long> values = metric.getValues();
+        if (metric.getType().equals(MetricType.HISTOGRAM)) {
+          for (String[] quantile : HISTOGRAM_QUANTILES)
+            writeLine(writer, baseName, labels, "quantile=\"" + quantile[1] + "\"", values.get(quantile[0]));
+          writeLine(writer, baseName + "_sum", labels, null, values.get(Histogram.VALUE_SUM));
+          writeLine(writer, baseName + "_count", labels, null, values.get(Histogram.VALUE_COUNT));
+        } else
+          writeLine(writer, baseName, labels, null, values.get(""));
+      }
+    }
+  }
+
+  private static void writeLine(Writer writer, String name, String labels, String additionalLabel, Long value)
+      throws IOException {
+    writer.write(name);
+    if (!labels.isEmpty() || additionalLabel != null) {
+      writer.write('{');
+      writer.write(labels);
+      if (additionalLabel != null) {
+        if (!labels.isEmpty())
+          writer.write(',');
+        writer.write(additionalLabel);
+      }
+      writer.write('}');
+    }
+    writer.write(' ');
+    writer.write(Long.toString((value == null) ? 0L : value));
+    writer.write('\n');
+  }
+
+  private static String typeName(MetricType type) {
+    switch (type) {
+    case COUNTER:
+      return "counter";
+    case GAUGE:
+      return "gauge";
+    default:
+      return "summary";
+    }
+  }
+}
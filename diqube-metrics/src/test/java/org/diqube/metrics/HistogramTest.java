@@ -0,0 +1,79 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link Histogram}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class HistogramTest {
+  @Test
+  public void smallValuesExactTest() {
+    // GIVEN
+    Histogram histogram = new Histogram();
+
+    // WHEN
+    for (long i = 1; i <= 10; i++)
+      histogram.record(i);
+
+    // THEN
+    Assert.assertEquals(histogram.getCount(), 10L, "Expected correct count");
+    Assert.assertEquals(histogram.getMax(), 10L, "Expected correct max");
+    Assert.assertEquals(histogram.getValueAtQuantile(.5), 5L, "Expected exact median");
+    Assert.assertEquals((long) histogram.getValues().get(Histogram.VALUE_SUM), 55L, "Expected correct sum");
+  }
+
+  @Test
+  public void largeValuesBoundedErrorTest() {
+    // GIVEN
+    Histogram histogram = new Histogram();
+
+    // WHEN
+    for (long i = 1; i <= 100_000; i++)
+      histogram.record(i);
+
+    // THEN
+    long p90 = histogram.getValueAtQuantile(.9);
+    Assert.assertTrue(p90 >= 90_000 && p90 <= 90_000 * (1. + 1. / Histogram.SUB_BUCKETS),
+        "Expected p90 to be within error bounds, but was " + p90);
+    Assert.assertEquals(histogram.getValueAtQuantile(1.), 100_000L, "Expected max to be reported as 100% quantile");
+  }
+
+  @Test
+  public void bucketsCoverAllValuesTest() {
+    for (long value : new long[] { 0L, 15L, 16L, 17L, 1023L, 1024L, Integer.MAX_VALUE, Long.MAX_VALUE }) {
+      int idx = Histogram.bucketIndex(value);
+      Assert.assertTrue(Histogram.bucketUpperBound(idx) >= value, "Expected upper bound to be >= value " + value);
+      if (idx > 0)
+        Assert.assertTrue(Histogram.bucketUpperBound(idx - 1) < value,
+            "Expected upper bound of previous bucket to be < value " + value);
+    }
+  }
+
+  @Test
+  public void emptyTest() {
+    Assert.assertEquals(new Histogram().getValueAtQuantile(.99), 0L, "Expected 0 for empty histogram");
+  }
+}
@@ -50,6 +50,22 @@ public class RepeatedColumnNameGenerator {
     return sb.toString();
   }
 
+  /**
+   * Generate the col name for one object of a column name pattern that contains exactly one
+   * {@link #allEntriesIdentifyingSubstr()}, e.g. "a[3].b" for pattern "a[*].b" and index 3.
+   * 
+   * @param pattern
+   *          The column name pattern.
+   * @param index
+   *          the index for which to create the col name.
+   * @return the column name.
+   */
+  public String repeatedAtIndexOfPattern(String pattern, long index) {
+    int allEntriesPos = pattern.indexOf(allEntriesIdentifyingSubstr());
+    return repeatedAtIndex(pattern.substring(0, allEntriesPos), index)
+        + pattern.substring(allEntriesPos + allEntriesIdentifyingSubstr().length());
+  }
+
   /**
    * Generate the col name for a repeated field that contains the number of entries this repeated field has.
    * 
@@ -30,6 +30,7 @@ import org.diqube.diql.request.FromRequest;
 import org.diqube.diql.request.FunctionRequest;
 import org.diqube.diql.request.GroupRequest;
 import org.diqube.diql.request.OrderRequest;
+import org.diqube.diql.request.SampleRequest;
 import org.diqube.remote.cluster.thrift.RCol;
 import org.diqube.remote.cluster.thrift.RColOrValue;
 import org.diqube.remote.cluster.thrift.RExecutionPlan;
@@ -43,6 +44,8 @@ import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsOrderCol;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsOrderLimit;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsResolve;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsRowId;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsSample;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsSampleType;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepType;
 import org.diqube.thrift.base.thrift.RValue;
 import org.diqube.util.ColumnOrValue;
@@ -154,6 +157,19 @@ public class RemoteExecutionPlanFactory {
     return step;
   }
 
+  /**
+   * @return The details to be set on all steps that need to restrict their work to the given sample of the table.
+   */
+  public RExecutionPlanStepDetailsSample createSampleDetails(SampleRequest sampleRequest) {
+    RExecutionPlanStepDetailsSample res = new RExecutionPlanStepDetailsSample();
+    res.setFraction(sampleRequest.getFraction());
+    if (sampleRequest.getType().equals(SampleRequest.Type.PAGES))
+      res.setSampleType(RExecutionPlanStepDetailsSampleType.PAGES);
+    else
+      res.setSampleType(RExecutionPlanStepDetailsSampleType.ROWS);
+    return res;
+  }
+
   public RExecutionPlanStep createGroup(GroupRequest groupRequest, int stepId) {
     RExecutionPlanStep step = new RExecutionPlanStep();
     step.setStepId(stepId);
@@ -30,7 +30,9 @@ import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.diqube.diql.request.ComparisonRequest.Leaf;
 import org.diqube.diql.request.ExecutionRequest;
+import org.diqube.diql.request.ExecutionRequest.ExplainMode;
 import org.diqube.diql.request.FunctionRequest;
 import org.diqube.diql.request.FunctionRequest.Type;
 import org.diqube.diql.request.ResolveValueRequest;
@@ -57,6 +59,8 @@ import org.diqube.plan.exception.PlanBuildException;
 import org.diqube.remote.cluster.thrift.RExecutionPlan;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepDataType;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsSample;
+import org.diqube.util.ColumnOrValue;
 import org.diqube.util.Pair;
 import org.diqube.util.TopologicalSort;
 
@@ -128,8 +132,12 @@ public class ExecutionPlanner {
     ColumnVersionManager masterColumnVersionManager =
         columnVersionManagerFactory.createColumnVersionManager(masterDefaultExecutionEnv);
 
-    MasterColumnManager masterColManager = new MasterColumnManager(masterDefaultExecutionEnv, nextMasterIdSupplier,
-        executablePlanFactory, masterColumnVersionManager, columnInfo, remoteResolveManager, masterWireManager);
+    Double sampleFraction =
+        (executionRequest.getSample() != null) ? executionRequest.getSample().getFraction() : null;
+
+    MasterColumnManager masterColManager =
+        new MasterColumnManager(masterDefaultExecutionEnv, nextMasterIdSupplier, executablePlanFactory,
+            masterColumnVersionManager, columnInfo, remoteResolveManager, masterWireManager, sampleFraction);
     MasterResolveManager masterResolveManager = new MasterResolveManager(nextMasterIdSupplier,
         masterDefaultExecutionEnv, executablePlanFactory, masterColManager, masterWireManager, resultColNamesRequested);
 
@@ -166,16 +174,23 @@ public class ExecutionPlanner {
       }
     }
 
+    // If requested, the query is executed on a sample of the table only (TABLESAMPLE). The sample is applied where the
+    // row IDs are created, so pages of the table that do not contain sampled rows are not inspected at all.
+    RExecutionPlanStepDetailsSample remoteSampleDetails = (executionRequest.getSample() != null)
+        ? remoteExecutionPlanFactory.createSampleDetails(executionRequest.getSample()) : null;
+
     // The RowIdSink step will consume the results (=rowIDs) of the WHERE stmts if there are any. This step outputs the
     // rowIDs that other steps later on can rely on. If no input rowIds are provided, this will simply return /all/
-    // rowIds (= no WHERE stmt).
+    // rowIds (= no WHERE stmt). If executing on a sample, it provides the sampled rowIDs only.
     RExecutionPlanStep remoteRowSinkStep = remoteExecutionPlanFactory.createRowIdSink(nextRemoteIdSupplier.get());
+    if (remoteSampleDetails != null)
+      remoteRowSinkStep.setDetailsSample(remoteSampleDetails);
     allRemoteSteps.add(remoteRowSinkStep);
 
     // ==== Create remote steps for WHERE clause
     if (executionRequest.getWhere() != null) {
-      WhereBuilder whereHandler =
-          new WhereBuilder(remoteExecutionPlanFactory, nextRemoteIdSupplier, remoteColManager, remoteWireManager);
+      WhereBuilder whereHandler = new WhereBuilder(remoteExecutionPlanFactory, nextRemoteIdSupplier, remoteColManager,
+          remoteWireManager, remoteSampleDetails);
       Pair<RExecutionPlanStep, List<RExecutionPlanStep>> whereResult = whereHandler.build(executionRequest.getWhere());
 
       // let the WHERE steps provide the Row IDs to the RowIdSink.
@@ -303,7 +318,8 @@ public class ExecutionPlanner {
     FlattenStep flattenStep = null;
     if (executionRequest.getFromRequest().isFlattened()) {
       flattenStep = executablePlanFactory.createFlattenStep(nextMasterIdSupplier.get(),
-          executionRequest.getFromRequest().getTable(), executionRequest.getFromRequest().getFlattenByField());
+          executionRequest.getFromRequest().getTable(), executionRequest.getFromRequest().getFlattenByField(),
+          findReferencedTableColumns(executionRequest, columnInfo));
       allMasterSteps.add(flattenStep);
     }
 
@@ -403,6 +419,41 @@ public class ExecutionPlanner {
     return plan;
   }
 
+  /**
+   * @return The names of all columns of the queried table that the given request references (either directly or as
+   *         parameters of functions). Columns that are created by functions are not included. Names of repeated columns
+   *         might be returned in their pattern form (e.g. "a[*].b").
+   */
+  private Set<String> findReferencedTableColumns(ExecutionRequest executionRequest,
+      Map<String, PlannerColumnInfo> columnInfo) {
+    Set<String> res = new HashSet<>();
+
+    for (PlannerColumnInfo colInfo : columnInfo.values())
+      res.addAll(colInfo.getDependsOnColumns());
+
+    if (executionRequest.getWhere() != null) {
+      for (Leaf leaf : executionRequest.getWhere().findRecursivelyAllOfType(Leaf.class)) {
+        res.add(leaf.getLeftColumnName());
+        if (leaf.getRight().getType().equals(ColumnOrValue.Type.COLUMN))
+          res.add(leaf.getRight().getColumnName());
+      }
+    }
+
+    if (executionRequest.getGroup() != null)
+      res.addAll(executionRequest.getGroup().getGroupColumns());
+
+    if (executionRequest.getOrder() != null)
+      for (Pair<String, Boolean> orderPair : executionRequest.getOrder().getColumns())
+        res.add(orderPair.getLeft());
+
+    for (ResolveValueRequest resolveValue : executionRequest.getResolveValues())
+      if (resolveValue.getResolve().getType().equals(ColumnOrValue.Type.COLUMN))
+        res.add(resolveValue.getResolve().getColumnName());
+
+    res.removeAll(columnInfo.keySet());
+    return res;
+  }
+
   private ExecutablePlanInfo createInfo(ExecutionRequest executionRequest) {
     List<String> selectedCols = executionRequest.getResolveValues().stream()
         .map(res -> res.getResolve().getColumnName()).collect(Collectors.toList());
@@ -412,8 +463,12 @@ public class ExecutionPlanner {
     boolean isOrdered = executionRequest.getOrder() != null;
     boolean isGrouped = executionRequest.getGroup() != null;
     boolean having = executionRequest.getHaving() != null;
+    Double sampleFraction =
+        (executionRequest.getSample() != null) ? executionRequest.getSample().getFraction() : null;
+    boolean explain = executionRequest.getExplain() != null;
+    boolean explainAnalyze = ExplainMode.ANALYZE.equals(executionRequest.getExplain());
 
     return executablePlanFactory.createExecutablePlanInfo(selectedCols, selectionRequests, isOrdered, isGrouped,
-        having);
+        having, sampleFraction, explain, explainAnalyze);
   }
 }
@@ -67,16 +67,20 @@ public class MasterColumnManager implements ColumnManager<ExecutablePlanStep> {
   private MasterWireManager masterWireManager;
   private ExecutablePlanStep columnValuesProvidingStep;
   private ColumnVersionManager columnVersionManager;
+  private Double sampleFraction;
 
   /**
    * @param remoteResolveManager
    *          This {@link RemoteResolveManager} will be fed with those columns that need to be available on the master
    *          and therefore need to be resolved on the remotes. Please note the JavaDoc of {@link #prepareBuild()}.
+   * @param sampleFraction
+   *          <code>null</code> or the fraction of the table that is sampled by the remotes. Aggregation results will be
+   *          scaled accordingly.
    */
   public MasterColumnManager(ExecutionEnvironment masterExecutuionEnvironment,
       Supplier<Integer> nextMasterStepIdSupplier, ExecutablePlanFactory executablePlanFactory,
       ColumnVersionManager columnVersionManager, Map<String, PlannerColumnInfo> columnInfo,
-      RemoteResolveManager remoteResolveManager, MasterWireManager masterWireManager) {
+      RemoteResolveManager remoteResolveManager, MasterWireManager masterWireManager, Double sampleFraction) {
     this.env = masterExecutuionEnvironment;
     this.nextMasterStepIdSupplier = nextMasterStepIdSupplier;
     this.executablePlanFactory = executablePlanFactory;
@@ -84,6 +88,7 @@ public class MasterColumnManager implements ColumnManager<ExecutablePlanStep> {
     this.remoteResolveManager = remoteResolveManager;
     this.masterWireManager = masterWireManager;
     this.columnVersionManager = columnVersionManager;
+    this.sampleFraction = sampleFraction;
   }
 
   @Override
@@ -116,7 +121,8 @@ public class MasterColumnManager implements ColumnManager<ExecutablePlanStep> {
       // columns early.
       GroupFinalAggregationStep finalStep =
           executablePlanFactory.createGroupFinalAggregationStep(nextMasterStepIdSupplier.get(), env,
-              fnReq.getFunctionName(), fnReq.getOutputColumn(), columnVersionManager, constantFunctionParams);
+              fnReq.getFunctionName(), fnReq.getOutputColumn(), columnVersionManager, constantFunctionParams,
+              sampleFraction);
 
       functionMasterSteps.put(fnReq.getOutputColumn(),
           new ArrayList<>(Arrays.asList(new ExecutablePlanStep[] { finalStep })));
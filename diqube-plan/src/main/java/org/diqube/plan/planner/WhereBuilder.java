@@ -33,6 +33,7 @@ import org.diqube.diql.request.ComparisonRequest.Or;
 import org.diqube.execution.consumers.RowIdConsumer;
 import org.diqube.plan.RemoteExecutionPlanFactory;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStepDetailsSample;
 import org.diqube.remote.cluster.thrift.RExecutionPlanStepType;
 import org.diqube.util.ColumnOrValue;
 import org.diqube.util.Pair;
@@ -49,13 +50,22 @@ public class WhereBuilder implements ComparisonRequestBuilder<RExecutionPlanStep
   private Supplier<Integer> nextRemoteStepIdSupplier;
   private ColumnManager<RExecutionPlanStep> columnManager;
   private RemoteWireManager remoteWireManager;
+  private RExecutionPlanStepDetailsSample sampleDetails;
 
+  /**
+   * @param sampleDetails
+   *          If the query is executed on a sample of the table, the details of that sample. The steps comparing column
+   *          values will then inspect only the pages containing sampled rows. <code>null</code> if the full table is
+   *          queried.
+   */
   public WhereBuilder(RemoteExecutionPlanFactory remoteExecutionPlanFactory, Supplier<Integer> nextRemoteStepIdSupplier,
-      ColumnManager<RExecutionPlanStep> columnManager, RemoteWireManager remoteWireManager) {
+      ColumnManager<RExecutionPlanStep> columnManager, RemoteWireManager remoteWireManager,
+      RExecutionPlanStepDetailsSample sampleDetails) {
     this.remoteExecutionPlanFactory = remoteExecutionPlanFactory;
     this.nextRemoteStepIdSupplier = nextRemoteStepIdSupplier;
     this.columnManager = columnManager;
     this.remoteWireManager = remoteWireManager;
+    this.sampleDetails = sampleDetails;
   }
 
   @Override
@@ -88,6 +98,8 @@ public class WhereBuilder implements ComparisonRequestBuilder<RExecutionPlanStep
               // TODO #21 support BETWEEN
               }
               res = remoteExecutionPlanFactory.createRowIdComparison(leaf, nextRemoteStepIdSupplier.get(), type);
+              if (sampleDetails != null)
+                res.setDetailsSample(new RExecutionPlanStepDetailsSample(sampleDetails));
 
               // if this step is based on any column that needs to be created (as we're in the where stmt which
               // cannot contain aggregate functions, these columns that need to be created need to be
@@ -40,6 +40,8 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
+
 import org.diqube.config.Config;
 import org.diqube.config.ConfigKey;
 import org.diqube.context.AutoInstatiate;
@@ -47,6 +49,8 @@ import org.diqube.context.InjectOptional;
 import org.diqube.function.IntermediaryResult;
 import org.diqube.listeners.providers.OurNodeAddressStringProvider;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
+import org.diqube.queries.memory.MemoryManager;
+import org.diqube.queries.memory.QueryMemoryTracker;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +81,7 @@ public class QueryRegistry {
   private ConcurrentMap<UUID, Deque<QueryPercentHandler>> percentHandlers = new ConcurrentHashMap<>();
   private ConcurrentMap<UUID, QueryStatsManager> queryStats = new ConcurrentHashMap<>();
   private ConcurrentMap<UUID, Map<UUID, QueryStatsListener>> queryStatsListeners = new ConcurrentHashMap<>();
+  private ConcurrentMap<UUID, QueryMemoryTracker> memoryTrackers = new ConcurrentHashMap<>();
 
   @Config(ConfigKey.OUR_HOST)
   private String ourHost;
@@ -87,6 +92,9 @@ public class QueryRegistry {
   @InjectOptional
   private OurNodeAddressStringProvider ourNodeAddressProvider;
 
+  @Inject
+  private MemoryManager memoryManager;
+
   /**
    * Register a query, its execution and its exception handler. Note that for the query
    * {@link #unregisterQueryExecution(UUID)} has to be called. For query UUID/execution UUID, see {@link QueryUuid} and
@@ -191,6 +199,7 @@ public class QueryRegistry {
   public void unregisterQueryExecution(UUID queryUuid, UUID executionUuid) {
     logger.trace("Unregistering query {} execution {}", queryUuid, executionUuid);
     queryExecutionInformation.remove(new Pair<>(queryUuid, executionUuid));
+    releaseMemory(executionUuid);
     queryStats.remove(executionUuid);
     if (queryStatsListeners.containsKey(queryUuid)) {
       synchronized (queryStatsListeners) {
@@ -234,8 +243,10 @@ public class QueryRegistry {
       percentHandlers.remove(queryUuid);
     }
     synchronized (queryStats) {
-      for (UUID executionUuid : executionUuids)
+      for (UUID executionUuid : executionUuids) {
+        releaseMemory(executionUuid);
         queryStats.remove(executionUuid);
+      }
     }
     synchronized (queryUuid) {
       resultHandlers.remove(queryUuid);
@@ -336,6 +347,28 @@ public class QueryRegistry {
     return queryStats.get(executionUuid);
   }
 
+  /**
+   * @return The {@link QueryMemoryTracker} of the current query execution, there is one created if not yet available.
+   *         The memory tracked is released as soon as the query execution is unregistered.
+   * @throws IllegalStateException
+   *           If current queryUuid or executionUuid cannot be found.
+   */
+  public QueryMemoryTracker getOrCreateCurrentMemoryTracker() throws IllegalStateException {
+    UUID queryUuid = QueryUuid.getCurrentQueryUuid();
+    UUID executionUuid = QueryUuid.getCurrentExecutionUuid();
+    if (queryUuid == null || executionUuid == null)
+      throw new IllegalStateException("No current query and execution!");
+    QueryStatsManager statsManager = getOrCreateStatsManager(queryUuid, executionUuid);
+    return memoryTrackers.computeIfAbsent(executionUuid,
+        uuid -> new QueryMemoryTracker(memoryManager, statsManager));
+  }
+
+  private void releaseMemory(UUID executionUuid) {
+    QueryMemoryTracker tracker = memoryTrackers.remove(executionUuid);
+    if (tracker != null)
+      tracker.releaseAll();
+  }
+
   /**
    * Add a listener which gets informed when query remotes inform about their query statistics on the given query UUID.
    */
@@ -48,12 +48,22 @@ public class QueryStats {
 
   private Map<String, Integer> numberOfTemporaryVersionsPerColName;
 
+  private int numberOfDoubleDictPageCacheHits;
+
+  private int numberOfDoubleDictPageCacheMisses;
+
+  private long peakRetainedBytes;
+
+  private Map<Integer, QueryStepStats> stepStats;
+
   private String nodeName;
 
   public QueryStats(String nodeName, long startedUntilDoneMs, Map<Integer, Long> stepThreadActiveMs,
       int numberOfThreads, int numberOfTemporaryColumnShardsCreated, int numberOfTemporaryColumnShardsFromCache,
       Map<String, Integer> pageAccess, Map<String, Integer> temporaryPageAccess, int numberOfPagesInTable,
-      int numberOfTemporaryPages, Map<String, Integer> numberOfTemporaryVersionsPerColName) {
+      int numberOfTemporaryPages, Map<String, Integer> numberOfTemporaryVersionsPerColName,
+      int numberOfDoubleDictPageCacheHits, int numberOfDoubleDictPageCacheMisses, long peakRetainedBytes,
+      Map<Integer, QueryStepStats> stepStats) {
     this.nodeName = nodeName;
     this.startedUntilDoneMs = startedUntilDoneMs;
     this.stepThreadActiveMs = stepThreadActiveMs;
@@ -65,6 +75,10 @@ public class QueryStats {
     this.numberOfPagesInTable = numberOfPagesInTable;
     this.numberOfTemporaryPages = numberOfTemporaryPages;
     this.numberOfTemporaryVersionsPerColName = numberOfTemporaryVersionsPerColName;
+    this.numberOfDoubleDictPageCacheHits = numberOfDoubleDictPageCacheHits;
+    this.numberOfDoubleDictPageCacheMisses = numberOfDoubleDictPageCacheMisses;
+    this.peakRetainedBytes = peakRetainedBytes;
+    this.stepStats = stepStats;
   }
 
   public long getStartedUntilDoneMs() {
@@ -107,6 +121,29 @@ public class QueryStats {
     return numberOfTemporaryVersionsPerColName;
   }
 
+  public int getNumberOfDoubleDictPageCacheHits() {
+    return numberOfDoubleDictPageCacheHits;
+  }
+
+  public int getNumberOfDoubleDictPageCacheMisses() {
+    return numberOfDoubleDictPageCacheMisses;
+  }
+
+  /**
+   * @return Peak number of bytes held in intermediate data structures of the query execution, see
+   *         {@link QueryStepStats#getRetainedBytes()}.
+   */
+  public long getPeakRetainedBytes() {
+    return peakRetainedBytes;
+  }
+
+  /**
+   * @return {@link QueryStepStats} by step ID.
+   */
+  public Map<Integer, QueryStepStats> getStepStats() {
+    return stepStats;
+  }
+
   public String getNodeName() {
     return nodeName;
   }
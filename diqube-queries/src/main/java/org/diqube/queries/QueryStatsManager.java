@@ -23,9 +23,12 @@ package org.diqube.queries;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.diqube.data.column.ColumnPage;
 
@@ -34,6 +37,11 @@ import org.diqube.data.column.ColumnPage;
  * 
  * Each query typically has an instance of this {@link QueryStatsManager} to collects its stats. That instance is
  * available through {@link QueryRegistry}.
+ * 
+ * <p>
+ * Some of the statistics are collected per step of the executable plan ({@link QueryStepStats}). Those that are not
+ * reported with an explicit step ID are attributed to the step that the current thread works for, see
+ * {@link QueryUuid#getCurrentStepId()}.
  *
  * @author Bastian Gloeckle
  */
@@ -62,6 +70,14 @@ public class QueryStatsManager {
 
   private Map<String, Integer> numberOfTemporaryVersionsPerColName = new ConcurrentHashMap<>();
 
+  private AtomicInteger numberOfDoubleDictPageCacheHits = new AtomicInteger(0);
+
+  private AtomicInteger numberOfDoubleDictPageCacheMisses = new AtomicInteger(0);
+
+  private ConcurrentMap<Integer, StepStatsCollector> stepStats = new ConcurrentHashMap<>();
+
+  private LongAccumulator peakRetainedBytes = new LongAccumulator(Long::max, 0L);
+
   private String nodeName;
 
   public QueryStatsManager(String nodeName) {
@@ -72,6 +88,47 @@ public class QueryStatsManager {
     stepThreadActiveMs.merge(stepId, activeMs, (oldActive, newActive) -> oldActive + newActive);
   }
 
+  public void addStepWaitingMs(int stepId, long waitingMs) {
+    stepStats(stepId).waitingMs.add(waitingMs);
+  }
+
+  public void addStepAllocatedBytes(int stepId, long allocatedBytes) {
+    stepStats(stepId).allocatedBytes.add(allocatedBytes);
+  }
+
+  public void addStepRowsIn(int stepId, long numberOfRows) {
+    stepStats(stepId).rowsIn.add(numberOfRows);
+  }
+
+  public void addStepRowsOut(int stepId, long numberOfRows) {
+    stepStats(stepId).rowsOut.add(numberOfRows);
+  }
+
+  /**
+   * The given step currently holds the given number of bytes in its intermediate data structures, see
+   * QueryMemoryTracker.
+   */
+  public void updateStepRetainedBytes(int stepId, long retainedBytes) {
+    stepStats(stepId).retainedBytes.accumulate(retainedBytes);
+  }
+
+  /**
+   * The query execution currently holds the given number of bytes in intermediate data structures, see
+   * QueryMemoryTracker.
+   */
+  public void updatePeakRetainedBytes(long retainedBytes) {
+    peakRetainedBytes.accumulate(retainedBytes);
+  }
+
+  /**
+   * The current step inspected a page, but skipped it, as it cannot contain any interesting rows.
+   */
+  public void registerPagePruned() {
+    StepStatsCollector currentStepStats = currentStepStats();
+    if (currentStepStats != null)
+      currentStepStats.pagesPruned.increment();
+  }
+
   public void setNumberOfThreads(int numberOfThreads) {
     this.numberOfThreads = numberOfThreads;
   }
@@ -82,6 +139,23 @@ public class QueryStatsManager {
 
   public void incNumberOfTemporaryColumnShardsFromCache() {
     numberOfTemporaryColumnShardsFromCache.incrementAndGet();
+    StepStatsCollector currentStepStats = currentStepStats();
+    if (currentStepStats != null)
+      currentStepStats.cacheHits.increment();
+  }
+
+  public void incNumberOfDoubleDictPageCacheHits() {
+    numberOfDoubleDictPageCacheHits.incrementAndGet();
+    StepStatsCollector currentStepStats = currentStepStats();
+    if (currentStepStats != null)
+      currentStepStats.cacheHits.increment();
+  }
+
+  public void incNumberOfDoubleDictPageCacheMisses() {
+    numberOfDoubleDictPageCacheMisses.incrementAndGet();
+    StepStatsCollector currentStepStats = currentStepStats();
+    if (currentStepStats != null)
+      currentStepStats.cacheMisses.increment();
   }
 
   public void setStepThreadActiveMs(ConcurrentMap<Integer, Long> stepThreadActiveMs) {
@@ -99,6 +173,10 @@ public class QueryStatsManager {
   public void registerPageAccess(ColumnPage page, boolean isTempColumn) {
     Integer objectId = System.identityHashCode(page);
     pageNames.putIfAbsent(objectId, page.getName());
+
+    StepStatsCollector currentStepStats = currentStepStats();
+    if (currentStepStats != null && currentStepStats.accessedPages.add(objectId))
+      currentStepStats.bytesDecompressed.add(page.calculateApproximateSizeInBytes());
     if (isTempColumn) {
       if (!temporaryPageAccess.containsKey(objectId)) {
         synchronized (temporaryPageAccess) {
@@ -147,9 +225,15 @@ public class QueryStatsManager {
 
     long startedUntilDoneMs = (long) ((completedNanos - startedNanos) / 1e6);
 
+    Map<Integer, QueryStepStats> stepStats = new HashMap<>();
+    for (Entry<Integer, StepStatsCollector> stepStatsEntry : this.stepStats.entrySet())
+      stepStats.put(stepStatsEntry.getKey(), stepStatsEntry.getValue().createQueryStepStats());
+
     return new QueryStats(nodeName, startedUntilDoneMs, new HashMap<>(stepThreadActiveMs), numberOfThreads,
         numberOfTemporaryColumnShardsCreated.get(), numberOfTemporaryColumnShardsFromCache.get(), pageAccess, temporaryPageAccess,
-        numberOfPagesInTable, numberOfTemporaryPages, numberOfTemporaryVersionsPerColName);
+        numberOfPagesInTable, numberOfTemporaryPages, numberOfTemporaryVersionsPerColName,
+        numberOfDoubleDictPageCacheHits.get(), numberOfDoubleDictPageCacheMisses.get(), peakRetainedBytes.get(),
+        stepStats);
   }
 
   public void setStartedNanos(long startedNanos) {
@@ -172,4 +256,39 @@ public class QueryStatsManager {
     return nodeName;
   }
 
+  private StepStatsCollector stepStats(int stepId) {
+    return stepStats.computeIfAbsent(stepId, id -> new StepStatsCollector());
+  }
+
+  /**
+   * @return The collector of the step the current thread works for or <code>null</code>.
+   */
+  private StepStatsCollector currentStepStats() {
+    Integer stepId = QueryUuid.getCurrentStepId();
+    if (stepId == null)
+      return null;
+    return stepStats(stepId);
+  }
+
+  /**
+   * Collects the values of a {@link QueryStepStats} while the query is executing.
+   */
+  private static class StepStatsCollector {
+    private LongAdder rowsIn = new LongAdder();
+    private LongAdder rowsOut = new LongAdder();
+    private Set<Integer> accessedPages = ConcurrentHashMap.newKeySet();
+    private LongAdder pagesPruned = new LongAdder();
+    private LongAdder bytesDecompressed = new LongAdder();
+    private LongAdder waitingMs = new LongAdder();
+    private LongAdder allocatedBytes = new LongAdder();
+    private LongAdder cacheHits = new LongAdder();
+    private LongAdder cacheMisses = new LongAdder();
+    private LongAccumulator retainedBytes = new LongAccumulator(Long::max, 0L);
+
+    private QueryStepStats createQueryStepStats() {
+      return new QueryStepStats(rowsIn.sum(), rowsOut.sum(), accessedPages.size(), pagesPruned.sum(),
+          bytesDecompressed.sum(), waitingMs.sum(), allocatedBytes.sum(), cacheHits.sum(), cacheMisses.sum(),
+          retainedBytes.get());
+    }
+  }
 }
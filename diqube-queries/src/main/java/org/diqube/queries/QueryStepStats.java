@@ -0,0 +1,150 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.queries;
+
+/**
+ * Statistics about the execution of a single step of an executable plan, part of {@link QueryStats}.
+ * 
+ * <p>
+ * If a step is executed multiple times (e.g. once for each table shard on a query remote or on multiple query
+ * remotes), the values can be summed up using {@link #add(QueryStepStats)}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class QueryStepStats {
+  private long rowsIn;
+
+  private long rowsOut;
+
+  private long pagesScanned;
+
+  private long pagesPruned;
+
+  private long bytesDecompressed;
+
+  private long waitingMs;
+
+  private long allocatedBytes;
+
+  private long cacheHits;
+
+  private long cacheMisses;
+
+  private long retainedBytes;
+
+  public QueryStepStats(long rowsIn, long rowsOut, long pagesScanned, long pagesPruned, long bytesDecompressed,
+      long waitingMs, long allocatedBytes, long cacheHits, long cacheMisses, long retainedBytes) {
+    this.rowsIn = rowsIn;
+    this.rowsOut = rowsOut;
+    this.pagesScanned = pagesScanned;
+    this.pagesPruned = pagesPruned;
+    this.bytesDecompressed = bytesDecompressed;
+    this.waitingMs = waitingMs;
+    this.allocatedBytes = allocatedBytes;
+    this.cacheHits = cacheHits;
+    this.cacheMisses = cacheMisses;
+    this.retainedBytes = retainedBytes;
+  }
+
+  /**
+   * @return A new {@link QueryStepStats} object containing the sum of the values of this and the other object.
+   */
+  public QueryStepStats add(QueryStepStats other) {
+    return new QueryStepStats(rowsIn + other.rowsIn, rowsOut + other.rowsOut, pagesScanned + other.pagesScanned,
+        pagesPruned + other.pagesPruned, bytesDecompressed + other.bytesDecompressed, waitingMs + other.waitingMs,
+        allocatedBytes + other.allocatedBytes, cacheHits + other.cacheHits, cacheMisses + other.cacheMisses,
+        retainedBytes + other.retainedBytes);
+  }
+
+  /**
+   * @return Number of rows (row IDs, values, group members etc.) the step received from its input steps.
+   */
+  public long getRowsIn() {
+    return rowsIn;
+  }
+
+  /**
+   * @return Number of rows (row IDs, values, group members etc.) the step provided to its output steps. If a step has
+   *         multiple outputs, the rows are counted for each of them.
+   */
+  public long getRowsOut() {
+    return rowsOut;
+  }
+
+  /**
+   * @return Number of distinct column pages the step accessed.
+   */
+  public long getPagesScanned() {
+    return pagesScanned;
+  }
+
+  /**
+   * @return Number of column pages the step inspected, but skipped, as they cannot contain any interesting rows.
+   */
+  public long getPagesPruned() {
+    return pagesPruned;
+  }
+
+  /**
+   * @return Approximate size of the (compressed) column pages whose values were decompressed by the step.
+   */
+  public long getBytesDecompressed() {
+    return bytesDecompressed;
+  }
+
+  /**
+   * @return Milliseconds the thread of the step was blocked waiting for new input.
+   */
+  public long getWaitingMs() {
+    return waitingMs;
+  }
+
+  /**
+   * @return Bytes allocated by the thread of the step while it was active. Does not include allocations of other
+   *         threads the step uses (e.g. for parallel streams). 0 if the JVM does not support measuring this.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * @return Number of cache hits (temporary column cache and double dictionary page cache) while executing the step.
+   */
+  public long getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * @return Number of cache misses (double dictionary page cache) while executing the step.
+   */
+  public long getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /**
+   * @return Peak number of bytes the step held in its intermediate data structures (groups, rows being ordered,
+   *         temporary columns). If multiple executions of the step have been {@link #add(QueryStepStats) summed up},
+   *         this is the sum of their peaks.
+   */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+}
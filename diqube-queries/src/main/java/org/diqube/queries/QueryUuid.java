@@ -37,11 +37,17 @@ import org.diqube.util.Pair;
  * used for computing some part of the execution pipelines (e.g. when using parallel {@link Stream}s), you need to make
  * sure to populate the state correctly to those threads (see {@link #getCurrentThreadState()},
  * {@link #setCurrentThreadState(QueryUuidThreadState)} and {@link QueryUuidThreadState}).
+ * 
+ * <p>
+ * In addition to the UUIDs, the ID of the step of the executable plan that is currently being executed can be managed
+ * by this class (see {@link #setCurrentStepId(Integer)}). This is used to attribute statistics to single steps. It is
+ * part of the {@link QueryUuidThreadState}, too.
  *
  * @author Bastian Gloeckle
  */
 public class QueryUuid {
   private static final ThreadLocal<Pair<UUID, UUID>> queryUuidThreadLocal = new ThreadLocal<>();
+  private static final ThreadLocal<Integer> stepIdThreadLocal = new ThreadLocal<>();
 
   /**
    * @param queryUuid
@@ -51,6 +57,7 @@ public class QueryUuid {
    */
   public static void setCurrentQueryUuidAndExecutionUuid(UUID queryUuid, UUID executionUuid) {
     queryUuidThreadLocal.set(new Pair<>(queryUuid, executionUuid));
+    stepIdThreadLocal.set(null);
   }
 
   /**
@@ -58,6 +65,23 @@ public class QueryUuid {
    */
   public static void clearCurrent() {
     queryUuidThreadLocal.set(null);
+    stepIdThreadLocal.set(null);
+  }
+
+  /**
+   * @param stepId
+   *          The ID of the step of the executable plan the current thread works for, can be <code>null</code>.
+   */
+  public static void setCurrentStepId(Integer stepId) {
+    stepIdThreadLocal.set(stepId);
+  }
+
+  /**
+   * @return The ID of the step of the executable plan the current thread works for or <code>null</code> if not
+   *         available.
+   */
+  public static Integer getCurrentStepId() {
+    return stepIdThreadLocal.get();
   }
 
   /**
@@ -88,7 +112,7 @@ public class QueryUuid {
    * @see QueryUuidThreadState
    */
   public static QueryUuidThreadState getCurrentThreadState() {
-    return new QueryUuidThreadState(getCurrentQueryUuid(), getCurrentExecutionUuid());
+    return new QueryUuidThreadState(getCurrentQueryUuid(), getCurrentExecutionUuid(), getCurrentStepId());
   }
 
   /**
@@ -101,8 +125,10 @@ public class QueryUuid {
   public static void setCurrentThreadState(QueryUuidThreadState state) {
     if (state.queryUuid == null && state.executionUuid == null)
       clearCurrent();
-    else
+    else {
       setCurrentQueryUuidAndExecutionUuid(state.queryUuid, state.executionUuid);
+      setCurrentStepId(state.stepId);
+    }
   }
 
   /**
@@ -142,10 +168,12 @@ public class QueryUuid {
   public static class QueryUuidThreadState {
     private UUID queryUuid;
     private UUID executionUuid;
+    private Integer stepId;
 
-    private QueryUuidThreadState(UUID queryUuid, UUID executionUuid) {
+    private QueryUuidThreadState(UUID queryUuid, UUID executionUuid, Integer stepId) {
       this.queryUuid = queryUuid;
       this.executionUuid = executionUuid;
+      this.stepId = stepId;
     }
   }
 
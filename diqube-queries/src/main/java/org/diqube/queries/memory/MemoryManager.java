@@ -0,0 +1,177 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.queries.memory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.diqube.config.Config;
+import org.diqube.config.ConfigKey;
+import org.diqube.context.AutoInstatiate;
+import org.diqube.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the memory budget of this node which is shared by the caches and the queries that are currently executed.
+ * 
+ * <p>
+ * Before caching an entry or building up a large intermediate data structure for a query, the corresponding amount of
+ * memory needs to be reserved here. Caches use {@link #tryReserve(MemoryPool, long)} and simply do not cache the entry
+ * if there is no memory left, queries use {@link QueryMemoryTracker} which fails the query in that case. All reserved
+ * memory has to be {@link #release(MemoryPool, long) released} again.
+ * 
+ * <p>
+ * The sizes reserved are the retained heap sizes of the objects, as calculated using
+ * {@link org.diqube.util.MemorySizeUtil}. The memory needed for the loaded tables is not part of the budget.
+ * 
+ * <p>
+ * The budget and the currently reserved memory are reported to {@link Metrics}.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class MemoryManager {
+  private static final Logger logger = LoggerFactory.getLogger(MemoryManager.class);
+
+  /** Fraction of the max heap size that is used as budget if the budget is not configured explicitly. */
+  private static final double DEFAULT_BUDGET_HEAP_FRACTION = .5;
+
+  private static final String BUDGET_METRIC = "memory_budget_bytes";
+
+  @Config(ConfigKey.MEMORY_BUDGET_MB)
+  private int budgetMb;
+
+  /** Budget in bytes, < 0 if no budget is enforced. */
+  private long budgetBytes;
+
+  private AtomicLong totalReservedBytes = new AtomicLong(0L);
+
+  private Map<MemoryPool, AtomicLong> reservedBytes = new EnumMap<>(MemoryPool.class);
+
+  @PostConstruct
+  public void initialize() {
+    if (budgetMb < 0)
+      budgetBytes = -1L;
+    else if (budgetMb == 0)
+      budgetBytes = (long) (Runtime.getRuntime().maxMemory() * DEFAULT_BUDGET_HEAP_FRACTION);
+    else
+      budgetBytes = budgetMb * 1024L * 1024L;
+
+    if (budgetBytes < 0)
+      logger.info("No memory budget enforced, memory usage of caches and queries is measured only.");
+    else
+      logger.info("Memory budget for caches and queries is {} MB.", budgetBytes / (1024L * 1024L));
+
+    for (MemoryPool pool : MemoryPool.values()) {
+      AtomicLong reserved = new AtomicLong(0L);
+      reservedBytes.put(pool, reserved);
+      Metrics.gauge(reservedMetricName(pool), () -> reserved.get());
+    }
+    Metrics.gauge(BUDGET_METRIC, () -> budgetBytes);
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    for (MemoryPool pool : MemoryPool.values())
+      Metrics.remove(reservedMetricName(pool));
+    Metrics.remove(BUDGET_METRIC);
+  }
+
+  /**
+   * Reserve memory, but only if it is available in the budget.
+   * 
+   * @return <code>true</code> if the memory was reserved, <code>false</code> if not enough memory was available.
+   */
+  public boolean tryReserve(MemoryPool pool, long bytes) {
+    return reserve(pool, bytes, false);
+  }
+
+  /**
+   * Reserve memory, regardless of whether it is available in the budget or not. This can be used if the memory is in
+   * use already anyway.
+   */
+  public void forceReserve(MemoryPool pool, long bytes) {
+    reserve(pool, bytes, true);
+  }
+
+  /**
+   * Reserve memory.
+   * 
+   * @param force
+   *          if <code>true</code> the memory is reserved even if it is not available in the budget.
+   * @return <code>true</code> if the memory was reserved.
+   */
+  public boolean reserve(MemoryPool pool, long bytes, boolean force) {
+    if (bytes <= 0)
+      return true;
+
+    while (true) {
+      long cur = totalReservedBytes.get();
+      if (!force && budgetBytes >= 0 && cur + bytes > budgetBytes)
+        return false;
+      if (totalReservedBytes.compareAndSet(cur, cur + bytes))
+        break;
+    }
+    reservedBytes.get(pool).addAndGet(bytes);
+    return true;
+  }
+
+  /**
+   * Release memory that was reserved before.
+   */
+  public void release(MemoryPool pool, long bytes) {
+    if (bytes <= 0)
+      return;
+
+    totalReservedBytes.addAndGet(-bytes);
+    reservedBytes.get(pool).addAndGet(-bytes);
+  }
+
+  /**
+   * @return The budget in bytes or a value &lt; 0 if no budget is enforced.
+   */
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  /**
+   * @return Number of bytes currently reserved in total.
+   */
+  public long getReservedBytes() {
+    return totalReservedBytes.get();
+  }
+
+  /**
+   * @return Number of bytes currently reserved in the given pool.
+   */
+  public long getReservedBytes(MemoryPool pool) {
+    return reservedBytes.get(pool).get();
+  }
+
+  private String reservedMetricName(MemoryPool pool) {
+    return Metrics.labeled("memory_reserved_bytes", "pool", pool.name().toLowerCase());
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.queries.memory;
+
+/**
+ * The consumers of the memory budget that is managed by {@link MemoryManager}.
+ *
+ * @author Bastian Gloeckle
+ */
+public enum MemoryPool {
+  /** Memory held by caches that can be dropped at any time (temporary columns, row ID filters, flattened tables). */
+  CACHES,
+
+  /** Memory held by intermediate data structures of queries that are currently being executed. */
+  QUERIES
+}
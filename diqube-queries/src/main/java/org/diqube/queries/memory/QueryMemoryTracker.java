@@ -0,0 +1,135 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.queries.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.diqube.queries.QueryRegistry;
+import org.diqube.queries.QueryStatsManager;
+import org.diqube.queries.QueryUuid;
+
+/**
+ * Tracks the memory that is held by the intermediate data structures of a single query execution (e.g. the groups of
+ * a GROUP BY, the rows being ordered or temporary columns).
+ * 
+ * <p>
+ * Each allocation is reserved in the {@link MemoryManager} ({@link MemoryPool#QUERIES}). If the budget of the node is
+ * used up, the query fails with a {@link MemoryBudgetExceededException}. The memory is attributed to the step the
+ * current thread works for (see {@link QueryUuid#getCurrentStepId()}) and the peak values per step and per execution
+ * are reported to the {@link QueryStatsManager}.
+ * 
+ * <p>
+ * Instances are available through {@link QueryRegistry}, which calls {@link #releaseAll()} as soon as the execution
+ * is done.
+ *
+ * @author Bastian Gloeckle
+ */
+public class QueryMemoryTracker {
+  private MemoryManager memoryManager;
+
+  private QueryStatsManager statsManager;
+
+  private AtomicLong currentBytes = new AtomicLong(0L);
+
+  private Map<Integer, AtomicLong> currentBytesPerStep = new ConcurrentHashMap<>();
+
+  private boolean released = false;
+
+  public QueryMemoryTracker(MemoryManager memoryManager, QueryStatsManager statsManager) {
+    this.memoryManager = memoryManager;
+    this.statsManager = statsManager;
+  }
+
+  /**
+   * Account for memory that the current step is about to hold.
+   * 
+   * @throws MemoryBudgetExceededException
+   *           If the memory budget of this node is used up. No memory is accounted in that case.
+   */
+  public void allocate(long bytes) throws MemoryBudgetExceededException {
+    if (bytes <= 0)
+      return;
+
+    synchronized (this) {
+      if (released)
+        // execution is done already, do not reserve anything anymore.
+        return;
+
+      if (!memoryManager.tryReserve(MemoryPool.QUERIES, bytes))
+        throw new MemoryBudgetExceededException("Query needs more memory than available in the memory budget of node "
+            + statsManager.getNodeName() + " (budget: " + memoryManager.getBudgetBytes()
+            + " bytes, currently reserved: " + memoryManager.getReservedBytes() + " bytes, requested " + bytes
+            + " bytes)");
+
+      statsManager.updatePeakRetainedBytes(currentBytes.addAndGet(bytes));
+
+      Integer stepId = QueryUuid.getCurrentStepId();
+      if (stepId != null) {
+        long stepBytes = currentBytesPerStep.computeIfAbsent(stepId, id -> new AtomicLong(0L)).addAndGet(bytes);
+        statsManager.updateStepRetainedBytes(stepId, stepBytes);
+      }
+    }
+  }
+
+  /**
+   * Account for memory that the current step does not hold anymore.
+   */
+  public void free(long bytes) {
+    if (bytes <= 0)
+      return;
+
+    synchronized (this) {
+      if (released)
+        return;
+
+      memoryManager.release(MemoryPool.QUERIES, bytes);
+      currentBytes.addAndGet(-bytes);
+
+      Integer stepId = QueryUuid.getCurrentStepId();
+      if (stepId != null) {
+        AtomicLong stepBytes = currentBytesPerStep.get(stepId);
+        if (stepBytes != null)
+          stepBytes.addAndGet(-bytes);
+      }
+    }
+  }
+
+  /**
+   * Release all memory that is still accounted to this query execution. No memory will be accounted anymore after this
+   * method was called.
+   */
+  public synchronized void releaseAll() {
+    if (released)
+      return;
+    released = true;
+    memoryManager.release(MemoryPool.QUERIES, currentBytes.getAndSet(0L));
+    currentBytesPerStep.clear();
+  }
+
+  /**
+   * @return Number of bytes currently accounted to this query execution.
+   */
+  public long getCurrentBytes() {
+    return currentBytes.get();
+  }
+}
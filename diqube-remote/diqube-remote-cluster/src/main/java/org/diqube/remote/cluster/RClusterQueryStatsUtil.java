@@ -20,8 +20,14 @@
  */
 package org.diqube.remote.cluster;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.diqube.queries.QueryStats;
+import org.diqube.queries.QueryStepStats;
 import org.diqube.remote.cluster.thrift.RClusterQueryStatistics;
+import org.diqube.remote.cluster.thrift.RClusterQueryStepStatistics;
 
 /**
  *
@@ -41,10 +47,36 @@ public class RClusterQueryStatsUtil {
     res.setNumberOfPagesInTable(queryStats.getNumberOfPagesInTable());
     res.setNumberOfTemporaryPages(queryStats.getNumberOfTemporaryPages());
     res.setNumberOfTemporaryVersionsPerColName(queryStats.getNumberOfTemporaryVersionsPerColName());
+    res.setNumberOfDoubleDictPageCacheHits(queryStats.getNumberOfDoubleDictPageCacheHits());
+    res.setNumberOfDoubleDictPageCacheMisses(queryStats.getNumberOfDoubleDictPageCacheMisses());
+    res.setPeakRetainedBytes(queryStats.getPeakRetainedBytes());
+
+    Map<Integer, RClusterQueryStepStatistics> stepStatistics = new HashMap<>();
+    for (Entry<Integer, QueryStepStats> e : queryStats.getStepStats().entrySet()) {
+      QueryStepStats stepStats = e.getValue();
+      stepStatistics.put(e.getKey(),
+          new RClusterQueryStepStatistics(stepStats.getRowsIn(), stepStats.getRowsOut(), stepStats.getPagesScanned(),
+              stepStats.getPagesPruned(), stepStats.getBytesDecompressed(), stepStats.getWaitingMs(),
+              stepStats.getAllocatedBytes(), stepStats.getCacheHits(), stepStats.getCacheMisses(),
+              stepStats.getRetainedBytes()));
+    }
+    res.setStepStatistics(stepStatistics);
     return res;
   }
 
   public static QueryStats createQueryStats(RClusterQueryStatistics remote) {
+    Map<Integer, QueryStepStats> stepStats = new HashMap<>();
+    if (remote.isSetStepStatistics())
+      for (Entry<Integer, RClusterQueryStepStatistics> e : remote.getStepStatistics().entrySet()) {
+        RClusterQueryStepStatistics stepStatistics = e.getValue();
+        stepStats.put(e.getKey(),
+            new QueryStepStats(stepStatistics.getRowsIn(), stepStatistics.getRowsOut(),
+                stepStatistics.getPagesScanned(), stepStatistics.getPagesPruned(),
+                stepStatistics.getBytesDecompressed(), stepStatistics.getWaitingMs(),
+                stepStatistics.getAllocatedBytes(), stepStatistics.getCacheHits(), stepStatistics.getCacheMisses(),
+                stepStatistics.getRetainedBytes()));
+      }
+
     QueryStats res = new QueryStats(remote.getNodeName(), //
         remote.getStartedUntilDoneMs(), //
         remote.getStepThreadActiveMs(), //
@@ -55,7 +87,11 @@ public class RClusterQueryStatsUtil {
         remote.getNumberOfTemporaryPageAccesses(), //
         remote.getNumberOfPagesInTable(), //
         remote.getNumberOfTemporaryPages(), //
-        remote.getNumberOfTemporaryVersionsPerColName());
+        remote.getNumberOfTemporaryVersionsPerColName(), //
+        remote.getNumberOfDoubleDictPageCacheHits(), //
+        remote.getNumberOfDoubleDictPageCacheMisses(), //
+        remote.isSetPeakRetainedBytes() ? remote.getPeakRetainedBytes() : 0L, //
+        stepStats);
     return res;
   }
 }
@@ -27,6 +27,20 @@ exception RConnectionUnknownException {
   1: string message
 }
 
+enum RConsensusMessageType {
+  REQUEST,
+  REPLY,
+  REPLY_EXCEPTION
+}
+
+// A single message of a batch: The same as the parameters of a call to request/reply/replyException.
+struct RConsensusMessage {
+  1: base.RUUID consensusConnectionEndpointId,
+  2: base.RUUID consensusRequestId,
+  3: RConsensusMessageType type,
+  4: binary data
+}
+
 service ClusterConsensusService {
   base.RUUID open(1: base.RUUID otherConsensusConnectionEndpointId, 2:base.RNodeAddress resultAddress)
   
@@ -37,4 +51,8 @@ service ClusterConsensusService {
   void reply(1: base.RUUID consensusConnectionEndpointId, 2: base.RUUID consensusRequestId, 3: binary data) throws (1: RConnectionUnknownException connectionUnknownException)
   
   void replyException(1: base.RUUID consensusConnectionEndpointId, 2: base.RUUID consensusRequestId, 3: binary data) throws (1: RConnectionUnknownException connectionUnknownException)
+
+  // Handles multiple requests/replies/exception replies at once. Returns the consensusRequestIds of those messages
+  // whose consensusConnectionEndpointId was unknown.
+  list<base.RUUID> batch(1: list<RConsensusMessage> messages)
 }
\ No newline at end of file
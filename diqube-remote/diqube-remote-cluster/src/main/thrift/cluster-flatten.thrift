@@ -37,7 +37,8 @@ struct ROptionalUuid {
 
 service ClusterFlattenService {
   void flattenAllLocalShards(1: base.RUUID flattenRequestId, 2: string tableName, 3: string flattenBy, 
-    4: list<base.RNodeAddress> otherFlatteners, 5: base.RNodeAddress resultAddress) throws (1: RFlattenException flattenException),
+    4: list<base.RNodeAddress> otherFlatteners, 5: base.RNodeAddress resultAddress, 
+    6: list<string> referencedColumns) throws (1: RFlattenException flattenException),
   
   void shardsFlattened(1: base.RUUID flattenRequestId, 
     2: map<i64, i64> origShardFirstRowIdToFlattenedNumberOfRowsDelta, 3: base.RNodeAddress flattener) throws (1: RRetryLaterException retryLaterException),
@@ -48,4 +49,9 @@ service ClusterFlattenService {
     3: base.RNodeAddress flattener)
     
   oneway void flattenFailed(1: base.RUUID flattenRequestId, 2: RFlattenException flattenException)
+  
+  oneway void flattenProgress(1: base.RUUID flattenRequestId, 2: i32 numberOfShardsFlattened, 
+    3: i32 numberOfShardsTotal, 4: base.RNodeAddress flattener)
+    
+  oneway void cancelFlatten(1: base.RUUID flattenRequestId, 2: base.RNodeAddress resultAddress)
 }
\ No newline at end of file
@@ -115,6 +115,16 @@ struct RExecutionPlanStepDetailsRowId {
   3: optional list<base.RValue> sortedValues
 }
 
+enum RExecutionPlanStepDetailsSampleType {
+  ROWS,
+  PAGES
+}
+
+struct RExecutionPlanStepDetailsSample {
+  1: RExecutionPlanStepDetailsSampleType sampleType,
+  2: double fraction // 0 < fraction <= 1
+}
+
 struct RExecutionPlanStepDetailsResolve {
   1: RCol column
 }
@@ -151,6 +161,7 @@ struct RExecutionPlanStep {
   6: optional RExecutionPlanStepDetailsOrder detailsOrder,          // set on type == ORDER
   7: optional RExecutionPlanStepDetailsGroup detailsGroup,          // set on type == GROUP
   8: optional RExecutionPlanStepDetailsFunction detailsFunction,    // set on type == PROJECT, GROUP_INTERMEDIATE_AGGREGATE and COLUMN_AGGREGATE
+  9: optional RExecutionPlanStepDetailsSample detailsSample,        // set on type == ROW_ID_SINK, ROW_ID_EQ etc if executing on a sample
 }
 
 struct RExecutionPlanFromFlattened {
@@ -170,6 +181,19 @@ struct RExecutionPlan {
 }
 
 
+struct RClusterQueryStepStatistics {
+  1: i64 rowsIn,
+  2: i64 rowsOut,
+  3: i64 pagesScanned,
+  4: i64 pagesPruned,
+  5: i64 bytesDecompressed,
+  6: i64 waitingMs,
+  7: i64 allocatedBytes,
+  8: i64 cacheHits,
+  9: i64 cacheMisses,
+  10: i64 retainedBytes
+}
+
 struct RClusterQueryStatistics {
   1: string nodeName,
   2: i64 startedUntilDoneMs,
@@ -181,7 +205,11 @@ struct RClusterQueryStatistics {
   8: map<string, i32> numberOfTemporaryPageAccesses,
   9: i32 numberOfPagesInTable,
   10: i32 numberOfTemporaryPages,
-  11: map<string, i32> numberOfTemporaryVersionsPerColName
+  11: map<string, i32> numberOfTemporaryVersionsPerColName,
+  12: i32 numberOfDoubleDictPageCacheHits,
+  13: i32 numberOfDoubleDictPageCacheMisses,
+  14: optional map<i32, RClusterQueryStepStatistics> stepStatistics,
+  15: optional i64 peakRetainedBytes
 }
 
 
@@ -0,0 +1,105 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.remote.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
+import org.diqube.thrift.base.thrift.RValue;
+
+/**
+ * Re-creates full {@link RResultTable}s from a series of {@link RResultTableDelta}s that were created by a
+ * {@link ResultTableDeltaBuilder}.
+ * 
+ * <p>
+ * If a delta was missed, no further deltas can be applied until the next delta that contains the full table (= one
+ * whose {@link RResultTableDelta#getBaseVersion()} is 0) is received, which the {@link ResultTableDeltaBuilder}
+ * creates regularly.
+ * 
+ * <p>
+ * One instance can be used for the deltas of one query only. This class is thread-safe.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ResultTableDeltaApplier {
+  private long version = 0L;
+  private List<String> columnNames;
+  private List<String> columnRequests;
+  private Double sampleFraction;
+  private Map<Long, List<RValue>> rows = new HashMap<>();
+  private List<Long> order = new ArrayList<>();
+
+  /**
+   * Apply the given delta.
+   * 
+   * @return The full table after applying the delta or <code>null</code> if the delta cannot be applied, because it is
+   *         based on a different version of the table than the one available in this instance (e.g. because a previous
+   *         delta was lost). In that case, the next delta containing the full table can be applied again.
+   */
+  public synchronized RResultTable apply(RResultTableDelta delta) {
+    if (delta.getBaseVersion() == 0L) {
+      // delta contains the full table, forget about what we had.
+      rows = new HashMap<>();
+      order = new ArrayList<>();
+    } else if (delta.getBaseVersion() != version)
+      return null;
+
+    if (delta.isSetColumnNames())
+      columnNames = delta.getColumnNames();
+    if (delta.isSetColumnRequests())
+      columnRequests = delta.getColumnRequests();
+    if (delta.isSetSampleFraction())
+      sampleFraction = delta.getSampleFraction();
+
+    List<Long> newRowIds = new ArrayList<>();
+    if (delta.isSetChangedRows())
+      for (Long rowId : delta.getChangedRows().keySet())
+        if (rows.put(rowId, delta.getChangedRows().get(rowId)) == null)
+          newRowIds.add(rowId);
+
+    List<Long> removedRowIds = (delta.isSetRemovedRowIds()) ? delta.getRemovedRowIds() : new ArrayList<>();
+    for (Long rowId : removedRowIds)
+      rows.remove(rowId);
+
+    if (delta.isSetRowOrder())
+      order = new ArrayList<>(delta.getRowOrder());
+    else
+      order = ResultTableDeltaBuilder.impliedOrder(order, removedRowIds, newRowIds);
+
+    version = delta.getVersion();
+
+    RResultTable res = new RResultTable();
+    res.setColumnNames(columnNames);
+    res.setColumnRequests(columnRequests);
+    if (sampleFraction != null)
+      res.setSampleFraction(sampleFraction);
+    List<List<RValue>> resRows = new ArrayList<>(order.size());
+    for (Long rowId : order)
+      if (rows.containsKey(rowId))
+        resRows.add(rows.get(rowId));
+    res.setRows(resRows);
+    return res;
+  }
+}
@@ -0,0 +1,209 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.remote.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
+import org.diqube.thrift.base.thrift.RValue;
+
+/**
+ * Creates {@link RResultTableDelta}s of consecutive versions of a result table, to be applied by a
+ * {@link ResultTableDeltaApplier} on the receiving side.
+ * 
+ * <p>
+ * Each call to {@link #createDelta(List, List, Double, List, Set, Function, boolean)} compares the rows that were
+ * updated to the rows of the previous call, so the size of a delta depends on the number of changes only and not on the
+ * size of the result table.
+ * 
+ * <p>
+ * As the receiver cannot apply any further deltas if it missed one, this builder regularly creates a delta containing
+ * the full table (one with {@link RResultTableDelta#getBaseVersion()} 0), which the receiver can apply regardless of
+ * the version it has. Such a full delta is created at least every {@link #DEFAULT_FULL_TABLE_INTERVAL} deltas and
+ * additionally as next delta after {@link #requestFullTable()} has been called (e.g. because sending a delta failed).
+ * 
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ResultTableDeltaBuilder {
+  /** Default number of deltas after which a delta containing the full table is created. */
+  public static final int DEFAULT_FULL_TABLE_INTERVAL = 10;
+
+  private int fullTableInterval;
+  private long version = 0L;
+  private int deltasSinceFullTable = 0;
+  private boolean fullTableRequested = false;
+  private Map<Long, List<RValue>> lastRows = new HashMap<>();
+  private List<Long> lastOrder = new ArrayList<>();
+
+  public ResultTableDeltaBuilder() {
+    this(DEFAULT_FULL_TABLE_INTERVAL);
+  }
+
+  /**
+   * @param fullTableInterval
+   *          Number of deltas after which a delta containing the full table is created.
+   */
+  public ResultTableDeltaBuilder(int fullTableInterval) {
+    this.fullTableInterval = fullTableInterval;
+  }
+
+  /**
+   * Create a delta of the given rows to the rows provided to the previous call of this method.
+   * 
+   * <p>
+   * This creates all rows using {@link RValue}s and compares all of them to the previous rows. Use
+   * {@link #createDelta(List, List, Double, List, Set, Function, boolean)} if it is known which rows were updated.
+   * 
+   * @param rows
+   *          The current rows of the table by row ID. If isOrdered, the iteration order of this map is the order of the
+   *          rows.
+   * @see #createDelta(List, List, Double, List, Set, Function, boolean)
+   */
+  public RResultTableDelta createDelta(List<String> columnNames, List<String> columnRequests, Double sampleFraction,
+      Map<Long, List<RValue>> rows, boolean isOrdered) {
+    return createDelta(columnNames, columnRequests, sampleFraction, new ArrayList<>(rows.keySet()), rows.keySet(),
+        rows::get, isOrdered);
+  }
+
+  /**
+   * Create a delta of the current rows to the rows provided to the previous call of this method.
+   * 
+   * @param columnNames
+   *          See {@link RResultTable#getColumnNames()}.
+   * @param columnRequests
+   *          See {@link RResultTable#getColumnRequests()}.
+   * @param sampleFraction
+   *          See {@link RResultTable#getSampleFraction()}, can be <code>null</code>.
+   * @param rowIds
+   *          The IDs of the rows that are currently contained in the table. If isOrdered, this is the order of the
+   *          rows.
+   * @param updatedRowIds
+   *          IDs of the rows whose values might have changed since the previous call. Rows that are neither contained
+   *          in this set nor new in the table are expected to be unchanged and will not be created.
+   * @param rowFactory
+   *          Creates the current values of the row with the given ID.
+   * @param isOrdered
+   *          <code>true</code> if the order of rowIds is relevant. If <code>false</code>, the order of the rows is kept
+   *          stable: New rows are appended to the end.
+   * @return The delta or <code>null</code> if nothing changed.
+   */
+  public RResultTableDelta createDelta(List<String> columnNames, List<String> columnRequests, Double sampleFraction,
+      List<Long> rowIds, Set<Long> updatedRowIds, Function<Long, List<RValue>> rowFactory, boolean isOrdered) {
+    Map<Long, List<RValue>> changedRows = new HashMap<>();
+    List<Long> newRowIds = new ArrayList<>();
+    for (Long rowId : rowIds) {
+      List<RValue> lastRow = lastRows.get(rowId);
+      if (lastRow != null && !updatedRowIds.contains(rowId))
+        continue;
+
+      List<RValue> row = rowFactory.apply(rowId);
+      if (!row.equals(lastRow)) {
+        changedRows.put(rowId, row);
+        lastRows.put(rowId, row);
+        if (lastRow == null)
+          newRowIds.add(rowId);
+      }
+    }
+
+    List<Long> removedRowIds = new ArrayList<>();
+    if (lastRows.size() != rowIds.size()) {
+      // lastRows contains all current rows now, therefore there are some rows that have been removed.
+      Set<Long> currentRowIds = new HashSet<>(rowIds);
+      for (Long lastRowId : lastRows.keySet())
+        if (!currentRowIds.contains(lastRowId))
+          removedRowIds.add(lastRowId);
+      for (Long removedRowId : removedRowIds)
+        lastRows.remove(removedRowId);
+    }
+
+    List<Long> impliedOrder = impliedOrder(lastOrder, removedRowIds, newRowIds);
+    List<Long> newOrder = (isOrdered) ? new ArrayList<>(rowIds) : impliedOrder;
+    boolean orderChanged = isOrdered && !newOrder.equals(impliedOrder);
+
+    if (version != 0L && !fullTableRequested && changedRows.isEmpty() && removedRowIds.isEmpty() && !orderChanged)
+      return null;
+
+    RResultTableDelta res = new RResultTableDelta();
+    res.setVersion(version + 1);
+    if (version == 0L || fullTableRequested || deltasSinceFullTable + 1 >= fullTableInterval) {
+      // full table: can be applied by the receiver regardless of which version it has.
+      res.setBaseVersion(0L);
+      res.setColumnNames(columnNames);
+      res.setColumnRequests(columnRequests);
+      if (sampleFraction != null)
+        res.setSampleFraction(sampleFraction);
+      Map<Long, List<RValue>> allRows = new HashMap<>();
+      for (Long rowId : newOrder)
+        allRows.put(rowId, lastRows.get(rowId));
+      res.setChangedRows(allRows);
+      res.setRemovedRowIds(new ArrayList<>());
+      res.setRowOrder(newOrder);
+
+      fullTableRequested = false;
+      deltasSinceFullTable = 0;
+    } else {
+      res.setBaseVersion(version);
+      res.setChangedRows(changedRows);
+      res.setRemovedRowIds(removedRowIds);
+      if (orderChanged)
+        res.setRowOrder(newOrder);
+      deltasSinceFullTable++;
+    }
+
+    version++;
+    lastOrder = newOrder;
+    return res;
+  }
+
+  /**
+   * Request the next delta that is created to contain the full table, e.g. because a previous delta could not be
+   * delivered to the receiver.
+   */
+  public void requestFullTable() {
+    fullTableRequested = true;
+  }
+
+  /**
+   * The order of rows after applying a delta that does not contain a {@link RResultTableDelta#getRowOrder()}: Rows
+   * keep their previous order, removed rows are removed and new rows are appended in ascending order of their row IDs.
+   */
+  /* package */ static List<Long> impliedOrder(List<Long> previousOrder, Collection<Long> removedRowIds,
+      Collection<Long> newRowIds) {
+    Set<Long> removed = new HashSet<>(removedRowIds);
+    List<Long> res = new ArrayList<>(previousOrder.size() + newRowIds.size());
+    for (Long rowId : previousOrder)
+      if (!removed.contains(rowId))
+        res.add(rowId);
+    newRowIds.stream().sorted().forEach(res::add);
+    return res;
+  }
+}
@@ -27,7 +27,30 @@ include "${diqube.thrift.dependencies}/base.thrift"
 struct RResultTable {
   1: list<string> columnNames, // the final names of the result columns.
   2: list<string> columnRequests, // the exact string that was used in the query to select the column. 
-  3: optional list<list<base.RValue>> rows
+  3: optional list<list<base.RValue>> rows,
+  // set if the query was executed on a sample of the table only (TABLESAMPLE). Fraction of the table that was 
+  // inspected, 0 < sampleFraction < 1. Values of count() and sum() have been scaled up accordingly.
+  4: optional double sampleFraction
+}
+
+// Changes of a RResultTable compared to a previous version of that table. Rows are identified by their row ID on the
+// query master (which is the group ID in case of grouped queries).
+struct RResultTableDelta {
+  // version of the table this delta needs to be applied to. 0 is the empty table, which means that the delta contains
+  // the full table and can be applied regardless of the version the receiver has.
+  1: i64 baseVersion,
+  // version of the table after applying this delta.
+  2: i64 version,
+  // set on deltas with baseVersion 0 only.
+  3: optional list<string> columnNames,
+  4: optional list<string> columnRequests,
+  5: optional double sampleFraction,
+  // rows that are new or whose values changed, by row ID.
+  6: map<i64, list<base.RValue>> changedRows,
+  // row IDs of rows that are not contained in the table anymore.
+  7: list<i64> removedRowIds,
+  // the row IDs of all rows of the table in the order they should be displayed. Set only if the order changed.
+  8: optional list<i64> rowOrder
 }
 
 exception RQueryException {
@@ -42,6 +65,17 @@ service QueryService {
                          5: base.RNodeAddress resultAddress) 
        throws (1: RQueryException queryException, 2: base.AuthenticationException authenticationException, 3:base.AuthorizationException authorizationException)
        
+  // Executes multiple queries on the same table. The results of each query are provided using the corresponding
+  // queryRUuid, just as if each query would have been executed with asyncExecuteQuery. Queries that share the same WHERE
+  // clause are scheduled in a way that the work for that WHERE clause (and for shared projections) is executed only
+  // once on the remotes. Each query can be cancelled separately using cancelQueryExecution.
+  void asyncExecuteQueryBatch(1: base.Ticket ticket,
+                              2: list<base.RUUID> queryRUuids, 
+                              3: list<string> diqls, 
+                              4: bool sendPartialUpdates, 
+                              5: base.RNodeAddress resultAddress) 
+       throws (1: RQueryException queryException, 2: base.AuthenticationException authenticationException, 3:base.AuthorizationException authorizationException)
+
   // Note: has to be sent to the same node that also received the asyncExecuteQuery call!
   void cancelQueryExecution(1: base.Ticket ticket, 2: base.RUUID queryRUuid) 
        throws (1: base.AuthenticationException authenticationException, 2:base.AuthorizationException authorizationException)
@@ -58,7 +92,10 @@ struct RQueryStatisticsDetails {
   8: map<string, i32> numberOfTemporaryPageAccesses,
   9: i32 numberOfPagesInTable,
   10: i32 numberOfTemporaryPages,
-  11: map<string, i32> numberOfTemporaryVersionsPerColName
+  11: map<string, i32> numberOfTemporaryVersionsPerColName,
+  12: i32 numberOfDoubleDictPageCacheHits,
+  13: i32 numberOfDoubleDictPageCacheMisses,
+  14: optional i64 peakRetainedBytes
 }  
 
 
@@ -69,6 +106,9 @@ struct RQueryStatistics {
 
 service QueryResultService {
   oneway void partialUpdate(1:base.RUUID queryRUuid, 2:RResultTable partialResult, 3:i16 percentComplete),
+  // Query masters provide partial updates as deltas to the previously sent partial update. The full table can be
+  // re-created by using org.diqube.remote.query.ResultTableDeltaApplier.
+  oneway void partialUpdateDelta(1:base.RUUID queryRUuid, 2:RResultTableDelta delta, 3:i16 percentComplete),
   oneway void queryResults(1:base.RUUID queryRUuid, 2:RResultTable finalResult),
   oneway void queryException(1:base.RUUID queryRUuid, 2:RQueryException exceptionThrown),
   oneway void queryStatistics(1:base.RUUID queryRuuid, 2: RQueryStatistics stats)
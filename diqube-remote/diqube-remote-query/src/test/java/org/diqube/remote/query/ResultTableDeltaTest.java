@@ -0,0 +1,188 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.remote.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
+import org.diqube.thrift.base.thrift.RValue;
+import org.diqube.thrift.base.util.RValueUtil;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ResultTableDeltaBuilder} and {@link ResultTableDeltaApplier}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ResultTableDeltaTest {
+  private static final List<String> COLS = Arrays.asList("a", "count()");
+
+  private ResultTableDeltaBuilder builder;
+  private ResultTableDeltaApplier applier;
+
+  @BeforeMethod
+  public void setup() {
+    builder = new ResultTableDeltaBuilder();
+    applier = new ResultTableDeltaApplier();
+  }
+
+  @Test
+  public void unorderedAppendsNewRows() {
+    // WHEN
+    RResultTable table1 = roundtrip(rows(1L, 10L, 2L, 20L), false);
+    RResultTableDelta delta2 = builder.createDelta(COLS, COLS, null, rows(2L, 21L, 1L, 10L, 0L, 5L), false);
+    RResultTable table2 = applier.apply(delta2);
+
+    // THEN
+    Assert.assertEquals(table1.getColumnNames(), COLS, "Expected column names to be set");
+    Assert.assertEquals(table1.getRows(), expectedRows(1L, 10L, 2L, 20L), "Expected correct rows");
+    Assert.assertEquals(delta2.getChangedRows().keySet(), new HashSet<>(Arrays.asList(2L, 0L)),
+        "Expected only changed rows to be contained in delta");
+    Assert.assertFalse(delta2.isSetRowOrder(), "Expected no order to be sent for unordered tables");
+    Assert.assertFalse(delta2.isSetColumnNames(), "Expected column names to be sent only once");
+    Assert.assertEquals(table2.getColumnNames(), COLS, "Expected column names to be kept");
+    Assert.assertEquals(table2.getRows(), expectedRows(1L, 10L, 2L, 21L, 0L, 5L),
+        "Expected new rows to be appended");
+  }
+
+  @Test
+  public void orderedReorders() {
+    // WHEN
+    roundtrip(rows(1L, 10L, 2L, 20L, 3L, 30L), true);
+    RResultTable table2 = roundtrip(rows(3L, 30L, 1L, 10L), true);
+
+    // THEN
+    Assert.assertEquals(table2.getRows(), expectedRows(3L, 30L, 1L, 10L), "Expected correct rows and order");
+  }
+
+  @Test
+  public void noChangeNoDelta() {
+    // WHEN
+    roundtrip(rows(1L, 10L), true);
+
+    // THEN
+    Assert.assertNull(builder.createDelta(COLS, COLS, null, rows(1L, 10L), true),
+        "Expected no delta if nothing changed");
+  }
+
+  @Test
+  public void missingDeltaDetected() {
+    // WHEN
+    builder.createDelta(COLS, COLS, null, rows(1L, 10L), true); // not applied
+    RResultTableDelta delta2 = builder.createDelta(COLS, COLS, null, rows(1L, 11L), true);
+
+    // THEN
+    Assert.assertNull(applier.apply(delta2), "Expected delta on wrong base version to not be applied");
+  }
+
+  @Test
+  public void missingDeltaRecoveredByRegularFullTable() {
+    // GIVEN
+    builder = new ResultTableDeltaBuilder(3);
+
+    // WHEN
+    roundtrip(rows(1L, 10L, 2L, 20L), false);
+    builder.createDelta(COLS, COLS, null, rows(1L, 11L, 2L, 20L, 0L, 5L), false); // not applied
+    RResultTable table3 = roundtrip(rows(1L, 11L, 2L, 21L, 0L, 5L), false);
+    RResultTableDelta delta4 = builder.createDelta(COLS, COLS, null, rows(1L, 11L, 2L, 22L, 0L, 5L), false);
+    RResultTable table4 = applier.apply(delta4);
+
+    // THEN
+    Assert.assertNull(table3, "Expected delta after missing delta to not be applied");
+    Assert.assertEquals(delta4.getBaseVersion(), 0L, "Expected full table to be sent regularly");
+    Assert.assertNotNull(table4, "Expected full table to be applied");
+    Assert.assertEquals(table4.getColumnNames(), COLS, "Expected column names to be set");
+    Assert.assertEquals(table4.getRows(), expectedRows(1L, 11L, 2L, 22L, 0L, 5L),
+        "Expected correct rows in stable order");
+
+    // WHEN
+    RResultTable table5 = roundtrip(rows(1L, 11L, 2L, 23L, 0L, 5L), false);
+
+    // THEN
+    Assert.assertEquals(table5.getRows(), expectedRows(1L, 11L, 2L, 23L, 0L, 5L),
+        "Expected deltas to be applied again after full table");
+  }
+
+  @Test
+  public void missingDeltaRecoveredByRequestedFullTable() {
+    // WHEN
+    roundtrip(rows(1L, 10L, 2L, 20L), true);
+    builder.createDelta(COLS, COLS, null, rows(2L, 20L, 1L, 10L), true); // not applied
+    builder.requestFullTable();
+    RResultTableDelta delta3 = builder.createDelta(COLS, COLS, null, rows(2L, 20L, 1L, 10L), true);
+    RResultTable table3 = applier.apply(delta3);
+
+    // THEN
+    Assert.assertNotNull(delta3, "Expected requested full table to be created although nothing changed");
+    Assert.assertEquals(delta3.getBaseVersion(), 0L, "Expected full table to be created");
+    Assert.assertEquals(table3.getRows(), expectedRows(2L, 20L, 1L, 10L), "Expected correct rows and order");
+  }
+
+  @Test
+  public void onlyUpdatedAndNewRowsAreCreated() {
+    // GIVEN
+    Map<Long, List<RValue>> rows = rows(1L, 10L, 2L, 20L, 3L, 30L);
+    List<Long> createdRowIds = new ArrayList<>();
+    roundtrip(rows, true);
+
+    // WHEN
+    rows.putAll(rows(2L, 21L, 4L, 40L));
+    RResultTableDelta delta2 = builder.createDelta(COLS, COLS, null, new ArrayList<>(rows.keySet()),
+        new HashSet<>(Arrays.asList(2L)), rowId -> {
+          createdRowIds.add(rowId);
+          return rows.get(rowId);
+        }, true);
+    RResultTable table2 = applier.apply(delta2);
+
+    // THEN
+    Assert.assertEquals(new HashSet<>(createdRowIds), new HashSet<>(Arrays.asList(2L, 4L)),
+        "Expected only updated and new rows to be created");
+    Assert.assertEquals(table2.getRows(), expectedRows(1L, 10L, 2L, 21L, 3L, 30L, 4L, 40L), "Expected correct rows");
+  }
+
+  private RResultTable roundtrip(Map<Long, List<RValue>> rows, boolean isOrdered) {
+    return applier.apply(builder.createDelta(COLS, COLS, null, rows, isOrdered));
+  }
+
+  /**
+   * @param rowIdAndValue
+   *          alternating row ID and value of column "count()". Column "a" will have the row ID as value.
+   */
+  private Map<Long, List<RValue>> rows(Long... rowIdAndValue) {
+    Map<Long, List<RValue>> res = new LinkedHashMap<>();
+    for (int i = 0; i < rowIdAndValue.length; i += 2)
+      res.put(rowIdAndValue[i],
+          Arrays.asList(RValueUtil.createRValue(rowIdAndValue[i]), RValueUtil.createRValue(rowIdAndValue[i + 1])));
+    return res;
+  }
+
+  private List<List<RValue>> expectedRows(Long... rowIdAndValue) {
+    return new ArrayList<>(rows(rowIdAndValue).values());
+  }
+}
@@ -24,20 +24,32 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import org.diqube.config.Config;
+import org.diqube.config.ConfigKey;
 import org.diqube.context.AutoInstatiate;
 import org.diqube.data.table.TableShard;
 import org.diqube.loader.LoadException;
 import org.diqube.server.control.ControlFileFactory;
 import org.diqube.server.control.ControlFileUnloader;
+import org.diqube.threads.ExecutorManager;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +68,9 @@ import org.slf4j.LoggerFactory;
  * failure file will contain details of the problem.
  * 
  * <p>
+ * Multiple control files can be deployed concurrently, see {@link #deployControlFiles(Collection)}.
+ * 
+ * <p>
  * The implementation is somewhat tightly connected to {@link NewDataWatcher}.
  * 
  * @author Bastian Gloeckle
@@ -71,21 +86,96 @@ public class ControlFileManager {
   @Inject
   private ControlFileFactory controlFileFactory;
 
+  @Inject
+  private ExecutorManager executorManager;
+
+  @Config(ConfigKey.CONTROL_FILE_DEPLOYMENT_THREADS)
+  private int deploymentThreads;
+
+  private int numberOfDeploymentThreads;
+
+  private ExecutorService deploymentExecutor;
+
   /**
    * Map from controlFile path to a pair of table name and a list of values of {@link TableShard#getLowestRowId()} of
    * the tableShards that were loaded from that file.
    */
-  private Map<String, Pair<String, List<Long>>> tableInfoByControlFilePath = new HashMap<>();
+  private Map<String, Pair<String, List<Long>>> tableInfoByControlFilePath = new ConcurrentHashMap<>();
+
+  /**
+   * Objects to synchronize on when (un-)deploying a specific control file, by control file path. This ensures that
+   * deployments and undeployments of the same control file do not overlap.
+   */
+  private ConcurrentMap<String, Object> controlFileSyncs = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void initialize() {
+    numberOfDeploymentThreads =
+        (deploymentThreads > 0) ? deploymentThreads : Runtime.getRuntime().availableProcessors();
+    deploymentExecutor =
+        executorManager.newFixedThreadPoolWithTimeout("control-file-deploy-%d", new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread t, Throwable e) {
+            logger.error("Uncaught exception while deploying a control file", e);
+          }
+        }, numberOfDeploymentThreads);
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    if (deploymentExecutor != null)
+      deploymentExecutor.shutdownNow();
+  }
+
+  /**
+   * Deploy multiple control files concurrently and wait until all of them are deployed.
+   * 
+   * <p>
+   * The control files are started to be deployed in the order of their file names, at most
+   * {@link ConfigKey#CONTROL_FILE_DEPLOYMENT_THREADS} at the same time. Changes to the same table are applied one after
+   * the other.
+   */
+  public void deployControlFiles(Collection<File> controlFiles) {
+    List<File> sortedControlFiles = new ArrayList<>(controlFiles);
+    sortedControlFiles.sort(Comparator.comparing(File::getName));
+
+    logger.info("Deploying {} control files using {} threads.", sortedControlFiles.size(), numberOfDeploymentThreads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (File controlFile : sortedControlFiles)
+      futures.add(deploymentExecutor.submit(() -> deployControlFile(controlFile)));
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        logger.info("Interrupted while waiting for control files to be deployed.");
+        futures.forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        logger.error("Could not deploy control file", e.getCause());
+      }
+    }
+  }
 
   /**
    * Fully deploy a specific control file (if possible) and maintain .ready file.
+   * 
+   * <p>
+   * This can be called concurrently for different control files.
    */
-  public synchronized void deployControlFile(File controlFile) {
-    if (tableInfoByControlFilePath.containsKey(controlFile.getAbsolutePath())) {
-      logger.info("Control file {} is loaded already. Skipping.", controlFile.getAbsolutePath());
-      return;
+  public void deployControlFile(File controlFile) {
+    synchronized (controlFileSync(controlFile)) {
+      if (tableInfoByControlFilePath.containsKey(controlFile.getAbsolutePath())) {
+        logger.info("Control file {} is loaded already. Skipping.", controlFile.getAbsolutePath());
+        return;
+      }
+
+      internalDeployControlFile(controlFile);
     }
+  }
 
+  private void internalDeployControlFile(File controlFile) {
     logger.info("Starting to load new table shard from control file {}.", controlFile.getAbsolutePath());
     try {
       Pair<String, List<Long>> tableInfo = controlFileFactory.createControlFileLoader(controlFile).load();
@@ -113,17 +203,19 @@ public class ControlFileManager {
   /**
    * Fully undeploy a specific control file and remove .ready file. This method is for a regular undeployment.
    */
-  public synchronized void undeployControlFile(File controlFile) {
-    if (internalUndeployControlFile(controlFile, true)) {
-      File readyFile = readyFile(controlFile);
-      if (readyFile.exists())
-        if (!readyFile.delete())
-          logger.warn("Could not delete ready file {}", readyFile.getAbsolutePath());
+  public void undeployControlFile(File controlFile) {
+    synchronized (controlFileSync(controlFile)) {
+      if (internalUndeployControlFile(controlFile, true)) {
+        File readyFile = readyFile(controlFile);
+        if (readyFile.exists())
+          if (!readyFile.delete())
+            logger.warn("Could not delete ready file {}", readyFile.getAbsolutePath());
 
-      File failure = failureFile(controlFile);
-      if (failure.exists())
-        if (!failure.delete())
-          logger.warn("Could not delete failure file {}", failureFile(controlFile));
+        File failure = failureFile(controlFile);
+        if (failure.exists())
+          if (!failure.delete())
+            logger.warn("Could not delete failure file {}", failureFile(controlFile));
+      }
     }
   }
 
@@ -171,22 +263,24 @@ public class ControlFileManager {
     }
 
     for (File controlFile : controlFiles) {
-      logger.info("Undeploying control file {} because of an error, writing {} file.", controlFile,
-          FAILURE_FILE_EXTENSION);
-
-      internalUndeployControlFile(controlFile, handleMetadataChange);
-
-      File readyFile = readyFile(controlFile);
-      if (readyFile.exists())
-        if (!readyFile.delete())
-          logger.warn("Could not delete ready file {}", readyFile.getAbsolutePath());
-
-      File failureFile = failureFile(controlFile);
-      if (!failureFile.exists()) {
-        try (FileOutputStream failureOS = new FileOutputStream(failureFile)) {
-          failureOS.write(errorDescription.getBytes(Charset.forName("UTF-8")));
-        } catch (IOException e) {
-          logger.warn("Could not write failure file {}", failureFile, e);
+      synchronized (controlFileSync(controlFile)) {
+        logger.info("Undeploying control file {} because of an error, writing {} file.", controlFile,
+            FAILURE_FILE_EXTENSION);
+
+        internalUndeployControlFile(controlFile, handleMetadataChange);
+
+        File readyFile = readyFile(controlFile);
+        if (readyFile.exists())
+          if (!readyFile.delete())
+            logger.warn("Could not delete ready file {}", readyFile.getAbsolutePath());
+
+        File failureFile = failureFile(controlFile);
+        if (!failureFile.exists()) {
+          try (FileOutputStream failureOS = new FileOutputStream(failureFile)) {
+            failureOS.write(errorDescription.getBytes(Charset.forName("UTF-8")));
+          } catch (IOException e) {
+            logger.warn("Could not write failure file {}", failureFile, e);
+          }
         }
       }
     }
@@ -199,6 +293,25 @@ public class ControlFileManager {
     undeployTableBecauseOfError(tableName, t.getMessage(), handleMetadataChange);
   }
 
+  /** for tests */
+  /* package */ void setControlFileFactory(ControlFileFactory controlFileFactory) {
+    this.controlFileFactory = controlFileFactory;
+  }
+
+  /** for tests */
+  /* package */ void setExecutorManager(ExecutorManager executorManager) {
+    this.executorManager = executorManager;
+  }
+
+  /** for tests */
+  /* package */ void setDeploymentThreads(int deploymentThreads) {
+    this.deploymentThreads = deploymentThreads;
+  }
+
+  private Object controlFileSync(File controlFile) {
+    return controlFileSyncs.computeIfAbsent(controlFile.getAbsolutePath(), path -> new Object());
+  }
+
   /**
    * @return The ready file for a given control file.
    */
@@ -152,9 +152,9 @@ public class NewDataWatcher implements ConsensusListener {
               .listFiles((dir, fileName) -> fileName.toLowerCase().endsWith(ControlFileManager.CONTROL_FILE_EXTENSION));
 
           // controlFiles is null if watchPath does not exist.
-          if (controlFiles != null) {
-            for (File controlFile : controlFiles)
-              deployControlFile(controlFile);
+          if (controlFiles != null && controlFiles.length > 0) {
+            logger.info("Found {} control files.", controlFiles.length);
+            controlFileManager.deployControlFiles(Arrays.asList(controlFiles));
           }
 
           if (watchService == null) {
@@ -63,6 +63,7 @@ import org.diqube.remote.query.thrift.IdentityService;
 import org.diqube.remote.query.thrift.KeepAliveService;
 import org.diqube.remote.query.thrift.QueryService;
 import org.diqube.remote.query.thrift.TableMetadataService;
+import org.diqube.server.thrift.MessageSizeMetricsTransport;
 import org.diqube.server.thrift.ThriftServer;
 import org.diqube.threads.ExecutorManager;
 import org.diqube.thrift.util.RememberingTransport;
@@ -226,7 +227,8 @@ public class ServerImplementation {
     // uses ExecutorService to actually invoke any methods.
     TThreadedSelectorServer.Args serverArgs = new TThreadedSelectorServer.Args(transport);
     serverArgs.processor(multiProcessor);
-    serverArgs.transportFactory(new RememberingTransport.Factory(new TFramedTransport.Factory()));
+    serverArgs.transportFactory(
+        new RememberingTransport.Factory(new MessageSizeMetricsTransport.Factory(new TFramedTransport.Factory())));
     serverArgs.protocolFactory(new IntegrityCheckingProtocol.Factory(new TCompactProtocol.Factory(),
         integritySecretHelper.provideMessageIntegritySecrets()));
     logger.info("Thrift server will use {} selector threads.", selectorThreads);
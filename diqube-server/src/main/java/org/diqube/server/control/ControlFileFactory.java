@@ -22,6 +22,8 @@ package org.diqube.server.control;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -67,12 +69,21 @@ public class ControlFileFactory {
   @Inject
   private TableMetadataManager tableMetadataManager;
 
+  /** Objects to synchronize on when changing a table, by table name. Control files are deployed concurrently. */
+  private ConcurrentMap<String, Object> tableSyncs = new ConcurrentHashMap<>();
+
   public ControlFileLoader createControlFileLoader(File controlFile) {
     return new ControlFileLoader(tableRegistry, tableFactory, csvLoader, jsonLoader, diqubeLoader,
-        clusterFlattenServiceHandler, serverTableMetadataPublisher, controlFile);
+        clusterFlattenServiceHandler, serverTableMetadataPublisher, tableMetadataManager, this::getTableSync,
+        controlFile);
   }
 
   public ControlFileUnloader createControlFileUnloader(File controlFile, Pair<String, List<Long>> tableInfo) {
-    return new ControlFileUnloader(tableRegistry, tableMetadataManager, controlFile, tableInfo);
+    return new ControlFileUnloader(tableRegistry, tableMetadataManager, controlFile, tableInfo,
+        getTableSync(tableInfo.getLeft()));
+  }
+
+  private Object getTableSync(String tableName) {
+    return tableSyncs.computeIfAbsent(tableName, name -> new Object());
   }
 }
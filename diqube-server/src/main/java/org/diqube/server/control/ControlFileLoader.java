@@ -25,10 +25,12 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.thrift.TException;
@@ -46,6 +48,7 @@ import org.diqube.loader.JsonLoader;
 import org.diqube.loader.LoadException;
 import org.diqube.loader.Loader;
 import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.metadata.TableMetadataManager;
 import org.diqube.server.metadata.ServerTableMetadataPublisher;
 import org.diqube.server.metadata.ServerTableMetadataPublisher.MergeImpossibleException;
 import org.diqube.server.queryremote.flatten.ClusterFlattenServiceHandler;
@@ -70,6 +73,7 @@ public class ControlFileLoader {
   public static final String KEY_COLTYPE_PREFIX = "columnType.";
   public static final String KEY_DEFAULT_COLTYPE = "defaultColumnType";
   public static final String KEY_AUTO_FLATTEN = "autoFlatten";
+  public static final String KEY_NATIVE_REPEATED_COLUMNS = "nativeRepeatedColumns";
 
   public static final String TYPE_CSV = "csv";
   public static final String TYPE_JSON = "json";
@@ -83,12 +87,18 @@ public class ControlFileLoader {
   private DiqubeLoader diqubeLoader;
   private ClusterFlattenServiceHandler clusterFlattenServiceHandler;
   private ServerTableMetadataPublisher metadataPublisher;
+  private TableMetadataManager tableMetadataManager;
+  private Function<String, Object> tableSyncProvider;
 
-  private Object tableRegistrySync = new Object();
-
+  /**
+   * @param tableSyncProvider
+   *          Provides the object to synchronize on when changing a specific table in the {@link TableRegistry}. All
+   *          loaders and unloaders of the same table need to use the same object.
+   */
   public ControlFileLoader(TableRegistry tableRegistry, TableFactory tableFactory, CsvLoader csvLoader,
       JsonLoader jsonLoader, DiqubeLoader diqubeLoader, ClusterFlattenServiceHandler clusterFlattenServiceHandler,
-      ServerTableMetadataPublisher metadataPublisher, File controlFile) {
+      ServerTableMetadataPublisher metadataPublisher, TableMetadataManager tableMetadataManager,
+      Function<String, Object> tableSyncProvider, File controlFile) {
     this.tableRegistry = tableRegistry;
     this.tableFactory = tableFactory;
     this.csvLoader = csvLoader;
@@ -96,6 +106,8 @@ public class ControlFileLoader {
     this.diqubeLoader = diqubeLoader;
     this.clusterFlattenServiceHandler = clusterFlattenServiceHandler;
     this.metadataPublisher = metadataPublisher;
+    this.tableMetadataManager = tableMetadataManager;
+    this.tableSyncProvider = tableSyncProvider;
     this.controlFile = controlFile;
   }
 
@@ -121,6 +133,11 @@ public class ControlFileLoader {
    * <p>
    * This method takes care of calculating {@link TableMetadata} for the resulting table and publish this information in
    * the cluster.
+   * 
+   * <p>
+   * Table shards loaded from .diqube files are registered in the {@link TableRegistry} one by one as soon as each of
+   * them is ready. The metadata of the table is published only once after the whole file has been loaded. If loading
+   * fails, those table shards are removed again and the cluster is asked to recompute the metadata of the table.
    *
    * <p>
    * Note that .ready files will not be created.
@@ -185,6 +202,9 @@ public class ControlFileLoader {
           }
         }
 
+        columnInfo.setStoreRepeatedColumnsNatively(
+            Boolean.parseBoolean(controlProperties.getProperty(KEY_NATIVE_REPEATED_COLUMNS, "false").trim()));
+
         String autoFlattenUnsplit = controlProperties.getProperty(KEY_AUTO_FLATTEN, "");
         if (!"".equals(autoFlattenUnsplit)) {
           autoFlatten = autoFlattenUnsplit.split(",");
@@ -230,8 +250,59 @@ public class ControlFileLoader {
       throw new LoadException("Unkown input file type.");
     }
 
-    Collection<TableShard> newTableShards = loader.load(firstRowId, file.getAbsolutePath(), tableName, columnInfo);
-    synchronized (tableRegistrySync) {
+    Collection<TableShard> newTableShards;
+    if (loader == diqubeLoader) {
+      // register the table shards as soon as each of them is deserialized, so they can be queried as soon as possible.
+      String finalTableName = tableName;
+      List<TableShard> registeredTableShards = new ArrayList<>();
+      try {
+        newTableShards = diqubeLoader.load(firstRowId, file.getAbsolutePath(), tableName, tableShard -> {
+          registerTableShards(finalTableName, Arrays.asList(tableShard), false);
+          registeredTableShards.add(tableShard);
+        });
+        publishMetadataOfTable(tableName);
+      } catch (LoadException e) {
+        unregisterTableShards(tableName, registeredTableShards);
+        throw e;
+      }
+    } else {
+      newTableShards = loader.load(firstRowId, file.getAbsolutePath(), tableName, columnInfo);
+      registerTableShards(tableName, newTableShards, true);
+    }
+
+    // For "auto-flattening" we use the clusterFlattenServiceHandler directly with an empty list of "other flatteners"
+    // and a null-resultAddress. Using this, this node will merge new flatten requests on that table to the one we start
+    // now, although these might fail (as other requests probably include multiple flatteners; our node will though only
+    // flatten on ourselves; but query masters that issued the flattening should be able to cope with that).
+    for (String autoFlattenField : autoFlatten) {
+      UUID flattenId = UUID.randomUUID();
+      try {
+        // these calls start the flattening asynchronously, therefore we just trigger computation here. If there is a
+        // flattened version available in the flattenedDiskCache already, that will be used.
+        // No query references any columns yet, so all columns will be flattened lazily.
+        clusterFlattenServiceHandler.flattenAllLocalShards(RUuidUtil.toRUuid(flattenId), tableName, autoFlattenField,
+            new ArrayList<>(), null, new ArrayList<>());
+      } catch (TException e) {
+        logger.error("Failed to flatten new table '{}' by '{}' locally with flatten ID {}.", tableName,
+            autoFlattenField, flattenId, e);
+      }
+    }
+
+    List<Long> firstRowIds =
+        newTableShards.stream().map(shard -> shard.getLowestRowId()).sorted().collect(Collectors.toList());
+    return new Pair<>(tableName, firstRowIds);
+  }
+
+  /**
+   * Registers new table shards in {@link TableRegistry}, creating the table if it does not exist yet.
+   * 
+   * @param publishMetadata
+   *          if <code>true</code> the new metadata of the table is distributed before the shards are registered. If
+   *          <code>false</code>, the caller needs to call {@link #publishMetadataOfTable(String)} later.
+   */
+  private void registerTableShards(String tableName, Collection<TableShard> newTableShards, boolean publishMetadata)
+      throws LoadException {
+    synchronized (tableSyncProvider.apply(tableName)) {
       Table table = tableRegistry.getTable(tableName);
       if (table != null) {
         if (!(table instanceof AdjustableTable))
@@ -240,7 +311,8 @@ public class ControlFileLoader {
         List<TableShard> allShards = new ArrayList<>(table.getShards());
         allShards.addAll(newTableShards);
 
-        distributeNewMetadata(tableName, allShards);
+        if (publishMetadata)
+          distributeNewMetadata(tableName, allShards);
 
         try {
           for (TableShard newTableShard : newTableShards)
@@ -257,7 +329,8 @@ public class ControlFileLoader {
         Collection<TableShard> newTableShardCollection = newTableShards;
         table = tableFactory.createDefaultTable(tableName, newTableShardCollection);
 
-        distributeNewMetadata(tableName, newTableShardCollection);
+        if (publishMetadata)
+          distributeNewMetadata(tableName, newTableShardCollection);
 
         try {
           tableRegistry.addTable(tableName, table);
@@ -266,27 +339,49 @@ public class ControlFileLoader {
         }
       }
     }
+  }
 
-    // For "auto-flattening" we use the clusterFlattenServiceHandler directly with an empty list of "other flatteners"
-    // and a null-resultAddress. Using this, this node will merge new flatten requests on that table to the one we start
-    // now, although these might fail (as other requests probably include multiple flatteners; our node will though only
-    // flatten on ourselves; but query masters that issued the flattening should be able to cope with that).
-    for (String autoFlattenField : autoFlatten) {
-      UUID flattenId = UUID.randomUUID();
-      try {
-        // these calls start the flattening asynchronously, therefore we just trigger computation here. If there is a
-        // flattened version available in the flattenedDiskCache already, that will be used.
-        clusterFlattenServiceHandler.flattenAllLocalShards(RUuidUtil.toRUuid(flattenId), tableName, autoFlattenField,
-            new ArrayList<>(), null);
-      } catch (TException e) {
-        logger.error("Failed to flatten new table '{}' by '{}' locally with flatten ID {}.", tableName,
-            autoFlattenField, flattenId, e);
-      }
+  /**
+   * Distributes the metadata of all table shards that are currently registered for the given table, after they have
+   * been registered using {@link #registerTableShards(String, Collection, boolean)} without publishing the metadata.
+   */
+  private void publishMetadataOfTable(String tableName) throws LoadException {
+    synchronized (tableSyncProvider.apply(tableName)) {
+      Table table = tableRegistry.getTable(tableName);
+      if (table == null)
+        throw new LoadException("Table '" + tableName + "' was removed while it was being loaded.");
+
+      distributeNewMetadata(tableName, table.getShards());
     }
+  }
 
-    List<Long> firstRowIds =
-        newTableShards.stream().map(shard -> shard.getLowestRowId()).sorted().collect(Collectors.toList());
-    return new Pair<>(tableName, firstRowIds);
+  /**
+   * Removes table shards that have been registered using {@link #registerTableShards(String, Collection, boolean)}
+   * already, because loading the remaining table shards of the same file (or publishing their metadata) failed.
+   * 
+   * <p>
+   * The metadata of the removed shards might have been published in the meantime (e.g. when another node requested to
+   * recompute the metadata of the table while we were loading), therefore the whole cluster is asked to recompute the
+   * metadata of the table.
+   */
+  private void unregisterTableShards(String tableName, Collection<TableShard> tableShards) {
+    if (tableShards.isEmpty())
+      return;
+
+    logger.info("Removing the {} table shards of table '{}' that were loaded from {} already.", tableShards.size(),
+        tableName, controlFile.getAbsolutePath());
+    synchronized (tableSyncProvider.apply(tableName)) {
+      Table table = tableRegistry.getTable(tableName);
+      if (table == null)
+        return;
+
+      for (TableShard tableShard : tableShards)
+        ((AdjustableTable) table).removeTableShard(tableShard);
+      if (table.getShards().isEmpty())
+        tableRegistry.removeTable(tableName);
+    }
+
+    tableMetadataManager.startRecomputingTableMetadata(tableName);
   }
 
   /**
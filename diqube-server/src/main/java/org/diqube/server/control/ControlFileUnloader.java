@@ -50,17 +50,22 @@ public class ControlFileUnloader {
 
   private TableMetadataManager tableMetadataManager;
 
+  private Object tableSync;
+
   /**
    * @param tableInfo
    *          Result of {@link ControlFileLoader} when the control file was loaded. Pair of table name and list of
    *          firstROwIds of the loaded shards.
+   * @param tableSync
+   *          Object to synchronize on when changing the table, see {@link ControlFileLoader}.
    */
   /* package */ ControlFileUnloader(TableRegistry tableRegistry, TableMetadataManager tableMetadataManager,
-      File controlFile, Pair<String, List<Long>> tableInfo) {
+      File controlFile, Pair<String, List<Long>> tableInfo, Object tableSync) {
     this.tableRegistry = tableRegistry;
     this.tableMetadataManager = tableMetadataManager;
     this.controlFile = controlFile;
     this.tableInfo = tableInfo;
+    this.tableSync = tableSync;
   }
 
   /**
@@ -73,10 +78,13 @@ public class ControlFileUnloader {
    *          If this method should adjust the metadata of the table in the cluster according to the changes.
    */
   public void unload(boolean handleMetadataChange) {
-    Table t = tableRegistry.getTable(tableInfo.getLeft());
-    if (t == null)
-      logger.warn("Could not delete anything as table {} is not loaded (anymore?).", tableInfo.getLeft());
-    else {
+    synchronized (tableSync) {
+      Table t = tableRegistry.getTable(tableInfo.getLeft());
+      if (t == null) {
+        logger.warn("Could not delete anything as table {} is not loaded (anymore?).", tableInfo.getLeft());
+        return;
+      }
+
       logger.info(
           "Identified deletion of control file {}; will remove in-memory data from table {} for TableShards with starting rowIds {}.",
           controlFile.getAbsolutePath(), tableInfo.getLeft(), tableInfo.getRight());
@@ -88,15 +96,15 @@ public class ControlFileUnloader {
             tableInfo.getLeft());
         tableRegistry.removeTable(tableInfo.getLeft());
       }
+    }
 
-      // we removed something, metadata might have changed (=can only be "reduced"), therefore ask the whole cluster
-      // to recompute the metadata fully. Note that even if we removed the last shard locally, the cluster might still
-      // contain data of this table!
-      if (handleMetadataChange)
-        tableMetadataManager.startRecomputingTableMetadata(tableInfo.getLeft());
+    // we removed something, metadata might have changed (=can only be "reduced"), therefore ask the whole cluster
+    // to recompute the metadata fully. Note that even if we removed the last shard locally, the cluster might still
+    // contain data of this table!
+    if (handleMetadataChange)
+      tableMetadataManager.startRecomputingTableMetadata(tableInfo.getLeft());
 
-      // give garbage collector a hint that it might be able to free up some memory...
-      System.gc();
-    }
+    // give garbage collector a hint that it might be able to free up some memory...
+    System.gc();
   }
 }
@@ -0,0 +1,130 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+
+import org.diqube.config.Config;
+import org.diqube.config.ConfigKey;
+import org.diqube.context.AutoInstatiate;
+import org.diqube.metrics.Metrics;
+import org.diqube.metrics.MetricsMBean;
+import org.diqube.metrics.MetricsTextFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exposes the {@link Metrics} of this node via JMX (see {@link MetricsMBean}) and - if {@link ConfigKey#METRICS_PORT}
+ * is set - in a plain-text format via HTTP on path {@link #METRICS_PATH}.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class MetricsExporter {
+  private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+  public static final String METRICS_PATH = "/metrics";
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Config(ConfigKey.METRICS_PORT)
+  private int metricsPort;
+
+  @Config(ConfigKey.BIND)
+  private String bind;
+
+  private HttpServer httpServer;
+
+  @PostConstruct
+  public void initialize() {
+    try {
+      MetricsMBean.register();
+    } catch (JMException e) {
+      logger.warn("Could not register metrics MBean, metrics will not be available via JMX.", e);
+    }
+
+    if (metricsPort <= 0) {
+      logger.info("Not serving metrics via HTTP as no port is configured.");
+      return;
+    }
+
+    InetSocketAddress addr = ("".equals(bind)) ? new InetSocketAddress(metricsPort)
+        : new InetSocketAddress(bind, metricsPort);
+    try {
+      httpServer = HttpServer.create(addr, 0);
+    } catch (IOException e) {
+      logger.error("Could not bind metrics HTTP server to {}, metrics will not be available via HTTP.", addr, e);
+      return;
+    }
+    httpServer.createContext(METRICS_PATH, exchange -> serveMetrics(exchange));
+    // no executor: requests are served on the single dispatcher thread, which is enough for scraping.
+    httpServer.setExecutor(null);
+    httpServer.start();
+    logger.info("Serving metrics on http://{}:{}{}", addr.getHostString(), metricsPort, METRICS_PATH);
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    if (httpServer != null)
+      httpServer.stop(0);
+
+    try {
+      MetricsMBean.unregister();
+    } catch (JMException e) {
+      logger.warn("Could not unregister metrics MBean.", e);
+    }
+  }
+
+  private void serveMetrics(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      StringWriter stringWriter = new StringWriter();
+      MetricsTextFormat.write(stringWriter);
+      byte[] body = stringWriter.toString().getBytes(UTF8);
+
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Could not serve metrics", e);
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+}
@@ -20,6 +20,7 @@
  */
 package org.diqube.server.querymaster.flatten;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -68,8 +69,9 @@ public class FlattenPreparationServiceHandler implements FlattenPreparationServi
     if (!tableAccessPermissionUtil.hasAccessToTable(ticket, tableName))
       throw new AuthorizationException();
 
-    // start to asynchronously flatten the table, do not care about results.
-    queryMasterFlattenService.flattenAsync(tableName, flattenBy, new QueryMasterFlattenCallback() {
+    // start to asynchronously flatten the table, do not care about results. We do not know which columns will be
+    // queried, therefore all columns will be flattened lazily.
+    queryMasterFlattenService.flattenAsync(tableName, flattenBy, new ArrayList<>(), new QueryMasterFlattenCallback() {
       @Override
       public void noNodesServingOriginalTable() {
         logger.trace("Found that no nodes serve table '{}' which should have been flattened.", tableName);
@@ -84,6 +86,12 @@ public class FlattenPreparationServiceHandler implements FlattenPreparationServi
       public void flattenComplete(UUID flattenId, List<RNodeAddress> nodes) {
         logger.trace("Flatten of table '{}' complete.", tableName);
       }
+
+      @Override
+      public void flattenProgress(int numberOfShardsFlattened, int numberOfShardsTotal) {
+        logger.trace("Flatten of table '{}': {} of {} shards flattened.", tableName, numberOfShardsFlattened,
+            numberOfShardsTotal);
+      }
     });
   }
 
@@ -38,6 +38,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.diqube.diql.ParseException;
 import org.diqube.execution.ExecutablePlan;
@@ -49,13 +50,19 @@ import org.diqube.execution.consumers.AbstractThreadedOrderedRowIdConsumer;
 import org.diqube.execution.consumers.AbstractThreadedOverwritingRowIdConsumer;
 import org.diqube.execution.steps.ExecuteRemotePlanOnShardsStep;
 import org.diqube.executionenv.ExecutionEnvironment;
+import org.diqube.metrics.Counter;
+import org.diqube.metrics.Histogram;
+import org.diqube.metrics.Metrics;
 import org.diqube.plan.ExecutionPlanBuilder;
 import org.diqube.plan.ExecutionPlanBuilderFactory;
 import org.diqube.plan.exception.ValidationException;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.queries.QueryRegistry.QueryPercentHandler;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
+import org.diqube.remote.cluster.thrift.RExecutionPlan;
+import org.diqube.remote.query.ResultTableDeltaBuilder;
 import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
 import org.diqube.server.querymaster.query.validate.MasterExecutionRequestValidator;
 import org.diqube.threads.ExecutorManager;
 import org.diqube.thrift.base.thrift.RValue;
@@ -70,6 +77,12 @@ import com.google.common.collect.Iterables;
  * Fully executes a diql query and provides a callback that has a {@link RResultTable} on a query master.
  * 
  * <p>
+ * Intermediary results are provided as {@link RResultTableDelta}s to the previously provided intermediary result, so
+ * their size depends on the number of changes and not on the size of the result table. Only rows whose values were
+ * updated since the last intermediary result are re-created and compared; the list of the IDs of the current rows
+ * (including ordering and HAVING) is though still created for each intermediary result.
+ * 
+ * <p>
  * One instance of this class can be used only for executing one single query.
  *
  * @author Bastian Gloeckle
@@ -80,10 +93,19 @@ class MasterQueryExecutor {
 
   private static final Logger logger = LoggerFactory.getLogger(MasterQueryExecutor.class);
 
+  private static final Histogram PLAN_PHASE_MS =
+      Metrics.histogram(Metrics.labeled("query_master_phase_ms", "phase", "plan"));
+  private static final Histogram EXECUTE_PHASE_MS =
+      Metrics.histogram(Metrics.labeled("query_master_phase_ms", "phase", "execute"));
+  private static final Counter QUERIES_COUNTER = Metrics.counter("query_master_queries");
+  private static final Counter FAILED_QUERIES_COUNTER = Metrics.counter("query_master_failed");
+
   private MasterQueryExecutor.QueryExecutorCallback callback;
   private ExecutionPlanBuilderFactory executionPlanBuildeFactory;
 
   private volatile Map<Long, Map<String, Object>> valuesByRow = new ConcurrentHashMap<>();
+  /** IDs of rows in {@link #valuesByRow} that have been updated since the last intermediary result was created. */
+  private Set<Long> updatedRowIds = ConcurrentHashMap.newKeySet();
   private List<Long> orderedRowIds;
   private Object orderedSync = new Object();
   /** Row IDs reported by a HAVING clause. These rowIDs restrict the rowIds reported by other consumers! */
@@ -99,7 +121,7 @@ class MasterQueryExecutor {
   private boolean isOrdered;
   private List<String> selectedColumns;
   private boolean createIntermediaryUpdates;
-  private RResultTable lastIntermediaryResultSent = null;
+  private ResultTableDeltaBuilder intermediaryDeltaBuilder = new ResultTableDeltaBuilder();
   private long lastIntermediaryResultSentNanoTime = Long.MIN_VALUE;
 
   private ExecutorManager executorManager;
@@ -122,6 +144,8 @@ class MasterQueryExecutor {
 
   private List<String> selectionRequests;
 
+  private Double sampleFraction;
+
   private MasterExecutionRequestValidator masterExecutionRequestValidator;
 
   public MasterQueryExecutor(ExecutorManager executorManager, ExecutionPlanBuilderFactory executionPlanBuildeFactory,
@@ -175,6 +199,7 @@ class MasterQueryExecutor {
           }
 
           valuesByRow.get(valueEntry.getKey()).put(colName, valueEntry.getValue());
+          updatedRowIds.add(valueEntry.getKey());
         }
         scheduleUpdate();
       }
@@ -223,22 +248,40 @@ class MasterQueryExecutor {
     // additionally validate query according to our validator in diqube-server.
     planBuilder.withAdditionalRequestValidator(masterExecutionRequestValidator);
 
+    long planStartNanos = System.nanoTime();
     ExecutablePlan plan = planBuilder.build();
+    PLAN_PHASE_MS.record((System.nanoTime() - planStartNanos) / 1_000_000);
     selectedColumns = plan.getInfo().getSelectedColumnNames();
     selectionRequests = plan.getInfo().getSelectionRequests();
     isOrdered = plan.getInfo().isOrdered();
     isHaving = plan.getInfo().isHaving();
+    sampleFraction = plan.getInfo().getSampleFraction();
     if (!isOrdered)
       orderedDone.set(true);
     if (!isHaving)
       havingDone.set(true);
+    if (plan.getInfo().isExplain())
+      // we do not provide the results of the query, but a description of the plan.
+      createIntermediaryUpdates = false;
 
     masterExecutionPercentage = new ExecutionPercentage(plan);
     masterExecutionPercentage.attach();
 
+    Optional<ExecutablePlanStep> executeRemoteStep =
+        plan.getSteps().stream().filter(s -> s instanceof ExecuteRemotePlanOnShardsStep).findFirst();
+
     Runnable r = new Runnable() {
       @Override
       public void run() {
+        QUERIES_COUNTER.inc();
+        if (plan.getInfo().isExplain() && !plan.getInfo().isExplainAnalyze()) {
+          // EXPLAIN without ANALYZE: do not execute anything, but provide the plan right away.
+          RExecutionPlan remotePlan = executeRemoteStep.isPresent()
+              ? ((ExecuteRemotePlanOnShardsStep) executeRemoteStep.get()).getRemoteExecutionPlan() : null;
+          callback.finalResultTableAvailable(new QueryPlanExplainer(plan, remotePlan).explainPlan());
+          return;
+        }
+
         queryRegistry.getOrCreateCurrentStatsManager().setNumberOfThreads(plan.preferredExecutorServiceSize());
 
         queryRegistry.addRemotePercentHandler(queryUuid, remotePercentHandler);
@@ -247,13 +290,13 @@ class MasterQueryExecutor {
             "query-master-worker-" + queryUuid + "-%d", //
             queryUuid, executionUuid);
 
+        long executeStartNanos = System.nanoTime();
         Future<Void> planFuture = plan.executeAsynchronously(executor);
 
         processUntilPlanIsExecuted(queryUuid, planFuture);
+        EXECUTE_PHASE_MS.record((System.nanoTime() - executeStartNanos) / 1_000_000);
       }
     };
-    Optional<ExecutablePlanStep> executeRemoteStep =
-        plan.getSteps().stream().filter(s -> s instanceof ExecuteRemotePlanOnShardsStep).findFirst();
 
     return new Triple<>(r, plan,
         executeRemoteStep.isPresent() ? ((ExecuteRemotePlanOnShardsStep) executeRemoteStep.get()) : null);
@@ -307,6 +350,7 @@ class MasterQueryExecutor {
             return;
           } catch (RuntimeException | ExecutionException e) {
             queryRegistry.removeRemotePercentHandler(queryUuid, remotePercentHandler);
+            FAILED_QUERIES_COUNTER.inc();
             callback.exception(e);
             return;
           }
@@ -317,16 +361,22 @@ class MasterQueryExecutor {
         if (System.nanoTime() >= lastIntermediaryResultSentNanoTime
             + (MIN_INTERVAL_BETWEEN_INTERMEDIARY_UPDATES_MS * 1_000_000)) {
 
-          RResultTable table = createRResultTableFromCurrentValues();
-          if (table != null) {
-            if (lastIntermediaryResultSent == null || !table.equals(lastIntermediaryResultSent)) {
-              short percentDone =
-                  (short) ((percentDoneRemotesSum.get() + masterExecutionPercentage.calculatePercentDone())
-                      / (numberOfRemotesTriggered.get() + 1));
-              callback.intermediaryResultTableAvailable(table, percentDone);
-              lastIntermediaryResultSent = table;
-              lastIntermediaryResultSentNanoTime = System.nanoTime();
-            }
+          // remove the IDs one by one: Row IDs that are updated concurrently are either contained in curUpdatedRowIds
+          // or will stay in updatedRowIds for the next intermediary result.
+          Set<Long> curUpdatedRowIds = new HashSet<>();
+          for (Iterator<Long> rowIdIt = updatedRowIds.iterator(); rowIdIt.hasNext();) {
+            curUpdatedRowIds.add(rowIdIt.next());
+            rowIdIt.remove();
+          }
+
+          RResultTableDelta delta = intermediaryDeltaBuilder.createDelta(selectedColumns, selectionRequests,
+              sampleFraction, createCurrentRowIds(), curUpdatedRowIds, this::createRow, isOrdered);
+          if (delta != null) {
+            short percentDone = (short) ((percentDoneRemotesSum.get()
+                + masterExecutionPercentage.calculatePercentDone()) / (numberOfRemotesTriggered.get() + 1));
+            if (!callback.intermediaryResultTableDeltaAvailable(delta, percentDone))
+              intermediaryDeltaBuilder.requestFullTable();
+            lastIntermediaryResultSentNanoTime = System.nanoTime();
           }
         }
       }
@@ -348,16 +398,32 @@ class MasterQueryExecutor {
    * @return A {@link RResultTable} instance of the data that is currently available in {@link #valuesByRow} etc.
    */
   private RResultTable createRResultTableFromCurrentValues() {
+    RResultTable res = new RResultTable();
+    res.setColumnNames(selectedColumns);
+    res.setColumnRequests(selectionRequests);
+    if (sampleFraction != null)
+      res.setSampleFraction(sampleFraction);
+
+    List<Long> rowIds = createCurrentRowIds();
+    if (!rowIds.isEmpty())
+      res.setRows(rowIds.stream().map(this::createRow).collect(Collectors.toList()));
+
+    return res;
+  }
+
+  /**
+   * @return The IDs of the rows of the data that is currently available in {@link #valuesByRow} etc., in the order in
+   *         which they should be displayed.
+   */
+  private List<Long> createCurrentRowIds() {
+    List<Long> res = new ArrayList<>();
+
     List<Long> rowIds = null;
     synchronized (orderedSync) {
       if (isOrdered && orderedRowIds != null)
         rowIds = new ArrayList<Long>(orderedRowIds);
     }
 
-    RResultTable res = new RResultTable();
-    res.setColumnNames(selectedColumns);
-    res.setColumnRequests(selectionRequests);
-
     if ((rowIds == null || rowIds.isEmpty()) && isOrdered)
       // return empty table. This could be the case if the result table is actually empty.
       return res;
@@ -391,40 +457,49 @@ class MasterQueryExecutor {
       }
     }
 
-    List<List<RValue>> rows = new ArrayList<>();
-    for (Long rowId : rowIds) {
-      if (!valuesByRow.containsKey(rowId))
-        continue;
+    for (Long rowId : rowIds)
+      if (valuesByRow.containsKey(rowId))
+        res.add(rowId);
 
-      List<RValue> row = new ArrayList<>();
-      for (String colName : selectedColumns)
-        row.add(RValueUtil.createRValue(valuesByRow.get(rowId).get(colName)));
+    return res;
+  }
 
-      // fill any cells where we do not have data with an empty string.
-      for (int i = 0; i < row.size(); i++)
-        if (row.get(i) == null)
-          row.set(i, RValueUtil.createRValue(""));
+  /**
+   * @return The values of the given row which is available in {@link #valuesByRow}.
+   */
+  private List<RValue> createRow(Long rowId) {
+    List<RValue> row = new ArrayList<>();
+    for (String colName : selectedColumns)
+      row.add(RValueUtil.createRValue(valuesByRow.get(rowId).get(colName)));
 
-      rows.add(row);
-    }
-    res.setRows(rows);
+    // fill any cells where we do not have data with an empty string.
+    for (int i = 0; i < row.size(); i++)
+      if (row.get(i) == null)
+        row.set(i, RValueUtil.createRValue(""));
 
-    return res;
+    return row;
   }
 
   public static interface QueryExecutorCallback {
     /**
      * An intermediary version of the result table is available.
      * 
-     * @param resultTable
-     *          may be <code>null</code>.
+     * @param delta
+     *          The changes to the previous intermediary version of the result table.
      * @param percentDone
      *          approximatin of how much of the executable plan has already been executed to produce this result.
+     * @return <code>true</code> if the delta was delivered, <code>false</code> if it could not be delivered - in that
+     *         case the next delta will contain the full table.
      */
-    public void intermediaryResultTableAvailable(RResultTable resultTable, short percentDone);
+    public boolean intermediaryResultTableDeltaAvailable(RResultTableDelta delta, short percentDone);
 
     /**
      * The final version of the result table is available.
+     * 
+     * <p>
+     * If the query was prefixed with EXPLAIN, the table contains the description of the plan instead (see
+     * {@link QueryPlanExplainer}). If it was prefixed with EXPLAIN ANALYZE, the table contains the normal results of
+     * the query and needs to be replaced by the implementing class after all statistics of the query are available.
      */
     public void finalResultTableAvailable(RResultTable resultTable);
 
@@ -88,11 +88,14 @@ public class MasterQueryStatisticsMerger {
     res.setNumberOfPagesInTable(stats.getNumberOfPagesInTable());
     res.setNumberOfTemporaryPages(stats.getNumberOfTemporaryPages());
     res.setNumberOfTemporaryVersionsPerColName(stats.getNumberOfTemporaryVersionsPerColName());
+    res.setNumberOfDoubleDictPageCacheHits(stats.getNumberOfDoubleDictPageCacheHits());
+    res.setNumberOfDoubleDictPageCacheMisses(stats.getNumberOfDoubleDictPageCacheMisses());
+    res.setPeakRetainedBytes(stats.getPeakRetainedBytes());
 
     return res;
   }
 
-  private String getStepDescription(ExecutablePlanStep step) {
+  /* package */ static String getStepDescription(ExecutablePlanStep step) {
     StringBuilder sb = new StringBuilder();
 
     sb.append(String.format("%02d", step.getStepId()));
@@ -108,7 +111,7 @@ public class MasterQueryStatisticsMerger {
     return sb.toString();
   }
 
-  private String getRemoteStepDescription(RExecutionPlanStep step) {
+  /* package */ static String getRemoteStepDescription(RExecutionPlanStep step) {
     StringBuilder sb = new StringBuilder();
 
     sb.append(String.format("%02d", step.getStepId()));
@@ -0,0 +1,217 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.querymaster.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.execution.ExecutablePlanStep;
+import org.diqube.execution.steps.ExecuteRemotePlanOnShardsStep;
+import org.diqube.queries.QueryStats;
+import org.diqube.queries.QueryStepStats;
+import org.diqube.remote.cluster.thrift.RExecutionPlan;
+import org.diqube.remote.cluster.thrift.RExecutionPlanStep;
+import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.thrift.base.thrift.RValue;
+import org.diqube.thrift.base.util.RValueUtil;
+
+/**
+ * Creates a {@link RResultTable} describing the executable plans of a query, which is provided to the user instead of
+ * the results of the query if the query was prefixed with EXPLAIN or EXPLAIN ANALYZE.
+ * 
+ * <p>
+ * Each row of the table describes one step of either the master plan or the remote plan. The rows form a tree: The
+ * steps that provide the final results are the roots and the children of each step are the steps that provide data to
+ * it (indented by one level). The remote plan is shown as child of the {@link ExecuteRemotePlanOnShardsStep} of the
+ * master plan. A step that provides data to multiple other steps is shown with all its children only once.
+ * 
+ * <p>
+ * For EXPLAIN ANALYZE, each row additionally contains the runtime profile of the step, see {@link QueryStepStats}. The
+ * values of the steps of the remote plan are summed up over all query remotes.
+ *
+ * @author Bastian Gloeckle
+ */
+class QueryPlanExplainer {
+  private static final String COL_NODE = "node";
+  private static final String COL_STEP = "step";
+  private static final List<String> ANALYZE_COLS = Arrays.asList("rowsIn", "rowsOut", "activeMs", "waitingMs",
+      "allocatedBytes", "retainedBytes", "pagesScanned", "pagesPruned", "bytesDecompressed", "cacheHits",
+      "cacheMisses");
+
+  private static final String NODE_MASTER = "master";
+  private static final String NODE_REMOTE = "remote";
+
+  private static final String INDENT = "  ";
+  private static final String SEE_ABOVE = " (see above)";
+
+  private static final QueryStepStats EMPTY_STATS = new QueryStepStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+  private Map<Integer, ExecutablePlanStep> masterSteps = new HashMap<>();
+  /** master step ID -> IDs of master steps that provide data to that step */
+  private Map<Integer, List<Integer>> masterInputs = new HashMap<>();
+  private List<Integer> masterRoots = new ArrayList<>();
+
+  private Map<Integer, RExecutionPlanStep> remoteSteps = new HashMap<>();
+  /** remote step ID -> IDs of remote steps that provide data to that step */
+  private Map<Integer, List<Integer>> remoteInputs = new HashMap<>();
+  private List<Integer> remoteRoots = new ArrayList<>();
+
+  private boolean analyze;
+  private Map<Integer, Long> masterActiveMs = new HashMap<>();
+  private Map<Integer, QueryStepStats> masterStepStats = new HashMap<>();
+  private Map<Integer, Long> remoteActiveMs = new HashMap<>();
+  private Map<Integer, QueryStepStats> remoteStepStats = new HashMap<>();
+
+  /**
+   * @param remotePlan
+   *          The plan executed on the query remotes or <code>null</code> if there is none.
+   */
+  public QueryPlanExplainer(ExecutablePlan masterPlan, RExecutionPlan remotePlan) {
+    for (ExecutablePlanStep step : masterPlan.getSteps()) {
+      masterSteps.put(step.getStepId(), step);
+      if (step.getOutputStepIds().isEmpty())
+        masterRoots.add(step.getStepId());
+      for (int outputStepId : step.getOutputStepIds())
+        masterInputs.computeIfAbsent(outputStepId, id -> new ArrayList<>()).add(step.getStepId());
+    }
+
+    if (remotePlan != null) {
+      for (RExecutionPlanStep step : remotePlan.getSteps()) {
+        remoteSteps.put(step.getStepId(), step);
+        if (!step.isSetProvideDataForSteps() || step.getProvideDataForSteps().isEmpty())
+          remoteRoots.add(step.getStepId());
+        else
+          for (int outputStepId : step.getProvideDataForSteps().keySet())
+            remoteInputs.computeIfAbsent(outputStepId, id -> new ArrayList<>()).add(step.getStepId());
+      }
+    }
+
+    Collections.sort(masterRoots);
+    masterInputs.values().forEach(Collections::sort);
+    Collections.sort(remoteRoots);
+    remoteInputs.values().forEach(Collections::sort);
+  }
+
+  /**
+   * @return A {@link RResultTable} containing the plans only (EXPLAIN).
+   */
+  public RResultTable explainPlan() {
+    analyze = false;
+    return createTable();
+  }
+
+  /**
+   * @param masterStats
+   *          The statistics of the execution on the query master.
+   * @param remoteStats
+   *          The statistics of the executions on the query remotes.
+   * @return A {@link RResultTable} containing the plans and the runtime profile of each step (EXPLAIN ANALYZE).
+   */
+  public RResultTable explainAnalyze(QueryStats masterStats, List<QueryStats> remoteStats) {
+    analyze = true;
+    masterActiveMs.putAll(masterStats.getStepThreadActiveMs());
+    masterStepStats.putAll(masterStats.getStepStats());
+    for (QueryStats remote : remoteStats) {
+      remote.getStepThreadActiveMs().forEach((stepId, activeMs) -> remoteActiveMs.merge(stepId, activeMs, Long::sum));
+      remote.getStepStats().forEach((stepId, stats) -> remoteStepStats.merge(stepId, stats, QueryStepStats::add));
+    }
+    return createTable();
+  }
+
+  private RResultTable createTable() {
+    List<String> colNames = new ArrayList<>(Arrays.asList(COL_NODE, COL_STEP));
+    if (analyze)
+      colNames.addAll(ANALYZE_COLS);
+
+    List<List<RValue>> rows = new ArrayList<>();
+    Set<Integer> shownMasterSteps = new HashSet<>();
+    Set<Integer> shownRemoteSteps = new HashSet<>();
+    for (int rootStepId : masterRoots)
+      addMasterStep(rootStepId, 0, shownMasterSteps, shownRemoteSteps, rows);
+
+    RResultTable res = new RResultTable();
+    res.setColumnNames(colNames);
+    res.setColumnRequests(colNames);
+    res.setRows(rows);
+    return res;
+  }
+
+  private void addMasterStep(int stepId, int depth, Set<Integer> shownMasterSteps, Set<Integer> shownRemoteSteps,
+      List<List<RValue>> rows) {
+    ExecutablePlanStep step = masterSteps.get(stepId);
+    String description = MasterQueryStatisticsMerger.getStepDescription(step);
+    if (!shownMasterSteps.add(stepId)) {
+      rows.add(createRow(NODE_MASTER, depth, description + SEE_ABOVE, masterActiveMs.get(stepId),
+          masterStepStats.get(stepId)));
+      return;
+    }
+    rows.add(createRow(NODE_MASTER, depth, description, masterActiveMs.get(stepId), masterStepStats.get(stepId)));
+
+    if (step instanceof ExecuteRemotePlanOnShardsStep)
+      for (int remoteRootStepId : remoteRoots)
+        addRemoteStep(remoteRootStepId, depth + 1, shownRemoteSteps, rows);
+
+    for (int inputStepId : masterInputs.getOrDefault(stepId, Collections.emptyList()))
+      addMasterStep(inputStepId, depth + 1, shownMasterSteps, shownRemoteSteps, rows);
+  }
+
+  private void addRemoteStep(int stepId, int depth, Set<Integer> shownRemoteSteps, List<List<RValue>> rows) {
+    String description = MasterQueryStatisticsMerger.getRemoteStepDescription(remoteSteps.get(stepId));
+    if (!shownRemoteSteps.add(stepId)) {
+      rows.add(createRow(NODE_REMOTE, depth, description + SEE_ABOVE, remoteActiveMs.get(stepId),
+          remoteStepStats.get(stepId)));
+      return;
+    }
+    rows.add(createRow(NODE_REMOTE, depth, description, remoteActiveMs.get(stepId), remoteStepStats.get(stepId)));
+
+    for (int inputStepId : remoteInputs.getOrDefault(stepId, Collections.emptyList()))
+      addRemoteStep(inputStepId, depth + 1, shownRemoteSteps, rows);
+  }
+
+  private List<RValue> createRow(String node, int depth, String description, Long activeMs, QueryStepStats stats) {
+    List<RValue> res = new ArrayList<>();
+    res.add(RValueUtil.createRValue(node));
+    StringBuilder indentedDescription = new StringBuilder();
+    for (int i = 0; i < depth; i++)
+      indentedDescription.append(INDENT);
+    indentedDescription.append(description);
+    res.add(RValueUtil.createRValue(indentedDescription.toString()));
+
+    if (analyze) {
+      if (activeMs == null)
+        activeMs = 0L;
+      if (stats == null)
+        stats = EMPTY_STATS;
+      for (long value : new long[] { stats.getRowsIn(), stats.getRowsOut(), activeMs, stats.getWaitingMs(),
+          stats.getAllocatedBytes(), stats.getRetainedBytes(), stats.getPagesScanned(), stats.getPagesPruned(),
+          stats.getBytesDecompressed(), stats.getCacheHits(), stats.getCacheMisses() })
+        res.add(RValueUtil.createRValue(value));
+    }
+    return res;
+  }
+}
@@ -25,7 +25,12 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,6 +38,7 @@ import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -47,8 +53,11 @@ import org.diqube.context.AutoInstatiate;
 import org.diqube.diql.DiqlParseUtil;
 import org.diqube.diql.ParseException;
 import org.diqube.diql.antlr.DiqlParser.DiqlStmtContext;
+import org.diqube.diql.request.ComparisonRequest;
+import org.diqube.diql.request.ExecutionRequest.ExplainMode;
 import org.diqube.diql.request.ExecutionRequest;
 import org.diqube.diql.request.FromRequest;
+import org.diqube.diql.request.SampleRequest;
 import org.diqube.diql.visitors.SelectStmtVisitor;
 import org.diqube.execution.ExecutablePlan;
 import org.diqube.execution.steps.ExecuteRemotePlanOnShardsStep;
@@ -69,6 +78,7 @@ import org.diqube.remote.query.thrift.QueryService.Iface;
 import org.diqube.remote.query.thrift.RQueryException;
 import org.diqube.remote.query.thrift.RQueryStatistics;
 import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
 import org.diqube.server.util.ExecutablePlanQueryStatsUtil;
 import org.diqube.threads.ExecutorManager;
 import org.diqube.thrift.base.thrift.AuthenticationException;
@@ -80,6 +90,7 @@ import org.diqube.thrift.base.util.RUuidUtil;
 import org.diqube.ticket.TicketValidityService;
 import org.diqube.util.DelegateRunnable;
 import org.diqube.util.Holder;
+import org.diqube.util.Pair;
 import org.diqube.util.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -127,6 +138,8 @@ public class QueryServiceHandler implements Iface {
 
   private ExecutorService cancelExecutors;
 
+  private ExecutorService batchExecutors;
+
   private Set<UUID> toCancelQueries = new ConcurrentSkipListSet<>();
 
   private Map<UUID, String> queryUserNames = new ConcurrentHashMap<>();
@@ -140,11 +153,19 @@ public class QueryServiceHandler implements Iface {
             logger.error("Uncaught exception in a thread that was meant to cancel a currently executing query", e);
           }
         }, 10);
+    batchExecutors =
+        executorManager.newCachedThreadPoolWithMax("master-query-batch-%d", new UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread t, Throwable e) {
+            logger.error("Uncaught exception in a thread that was meant to start a query of a query batch", e);
+          }
+        }, 10);
   }
 
   @PreDestroy
   public void cleanup() {
     cancelExecutors.shutdownNow();
+    batchExecutors.shutdownNow();
   }
 
   /**
@@ -200,21 +221,160 @@ public class QueryServiceHandler implements Iface {
 
     UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
 
-    try {
-      FromRequest fromRequest = parseFromRequest(diql);
-      if (fromRequest == null)
-        throw new RQueryException("No FROM specified.");
-      if (!tableAccessPermissionUtil.hasAccessToTable(ticket, fromRequest.getTable()))
-        throw new AuthorizationException(
-            "Table '" + fromRequest.getTable() + "' does not exist or user has no permission to access it.");
-    } catch (ParseException | ValidationException e) {
-      logger.warn("Exception while pre-parsing query in order to check authorization: {}", queryUuid, e.getMessage());
-      throw new RQueryException(e.getMessage());
-    }
+    preParseAndCheckAuthorization(ticket, queryUuid, diql);
 
     logger.info("Async query {}, partial {}, resultAddress {}: {}",
         new Object[] { queryUuid, sendPartialUpdates, resultAddress, diql });
 
+    executeQuery(ticket, queryRUuid, diql, sendPartialUpdates, resultAddress, null);
+  }
+
+  /**
+   * Executes multiple diql queries on the same table on the diqube cluster, where this node will be the query master.
+   * 
+   * <p>
+   * The results of each query are provided just as if each query would have been executed using
+   * {@link #asyncExecuteQuery(Ticket, RUUID, String, boolean, RNodeAddress)}, i.e. they are sent to the
+   * {@link QueryResultService} at the given {@link RNodeAddress} using the query UUID of the corresponding query. This
+   * is true for queries that cannot be parsed, too: Their exception is sent to the {@link QueryResultService}, the
+   * other queries of the batch are executed nevertheless.
+   * 
+   * <p>
+   * The queries of the batch are grouped by their WHERE clause (and sample). The groups are started concurrently, but
+   * inside a group only the first query is started right away: The query remotes evaluate its WHERE clause and put the
+   * resulting row IDs into their RowIdFilterCache. The other queries of the group are started as soon as the first one
+   * is done, so the remotes use the cached row IDs instead of evaluating the same WHERE clause once for each query of
+   * the group. Queries without a WHERE clause and EXPLAIN queries (which do not execute anything on the remotes) are
+   * not grouped.
+   */
+  @Override
+  public void asyncExecuteQueryBatch(Ticket ticket, List<RUUID> queryRUuids, List<String> diqls,
+      boolean sendPartialUpdates, RNodeAddress resultAddress)
+      throws TException, RQueryException, AuthenticationException, AuthorizationException {
+    ticketValidityService.validateTicket(ticket);
+
+    if (queryRUuids.isEmpty() || queryRUuids.size() != diqls.size())
+      throw new RQueryException("Need to provide a query UUID for each query of the batch.");
+
+    // indices in queryRUuids/diqls of the queries that can be executed.
+    List<Integer> validQueryIndices = new ArrayList<>();
+    // indices of queries that could not be parsed, mapped to the exception.
+    Map<Integer, RQueryException> invalidQueries = new LinkedHashMap<>();
+    Set<FromRequest> fromRequests = new HashSet<>();
+    // groups of indices of valid queries that are executed one after the other, see JavaDoc.
+    List<List<Integer>> queryGroups = new ArrayList<>();
+    Map<Pair<ComparisonRequest, SampleRequest>, List<Integer>> queryGroupsByWhere = new HashMap<>();
+    for (int i = 0; i < diqls.size(); i++) {
+      try {
+        ExecutionRequest executionRequest =
+            preParseAndCheckAuthorization(ticket, RUuidUtil.toUuid(queryRUuids.get(i)), diqls.get(i));
+        fromRequests.add(executionRequest.getFromRequest());
+        validQueryIndices.add(i);
+
+        Pair<ComparisonRequest, SampleRequest> whereKey = null;
+        if (executionRequest.getWhere() != null && executionRequest.getExplain() != ExplainMode.PLAN)
+          whereKey = new Pair<>(executionRequest.getWhere(), executionRequest.getSample());
+        List<Integer> queryGroup = (whereKey != null) ? queryGroupsByWhere.get(whereKey) : null;
+        if (queryGroup == null) {
+          queryGroup = new ArrayList<>();
+          queryGroups.add(queryGroup);
+          if (whereKey != null)
+            queryGroupsByWhere.put(whereKey, queryGroup);
+        }
+        queryGroup.add(i);
+      } catch (RQueryException e) {
+        invalidQueries.put(i, e);
+      }
+    }
+
+    if (fromRequests.size() > 1)
+      throw new RQueryException("All queries of a batch need to select from the same table.");
+
+    logger.info("Async query batch {}, partial {}, resultAddress {}, {} invalid queries, {} query groups: {}",
+        new Object[] { queryRUuids.stream().map(RUuidUtil::toUuid).toArray(), sendPartialUpdates, resultAddress,
+            invalidQueries.size(), queryGroups.size(), diqls });
+
+    // register the users right away, so all queries can be cancelled, even if they did not start yet.
+    for (int idx : validQueryIndices)
+      queryUserNames.put(RUuidUtil.toUuid(queryRUuids.get(idx)), ticket.getClaim().getUsername());
+
+    for (Entry<Integer, RQueryException> invalidEntry : invalidQueries.entrySet())
+      batchExecutors.execute(() -> sendBatchQueryException(queryRUuids.get(invalidEntry.getKey()),
+          invalidEntry.getValue(), resultAddress));
+
+    // start each group in its own thread, as preparing the execution of a query takes some time.
+    for (List<Integer> queryGroup : queryGroups)
+      batchExecutors.execute(
+          () -> executeBatchQueryGroup(ticket, queryRUuids, diqls, queryGroup, sendPartialUpdates, resultAddress));
+  }
+
+  /**
+   * Execute the first query of a group of queries of a query batch that share the same WHERE clause and start the other
+   * queries of the group as soon as the first one is done.
+   * 
+   * @param queryGroup
+   *          indices in queryRUuids/diqls of the queries of the group.
+   */
+  private void executeBatchQueryGroup(Ticket ticket, List<RUUID> queryRUuids, List<String> diqls,
+      List<Integer> queryGroup, boolean sendPartialUpdates, RNodeAddress resultAddress) {
+    AtomicBoolean followersStarted = new AtomicBoolean(false);
+    Runnable startFollowers = () -> {
+      if (!followersStarted.compareAndSet(false, true))
+        return;
+
+      for (int idx : queryGroup.subList(1, queryGroup.size()))
+        batchExecutors.execute(() -> executeBatchQuery(ticket, queryRUuids.get(idx), diqls.get(idx),
+            sendPartialUpdates, resultAddress, null));
+    };
+
+    int firstIdx = queryGroup.get(0);
+    executeBatchQuery(ticket, queryRUuids.get(firstIdx), diqls.get(firstIdx), sendPartialUpdates, resultAddress,
+        startFollowers);
+  }
+
+  /**
+   * Execute a single query of a query batch and send any exception to the result address, as there is no caller we
+   * could throw the exception to.
+   * 
+   * @param queryDoneListener
+   *          see {@link #executeQuery(Ticket, RUUID, String, boolean, RNodeAddress, Runnable)}. Is called, too, if the
+   *          query cannot be executed at all.
+   */
+  private void executeBatchQuery(Ticket ticket, RUUID queryRUuid, String diql, boolean sendPartialUpdates,
+      RNodeAddress resultAddress, Runnable queryDoneListener) {
+    try {
+      executeQuery(ticket, queryRUuid, diql, sendPartialUpdates, resultAddress, queryDoneListener);
+    } catch (TException | RuntimeException e) {
+      logger.warn("Could not execute query {} of query batch: {}", RUuidUtil.toUuid(queryRUuid), e.getMessage());
+      sendBatchQueryException(queryRUuid, new RQueryException(e.getMessage()), resultAddress);
+      if (queryDoneListener != null)
+        queryDoneListener.run();
+    }
+  }
+
+  /**
+   * Send the exception of a query of a query batch to the result address.
+   */
+  private void sendBatchQueryException(RUUID queryRUuid, RQueryException exception, RNodeAddress resultAddress) {
+    try (Connection<QueryResultService.Iface> resultConnection =
+        connectionPool.reserveConnection(QueryResultService.Iface.class, resultAddress, null)) {
+      resultConnection.getService().queryException(queryRUuid, exception);
+    } catch (ConnectionException | IOException | TException | InterruptedException e) {
+      logger.warn("Was not able to send out exception to {} for {}", resultAddress, RUuidUtil.toUuid(queryRUuid), e);
+    }
+  }
+
+  /**
+   * Executes the given query.
+   * 
+   * @param queryDoneListener
+   *          Optional. Is called as soon as the execution of the query is done, i.e. after the final result or an
+   *          exception was sent to the result address or after the query was cancelled. Might be called multiple times.
+   */
+  private void executeQuery(Ticket ticket, RUUID queryRUuid, String diql, boolean sendPartialUpdates,
+      RNodeAddress resultAddress, Runnable queryDoneListener) throws TException, RQueryException {
+    UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
+
     queryUserNames.put(queryUuid, ticket.getClaim().getUsername());
 
     UUID executionUuid = queryUuidProvider.createNewExecutionUuid(queryUuid, "master-" + queryUuid);
@@ -265,6 +425,8 @@ public class QueryServiceHandler implements Iface {
       connectionPool.releaseConnection(resultConnection);
       queryRegistry.cleanupQueryFully(queryUuid);
       queryUserNames.remove(queryUuid);
+      if (queryDoneListener != null)
+        queryDoneListener.run();
       // kill all executions, also remote ones. This might also kill the current thread!
       executorManager.shutdownEverythingOfQuery(queryUuid);
     });
@@ -310,16 +472,18 @@ public class QueryServiceHandler implements Iface {
     MasterQueryExecutor queryExecutor =
         masterQueryExecutorFactory.createExecutor(new MasterQueryExecutor.QueryExecutorCallback() {
           @Override
-          public void intermediaryResultTableAvailable(RResultTable resultTable, short percentDone) {
-            logger.trace("New intermediary result for {}: {}", queryUuid, resultTable);
+          public boolean intermediaryResultTableDeltaAvailable(RResultTableDelta delta, short percentDone) {
+            logger.trace("New intermediary result delta for {}: {}", queryUuid, delta);
             try {
               synchronized (resultConnection) {
-                resultService.partialUpdate(queryRUuid, resultTable, percentDone);
+                resultService.partialUpdateDelta(queryRUuid, delta, percentDone);
               }
+              return true;
             } catch (TException e) {
               logger.warn(
                   "Was not able to send out intermediary result to " + resultAddress.toString() + " for " + queryUuid,
                   e);
+              return false;
             }
           }
 
@@ -327,6 +491,22 @@ public class QueryServiceHandler implements Iface {
           public void finalResultTableAvailable(RResultTable resultTable) {
             logger.trace("Final result for {}: {}", queryUuid, resultTable);
 
+            ExecutablePlan masterPlan = masterPlanHolder.getValue();
+            boolean explainPlanOnly =
+                masterPlan != null && masterPlan.getInfo().isExplain() && !masterPlan.getInfo().isExplainAnalyze();
+            boolean explainAnalyze = masterPlan != null && masterPlan.getInfo().isExplainAnalyze();
+
+            boolean allStatisticsAvailable = false;
+            if (explainAnalyze) {
+              // EXPLAIN ANALYZE: Instead of the result, provide the plan including the statistics of the execution.
+              allStatisticsAvailable = gatherStatistics();
+              RExecutionPlan remotePlan = (remoteExecutionStepHolder.getValue() != null)
+                  ? remoteExecutionStepHolder.getValue().getRemoteExecutionPlan() : null;
+              resultTable = new QueryPlanExplainer(masterPlan, remotePlan).explainAnalyze(
+                  queryRegistry.getCurrentStatsManager().createQueryStats(), new ArrayList<>(remoteStats));
+              logger.trace("EXPLAIN ANALYZE result for {}: {}", queryUuid, resultTable);
+            }
+
             try {
               synchronized (resultConnection) {
                 resultService.queryResults(queryRUuid, resultTable);
@@ -336,60 +516,77 @@ public class QueryServiceHandler implements Iface {
                   e);
             }
 
-            gatherAndSendStatistics();
+            if (!explainPlanOnly) {
+              if (!explainAnalyze)
+                allStatisticsAvailable = gatherStatistics();
+
+              if (allStatisticsAvailable)
+                sendStatistics();
+              else
+                logger.trace("Not sending statistics for {} as there were not all results received from remotes.",
+                    queryUuid);
+            }
 
             cleanupFn.run();
           }
 
           /**
-           * Gathers some final stats and tries to send them. Will return cleanly on InterruptedException.
+           * Gathers some final stats and waits until the statistics of all remotes are available. Will return cleanly
+           * on InterruptedException.
+           * 
+           * @return <code>true</code> if the statistics of the query master and all remotes are available.
            */
-          private void gatherAndSendStatistics() {
+          private boolean gatherStatistics() {
             queryRegistry.getOrCreateCurrentStatsManager().setCompletedNanos(System.nanoTime());
 
-            if (masterPlanHolder.getValue() != null && remoteExecutionStepHolder.getValue() != null) {
-              ExecutablePlan masterPlan = masterPlanHolder.getValue();
-              RExecutionPlan remotePlan = remoteExecutionStepHolder.getValue().getRemoteExecutionPlan();
-
-              new ExecutablePlanQueryStatsUtil().publishQueryStats(queryRegistry.getCurrentStatsManager(), masterPlan);
-
-              // wait some time in case the last remote did not yet provide its statistics.
-              int count = 0;
-              while (remoteStats.size() != remoteExecutionStepHolder.getValue().getNumberOfRemotesTriggeredOverall()) {
-                count++;
-                synchronized (remoteStatsWait) {
-                  try {
-                    remoteStatsWait.wait(100);
-                  } catch (InterruptedException e) {
-                    return;
-                  }
-                }
+            if (masterPlanHolder.getValue() == null || remoteExecutionStepHolder.getValue() == null)
+              return false;
+
+            ExecutablePlan masterPlan = masterPlanHolder.getValue();
 
-                if (count == 50) { // wait approx. 5s
-                  break;
+            new ExecutablePlanQueryStatsUtil().publishQueryStats(queryRegistry.getCurrentStatsManager(), masterPlan);
+
+            // wait some time in case the last remote did not yet provide its statistics.
+            int count = 0;
+            while (remoteStats.size() != remoteExecutionStepHolder.getValue().getNumberOfRemotesTriggeredOverall()) {
+              count++;
+              synchronized (remoteStatsWait) {
+                try {
+                  remoteStatsWait.wait(100);
+                } catch (InterruptedException e) {
+                  return false;
                 }
               }
 
-              // only proceed if we now really collected all stats.
-              if (remoteStats.size() == remoteExecutionStepHolder.getValue().getNumberOfRemotesTriggeredOverall()) {
-                MasterQueryStatisticsMerger statMerger = new MasterQueryStatisticsMerger(masterPlan, remotePlan);
+              if (count == 50) { // wait approx. 5s
+                break;
+              }
+            }
 
-                RQueryStatistics finalStats = statMerger
-                    .merge(queryRegistry.getCurrentStatsManager().createQueryStats(), new ArrayList<>(remoteStats));
+            // only proceed if we now really collected all stats.
+            return remoteStats.size() == remoteExecutionStepHolder.getValue().getNumberOfRemotesTriggeredOverall();
+          }
 
-                logger.trace("Sending out query statistics of {} to client: {}", queryUuid, finalStats);
-                try {
-                  synchronized (resultConnection) {
-                    resultService.queryStatistics(queryRUuid, finalStats);
-                  }
-                } catch (TException e) {
-                  logger.warn(
-                      "Was not able to send out query statistics to " + resultAddress.toString() + " for " + queryUuid,
-                      e);
-                }
-              } else
-                logger.trace("Not sending statistics for {} as there were not all results received from remotes.",
-                    queryUuid);
+          /**
+           * Merges the statistics of query master and remotes and tries to send them.
+           */
+          private void sendStatistics() {
+            ExecutablePlan masterPlan = masterPlanHolder.getValue();
+            RExecutionPlan remotePlan = remoteExecutionStepHolder.getValue().getRemoteExecutionPlan();
+
+            MasterQueryStatisticsMerger statMerger = new MasterQueryStatisticsMerger(masterPlan, remotePlan);
+
+            RQueryStatistics finalStats = statMerger.merge(queryRegistry.getCurrentStatsManager().createQueryStats(),
+                new ArrayList<>(remoteStats));
+
+            logger.trace("Sending out query statistics of {} to client: {}", queryUuid, finalStats);
+            try {
+              synchronized (resultConnection) {
+                resultService.queryStatistics(queryRUuid, finalStats);
+              }
+            } catch (TException e) {
+              logger.warn(
+                  "Was not able to send out query statistics to " + resultAddress.toString() + " for " + queryUuid, e);
             }
           }
 
@@ -467,12 +664,32 @@ public class QueryServiceHandler implements Iface {
   }
 
   /**
-   * Parse given diql and return the {@link FromRequest}.
+   * Parse given diql and check that the user is allowed to access the table of the query.
+   * 
+   * @return The parsed {@link ExecutionRequest}.
+   */
+  private ExecutionRequest preParseAndCheckAuthorization(Ticket ticket, UUID queryUuid, String diql)
+      throws RQueryException, AuthorizationException {
+    try {
+      ExecutionRequest executionRequest = parseExecutionRequest(diql);
+      FromRequest fromRequest = executionRequest.getFromRequest();
+      if (fromRequest == null)
+        throw new RQueryException("No FROM specified.");
+      if (!tableAccessPermissionUtil.hasAccessToTable(ticket, fromRequest.getTable()))
+        throw new AuthorizationException(
+            "Table '" + fromRequest.getTable() + "' does not exist or user has no permission to access it.");
+      return executionRequest;
+    } catch (ParseException | ValidationException e) {
+      logger.warn("Exception while pre-parsing query in order to check authorization: {}", queryUuid, e.getMessage());
+      throw new RQueryException(e.getMessage());
+    }
+  }
+
+  /**
+   * Parse given diql and return the {@link ExecutionRequest}.
    */
-  private FromRequest parseFromRequest(String diql) throws ParseException {
+  private ExecutionRequest parseExecutionRequest(String diql) throws ParseException {
     DiqlStmtContext sqlStmt = DiqlParseUtil.parseWithAntlr(diql);
-    ExecutionRequest executionRequest =
-        sqlStmt.accept(new SelectStmtVisitor(repeatedColumnNameGenerator, functionBasedColumnNameBuilderFactory));
-    return executionRequest.getFromRequest();
+    return sqlStmt.accept(new SelectStmtVisitor(repeatedColumnNameGenerator, functionBasedColumnNameBuilderFactory));
   }
 }
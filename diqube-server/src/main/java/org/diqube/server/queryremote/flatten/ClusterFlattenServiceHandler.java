@@ -21,6 +21,7 @@
 package org.diqube.server.queryremote.flatten;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -49,11 +50,13 @@ import org.diqube.context.AutoInstatiate;
 import org.diqube.data.column.AdjustableStandardColumnShard;
 import org.diqube.data.column.StandardColumnShard;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
 import org.diqube.data.table.Table;
 import org.diqube.data.table.TableShard;
 import org.diqube.executionenv.FlattenedTableInstanceManager;
 import org.diqube.executionenv.TableRegistry;
 import org.diqube.flatten.FlattenManager;
+import org.diqube.flatten.FlattenedTableUtil;
 import org.diqube.flatten.Flattener;
 import org.diqube.flatten.QueryMasterFlattenService;
 import org.diqube.remote.cluster.thrift.ClusterFlattenService;
@@ -105,6 +108,9 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
   @Inject
   private FlattenManager flattenManager;
 
+  @Inject
+  private FlattenedTableUtil flattenedTableUtil;
+
   @Inject
   private ServerTableMetadataPublisher metadataPublisher;
 
@@ -216,12 +222,18 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
    * @param resultAddress
    *          Address where there's a {@link ClusterFlattenService} that will receive the results. Can be
    *          <code>null</code> to not send any results (only valid locally, since Thrift does not support null values).
+   * @param referencedColumns
+   *          Names of the columns of the flattened table that the query which triggered the flattening references.
+   *          These columns will be flattened right away, all other columns will be flattened lazily as soon as a query
+   *          accesses them. Can be empty. If this request is merged into another request that is currently running,
+   *          the referenced columns are flattened lazily, too.
    * @throws RFlattenException
    * @throws TException
    */
   @Override
   public void flattenAllLocalShards(RUUID flattenRequestId, String tableName, String flattenBy,
-      List<RNodeAddress> otherFlatteners, RNodeAddress resultAddress) throws RFlattenException, TException {
+      List<RNodeAddress> otherFlatteners, RNodeAddress resultAddress, List<String> referencedColumns)
+          throws RFlattenException, TException {
     Table table = tableRegistry.getTable(tableName);
     if (table == null)
       throw new RFlattenException("Table '" + tableName + "' not available.");
@@ -265,7 +277,8 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
         flattenBy, requestUuid, resultAddress, otherFlatteners);
 
     // execute asynchronously.
-    flatteningExecutor.execute(new FlattenRunnable(requestUuid, details, table, tableName, flattenBy, otherFlatteners));
+    flatteningExecutor.execute(new FlattenRunnable(requestUuid, details, table, tableName, flattenBy, otherFlatteners,
+        (referencedColumns != null) ? referencedColumns : new ArrayList<>()));
   }
 
   @Override
@@ -291,6 +304,45 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
         RUuidUtil.toUuid(flattenedTableId), flattener);
   }
 
+  @Override
+  public void flattenProgress(RUUID flattenRequestId, int numberOfShardsFlattened, int numberOfShardsTotal,
+      RNodeAddress flattener) throws TException {
+    // executed on query master node.
+    queryMasterFlattenService.singleRemoteFlattenProgress(RUuidUtil.toUuid(flattenRequestId), numberOfShardsFlattened,
+        numberOfShardsTotal, flattener);
+  }
+
+  /**
+   * The given result address is not interested in the result of the given flatten request anymore (e.g. because the
+   * query that requested the flattening was cancelled).
+   * 
+   * <p>
+   * If no other result address is interested in the results of the flattening, the flattening is cancelled. Note that
+   * requests might have been merged (see {@link #flattenAllLocalShards(RUUID, String, String, List, RNodeAddress,
+   * List)}), in which case the flattening continues as long as any of the requesters is interested in the result.
+   */
+  @Override
+  public void cancelFlatten(RUUID flattenRequestId, RNodeAddress resultAddress) throws TException {
+    UUID requestUuid = RUuidUtil.toUuid(flattenRequestId);
+    Pair<RNodeAddress, UUID> resultPair = new Pair<>(resultAddress, requestUuid);
+
+    for (Entry<UUID, FlattenRequestDetails> detailsEntry : requestDetails.entrySet()) {
+      FlattenRequestDetails details = detailsEntry.getValue();
+      synchronized (details.sync) {
+        if (!details.resultAddresses.remove(resultPair))
+          continue;
+
+        if (details.resultAddresses.isEmpty() && requestDetails.get(detailsEntry.getKey()) == details) {
+          logger.info("Cancelling flatten request {}, as the last requester {} (request {}) is not interested anymore.",
+              detailsEntry.getKey(), resultAddress, requestUuid);
+          details.cancelled = true;
+          if (details.flattenThread != null)
+            details.flattenThread.interrupt();
+        }
+      }
+    }
+  }
+
   @Override
   public void flattenFailed(RUUID flattenRequestId, RFlattenException flattenException) throws TException {
     // executed on query master node.
@@ -317,6 +369,15 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
 
     /** Pair of "tableName" and "flatten-by" */
     Pair<String, String> requestPair;
+
+    /** <code>true</code> if all result addresses cancelled the request. Access only when synchronized on sync. */
+    boolean cancelled = false;
+
+    /**
+     * The thread executing the {@link FlattenRunnable}, <code>null</code> if not running. Access only when
+     * synchronized on sync.
+     */
+    Thread flattenThread = null;
   }
 
   /**
@@ -358,15 +419,17 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
     private String tableName;
     private String flattenBy;
     private List<RNodeAddress> otherFlatteners;
+    private List<String> referencedColumns;
 
     /* package */ FlattenRunnable(UUID requestUuid, FlattenRequestDetails details, Table table, String tableName,
-        String flattenBy, List<RNodeAddress> otherFlatteners) {
+        String flattenBy, List<RNodeAddress> otherFlatteners, List<String> referencedColumns) {
       this.requestUuid = requestUuid;
       this.details = details;
       this.table = table;
       this.tableName = tableName;
       this.flattenBy = flattenBy;
       this.otherFlatteners = otherFlatteners;
+      this.referencedColumns = referencedColumns;
     }
 
     @Override
@@ -375,12 +438,21 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
       requestIdByThreadId.put(Thread.currentThread().getId(), requestUuid);
       UUID flattenedTableId = requestUuid; // result UUID for the flattened table if we succeed.
 
+      synchronized (details.sync) {
+        if (details.cancelled)
+          // let the uncaughtExceptionHandler clean up.
+          throw new RuntimeException("Flatten request " + requestUuid + " was cancelled.");
+        // from now on, cancelling will interrupt this thread.
+        details.flattenThread = Thread.currentThread();
+      }
+
       // fetch table shards in one go - otherwise they might change inside the table while we're processing them!
       List<TableShard> inputShardsSorted = table.getShards().stream()
           .sorted((s1, s2) -> Long.compare(s1.getLowestRowId(), s2.getLowestRowId())).collect(Collectors.toList());
 
-      FlattenedTable flattenedTable =
-          flattenManager.createFlattenedTable(table, inputShardsSorted, flattenBy, flattenedTableId);
+      FlattenedTable flattenedTable = flattenManager.createFlattenedTable(table, inputShardsSorted, flattenBy,
+          flattenedTableId, (numberOfShardsFlattened, numberOfShardsTotal) -> sendProgress(numberOfShardsFlattened,
+              numberOfShardsTotal));
 
       List<TableShard> flattenedShardsSorted = flattenedTable.getShards().stream()
           .sorted((s1, s2) -> Long.compare(s1.getLowestRowId(), s2.getLowestRowId())).collect(Collectors.toList());
@@ -478,7 +550,15 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
             for (Entry<Long, TableShard> tableShardEntry : affectedShards.entrySet()) {
               logger.trace("Adjusting tableShard which was originally at rowId {}", tableShardEntry.getKey());
 
-              for (StandardColumnShard colShard : tableShardEntry.getValue().getColumns().values()) {
+              TableShard flattenedShard = tableShardEntry.getValue();
+              if (flattenedShard instanceof FlattenedTableShard) {
+                // adjust without materializing the columns.
+                ((FlattenedTableShard) flattenedShard)
+                    .adjustToFirstRowId(flattenedShard.getLowestRowId() + otherFlattenedNumerOfRowsDelta);
+                continue;
+              }
+
+              for (StandardColumnShard colShard : flattenedShard.getColumns().values()) {
                 ((AdjustableStandardColumnShard) colShard)
                     .adjustToFirstRowId(colShard.getFirstRowId() + otherFlattenedNumerOfRowsDelta);
               }
@@ -487,6 +567,11 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
         }
       }
 
+      // Flatten the columns the query that triggered this flattening needs right away (and after the rowIds are
+      // adjusted finally), so these are available when the query is executed. All other columns are flattened when they
+      // are accessed first.
+      flattenedTableUtil.materializeColumns(flattenedTable, referencedColumns);
+
       // Okay, all results from other flatteners received and incorporated, we're done!
       flattenedTableInstanceManager.registerFlattenedTableVersion(flattenedTableId, flattenedTable, tableName,
           flattenBy);
@@ -497,6 +582,7 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
         requestIdByThreadId.remove(Thread.currentThread().getId());
         requestDetails.remove(requestUuid);
         currentFlattenRequest.remove(new Pair<>(tableName, flattenBy));
+        details.flattenThread = null;
       }
 
       logger.info("Finished flattening '{}' by '{}', request ID {}.", tableName, flattenBy, requestUuid);
@@ -526,6 +612,24 @@ public class ClusterFlattenServiceHandler implements ClusterFlattenService.Iface
         // as we do not expect this to happen, just log and ignore.
       }
     }
+
+    /**
+     * Informs all result addresses about the progress of flattening the local table shards. Failures are ignored, as
+     * the progress is informational only.
+     */
+    private void sendProgress(int numberOfShardsFlattened, int numberOfShardsTotal) {
+      for (Pair<RNodeAddress, UUID> resultPair : details.resultAddresses) {
+        try (ServiceProvider<ClusterFlattenService.Iface> serviceProv =
+            connectionOrLocalHelper.getService(ClusterFlattenService.Iface.class, resultPair.getLeft(), null)) {
+
+          serviceProv.getService().flattenProgress(RUuidUtil.toRUuid(resultPair.getRight()), numberOfShardsFlattened,
+              numberOfShardsTotal, clusterManager.getOurNodeAddress().createRemote());
+        } catch (Exception e) {
+          logger.debug("Could not send flattening progress of {}/{} to requesting machine at {}. Ignoring.",
+              requestUuid, resultPair.getRight(), resultPair.getLeft(), e);
+        }
+      }
+    }
   }
 
 }
\ No newline at end of file
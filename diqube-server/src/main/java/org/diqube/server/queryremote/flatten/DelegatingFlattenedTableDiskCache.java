@@ -32,6 +32,7 @@ import org.diqube.context.AutoInstatiate;
 import org.diqube.context.Profiles;
 import org.diqube.data.flatten.FlattenDataFactory;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.table.TableFactory;
 import org.diqube.file.DiqubeFileFactory;
 import org.diqube.flatten.FlattenedTableDiskCache;
 import org.diqube.listeners.TableLoadListener;
@@ -59,6 +60,9 @@ public class DelegatingFlattenedTableDiskCache implements FlattenedTableDiskCach
   @Inject
   private FlattenDataFactory flattenDataFactory;
 
+  @Inject
+  private TableFactory tableFactory;
+
   @Inject
   private ExecutorManager executorManager;
 
@@ -83,8 +87,8 @@ public class DelegatingFlattenedTableDiskCache implements FlattenedTableDiskCach
 
       logger.info("Using '{}' as flattened table disk cache directory.", cacheLocationFile.getAbsolutePath());
 
-      delegate = new FlattenedControlFileFlattenedTableDiskCache(diqubeFileFactory, flattenDataFactory, executorManager,
-          cacheLocationFile);
+      delegate = new FlattenedControlFileFlattenedTableDiskCache(diqubeFileFactory, flattenDataFactory, tableFactory,
+          executorManager, cacheLocationFile);
     }
   }
 
@@ -53,15 +53,19 @@ import java.util.stream.Stream;
 
 import org.diqube.data.flatten.FlattenDataFactory;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.flatten.FlattenedTableShard;
 import org.diqube.data.serialize.DeserializationException;
 import org.diqube.data.serialize.SerializationException;
 import org.diqube.data.table.DefaultTableShard;
+import org.diqube.data.table.TableFactory;
 import org.diqube.data.table.TableShard;
 import org.diqube.file.DiqubeFileFactory;
 import org.diqube.file.DiqubeFileReader;
 import org.diqube.file.DiqubeFileWriter;
 import org.diqube.flatten.FlattenedTableDiskCache;
 import org.diqube.listeners.TableLoadListener;
+import org.diqube.metrics.Counter;
+import org.diqube.metrics.Metrics;
 import org.diqube.threads.ExecutorManager;
 import org.diqube.util.BigByteBuffer;
 import org.diqube.util.Pair;
@@ -101,6 +105,8 @@ public class FlattenedControlFileFlattenedTableDiskCache implements FlattenedTab
 
   private FlattenDataFactory flattenDataFactory;
 
+  private TableFactory tableFactory;
+
   private Object sync = new Object();
 
   /**
@@ -124,10 +130,16 @@ public class FlattenedControlFileFlattenedTableDiskCache implements FlattenedTab
 
   private ExecutorService serializationExecutor;
 
+  private Counter hitsCounter = Metrics.counter("flatten_disk_cache_hits");
+
+  private Counter missesCounter = Metrics.counter("flatten_disk_cache_misses");
+
   /* package */ FlattenedControlFileFlattenedTableDiskCache(DiqubeFileFactory diqubeFileFactory,
-      FlattenDataFactory flattenDataFactory, ExecutorManager executorManager, File cacheDirectory) {
+      FlattenDataFactory flattenDataFactory, TableFactory tableFactory, ExecutorManager executorManager,
+      File cacheDirectory) {
     this.diqubeFileFactory = diqubeFileFactory;
     this.flattenDataFactory = flattenDataFactory;
+    this.tableFactory = tableFactory;
     this.cacheDirectory = cacheDirectory;
     serializationExecutor =
         executorManager.newCachedThreadPoolWithMax("flattened-serializer-%d", new UncaughtExceptionHandler() {
@@ -169,11 +181,14 @@ public class FlattenedControlFileFlattenedTableDiskCache implements FlattenedTab
 
     Pair<String, String> keyPair = new Pair<>(sourceTableName, flattenBy);
     Deque<CachedDataInfo> deque = data.get(keyPair);
-    if (deque == null)
+    if (deque == null) {
+      missesCounter.inc();
       return null;
+    }
 
     for (CachedDataInfo info : deque) {
       if (info.getOrigFirstRowIds().equals(originalFirstRowIdsOfShards)) {
+        hitsCounter.inc();
         // Load table!
         logger.info("Found valid flattened table for table '{}' flattened by '{}' in disk cache. Deserializing...",
             sourceTableName, flattenBy);
@@ -186,6 +201,7 @@ public class FlattenedControlFileFlattenedTableDiskCache implements FlattenedTab
       }
     }
 
+    missesCounter.inc();
     return null;
   }
 
@@ -248,9 +264,14 @@ public class FlattenedControlFileFlattenedTableDiskCache implements FlattenedTab
           try (DiqubeFileWriter writer = diqubeFileFactory.createDiqubeFileWriter(fos)) {
             writer.setComment("Flattened table '" + sourceTableName + "' by '" + flattenBy + "' with firstRowIds: "
                 + flattenedTable.getOriginalFirstRowIdsOfShards().toString());
-            for (TableShard shard : flattenedTable.getShards())
+            for (TableShard shard : flattenedTable.getShards()) {
+              if (shard instanceof FlattenedTableShard)
+                // lazily flattened shards cannot be serialized directly, build a temporary materialized copy.
+                shard = tableFactory.createDefaultTableShard(shard.getTableName(),
+                    ((FlattenedTableShard) shard).createMaterializedColumns());
               writer.writeTableShard(shard, s -> { /* noop */
               });
+            }
           }
 
           logger.info("Serialized flattened table of table '{}' by '{}' to {}.", sourceTableName, flattenBy,
@@ -50,6 +50,9 @@ import org.diqube.executionenv.cache.ColumnShardCacheRegistry;
 import org.diqube.executionenv.cache.WritableColumnShardCache;
 import org.diqube.executionenv.querystats.QueryableColumnShard;
 import org.diqube.function.IntermediaryResult;
+import org.diqube.metrics.Counter;
+import org.diqube.metrics.Histogram;
+import org.diqube.metrics.Metrics;
 import org.diqube.name.FlattenedTableNameUtil;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.queries.QueryRegistry.QueryExceptionHandler;
@@ -96,6 +99,13 @@ import com.google.common.collect.Iterables;
 public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
   private static final Logger logger = LoggerFactory.getLogger(ClusterQueryServiceHandler.class);
 
+  private static final Histogram PLAN_PHASE_MS =
+      Metrics.histogram(Metrics.labeled("query_remote_phase_ms", "phase", "plan"));
+  private static final Histogram EXECUTE_PHASE_MS =
+      Metrics.histogram(Metrics.labeled("query_remote_phase_ms", "phase", "execute"));
+  private static final Counter EXECUTIONS_COUNTER = Metrics.counter("query_remote_executions");
+  private static final Counter FAILED_EXECUTIONS_COUNTER = Metrics.counter("query_remote_failed");
+
   /**
    * The executionUuids we are using by the queryUuids. THis contains only those executionUuids of queries which are
    * being executed currently. Additionally this map contains the "resultConnection" that was opened for the given
@@ -178,6 +188,7 @@ public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
       @Override
       public void handleException(Throwable t) {
         if (t != null) {
+          FAILED_EXECUTIONS_COUNTER.inc();
           logger.error("Exception while executing query {} execution {}", queryUuid, executionUuid, t);
           RExecutionException ex = new RExecutionException();
           ex.setMessage(t.getMessage());
@@ -205,7 +216,10 @@ public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
     };
 
     Holder<List<ExecutablePlan>> executablePlansHolder = new Holder<>();
+    Holder<Long> executeStartNanosHolder = new Holder<>();
 
+    EXECUTIONS_COUNTER.inc();
+    long planStartNanos = System.nanoTime();
     Pair<Runnable, List<ExecutablePlan>> prepareRes = null;
     try {
       prepareRes = executor.prepareExecution(queryUuid, executionUuid, executionPlan,
@@ -239,6 +253,8 @@ public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
 
             @Override
             public void executionDone() {
+              EXECUTE_PHASE_MS.record((System.nanoTime() - executeStartNanosHolder.getValue()) / 1_000_000);
+
               // gather final stats
               queryRegistry.getOrCreateCurrentStatsManager().setCompletedNanos(System.nanoTime());
 
@@ -323,6 +339,7 @@ public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
       return;
     }
 
+    PLAN_PHASE_MS.record((System.nanoTime() - planStartNanos) / 1_000_000);
     executablePlansHolder.setValue(prepareRes.getRight());
 
     // prepare to launch the execution in a different Thread
@@ -332,6 +349,7 @@ public class ClusterQueryServiceHandler implements ClusterQueryService.Iface {
 
     // start execution of ExecutablePlan(s) asynchronously.
     queryRegistry.getOrCreateStatsManager(queryUuid, executionUuid).setStartedNanos(System.nanoTime());
+    executeStartNanosHolder.setValue(System.nanoTime());
     threadPool.execute(prepareRes.getLeft());
   }
 
@@ -0,0 +1,145 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.thrift;
+
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.apache.thrift.transport.TTransportFactory;
+import org.diqube.metrics.Histogram;
+import org.diqube.metrics.Metrics;
+
+/**
+ * {@link TTransport} facade that reports the sizes of the messages read and written to {@link Metrics}.
+ * 
+ * <p>
+ * The delegate is expected to be a {@link TFramedTransport}: The size of a request is the number of bytes read until
+ * the frame is fully consumed, the size of a response is the number of bytes written until the transport is flushed.
+ * The buffer of the delegate is exposed, so protocols can still read directly from it.
+ *
+ * @author Bastian Gloeckle
+ */
+public class MessageSizeMetricsTransport extends TTransport {
+  private static final Histogram REQUEST_BYTES = Metrics.histogram("thrift_request_bytes");
+  private static final Histogram RESPONSE_BYTES = Metrics.histogram("thrift_response_bytes");
+
+  private TTransport delegate;
+  private long bytesRead = 0L;
+  private long bytesWritten = 0L;
+
+  public MessageSizeMetricsTransport(TTransport delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public boolean peek() {
+    return delegate.peek();
+  }
+
+  @Override
+  public void open() throws TTransportException {
+    delegate.open();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws TTransportException {
+    int res = delegate.read(buf, off, len);
+    if (res > 0)
+      bytesConsumed(res);
+    return res;
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) throws TTransportException {
+    delegate.write(buf, off, len);
+    bytesWritten += len;
+  }
+
+  @Override
+  public void flush() throws TTransportException {
+    delegate.flush();
+    if (bytesWritten > 0) {
+      RESPONSE_BYTES.record(bytesWritten);
+      bytesWritten = 0L;
+    }
+  }
+
+  @Override
+  public byte[] getBuffer() {
+    return delegate.getBuffer();
+  }
+
+  @Override
+  public int getBufferPosition() {
+    return delegate.getBufferPosition();
+  }
+
+  @Override
+  public int getBytesRemainingInBuffer() {
+    return delegate.getBytesRemainingInBuffer();
+  }
+
+  @Override
+  public void consumeBuffer(int len) {
+    delegate.consumeBuffer(len);
+    bytesConsumed(len);
+  }
+
+  /**
+   * Count bytes that were consumed from the current frame and report the request size as soon as the frame has been
+   * consumed completely.
+   */
+  private void bytesConsumed(int len) {
+    bytesRead += len;
+    if (delegate.getBytesRemainingInBuffer() == 0) {
+      REQUEST_BYTES.record(bytesRead);
+      bytesRead = 0L;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "[MessageSizeMetricsTransport:" + delegate.toString() + "]";
+  }
+
+  public static class Factory extends TTransportFactory {
+    private TTransportFactory delegateFactory;
+
+    public Factory(TTransportFactory delegateFactory) {
+      this.delegateFactory = delegateFactory;
+    }
+
+    @Override
+    public TTransport getTransport(TTransport trans) {
+      return new MessageSizeMetricsTransport(delegateFactory.getTransport(trans));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.diqube.context.Profiles;
+import org.diqube.server.control.ControlFileFactory;
+import org.diqube.server.control.ControlFileLoader;
+import org.diqube.threads.ExecutorManager;
+import org.diqube.util.Pair;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ControlFileManager}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class ControlFileManagerTest {
+  private AnnotationConfigApplicationContext dataContext;
+  private Path controlFileDir;
+  private ControlFileFactory controlFileFactory;
+  private ControlFileManager controlFileManager;
+
+  @BeforeMethod
+  public void before() throws IOException {
+    dataContext = new AnnotationConfigApplicationContext();
+    dataContext.getEnvironment().setActiveProfiles(Profiles.UNIT_TEST);
+    dataContext.scan("org.diqube");
+    dataContext.refresh();
+
+    controlFileDir = Files.createTempDirectory(ControlFileManagerTest.class.getSimpleName());
+
+    controlFileFactory = Mockito.mock(ControlFileFactory.class);
+
+    controlFileManager = new ControlFileManager();
+    controlFileManager.setControlFileFactory(controlFileFactory);
+    controlFileManager.setExecutorManager(dataContext.getBean(ExecutorManager.class));
+    // use two threads independently of the number of CPUs of the machine running the test.
+    controlFileManager.setDeploymentThreads(2);
+    controlFileManager.initialize();
+  }
+
+  @AfterMethod
+  public void after() throws IOException {
+    controlFileManager.cleanup();
+    dataContext.close();
+    Files.walkFileTree(controlFileDir, new FileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        file.toFile().delete();
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        dir.toFile().delete();
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Test
+  public void controlFilesDeployedConcurrently() throws Exception {
+    // GIVEN
+    File controlFile1 = new File(controlFileDir.toFile(), "a" + ControlFileManager.CONTROL_FILE_EXTENSION);
+    File controlFile2 = new File(controlFileDir.toFile(), "b" + ControlFileManager.CONTROL_FILE_EXTENSION);
+    // each loader waits until the other one is loading, too - works only if both are deployed at the same time.
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    ControlFileLoader loader1 = mockLoader(barrier, "table1");
+    ControlFileLoader loader2 = mockLoader(barrier, "table2");
+    Mockito.when(controlFileFactory.createControlFileLoader(controlFile1)).thenReturn(loader1);
+    Mockito.when(controlFileFactory.createControlFileLoader(controlFile2)).thenReturn(loader2);
+
+    // WHEN
+    controlFileManager.deployControlFiles(Arrays.asList(controlFile1, controlFile2));
+
+    // THEN
+    Assert.assertTrue(new File(controlFileDir.toFile(), "a" + ControlFileManager.READY_FILE_EXTENSION).exists(),
+        "Expected first control file to be deployed.");
+    Assert.assertTrue(new File(controlFileDir.toFile(), "b" + ControlFileManager.READY_FILE_EXTENSION).exists(),
+        "Expected second control file to be deployed.");
+  }
+
+  @Test
+  public void sameControlFileNotDeployedTwice() throws Exception {
+    // GIVEN
+    File controlFile = new File(controlFileDir.toFile(), "a" + ControlFileManager.CONTROL_FILE_EXTENSION);
+    ControlFileLoader loader = Mockito.mock(ControlFileLoader.class);
+    Mockito.when(loader.load()).thenReturn(new Pair<>("table", Arrays.asList(0L)));
+    Mockito.when(controlFileFactory.createControlFileLoader(controlFile)).thenReturn(loader);
+
+    // WHEN
+    controlFileManager.deployControlFiles(Arrays.asList(controlFile, controlFile));
+
+    // THEN
+    Mockito.verify(loader, Mockito.times(1)).load();
+  }
+
+  private ControlFileLoader mockLoader(CyclicBarrier barrier, String tableName) throws Exception {
+    ControlFileLoader res = Mockito.mock(ControlFileLoader.class);
+    Mockito.when(res.load()).thenAnswer(invocation -> {
+      barrier.await(10, TimeUnit.SECONDS);
+      return new Pair<>(tableName, Arrays.asList(0L));
+    });
+    return res;
+  }
+}
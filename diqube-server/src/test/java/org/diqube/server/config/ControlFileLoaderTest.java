@@ -128,6 +128,8 @@ public class ControlFileLoaderTest {
             dataContext.getBean(DiqubeLoader.class), //
             dataContext.getBean(ClusterFlattenServiceHandler.class), //
             metadataPublisher, //
+            metadataManagerMock, //
+            tableName -> tableRegistry, //
             controlFile);
       }
     };
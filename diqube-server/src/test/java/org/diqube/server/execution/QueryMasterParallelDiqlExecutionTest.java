@@ -304,6 +304,70 @@ public abstract class QueryMasterParallelDiqlExecutionTest<T> extends AbstractRe
     }
   }
 
+  @Test
+  public void projectionOnIntermediaryResultsKeepsNotAdjustedRows() throws InterruptedException, ExecutionException {
+    // GIVEN
+    initializeSampleTableShards(2);
+
+    ExecutablePlan executablePlan = buildExecutablePlan( //
+        "Select " + COL_A + ", add(count(), 1) from " + TABLE + //
+            " group by " + COL_A);
+
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      // start execution.
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+
+      QueryResultHandler resultHandler = null;
+      while (resultHandler == null) {
+        if (queryRegistry.getQueryResultHandlers(QueryUuid.getCurrentQueryUuid()).size() > 0)
+          resultHandler = queryRegistry.getQueryResultHandlers(QueryUuid.getCurrentQueryUuid()).iterator().next();
+      }
+
+      String countCol = functionBasedColumnNameBuilderFactory.create().withFunctionName("count").build();
+      String addCol = functionBasedColumnNameBuilderFactory.create().withFunctionName("add")
+          .addParameterColumnName(countCol).addParameterLiteralLong(1).build();
+
+      // let first shard returns some values
+      Map<Long, Object> values = new HashMap<>();
+      values.put(0L, dp.v(5));
+      values.put(1L, dp.v(10));
+      resultHandler.newColumnValues(COL_A, values);
+      resultHandler.newIntermediaryAggregationResult(0L, countCol, intermediary(countCol, 0),
+          intermediary(countCol, 3));
+      resultHandler.newIntermediaryAggregationResult(1L, countCol, intermediary(countCol, 0),
+          intermediary(countCol, 1));
+
+      // THEN
+      waitUntilOrFail(newValuesNotify, //
+          () -> "Not correct value. Was: " + resultValues.get(addCol), //
+          () -> resultValues.get(addCol) != null && Long.valueOf(4L).equals(resultValues.get(addCol).get(0L))
+              && Long.valueOf(2L).equals(resultValues.get(addCol).get(1L)));
+
+      // WHEN only group 1 is adjusted.
+      resultHandler.newIntermediaryAggregationResult(1L, countCol, intermediary(countCol, 1),
+          intermediary(countCol, 5));
+
+      // THEN group 1 is projected again, group 0 keeps its value.
+      waitUntilOrFail(newValuesNotify, //
+          () -> "Not correct value. Was: " + resultValues.get(addCol), //
+          () -> Long.valueOf(6L).equals(resultValues.get(addCol).get(1L)));
+      Assert.assertEquals(resultValues.get(addCol).get(0L), 4L, "Expected value of not adjusted group to be kept");
+
+      resultHandler.oneRemoteDone();
+      resultHandler.oneRemoteDone();
+
+      future.get(); // wait until fully done.
+
+      // THEN after full completion of pipeline.
+      Assert.assertEquals(resultValues.get(addCol).get(0L), 4L, "Expected final value of group 0 to be correct");
+      Assert.assertEquals(resultValues.get(addCol).get(1L), 6L, "Expected final value of group 1 to be correct");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private IntermediaryResult intermediary(String outputColName, int count) {
     CountFunction fn = new CountFunction();
     fn.addValues(new ValueProvider<Object>() {
@@ -0,0 +1,168 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.execution.dbl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.function.AggregationFunction;
+import org.diqube.function.AggregationFunction.ValueProvider;
+import org.diqube.function.BatchAggregationFunction;
+import org.diqube.function.FunctionFactory;
+import org.diqube.loader.LoadException;
+import org.diqube.server.execution.AbstractDiqlExecutionTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the column aggregation of DOUBLE columns that is executed in batches (see
+ * {@link BatchAggregationFunction}) provides the same results as aggregating each row on its own.
+ *
+ * @author Bastian Gloeckle
+ */
+@Test
+public class DoubleBatchColumnAggregationDiqlExecutionTest extends AbstractDiqlExecutionTest<Double> {
+
+  private static final String[] BATCH_FUNCTIONS = new String[] { "sum", "min", "max" };
+
+  public DoubleBatchColumnAggregationDiqlExecutionTest() {
+    super(ColumnType.DOUBLE, new DoubleTestDataProvider());
+  }
+
+  @Test
+  public void batchEqualsSingleRowTest() throws LoadException, InterruptedException, ExecutionException {
+    // GIVEN
+    // rows of different lengths, so each batch contains rows that are shorter than others. All values and sums are
+    // exactly representable, so the order of the additions does not matter.
+    Random random = new Random(42);
+    double[][] rowValues = new double[300][];
+    for (int row = 0; row < rowValues.length; row++) {
+      rowValues[row] = new double[1 + row % 7];
+      for (int idx = 0; idx < rowValues[row].length; idx++)
+        rowValues[row][idx] = (random.nextInt(2_000_001) - 1_000_000) * .25;
+    }
+
+    // WHEN/THEN
+    assertBatchEqualsSingleRow(rowValues);
+  }
+
+  @Test
+  public void batchEqualsSingleRowSignedZeroTest() throws LoadException, InterruptedException, ExecutionException {
+    // GIVEN
+    double[][] rowValues = new double[][] { //
+        new double[] { 0., -0. }, //
+        new double[] { -0., 0. }, //
+        new double[] { -0. }, //
+        new double[] { 1.5, -2.5, 0. } };
+
+    // WHEN/THEN
+    assertBatchEqualsSingleRow(rowValues);
+  }
+
+  /**
+   * Executes all {@link #BATCH_FUNCTIONS} on "b[*].c" of a table containing the given values and validates that the
+   * result of each row equals the result of a new function instance that aggregated the values of that row only.
+   */
+  private void assertBatchEqualsSingleRow(double[][] rowValues)
+      throws LoadException, InterruptedException, ExecutionException {
+    StringBuilder json = new StringBuilder("[");
+    for (int row = 0; row < rowValues.length; row++) {
+      if (row > 0)
+        json.append(",");
+      json.append("{ \"a\": ").append((double) row).append(", \"b\": [");
+      for (int idx = 0; idx < rowValues[row].length; idx++) {
+        if (idx > 0)
+          json.append(",");
+        json.append("{ \"c\": ").append(rowValues[row][idx]).append(" }");
+      }
+      json.append("] }");
+    }
+    json.append("]");
+    initializeFromJson(json.toString());
+
+    StringBuilder diql = new StringBuilder("select a");
+    List<String> resColNames = new ArrayList<>();
+    for (String fnName : BATCH_FUNCTIONS) {
+      diql.append(", ").append(fnName).append("(b[*].c)");
+      resColNames.add(functionBasedColumnNameBuilderFactory.create().withFunctionName(fnName)
+          .addParameterColumnName("b[*].c").build());
+    }
+    diql.append(" from ").append(TABLE);
+
+    ExecutablePlan plan = buildExecutablePlan(diql.toString());
+    ExecutorService executor = executors.newTestExecutor(plan.preferredExecutorServiceSize());
+    try {
+      Future<?> future = plan.executeAsynchronously(executor);
+      future.get();
+
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+
+      Map<Double, Long> rowIdByA = new HashMap<>();
+      for (Map.Entry<Long, Double> e : resultValues.get("a").entrySet())
+        rowIdByA.put(e.getValue(), e.getKey());
+      Assert.assertEquals(rowIdByA.size(), rowValues.length, "Expected results for all rows");
+
+      FunctionFactory functionFactory = dataContext.getBean(FunctionFactory.class);
+      for (int fnIdx = 0; fnIdx < BATCH_FUNCTIONS.length; fnIdx++) {
+        Map<Long, ?> actualValues = resultValues.get(resColNames.get(fnIdx));
+        Assert.assertNotNull(actualValues, "Expected results for " + BATCH_FUNCTIONS[fnIdx]);
+        for (int row = 0; row < rowValues.length; row++) {
+          AggregationFunction<Double, Object> fn =
+              functionFactory.createAggregationFunction(BATCH_FUNCTIONS[fnIdx], ColumnType.DOUBLE);
+          Assert.assertTrue(fn instanceof BatchAggregationFunction,
+              "Expected " + BATCH_FUNCTIONS[fnIdx] + " to support batches");
+          Double[] values = new Double[rowValues[row].length];
+          for (int idx = 0; idx < values.length; idx++)
+            values[idx] = rowValues[row][idx];
+          fn.addValues(new ValueProvider<Double>() {
+            @Override
+            public Double[] getValues() {
+              return values;
+            }
+
+            @Override
+            public long size() {
+              return values.length;
+            }
+
+            @Override
+            public boolean isFinalSetOfValues() {
+              return true;
+            }
+          });
+
+          Assert.assertEquals(actualValues.get(rowIdByA.get((double) row)), fn.calculate(),
+              "Expected correct result of " + BATCH_FUNCTIONS[fnIdx] + " for row " + row);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
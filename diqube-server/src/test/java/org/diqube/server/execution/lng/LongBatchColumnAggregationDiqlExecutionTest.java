@@ -0,0 +1,241 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.execution.lng;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.function.AggregationFunction;
+import org.diqube.function.AggregationFunction.ValueProvider;
+import org.diqube.function.BatchAggregationFunction;
+import org.diqube.function.FunctionFactory;
+import org.diqube.function.ResettableAggregationFunction;
+import org.diqube.loader.LoadException;
+import org.diqube.server.execution.AbstractDiqlExecutionTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the column aggregation of LONG columns that is executed in batches (see
+ * {@link BatchAggregationFunction}) or that re-uses function instances (see {@link ResettableAggregationFunction})
+ * provides the same results as aggregating each row using a new function instance.
+ *
+ * @author Bastian Gloeckle
+ */
+@Test
+public class LongBatchColumnAggregationDiqlExecutionTest extends AbstractDiqlExecutionTest<Long> {
+
+  private static final String[] BATCH_FUNCTIONS = new String[] { "sum", "min", "max", "avg" };
+
+  public LongBatchColumnAggregationDiqlExecutionTest() {
+    super(ColumnType.LONG, new LongTestDataProvider());
+  }
+
+  @Test
+  public void batchEqualsSingleRowTest() throws LoadException, InterruptedException, ExecutionException {
+    // GIVEN
+    // rows of different lengths, so each batch contains rows that are shorter than others.
+    Random random = new Random(42);
+    long[][] rowValues = new long[300][];
+    for (int row = 0; row < rowValues.length; row++) {
+      rowValues[row] = new long[1 + row % 7];
+      for (int idx = 0; idx < rowValues[row].length; idx++)
+        rowValues[row][idx] = random.nextInt(2_000_001) - 1_000_000;
+    }
+
+    // WHEN/THEN
+    initializeFromJson(singleRepetitionJson(rowValues));
+    assertEqualsSingleRow("b[*].c", BATCH_FUNCTIONS, rowValues, true);
+  }
+
+  @Test
+  public void batchEqualsSingleRowLargeSumsTest() throws LoadException, InterruptedException, ExecutionException {
+    // GIVEN
+    // sums that cannot be represented exactly by a double and sums that overflow a long.
+    long[][] rowValues = new long[][] { //
+        new long[] { (1L << 53) + 1, 2, 4 }, //
+        new long[] { (1L << 53) + 1, (1L << 53) + 3, 7 }, //
+        new long[] { Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 3, 5 }, //
+        new long[] { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE }, //
+        new long[] { Long.MIN_VALUE, Long.MIN_VALUE, -1 }, //
+        new long[] { Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE }, //
+        new long[] { -(1L << 60) - 1, -(1L << 60) - 3, 1 }, //
+        new long[] { 1 } };
+
+    // WHEN/THEN
+    initializeFromJson(singleRepetitionJson(rowValues));
+    assertEqualsSingleRow("b[*].c", BATCH_FUNCTIONS, rowValues, true);
+  }
+
+  @Test
+  public void resetEqualsSingleRowTest() throws LoadException, InterruptedException, ExecutionException {
+    // GIVEN
+    // two repetitions are not aggregated in batches, but each row with the same (reset) function instance.
+    Random random = new Random(42);
+    long[][][] rowValues = new long[100][][];
+    long[][] flatRowValues = new long[rowValues.length][];
+    for (int row = 0; row < rowValues.length; row++) {
+      rowValues[row] = new long[1 + row % 3][];
+      List<Long> flat = new ArrayList<>();
+      for (int idx = 0; idx < rowValues[row].length; idx++) {
+        rowValues[row][idx] = new long[1 + (row + idx) % 4];
+        for (int idx2 = 0; idx2 < rowValues[row][idx].length; idx2++) {
+          rowValues[row][idx][idx2] = random.nextInt(2_000_001) - 1_000_000;
+          flat.add(rowValues[row][idx][idx2]);
+        }
+      }
+      flatRowValues[row] = flat.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // WHEN/THEN
+    initializeFromJson(doubleRepetitionJson(rowValues));
+    assertEqualsSingleRow("b[*].c[*]", new String[] { "sum", "min", "max", "avg" }, flatRowValues, false);
+  }
+
+  /**
+   * @return JSON of a table where row i has the values of rowValues[i] in "b[*].c".
+   */
+  private String singleRepetitionJson(long[][] rowValues) {
+    StringBuilder json = new StringBuilder("[");
+    for (int row = 0; row < rowValues.length; row++) {
+      if (row > 0)
+        json.append(",");
+      json.append("{ \"a\": ").append(row).append(", \"b\": [");
+      for (int idx = 0; idx < rowValues[row].length; idx++) {
+        if (idx > 0)
+          json.append(",");
+        json.append("{ \"c\": ").append(rowValues[row][idx]).append(" }");
+      }
+      json.append("] }");
+    }
+    json.append("]");
+    return json.toString();
+  }
+
+  /**
+   * @return JSON of a table where row i has the values of rowValues[i] in "b[*].c[*]".
+   */
+  private String doubleRepetitionJson(long[][][] rowValues) {
+    StringBuilder json = new StringBuilder("[");
+    for (int row = 0; row < rowValues.length; row++) {
+      if (row > 0)
+        json.append(",");
+      json.append("{ \"a\": ").append(row).append(", \"b\": [");
+      for (int idx = 0; idx < rowValues[row].length; idx++) {
+        if (idx > 0)
+          json.append(",");
+        json.append("{ \"c\": [");
+        for (int idx2 = 0; idx2 < rowValues[row][idx].length; idx2++) {
+          if (idx2 > 0)
+            json.append(",");
+          json.append(rowValues[row][idx][idx2]);
+        }
+        json.append("] }");
+      }
+      json.append("] }");
+    }
+    json.append("]");
+    return json.toString();
+  }
+
+  /**
+   * Executes the given functions on the given column pattern of the table and validates that the result of each row
+   * equals the result of a new function instance that aggregated the values of that row only.
+   * 
+   * @param rowValues
+   *          The values of each row that the column pattern resolves to.
+   * @param expectBatchFunctions
+   *          <code>true</code> if the functions are expected to implement {@link BatchAggregationFunction}.
+   */
+  private void assertEqualsSingleRow(String colPattern, String[] fnNames, long[][] rowValues,
+      boolean expectBatchFunctions) throws InterruptedException, ExecutionException {
+    StringBuilder diql = new StringBuilder("select a");
+    List<String> resColNames = new ArrayList<>();
+    for (String fnName : fnNames) {
+      diql.append(", ").append(fnName).append("(").append(colPattern).append(")");
+      resColNames.add(functionBasedColumnNameBuilderFactory.create().withFunctionName(fnName)
+          .addParameterColumnName(colPattern).build());
+    }
+    diql.append(" from ").append(TABLE);
+
+    ExecutablePlan plan = buildExecutablePlan(diql.toString());
+    ExecutorService executor = executors.newTestExecutor(plan.preferredExecutorServiceSize());
+    try {
+      Future<?> future = plan.executeAsynchronously(executor);
+      future.get();
+
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+
+      Map<Long, Long> rowIdByA = new HashMap<>();
+      for (Map.Entry<Long, Long> e : resultValues.get("a").entrySet())
+        rowIdByA.put(e.getValue(), e.getKey());
+      Assert.assertEquals(rowIdByA.size(), rowValues.length, "Expected results for all rows");
+
+      FunctionFactory functionFactory = dataContext.getBean(FunctionFactory.class);
+      for (int fnIdx = 0; fnIdx < fnNames.length; fnIdx++) {
+        Map<Long, ?> actualValues = resultValues.get(resColNames.get(fnIdx));
+        Assert.assertNotNull(actualValues, "Expected results for " + fnNames[fnIdx]);
+        for (int row = 0; row < rowValues.length; row++) {
+          AggregationFunction<Long, Object> fn =
+              functionFactory.createAggregationFunction(fnNames[fnIdx], ColumnType.LONG);
+          if (expectBatchFunctions)
+            Assert.assertTrue(fn instanceof BatchAggregationFunction,
+                "Expected " + fnNames[fnIdx] + " to support batches");
+          else
+            Assert.assertTrue(fn instanceof ResettableAggregationFunction,
+                "Expected " + fnNames[fnIdx] + " to be resettable");
+          Long[] values = new Long[rowValues[row].length];
+          for (int idx = 0; idx < values.length; idx++)
+            values[idx] = rowValues[row][idx];
+          fn.addValues(new ValueProvider<Long>() {
+            @Override
+            public Long[] getValues() {
+              return values;
+            }
+
+            @Override
+            public long size() {
+              return values.length;
+            }
+
+            @Override
+            public boolean isFinalSetOfValues() {
+              return true;
+            }
+          });
+
+          Assert.assertEquals(actualValues.get(rowIdByA.get((long) row)), fn.calculate(),
+              "Expected correct result of " + fnNames[fnIdx] + " for row " + row);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.execution.lng;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.server.execution.AbstractDiqlExecutionTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests executing queries with EXPLAIN and EXPLAIN ANALYZE.
+ *
+ * @author Bastian Gloeckle
+ */
+@Test
+public class LongExplainDiqlExecutionTest extends AbstractDiqlExecutionTest<Long> {
+
+  public LongExplainDiqlExecutionTest() {
+    super(ColumnType.LONG, new LongTestDataProvider());
+  }
+
+  @Test
+  public void explainPlanInfoTest() {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("explain Select " + COL_A + " from " + TABLE);
+
+    // THEN
+    Assert.assertTrue(executablePlan.getInfo().isExplain(), "Expected plan to be marked as EXPLAIN");
+    Assert.assertFalse(executablePlan.getInfo().isExplainAnalyze(), "Expected plan to not be marked as ANALYZE");
+  }
+
+  @Test
+  public void noExplainPlanInfoTest() {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("Select " + COL_A + " from " + TABLE);
+
+    // THEN
+    Assert.assertFalse(executablePlan.getInfo().isExplain(), "Expected plan to not be marked as EXPLAIN");
+    Assert.assertFalse(executablePlan.getInfo().isExplainAnalyze(), "Expected plan to not be marked as ANALYZE");
+  }
+
+  @Test
+  public void explainAnalyzeExecutesQueryTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("explain analyze Select " + COL_A + " from " + TABLE);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      Assert.assertTrue(executablePlan.getInfo().isExplain(), "Expected plan to be marked as EXPLAIN");
+      Assert.assertTrue(executablePlan.getInfo().isExplainAnalyze(), "Expected plan to be marked as ANALYZE");
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+      Assert.assertTrue(resultValues.containsKey(COL_A), "Result values should be available for column A");
+      Assert.assertEquals(resultValues.get(COL_A).size(), VALUE_LENGTH, "Expected all rows to be provided");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
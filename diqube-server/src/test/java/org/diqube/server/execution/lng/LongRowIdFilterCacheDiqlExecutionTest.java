@@ -0,0 +1,124 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.execution.lng;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.executionenv.cache.RowIdFilterCache;
+import org.diqube.executionenv.cache.RowIdFilterCacheRegistry;
+import org.diqube.server.execution.AbstractDiqlExecutionTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the results of WHERE clauses are cached in the {@link RowIdFilterCache} and that the cached results are
+ * used correctly.
+ *
+ * @author Bastian Gloeckle
+ */
+@Test
+public class LongRowIdFilterCacheDiqlExecutionTest extends AbstractDiqlExecutionTest<Long> {
+
+  public LongRowIdFilterCacheDiqlExecutionTest() {
+    super(ColumnType.LONG, new LongTestDataProvider());
+  }
+
+  @Test
+  public void secondQueryUsesCachedResultTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    RowIdFilterCache cache = dataContext.getBean(RowIdFilterCacheRegistry.class).getOrCreateRowIdFilterCache(TABLE);
+
+    // WHEN
+    Map<Long, Long> firstResult = executeAndGetColA("Select " + COL_A + " from " + TABLE + " where " + COL_A + " = "
+        + COL_A_DEFAULT_VALUES_DIQL[5] + " or " + COL_A + " = " + COL_A_DEFAULT_VALUES_DIQL[10]);
+
+    // THEN
+    Assert.assertEquals(cache.size(), 1, "Expected result of WHERE clause to be cached");
+    Assert.assertEquals(firstResult.keySet(), new HashSet<>(Arrays.asList(5L, 10L)), "Expected correct row IDs");
+
+    // WHEN
+    // same WHERE clause, but different order of operands and different selection.
+    Map<Long, Long> secondResult = executeAndGetColA("Select " + COL_A + ", " + COL_B + " from " + TABLE + " where "
+        + COL_A + " = " + COL_A_DEFAULT_VALUES_DIQL[10] + " or " + COL_A + " = " + COL_A_DEFAULT_VALUES_DIQL[5]);
+
+    // THEN
+    Assert.assertEquals(cache.size(), 1, "Expected cached result to be re-used");
+    Assert.assertEquals(secondResult, firstResult, "Expected same result when using cached WHERE result");
+    Assert.assertEquals(resultValues.get(COL_B).get(5L), COL_B_DEFAULT_VALUES[5], "Expected correct value of colB");
+    Assert.assertEquals(resultValues.get(COL_B).get(10L), COL_B_DEFAULT_VALUES[10], "Expected correct value of colB");
+  }
+
+  @Test
+  public void projectedWhereColumnUsesCachedResultTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    RowIdFilterCache cache = dataContext.getBean(RowIdFilterCacheRegistry.class).getOrCreateRowIdFilterCache(TABLE);
+    String diql =
+        "Select " + COL_A + " from " + TABLE + " where add(" + COL_A + ", 1) < " + COL_A_DEFAULT_VALUES_DIQL[4];
+
+    // WHEN
+    Map<Long, Long> firstResult = executeAndGetColA(diql);
+    Map<Long, Long> secondResult = executeAndGetColA(diql);
+
+    // THEN
+    Assert.assertEquals(cache.size(), 1, "Expected result of WHERE clause to be cached");
+    Assert.assertEquals(firstResult.keySet(), new HashSet<>(Arrays.asList(0L, 1L, 2L)), "Expected correct row IDs");
+    Assert.assertEquals(secondResult, firstResult, "Expected same result when using cached WHERE result");
+  }
+
+  @Test
+  public void cacheRemovedOnTableUnloadTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    RowIdFilterCacheRegistry registry = dataContext.getBean(RowIdFilterCacheRegistry.class);
+
+    // WHEN
+    executeAndGetColA("Select " + COL_A + " from " + TABLE + " where " + COL_A + " = " + COL_A_DEFAULT_VALUES_DIQL[5]);
+    Assert.assertEquals(registry.getOrCreateRowIdFilterCache(TABLE).size(), 1,
+        "Expected result of WHERE clause to be cached");
+    registry.tableUnloaded(TABLE);
+
+    // THEN
+    Assert.assertEquals(registry.getOrCreateRowIdFilterCache(TABLE).size(), 0,
+        "Expected cache to be empty after table was unloaded");
+  }
+
+  private Map<Long, Long> executeAndGetColA(String diql) throws InterruptedException, ExecutionException {
+    resultValues.clear();
+    ExecutablePlan executablePlan = buildExecutablePlan(diql);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      Assert.assertTrue(resultValues.containsKey(COL_A), "Result values should be available for column A");
+      return new HashMap<>(resultValues.get(COL_A));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.server.execution.lng;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.diqube.data.column.ColumnType;
+import org.diqube.execution.ExecutablePlan;
+import org.diqube.execution.RowIdSample;
+import org.diqube.loader.columnshard.ColumnShardBuilder;
+import org.diqube.server.execution.AbstractDiqlExecutionTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+
+/**
+ * Tests executing queries with a TABLESAMPLE clause.
+ *
+ * @author Bastian Gloeckle
+ */
+@Test
+public class LongSampleDiqlExecutionTest extends AbstractDiqlExecutionTest<Long> {
+
+  public LongSampleDiqlExecutionTest() {
+    super(ColumnType.LONG, new LongTestDataProvider());
+  }
+
+  @Test
+  public void sampleRowsCountIsScaledTest() throws InterruptedException, ExecutionException {
+    Object[] colAValues = dp.emptyArray((int) VALUE_LENGTH);
+    for (int i = 0; i < colAValues.length; i++)
+      colAValues[i] = dp.v(1);
+    initializeSimpleTable(colAValues, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan(
+        "Select " + COL_A + ", count() from " + TABLE + " tablesample rows(10) group by " + COL_A);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+      Assert.assertEquals(executablePlan.getInfo().getSampleFraction(), .1, "Expected correct sample fraction");
+
+      String resColName = functionBasedColumnNameBuilderFactory.create().withFunctionName("count").build();
+      Assert.assertTrue(resultValues.containsKey(resColName), "Result values should be available for count col");
+
+      long count = Iterables.getOnlyElement(resultValues.get(resColName).values());
+      Assert.assertTrue(Math.abs(count - VALUE_LENGTH) < VALUE_LENGTH * 0.1,
+          "Expected scaled count to be roughly the number of rows in the table, but was " + count);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sampleRowsFullTest() throws InterruptedException, ExecutionException {
+    Object[] colAValues = dp.emptyArray((int) VALUE_LENGTH);
+    for (int i = 0; i < colAValues.length; i++)
+      colAValues[i] = dp.v(1);
+    initializeSimpleTable(colAValues, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan(
+        "Select " + COL_A + ", count() from " + TABLE + " tablesample rows(100) group by " + COL_A);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      String resColName = functionBasedColumnNameBuilderFactory.create().withFunctionName("count").build();
+      Assert.assertEquals(new HashSet<>(resultValues.get(resColName).values()),
+          new HashSet<>(Arrays.asList(VALUE_LENGTH)), "Expected exact count when sampling 100%");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sampleRowsSelectTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("Select " + COL_A + " from " + TABLE + " tablesample rows(5)");
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      Assert.assertTrue(resultValues.containsKey(COL_A), "Result values should be available for column A");
+      int numberOfRows = resultValues.get(COL_A).size();
+      Assert.assertTrue(numberOfRows > VALUE_LENGTH * 0.03 && numberOfRows < VALUE_LENGTH * 0.07,
+          "Expected roughly 5% of the rows to be selected, but were " + numberOfRows);
+      for (Long rowId : resultValues.get(COL_A).keySet())
+        Assert.assertEquals(resultValues.get(COL_A).get(rowId), COL_A_DEFAULT_VALUES[rowId.intValue()],
+            "Expected correct value for row " + rowId);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void samplePagesSelectsWholePagesTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan =
+        buildExecutablePlan("Select " + COL_A + " from " + TABLE + " tablesample pages(50)");
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+      int numberOfRows = resultValues.containsKey(COL_A) ? resultValues.get(COL_A).size() : 0;
+      // table has two pages: one full one and a second one with 100 rows.
+      Assert.assertTrue(
+          new HashSet<>(Arrays.asList(0, ColumnShardBuilder.PROPOSAL_ROWS, (int) VALUE_LENGTH,
+              (int) VALUE_LENGTH - ColumnShardBuilder.PROPOSAL_ROWS)).contains(numberOfRows),
+          "Expected whole pages to be selected, but got " + numberOfRows + " rows");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sampleRowsWhereTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("Select " + COL_A + " from " + TABLE
+        + " tablesample rows(50) where " + COL_A + " >= " + COL_A_DEFAULT_VALUES_DIQL[100]);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      RowIdSample sample = new RowIdSample(RowIdSample.SampleType.ROWS, .5);
+      Set<Long> expectedRowIds = LongStream.range(100, VALUE_LENGTH).filter(rowId -> sample.isSampled(rowId, 0L))
+          .mapToObj(Long::valueOf).collect(Collectors.toSet());
+      Assert.assertEquals(resultValues.get(COL_A).keySet(), expectedRowIds,
+          "Expected the rows matching the WHERE clause of the sample to be selected");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sampleRowsWhereNotTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("Select " + COL_A + " from " + TABLE
+        + " tablesample rows(50) where not " + COL_A + " = " + COL_A_DEFAULT_VALUES_DIQL[5]);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      RowIdSample sample = new RowIdSample(RowIdSample.SampleType.ROWS, .5);
+      Set<Long> expectedRowIds = LongStream.range(0, VALUE_LENGTH)
+          .filter(rowId -> rowId != 5 && sample.isSampled(rowId, 0L)).mapToObj(Long::valueOf)
+          .collect(Collectors.toSet());
+      Assert.assertEquals(resultValues.get(COL_A).keySet(), expectedRowIds,
+          "Expected only sampled rows to be selected, even though the WHERE clause is negated");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void samplePagesWhereTest() throws InterruptedException, ExecutionException {
+    initializeSimpleTable(COL_A_DEFAULT_VALUES, COL_B_DEFAULT_VALUES);
+    // GIVEN
+    ExecutablePlan executablePlan = buildExecutablePlan("Select " + COL_A + " from " + TABLE
+        + " tablesample pages(50) where " + COL_A + " >= " + COL_A_DEFAULT_VALUES_DIQL[0]);
+    ExecutorService executor = executors.newTestExecutor(executablePlan.preferredExecutorServiceSize());
+    try {
+      // WHEN
+      Future<Void> future = executablePlan.executeAsynchronously(executor);
+      future.get(); // wait until done.
+
+      // THEN
+      Assert.assertTrue(columnValueConsumerIsDone, "Source should have reported 'done'");
+      RowIdSample sample = new RowIdSample(RowIdSample.SampleType.PAGES, .5);
+      Set<Long> expectedRowIds = LongStream.range(0, VALUE_LENGTH).filter(rowId -> sample.isSampled(rowId, 0L))
+          .mapToObj(Long::valueOf).collect(Collectors.toSet());
+      Set<Long> actualRowIds = resultValues.containsKey(COL_A) ? resultValues.get(COL_A).keySet() : new HashSet<>();
+      Assert.assertEquals(actualRowIds, expectedRowIds, "Expected the rows of the sampled pages to be selected");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -36,6 +36,7 @@ import java.util.stream.Collectors;
 import org.diqube.context.Profiles;
 import org.diqube.data.flatten.FlattenDataFactory;
 import org.diqube.data.flatten.FlattenedTable;
+import org.diqube.data.table.TableFactory;
 import org.diqube.file.DiqubeFileFactory;
 import org.diqube.file.DiqubeFileReader;
 import org.diqube.file.DiqubeFileWriter;
@@ -91,7 +92,8 @@ public class FlattenedControlFileFlattenedTableDiskCacheTest {
     });
 
     diskCache = new FlattenedControlFileFlattenedTableDiskCache(fileFactory,
-        dataContext.getBean(FlattenDataFactory.class), dataContext.getBean(ExecutorManager.class), cacheDir.toFile());
+        dataContext.getBean(FlattenDataFactory.class), dataContext.getBean(TableFactory.class),
+        dataContext.getBean(ExecutorManager.class), cacheDir.toFile());
   }
 
   @AfterMethod
@@ -33,16 +33,19 @@ import java.util.NavigableMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -52,6 +55,7 @@ import javax.inject.Inject;
 import org.diqube.config.Config;
 import org.diqube.config.ConfigKey;
 import org.diqube.context.AutoInstatiate;
+import org.diqube.metrics.Metrics;
 import org.diqube.queries.QueryRegistry;
 import org.diqube.queries.QueryUuid;
 import org.diqube.queries.QueryUuid.QueryUuidThreadState;
@@ -69,6 +73,9 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 public class ExecutorManager {
   private static final Logger logger = LoggerFactory.getLogger(ExecutorManager.class);
 
+  private static final String METRIC_QUERY_QUEUED = "executor_query_queued";
+  private static final String METRIC_QUERY_ACTIVE = "executor_query_active";
+
   /**
    * Map from query UUID to execution UUID to list of executors registered for it. Usually there should be one Executor
    * for a queryUuid/executorUuid combination.
@@ -79,6 +86,12 @@ public class ExecutorManager {
 
   private TimeoutThread timeoutThread = new TimeoutThread();
 
+  /**
+   * Names of the metrics that have been registered for executors created by {@link #newCachedThreadPoolWithMax} and
+   * {@link #newFixedThreadPoolWithTimeout}
+   */
+  private List<String> poolMetricNames = new CopyOnWriteArrayList<>();
+
   @Inject
   private QueryRegistry queryRegistry;
 
@@ -89,6 +102,9 @@ public class ExecutorManager {
   public void initialize() {
     shutdownThread.start();
     timeoutThread.start();
+
+    Metrics.gauge(METRIC_QUERY_QUEUED, () -> sumOverQueryExecutors(e -> e.getQueue().size()));
+    Metrics.gauge(METRIC_QUERY_ACTIVE, () -> sumOverQueryExecutors(e -> e.getActiveCount()));
   }
 
   @PreDestroy
@@ -98,6 +114,21 @@ public class ExecutorManager {
     shutdownEverythingOfAllQueries();
     shutdownThread.interrupt();
     timeoutThread.interrupt();
+
+    Metrics.remove(METRIC_QUERY_QUEUED);
+    Metrics.remove(METRIC_QUERY_ACTIVE);
+    poolMetricNames.forEach(name -> Metrics.remove(name));
+  }
+
+  private long sumOverQueryExecutors(ToLongFunction<DiqubeFixedThreadPoolExecutor> valueFn) {
+    long res = 0;
+    synchronized (queryExecutors) {
+      for (Map<UUID, List<DiqubeFixedThreadPoolExecutor>> executorsByExecutionUuid : queryExecutors.values())
+        for (List<DiqubeFixedThreadPoolExecutor> executors : executorsByExecutionUuid.values())
+          for (DiqubeFixedThreadPoolExecutor executor : executors)
+            res += valueFn.applyAsLong(executor);
+    }
+    return res;
   }
 
   /**
@@ -142,8 +173,73 @@ public class ExecutorManager {
     threadFactoryBuilder.setNameFormat(nameFormat);
     threadFactoryBuilder.setUncaughtExceptionHandler(uncaughtExceptionHandler);
 
-    return new ThreadPoolExecutor(0, maxPoolSize, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+    ThreadPoolExecutor res = new ThreadPoolExecutor(0, maxPoolSize, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
         threadFactoryBuilder.build());
+
+    String metricName = Metrics.labeled("executor_queued", "pool", nameFormat.replace("-%d", ""));
+    Metrics.gauge(metricName, () -> res.getQueue().size());
+    poolMetricNames.add(metricName);
+
+    return res;
+  }
+
+  /**
+   * Create a new {@link ExecutorService} that executes up to a fixed number of tasks concurrently and queues any
+   * further tasks. Threads are created as needed and are stopped again after being idle for a few seconds.
+   * 
+   * @param nameFormat
+   *          a {@link String#format(String, Object...)}-compatible format String, to which a unique integer (0, 1,
+   *          etc.) will be supplied as the single parameter. This integer will be unique to the built instance of the
+   *          ThreadFactory and will be assigned sequentially. For example, {@code "rpc-pool-%d"} will generate thread
+   *          names like {@code "rpc-pool-0"}, {@code "rpc-pool-1"}, {@code "rpc-pool-2"}, etc.
+   * @param uncaughtExceptionHandler
+   *          This will be called in case any of the threads of the ExecutorService ends because an exception was
+   *          thrown.
+   * @param numberOfThreads
+   *          Maximum number of threads, which is the number of tasks executed concurrently.
+   * @return The new {@link ExecutorService}.
+   */
+  public ExecutorService newFixedThreadPoolWithTimeout(String nameFormat,
+      UncaughtExceptionHandler uncaughtExceptionHandler, int numberOfThreads) {
+    ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+    threadFactoryBuilder.setNameFormat(nameFormat);
+    threadFactoryBuilder.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+
+    // A ThreadPoolExecutor only starts more than its core threads if the queue is full - which never happens with an
+    // unbounded queue. Therefore use numberOfThreads core threads, but let them time out.
+    ThreadPoolExecutor res = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 10, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), threadFactoryBuilder.build());
+    res.allowCoreThreadTimeOut(true);
+
+    String metricName = Metrics.labeled("executor_queued", "pool", nameFormat.replace("-%d", ""));
+    Metrics.gauge(metricName, () -> res.getQueue().size());
+    poolMetricNames.add(metricName);
+
+    return res;
+  }
+
+  /**
+   * Create a new {@link ScheduledExecutorService} with a fixed number of threads, see
+   * {@link Executors#newScheduledThreadPool(int)}.
+   * 
+   * @param nameFormat
+   *          a {@link String#format(String, Object...)}-compatible format String, to which a unique integer (0, 1,
+   *          etc.) will be supplied as the single parameter. This integer will be unique to the built instance of the
+   *          ThreadFactory and will be assigned sequentially. For example, {@code "rpc-pool-%d"} will generate thread
+   *          names like {@code "rpc-pool-0"}, {@code "rpc-pool-1"}, {@code "rpc-pool-2"}, etc.
+   * @param uncaughtExceptionHandler
+   *          This will be called in case any of the threads of the ExecutorService ends because an exception was
+   *          thrown.
+   * @param numberOfThreads
+   *          Number of threads.
+   * @return The new {@link ScheduledExecutorService}.
+   */
+  public ScheduledExecutorService newScheduledThreadPool(String nameFormat,
+      UncaughtExceptionHandler uncaughtExceptionHandler, int numberOfThreads) {
+    ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+    threadFactoryBuilder.setNameFormat(nameFormat);
+    threadFactoryBuilder.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+    return Executors.newScheduledThreadPool(numberOfThreads, threadFactoryBuilder.build());
   }
 
   /**
@@ -29,6 +29,7 @@ import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.diqube.context.Profiles;
 import org.diqube.file.DiqubeFileFactory;
@@ -78,6 +79,12 @@ public class MergeImplementation {
           info.numberOfTableShards = reader.getNumberOfTableShards();
           info.firstTableShardByte = reader.getTableShardDataFirstByteIndex();
           info.lastTableShardByte = reader.getTableShardDataLastByteIndex();
+          if (reader.hasTableShardBoundaries()) {
+            // boundaries relative to the first table shard byte, as only that part of the file is copied.
+            info.tableShardFirstByteIndices = reader.getTableShardFirstByteIndices().stream()
+                .map(idx -> idx - info.firstTableShardByte).collect(Collectors.toList());
+            info.tableShardNumberOfRows = reader.getTableShardNumberOfRows();
+          }
 
           fileInfos.put(inputFile, info);
         } catch (IOException e) {
@@ -98,7 +105,8 @@ public class MergeImplementation {
               BigByteBuffer buf = new BigByteBuffer(inputRandomFile.getChannel(), MapMode.READ_ONLY, null);
               fileWriter.writeSerializedTableShards(
                   buf.createPartialInputStream(fileInfo.firstTableShardByte, fileInfo.lastTableShardByte + 1),
-                  fileInfo.totalNumberOfRows, fileInfo.numberOfTableShards);
+                  fileInfo.totalNumberOfRows, fileInfo.numberOfTableShards, fileInfo.tableShardFirstByteIndices,
+                  fileInfo.tableShardNumberOfRows);
               buf.close();
             }
           }
@@ -116,5 +124,7 @@ public class MergeImplementation {
     private int numberOfTableShards;
     private long firstTableShardByte;
     private long lastTableShardByte;
+    private List<Long> tableShardFirstByteIndices;
+    private List<Long> tableShardNumberOfRows;
   }
 }
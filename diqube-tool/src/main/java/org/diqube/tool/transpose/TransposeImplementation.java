@@ -44,6 +44,8 @@ import org.diqube.file.DiqubeFileWriter;
 import org.diqube.loader.LoadException;
 import org.diqube.loader.Loader;
 import org.diqube.loader.LoaderColumnInfo;
+import org.diqube.loader.util.LoadPhaseTimer;
+import org.diqube.loader.util.LoadPhaseTimer.LoadPhase;
 import org.diqube.util.NullUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -107,6 +109,7 @@ public class TransposeImplementation {
 
         logger.info("Data loaded into in-memory table '{}', starting to serialize that data into output file '{}'",
             TABLE_NAME, outputFile.getAbsolutePath());
+        long serializationStart = LoadPhaseTimer.start();
         try (DiqubeFileWriter writer = fileFactory.createDiqubeFileWriter(outStream)) {
           writer.writeTableShard(tableShard, new ObjectDoneConsumer() {
             @Override
@@ -118,6 +121,8 @@ public class TransposeImplementation {
                   (fieldToNull, e) -> logger.trace("Could not null {} on {}", fieldToNull, e));
             }
           });
+        } finally {
+          LoadPhaseTimer.end(LoadPhase.SERIALIZATION, serializationStart);
         }
         logger.info("Successfully serialized data to '{}'", outputFile.getAbsolutePath());
       } catch (IOException | LoadException | SerializationException e) {
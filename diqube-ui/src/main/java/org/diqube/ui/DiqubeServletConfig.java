@@ -58,6 +58,7 @@ public class DiqubeServletConfig {
   public static final String INIT_PARAM_UI_DB_LOCATION = "diqube.uiDbLocation";
   public static final String INIT_PARAM_UI_DB_USER = "diqube.uiDbUser";
   public static final String INIT_PARAM_UI_DB_PASSWORD = "diqube.uiDbPassword";
+  public static final String INIT_PARAM_QUERY_BATCH_WINDOW_MS = "diqube.queryBatchWindowMs";
 
   public static final String UI_DB_TYPE_HSQLDB = "hsqldb";
 
@@ -66,6 +67,7 @@ public class DiqubeServletConfig {
   public static final String DEFAULT_LOGOUT_TICKET_FETCH_SEC = "120";
   public static final String DEFAULT_UI_DB_TYPE = UI_DB_TYPE_HSQLDB;
   public static final String DEFAULT_UI_DB_LOCATION = "diqube-ui.db";
+  public static final String DEFAULT_QUERY_BATCH_WINDOW_MS = "20";
 
   @InjectOptional
   private List<ServletConfigListener> servletConfigListeners;
@@ -81,6 +83,7 @@ public class DiqubeServletConfig {
   private String uiDbLocation;
   private String uiDbUser;
   private String uiDbPassword;
+  private long queryBatchWindowMs;
 
   /* package */ void initialize(ServletContext ctx) {
     String clusterLocation = ctx.getInitParameter(INIT_PARAM_CLUSTER);
@@ -124,6 +127,11 @@ public class DiqubeServletConfig {
     uiDbUser = ctx.getInitParameter(INIT_PARAM_UI_DB_USER);
     uiDbPassword = ctx.getInitParameter(INIT_PARAM_UI_DB_PASSWORD);
 
+    String queryBatchWindowMsString = ctx.getInitParameter(INIT_PARAM_QUERY_BATCH_WINDOW_MS);
+    if (queryBatchWindowMsString == null)
+      queryBatchWindowMsString = DEFAULT_QUERY_BATCH_WINDOW_MS;
+    queryBatchWindowMs = Long.parseLong(queryBatchWindowMsString);
+
     if (servletConfigListeners != null)
       servletConfigListeners.forEach(l -> l.servletConfigurationAvailable());
   }
@@ -216,6 +224,15 @@ public class DiqubeServletConfig {
     return uiDbPassword;
   }
 
+  /**
+   * @return Number of milliseconds the UI waits for further queries on the same table before sending the queries to the
+   *         cluster as one batch. Queries of an analysis that are executed at the same time (e.g. all queries of a
+   *         qube) are then executed by one query master. 0 to send each query on its own.
+   */
+  public long getQueryBatchWindowMs() {
+    return queryBatchWindowMs;
+  }
+
   /**
    * Simple listener interface that gets called as soon as the {@link DiqubeServletConfig} is initialized.
    */
@@ -20,12 +20,16 @@
  */
 package org.diqube.ui;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.apache.thrift.TException;
 import org.diqube.context.AutoInstatiate;
+import org.diqube.remote.query.ResultTableDeltaApplier;
 import org.diqube.remote.query.thrift.QueryResultService;
 import org.diqube.remote.query.thrift.QueryResultService.Iface;
 import org.diqube.thrift.base.thrift.RUUID;
@@ -33,11 +37,17 @@ import org.diqube.thrift.base.util.RUuidUtil;
 import org.diqube.remote.query.thrift.RQueryException;
 import org.diqube.remote.query.thrift.RQueryStatistics;
 import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Handler for {@link QueryResultService}.
+ * 
+ * <p>
+ * Partial updates are received as {@link RResultTableDelta}s. This class re-creates the full {@link RResultTable} of
+ * each partial update and provides that to the registered handler using
+ * {@link QueryResultService.Iface#partialUpdate(RUUID, RResultTable, short)}.
  *
  * @author Bastian Gloeckle
  */
@@ -49,6 +59,19 @@ public class QueryResultServiceHandler implements Iface {
   @Inject
   private UiQueryRegistry queryResultRegistry;
 
+  private Map<UUID, ResultTableDeltaApplier> deltaAppliers = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void initialize() {
+    // cancelled or abandoned queries do not receive a final result: clean up as soon as their handler is gone.
+    queryResultRegistry.addQueryUnregisteredListener(queryUuid -> deltaAppliers.remove(queryUuid));
+  }
+
+  /** for tests */
+  /* package */ void setQueryResultRegistry(UiQueryRegistry queryResultRegistry) {
+    this.queryResultRegistry = queryResultRegistry;
+  }
+
   @Override
   public void partialUpdate(RUUID queryRUuid, RResultTable partialResult, short percentComplete) throws TException {
     UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
@@ -59,10 +82,39 @@ public class QueryResultServiceHandler implements Iface {
       handler.partialUpdate(queryRUuid, partialResult, percentComplete);
   }
 
+  @Override
+  public void partialUpdateDelta(RUUID queryRUuid, RResultTableDelta delta, short percentComplete) throws TException {
+    UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
+    logger.debug("Received partial update delta for {}, percent {}: {}", queryUuid, percentComplete, delta);
+
+    QueryResultService.Iface handler = queryResultRegistry.getHandler(queryUuid);
+    if (handler == null) {
+      deltaAppliers.remove(queryUuid);
+      return;
+    }
+
+    RResultTable partialResult =
+        deltaAppliers.computeIfAbsent(queryUuid, uuid -> new ResultTableDeltaApplier()).apply(delta);
+    if (queryResultRegistry.getHandler(queryUuid) == null) {
+      // query was unregistered concurrently, do not keep the applier that we might just have created.
+      deltaAppliers.remove(queryUuid);
+      return;
+    }
+    if (partialResult == null) {
+      // we missed a delta, we'll therefore not be able to provide partial results until the next delta containing the
+      // full table is received - the final result will be provided nevertheless.
+      logger.debug("Could not apply partial update delta for {}, ignoring.", queryUuid);
+      return;
+    }
+
+    handler.partialUpdate(queryRUuid, partialResult, percentComplete);
+  }
+
   @Override
   public void queryResults(RUUID queryRUuid, RResultTable finalResult) throws TException {
     UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
     logger.debug("Received FINAL update for {}: {}", queryUuid, finalResult);
+    deltaAppliers.remove(queryUuid);
 
     QueryResultService.Iface handler = queryResultRegistry.getHandler(queryUuid);
     if (handler != null)
@@ -73,6 +125,7 @@ public class QueryResultServiceHandler implements Iface {
   public void queryException(RUUID queryRUuid, RQueryException exceptionThrown) throws TException {
     UUID queryUuid = RUuidUtil.toUuid(queryRUuid);
     logger.debug("Received EXCEPTION {}: {}", queryUuid, exceptionThrown.getMessage());
+    deltaAppliers.remove(queryUuid);
 
     QueryResultService.Iface handler = queryResultRegistry.getHandler(queryUuid);
     if (handler != null)
@@ -0,0 +1,287 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMultiplexedProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.diqube.context.AutoInstatiate;
+import org.diqube.remote.query.QueryServiceConstants;
+import org.diqube.remote.query.thrift.QueryResultService;
+import org.diqube.remote.query.thrift.QueryService;
+import org.diqube.remote.query.thrift.RQueryException;
+import org.diqube.thrift.base.thrift.AuthenticationException;
+import org.diqube.thrift.base.thrift.AuthorizationException;
+import org.diqube.thrift.base.thrift.RUUID;
+import org.diqube.thrift.base.thrift.Ticket;
+import org.diqube.thrift.base.util.RUuidUtil;
+import org.diqube.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Collects diql queries that are executed at about the same time on the same table and sends them to the diqube
+ * cluster using one call to {@link QueryService.Iface#asyncExecuteQueryBatch}.
+ * 
+ * <p>
+ * The UI typically executes all queries of a qube at the same time, each in its own request. Instead of having each
+ * query planned and executed by a different query master, the queries are collected for
+ * {@link DiqubeServletConfig#getQueryBatchWindowMs()} and are then executed together by one query master.
+ * 
+ * <p>
+ * The results of each query are still provided to the result handler of that query, see {@link UiQueryRegistry}.
+ *
+ * @author Bastian Gloeckle
+ */
+@AutoInstatiate
+public class UiQueryBatcher {
+  private static final Logger logger = LoggerFactory.getLogger(UiQueryBatcher.class);
+
+  @Inject
+  private DiqubeServletConfig config;
+
+  private ScheduledExecutorService flushExecutor;
+
+  /**
+   * The batches that have not been sent yet, by pair of user name and batch key. Sync on the map when accessing the map
+   * or any of the lists.
+   */
+  private Map<Pair<String, String>, List<BatchedQuery>> openBatches = new HashMap<>();
+
+  @PostConstruct
+  public void initialize() {
+    flushExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("ui-query-batch-%d").setDaemon(true).build());
+  }
+
+  @PreDestroy
+  public void cleanup() {
+    flushExecutor.shutdownNow();
+  }
+
+  /**
+   * Execute the given query together with other queries of the same user that have the same batch key.
+   * 
+   * <p>
+   * This method returns right away, the query is sent to the cluster asynchronously. If the query cannot be sent, the
+   * exception is reported to the result handler of the query.
+   * 
+   * @param batchKey
+   *          Only queries with the same batch key are executed in one batch. All queries with the same key must select
+   *          from the same table.
+   */
+  public void execute(String batchKey, BatchedQuery query) {
+    if (config.getQueryBatchWindowMs() <= 0) {
+      send(new ArrayList<>(Arrays.asList(query)));
+      return;
+    }
+
+    Pair<String, String> key = new Pair<>(query.getTicket().getClaim().getUsername(), batchKey);
+    synchronized (openBatches) {
+      List<BatchedQuery> batch = openBatches.get(key);
+      if (batch == null) {
+        batch = new ArrayList<>();
+        openBatches.put(key, batch);
+        flushExecutor.schedule(() -> flush(key), config.getQueryBatchWindowMs(), TimeUnit.MILLISECONDS);
+      }
+      batch.add(query);
+    }
+  }
+
+  /**
+   * Remove the query with the given UUID from the batch it is in, if that batch has not been sent yet.
+   * 
+   * @return <code>true</code> if the query was removed and will therefore not be sent to the cluster.
+   *         <code>false</code> if the query was not found, i.e. it was sent to the cluster already.
+   */
+  public boolean remove(UUID queryUuid) {
+    synchronized (openBatches) {
+      for (List<BatchedQuery> batch : openBatches.values()) {
+        Iterator<BatchedQuery> it = batch.iterator();
+        while (it.hasNext())
+          if (it.next().getQueryUuid().equals(queryUuid)) {
+            it.remove();
+            return true;
+          }
+      }
+    }
+    return false;
+  }
+
+  /** for tests */
+  /* package */ void setConfig(DiqubeServletConfig config) {
+    this.config = config;
+  }
+
+  private void flush(Pair<String, String> key) {
+    List<BatchedQuery> batch;
+    synchronized (openBatches) {
+      batch = openBatches.remove(key);
+    }
+    if (batch != null && !batch.isEmpty())
+      send(batch);
+  }
+
+  /**
+   * Send the queries to one of the cluster nodes, retrying on other nodes if a node cannot be reached.
+   */
+  private void send(List<BatchedQuery> batch) {
+    Set<Integer> idxToCheck = IntStream.range(0, config.getClusterServers().size()).boxed().collect(Collectors.toSet());
+
+    try {
+      boolean sent = false;
+      while (!sent) {
+        if (idxToCheck.isEmpty())
+          throw new RuntimeException("No cluster servers were reachable");
+        int nextIdx = (int) Math.floor(Math.random() * config.getClusterServers().size());
+        if (!idxToCheck.remove(nextIdx))
+          continue;
+
+        sent = sendToNode(config.getClusterServers().get(nextIdx), batch);
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Could not send batch of {} queries: {}", batch.size(), e.getMessage());
+      for (BatchedQuery query : batch)
+        try {
+          query.getResultHandler().queryException(RUuidUtil.toRUuid(query.getQueryUuid()),
+              new RQueryException(e.getMessage()));
+        } catch (TException | RuntimeException e2) {
+          logger.warn("Could not report exception of query {}", query.getQueryUuid(), e2);
+        }
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the batch was sent, <code>false</code> if the node could not be reached.
+   * @throws RuntimeException
+   *           If the node rejected the queries.
+   */
+  /* package */ boolean sendToNode(Pair<String, Short> node, List<BatchedQuery> batch) throws RuntimeException {
+    TTransport transport = new TFramedTransport(new TSocket(node.getLeft(), node.getRight()));
+    TProtocol queryProtocol =
+        new TMultiplexedProtocol(new TCompactProtocol(transport), QueryServiceConstants.SERVICE_NAME);
+    QueryService.Client queryClient = new QueryService.Client(queryProtocol);
+
+    try {
+      transport.open();
+    } catch (TTransportException e) {
+      return false;
+    }
+
+    try {
+      // register before sending, as results might be available before the call returns.
+      for (BatchedQuery query : batch)
+        query.getResultCallbackRegistration().accept(node);
+
+      List<RUUID> queryRUuids =
+          batch.stream().map(query -> RUuidUtil.toRUuid(query.getQueryUuid())).collect(Collectors.toList());
+      List<String> diqls = batch.stream().map(query -> query.getDiql()).collect(Collectors.toList());
+
+      // all queries are of the same user, use any ticket.
+      queryClient.asyncExecuteQueryBatch(batch.get(0).getTicket(), queryRUuids, diqls, true,
+          config.createClusterResponseAddr());
+      logger.info("Started executing batch of new queries {} on server {}",
+          batch.stream().map(query -> query.getQueryUuid()).collect(Collectors.toList()), node);
+      return true;
+    } catch (RQueryException e) {
+      throw new RuntimeException(e.getMessage());
+    } catch (AuthenticationException | AuthorizationException e) {
+      throw new RuntimeException(e.getClass().getSimpleName() + ": " + e.getMessage());
+    } catch (TException e) {
+      return false;
+    } finally {
+      transport.close();
+    }
+  }
+
+  /**
+   * A query that should be executed in a batch.
+   */
+  public static class BatchedQuery {
+    private UUID queryUuid;
+    private String diql;
+    private Ticket ticket;
+    private QueryResultService.Iface resultHandler;
+    private Consumer<Pair<String, Short>> resultCallbackRegistration;
+
+    /**
+     * @param resultHandler
+     *          Is informed if the query cannot be sent to the cluster.
+     * @param resultCallbackRegistration
+     *          Is called with the address of the diqube-server the query is sent to right before it is sent. This
+     *          should register the result handler in {@link UiQueryRegistry}.
+     */
+    public BatchedQuery(UUID queryUuid, String diql, Ticket ticket, QueryResultService.Iface resultHandler,
+        Consumer<Pair<String, Short>> resultCallbackRegistration) {
+      this.queryUuid = queryUuid;
+      this.diql = diql;
+      this.ticket = ticket;
+      this.resultHandler = resultHandler;
+      this.resultCallbackRegistration = resultCallbackRegistration;
+    }
+
+    public UUID getQueryUuid() {
+      return queryUuid;
+    }
+
+    public String getDiql() {
+      return diql;
+    }
+
+    public Ticket getTicket() {
+      return ticket;
+    }
+
+    public QueryResultService.Iface getResultHandler() {
+      return resultHandler;
+    }
+
+    public Consumer<Pair<String, Short>> getResultCallbackRegistration() {
+      return resultCallbackRegistration;
+    }
+  }
+}
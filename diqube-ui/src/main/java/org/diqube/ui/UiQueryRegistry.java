@@ -20,9 +20,11 @@
  */
 package org.diqube.ui;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.websocket.Session;
 
@@ -50,6 +52,7 @@ public class UiQueryRegistry {
   private Map<UUID, Triple<Session, Pair<String, Short>, QueryResultService.Iface>> infoByQueryUuid =
       new ConcurrentHashMap<>();
   private Map<Session, Map<String, UUID>> sessionsToRequestIdToQueryUuid = new ConcurrentHashMap<>();
+  private List<QueryUnregisteredListener> queryUnregisteredListeners = new CopyOnWriteArrayList<>();
 
   /**
    * Register a {@link QueryResultService} callback that will be informed as soon as results for the given query have
@@ -83,7 +86,8 @@ public class UiQueryRegistry {
   }
 
   /**
-   * Unregister the callback of a specific query.
+   * Unregister the callback of a specific query. This happens when the query completed, was cancelled or its websocket
+   * session was closed. All {@link QueryUnregisteredListener}s are informed.
    */
   public void unregisterQuery(String requestId, UUID queryUuid) {
     Triple<Session, Pair<String, Short>, QueryResultService.Iface> oldTriple = infoByQueryUuid.remove(queryUuid);
@@ -97,6 +101,15 @@ public class UiQueryRegistry {
         }
       }
     }
+    for (QueryUnregisteredListener listener : queryUnregisteredListeners)
+      listener.queryUnregistered(queryUuid);
+  }
+
+  /**
+   * Install a listener that is informed each time a query is unregistered, see {@link #unregisterQuery(String, UUID)}.
+   */
+  public void addQueryUnregisteredListener(QueryUnregisteredListener listener) {
+    queryUnregisteredListeners.add(listener);
   }
 
   /**
@@ -139,4 +152,14 @@ public class UiQueryRegistry {
       return null;
     return p.getRight();
   }
+
+  /**
+   * Listener that is informed when a query is unregistered from {@link UiQueryRegistry}.
+   */
+  public static interface QueryUnregisteredListener {
+    /**
+     * The given query has been unregistered, there will be no result handler for it anymore.
+     */
+    public void queryUnregistered(UUID queryUuid);
+  }
 }
@@ -49,6 +49,7 @@ import org.diqube.thrift.base.thrift.AuthorizationException;
 import org.diqube.thrift.base.thrift.Ticket;
 import org.diqube.thrift.base.util.RUuidUtil;
 import org.diqube.ui.DiqubeServletConfig;
+import org.diqube.ui.UiQueryBatcher;
 import org.diqube.ui.UiQueryRegistry;
 import org.diqube.util.Pair;
 import org.slf4j.Logger;
@@ -66,13 +67,20 @@ public abstract class AbstractCommandClusterInteraction implements CommandCluste
 
   private Ticket ticket;
 
+  private UiQueryBatcher queryBatcher;
+
+  /** UUID of the query that was started with {@link #executeDiqlQueryInBatch(String, String, Iface)}, if any. */
+  private volatile UUID batchedQueryUuid;
+
   /**
    * @param ticket
    *          <code>null</code> or a {@link Ticket} that has been validated already.
    */
-  /* package */ AbstractCommandClusterInteraction(DiqubeServletConfig config, Ticket ticket) {
+  /* package */ AbstractCommandClusterInteraction(DiqubeServletConfig config, Ticket ticket,
+      UiQueryBatcher queryBatcher) {
     this.config = config;
     this.ticket = ticket;
+    this.queryBatcher = queryBatcher;
   }
 
   @Override
@@ -91,12 +99,32 @@ public abstract class AbstractCommandClusterInteraction implements CommandCluste
     }
   }
 
+  @Override
+  public void executeDiqlQueryInBatch(String batchKey, String diql, Iface resultHandler) {
+    if (ticket == null)
+      throw new RuntimeException("Not logged in.");
+
+    UUID queryUuid = UUID.randomUUID();
+    batchedQueryUuid = queryUuid;
+    queryBatcher.execute(batchKey, new UiQueryBatcher.BatchedQuery(queryUuid, diql, ticket, resultHandler,
+        node -> registerQueryThriftResultCallback(node, queryUuid, resultHandler)));
+  }
+
   @Override
   public void cancelQuery() {
     if (ticket == null)
       throw new RuntimeException("Not logged in.");
 
+    if (batchedQueryUuid != null && queryBatcher.remove(batchedQueryUuid)) {
+      logger.info("Removed query {} from its batch before it was sent to the cluster.", batchedQueryUuid);
+      return;
+    }
+
     Pair<UUID, Pair<String, Short>> queryUuidAndAddrPair = findQueryUuidAndServerAddr();
+    if (queryUuidAndAddrPair == null) {
+      logger.info("Cannot cancel query as it was not yet sent to the cluster.");
+      return;
+    }
 
     UUID queryUuid = queryUuidAndAddrPair.getLeft();
     // server that the query was sent to. That is the query master for that query!
@@ -24,6 +24,7 @@ import org.diqube.remote.query.thrift.ClusterInformationService;
 import org.diqube.remote.query.thrift.FlattenPreparationService;
 import org.diqube.remote.query.thrift.IdentityService;
 import org.diqube.remote.query.thrift.QueryResultService;
+import org.diqube.ui.UiQueryBatcher;
 
 /**
  * Enables a command to interact with the diqube-server cluster.
@@ -38,9 +39,23 @@ public interface CommandClusterInteraction {
    */
   public void executeDiqlQuery(String diql, QueryResultService.Iface resultHandler);
 
+  /**
+   * Execute a diql query together with other queries that are executed at about the same time with the same batch key
+   * and provide results to the given result handler. See {@link UiQueryBatcher}.
+   * 
+   * <p>
+   * In contrast to {@link #executeDiqlQuery(String, org.diqube.remote.query.thrift.QueryResultService.Iface)}, any
+   * problem sending the query to the cluster is reported to the result handler.
+   * 
+   * @param batchKey
+   *          All queries with the same batch key must select from the same table.
+   */
+  public void executeDiqlQueryInBatch(String batchKey, String diql, QueryResultService.Iface resultHandler);
+
   /**
    * Execute the query that was started with
-   * {@link #executeDiqlQuery(String, org.diqube.remote.query.thrift.QueryResultService.Iface)}.
+   * {@link #executeDiqlQuery(String, org.diqube.remote.query.thrift.QueryResultService.Iface)} or
+   * {@link #executeDiqlQueryInBatch(String, String, org.diqube.remote.query.thrift.QueryResultService.Iface)}.
    */
   public void cancelQuery();
 
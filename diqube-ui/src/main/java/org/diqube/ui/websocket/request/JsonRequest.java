@@ -22,9 +22,9 @@ package org.diqube.ui.websocket.request;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
@@ -43,6 +43,7 @@ import org.diqube.remote.query.thrift.QueryResultService.Iface;
 import org.diqube.thrift.base.thrift.AuthenticationException;
 import org.diqube.thrift.base.thrift.Ticket;
 import org.diqube.ui.DiqubeServletConfig;
+import org.diqube.ui.UiQueryBatcher;
 import org.diqube.ui.UiQueryRegistry;
 import org.diqube.ui.websocket.request.commands.AsyncJsonCommand;
 import org.diqube.ui.websocket.request.commands.JsonCommand;
@@ -103,9 +104,16 @@ public class JsonRequest {
   @JsonIgnore
   private JsonResultSerializer serializer;
 
-  /** {@link Runnable}s that need to be executed to clean up. */
+  @Inject
+  @JsonIgnore
+  private UiQueryBatcher queryBatcher;
+
+  /**
+   * {@link Runnable}s that need to be executed to clean up. Actions might be added from other threads, see
+   * {@link UiQueryBatcher}.
+   */
   @JsonIgnore
-  private List<Runnable> cleanupActions = new ArrayList<>();
+  private List<Runnable> cleanupActions = new CopyOnWriteArrayList<>();
 
   /**
    * {@link CommandClusterInteraction} that is passed to the command which can safely interact with the diqube cluster
@@ -131,7 +139,7 @@ public class JsonRequest {
 
   @PostConstruct
   public void initialize() {
-    commandClusterInteraction = new AbstractCommandClusterInteraction(config, ticket) {
+    commandClusterInteraction = new AbstractCommandClusterInteraction(config, ticket, queryBatcher) {
       @Override
       protected void registerQueryThriftResultCallback(Pair<String, Short> node, UUID queryUuid, Iface resultHandler) {
         queryResultRegistry.registerThriftResultCallback(session, requestId, node, queryUuid, resultHandler);
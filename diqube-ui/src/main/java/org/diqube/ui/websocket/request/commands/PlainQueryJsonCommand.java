@@ -31,6 +31,7 @@ import org.diqube.remote.query.thrift.QueryResultService;
 import org.diqube.remote.query.thrift.RQueryException;
 import org.diqube.remote.query.thrift.RQueryStatistics;
 import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.remote.query.thrift.RResultTableDelta;
 import org.diqube.thrift.base.thrift.RUUID;
 import org.diqube.thrift.base.thrift.RValue;
 import org.diqube.thrift.base.thrift.Ticket;
@@ -41,6 +42,7 @@ import org.diqube.ui.websocket.request.CommandResultHandler;
 import org.diqube.ui.websocket.result.StatsJsonResult;
 import org.diqube.ui.websocket.result.TableJsonResult;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -66,6 +68,13 @@ public class PlainQueryJsonCommand implements AsyncJsonCommand {
   @TypeScriptProperty
   public String diql;
 
+  /**
+   * If set, the query is executed in a batch with other queries with the same batch key, see
+   * {@link CommandClusterInteraction#executeDiqlQueryInBatch(String, String, QueryResultService.Iface)}.
+   */
+  @JsonIgnore
+  private String batchKey;
+
   public PlainQueryJsonCommand() {
     super();
   }
@@ -74,13 +83,18 @@ public class PlainQueryJsonCommand implements AsyncJsonCommand {
     this.diql = diql;
   }
 
+  public PlainQueryJsonCommand(String diql, String batchKey) {
+    this.diql = diql;
+    this.batchKey = batchKey;
+  }
+
   @Override
   public void execute(Ticket ticket, CommandResultHandler resultHandler, CommandClusterInteraction clusterInteraction)
       throws RuntimeException {
     if (ticket == null)
       throw new RuntimeException("Not logged in.");
 
-    clusterInteraction.executeDiqlQuery(diql, new QueryResultService.Iface() {
+    QueryResultService.Iface resultHandlerService = new QueryResultService.Iface() {
       @Override
       public void queryStatistics(RUUID queryRuuid, RQueryStatistics stats) throws TException {
         StatsJsonResult statsPayload = new StatsJsonResult();
@@ -110,6 +124,8 @@ public class PlainQueryJsonCommand implements AsyncJsonCommand {
           res.setRows(rows);
         }
         res.setPercentComplete((short) percentComplete);
+        if (currentResult.isSetSampleFraction())
+          res.setSampleFraction(currentResult.getSampleFraction());
 
         resultHandler.sendData(res);
       }
@@ -124,10 +140,21 @@ public class PlainQueryJsonCommand implements AsyncJsonCommand {
         sendResult(RUuidUtil.toUuid(queryRUuid), partialResult, percentComplete);
       }
 
+      @Override
+      public void partialUpdateDelta(RUUID queryRUuid, RResultTableDelta delta, short percentComplete)
+          throws TException {
+        // noop, QueryResultServiceHandler re-creates the full table and calls #partialUpdate.
+      }
+
       private void sendError(UUID queryUuid, RQueryException exceptionThrown) {
         resultHandler.sendException(exceptionThrown);
       }
-    });
+    };
+
+    if (batchKey != null)
+      clusterInteraction.executeDiqlQueryInBatch(batchKey, diql, resultHandlerService);
+    else
+      clusterInteraction.executeDiqlQuery(diql, resultHandlerService);
   }
 
   @Override
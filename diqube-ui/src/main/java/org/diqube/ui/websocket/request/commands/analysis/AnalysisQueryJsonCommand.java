@@ -24,6 +24,7 @@ import javax.inject.Inject;
 
 import org.diqube.build.mojo.TypeScriptProperty;
 import org.diqube.thrift.base.thrift.Ticket;
+import org.diqube.ui.UiQueryBatcher;
 import org.diqube.ui.analysis.UiAnalysis;
 import org.diqube.ui.analysis.UiQube;
 import org.diqube.ui.analysis.UiQuery;
@@ -44,6 +45,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Executes a {@link UiQuery} of a {@link UiAnalysis}.
+ * 
+ * <p>
+ * Queries of the same analysis that are executed at about the same time are sent to the cluster in one batch, see
+ * {@link UiQueryBatcher}.
  *
  * <p>
  * Sends following results:
@@ -116,7 +121,10 @@ public class AnalysisQueryJsonCommand implements AsyncJsonCommand {
 
     resultHandler.sendData(queryInfoJsonResult);
 
-    plainQueryJsonCommand = new PlainQueryJsonCommand(queryInfoJsonResult.getFinalQueryString());
+    // all queries of an analysis select from the same table: execute queries that are executed at the same time (e.g.
+    // all queries of a qube) in one batch.
+    plainQueryJsonCommand =
+        new PlainQueryJsonCommand(queryInfoJsonResult.getFinalQueryString(), analysisId + ":" + analysisVersion);
     plainQueryJsonCommand.execute(ticket, resultHandler, clusterInteraction);
   }
 
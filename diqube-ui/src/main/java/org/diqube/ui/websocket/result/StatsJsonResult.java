@@ -86,6 +86,18 @@ public class StatsJsonResult implements JsonResult {
   @TypeScriptProperty
   private Map<String, List<Integer>> numberOfTemporaryVersionsPerColName = new HashMap<>();
 
+  @JsonProperty
+  @TypeScriptProperty
+  private List<Integer> numberOfDoubleDictPageCacheHits = new ArrayList<>();
+
+  @JsonProperty
+  @TypeScriptProperty
+  private List<Integer> numberOfDoubleDictPageCacheMisses = new ArrayList<>();
+
+  @JsonProperty
+  @TypeScriptProperty
+  private List<Long> peakRetainedBytes = new ArrayList<>();
+
   public void loadFromQueryStatRes(RQueryStatistics stats) {
     List<RQueryStatisticsDetails> allDetails = new ArrayList<>(Arrays.asList(stats.getMaster()));
     allDetails.addAll(stats.getRemotes());
@@ -114,6 +126,9 @@ public class StatsJsonResult implements JsonResult {
       numberOfTemporaryColumnShardsFromCache.add(detail.getNumberOfTemporaryColumnShardsFromCache());
       numberOfPagesInTable.add(detail.getNumberOfPagesInTable());
       numberOfTemporaryPages.add(detail.getNumberOfTemporaryPages());
+      numberOfDoubleDictPageCacheHits.add(detail.getNumberOfDoubleDictPageCacheHits());
+      numberOfDoubleDictPageCacheMisses.add(detail.getNumberOfDoubleDictPageCacheMisses());
+      peakRetainedBytes.add(detail.isSetPeakRetainedBytes() ? detail.getPeakRetainedBytes() : null);
 
       for (String stepName : stepsActiveMs.keySet())
         stepsActiveMs.get(stepName).add(detail.getStepsActiveMs().get(stepName)); // could be null.
@@ -59,6 +59,14 @@ public class TableJsonResult implements JsonResult {
   @TypeScriptProperty
   public short percentComplete;
 
+  /**
+   * <code>null</code> or the fraction of the table the query was executed on if the query used TABLESAMPLE (0 < x <
+   * 1).
+   */
+  @JsonProperty
+  @TypeScriptProperty
+  public Double sampleFraction;
+
   public void setColumnNames(List<String> columnNames) {
     this.columnNames = columnNames;
   }
@@ -71,6 +79,10 @@ public class TableJsonResult implements JsonResult {
     this.percentComplete = percentComplete;
   }
 
+  public void setSampleFraction(Double sampleFraction) {
+    this.sampleFraction = sampleFraction;
+  }
+
   public List<String> getColumnRequests() {
     return columnRequests;
   }
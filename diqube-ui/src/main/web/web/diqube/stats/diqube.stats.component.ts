@@ -48,6 +48,9 @@ export class DiqubeStatsComponent {
     res.push(this.statsRow("numberOfTemporaryColumnShardsFromCache"));
     res.push(this.statsRow("numberOfPagesInTable"));
     res.push(this.statsRow("numberOfTemporaryPages"));
+    res.push(this.statsRow("numberOfDoubleDictPageCacheHits"));
+    res.push(this.statsRow("numberOfDoubleDictPageCacheMisses"));
+    res.push(this.statsRow("peakRetainedBytes"));
     
     var complexValues = this.complexStatsRows("numberOfPageAccesses");
     for (let i in complexValues)
@@ -0,0 +1,119 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.ui;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.websocket.Session;
+
+import org.apache.thrift.TException;
+import org.diqube.remote.query.ResultTableDeltaBuilder;
+import org.diqube.remote.query.thrift.QueryResultService;
+import org.diqube.remote.query.thrift.RResultTable;
+import org.diqube.thrift.base.thrift.RUUID;
+import org.diqube.thrift.base.thrift.RValue;
+import org.diqube.thrift.base.util.RUuidUtil;
+import org.diqube.thrift.base.util.RValueUtil;
+import org.diqube.util.Pair;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link QueryResultServiceHandler}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class QueryResultServiceHandlerTest {
+  private static final List<String> COLS = Arrays.asList("a");
+  private static final Pair<String, Short> NODE = new Pair<>("localhost", (short) 5101);
+  private static final String REQUEST_ID = "1";
+
+  private UiQueryRegistry registry;
+  private QueryResultServiceHandler handler;
+  private Session session;
+
+  private UUID queryUuid;
+  private RUUID queryRUuid;
+  private ResultTableDeltaBuilder deltaBuilder;
+
+  @BeforeMethod
+  public void before() {
+    registry = new UiQueryRegistry();
+    handler = new QueryResultServiceHandler();
+    handler.setQueryResultRegistry(registry);
+    handler.initialize();
+    session = Mockito.mock(Session.class);
+
+    queryUuid = UUID.randomUUID();
+    queryRUuid = RUuidUtil.toRUuid(queryUuid);
+    deltaBuilder = new ResultTableDeltaBuilder();
+  }
+
+  @Test
+  public void deltasApplied() throws TException {
+    // GIVEN
+    QueryResultService.Iface resultHandler = Mockito.mock(QueryResultService.Iface.class);
+    registry.registerThriftResultCallback(session, REQUEST_ID, NODE, queryUuid, resultHandler);
+
+    // WHEN
+    handler.partialUpdateDelta(queryRUuid, deltaBuilder.createDelta(COLS, COLS, null, rows(1L), true), (short) 10);
+    handler.partialUpdateDelta(queryRUuid, deltaBuilder.createDelta(COLS, COLS, null, rows(1L, 2L), true),
+        (short) 20);
+
+    // THEN
+    Mockito.verify(resultHandler, Mockito.times(2)).partialUpdate(Mockito.eq(queryRUuid),
+        Mockito.any(RResultTable.class), Mockito.anyShort());
+  }
+
+  @Test
+  public void deltaApplierRemovedWhenQueryUnregistered() throws TException {
+    // GIVEN
+    QueryResultService.Iface resultHandler = Mockito.mock(QueryResultService.Iface.class);
+    registry.registerThriftResultCallback(session, REQUEST_ID, NODE, queryUuid, resultHandler);
+    handler.partialUpdateDelta(queryRUuid, deltaBuilder.createDelta(COLS, COLS, null, rows(1L), true), (short) 10);
+
+    // WHEN
+    // query is cancelled, no final result is received.
+    registry.unregisterQuery(REQUEST_ID, queryUuid);
+    // register a handler with the same UUID and provide a delta that is based on the state of the cancelled query.
+    QueryResultService.Iface newResultHandler = Mockito.mock(QueryResultService.Iface.class);
+    registry.registerThriftResultCallback(session, REQUEST_ID, NODE, queryUuid, newResultHandler);
+    handler.partialUpdateDelta(queryRUuid, deltaBuilder.createDelta(COLS, COLS, null, rows(1L, 2L), true),
+        (short) 20);
+
+    // THEN
+    // the state of the cancelled query has been removed, the delta cannot be applied.
+    Mockito.verify(newResultHandler, Mockito.never()).partialUpdate(Mockito.any(RUUID.class),
+        Mockito.any(RResultTable.class), Mockito.anyShort());
+  }
+
+  private Map<Long, List<RValue>> rows(Long... rowIds) {
+    Map<Long, List<RValue>> res = new LinkedHashMap<>();
+    for (Long rowId : rowIds)
+      res.put(rowId, Arrays.asList(RValueUtil.createRValue(rowId)));
+    return res;
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.diqube.remote.query.thrift.QueryResultService;
+import org.diqube.remote.query.thrift.RQueryException;
+import org.diqube.thrift.base.thrift.Ticket;
+import org.diqube.thrift.base.thrift.TicketClaim;
+import org.diqube.thrift.base.util.RUuidUtil;
+import org.diqube.ui.UiQueryBatcher.BatchedQuery;
+import org.diqube.util.Pair;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link UiQueryBatcher}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class UiQueryBatcherTest {
+  private static final String BATCH_KEY = "analysis:1";
+  private static final Pair<String, Short> NODE = new Pair<>("localhost", (short) 5101);
+
+  private DiqubeServletConfig config;
+
+  /** The batches that were sent. */
+  private ConcurrentLinkedDeque<List<BatchedQuery>> sentBatches;
+  /** Returns <code>true</code> if the batch should be treated as sent successfully. */
+  private Function<List<BatchedQuery>, Boolean> sendResult;
+  private CountDownLatch sendLatch;
+
+  private UiQueryBatcher batcher;
+
+  @BeforeMethod
+  public void before() {
+    config = Mockito.mock(DiqubeServletConfig.class);
+    Mockito.when(config.getQueryBatchWindowMs()).thenReturn(100L);
+    Mockito.when(config.getClusterServers()).thenReturn(Arrays.asList(NODE));
+
+    sentBatches = new ConcurrentLinkedDeque<>();
+    sendResult = batch -> true;
+
+    batcher = new UiQueryBatcher() {
+      @Override
+      boolean sendToNode(Pair<String, Short> node, List<BatchedQuery> batch) throws RuntimeException {
+        for (BatchedQuery query : batch)
+          query.getResultCallbackRegistration().accept(node);
+        sentBatches.add(new ArrayList<>(batch));
+        boolean res = sendResult.apply(batch);
+        sendLatch.countDown();
+        return res;
+      }
+    };
+    batcher.setConfig(config);
+    batcher.initialize();
+  }
+
+  @AfterMethod
+  public void after() {
+    batcher.cleanup();
+  }
+
+  @Test
+  public void queriesSentInOneBatch() throws InterruptedException {
+    // GIVEN
+    sendLatch = new CountDownLatch(1);
+    List<Pair<String, Short>> registeredNodes = new ArrayList<>();
+    BatchedQuery query1 = createQuery("user", node -> registeredNodes.add(node));
+    BatchedQuery query2 = createQuery("user", node -> registeredNodes.add(node));
+
+    // WHEN
+    batcher.execute(BATCH_KEY, query1);
+    batcher.execute(BATCH_KEY, query2);
+
+    // THEN
+    Assert.assertTrue(sendLatch.await(5, TimeUnit.SECONDS), "Expected batch to be sent.");
+    Assert.assertEquals(sentBatches.size(), 1, "Expected one batch to be sent.");
+    Assert.assertEquals(sentBatches.getFirst(), Arrays.asList(query1, query2), "Expected both queries in batch.");
+    Assert.assertEquals(registeredNodes, Arrays.asList(NODE, NODE), "Expected result handlers to be registered.");
+  }
+
+  @Test
+  public void differentBatchKeysAndUsersSentSeparately() throws InterruptedException {
+    // GIVEN
+    sendLatch = new CountDownLatch(3);
+    BatchedQuery query1 = createQuery("user");
+    BatchedQuery query2 = createQuery("user");
+    BatchedQuery query3 = createQuery("otherUser");
+
+    // WHEN
+    batcher.execute(BATCH_KEY, query1);
+    batcher.execute("otherAnalysis:1", query2);
+    batcher.execute(BATCH_KEY, query3);
+
+    // THEN
+    Assert.assertTrue(sendLatch.await(5, TimeUnit.SECONDS), "Expected batches to be sent.");
+    Assert.assertEquals(new HashSet<>(sentBatches),
+        new HashSet<>(Arrays.asList(Arrays.asList(query1), Arrays.asList(query2), Arrays.asList(query3))),
+        "Expected each query to be sent in its own batch.");
+  }
+
+  @Test
+  public void removedQueryNotSent() throws InterruptedException {
+    // GIVEN
+    sendLatch = new CountDownLatch(1);
+    BatchedQuery query1 = createQuery("user");
+    BatchedQuery query2 = createQuery("user", node -> Assert.fail("Removed query should not be registered."));
+
+    // WHEN
+    batcher.execute(BATCH_KEY, query1);
+    batcher.execute(BATCH_KEY, query2);
+    boolean removed = batcher.remove(query2.getQueryUuid());
+
+    // THEN
+    Assert.assertTrue(removed, "Expected query to be removed.");
+    Assert.assertTrue(sendLatch.await(5, TimeUnit.SECONDS), "Expected batch to be sent.");
+    Assert.assertEquals(sentBatches.getFirst(), Arrays.asList(query1), "Expected only remaining query in batch.");
+    Assert.assertFalse(batcher.remove(query1.getQueryUuid()), "Expected sent query to not be removable any more.");
+  }
+
+  @Test
+  public void noServerReachableReportedToResultHandler() throws Exception {
+    // GIVEN
+    sendLatch = new CountDownLatch(1);
+    sendResult = batch -> false;
+    BatchedQuery query = createQuery("user");
+
+    // WHEN
+    batcher.execute(BATCH_KEY, query);
+
+    // THEN
+    Assert.assertTrue(sendLatch.await(5, TimeUnit.SECONDS), "Expected batch to be tried to be sent.");
+    Mockito.verify(query.getResultHandler(), Mockito.timeout(5000)).queryException(
+        Mockito.eq(RUuidUtil.toRUuid(query.getQueryUuid())), Mockito.any(RQueryException.class));
+  }
+
+  @Test
+  public void noBatchWindowSendsRightAway() {
+    // GIVEN
+    sendLatch = new CountDownLatch(1);
+    Mockito.when(config.getQueryBatchWindowMs()).thenReturn(0L);
+    BatchedQuery query = createQuery("user");
+
+    // WHEN
+    batcher.execute(BATCH_KEY, query);
+
+    // THEN
+    Assert.assertEquals(sentBatches.size(), 1, "Expected query to be sent synchronously.");
+    Assert.assertEquals(sentBatches.getFirst(), Arrays.asList(query), "Expected query in batch.");
+  }
+
+  private BatchedQuery createQuery(String userName) {
+    return createQuery(userName, node -> {
+      // noop
+    });
+  }
+
+  private BatchedQuery createQuery(String userName,
+      Consumer<Pair<String, Short>> resultCallbackRegistration) {
+    Ticket ticket = new Ticket();
+    ticket.setClaim(new TicketClaim());
+    ticket.getClaim().setUsername(userName);
+    return new BatchedQuery(UUID.randomUUID(), "select a from t", ticket,
+        Mockito.mock(QueryResultService.Iface.class), resultCallbackRegistration);
+  }
+}
@@ -0,0 +1,236 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.VMOption;
+
+/**
+ * Calculates the retained heap sizes of objects and arrays based on the object layout of the running JVM.
+ *
+ * <p>
+ * The layout (object header size, reference size and object alignment) is detected once when this class is loaded. On
+ * 64 bit JVMs with compressed oops (the default for heaps < 32 GB) references take 4 bytes, otherwise 8 bytes. All
+ * sizes returned are aligned to the object alignment of the JVM, just like the objects on the heap are.
+ *
+ * <p>
+ * The methods of this class do not inspect any objects, but calculate sizes from the number of fields/elements only.
+ * Classes that want to report their retained size therefore need to sum up the sizes of all objects they reference
+ * exclusively.
+ *
+ * @author Bastian Gloeckle
+ */
+public class MemorySizeUtil {
+  /** Size of a reference in bytes. */
+  public static final int REFERENCE_BYTES;
+  /** Size of the header of a plain object in bytes. */
+  public static final int OBJECT_HEADER_BYTES;
+  /** Size of the header of an array (including the length field) in bytes. */
+  public static final int ARRAY_HEADER_BYTES;
+  /** Alignment of objects on the heap in bytes. */
+  public static final int OBJECT_ALIGNMENT_BYTES;
+
+  /** Retained size of a {@link Long} object. */
+  public static final long BOXED_LONG_BYTES;
+  /** Retained size of a {@link Double} object. */
+  public static final long BOXED_DOUBLE_BYTES;
+  /**
+   * Retained size of a single entry of a {@link java.util.HashMap} - without the key and value objects and without the
+   * slot in the table array.
+   */
+  public static final long HASH_MAP_ENTRY_BYTES;
+  /** Retained size of a single entry of a {@link java.util.TreeMap} - without the key and value objects. */
+  public static final long TREE_MAP_ENTRY_BYTES;
+
+  /** <code>true</code> if {@link String}s store their characters in a byte[] (compact strings). */
+  private static final boolean COMPACT_STRINGS;
+
+  static {
+    boolean is64Bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+    boolean compressedOops = false;
+    boolean compressedClassPointers = false;
+    int alignment = 8;
+    if (is64Bit) {
+      Boolean compressedOopsOption = readBooleanVmOption("UseCompressedOops");
+      compressedOops = (compressedOopsOption != null) ? compressedOopsOption
+          : Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+      Boolean compressedClassPointersOption = readBooleanVmOption("UseCompressedClassPointers");
+      compressedClassPointers =
+          (compressedClassPointersOption != null) ? compressedClassPointersOption : compressedOops;
+      Integer alignmentOption = readIntVmOption("ObjectAlignmentInBytes");
+      if (alignmentOption != null)
+        alignment = alignmentOption;
+    }
+
+    REFERENCE_BYTES = (is64Bit && !compressedOops) ? 8 : 4;
+    if (!is64Bit)
+      OBJECT_HEADER_BYTES = 8;
+    else
+      // mark word + class pointer
+      OBJECT_HEADER_BYTES = 8 + (compressedClassPointers ? 4 : 8);
+    ARRAY_HEADER_BYTES = OBJECT_HEADER_BYTES + 4;
+    OBJECT_ALIGNMENT_BYTES = alignment;
+
+    BOXED_LONG_BYTES = objectSize(8, 0);
+    BOXED_DOUBLE_BYTES = objectSize(8, 0);
+    // int hash, key, value, next
+    HASH_MAP_ENTRY_BYTES = objectSize(4, 3);
+    // key, value, left, right, parent, boolean color
+    TREE_MAP_ENTRY_BYTES = objectSize(1, 5);
+
+    boolean compactStrings;
+    try {
+      Field valueField = String.class.getDeclaredField("value");
+      compactStrings = valueField.getType().equals(byte[].class);
+    } catch (NoSuchFieldException | SecurityException e) {
+      compactStrings = false;
+    }
+    COMPACT_STRINGS = compactStrings;
+  }
+
+  private MemorySizeUtil() {
+
+  }
+
+  private static String readVmOption(String name) {
+    try {
+      HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+      if (bean == null)
+        return null;
+      VMOption option = bean.getVMOption(name);
+      return option.getValue();
+    } catch (RuntimeException | LinkageError e) {
+      // not a HotSpot JVM or option not available.
+      return null;
+    }
+  }
+
+  private static Boolean readBooleanVmOption(String name) {
+    String value = readVmOption(name);
+    return (value == null) ? null : Boolean.valueOf(value);
+  }
+
+  private static Integer readIntVmOption(String name) {
+    String value = readVmOption(name);
+    if (value == null)
+      return null;
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return The given size aligned to the object alignment of the JVM.
+   */
+  public static long align(long size) {
+    return (size + OBJECT_ALIGNMENT_BYTES - 1) / OBJECT_ALIGNMENT_BYTES * OBJECT_ALIGNMENT_BYTES;
+  }
+
+  /**
+   * Shallow size of an object.
+   *
+   * @param primitiveFieldBytes
+   *          Sum of the sizes of all primitive fields of the object (including fields of super classes).
+   * @param referenceFields
+   *          Number of reference fields of the object (including fields of super classes).
+   */
+  public static long objectSize(long primitiveFieldBytes, int referenceFields) {
+    return align(OBJECT_HEADER_BYTES + primitiveFieldBytes + (long) referenceFields * REFERENCE_BYTES);
+  }
+
+  private static long primitiveArraySize(long length, int elementBytes) {
+    return align(ARRAY_HEADER_BYTES + length * elementBytes);
+  }
+
+  /** Size of a long[] of the given length. */
+  public static long longArraySize(long length) {
+    return primitiveArraySize(length, 8);
+  }
+
+  /** Size of a double[] of the given length. */
+  public static long doubleArraySize(long length) {
+    return primitiveArraySize(length, 8);
+  }
+
+  /** Size of an int[] of the given length. */
+  public static long intArraySize(long length) {
+    return primitiveArraySize(length, 4);
+  }
+
+  /** Size of a char[] of the given length. */
+  public static long charArraySize(long length) {
+    return primitiveArraySize(length, 2);
+  }
+
+  /** Size of a byte[] of the given length. */
+  public static long byteArraySize(long length) {
+    return primitiveArraySize(length, 1);
+  }
+
+  /** Shallow size of an Object[] of the given length, i.e. without the referenced objects. */
+  public static long referenceArraySize(long length) {
+    return primitiveArraySize(length, REFERENCE_BYTES);
+  }
+
+  /** Retained size of a {@link String}, including its character array. */
+  public static long stringSize(String s) {
+    if (COMPACT_STRINGS) {
+      // byte[] value, int hash, byte coder (+ boolean hashIsZero on newer JVMs, fits into padding).
+      boolean latin1 = true;
+      for (int i = 0; i < s.length() && latin1; i++)
+        latin1 = s.charAt(i) < 256;
+      return objectSize(4 + 1 + 1, 1) + byteArraySize((long) s.length() * (latin1 ? 1 : 2));
+    }
+    // char[] value, int hash
+    return objectSize(4, 1) + charArraySize(s.length());
+  }
+
+  /**
+   * Retained size of a {@link java.util.HashMap} with the given number of entries, without the key and value objects.
+   */
+  public static long hashMapSize(long entries) {
+    // table size is the next power of two with a load factor of .75.
+    long tableLength = Long.highestOneBit(Math.max(1, (long) Math.ceil(entries / .75)) * 2 - 1);
+    // HashMap object: entrySet, keySet, values, table; size, modCount, threshold, loadFactor
+    return objectSize(4 * 4, 4) + referenceArraySize(tableLength) + entries * HASH_MAP_ENTRY_BYTES;
+  }
+
+  /**
+   * Retained size of a {@link java.util.TreeMap} with the given number of entries, without the key and value objects.
+   */
+  public static long treeMapSize(long entries) {
+    // TreeMap object: comparator, root, entrySet, navigableKeySet, descendingMap, keySet, values; size, modCount
+    return objectSize(2 * 4, 7) + entries * TREE_MAP_ENTRY_BYTES;
+  }
+
+  /**
+   * Retained size of an {@link java.util.ArrayList} with the given capacity, without the element objects.
+   */
+  public static long arrayListSize(long capacity) {
+    // elementData; size, modCount
+    return objectSize(2 * 4, 1) + referenceArraySize(capacity);
+  }
+}
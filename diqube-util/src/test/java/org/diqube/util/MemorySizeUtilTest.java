@@ -0,0 +1,72 @@
+/**
+ * diqube: Distributed Query Base.
+ *
+ * Copyright (C) 2015 Bastian Gloeckle
+ *
+ * This file is part of diqube.
+ *
+ * diqube is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.diqube.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link MemorySizeUtil}.
+ *
+ * @author Bastian Gloeckle
+ */
+public class MemorySizeUtilTest {
+  @Test
+  public void sizesAreAlignedTest() {
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(MemorySizeUtil.longArraySize(i) % MemorySizeUtil.OBJECT_ALIGNMENT_BYTES, 0,
+          "Expected long[" + i + "] size to be aligned");
+      Assert.assertEquals(MemorySizeUtil.byteArraySize(i) % MemorySizeUtil.OBJECT_ALIGNMENT_BYTES, 0,
+          "Expected byte[" + i + "] size to be aligned");
+      Assert.assertEquals(MemorySizeUtil.objectSize(i, i % 3) % MemorySizeUtil.OBJECT_ALIGNMENT_BYTES, 0,
+          "Expected object size to be aligned");
+    }
+  }
+
+  @Test
+  public void arraySizesIncludeHeaderAndElementsTest() {
+    Assert.assertTrue(MemorySizeUtil.longArraySize(0) >= MemorySizeUtil.ARRAY_HEADER_BYTES,
+        "Expected empty array to contain header");
+    Assert.assertEquals(MemorySizeUtil.longArraySize(1000) - MemorySizeUtil.longArraySize(0), 8000L,
+        "Expected 8 bytes per long");
+    Assert.assertEquals(MemorySizeUtil.intArraySize(1000) - MemorySizeUtil.intArraySize(0), 4000L,
+        "Expected 4 bytes per int");
+    Assert.assertEquals(MemorySizeUtil.referenceArraySize(1000) - MemorySizeUtil.referenceArraySize(0),
+        1000L * MemorySizeUtil.REFERENCE_BYTES, "Expected correct size per reference");
+  }
+
+  @Test
+  public void stringSizeGrowsWithLengthTest() {
+    long emptySize = MemorySizeUtil.stringSize("");
+    long longSize = MemorySizeUtil.stringSize(new String(new char[1000]).replace('\0', 'a'));
+
+    Assert.assertTrue(emptySize >= MemorySizeUtil.OBJECT_HEADER_BYTES + MemorySizeUtil.ARRAY_HEADER_BYTES,
+        "Expected empty string to contain object and array header");
+    Assert.assertTrue(longSize - emptySize >= 1000, "Expected at least one byte per character");
+  }
+
+  @Test
+  public void hashMapSizeGrowsWithEntriesTest() {
+    Assert.assertTrue(MemorySizeUtil.hashMapSize(1000) - MemorySizeUtil.hashMapSize(0) >= //
+        1000 * (MemorySizeUtil.HASH_MAP_ENTRY_BYTES + MemorySizeUtil.REFERENCE_BYTES),
+        "Expected entries and table slots to be accounted");
+  }
+}